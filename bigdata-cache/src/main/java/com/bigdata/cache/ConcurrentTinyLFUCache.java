@@ -0,0 +1,1150 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded concurrent cache which holds its values by hard references and
+ * uses the W-TinyLFU policy to decide which entries to retain. Unlike
+ * {@link ConcurrentWeakValueCache} and
+ * {@link ConcurrentWeakValueCacheWithBatchedUpdates}, there are no
+ * {@link WeakReference}s and no {@link java.lang.ref.ReferenceQueue}, so the
+ * cache does not create work for the garbage collector's reference processing
+ * and its retention does not depend on when the garbage collector runs. An
+ * entry is retained until it is evicted by the policy or removed by the
+ * caller.
+ * <p>
+ * The cache is bounded by the sum of the weights of its entries (see
+ * {@link IWeigher}). By default each entry has a weight of one, so the bound
+ * is the #of entries. The policy consists of:
+ * <dl>
+ * <dt>window</dt>
+ * <dd>A small LRU (1% of the maximum weight) which admits all new entries so
+ * that bursts of accesses to new keys are captured.</dd>
+ * <dt>main</dt>
+ * <dd>A segmented LRU with a probation segment and a protected segment (80% of
+ * the main weight). An entry which is accessed while in probation is promoted
+ * to the protected segment.</dd>
+ * <dt>admission</dt>
+ * <dd>When the window overflows, its LRU entry becomes a candidate for the
+ * main space. If the main space is full, the candidate is only admitted if its
+ * recent access frequency, as estimated by a {@link FrequencySketch}, is
+ * greater than that of the LRU entry in probation. This keeps one-hit wonders
+ * and scans from flushing frequently used entries.</dd>
+ * </dl>
+ * The policy is not thread-safe and is guarded by a lock. Reads never block on
+ * that lock. A read records the entry in one of several striped, lossy ring
+ * buffers (selected by the thread) and the buffers are drained by whichever
+ * thread obtains the lock. Reads which are dropped because a buffer is full
+ * only make the policy less precise. Writes are recorded in a queue which is
+ * never lossy and drained in the same manner, so the cache may exceed its
+ * bound briefly under concurrent writes.
+ * <p>
+ * This class implements {@link IConcurrentWeakValueCache} so that it may be
+ * used in place of the weak value caches. The {@link WeakReference}s visited
+ * by {@link #iterator()} and {@link #entryIterator()} are created for the
+ * iteration and are never cleared while the entry is in the cache. This class
+ * MUST NOT be used where the caller relies on a weak value cache to
+ * canonicalize objects which are still in use (for example, to ensure that
+ * there is only one instance of a mutable object): an entry may be evicted
+ * while its value is still strongly reachable elsewhere.
+ *
+ * @param <K>
+ *            The generic type of the key.
+ * @param <V>
+ *            The generic type of the value.
+ */
+public class ConcurrentTinyLFUCache<K, V> implements
+        IConcurrentWeakValueCache<K, V> {
+
+    /**
+     * The fraction of the maximum weight used for the window.
+     */
+    static final double WINDOW_RATIO = .01;
+
+    /**
+     * The fraction of the main weight used for the protected segment.
+     */
+    static final double PROTECTED_RATIO = .80;
+
+    /**
+     * The capacity of each read buffer (a power of two).
+     */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /**
+     * The #of pending writes which forces a writer to wait for the lock.
+     */
+    static final int WRITE_BUFFER_MAX = 128;
+
+    /**
+     * The #of read buffers (a power of two).
+     */
+    private static final int NSTRIPES = FrequencySketch
+            .ceilingPowerOfTwo(Math.min(64, 4 * Runtime.getRuntime()
+                    .availableProcessors()));
+
+    /*
+     * The queue in which an entry appears in the policy.
+     */
+    private static final byte NONE = 0;
+    private static final byte WINDOW = 1;
+    private static final byte PROBATION = 2;
+    private static final byte PROTECTED = 3;
+
+    /**
+     * A weigher which assigns a weight of one to each entry.
+     */
+    private static final IWeigher<Object, Object> SINGLETON = new IWeigher<Object, Object>() {
+        @Override
+        public int weigh(final Object k, final Object v) {
+            return 1;
+        }
+    };
+
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+
+    private final IWeigher<? super K, ? super V> weigher;
+
+    private final long maximumWeight;
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    /**
+     * Guards the policy (the queues, the weights and the sketch).
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final ReadBuffer<K, V>[] readBuffers;
+
+    private final ConcurrentLinkedQueue<Node<K, V>> writeBuffer = new ConcurrentLinkedQueue<Node<K, V>>();
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /*
+     * Guarded by the evictionLock.
+     */
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<K, V>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<K, V>();
+    private final AccessOrderDeque<K, V> protectedSegment = new AccessOrderDeque<K, V>();
+    private final FrequencySketch<K> sketch;
+    private long windowWeight;
+    private long protectedWeight;
+    private long weightedSize;
+
+    /**
+     * Create a cache in which each entry has a weight of one.
+     *
+     * @param capacity
+     *            The maximum #of entries.
+     */
+    public ConcurrentTinyLFUCache(final int capacity) {
+
+        this(capacity, .75f, 16);
+
+    }
+
+    /**
+     * Create a cache in which each entry has a weight of one.
+     *
+     * @param capacity
+     *            The maximum #of entries.
+     * @param loadFactor
+     *            The load factor for the backing hash map.
+     * @param concurrencyLevel
+     *            The concurrency level for the backing hash map.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentTinyLFUCache(final int capacity, final float loadFactor,
+            final int concurrencyLevel) {
+
+        this(capacity, (IWeigher<? super K, ? super V>) SINGLETON, capacity,
+                loadFactor, concurrencyLevel);
+
+    }
+
+    /**
+     * Create a cache bounded by the sum of the weights of its entries.
+     *
+     * @param maximumWeight
+     *            The maximum total weight.
+     * @param weigher
+     *            Computes the weight of each entry.
+     */
+    public ConcurrentTinyLFUCache(final long maximumWeight,
+            final IWeigher<? super K, ? super V> weigher) {
+
+        this(maximumWeight, weigher, 16, .75f, 16);
+
+    }
+
+    /**
+     * Core impl.
+     *
+     * @param maximumWeight
+     *            The maximum total weight.
+     * @param weigher
+     *            Computes the weight of each entry.
+     * @param initialCapacity
+     *            The initial capacity of the backing hash map.
+     * @param loadFactor
+     *            The load factor for the backing hash map.
+     * @param concurrencyLevel
+     *            The concurrency level for the backing hash map.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentTinyLFUCache(final long maximumWeight,
+            final IWeigher<? super K, ? super V> weigher,
+            final int initialCapacity, final float loadFactor,
+            final int concurrencyLevel) {
+
+        if (maximumWeight < 0)
+            throw new IllegalArgumentException();
+
+        if (weigher == null)
+            throw new IllegalArgumentException();
+
+        this.maximumWeight = maximumWeight;
+
+        this.weigher = weigher;
+
+        this.windowMaximum = maximumWeight
+                - (long) (maximumWeight * (1d - WINDOW_RATIO));
+
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_RATIO);
+
+        this.map = new ConcurrentHashMap<K, Node<K, V>>(initialCapacity,
+                loadFactor, concurrencyLevel);
+
+        this.sketch = new FrequencySketch<K>(maximumWeight);
+
+        this.readBuffers = new ReadBuffer[NSTRIPES];
+
+        for (int i = 0; i < NSTRIPES; i++) {
+
+            readBuffers[i] = new ReadBuffer<K, V>();
+
+        }
+
+    }
+
+    /**
+     * The #of entries in the map (the entries which have not yet been evicted
+     * by the policy are included).
+     */
+    @Override
+    public int size() {
+
+        return map.size();
+
+    }
+
+    /**
+     * The maximum weight (for the default weigher, the maximum #of entries).
+     */
+    @Override
+    public int capacity() {
+
+        return (int) Math.min(maximumWeight, Integer.MAX_VALUE);
+
+    }
+
+    /**
+     * The maximum total weight of the entries in the cache.
+     */
+    public long getMaximumWeight() {
+
+        return maximumWeight;
+
+    }
+
+    /**
+     * The total weight of the entries known to the policy.
+     */
+    public long getWeightedSize() {
+
+        evictionLock.lock();
+
+        try {
+
+            return weightedSize;
+
+        } finally {
+
+            evictionLock.unlock();
+
+        }
+
+    }
+
+    /**
+     * The #of reads which found an entry.
+     */
+    public long getHitCount() {
+
+        long n = 0;
+
+        for (ReadBuffer<K, V> b : readBuffers)
+            n += b.hitCount.get();
+
+        return n;
+
+    }
+
+    /**
+     * The #of reads which did not find an entry.
+     */
+    public long getMissCount() {
+
+        long n = 0;
+
+        for (ReadBuffer<K, V> b : readBuffers)
+            n += b.missCount.get();
+
+        return n;
+
+    }
+
+    /**
+     * The #of entries evicted by the policy.
+     */
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+
+    }
+
+    @Override
+    public V get(final K k) {
+
+        final Node<K, V> node = map.get(k);
+
+        final ReadBuffer<K, V> buf = readBuffers[probe()];
+
+        if (node == null) {
+
+            buf.missCount.incrementAndGet();
+
+            return null;
+
+        }
+
+        buf.hitCount.incrementAndGet();
+
+        final V v = node.value;
+
+        afterRead(buf, node);
+
+        return v;
+
+    }
+
+    @Override
+    public boolean containsKey(final K k) {
+
+        return map.containsKey(k);
+
+    }
+
+    @Override
+    public V put(final K k, final V v) {
+
+        return put(k, v, false/* onlyIfAbsent */);
+
+    }
+
+    @Override
+    public V putIfAbsent(final K k, final V v) {
+
+        return put(k, v, true/* onlyIfAbsent */);
+
+    }
+
+    private V put(final K k, final V v, final boolean onlyIfAbsent) {
+
+        if (k == null || v == null)
+            throw new IllegalArgumentException();
+
+        final int weight = weigher.weigh(k, v);
+
+        if (weight < 0)
+            throw new IllegalArgumentException();
+
+        final Node<K, V> node = new Node<K, V>(k, v, weight);
+
+        while (true) {
+
+            final Node<K, V> prior = map.putIfAbsent(k, node);
+
+            if (prior == null) {
+
+                afterWrite(node);
+
+                return null;
+
+            }
+
+            if (onlyIfAbsent) {
+
+                final V old = prior.value;
+
+                if (!prior.alive) {
+                    // Removed concurrently. Retry.
+                    continue;
+                }
+
+                afterRead(readBuffers[probe()], prior);
+
+                return old;
+
+            }
+
+            final V old;
+
+            synchronized (prior) {
+
+                if (!prior.alive) {
+                    // Removed concurrently. Retry.
+                    continue;
+                }
+
+                old = prior.value;
+
+                prior.value = v;
+
+                prior.weight = weight;
+
+            }
+
+            afterWrite(prior);
+
+            return old;
+
+        }
+
+    }
+
+    @Override
+    public V remove(final K k) {
+
+        final Node<K, V> node = map.remove(k);
+
+        if (node == null)
+            return null;
+
+        final V old;
+
+        synchronized (node) {
+
+            node.alive = false;
+
+            old = node.value;
+
+        }
+
+        afterWrite(node);
+
+        return old;
+
+    }
+
+    @Override
+    public void clear() {
+
+        evictionLock.lock();
+
+        try {
+
+            for (Node<K, V> node : map.values()) {
+
+                if (map.remove(node.key, node)) {
+
+                    synchronized (node) {
+
+                        node.alive = false;
+
+                    }
+
+                    unlink(node);
+
+                }
+
+            }
+
+            // Discard the buffered reads and writes for the removed entries.
+            maintenance();
+
+        } finally {
+
+            evictionLock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Visits a new {@link WeakReference} for each value in the cache.
+     */
+    @Override
+    public Iterator<WeakReference<V>> iterator() {
+
+        final Iterator<Node<K, V>> src = map.values().iterator();
+
+        return new Iterator<WeakReference<V>>() {
+
+            private K lastKey = null;
+
+            @Override
+            public boolean hasNext() {
+                return src.hasNext();
+            }
+
+            @Override
+            public WeakReference<V> next() {
+                final Node<K, V> node = src.next();
+                lastKey = node.key;
+                return new WeakReference<V>(node.value);
+            }
+
+            @Override
+            public void remove() {
+                if (lastKey == null)
+                    throw new IllegalStateException();
+                ConcurrentTinyLFUCache.this.remove(lastKey);
+                lastKey = null;
+            }
+
+        };
+
+    }
+
+    /**
+     * Visits each entry in the cache. The value of each entry is a new
+     * {@link WeakReference}.
+     */
+    @Override
+    public Iterator<Map.Entry<K, WeakReference<V>>> entryIterator() {
+
+        final Iterator<Node<K, V>> src = map.values().iterator();
+
+        return new Iterator<Map.Entry<K, WeakReference<V>>>() {
+
+            private K lastKey = null;
+
+            @Override
+            public boolean hasNext() {
+                return src.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, WeakReference<V>> next() {
+                final Node<K, V> node = src.next();
+                lastKey = node.key;
+                return new AbstractMap.SimpleImmutableEntry<K, WeakReference<V>>(
+                        node.key, new WeakReference<V>(node.value));
+            }
+
+            @Override
+            public void remove() {
+                if (lastKey == null)
+                    throw new IllegalStateException();
+                ConcurrentTinyLFUCache.this.remove(lastKey);
+                lastKey = null;
+            }
+
+        };
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{size=" + size() + ",maximumWeight="
+                + maximumWeight + ",hits=" + getHitCount() + ",misses="
+                + getMissCount() + ",evictions=" + getEvictionCount() + "}";
+
+    }
+
+    /*
+     * Buffers.
+     */
+
+    /**
+     * Return the index of the read buffer for the current thread.
+     */
+    private static int probe() {
+
+        final long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+
+        return (int) (h >>> 32) & (NSTRIPES - 1);
+
+    }
+
+    private void afterRead(final ReadBuffer<K, V> buf, final Node<K, V> node) {
+
+        if (!buf.offer(node)) {
+
+            // The buffer is full.
+            drainBuffers(false/* force */);
+
+        }
+
+    }
+
+    private void afterWrite(final Node<K, V> node) {
+
+        writeBuffer.add(node);
+
+        drainBuffers(pendingWrites.incrementAndGet() > WRITE_BUFFER_MAX);
+
+    }
+
+    /**
+     * Drain the buffers and apply the policy if the lock is available (or
+     * unconditionally if <i>force</i> is <code>true</code>). The buffers are
+     * checked again once the lock is released since a write may have been
+     * buffered by a thread which failed to obtain the lock after the buffers
+     * were drained.
+     */
+    private void drainBuffers(boolean force) {
+
+        do {
+
+            if (force) {
+
+                evictionLock.lock();
+
+            } else if (!evictionLock.tryLock()) {
+
+                return;
+
+            }
+
+            try {
+
+                maintenance();
+
+            } finally {
+
+                evictionLock.unlock();
+
+            }
+
+            force = false;
+
+        } while (!writeBuffer.isEmpty());
+
+    }
+
+    /**
+     * Drain the buffers and evict entries if the cache is over its maximum
+     * weight.
+     * <p>
+     * Note: The caller MUST hold the {@link #evictionLock}.
+     */
+    private void maintenance() {
+
+        for (ReadBuffer<K, V> buf : readBuffers) {
+
+            buf.drain(this);
+
+        }
+
+        Node<K, V> node;
+
+        while ((node = writeBuffer.poll()) != null) {
+
+            pendingWrites.decrementAndGet();
+
+            onWrite(node);
+
+        }
+
+        evict();
+
+    }
+
+    /*
+     * Policy (the caller MUST hold the evictionLock).
+     */
+
+    private void onRead(final Node<K, V> node) {
+
+        if (!node.alive || node.queue == NONE)
+            return;
+
+        onAccess(node);
+
+    }
+
+    private void onWrite(final Node<K, V> node) {
+
+        if (!node.alive) {
+
+            // Removed.
+            unlink(node);
+
+            return;
+
+        }
+
+        final int weight = node.weight;
+
+        if (node.queue == NONE) {
+
+            // Added.
+            sketch.increment(node.key);
+
+            node.policyWeight = weight;
+
+            node.queue = WINDOW;
+
+            window.addLast(node);
+
+            windowWeight += weight;
+
+            weightedSize += weight;
+
+        } else {
+
+            // Updated.
+            final int delta = weight - node.policyWeight;
+
+            node.policyWeight = weight;
+
+            weightedSize += delta;
+
+            if (node.queue == WINDOW) {
+
+                windowWeight += delta;
+
+            } else if (node.queue == PROTECTED) {
+
+                protectedWeight += delta;
+
+            }
+
+            onAccess(node);
+
+        }
+
+        if (weight > maximumWeight) {
+
+            // Can never fit.
+            evictNode(node);
+
+        }
+
+    }
+
+    private void onAccess(final Node<K, V> node) {
+
+        sketch.increment(node.key);
+
+        switch (node.queue) {
+        case WINDOW:
+            window.moveToBack(node);
+            break;
+        case PROBATION:
+            // Promote.
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedSegment.addLast(node);
+            protectedWeight += node.policyWeight;
+            demote();
+            break;
+        case PROTECTED:
+            protectedSegment.moveToBack(node);
+            demote();
+            break;
+        default:
+            throw new AssertionError();
+        }
+
+    }
+
+    /**
+     * Demote the LRU entries of the protected segment to probation while the
+     * protected segment is over its maximum weight.
+     */
+    private void demote() {
+
+        while (protectedWeight > protectedMaximum) {
+
+            final Node<K, V> node = protectedSegment.first;
+
+            if (node == null)
+                break;
+
+            protectedSegment.remove(node);
+
+            protectedWeight -= node.policyWeight;
+
+            node.queue = PROBATION;
+
+            probation.addLast(node);
+
+        }
+
+    }
+
+    /**
+     * Move the entries which overflow the window into probation and then evict
+     * entries until the cache is within its maximum weight. Each entry moved
+     * from the window is a candidate which must win against the LRU entry of
+     * probation (the victim) in order to remain in the cache.
+     */
+    private void evict() {
+
+        // The first of the candidates (they are at the end of probation).
+        Node<K, V> candidate = null;
+
+        while (windowWeight > windowMaximum) {
+
+            final Node<K, V> node = window.first;
+
+            if (node == null)
+                break;
+
+            window.remove(node);
+
+            windowWeight -= node.policyWeight;
+
+            node.queue = PROBATION;
+
+            probation.addLast(node);
+
+            if (candidate == null)
+                candidate = node;
+
+        }
+
+        while (weightedSize > maximumWeight) {
+
+            Node<K, V> victim = probation.first;
+
+            if (victim == null) {
+
+                victim = protectedSegment.first;
+
+                if (victim == null)
+                    victim = window.first;
+
+                if (victim == null)
+                    throw new AssertionError();
+
+                evictNode(victim);
+
+                continue;
+
+            }
+
+            if (candidate == null) {
+
+                evictNode(victim);
+
+                continue;
+
+            }
+
+            if (victim == candidate) {
+
+                // Only candidates remain in probation.
+                candidate = candidate.next;
+
+                evictNode(victim);
+
+                continue;
+
+            }
+
+            if (sketch.frequency(candidate.key) > sketch
+                    .frequency(victim.key)) {
+
+                // Admit the candidate.
+                evictNode(victim);
+
+            } else {
+
+                // Reject the candidate.
+                final Node<K, V> next = candidate.next;
+
+                evictNode(candidate);
+
+                candidate = next;
+
+            }
+
+        }
+
+    }
+
+    private void evictNode(final Node<K, V> node) {
+
+        unlink(node);
+
+        if (map.remove(node.key, node)) {
+
+            synchronized (node) {
+
+                node.alive = false;
+
+            }
+
+            evictionCount.incrementAndGet();
+
+        }
+
+    }
+
+    /**
+     * Remove the entry from the policy.
+     */
+    private void unlink(final Node<K, V> node) {
+
+        switch (node.queue) {
+        case NONE:
+            return;
+        case WINDOW:
+            window.remove(node);
+            windowWeight -= node.policyWeight;
+            break;
+        case PROBATION:
+            probation.remove(node);
+            break;
+        case PROTECTED:
+            protectedSegment.remove(node);
+            protectedWeight -= node.policyWeight;
+            break;
+        default:
+            throw new AssertionError();
+        }
+
+        weightedSize -= node.policyWeight;
+
+        node.queue = NONE;
+
+    }
+
+    /**
+     * An entry in the cache.
+     */
+    private static final class Node<K, V> {
+
+        final K key;
+
+        volatile V value;
+
+        volatile int weight;
+
+        /**
+         * <code>false</code> once the entry has been removed from the map.
+         * Updated while synchronized on the node.
+         */
+        volatile boolean alive = true;
+
+        /*
+         * Guarded by the evictionLock.
+         */
+        int policyWeight;
+        byte queue = NONE;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(final K key, final V value, final int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * An intrusive doubly linked list of entries in access order (LRU first).
+     */
+    private static final class AccessOrderDeque<K, V> {
+
+        Node<K, V> first;
+
+        Node<K, V> last;
+
+        void addLast(final Node<K, V> node) {
+
+            node.prev = last;
+
+            node.next = null;
+
+            if (last == null) {
+
+                first = node;
+
+            } else {
+
+                last.next = node;
+
+            }
+
+            last = node;
+
+        }
+
+        void remove(final Node<K, V> node) {
+
+            if (node.prev == null) {
+
+                first = node.next;
+
+            } else {
+
+                node.prev.next = node.next;
+
+            }
+
+            if (node.next == null) {
+
+                last = node.prev;
+
+            } else {
+
+                node.next.prev = node.prev;
+
+            }
+
+            node.prev = node.next = null;
+
+        }
+
+        void moveToBack(final Node<K, V> node) {
+
+            if (node != last) {
+
+                remove(node);
+
+                addLast(node);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * A lossy bounded buffer of reads. Any thread may offer a read. The buffer
+     * is drained by the thread which holds the {@link #evictionLock}. A read
+     * is dropped if the buffer is full or if another thread won the race for
+     * the slot.
+     */
+    private static final class ReadBuffer<K, V> {
+
+        private static final int MASK = READ_BUFFER_SIZE - 1;
+
+        private final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<Node<K, V>>(
+                READ_BUFFER_SIZE);
+
+        /**
+         * The #of slots which have been claimed.
+         */
+        private final AtomicLong writeCounter = new AtomicLong();
+
+        /**
+         * The #of slots which have been drained.
+         */
+        private volatile long readCounter;
+
+        /*
+         * Statistics (striped with the buffers to avoid contention).
+         */
+        final AtomicLong hitCount = new AtomicLong();
+        final AtomicLong missCount = new AtomicLong();
+
+        /**
+         * Record a read.
+         *
+         * @return <code>false</code> iff the buffer is full.
+         */
+        boolean offer(final Node<K, V> node) {
+
+            final long tail = writeCounter.get();
+
+            if (tail - readCounter >= READ_BUFFER_SIZE)
+                return false;
+
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+
+                buffer.lazySet((int) (tail & MASK), node);
+
+            }
+
+            return true;
+
+        }
+
+        /**
+         * Apply the buffered reads to the policy.
+         */
+        void drain(final ConcurrentTinyLFUCache<K, V> cache) {
+
+            long head = readCounter;
+
+            final long tail = writeCounter.get();
+
+            for (; head < tail; head++) {
+
+                final int index = (int) (head & MASK);
+
+                final Node<K, V> node = buffer.get(index);
+
+                if (node == null) {
+                    // Claimed but not yet published.
+                    break;
+                }
+
+                buffer.lazySet(index, null);
+
+                cache.onRead(node);
+
+            }
+
+            readCounter = head;
+
+        }
+
+    }
+
+}
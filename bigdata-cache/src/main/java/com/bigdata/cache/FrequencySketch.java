@@ -0,0 +1,218 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.cache;
+
+/**
+ * A count-min sketch which estimates the recent access frequency of keys using
+ * four 4-bit counters per key. Each <code>long</code> in the table holds
+ * sixteen counters. When the #of increments reaches the sample size, every
+ * counter is halved so the sketch forgets old accesses (the "aging" step of
+ * TinyLFU).
+ * <p>
+ * Note: This class is NOT thread-safe. The caller must serialize access.
+ *
+ * @see ConcurrentTinyLFUCache
+ */
+class FrequencySketch<E> {
+
+    /**
+     * The maximum value of a counter.
+     */
+    static final int MAX_COUNT = 15;
+
+    /**
+     * The seeds for the four hash functions.
+     */
+    private static final long[] SEED = { 0xc3a5c85c97cb3127L,
+            0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /**
+     * Masks off the high bit of each counter after a right shift by one.
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * Masks off the low bit of each counter.
+     */
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    /**
+     * The #of increments after which the counters are halved.
+     */
+    private final int sampleSize;
+
+    /**
+     * The #of increments since the counters were last halved.
+     */
+    private int size;
+
+    /**
+     * @param maximumSize
+     *            The expected maximum #of keys in the cache.
+     */
+    FrequencySketch(final long maximumSize) {
+
+        if (maximumSize < 0)
+            throw new IllegalArgumentException();
+
+        final int n = ceilingPowerOfTwo((int) Math.min(
+                Math.max(maximumSize, 1L), 1 << 30));
+
+        table = new long[n];
+
+        tableMask = n - 1;
+
+        sampleSize = (int) Math.min(10L * n, Integer.MAX_VALUE);
+
+    }
+
+    static int ceilingPowerOfTwo(final int x) {
+
+        return x <= 1 ? 1 : Integer.highestOneBit(x - 1) << 1;
+
+    }
+
+    /**
+     * Return the estimated #of recent accesses of the key (in
+     * <code>[0:15]</code>).
+     */
+    int frequency(final E e) {
+
+        final int hash = spread(e.hashCode());
+
+        final int start = (hash & 3) << 2;
+
+        int freq = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 4; i++) {
+
+            final int index = indexOf(hash, i);
+
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+
+            freq = Math.min(freq, count);
+
+        }
+
+        return freq;
+
+    }
+
+    /**
+     * Record an access of the key.
+     */
+    void increment(final E e) {
+
+        final int hash = spread(e.hashCode());
+
+        final int start = (hash & 3) << 2;
+
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++) {
+
+            added |= incrementAt(indexOf(hash, i), start + i);
+
+        }
+
+        if (added && ++size == sampleSize) {
+
+            reset();
+
+        }
+
+    }
+
+    /**
+     * Increment the j-th counter in the i-th <code>long</code> unless it is
+     * saturated.
+     */
+    private boolean incrementAt(final int i, final int j) {
+
+        final int offset = j << 2;
+
+        final long mask = 0xfL << offset;
+
+        if ((table[i] & mask) != mask) {
+
+            table[i] += 1L << offset;
+
+            return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Halve every counter.
+     */
+    private void reset() {
+
+        int count = 0;
+
+        for (int i = 0; i < table.length; i++) {
+
+            // #of odd counters (their halving truncates).
+            count += Long.bitCount(table[i] & ONE_MASK);
+
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+
+        }
+
+        size = (size >>> 1) - (count >>> 2);
+
+    }
+
+    private int indexOf(final int item, final int i) {
+
+        long hash = (item + SEED[i]) * SEED[i];
+
+        hash += hash >>> 32;
+
+        return ((int) hash) & tableMask;
+
+    }
+
+    /**
+     * Apply a supplemental hash function to defend against poor quality hash
+     * codes.
+     */
+    private static int spread(int x) {
+
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+        return (x >>> 16) ^ x;
+
+    }
+
+}
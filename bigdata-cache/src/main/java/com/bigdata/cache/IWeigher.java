@@ -0,0 +1,53 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.cache;
+
+/**
+ * Computes the weight of a cache entry. The cache is bounded by the sum of the
+ * weights of its entries.
+ *
+ * @param <K>
+ *            The generic type of the key.
+ * @param <V>
+ *            The generic type of the value.
+ *
+ * @see ConcurrentTinyLFUCache
+ */
+public interface IWeigher<K, V> {
+
+    /**
+     * Return the weight of the entry. The weight of an entry is computed when
+     * it is inserted or updated and is not re-evaluated thereafter.
+     *
+     * @param k
+     *            The key.
+     * @param v
+     *            The value.
+     *
+     * @return The weight, which MUST be non-negative.
+     */
+    int weigh(K k, V v);
+
+}
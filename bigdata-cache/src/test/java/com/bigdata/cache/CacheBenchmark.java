@@ -0,0 +1,223 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.cache;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the hit ratio, throughput and garbage collection time of
+ * {@link ConcurrentTinyLFUCache}, {@link ConcurrentWeakValueCache} and
+ * {@link ConcurrentWeakValueCacheWithBatchedUpdates} for a skewed (Zipfian)
+ * workload in which a miss is followed by a
+ * {@link IConcurrentWeakValueCache#putIfAbsent(Object, Object)} (the pattern
+ * used by the term cache). This is not part of the test suite. Run it from the
+ * command line:
+ *
+ * <pre>
+ * java com.bigdata.cache.CacheBenchmark [nthreads [capacity [nkeys [nops [skew]]]]]
+ * </pre>
+ */
+public class CacheBenchmark {
+
+    /**
+     * The value type. It is large enough that the weak value caches create
+     * some pressure on the heap.
+     */
+    private static class Value {
+
+        @SuppressWarnings("unused")
+        private final long[] data = new long[16];
+
+    }
+
+    /**
+     * Generates keys in <code>[0:n)</code> with a Zipfian distribution.
+     */
+    private static class Zipf {
+
+        private final double[] cdf;
+
+        Zipf(final int n, final double skew) {
+
+            cdf = new double[n];
+
+            double sum = 0d;
+
+            for (int i = 0; i < n; i++) {
+
+                sum += 1d / Math.pow(i + 1, skew);
+
+                cdf[i] = sum;
+
+            }
+
+            for (int i = 0; i < n; i++) {
+
+                cdf[i] /= sum;
+
+            }
+
+        }
+
+        int next(final Random r) {
+
+            final int i = Arrays.binarySearch(cdf, r.nextDouble());
+
+            return i >= 0 ? i : Math.min(-i - 1, cdf.length - 1);
+
+        }
+
+    }
+
+    private static long getGCTime() {
+
+        long t = 0;
+
+        for (GarbageCollectorMXBean b : ManagementFactory
+                .getGarbageCollectorMXBeans()) {
+
+            t += Math.max(0, b.getCollectionTime());
+
+        }
+
+        return t;
+
+    }
+
+    private static void run(final String name,
+            final IConcurrentWeakValueCache<Long, Value> cache,
+            final int nthreads, final int nkeys, final int nops,
+            final double skew) throws Exception {
+
+        final Zipf zipf = new Zipf(nkeys, skew);
+
+        final AtomicLong hits = new AtomicLong();
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (int i = 0; i < nthreads; i++) {
+
+            final long seed = i;
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    final Random r = new Random(seed);
+                    long nhits = 0;
+                    for (int j = 0; j < nops; j++) {
+                        final Long k = Long.valueOf(zipf.next(r));
+                        if (cache.get(k) != null) {
+                            nhits++;
+                        } else {
+                            cache.putIfAbsent(k, new Value());
+                        }
+                    }
+                    hits.addAndGet(nhits);
+                    return null;
+                }
+            });
+
+        }
+
+        final ExecutorService service = Executors.newFixedThreadPool(nthreads);
+
+        try {
+
+            final long gc0 = getGCTime();
+
+            final long begin = System.nanoTime();
+
+            for (Future<Void> f : service.invokeAll(tasks)) {
+
+                f.get();
+
+            }
+
+            final long elapsed = System.nanoTime() - begin;
+
+            final long gc = getGCTime() - gc0;
+
+            final long total = (long) nthreads * nops;
+
+            System.out.println(name + ": hitRatio="
+                    + (hits.get() * 100d / total) + "%, opsPerSec="
+                    + (long) (total * 1e9 / elapsed) + ", gcMillis=" + gc
+                    + ", size=" + cache.size());
+
+        } finally {
+
+            service.shutdownNow();
+
+        }
+
+    }
+
+    public static void main(final String[] args) throws Exception {
+
+        final int nthreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime
+                .getRuntime().availableProcessors();
+
+        final int capacity = args.length > 1 ? Integer.parseInt(args[1])
+                : 10000;
+
+        final int nkeys = args.length > 2 ? Integer.parseInt(args[2])
+                : 1000000;
+
+        final int nops = args.length > 3 ? Integer.parseInt(args[3]) : 1000000;
+
+        final double skew = args.length > 4 ? Double.parseDouble(args[4]) : .9d;
+
+        System.out.println("nthreads=" + nthreads + ", capacity=" + capacity
+                + ", nkeys=" + nkeys + ", nops=" + nops + ", skew=" + skew);
+
+        for (int trial = 0; trial < 3; trial++) {
+
+            run("ConcurrentTinyLFUCache",
+                    new ConcurrentTinyLFUCache<Long, Value>(capacity, .75f, 16),
+                    nthreads, nkeys, nops, skew);
+
+            run("ConcurrentWeakValueCache",
+                    new ConcurrentWeakValueCache<Long, Value>(capacity, .75f,
+                            16), nthreads, nkeys, nops, skew);
+
+            run("ConcurrentWeakValueCacheWithBatchedUpdates",
+                    new ConcurrentWeakValueCacheWithBatchedUpdates<Long, Value>(
+                            capacity, .75f, 16), nthreads, nkeys, nops, skew);
+
+        }
+
+    }
+
+}
@@ -80,6 +80,9 @@ public class TestAll extends TestCase {
         // Test cache semantics with weak/soft reference values.
         suite.addTestSuite(TestWeakValueCache.class);
 
+        // Test the strong reference cache with W-TinyLFU admission.
+        suite.addTestSuite(TestConcurrentTinyLFUCache.class);
+
         //BLZG-1497 moved to com.bigdata.cache.lru
         //suite.addTestSuite(TestStoreAndAddressLRUCache.class);
 
@@ -0,0 +1,334 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.testutil.XorShift;
+
+/**
+ * Test suite for {@link ConcurrentTinyLFUCache}.
+ */
+public class TestConcurrentTinyLFUCache extends TestCase2 {
+
+    public TestConcurrentTinyLFUCache() {
+    }
+
+    public TestConcurrentTinyLFUCache(String name) {
+        super(name);
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new ConcurrentTinyLFUCache<Long, String>(-1L,
+                    new IWeigher<Long, String>() {
+                        @Override
+                        public int weigh(Long k, String v) {
+                            return 1;
+                        }
+                    });
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new ConcurrentTinyLFUCache<Long, String>(10L, null/* weigher */);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Basic map semantics.
+     */
+    public void test_mapSemantics() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                10);
+
+        assertEquals(10, cache.capacity());
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1L));
+        assertFalse(cache.containsKey(1L));
+
+        assertNull(cache.put(1L, "a"));
+        assertEquals("a", cache.get(1L));
+        assertTrue(cache.containsKey(1L));
+        assertEquals(1, cache.size());
+
+        assertEquals("a", cache.put(1L, "b"));
+        assertEquals("b", cache.get(1L));
+
+        assertEquals("b", cache.putIfAbsent(1L, "c"));
+        assertEquals("b", cache.get(1L));
+
+        assertNull(cache.putIfAbsent(2L, "d"));
+        assertEquals("d", cache.get(2L));
+        assertEquals(2, cache.size());
+
+        assertEquals("b", cache.remove(1L));
+        assertNull(cache.remove(1L));
+        assertNull(cache.get(1L));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getWeightedSize());
+        assertNull(cache.get(2L));
+
+        assertEquals(4L, cache.getHitCount());
+        assertEquals(3L, cache.getMissCount());
+
+    }
+
+    /**
+     * The iterators visit the entries in the cache and support removal.
+     */
+    public void test_iterators() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                10);
+
+        for (long i = 0; i < 5; i++)
+            cache.put(i, "v" + i);
+
+        int n = 0;
+        final Iterator<WeakReference<String>> itr = cache.iterator();
+        while (itr.hasNext()) {
+            assertNotNull(itr.next().get());
+            n++;
+        }
+        assertEquals(5, n);
+
+        n = 0;
+        final Iterator<Map.Entry<Long, WeakReference<String>>> eitr = cache
+                .entryIterator();
+        while (eitr.hasNext()) {
+            final Map.Entry<Long, WeakReference<String>> e = eitr.next();
+            assertEquals("v" + e.getKey(), e.getValue().get());
+            if (e.getKey() % 2 == 0)
+                eitr.remove();
+            n++;
+        }
+        assertEquals(5, n);
+        assertEquals(2, cache.size());
+        assertEquals(2L, cache.getWeightedSize());
+
+    }
+
+    /**
+     * The cache is bounded by its capacity.
+     */
+    public void test_bounded() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                100);
+
+        for (long i = 0; i < 10000; i++) {
+
+            cache.put(i, "v" + i);
+
+            assertTrue(cache.size() <= 100);
+
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(100L, cache.getWeightedSize());
+        assertEquals(9900L, cache.getEvictionCount());
+
+    }
+
+    /**
+     * The cache is bounded by the weights of its entries and an entry which is
+     * heavier than the cache is not retained.
+     */
+    public void test_weights() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                100L, new IWeigher<Long, String>() {
+                    @Override
+                    public int weigh(final Long k, final String v) {
+                        return v.length();
+                    }
+                });
+
+        cache.put(1L, "0123456789");
+        assertEquals(10L, cache.getWeightedSize());
+
+        // re-weighed on update.
+        cache.put(1L, "01234");
+        assertEquals(5L, cache.getWeightedSize());
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= 100; i++)
+            sb.append('x');
+        cache.put(2L, sb.toString());
+        assertNull(cache.get(2L));
+        assertEquals(5L, cache.getWeightedSize());
+
+        for (long i = 10; i < 1000; i++) {
+
+            cache.put(i, "0123456789");
+
+            assertTrue(cache.getWeightedSize() <= 100L);
+
+        }
+
+        assertEquals(10, cache.size());
+
+    }
+
+    /**
+     * Frequently used entries are retained when the cache is scanned by
+     * entries which are used once.
+     */
+    public void test_scanResistance() {
+
+        final ConcurrentTinyLFUCache<Long, String> cache = new ConcurrentTinyLFUCache<Long, String>(
+                100);
+
+        // A hot set which is half of the capacity.
+        for (long i = 0; i < 50; i++) {
+
+            cache.put(i, "hot" + i);
+
+        }
+
+        for (int pass = 0; pass < 5; pass++) {
+
+            for (long i = 0; i < 50; i++) {
+
+                assertNotNull(cache.get(i));
+
+            }
+
+        }
+
+        // A scan which is 10x the capacity.
+        for (long i = 1000; i < 2000; i++) {
+
+            if (cache.get(i) == null)
+                cache.put(i, "cold" + i);
+
+        }
+
+        int nhot = 0;
+
+        for (long i = 0; i < 50; i++) {
+
+            if (cache.get(i) != null)
+                nhot++;
+
+        }
+
+        assertEquals(50, nhot);
+
+    }
+
+    /**
+     * Concurrent readers and writers. The cache must be within its capacity
+     * (plus the buffered writes) and its weight must agree with the map once
+     * the threads are done.
+     */
+    public void test_concurrent() throws Exception {
+
+        final int capacity = 1000;
+
+        final ConcurrentTinyLFUCache<Long, Long> cache = new ConcurrentTinyLFUCache<Long, Long>(
+                capacity);
+
+        final int nthreads = 8;
+
+        final int nops = 100000;
+
+        final ExecutorService service = Executors.newFixedThreadPool(nthreads);
+
+        try {
+
+            final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+            for (int i = 0; i < nthreads; i++) {
+
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        final XorShift r = new XorShift();
+                        for (int j = 0; j < nops; j++) {
+                            final long k = (r.nextInt() & 0x7fffffff) % 5000;
+                            final Long v = cache.get(k);
+                            if (v != null) {
+                                assertEquals(k, v.longValue());
+                            } else if (j % 10 == 0) {
+                                cache.remove(k);
+                            } else {
+                                cache.putIfAbsent(k, k);
+                            }
+                            assertTrue(cache.size() <= capacity
+                                    + ConcurrentTinyLFUCache.WRITE_BUFFER_MAX
+                                    + nthreads);
+                        }
+                        return null;
+                    }
+                });
+
+            }
+
+            for (Future<Void> f : service.invokeAll(tasks)) {
+
+                f.get();
+
+            }
+
+        } finally {
+
+            service.shutdownNow();
+
+        }
+
+        // A write will drain the buffers.
+        cache.put(-1L, -1L);
+
+        assertTrue(cache.size() <= capacity);
+        assertEquals((long) cache.size(), cache.getWeightedSize());
+
+    }
+
+}
@@ -65,6 +65,11 @@ public class TestAll extends TestCase {
 
         // Test suite for the guts of the JVM hash join logic.
         suite.addTestSuite(TestJVMHashJoinUtility.class);
+        suite.addTestSuite(TestJVMPrimitiveHashIndex.class);
+        suite.addTestSuite(TestJVMPrimitiveHashJoinUtility.class);
+
+        // test suite for the semi-join filters for named solution sets.
+        suite.addTestSuite(TestSolutionSetBloomFilter.class);
 
         // Test suite for the guts of the HTree hash join logic.
         suite.addTestSuite(TestHTreeHashJoinUtility.class);
@@ -0,0 +1,279 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.join;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.util.DaemonThreadFactory;
+
+/**
+ * Test suite for the {@link JVMPrimitiveHashIndex}.
+ */
+public class TestJVMPrimitiveHashIndex extends TestCase {
+
+    public TestJVMPrimitiveHashIndex() {
+    }
+
+    public TestJVMPrimitiveHashIndex(String name) {
+        super(name);
+    }
+
+    private final IVariable<?> x = Var.var("x");
+
+    private final IVariable<?> y = Var.var("y");
+
+    @SuppressWarnings("rawtypes")
+    private static IV termId(final long termId) {
+
+        return new TermId(VTE.URI, termId);
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet bset(final IVariable<?> v, final IV iv) {
+
+        final ListBindingSet bset = new ListBindingSet();
+
+        if (iv != null)
+            bset.set(v, new Constant<IV>(iv));
+
+        return bset;
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet bset(final IVariable<?> v1, final IV iv1,
+            final IVariable<?> v2, final IV iv2) {
+
+        final IBindingSet bset = bset(v1, iv1);
+
+        bset.set(v2, new Constant<IV>(iv2));
+
+        return bset;
+
+    }
+
+    /**
+     * Counts the solutions visited by a probe.
+     */
+    private static class CountingVisitor implements
+            JVMPrimitiveHashIndex.ISolutionVisitor,
+            JVMPrimitiveHashIndex.IJoinVisitor {
+
+        long n = 0;
+
+        @Override
+        public void visit(final IBindingSet right) {
+            n++;
+        }
+
+        @Override
+        public void visit(final IBindingSet left, final IBindingSet right) {
+            assertEquals(left.get(Var.var("x")), right.get(Var.var("x")));
+            n++;
+        }
+
+    }
+
+    private static int probe(final JVMPrimitiveHashIndex index,
+            final IBindingSet left) {
+
+        return index.probe(left, new CountingVisitor());
+
+    }
+
+    /**
+     * Only {@link TermId}s and inline integral values are accepted.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_accepts() {
+
+        final JVMPrimitiveHashIndex index = new JVMPrimitiveHashIndex(
+                new IVariable[] { x });
+
+        assertTrue(index.accepts(bset(x, termId(12L))));
+        assertTrue(index.accepts(bset(x, new XSDNumericIV(12))));
+        assertTrue(index.accepts(bset(x, new XSDNumericIV(12L))));
+
+        assertFalse(index.accepts(bset(x, null)));
+        assertFalse(index.accepts(bset(x, termId(TermId.NULL))));
+        assertFalse(index.accepts(bset(x, new XSDNumericIV(1.5d))));
+
+        assertFalse(index.add(bset(x, null)));
+        assertEquals(0L, index.size());
+
+    }
+
+    /**
+     * The keys are equal iff the {@link IV}s are equal.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_probe() {
+
+        final JVMPrimitiveHashIndex index = new JVMPrimitiveHashIndex(
+                new IVariable[] { x });
+
+        assertTrue(index.add(bset(x, termId(1L))));
+        assertTrue(index.add(bset(x, termId(1L))));
+        assertTrue(index.add(bset(x, new XSDNumericIV(1))));
+        assertTrue(index.add(bset(x, new XSDNumericIV(1L))));
+
+        // Not visible until built.
+        assertFalse(index.isBuilt());
+        assertEquals(0, probe(index, bset(x, termId(1L))));
+
+        index.build(null/* executor */);
+
+        assertTrue(index.isBuilt());
+        assertEquals(4L, index.size());
+        assertEquals(3L, index.keyCount());
+
+        assertEquals(2, probe(index, bset(x, termId(1L))));
+        assertEquals(1, probe(index, bset(x, new XSDNumericIV(1))));
+        assertEquals(1, probe(index, bset(x, new XSDNumericIV(1L))));
+        assertEquals(0, probe(index, bset(x, new XSDNumericIV((short) 1))));
+        assertEquals(0, probe(index, bset(x, termId(2L))));
+
+    }
+
+    /**
+     * Both join variables must have the same as-bound values.
+     */
+    public void test_probe_twoKeys() {
+
+        final JVMPrimitiveHashIndex index = new JVMPrimitiveHashIndex(
+                new IVariable[] { x, y });
+
+        assertTrue(index.add(bset(x, termId(1L), y, termId(2L))));
+
+        assertFalse(index.add(bset(x, termId(1L))));
+
+        index.build(null/* executor */);
+
+        assertEquals(1, probe(index, bset(x, termId(1L), y, termId(2L))));
+
+        assertEquals(0, probe(index, bset(x, termId(2L), y, termId(1L))));
+
+    }
+
+    /**
+     * A radix-partitioned probe with a chunk of solutions visits the same
+     * solutions as probing with each solution, with and without an
+     * {@link ExecutorService}.
+     */
+    public void test_probe_chunk() throws Exception {
+
+        final int nright = 50000;
+
+        final int nleft = 5000;
+
+        final JVMPrimitiveHashIndex index = new JVMPrimitiveHashIndex(
+                new IVariable[] { x });
+
+        for (int i = 0; i < nright; i++) {
+
+            // Two solutions for each key.
+            index.add(bset(x, termId(1 + i / 2)));
+
+        }
+
+        final ExecutorService executor = Executors
+                .newCachedThreadPool(DaemonThreadFactory.defaultThreadFactory());
+
+        try {
+
+            index.build(executor);
+
+            assertEquals(nright, index.size());
+            assertEquals(nright / 2, index.keyCount());
+
+            final IBindingSet[] left = new IBindingSet[nleft];
+
+            for (int i = 0; i < nleft; i++) {
+
+                // Every other probe is not accepted or does not join.
+                left[i] = i % 4 == 0 ? bset(x, null) : bset(x,
+                        termId(i % 2 == 0 ? nright + i : i));
+
+            }
+
+            final AtomicLong expected = new AtomicLong();
+
+            for (IBindingSet bset : left) {
+
+                if (index.accepts(bset))
+                    expected.addAndGet(probe(index, bset));
+
+            }
+
+            assertEquals((nleft / 2) * 2, expected.get());
+
+            for (ExecutorService e : new ExecutorService[] { null, executor }) {
+
+                final CountingVisitor[] visitors = new CountingVisitor[JVMPrimitiveHashIndex.NPARTITIONS];
+
+                for (int i = 0; i < visitors.length; i++)
+                    visitors[i] = new CountingVisitor();
+
+                final List<IBindingSet> rejected = new LinkedList<IBindingSet>();
+
+                final long n = index.probe(left, e, visitors, rejected);
+
+                assertEquals(expected.get(), n);
+
+                long sum = 0;
+
+                for (CountingVisitor v : visitors)
+                    sum += v.n;
+
+                assertEquals(expected.get(), sum);
+
+                assertEquals(nleft / 4, rejected.size());
+
+            }
+
+        } finally {
+
+            executor.shutdownNow();
+
+        }
+
+    }
+
+}
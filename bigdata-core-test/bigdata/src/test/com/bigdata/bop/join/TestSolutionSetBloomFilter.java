@@ -0,0 +1,254 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.join;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.E;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.relation.accesspath.IElementFilter;
+import com.bigdata.striterator.Chunkerator;
+
+/**
+ * Test suite for the {@link SolutionSetBloomFilter}.
+ */
+public class TestSolutionSetBloomFilter extends TestCase2 {
+
+    public TestSolutionSetBloomFilter() {
+    }
+
+    public TestSolutionSetBloomFilter(String name) {
+        super(name);
+    }
+
+    private final IVariable<?> x = Var.var("x");
+
+    private final IVariable<?> y = Var.var("y");
+
+    private final IVariable<?> z = Var.var("z");
+
+    private static class MockPipelineOp extends PipelineOp {
+
+        public MockPipelineOp(final BOp[] args, final NV... anns) {
+
+            super(args, NV.asMap(anns));
+
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public FutureTask<Void> eval(BOpContext<IBindingSet> context) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    /**
+     * Return a hash index on the join variables for the solutions. Every
+     * solution binds <code>x</code> to <code>a<i>i</i></code>. Only some of the
+     * solutions bind <code>y</code>.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IHashJoinUtility newSolutionSet(final IVariable<?>[] joinVars,
+            final int n) {
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS,//
+                new NV(HashJoinAnnotations.JOIN_VARS, joinVars)//
+                );
+
+        final IHashJoinUtility state = new JVMHashJoinUtility(op,
+                JoinTypeEnum.Normal);
+
+        final List<IBindingSet> solutions = new LinkedList<IBindingSet>();
+
+        for (int i = 0; i < n; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, new Constant<String>("a" + i));
+
+            if (i % 2 == 0)
+                bset.set(y, new Constant<String>("b" + i));
+
+            solutions.add(bset);
+
+        }
+
+        state.acceptSolutions(
+                new Chunkerator<IBindingSet>(solutions.iterator()),
+                new BOpStats());
+
+        return state;
+
+    }
+
+    /**
+     * The filter answers <code>true</code> for each value in the solution set
+     * and rejects most other values.
+     */
+    public void test_contains() {
+
+        final int n = 1000;
+
+        final SolutionSetBloomFilter filter = SolutionSetBloomFilter
+                .newInstance(newSolutionSet(new IVariable[] { x }, n),
+                        SolutionSetBloomFilter.DEFAULT_MAX_SOLUTIONS,
+                        SolutionSetBloomFilter.DEFAULT_ERROR_RATE);
+
+        assertNotNull(filter);
+
+        assertTrue(filter.isEnabled());
+
+        assertSameArray(new IVariable[] { x }, filter.getVars());
+
+        for (int i = 0; i < n; i++) {
+
+            assertTrue(filter.contains(x, "a" + i));
+
+        }
+
+        int nfalsePositives = 0;
+
+        for (int i = n; i < 2 * n; i++) {
+
+            if (filter.contains(x, "a" + i))
+                nfalsePositives++;
+
+        }
+
+        // Allow for 5x the target error rate.
+        assertTrue("nfalsePositives=" + nfalsePositives,
+                nfalsePositives < n * 5
+                        * SolutionSetBloomFilter.DEFAULT_ERROR_RATE);
+
+        try {
+            filter.contains(y, "b0");
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * There is no filter for a join variable which is not bound in every
+     * solution and no filters at all if there are no join variables or too
+     * many solutions.
+     */
+    public void test_newInstance() {
+
+        final SolutionSetBloomFilter filter = SolutionSetBloomFilter
+                .newInstance(newSolutionSet(new IVariable[] { x, y }, 10),
+                        SolutionSetBloomFilter.DEFAULT_MAX_SOLUTIONS,
+                        SolutionSetBloomFilter.DEFAULT_ERROR_RATE);
+
+        assertSameArray(new IVariable[] { x }, filter.getVars());
+
+        assertNull(SolutionSetBloomFilter.newInstance(
+                newSolutionSet(new IVariable[] { y }, 10),
+                SolutionSetBloomFilter.DEFAULT_MAX_SOLUTIONS,
+                SolutionSetBloomFilter.DEFAULT_ERROR_RATE));
+
+        assertNull(SolutionSetBloomFilter.newInstance(
+                newSolutionSet(new IVariable[] {}, 10),
+                SolutionSetBloomFilter.DEFAULT_MAX_SOLUTIONS,
+                SolutionSetBloomFilter.DEFAULT_ERROR_RATE));
+
+        assertNull(SolutionSetBloomFilter.newInstance(
+                newSolutionSet(new IVariable[] { x }, 10), 9L/* maxSolutions */,
+                SolutionSetBloomFilter.DEFAULT_ERROR_RATE));
+
+    }
+
+    /**
+     * The element filter tests the positions of the predicate which use a join
+     * variable and disables itself if it is not selective.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_elementFilter() {
+
+        final SolutionSetBloomFilter filter = SolutionSetBloomFilter
+                .newInstance(newSolutionSet(new IVariable[] { x }, 10),
+                        SolutionSetBloomFilter.DEFAULT_MAX_SOLUTIONS,
+                        SolutionSetBloomFilter.DEFAULT_ERROR_RATE);
+
+        // Does not use [x].
+        assertNull(filter.newElementFilter(new Predicate<E>(
+                new IVariableOrConstant[] { y, z })));
+
+        final IPredicate<E> pred = new Predicate<E>(new IVariableOrConstant[] {
+                z, x });
+
+        final IElementFilter<E> test = filter.newElementFilter(pred);
+
+        assertNotNull(test);
+
+        // A value which is not in the solution set and not a false positive.
+        String other = null;
+        for (int i = 0; other == null; i++) {
+            if (!filter.contains(x, "c" + i))
+                other = "c" + i;
+        }
+
+        assertTrue(test.isValid(new E(other, "a1")));
+
+        assertFalse(test.isValid(new E("a1", other)));
+
+        assertEquals(2L, filter.getTestedCount());
+
+        assertEquals(1L, filter.getRejectedCount());
+
+        // Accept everything until the filter is disabled.
+        while (filter.getTestedCount() < SolutionSetBloomFilter.MIN_SAMPLE_SIZE) {
+
+            assertTrue(test.isValid(new E(other, "a2")));
+
+        }
+
+        assertFalse(filter.isEnabled());
+
+        // Everything passes once disabled.
+        assertTrue(test.isValid(new E("a1", other)));
+
+    }
+
+}
@@ -63,6 +63,9 @@ public class TestAll extends TestCase {
         // runtime query optimizer operator.
         suite.addTestSuite(TestJoinGraph.class);
 
+        // cache of the join paths selected by the runtime query optimizer.
+        suite.addTestSuite(TestJoinPathCache.class);
+
         // runtime query optimizer behavior.
         // FIXME This test suite is empty. Either test at the AST eval level or add tests here.
 //        suite.addTestSuite(TestJGraph.class);
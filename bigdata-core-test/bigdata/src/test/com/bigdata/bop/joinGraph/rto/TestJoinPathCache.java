@@ -0,0 +1,234 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.Predicate;
+
+/**
+ * Test suite for the {@link JoinPathCache}.
+ */
+public class TestJoinPathCache extends TestCase2 {
+
+    public TestJoinPathCache() {
+    }
+
+    public TestJoinPathCache(String name) {
+        super(name);
+    }
+
+    /**
+     * Return a join graph with two vertices. The first vertex has a constant
+     * in its second position.
+     *
+     * @param timestamp
+     *            The timestamp of the predicates.
+     * @param c
+     *            The constant.
+     */
+    @SuppressWarnings("rawtypes")
+    private static JoinGraph newJoinGraph(final long timestamp, final String c) {
+
+        final IPredicate[] vertices = new IPredicate[] {
+                new Predicate(new BOp[] { Var.var("x"), new Constant<String>(c) },//
+                        new NV(BOp.Annotations.BOP_ID, 1),//
+                        new NV(IPredicate.Annotations.TIMESTAMP, timestamp)//
+                ),//
+                new Predicate(new BOp[] { Var.var("x"), Var.var("y") },//
+                        new NV(BOp.Annotations.BOP_ID, 2),//
+                        new NV(IPredicate.Annotations.TIMESTAMP, timestamp)//
+                ) };
+
+        return new JoinGraph(new BOp[0],//
+                new NV(JoinGraph.Annotations.VERTICES, vertices),//
+                new NV(JoinGraph.Annotations.CONTROLLER, true),//
+                new NV(JoinGraph.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER)//
+        );
+
+    }
+
+    /**
+     * Return a path over the vertices of a new join graph in the given order.
+     * The first vertex has an exact sample with the given cardinality.
+     */
+    private static Path newPath(final long estCard, final int... ids) {
+
+        final JGraph g = new JGraph(newJoinGraph(1L, "a"));
+
+        final Vertex[] vertices = new Vertex[ids.length];
+
+        for (int i = 0; i < ids.length; i++)
+            vertices[i] = g.getVertex(ids[i]);
+
+        vertices[0].sample = new VertexSample(estCard, 100/* limit */,
+                EstimateEnum.Exact, new IBindingSet[0]);
+
+        return new Path(vertices, estCard/* sumEstCard */, estCard/* sumEstRead */);
+
+    }
+
+    private static Map<Integer, Long> card(final long card1, final long card2) {
+
+        final Map<Integer, Long> m = new LinkedHashMap<Integer, Long>();
+
+        m.put(1, card1);
+
+        m.put(2, card2);
+
+        return m;
+
+    }
+
+    /**
+     * The fingerprint does not depend on the timestamp but does depend on the
+     * constants.
+     */
+    public void test_fingerprint() {
+
+        final String f1 = JoinPathCache.getFingerprint(newJoinGraph(1L, "a"));
+
+        assertEquals(f1, JoinPathCache.getFingerprint(newJoinGraph(2L, "a")));
+
+        assertFalse(f1.equals(JoinPathCache.getFingerprint(newJoinGraph(1L,
+                "b"))));
+
+    }
+
+    /**
+     * A cached path is rebuilt from the vertices of a new join graph.
+     */
+    public void test_putGet() {
+
+        final JoinPathCache cache = new JoinPathCache(
+                JoinPathCache.DEFAULT_MAX_ENTRIES,
+                JoinPathCache.DEFAULT_DRIFT_FACTOR);
+
+        final String f = JoinPathCache.getFingerprint(newJoinGraph(1L, "a"));
+
+        assertNull(cache.get(f));
+
+        final JoinPathCache.Entry e = cache.put(f, newPath(10L, 2, 1),
+                new LinkedHashMap<PathIds, EdgeSample>());
+
+        assertEquals(1, cache.size());
+
+        assertSame(e, cache.get(f));
+
+        assertEquals(1L, e.getReuseCount());
+
+        assertEquals(new int[] { 2, 1 }, e.getVertexIds());
+
+        // No edge sample, so no estimate for the second vertex.
+        assertEquals(new long[] { 10L, -1L }, e.getEstimatedCardinality());
+
+        final JGraph g2 = new JGraph(newJoinGraph(2L, "a"));
+
+        final Path p2 = e.newPath(g2);
+
+        assertEquals(new int[] { 2, 1 }, p2.getVertexIds());
+
+        assertSame(g2.getVertex(2), p2.vertices[0]);
+
+        assertEquals(2L, ((Long) p2.vertices[0].pred
+                .getRequiredProperty(IPredicate.Annotations.TIMESTAMP))
+                .longValue());
+
+    }
+
+    /**
+     * The entry is dropped when an observed cardinality drifts too far from
+     * its estimate.
+     */
+    public void test_update() {
+
+        final JoinPathCache cache = new JoinPathCache(
+                JoinPathCache.DEFAULT_MAX_ENTRIES, 10d/* driftFactor */);
+
+        final JoinPathCache.Entry e = cache.put("f", newPath(1000L, 1, 2),
+                new LinkedHashMap<PathIds, EdgeSample>());
+
+        // Within the drift factor. There is no estimate for vertex 2.
+        assertFalse(cache.update(e, card(5000L, 1L), 0L/* minCard */));
+        assertSame(e, cache.get("f"));
+
+        // Below the minimum cardinality.
+        assertFalse(cache.update(e, card(1L, 1L), 1000L/* minCard */));
+        assertSame(e, cache.get("f"));
+
+        // Beyond the drift factor.
+        assertTrue(cache.update(e, card(20000L, 1L), 100L/* minCard */));
+        assertNull(cache.get("f"));
+        assertEquals(0, cache.size());
+
+        // Not dropped again.
+        assertFalse(cache.update(e, card(20000L, 1L), 100L/* minCard */));
+
+        // Does not drop a newer entry for the same fingerprint.
+        final JoinPathCache.Entry e2 = cache.put("f", newPath(1000L, 1, 2),
+                new LinkedHashMap<PathIds, EdgeSample>());
+        assertFalse(cache.update(e, card(20000L, 1L), 100L/* minCard */));
+        assertSame(e2, cache.get("f"));
+
+    }
+
+    /**
+     * The cache is bounded and evicts the least recently used entry.
+     */
+    public void test_lru() {
+
+        final JoinPathCache cache = new JoinPathCache(2/* maxEntries */,
+                JoinPathCache.DEFAULT_DRIFT_FACTOR);
+
+        final Path path = newPath(10L, 1, 2);
+
+        final Map<PathIds, EdgeSample> samples = new LinkedHashMap<PathIds, EdgeSample>();
+
+        cache.put("a", path, samples);
+        cache.put("b", path, samples);
+
+        // Touch [a].
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", path, samples);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+    }
+
+}
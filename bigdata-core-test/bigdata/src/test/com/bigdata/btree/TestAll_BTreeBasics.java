@@ -119,6 +119,9 @@ public class TestAll_BTreeBasics extends TestCase {
         // test putIfAbsent() (w/ and w/o delete markers)
         suite.addTestSuite(TestPutIfAbsent.class);
 
+        // test batch point lookups.
+        suite.addTestSuite(TestBatchLookup.class);
+
         /*
          * test persistence protocols. 
          */
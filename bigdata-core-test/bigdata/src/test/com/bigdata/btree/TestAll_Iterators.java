@@ -68,6 +68,9 @@ public class TestAll_Iterators extends TestCase {
         
         // test cursors for a read-write B+Tree.
         suite.addTestSuite(TestMutableBTreeCursors.class);
+
+        // test reading many key ranges with a single cursor.
+        suite.addTestSuite(TestMultiRangeCursor.class);
         
         // test stackable tuple filters
         suite.addTest(com.bigdata.btree.filter.TestAll.suite());
@@ -0,0 +1,251 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+
+package com.bigdata.btree;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Test suite for {@link AbstractBTree#lookup(byte[][], byte[][])}.
+ */
+public class TestBatchLookup extends AbstractBTreeTestCase {
+
+    /**
+     *
+     */
+    public TestBatchLookup() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestBatchLookup(String name) {
+        super(name);
+    }
+
+    public void test_batchLookup_correctRejection() {
+
+        final BTree btree = getBTree(3);
+
+        try {
+            btree.lookup(null/* keys */, new byte[1][]);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            btree.lookup(new byte[2][], new byte[1][]);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            btree.lookup(new byte[][] { null }, new byte[1][]);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Batch lookup against an empty B+Tree and against a B+Tree whose root is
+     * a leaf.
+     */
+    public void test_batchLookup_rootLeaf() {
+
+        final BTree btree = getBTree(3);
+
+        final byte[] k1 = new byte[] { 1 };
+        final byte[] k2 = new byte[] { 2 };
+        final byte[] k3 = new byte[] { 3 };
+
+        final byte[][] vals = new byte[3][];
+
+        assertEquals(0, btree.lookup(new byte[][] { k1, k2, k3 }, vals));
+        assertNull(vals[0]);
+        assertNull(vals[1]);
+        assertNull(vals[2]);
+
+        btree.insert(k1, k1);
+        btree.insert(k3, k3);
+
+        assertEquals(2, btree.lookup(new byte[][] { k1, k2, k3 }, vals));
+        assertEquals(k1, vals[0]);
+        assertNull(vals[1]);
+        assertEquals(k3, vals[2]);
+
+    }
+
+    /**
+     * Batch lookup of sorted and unsorted keys (including keys which are not
+     * in the index and keys which are before and after all keys in the index)
+     * against B+Trees with several levels agrees with
+     * {@link AbstractBTree#lookup(byte[])}.
+     */
+    public void test_batchLookup_stress() {
+
+        final Random r = new Random();
+
+        for (int branchingFactor : new int[] { 3, 4, 5, 16 }) {
+
+            final BTree btree = getBTree(branchingFactor);
+
+            // insert the even integers in [0:2000).
+            for (int i = 0; i < 2000; i += 2) {
+
+                final byte[] key = TestKeyBuilder.asSortKey(i);
+
+                btree.insert(key, key);
+
+            }
+
+            assertTrue(btree.getHeight() > 1);
+
+            final int nkeys = 500;
+
+            final byte[][] keys = new byte[nkeys][];
+
+            for (int i = 0; i < nkeys; i++) {
+
+                keys[i] = TestKeyBuilder.asSortKey(r.nextInt(2200) - 100);
+
+            }
+
+            // unsorted.
+            doBatchLookupTest(btree, keys);
+
+            // sorted.
+            Arrays.sort(keys, BytesUtil.UnsignedByteArrayComparator.INSTANCE);
+
+            doBatchLookupTest(btree, keys);
+
+        }
+
+    }
+
+    /**
+     * Deleted entries are reported as <code>null</code> and are reported as
+     * resolved.
+     */
+    public void test_batchLookup_deleteMarkers() {
+
+        final IndexMetadata metadata = new IndexMetadata(UUID.randomUUID());
+
+        metadata.setBranchingFactor(3);
+
+        metadata.setDeleteMarkers(true);
+
+        final BTree btree = BTree.create(new SimpleMemoryRawStore(), metadata);
+
+        for (int i = 0; i < 20; i++) {
+
+            final byte[] key = TestKeyBuilder.asSortKey(i);
+
+            btree.insert(key, key);
+
+        }
+
+        for (int i = 0; i < 20; i += 3) {
+
+            btree.remove(TestKeyBuilder.asSortKey(i));
+
+        }
+
+        final byte[][] keys = new byte[21][];
+
+        for (int i = 0; i < keys.length; i++) {
+
+            keys[i] = TestKeyBuilder.asSortKey(i);
+
+        }
+
+        final byte[][] vals = new byte[keys.length][];
+
+        final boolean[] resolved = new boolean[keys.length];
+
+        // a pre-resolved key is not looked up.
+        resolved[1] = true;
+
+        assertEquals(12, btree.lookup(keys, vals, resolved));
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (i == 1) {
+                assertNull(vals[i]);
+                assertTrue(resolved[i]);
+            } else if (i == 20) {
+                // not in the index.
+                assertNull(vals[i]);
+                assertFalse(resolved[i]);
+            } else if (i % 3 == 0) {
+                // deleted.
+                assertNull(vals[i]);
+                assertTrue(resolved[i]);
+            } else {
+                assertEquals(keys[i], vals[i]);
+                assertTrue(resolved[i]);
+            }
+
+        }
+
+    }
+
+    private void doBatchLookupTest(final AbstractBTree btree,
+            final byte[][] keys) {
+
+        final byte[][] vals = new byte[keys.length][];
+
+        final int nfound = btree.lookup(keys, vals);
+
+        int n = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            final byte[] expected = btree.lookup(keys[i]);
+
+            assertEquals(expected, vals[i]);
+
+            if (expected != null)
+                n++;
+
+        }
+
+        assertEquals(n, nfound);
+
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+
+package com.bigdata.btree;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for {@link MultiRangeCursor}.
+ */
+public class TestMultiRangeCursor extends TestCase2 {
+
+    public TestMultiRangeCursor() {
+    }
+
+    public TestMultiRangeCursor(String name) {
+        super(name);
+    }
+
+    private BTree btree;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        // Small branching factor so the keys span many leaves.
+        md.setBranchingFactor(3);
+
+        btree = BTree.create(new SimpleMemoryRawStore(), md);
+
+        // Only the even keys.
+        for (int i = 0; i < 100; i += 2) {
+
+            btree.insert(i, "v" + i);
+
+        }
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        btree = null;
+
+        super.tearDown();
+
+    }
+
+    private byte[] key(final int i) {
+
+        return btree.getIndexMetadata().getTupleSerializer().serializeKey(i);
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private MultiRangeCursor<String> newCursor() {
+
+        return new MultiRangeCursor<String>((ITupleCursor<String>) btree
+                .rangeIterator(null/* fromKey */, null/* toKey */,
+                        0/* capacity */, IRangeQuery.DEFAULT
+                                | IRangeQuery.CURSOR, null/* filter */));
+
+    }
+
+    private static List<Object> toList(final ITupleIterator<?> itr) {
+
+        final List<Object> list = new LinkedList<Object>();
+
+        while (itr.hasNext()) {
+
+            list.add(itr.next().getObject());
+
+        }
+
+        return list;
+
+    }
+
+    /**
+     * Verify that the cursor visits the same tuples as an iterator for the
+     * key range.
+     */
+    private void assertRange(final MultiRangeCursor<String> cursor,
+            final int fromKey, final int toKey) {
+
+        assertEquals(toList(btree.rangeIterator(key(fromKey), key(toKey))),
+                toList(cursor.rangeIterator(key(fromKey), key(toKey))));
+
+    }
+
+    /**
+     * Dense key ranges in ascending order are read without a seek after the
+     * first one.
+     */
+    public void test_denseRanges() {
+
+        final MultiRangeCursor<String> cursor = newCursor();
+
+        for (int i = 0; i < 100; i += 4) {
+
+            assertRange(cursor, i, i + 4);
+
+        }
+
+        assertEquals(25L, cursor.getRangeCount());
+
+        assertEquals(1L, cursor.getSeekCount());
+
+    }
+
+    /**
+     * The cursor only seeks when the next key range starts after the tuple
+     * at which the previous key range ended.
+     */
+    public void test_sparseRanges() {
+
+        final MultiRangeCursor<String> cursor = newCursor();
+
+        // [10,13) ends on the tuple for 14.
+        assertRange(cursor, 10, 13);
+        assertEquals(1L, cursor.getSeekCount());
+
+        // The tuple for 14 is the first tuple in [13,15).
+        assertRange(cursor, 13, 15);
+        assertEquals(1L, cursor.getSeekCount());
+
+        // An empty key range.
+        assertRange(cursor, 15, 16);
+        assertEquals(1L, cursor.getSeekCount());
+
+        // Skips over many tuples, so the cursor must seek.
+        assertRange(cursor, 50, 55);
+        assertEquals(2L, cursor.getSeekCount());
+
+        // Overlaps with the previous key range.
+        assertRange(cursor, 52, 60);
+        assertEquals(3L, cursor.getSeekCount());
+
+        // Out of order.
+        assertRange(cursor, 0, 4);
+        assertEquals(4L, cursor.getSeekCount());
+
+        // Beyond the last key.
+        assertRange(cursor, 98, 200);
+        assertRange(cursor, 200, 300);
+        assertEquals(5L, cursor.getSeekCount());
+
+    }
+
+    /**
+     * An iterator which was not consumed is invalidated by the next request
+     * and the cursor seeks for that request.
+     */
+    public void test_abandonedRange() {
+
+        final MultiRangeCursor<String> cursor = newCursor();
+
+        final ITupleIterator<String> itr = cursor.rangeIterator(key(0),
+                key(20));
+
+        assertEquals("v0", itr.next().getObject());
+
+        assertRange(cursor, 20, 30);
+
+        assertFalse(itr.hasNext());
+
+        assertEquals(2L, cursor.getSeekCount());
+
+    }
+
+    /**
+     * A key range without an upper bound visits the rest of the index.
+     */
+    public void test_unboundedRange() {
+
+        final MultiRangeCursor<String> cursor = newCursor();
+
+        assertEquals(toList(btree.rangeIterator(key(90), null)),
+                toList(cursor.rangeIterator(key(90), null)));
+
+        assertEquals(5, toList(cursor.rangeIterator(key(90), null)).size());
+
+    }
+
+}
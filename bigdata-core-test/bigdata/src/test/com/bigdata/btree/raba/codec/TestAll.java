@@ -68,6 +68,12 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestFrontCodedRabaCoderRatio8.class);
         suite.addTestSuite(TestFrontCodedRabaCoderRatio32.class);
 
+        // fixed stride coding for fixed length keys.
+        suite.addTestSuite(TestFixedLengthKeyRabaCoder.class);
+
+        // fingerprints and run bit vector for keys with duplicates (HTree).
+        suite.addTestSuite(TestFingerprintRabaCoderDupKeys.class);
+
         // canonical huffman coding.
         suite.addTestSuite(TestCanonicalHuffmanRabaCoder.class);
 
@@ -0,0 +1,283 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree.raba.codec;
+
+import java.util.Arrays;
+
+import com.bigdata.btree.AbstractBTreeTestCase;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.BytesUtil;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * Test suite for the {@link FingerprintRabaCoderDupKeys}. The inherited tests
+ * use distinct keys. The tests in this class focus on runs of duplicate keys,
+ * as found in the bucket pages of an {@link com.bigdata.htree.HTree}.
+ */
+public class TestFingerprintRabaCoderDupKeys extends AbstractRabaCoderTestCase {
+
+    /**
+     *
+     */
+    public TestFingerprintRabaCoderDupKeys() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestFingerprintRabaCoderDupKeys(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        rabaCoder = new FingerprintRabaCoderDupKeys();
+
+    }
+
+    static private byte[] int32(final int v) {
+
+        return new byte[] { (byte) (v >>> 24), (byte) (v >>> 16),
+                (byte) (v >>> 8), (byte) v };
+
+    }
+
+    /**
+     * int32 hash code keys with runs of duplicates. Search must report the
+     * first key in a run and the insertion point must precede any run of keys
+     * which are greater than the probe key.
+     */
+    public void test_int32_duplicates() {
+
+        final byte[][] a = new byte[][] {//
+                int32(-5), // note: negative hash codes order after positive.
+                int32(1),//
+                int32(1),//
+                int32(1),//
+                int32(7),//
+                int32(9),//
+                int32(9),//
+        };
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        // [1, 1, 1, 7, 9, 9, -5]
+        assertEquals(1, FingerprintRabaCoderDupKeys.fingerprint(a[0]));
+
+        final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(a.length, a);
+
+        final AbstractFixedByteArrayBuffer data = rabaCoder.encode(expected,
+                new DataOutputBuffer());
+
+        // version, size, ndistinct, len, fprints, runs, ranks.
+        assertEquals(1 + 12 + 4 * 4 + 8 + 4, data.len());
+
+        final FingerprintRabaCoderDupKeys.CodedRabaImpl actual = (FingerprintRabaCoderDupKeys.CodedRabaImpl) rabaCoder
+                .decode(data);
+
+        AbstractBTreeTestCase.assertSameRaba(expected, actual);
+
+        assertEquals(4, actual.getDistinctKeyCount());
+
+        assertFalse(actual.isDuplicate(0));
+        assertTrue(actual.isDuplicate(1));
+        assertTrue(actual.isDuplicate(2));
+        assertFalse(actual.isDuplicate(3));
+        assertFalse(actual.isDuplicate(4));
+        assertTrue(actual.isDuplicate(5));
+        assertFalse(actual.isDuplicate(6));
+
+        // found: the first key in each run.
+        assertEquals(0, actual.search(int32(1)));
+        assertEquals(3, actual.search(int32(7)));
+        assertEquals(4, actual.search(int32(9)));
+        assertEquals(6, actual.search(int32(-5)));
+
+        // not found.
+        assertEquals(-1, actual.search(int32(0)));
+        assertEquals(-4, actual.search(int32(2)));
+        assertEquals(-5, actual.search(int32(8)));
+        assertEquals(-7, actual.search(int32(10)));
+        assertEquals(-8, actual.search(int32(-1)));
+
+        // shorter and longer probe keys.
+        assertEquals(-1, actual.search(new byte[] {}));
+        assertEquals(-1, actual.search(new byte[] { 0, 0, 0 }));
+        assertEquals(-4, actual.search(new byte[] { 0, 0, 0, 1, 0 }));
+
+    }
+
+    /**
+     * Variable length keys, including keys which are shorter than the
+     * fingerprint and distinct keys having the same fingerprint.
+     */
+    public void test_variableLength_duplicates() {
+
+        final byte[][] a = new byte[][] {//
+                new byte[] {},//
+                new byte[] { 1 },//
+                new byte[] { 1 },//
+                new byte[] { 1, 0 },//
+                new byte[] { 1, 0, 0, 0 },//
+                new byte[] { 1, 0, 0, 0, 0 },//
+                new byte[] { 1, 0, 0, 0, 0 },//
+                new byte[] { 1, 0, 0, 0, 1, 2 },//
+                new byte[] { 1, 0, 0, 1 },//
+        };
+
+        final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(a.length, a);
+
+        final ICodedRaba actual = rabaCoder.decode(rabaCoder.encode(expected,
+                new DataOutputBuffer()));
+
+        AbstractBTreeTestCase.assertSameRaba(expected, actual);
+
+        assertEquals(0, actual.search(a[0]));
+        assertEquals(1, actual.search(a[1]));
+        assertEquals(1, actual.search(a[2]));
+        assertEquals(3, actual.search(a[3]));
+        assertEquals(4, actual.search(a[4]));
+        assertEquals(5, actual.search(a[5]));
+        assertEquals(7, actual.search(a[7]));
+        assertEquals(8, actual.search(a[8]));
+
+        assertEquals(-5, actual.search(new byte[] { 1, 0, 0 }));
+        assertEquals(-8, actual.search(new byte[] { 1, 0, 0, 0, 1 }));
+        assertEquals(-9, actual.search(new byte[] { 1, 0, 0, 0, 1, 3 }));
+        assertEquals(-10, actual.search(new byte[] { 2 }));
+
+    }
+
+    /**
+     * Random keys having runs of duplicates, verified against a linear scan.
+     */
+    public void test_randomDuplicates() {
+
+        final int[] sizes = new int[] { 0, 1, 2, 63, 64, 65, 200, 1024 };
+
+        for (int size : sizes) {
+
+            for (int keyLen = -1; keyLen <= 6; keyLen += 3) {
+
+                final byte[][] a = new byte[size][];
+
+                for (int i = 0; i < size; i++) {
+
+                    if (i > 0 && r.nextInt(3) > 0) {
+                        a[i] = a[i - 1];
+                        continue;
+                    }
+
+                    a[i] = new byte[keyLen < 0 ? r.nextInt(7) : keyLen];
+
+                    for (int j = 0; j < a[i].length; j++)
+                        a[i][j] = (byte) r.nextInt(4);
+
+                }
+
+                Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+                final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(size, a);
+
+                final ICodedRaba actual = rabaCoder.decode(rabaCoder.encode(
+                        expected, new DataOutputBuffer()));
+
+                AbstractBTreeTestCase.assertSameRaba(expected, actual);
+
+                for (int i = 0; i < 100; i++) {
+
+                    final byte[] key = new byte[keyLen < 0 ? r.nextInt(7)
+                            : keyLen];
+
+                    for (int j = 0; j < key.length; j++)
+                        key[j] = (byte) r.nextInt(4);
+
+                    assertEquals(linearSearch(a, key), actual.search(key));
+
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Return the index of the first key equal to the probe key, or the
+     * encoded insertion point if there is no such key.
+     */
+    static private int linearSearch(final byte[][] a, final byte[] key) {
+
+        for (int i = 0; i < a.length; i++) {
+
+            final int cmp = BytesUtil.compareBytes(a[i], key);
+
+            if (cmp == 0)
+                return i;
+
+            if (cmp > 0)
+                return -(i + 1);
+
+        }
+
+        return -(a.length + 1);
+
+    }
+
+    /**
+     * The coded record for int32 keys with duplicates is smaller than the
+     * front-coded record.
+     */
+    public void test_int32_recordSize() {
+
+        final int size = 1024;
+
+        final byte[][] a = new byte[size][];
+
+        for (int i = 0; i < size; i++) {
+            a[i] = int32(r.nextInt(64));
+        }
+
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(size, a);
+
+        final int len1 = rabaCoder.encode(expected, new DataOutputBuffer())
+                .len();
+
+        final int len2 = new FrontCodedRabaCoderDupKeys(32).encode(expected,
+                new DataOutputBuffer()).len();
+
+        if (log.isInfoEnabled())
+            log.info("fingerprint=" + len1 + ", frontCoded=" + len2);
+
+        assertTrue(len1 < len2);
+
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree.raba.codec;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.bigdata.btree.AbstractBTreeTestCase;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * Test suite for the {@link FixedLengthKeyRabaCoder}. The inherited tests
+ * cover both the fixed stride coding (for keys having the same length) and the
+ * delegate coding (for keys having different lengths).
+ */
+public class TestFixedLengthKeyRabaCoder extends AbstractRabaCoderTestCase {
+
+    /**
+     *
+     */
+    public TestFixedLengthKeyRabaCoder() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestFixedLengthKeyRabaCoder(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        rabaCoder = new FixedLengthKeyRabaCoder();
+
+    }
+
+    public void test_correctRejection() {
+
+        try {
+            new FixedLengthKeyRabaCoder(null);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            // not a key coder.
+            new FixedLengthKeyRabaCoder(new FixedLengthValueRabaCoder(8));
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Keys having the same length are coded at a fixed stride after a shared
+     * prefix. Search is verified for keys which are present, for keys which
+     * fall between, before and after the coded keys, and for keys which are
+     * shorter or longer than the coded keys.
+     */
+    public void test_fixedStride_search() {
+
+        final byte[][] a = new byte[][] {//
+                new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0, 0, 5 },//
+                new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0, 0, 7 },//
+                new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0, 1, 0 },//
+                new byte[] { 1, 2, 3, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0 },//
+                new byte[] { 1, 2, 3, (byte) 0xff, 0, 0, 0, 0, 0, 0, 0 },//
+        };
+
+        final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(a.length, a);
+
+        final AbstractFixedByteArrayBuffer data = rabaCoder.encode(expected,
+                new DataOutputBuffer());
+
+        // fixed stride: version, type, size, len, prefixLen, prefix, suffixes.
+        assertEquals(2 + 12 + 3 + a.length * 8, data.len());
+
+        final ICodedRaba actual = rabaCoder.decode(data);
+
+        AbstractBTreeTestCase.assertSameRaba(expected, actual);
+
+        for (int i = 0; i < a.length; i++) {
+            assertEquals(i, actual.search(a[i]));
+        }
+
+        // between keys.
+        assertEquals(-2, actual.search(new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0,
+                0, 6 }));
+        assertEquals(-5, actual.search(new byte[] { 1, 2, 3, (byte) 0x81, 0, 0,
+                0, 0, 0, 0, 0 }));
+
+        // before and after all keys (within and after the prefix).
+        assertEquals(-1, actual.search(new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0,
+                0, 1 }));
+        assertEquals(-1, actual.search(new byte[] { 1, 2, 2, 9 }));
+        assertEquals(-6, actual.search(new byte[] { 1, 2, 4 }));
+        assertEquals(-6, actual.search(new byte[] { 1, 2, 3, (byte) 0xff, 0, 0,
+                0, 0, 0, 0, 1 }));
+
+        // shorter keys.
+        assertEquals(-1, actual.search(new byte[] {}));
+        assertEquals(-1, actual.search(new byte[] { 1, 2 }));
+        assertEquals(-1, actual.search(new byte[] { 1, 2, 3 }));
+        assertEquals(-3, actual.search(new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0,
+                1 }));
+
+        // longer keys.
+        assertEquals(-2, actual.search(new byte[] { 1, 2, 3, 0, 0, 0, 0, 0, 0,
+                0, 5, 0 }));
+        assertEquals(-6, actual.search(new byte[] { 1, 2, 3, (byte) 0xff, 0, 0,
+                0, 0, 0, 0, 0, 0 }));
+
+    }
+
+    /**
+     * Keys having different lengths are coded by the delegate coder.
+     */
+    public void test_variableLength_delegate() {
+
+        final byte[][] a = new byte[][] {//
+                new byte[] { 1, 2 },//
+                new byte[] { 1, 2, 3 },//
+                new byte[] { 1, 3 },//
+        };
+
+        final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(a.length, a);
+
+        final AbstractFixedByteArrayBuffer data = rabaCoder.encode(expected,
+                new DataOutputBuffer());
+
+        final AbstractFixedByteArrayBuffer data2 = new FrontCodedRabaCoder.DefaultFrontCodedRabaCoder()
+                .encode(expected, new DataOutputBuffer());
+
+        // version, type, delegate record.
+        assertEquals(2 + data2.len(), data.len());
+
+        final ICodedRaba actual = rabaCoder.decode(data);
+
+        AbstractBTreeTestCase.assertSameRaba(expected, actual);
+
+        assertEquals(1, actual.search(a[1]));
+        assertEquals(-3, actual.search(new byte[] { 1, 2, 4 }));
+
+    }
+
+    /**
+     * Round trip and search for random statement index style keys (three
+     * nine byte IVs having the same flags byte).
+     */
+    public void test_statementKeys() {
+
+        final int[] sizes = new int[] { 0, 1, 2, 7, 64, 256, 1024 };
+
+        for (int size : sizes) {
+
+            final byte[][] a = generateStatementKeys(r, size);
+
+            final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(size, a);
+
+            doRoundTripTest(rabaCoder, expected);
+
+            final ICodedRaba actual = rabaCoder.decode(rabaCoder.encode(
+                    expected, new DataOutputBuffer()));
+
+            for (int i = 0; i < size; i++) {
+
+                assertEquals(i, actual.search(a[i]));
+
+                // a key which is not present (increment the last byte).
+                final byte[] k = a[i].clone();
+                k[k.length - 1]++;
+                if (k[k.length - 1] != 0) {
+                    final int expectedIndex = expected.search(k);
+                    assertEquals(expectedIndex, actual.search(k));
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Generate sorted distinct keys consisting of three IVs, each coded as a
+     * flags byte followed by a <code>long</code> term identifier. The subject
+     * term identifiers are drawn from a narrow range in order to give the
+     * keys a shared prefix, as they would have in a leaf of the SPO index.
+     */
+    static byte[][] generateStatementKeys(final Random r, final int size) {
+
+        final byte[][] a = new byte[size][];
+
+        final long s0 = r.nextInt(1 << 20);
+
+        for (int i = 0; i < size; i++) {
+
+            final byte[] k = new byte[27];
+
+            putIV(k, 0, s0 + r.nextInt(4));
+            putIV(k, 9, r.nextInt(1000));
+            putIV(k, 18, r.nextLong() >>> 1);
+
+            a[i] = k;
+
+        }
+
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        // remove duplicates (unlikely).
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (n == 0
+                    || UnsignedByteArrayComparator.INSTANCE.compare(a[n - 1],
+                            a[i]) != 0) {
+                a[n++] = a[i];
+            }
+        }
+        for (int i = n; i < size; i++) {
+            // replace any duplicates with keys after the last key.
+            final byte[] k = a[i - 1].clone();
+            k[0]++;
+            a[i] = k;
+        }
+
+        return a;
+
+    }
+
+    static private void putIV(final byte[] k, final int off, final long v) {
+
+        k[off] = 0x01; // flags.
+
+        for (int i = 0; i < 8; i++) {
+            k[off + 1 + i] = (byte) (v >>> (56 - 8 * i));
+        }
+
+    }
+
+    /**
+     * Compares the point lookup (search) time of the front-coded and fixed
+     * stride key coders on statement index style keys.
+     *
+     * @param args
+     *            [nops [size]]
+     */
+    static public void main(final String[] args) {
+
+        final Random r = new Random();
+
+        int nops = 1000000;
+        if (args.length > 0)
+            nops = Integer.valueOf(args[0]);
+
+        int size = 256;
+        if (args.length > 1)
+            size = Integer.valueOf(args[1]);
+
+        final IRabaCoder[] coders = new IRabaCoder[] {
+                new FrontCodedRabaCoder.DefaultFrontCodedRabaCoder(),
+                new FixedLengthKeyRabaCoder() };
+
+        final byte[][] a = generateStatementKeys(r, size);
+
+        // search, with some get() and copy() to keep the test honest.
+        final Op op = new Op(0.0f, 0f, .1f, .1f, .8f, 0f, 0f);
+
+        // run twice so the second pass is measured after JIT warm up.
+        for (int pass = 0; pass < 2; pass++) {
+
+            for (IRabaCoder rabaCoder : coders) {
+
+                final ReadOnlyKeysRaba expected = new ReadOnlyKeysRaba(size, a);
+
+                final long begin = System.nanoTime();
+
+                final int recordLength = doRabaCoderPerformanceTest(expected,
+                        rabaCoder, size, nops, r, op);
+
+                final long elapsed = System.nanoTime() - begin;
+
+                System.out.println("pass=" + pass + ", " + rabaCoder
+                        + " : elapsed="
+                        + TimeUnit.NANOSECONDS.toMillis(elapsed)
+                        + "ms, recordLength=" + recordLength);
+
+            }
+
+        }
+
+    }
+
+}
@@ -860,6 +860,83 @@ public class TestFusedView extends AbstractBTreeTestCase {
 
     }
 
+    /**
+     * Test of {@link FusedView#lookup(byte[][], byte[][])}. The first source
+     * in which an index entry is found for a key determines the result, even
+     * if that entry is marked as deleted.
+     */
+    public void test_batchLookup() {
+
+        final byte[] k1 = new byte[]{1};
+        final byte[] k3 = new byte[]{3};
+        final byte[] k5 = new byte[]{5};
+        final byte[] k7 = new byte[]{7};
+        final byte[] k9 = new byte[]{9};
+
+        final byte[] v3 = new byte[]{3};
+        final byte[] v5a = new byte[]{5};
+        final byte[] v5b = new byte[]{5,1};
+        final byte[] v7 = new byte[]{7};
+        final byte[] v9 = new byte[]{9};
+
+        final IRawStore store = new SimpleMemoryRawStore();
+
+        // two btrees with the same index UUID.
+        final BTree btree1, btree2;
+        {
+
+            final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+            md.setBranchingFactor(3);
+
+            md.setDeleteMarkers(true);
+
+            md.setTupleSerializer(NOPTupleSerializer.INSTANCE);
+
+            btree1 = BTree.create(store, md);
+
+            btree2 = BTree.create(store, md.clone());
+
+        }
+
+        final FusedView view = new FusedView(new AbstractBTree[] { btree1,
+                btree2 });
+
+        /*
+         * Setup the view.
+         *
+         * Note: k5 is found in both source B+Trees but with a different value
+         * stored under the key. k9 is deleted in btree1, which hides its entry
+         * in btree2.
+         */
+        btree2.insert(k3, v3);
+        btree1.insert(k5, v5a);
+        btree2.insert(k5, v5b);
+        btree2.insert(k7, v7);
+        btree2.insert(k9, v9);
+        btree1.insert(k9, v9);
+        btree1.remove(k9);
+
+        final byte[][] keys = new byte[][] { k1, k3, k5, k7, k9 };
+
+        final byte[][] vals = new byte[keys.length][];
+
+        assertEquals(3, view.lookup(keys, vals));
+
+        assertNull(vals[0]); // not found.
+        assertEquals(v3, vals[1]); // from btree2.
+        assertEquals(v5a, vals[2]); // from btree1.
+        assertEquals(v7, vals[3]); // from btree2.
+        assertNull(vals[4]); // deleted in btree1.
+
+        for (int i = 0; i < keys.length; i++) {
+
+            assertEquals(view.lookup(keys[i]), vals[i]);
+
+        }
+
+    }
+
     /**
      * Test of {@link IRangeQuery#REMOVEALL}. Note that tuples are removed by
      * writing a delete marker into the first B+Tree in the ordered sources.
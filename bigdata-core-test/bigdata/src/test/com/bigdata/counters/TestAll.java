@@ -64,6 +64,10 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestCounters.class);
 
         suite.addTestSuite(TestHistoryInstrument.class);
+
+        suite.addTestSuite(TestHistogram.class);
+
+        suite.addTestSuite(com.bigdata.counters.render.TestOpenMetricsRenderer.class);
         
         suite.addTest(com.bigdata.counters.store.TestAll.suite());
 
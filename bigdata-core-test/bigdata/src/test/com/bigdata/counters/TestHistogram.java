@@ -0,0 +1,200 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.counters;
+
+import java.util.Random;
+
+import junit.framework.TestCase2;
+
+/**
+ * Test suite for {@link Histogram}.
+ */
+public class TestHistogram extends TestCase2 {
+
+    public TestHistogram() {
+        super();
+    }
+
+    public TestHistogram(String arg0) {
+        super(arg0);
+    }
+
+    /**
+     * Verify that the buckets are contiguous and that each value is recorded
+     * in the bucket whose bounds contain that value.
+     */
+    public void test_buckets() {
+
+        assertEquals(0, Histogram.indexOf(0L));
+        assertEquals(0L, Histogram.lowerBound(0));
+
+        for (int i = 1; i < (64 - 3) * Histogram.SUB_BUCKETS; i++) {
+
+            assertEquals(Histogram.upperBound(i - 1) + 1,
+                    Histogram.lowerBound(i));
+
+            assertEquals(i, Histogram.indexOf(Histogram.lowerBound(i)));
+
+            assertEquals(i, Histogram.indexOf(Histogram.upperBound(i)));
+
+        }
+
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram
+                .indexOf(Long.MAX_VALUE)));
+
+    }
+
+    public void test_empty() {
+
+        final Histogram h = new Histogram();
+
+        assertEquals(0L, h.getCount());
+        assertEquals(0L, h.getMax());
+        assertEquals(0d, h.getMean());
+        assertEquals(0d, h.getZeroFraction());
+        assertEquals(0L, h.getValueAtPercentile(50d));
+
+    }
+
+    /**
+     * Small values are recorded exactly.
+     */
+    public void test_smallValues() {
+
+        final Histogram h = new Histogram();
+
+        for (int i = 0; i < 4; i++) {
+            h.add(0);
+            h.add(1);
+            h.add(2);
+            h.add(7);
+        }
+
+        assertEquals(16L, h.getCount());
+        assertEquals(7L, h.getMax());
+        assertEquals(2.5d, h.getMean());
+        assertEquals(.25d, h.getZeroFraction());
+        assertEquals(0L, h.getValueAtPercentile(0d));
+        assertEquals(0L, h.getValueAtPercentile(25d));
+        assertEquals(1L, h.getValueAtPercentile(50d));
+        assertEquals(2L, h.getValueAtPercentile(75d));
+        assertEquals(7L, h.getValueAtPercentile(100d));
+
+    }
+
+    /**
+     * The reported percentiles are within the relative error of the buckets.
+     */
+    public void test_percentiles() {
+
+        final Histogram h = new Histogram();
+
+        final int n = 10000;
+
+        for (int i = 1; i <= n; i++) {
+
+            h.add(i * 1000L);
+
+        }
+
+        assertEquals(n, h.getCount());
+        assertEquals(n * 1000L, h.getMax());
+
+        for (double p : new double[] { 10d, 50d, 90d, 99d, 99.9d }) {
+
+            final long expected = (long) (p / 100d * n) * 1000L;
+
+            final long actual = h.getValueAtPercentile(p);
+
+            assertTrue("p=" + p + ", expected=" + expected + ", actual="
+                    + actual, actual >= expected
+                    && actual <= expected + expected / Histogram.SUB_BUCKETS);
+
+        }
+
+    }
+
+    /**
+     * Adding one histogram to another is the same as recording both sets of
+     * values.
+     */
+    public void test_add() {
+
+        final Random r = new Random();
+
+        final Histogram a = new Histogram();
+        final Histogram b = new Histogram();
+        final Histogram c = new Histogram();
+
+        for (int i = 0; i < 1000; i++) {
+
+            final long v = r.nextInt(1000000);
+
+            (r.nextBoolean() ? a : b).add(v);
+
+            c.add(v);
+
+        }
+
+        a.add(b);
+
+        assertEquals(c.getCount(), a.getCount());
+        assertEquals(c.getMax(), a.getMax());
+        assertEquals(c.getMean(), a.getMean());
+        assertEquals(c.getValueAtPercentile(50d), a.getValueAtPercentile(50d));
+        assertEquals(c.getValueAtPercentile(99d), a.getValueAtPercentile(99d));
+
+    }
+
+    public void test_negativeValues() {
+
+        final Histogram h = new Histogram();
+
+        h.add(-12);
+
+        assertEquals(1L, h.getCount());
+        assertEquals(0L, h.getMax());
+        assertEquals(1d, h.getZeroFraction());
+
+    }
+
+    public void test_counters() {
+
+        final Histogram h = new Histogram();
+
+        final CounterSet counters = new CounterSet();
+
+        h.attachCounters(counters);
+
+        h.add(3);
+
+        assertEquals(Long.valueOf(1L), ((ICounter) counters
+                .getChild("count")).getInstrument().getValue());
+
+        assertEquals(Long.valueOf(3L), ((ICounter) counters.getChild("max"))
+                .getInstrument().getValue());
+
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+package com.bigdata.counters.render;
+
+import java.io.StringWriter;
+import java.net.URL;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.counters.query.CounterSetSelector;
+import com.bigdata.counters.query.URLQueryModel;
+
+/**
+ * Test suite for {@link OpenMetricsRenderer}.
+ */
+public class TestOpenMetricsRenderer extends TestCase2 {
+
+    public TestOpenMetricsRenderer() {
+    }
+
+    public TestOpenMetricsRenderer(String name) {
+        super(name);
+    }
+
+    private static String getName(final String path) {
+
+        final StringBuilder name = new StringBuilder();
+
+        final StringBuilder labels = new StringBuilder();
+
+        OpenMetricsRenderer.getMetric(path, name, labels);
+
+        return labels.length() == 0 ? name.toString() : name + "{" + labels
+                + "}";
+
+    }
+
+    public void test_names() {
+
+        assertEquals("bigdata_query_engine_elapsed_millis",
+                getName("/Query Engine/elapsedMillis"));
+
+        assertEquals("bigdata_jvm_memory_max_memory",
+                getName("/JVM/Memory/Max Memory"));
+
+        assertEquals("bigdata_journal_commit_total_commit_secs",
+                getName("/Journal/commit/totalCommitSecs"));
+
+        assertEquals("bigdata_a_b_c", getName("/a (b)/-c-"));
+
+    }
+
+    public void test_labels() {
+
+        assertEquals(
+                "bigdata_journal_index_manager_btree_nodes_read{index=\"kb.spo.SPO\"}",
+                getName("/Journal/Index Manager/kb.spo.SPO/btree/nodesRead"));
+
+        assertEquals(
+                "bigdata_query_engine_query_shapes_operators_task_micros_p50{shape=\"1a2b\",operator=\"PipelineJoin#3\"}",
+                getName("/Query Engine/QueryShapes/1a2b/operators/PipelineJoin#3/taskMicros/p50"));
+
+        // A counter whose name matches a collection is not a label.
+        assertEquals("bigdata_x_operators", getName("/x/operators"));
+
+        // Label values are escaped.
+        assertEquals("bigdata_index_manager_n{index=\"a\\\"b\\\\c\"}",
+                getName("/Index Manager/a\"b\\c/n"));
+
+    }
+
+    public void test_formatValue() {
+
+        assertEquals("12", OpenMetricsRenderer.formatValue(12L));
+        assertEquals("1.5", OpenMetricsRenderer.formatValue(1.5d));
+        assertEquals("NaN", OpenMetricsRenderer.formatValue(Double.NaN));
+        assertEquals("+Inf",
+                OpenMetricsRenderer.formatValue(Double.POSITIVE_INFINITY));
+        assertEquals("1", OpenMetricsRenderer.formatValue(Boolean.TRUE));
+        assertNull(OpenMetricsRenderer.formatValue("abc"));
+        assertNull(OpenMetricsRenderer.formatValue(null));
+
+    }
+
+    /**
+     * Render a small hierarchy. The samples are grouped under a single metric
+     * and strings are not reported.
+     */
+    public void test_render() throws Exception {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("/Journal/Index Manager/a/btree/nodesRead",
+                new OneShotInstrument<Long>(1L));
+
+        root.addCounter("/Journal/file", new OneShotInstrument<String>(
+                "/tmp/x.jnl"));
+
+        root.addCounter("/Journal/Index Manager/b/btree/nodesRead",
+                new OneShotInstrument<Long>(2L));
+
+        final URLQueryModel model = URLQueryModel.getInstance(new URL(
+                "http://localhost:9999/bigdata/counters?mimeType="
+                        + "application/openmetrics-text"));
+
+        final StringWriter w = new StringWriter();
+
+        new OpenMetricsRenderer(model, new CounterSetSelector(root)).render(w);
+
+        final String s = w.toString();
+
+        if (log.isInfoEnabled())
+            log.info(s);
+
+        final String name = "bigdata_journal_index_manager_btree_nodes_read";
+
+        assertTrue(s, s.contains("# TYPE " + name + " unknown\n"));
+
+        assertTrue(s, s.contains(name + "{index=\"a\"} 1\n"));
+
+        assertTrue(s, s.contains(name + "{index=\"b\"} 2\n"));
+
+        assertFalse(s, s.contains("x.jnl"));
+
+        assertEquals(1, s.split("# TYPE ").length - 1);
+
+        assertTrue(s, s.endsWith("# EOF\n"));
+
+    }
+
+}
@@ -63,6 +63,9 @@ public class TestAll extends TestCase {
         
         // tests for the UnicodeHelper
         suite.addTestSuite(TestUnicodeHelper.class);
+
+        // tests for the static symbol table compressor.
+        suite.addTestSuite(TestSymbolTableCompressor.class);
         
         suite.addTestSuite(TestNOPRecordCompressor.class);
 
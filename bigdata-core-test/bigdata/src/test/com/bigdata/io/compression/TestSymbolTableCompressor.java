@@ -0,0 +1,221 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.io.compression;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.io.ByteArrayBuffer;
+import com.bigdata.io.SerializerUtil;
+
+/**
+ * Test suite for {@link SymbolTableCompressor}.
+ */
+public class TestSymbolTableCompressor extends TestCase2 {
+
+    public TestSymbolTableCompressor() {
+    }
+
+    public TestSymbolTableCompressor(String name) {
+        super(name);
+    }
+
+    private static List<byte[]> getSample() {
+
+        final List<byte[]> sample = new LinkedList<byte[]>();
+
+        for (int i = 0; i < 1000; i++) {
+
+            sample.add(("http://www.example.org/resource/item" + i).getBytes());
+
+        }
+
+        return sample;
+
+    }
+
+    /**
+     * An empty table escapes every byte.
+     */
+    public void test_emptyTable() {
+
+        final SymbolTableCompressor table = new SymbolTableCompressor(
+                new byte[0][]);
+
+        final byte[] data = "abc".getBytes();
+
+        final byte[] compressed = table.compress(data);
+
+        assertEquals(6, compressed.length);
+
+        assertEquals(data, table.decompress(compressed));
+
+        assertEquals(0, table.decompress(table.compress(new byte[0])).length);
+
+    }
+
+    /**
+     * The longest matching symbol is used.
+     */
+    public void test_longestMatch() {
+
+        final SymbolTableCompressor table = new SymbolTableCompressor(
+                new byte[][] { "a".getBytes(), "abcd".getBytes(),
+                        "ab".getBytes() });
+
+        // "abcd" + "ab" + "a" + escape "x"
+        final byte[] compressed = table.compress("abcdabax".getBytes());
+
+        assertEquals(new byte[] { 1, 2, 0, (byte) 255, 'x' }, compressed);
+
+        assertEquals("abcdabax".getBytes(), table.decompress(compressed));
+
+    }
+
+    /**
+     * A trained table compresses data which resembles the sample and
+     * correctly round trips arbitrary data.
+     */
+    public void test_train() {
+
+        final List<byte[]> sample = getSample();
+
+        final SymbolTableCompressor table = SymbolTableCompressor
+                .train(sample);
+
+        assertTrue(table.getSymbolCount() > 0);
+        assertTrue(table.getSymbolCount() <= SymbolTableCompressor.MAX_SYMBOLS);
+
+        long nbytes = 0, ncompressed = 0;
+
+        for (byte[] b : sample) {
+
+            final byte[] compressed = table.compress(b);
+
+            assertEquals(b, table.decompress(compressed));
+
+            nbytes += b.length;
+
+            ncompressed += compressed.length;
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("nbytes=" + nbytes + ", ncompressed=" + ncompressed);
+
+        assertTrue(ncompressed * 2 < nbytes);
+
+        // training is deterministic.
+        assertEquals(table, SymbolTableCompressor.train(sample));
+
+        final Random r = new Random();
+
+        for (int i = 0; i < 100; i++) {
+
+            final byte[] b = new byte[r.nextInt(100)];
+
+            r.nextBytes(b);
+
+            assertEquals(b, table.decompress(table.compress(b)));
+
+        }
+
+    }
+
+    /**
+     * Compression and decompression append to the caller's buffer.
+     */
+    public void test_offsets() {
+
+        final SymbolTableCompressor table = SymbolTableCompressor
+                .train(getSample());
+
+        final byte[] data = "xxhttp://www.example.org/resource/item12xx"
+                .getBytes();
+
+        final ByteArrayBuffer buf = new ByteArrayBuffer();
+
+        buf.putByte((byte) 7);
+
+        table.compress(data, 2, data.length - 4, buf);
+
+        final ByteArrayBuffer out = new ByteArrayBuffer();
+
+        table.decompress(buf.array(), 1, buf.pos() - 1, out);
+
+        assertEquals("http://www.example.org/resource/item12".getBytes(), out
+                .toByteArray());
+
+    }
+
+    /**
+     * The table is serializable.
+     */
+    public void test_serialization() {
+
+        final SymbolTableCompressor table = SymbolTableCompressor
+                .train(getSample());
+
+        final SymbolTableCompressor actual = (SymbolTableCompressor) SerializerUtil
+                .deserialize(SerializerUtil.serialize(table));
+
+        assertEquals(table, actual);
+
+        final byte[] data = "http://www.example.org/resource/item7".getBytes();
+
+        assertEquals(table.compress(data), actual.compress(data));
+
+    }
+
+    /**
+     * Corrupt data are detected.
+     */
+    public void test_corrupt() {
+
+        final SymbolTableCompressor table = new SymbolTableCompressor(
+                new byte[][] { "a".getBytes() });
+
+        try {
+            table.decompress(new byte[] { 3 });
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            table.decompress(new byte[] { (byte) 255 });
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
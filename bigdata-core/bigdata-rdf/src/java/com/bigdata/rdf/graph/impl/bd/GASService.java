@@ -102,7 +102,14 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  *    gas:program gas:nthreads 4 . # specify the #of threads to use (optional)
  * }
  * </pre>
- * 
+ *
+ * The same traversal may be run with
+ * <code>com.bigdata.rdf.graph.analytics.DOBFS</code>, which switches to a
+ * bottom-up (pull) expansion when the frontier becomes large. Likewise,
+ * <code>com.bigdata.rdf.graph.analytics.DeltaSSSP</code> computes the same
+ * distances as <code>com.bigdata.rdf.graph.analytics.SSSP</code> using
+ * delta-stepping.
+ * <p>
  * Or the following would run the FuzzySSSP algorithm.
  * 
  * <pre>
@@ -0,0 +1,453 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bigdata.bop.joinGraph.fast.DefaultEvaluationPlanFactory2;
+import com.bigdata.rdf.axioms.Axioms;
+import com.bigdata.rdf.changesets.IChangeLog;
+import com.bigdata.rdf.changesets.StatementWriter;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rules.FullClosure;
+import com.bigdata.rdf.rules.InferenceEngine;
+import com.bigdata.rdf.rules.RederivationTask;
+import com.bigdata.rdf.rules.RuleContextEnum;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.relation.rule.IProgram;
+import com.bigdata.relation.rule.eval.ActionEnum;
+import com.bigdata.relation.rule.eval.IJoinNexus;
+import com.bigdata.striterator.ChunkedArrayIterator;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+/**
+ * Truth maintenance using the Delete/Re-derive (DRed) algorithm. Unlike
+ * {@link TruthMaintenance}, statement retraction does not walk the
+ * {@link Justification} chains, so the justifications index is not required.
+ * <p>
+ * Assertion is the same as for {@link TruthMaintenance}: the closure of the
+ * asserted statements is computed against the database and copied onto the
+ * database. Retraction proceeds in three phases:
+ * <ol>
+ * <li>Over-delete. The closure of the explicit statements to be retracted is
+ * computed against the database. Every statement in that closure which is in
+ * the database is deleted, except for axioms and for explicit statements which
+ * were not given for retraction. This deletes everything which might have
+ * depended on the retracted statements.</li>
+ * <li>Re-derive. Each over-deleted statement which can still be derived in one
+ * step from the statements remaining in the database is identified by the
+ * {@link RederivationTask}.</li>
+ * <li>Re-insert. The closure of the re-derived statements is computed against
+ * the database and copied onto the database as inferences.</li>
+ * </ol>
+ * An explicit statement which was retracted but which is still entailed is
+ * re-derived and hence downgraded to an inference. The set of over-deleted
+ * statements is held in native memory using a {@link NativeSPOSet}.
+ * <p>
+ * The re-derivation step uses the rules of the {@link FullClosure} program
+ * since those rules can be evaluated directly for a set of bound heads. The
+ * {@link FullClosure} and {@link com.bigdata.rdf.rules.FastClosure} programs
+ * compute the same entailments. The closure computed for the other steps uses
+ * the program configured for the database.
+ * <p>
+ * Note: Justifications are neither required nor maintained, so
+ * {@link AbstractTripleStore.Options#JUSTIFY} MUST be <code>false</code> for a
+ * database using this class. Otherwise the justifications of the over-deleted
+ * statements would remain in the justifications index and be read by later
+ * truth maintenance.
+ * <p>
+ * Note: This is only supported for a local (non-scale-out) database.
+ *
+ * @see InferenceEngine.Options#DRED_TRUTH_MAINTENANCE
+ */
+public class DRedTruthMaintenance extends TruthMaintenance {
+
+    /**
+     * @param inferenceEngine
+     *            The inference engine for the database.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the database maintains justifications.
+     */
+    public DRedTruthMaintenance(final InferenceEngine inferenceEngine) {
+
+        super(inferenceEngine);
+
+        if (database.isJustify())
+            throw new UnsupportedOperationException(
+                    InferenceEngine.Options.DRED_TRUTH_MAINTENANCE
+                            + " does not support "
+                            + AbstractTripleStore.Options.JUSTIFY
+                            + ": namespace=" + database.getNamespace());
+
+    }
+
+    /**
+     * Perform truth maintenance for statement retraction using
+     * Delete/Re-derive.
+     *
+     * @param tempStore
+     *            A temporary store containing explicit statements to be
+     *            retracted from the database. The tempStore will be closed as
+     *            a post-condition.
+     * @param changeLog
+     *            optional change log for change notification
+     *
+     * @return statistics about the closure operation.
+     */
+    @Override
+    public ClosureStats retractAll(final TempTripleStore tempStore,
+            final IChangeLog changeLog) {
+
+        if (tempStore == null) {
+
+            throw new IllegalArgumentException();
+
+        }
+
+        final long begin = System.currentTimeMillis();
+
+        final ClosureStats stats = new ClosureStats();
+
+        // #of given statements to retract.
+        final long ngiven = tempStore.getStatementCount();
+
+        if (ngiven == 0) {
+
+            // nothing to retract.
+
+            return stats;
+
+        }
+
+        if (database.getStatementIdentifiers()) {
+
+            AbstractTripleStore.fixPointStatementIdentifiers(database, tempStore);
+
+        }
+
+        final NativeSPOSet deleted = new NativeSPOSet();
+
+        try {
+
+            overDelete(stats, tempStore, deleted, changeLog);
+
+            if (INFO)
+                log.info("Over-deleted " + deleted.size() + " statements for "
+                        + ngiven + " given statements");
+
+            rederive(stats, deleted, changeLog);
+
+        } finally {
+
+            deleted.close();
+
+            tempStore.close();
+
+        }
+
+        final long elapsed = System.currentTimeMillis() - begin;
+
+        stats.elapsed.add(elapsed);
+
+        if (INFO)
+            log.info("Retracted " + ngiven
+                    + " given and updated closure on the database in "
+                    + elapsed + " ms");
+
+        return stats;
+
+    }
+
+    /**
+     * Delete the given explicit statements and everything in their closure
+     * from the database (except axioms and other explicit statements). The
+     * deleted statements are added to <i>deleted</i>.
+     */
+    private void overDelete(final ClosureStats stats,
+            final TempTripleStore tempStore, final NativeSPOSet deleted,
+            final IChangeLog changeLog) {
+
+        final Axioms axioms = database.getAxioms();
+
+        final TempTripleStore focusStore = newTempTripleStore();
+
+        try {
+
+            /*
+             * Copy the given statements which are explicit in the database
+             * onto the focusStore. A given statement which is also an axiom is
+             * downgraded to an axiom. Nothing which depends on it is retracted.
+             */
+            final List<ISPO> axiomatic = new ArrayList<ISPO>();
+
+            final IChunkedOrderedIterator<ISPO> itr = tempStore.getAccessPath(
+                    SPOKeyOrder.SPO).iterator();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final ISPO[] chunk = itr.nextChunk();
+
+                    final ISPO[] given = new ISPO[chunk.length];
+
+                    int n = 0;
+
+                    for (ISPO spo : chunk) {
+
+                        final ISPO tmp = database.getStatement(spo.s(),
+                                spo.p(), spo.o());
+
+                        if (tmp == null
+                                || tmp.getStatementType() != StatementEnum.Explicit)
+                            continue;
+
+                        if (axioms.isAxiom(spo.s(), spo.p(), spo.o())) {
+
+                            axiomatic.add(new SPO(spo.s(), spo.p(), spo.o(),
+                                    StatementEnum.Axiom));
+
+                            continue;
+
+                        }
+
+                        given[n++] = new SPO(spo.s(), spo.p(), spo.o(),
+                                StatementEnum.Explicit);
+
+                    }
+
+                    focusStore.addStatements(given, n);
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            if (!axiomatic.isEmpty()) {
+
+                final ISPO[] a = axiomatic.toArray(new ISPO[axiomatic.size()]);
+
+                remove(a, a.length, changeLog);
+
+                insert(a, a.length, changeLog);
+
+            }
+
+            /*
+             * Everything which might depend on the given statements.
+             *
+             * Note: Since the given statements are the only explicit statements
+             * in the focusStore, an explicit statement in the database which
+             * is inferred in the focusStore was not given and is retained.
+             */
+            stats.add(inferenceEngine.computeClosure(focusStore, false/* justify */));
+
+            final IChunkedOrderedIterator<ISPO> itr2 = focusStore
+                    .getAccessPath(SPOKeyOrder.SPO).iterator();
+
+            try {
+
+                while (itr2.hasNext()) {
+
+                    final ISPO[] chunk = itr2.nextChunk();
+
+                    final ISPO[] a = new ISPO[chunk.length];
+
+                    int n = 0;
+
+                    for (ISPO spo : chunk) {
+
+                        final ISPO tmp = database.getStatement(spo.s(),
+                                spo.p(), spo.o());
+
+                        if (tmp == null)
+                            continue;
+
+                        switch (tmp.getStatementType()) {
+                        case Axiom:
+                            continue;
+                        case Explicit:
+                            if (spo.getStatementType() != StatementEnum.Explicit)
+                                continue;
+                            break;
+                        default:
+                            break;
+                        }
+
+                        if (deleted.add(spo))
+                            a[n++] = spo;
+
+                    }
+
+                    remove(a, n, changeLog);
+
+                }
+
+            } finally {
+
+                itr2.close();
+
+            }
+
+        } finally {
+
+            focusStore.close();
+
+        }
+
+    }
+
+    /**
+     * Re-derive the over-deleted statements which are still entailed by the
+     * database and copy the closure of those statements onto the database.
+     */
+    private void rederive(final ClosureStats stats, final NativeSPOSet deleted,
+            final IChangeLog changeLog) {
+
+        if (deleted.size() == 0)
+            return;
+
+        final IProgram program = new FullClosure(database).getProgram(database
+                .getSPORelation().getNamespace(), null/* focusStore */);
+
+        final IJoinNexus joinNexus = database.newJoinNexusFactory(
+                RuleContextEnum.DatabaseAtOnceClosure, ActionEnum.Query,
+                IJoinNexus.ELEMENT, null/* filter */, false/* justify */,
+                false/* backchain */, DefaultEvaluationPlanFactory2.INSTANCE)
+                .newInstance(database.getIndexManager());
+
+        final TempTripleStore focusStore = newTempTripleStore();
+
+        try {
+
+            final long[] nrederived = new long[1];
+
+            /*
+             * Note: The re-derivation reads on the database after all
+             * over-deleted statements were removed. Nothing is written on the
+             * database until all chunks were considered.
+             */
+            deleted.forEachChunk(database.getChunkCapacity(),
+                    new NativeSPOSet.IChunkVisitor() {
+
+                        @Override
+                        public void visit(final ISPO[] chunk) {
+
+                            final ISPO[] a;
+                            try {
+                                a = new RederivationTask(database, program,
+                                        joinNexus, chunk).call();
+                            } catch (Exception ex) {
+                                throw new RuntimeException(ex);
+                            }
+
+                            for (int i = 0; i < a.length; i++) {
+
+                                a[i] = new SPO(a[i].s(), a[i].p(), a[i].o(),
+                                        StatementEnum.Inferred);
+
+                            }
+
+                            focusStore.addStatements(a, a.length);
+
+                            nrederived[0] += a.length;
+
+                        }
+
+                    });
+
+            if (INFO)
+                log.info("Re-derived " + nrederived[0] + " statements");
+
+            if (nrederived[0] == 0)
+                return;
+
+            stats.add(inferenceEngine.computeClosure(focusStore, false/* justify */));
+
+            focusStore.copyStatements(database, null/* filter */,
+                    false/* copyJustifications */, changeLog);
+
+        } finally {
+
+            focusStore.close();
+
+        }
+
+    }
+
+    /**
+     * Remove statements from the database.
+     */
+    private void remove(final ISPO[] a, final int n, final IChangeLog changeLog) {
+
+        if (n == 0)
+            return;
+
+        if (changeLog == null) {
+
+            database.removeStatements(new ChunkedArrayIterator<ISPO>(n, a,
+                    null/* keyOrder */), false/* computeClosureForStatementIdentifiers */);
+
+        } else {
+
+            StatementWriter.removeStatements(database, a, n,
+                    false/* computeClosureForStatementIdentifiers */, changeLog);
+
+        }
+
+    }
+
+    /**
+     * Write statements on the database.
+     */
+    private void insert(final ISPO[] a, final int n, final IChangeLog changeLog) {
+
+        if (n == 0)
+            return;
+
+        if (changeLog == null) {
+
+            database.addStatements(a, n);
+
+        } else {
+
+            StatementWriter.addStatements(database, database,
+                    false/* copyOnly */, null/* filter */,
+                    new ChunkedArrayIterator<ISPO>(n, a, null/* keyOrder */),
+                    changeLog);
+
+        }
+
+    }
+
+}
@@ -280,16 +280,26 @@ public class Justification implements Comparable<Justification> {
      */
     public Justification(ISolution solution) {
         
-        // the rule that licensed the entailment.
-        final IRule rule = solution.getRule();
+        this(solution.getRule(), (SPO) solution.get(), solution
+                .getBindingSet());
         
-        this.N = rule.getHead().arity();
-
-        // the entailed statement.
-        final SPO head = (SPO) solution.get();
+    }
 
-        // the binding set for the solution.
-        final IBindingSet bindingSet = solution.getBindingSet();
+    /**
+     * Construct a justification from the rule, the entailed statement and the
+     * bindings for the solution which licensed that entailment.
+     * 
+     * @param rule
+     *            The rule that licensed the entailment.
+     * @param head
+     *            The entailed statement.
+     * @param bindingSet
+     *            The binding set for the solution.
+     */
+    public Justification(final IRule rule, final SPO head,
+            final IBindingSet bindingSet) {
+        
+        this.N = rule.getHead().arity();
 
 //        final long[] bindings = new long[(rule.getTailCount() + 1) * N];
 
@@ -0,0 +1,204 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.bigdata.btree.BTree;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rwstore.sector.MemStore;
+import com.bigdata.rwstore.sector.MemoryManager;
+
+/**
+ * A set of triples backed by a {@link BTree} on native memory. The keys are
+ * the {@link SPOKeyOrder#SPO} keys for the triples and there are no values.
+ * This is used to hold the delta sets for {@link DRedTruthMaintenance} off of
+ * the JVM heap.
+ * <p>
+ * Note: This class is not thread-safe. The native memory is released by
+ * {@link #close()}.
+ */
+public class NativeSPOSet {
+
+    /** The native memory store backing the {@link #index}. */
+    private MemStore store;
+
+    /** The index. */
+    private BTree index;
+
+    private final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+    public NativeSPOSet() {
+
+        store = new MemStore(new MemoryManager(DirectBufferPool.INSTANCE));
+
+        final IndexMetadata metadata = new IndexMetadata(UUID.randomUUID());
+
+        // No values.
+        metadata.setMaxRecLen(0);
+
+        index = BTree.create(store, metadata);
+
+    }
+
+    private void assertOpen() {
+
+        if (index == null)
+            throw new IllegalStateException();
+
+    }
+
+    /**
+     * Add a triple to the set.
+     *
+     * @return <code>true</code> iff the set was modified.
+     */
+    public boolean add(final ISPO spo) {
+
+        assertOpen();
+
+        final byte[] key = SPOKeyOrder.SPO.encodeKey(keyBuilder, spo);
+
+        if (index.contains(key))
+            return false;
+
+        index.insert(key, null/* val */);
+
+        return true;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the triple is in the set.
+     */
+    public boolean contains(final ISPO spo) {
+
+        assertOpen();
+
+        return index.contains(SPOKeyOrder.SPO.encodeKey(keyBuilder, spo));
+
+    }
+
+    /**
+     * The #of triples in the set.
+     */
+    public long size() {
+
+        assertOpen();
+
+        return index.rangeCount();
+
+    }
+
+    /**
+     * Visit the triples in {@link SPOKeyOrder#SPO} order in chunks. The
+     * triples are decoded from the keys, so their statement type is not
+     * defined.
+     *
+     * @param chunkSize
+     *            The maximum #of triples in a chunk.
+     * @param visitor
+     *            Invoked for each chunk.
+     */
+    public void forEachChunk(final int chunkSize, final IChunkVisitor visitor) {
+
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (visitor == null)
+            throw new IllegalArgumentException();
+
+        assertOpen();
+
+        final List<ISPO> chunk = new ArrayList<ISPO>(chunkSize);
+
+        @SuppressWarnings("unchecked")
+        final ITupleIterator<Object> itr = index.rangeIterator();
+
+        while (itr.hasNext()) {
+
+            final ITuple<Object> tuple = itr.next();
+
+            final SPO spo = SPOKeyOrder.SPO.decodeKey(tuple.getKey());
+
+            chunk.add(spo);
+
+            if (chunk.size() == chunkSize) {
+
+                visitor.visit(chunk.toArray(new ISPO[chunk.size()]));
+
+                chunk.clear();
+
+            }
+
+        }
+
+        if (!chunk.isEmpty()) {
+
+            visitor.visit(chunk.toArray(new ISPO[chunk.size()]));
+
+        }
+
+    }
+
+    /**
+     * Release the native memory. This is a NOP if the set is already closed.
+     */
+    public void close() {
+
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+
+    }
+
+    /**
+     * Callback for {@link NativeSPOSet#forEachChunk(int, IChunkVisitor)}.
+     */
+    public interface IChunkVisitor {
+
+        /**
+         * Visit a chunk of triples.
+         */
+        void visit(ISPO[] chunk);
+
+    }
+
+}
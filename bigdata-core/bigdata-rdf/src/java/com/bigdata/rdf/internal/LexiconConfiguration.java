@@ -198,6 +198,11 @@ public class LexiconConfiguration<V extends BigdataValue>
      */
     private final IInlineURIFactory uriFactory;
 
+    /**
+     * The dictionary of learned {@link URI} namespaces (optional).
+     */
+    private final NamespaceDictionary namespaceDictionary;
+
     /**
      * Mapping from the {@link IV} for the datatype URI of a registered
      * extension to the {@link IExtension}.
@@ -280,6 +285,16 @@ public class LexiconConfiguration<V extends BigdataValue>
 
         return blobsThreshold;
 
+    }
+
+    /**
+     * The dictionary of learned {@link URI} namespaces -or- <code>null</code>
+     * if there is no such dictionary.
+     */
+    public NamespaceDictionary getNamespaceDictionary() {
+
+        return namespaceDictionary;
+
     }
     
 	@Override
@@ -365,6 +380,37 @@ public class LexiconConfiguration<V extends BigdataValue>
             final boolean geoSpatial,
             final GeoSpatialConfig geoSpatialConfig) {
 
+        this(blobsThreshold, inlineXSDDatatypeLiterals, inlineTextLiterals,
+                maxInlineTextLength, inlineBNodes, inlineDateTimes,
+                inlineDateTimesTimeZone, rejectInvalidXSDValues,
+                enableRawRecordsSupport, xFactory, vocab, valueFactory,
+                uriFactory, geoSpatial, geoSpatialConfig, null/* namespaceDictionary */);
+
+    }
+
+    /**
+     * @param namespaceDictionary
+     *            The dictionary of learned {@link URI} namespaces (optional).
+     */
+    @SuppressWarnings("rawtypes")
+    public LexiconConfiguration(//
+            final int blobsThreshold,
+            final boolean inlineXSDDatatypeLiterals,//
+            final boolean inlineTextLiterals,//
+            final int maxInlineTextLength,//
+            final boolean inlineBNodes,//
+            final boolean inlineDateTimes,//
+            final TimeZone inlineDateTimesTimeZone,
+            final boolean rejectInvalidXSDValues,
+            final boolean enableRawRecordsSupport,//
+            final IExtensionFactory xFactory,//
+            final Vocabulary vocab,
+            final BigdataValueFactory valueFactory,//
+            final IInlineURIFactory uriFactory,//
+            final boolean geoSpatial,
+            final GeoSpatialConfig geoSpatialConfig,
+            final NamespaceDictionary namespaceDictionary) {
+
         if (blobsThreshold < 0)
             throw new IllegalArgumentException();
 
@@ -392,6 +438,7 @@ public class LexiconConfiguration<V extends BigdataValue>
         this.uriFactory = uriFactory;
         this.geoSpatial = geoSpatial;
         this.geoSpatialConfig = geoSpatialConfig;
+        this.namespaceDictionary = namespaceDictionary;
         
         /*
          * TODO Make this configurable.
@@ -583,33 +630,53 @@ public class LexiconConfiguration<V extends BigdataValue>
 
         }
 
-        if (maxInlineTextLength == 0) {
+        if (maxInlineTextLength != 0) {
 
-            return null;
+            if (value.stringValue().length() <= maxInlineTextLength) {
 
-        }
+                return new FullyInlineURIIV<BigdataURI>(value);
 
-        if (value.stringValue().length() <= maxInlineTextLength) {
+            }
 
-            return new FullyInlineURIIV<BigdataURI>(value);
+            final String localName = ((URI) value).getLocalName();
 
-        }
+            if (localName.length() < maxInlineTextLength) {
+
+                final String namespace = ((URI) value).getNamespace();
 
-        final String localName = ((URI) value).getLocalName();
+                final IV<BigdataURI, ?> namespaceIV = vocab.get(new URIImpl(
+                        namespace));
 
-        if (localName.length() < maxInlineTextLength) {
+                if (namespaceIV != null) {
 
-            final String namespace = ((URI) value).getNamespace();
+                    final FullyInlineTypedLiteralIV<BigdataLiteral> localNameIV = new FullyInlineTypedLiteralIV<BigdataLiteral>(
+                            localName);
 
-            final IV<BigdataURI, ?> namespaceIV = vocab.get(new URIImpl(namespace));
+                    return new URIExtensionIV<BigdataURI>(localNameIV,
+                            namespaceIV);
 
-            if (namespaceIV != null) {
+                }
+
+            }
+
+        }
+
+        if (namespaceDictionary != null
+                && BigdataValueSerializer.getStringLength(value) < blobsThreshold) {
 
-                final FullyInlineTypedLiteralIV<BigdataLiteral> localNameIV =
-                        new FullyInlineTypedLiteralIV<BigdataLiteral>(
-                                localName);
+            /*
+             * See if the namespace was learned. Note: URIs which would be
+             * stored in the BLOBS index are never inlined this way since the
+             * check made before a namespace is learned only considers the
+             * TERM2ID index.
+             */
+
+            final IV<BigdataURI, ?> iv = namespaceDictionary
+                    .createInlineIV(value);
 
-                return new URIExtensionIV<BigdataURI>(localNameIV, namespaceIV);
+            if (iv != null) {
+
+                return iv;
 
             }
 
@@ -629,6 +696,12 @@ public class LexiconConfiguration<V extends BigdataValue>
     @Override
     public String getInlineURILocalNameFromDelegate(final URI namespace,
             final AbstractLiteralIV<BigdataLiteral, ?> delegate) {
+        if (namespaceDictionary != null && namespace instanceof BigdataURI
+                && namespaceDictionary.isNamespaceIV(((BigdataURI) namespace)
+                        .getIV())) {
+            // The localName of a URI in a learned namespace is inlined as is.
+            return delegate.getInlineValue().toString();
+        }
         return uriFactory.getLocalNameFromDelegate(namespace, delegate);
     }
 
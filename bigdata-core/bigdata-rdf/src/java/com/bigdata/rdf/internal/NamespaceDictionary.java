@@ -0,0 +1,310 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.bigdata.rdf.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openrdf.model.URI;
+
+import com.bigdata.rdf.internal.impl.literal.FullyInlineTypedLiteralIV;
+import com.bigdata.rdf.internal.impl.uri.URIExtensionIV;
+import com.bigdata.rdf.internal.impl.uri.VocabURIShortIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.vocab.Vocabulary;
+
+/**
+ * An append-only dictionary of {@link URI} namespaces which were learned while
+ * loading data. A {@link URI} whose namespace is in the dictionary is inlined
+ * as a {@link URIExtensionIV} whose namespace {@link IV} is assigned by the
+ * dictionary and whose localName is a {@link FullyInlineTypedLiteralIV}. Such
+ * {@link URI}s are never written on the TERM2ID and ID2TERM indices.
+ * <p>
+ * The namespace {@link IV}s are {@link VocabURIShortIV}s which are allocated
+ * downward from <code>-1</code>. The {@link Vocabulary} allocates its
+ * {@link VocabURIShortIV}s upward from <code>256</code> and can wrap around to
+ * at most <code>-32513</code>, so the two ranges never overlap.
+ * <p>
+ * The inline encoding of a {@link URI} MUST be stable for the life of the
+ * database. Therefore:
+ * <ul>
+ * <li>A namespace is never removed from the dictionary and its {@link IV} is
+ * never changed.</li>
+ * <li>A namespace may only be added if there is no {@link URI} in that
+ * namespace in the lexicon (this is verified by the caller).</li>
+ * <li>Whether or not a {@link URI} is inlined depends only on its namespace
+ * and the length of its localName (see {@link #MAX_LOCAL_NAME_LENGTH}).</li>
+ * </ul>
+ * The dictionary is persisted by the caller, one column per namespace, in the
+ * row for the lexicon in the global row store. See {@link #getColumnName(int)}
+ * and {@link #load(Map)}.
+ */
+public class NamespaceDictionary {
+
+    /**
+     * The prefix for the names of the columns in the global row store which
+     * record the namespaces. The index of the namespace is appended to this
+     * prefix.
+     */
+    public static final String COLUMN_PREFIX = NamespaceDictionary.class
+            .getName() + ".namespace.";
+
+    /**
+     * The maximum #of namespaces in the dictionary.
+     */
+    public static final int MAX_SIZE = 32512;
+
+    /**
+     * The maximum length of the localName of a {@link URI} which will be
+     * inlined. {@link URI}s with longer localNames are stored in the lexicon
+     * as usual.
+     * <p>
+     * Note: This is a constant since changing it would change the encoding of
+     * {@link URI}s which are already in the database.
+     */
+    public static final int MAX_LOCAL_NAME_LENGTH = 64;
+
+    /**
+     * The namespaces in the order in which they were added.
+     */
+    private final List<String> namespaces = new ArrayList<String>();
+
+    /**
+     * The {@link IV} for each namespace.
+     */
+    private final ConcurrentHashMap<String, VocabURIShortIV<BigdataURI>> ns2iv = new ConcurrentHashMap<String, VocabURIShortIV<BigdataURI>>();
+
+    /**
+     * The namespace for each {@link IV}.
+     */
+    private final ConcurrentHashMap<IV<?, ?>, String> iv2ns = new ConcurrentHashMap<IV<?, ?>, String>();
+
+    /**
+     * Return the name of the column in the global row store for the namespace
+     * having the given index.
+     */
+    public static String getColumnName(final int index) {
+
+        if (index < 0 || index >= MAX_SIZE)
+            throw new IllegalArgumentException();
+
+        return COLUMN_PREFIX + index;
+
+    }
+
+    /**
+     * Return the {@link IV} for the namespace having the given index.
+     */
+    public static VocabURIShortIV<BigdataURI> getIV(final int index) {
+
+        if (index < 0 || index >= MAX_SIZE)
+            throw new IllegalArgumentException();
+
+        return new VocabURIShortIV<BigdataURI>((short) (-1 - index));
+
+    }
+
+    /**
+     * The #of namespaces in the dictionary.
+     */
+    public int size() {
+
+        return iv2ns.size();
+
+    }
+
+    /**
+     * Return <code>true</code> iff the namespace is in the dictionary.
+     */
+    public boolean contains(final String namespace) {
+
+        return ns2iv.containsKey(namespace);
+
+    }
+
+    /**
+     * Return <code>true</code> iff the {@link IV} was assigned to a namespace
+     * by this dictionary.
+     */
+    public boolean isNamespaceIV(final IV<?, ?> iv) {
+
+        return iv2ns.containsKey(iv);
+
+    }
+
+    /**
+     * Return the namespace for an {@link IV} assigned by this dictionary -or-
+     * <code>null</code> if the {@link IV} is not known.
+     */
+    public String getNamespace(final IV<?, ?> iv) {
+
+        return iv2ns.get(iv);
+
+    }
+
+    /**
+     * Return the inline {@link IV} for the {@link URI} -or- <code>null</code>
+     * if its namespace is not in the dictionary or its localName is too long.
+     */
+    public URIExtensionIV<BigdataURI> createInlineIV(final URI uri) {
+
+        if (ns2iv.isEmpty())
+            return null;
+
+        final VocabURIShortIV<BigdataURI> namespaceIV = ns2iv.get(uri
+                .getNamespace());
+
+        if (namespaceIV == null)
+            return null;
+
+        final String localName = uri.getLocalName();
+
+        if (localName.length() == 0
+                || localName.length() > MAX_LOCAL_NAME_LENGTH)
+            return null;
+
+        return new URIExtensionIV<BigdataURI>(
+                new FullyInlineTypedLiteralIV<BigdataLiteral>(localName),
+                namespaceIV);
+
+    }
+
+    /**
+     * Add a namespace to the dictionary. The caller is responsible for
+     * verifying that there is no {@link URI} in that namespace in the lexicon
+     * and for persisting the new entry.
+     *
+     * @return The index assigned to the namespace.
+     *
+     * @throws IllegalStateException
+     *             if the namespace is already in the dictionary or if the
+     *             dictionary is full.
+     */
+    synchronized public int add(final String namespace) {
+
+        if (namespace == null || namespace.length() == 0)
+            throw new IllegalArgumentException();
+
+        if (ns2iv.containsKey(namespace))
+            throw new IllegalStateException("Exists: " + namespace);
+
+        final int index = namespaces.size();
+
+        if (index >= MAX_SIZE)
+            throw new IllegalStateException("Full");
+
+        put(index, namespace);
+
+        return index;
+
+    }
+
+    /**
+     * Add the namespaces recorded in the row for the lexicon in the global row
+     * store. Namespaces which are already in the dictionary are ignored.
+     *
+     * @param row
+     *            The row (may be <code>null</code>).
+     *
+     * @throws IllegalStateException
+     *             if the row is not consistent with the dictionary.
+     */
+    synchronized public void load(final Map<String, Object> row) {
+
+        if (row == null)
+            return;
+
+        final TreeMap<Integer, String> a = new TreeMap<Integer, String>();
+
+        for (Map.Entry<String, Object> e : row.entrySet()) {
+
+            final String name = e.getKey();
+
+            if (!name.startsWith(COLUMN_PREFIX))
+                continue;
+
+            final int index = Integer.parseInt(name.substring(COLUMN_PREFIX
+                    .length()));
+
+            if (index < 0 || index >= MAX_SIZE)
+                throw new IllegalStateException(name);
+
+            a.put(index, (String) e.getValue());
+
+        }
+
+        int i = 0;
+
+        for (Map.Entry<Integer, String> e : a.entrySet()) {
+
+            if (e.getKey().intValue() != i)
+                throw new IllegalStateException("Missing namespace: index="
+                        + i);
+
+            final String namespace = e.getValue();
+
+            if (i < namespaces.size()) {
+
+                if (!namespaces.get(i).equals(namespace))
+                    throw new IllegalStateException(
+                            "Inconsistent namespace: index=" + i
+                                    + ", expected=" + namespaces.get(i)
+                                    + ", actual=" + namespace);
+
+            } else {
+
+                put(i, namespace);
+
+            }
+
+            i++;
+
+        }
+
+    }
+
+    private void put(final int index, final String namespace) {
+
+        final VocabURIShortIV<BigdataURI> iv = getIV(index);
+
+        namespaces.add(namespace);
+
+        iv2ns.put(iv, namespace);
+
+        ns2iv.put(namespace, iv);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{size=" + size() + "}";
+
+    }
+
+}
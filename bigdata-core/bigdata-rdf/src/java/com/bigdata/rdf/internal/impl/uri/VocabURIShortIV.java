@@ -128,6 +128,23 @@ public class VocabURIShortIV<V extends BigdataURI> extends AbstractInlineIV<V, S
 			
 			v = (V) lex.getContainer().getVocabulary().asValue(this);
 			
+			if (v == null) {
+
+				/*
+				 * Not declared by the vocabulary. Check the namespaces which
+				 * were learned by the lexicon.
+				 */
+				
+				final String namespace = lex.getLearnedNamespace(this);
+
+				if (namespace == null)
+					throw new RuntimeException("Unknown vocabulary item: "
+							+ this);
+
+				v = (V) f.createURI(namespace);
+
+			}
+			
 			v.setIV(this);
 			
 			setValue(v);
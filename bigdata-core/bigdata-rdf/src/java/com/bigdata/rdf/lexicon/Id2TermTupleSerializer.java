@@ -37,12 +37,14 @@ import org.openrdf.model.Value;
 
 import com.bigdata.btree.DefaultTupleSerializer;
 import com.bigdata.btree.ITuple;
+import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.keys.ASCIIKeyBuilderFactory;
 import com.bigdata.btree.keys.IKeyBuilderFactory;
 import com.bigdata.btree.raba.codec.IRabaCoder;
 import com.bigdata.btree.raba.codec.SimpleRabaCoder;
 import com.bigdata.io.ByteArrayBuffer;
 import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.io.compression.SymbolTableCompressor;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.IVUtility;
 import com.bigdata.rdf.internal.impl.TermId;
@@ -97,6 +99,15 @@ public class Id2TermTupleSerializer extends DefaultTupleSerializer<IV, BigdataVa
 
     transient private BigdataValueFactory valueFactory;
 
+    /**
+     * The static symbol table used to compress the Unicode strings in the
+     * serialized {@link Value}s -or- <code>null</code> if they are not
+     * compressed.
+     * 
+     * @see #setSymbolTable(SymbolTableCompressor)
+     */
+    private SymbolTableCompressor symbolTable;
+
     /**
      * De-serialization ctor.
      */
@@ -140,6 +151,60 @@ public class Id2TermTupleSerializer extends DefaultTupleSerializer<IV, BigdataVa
         this.valueSer = this.valueFactory.getValueSerializer();
 
     }
+
+    /**
+     * The static symbol table used to compress the Unicode strings in the
+     * serialized {@link Value}s -or- <code>null</code> if they are not
+     * compressed.
+     */
+    public SymbolTableCompressor getSymbolTable() {
+
+        return symbolTable;
+
+    }
+
+    /**
+     * Set the static symbol table used to compress the Unicode strings in the
+     * serialized {@link Value}s. {@link Value}s serialized before the table
+     * was set remain readable, but the table can not be changed once it has
+     * been set since the {@link Value}s compressed with that table would
+     * become unreadable.
+     * <p>
+     * Note: This must be done on a copy of the tuple serializer which is then
+     * set on a new {@link IndexMetadata} for the index.
+     * 
+     * @param symbolTable
+     *            The symbol table.
+     * 
+     * @throws IllegalStateException
+     *             if the symbol table was already set.
+     */
+    public void setSymbolTable(final SymbolTableCompressor symbolTable) {
+
+        if (symbolTable == null)
+            throw new IllegalArgumentException();
+
+        if (this.symbolTable != null)
+            throw new IllegalStateException();
+
+        this.symbolTable = symbolTable;
+
+        this.valueSer = new BigdataValueSerializer<BigdataValue>(valueFactory,
+                symbolTable);
+
+    }
+
+    /**
+     * Return the (de-)serializer for the {@link Value}s stored in the index.
+     * This MUST be used to serialize the {@link Value}s written on the index
+     * and to de-serialize the {@link Value}s read from the index since it
+     * reflects the {@link #getSymbolTable() symbol table}.
+     */
+    public BigdataValueSerializer<BigdataValue> getValueSerializer() {
+
+        return valueSer;
+
+    }
     
     /**
      * Generates an unsigned byte[] key from a {@link TermId}.
@@ -228,18 +293,35 @@ public class Id2TermTupleSerializer extends DefaultTupleSerializer<IV, BigdataVa
      */
     private static final transient byte VERSION0 = 0;
 
-    private static final transient byte VERSION = VERSION0;
+    /**
+     * <pre>
+     * valueFactoryClass:UTF
+     * namespace:UTF
+     * hasSymbolTable:boolean
+     * symbolTable:SymbolTableCompressor (iff hasSymbolTable)
+     * </pre>
+     */
+    private static final transient byte VERSION1 = 1;
 
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
         super.readExternal(in);
         final byte version = in.readByte();
         final String namespace;
         final String valueFactoryClass;
+        SymbolTableCompressor symbolTable = null;
         switch (version) {
         case VERSION0:
             namespace = in.readUTF();
             valueFactoryClass = in.readUTF();
             break;
+        case VERSION1:
+            namespace = in.readUTF();
+            valueFactoryClass = in.readUTF();
+            if (in.readBoolean()) {
+                symbolTable = new SymbolTableCompressor();
+                symbolTable.readExternal(in);
+            }
+            break;
         default:
             throw new IOException("unknown version=" + version);
         }
@@ -265,13 +347,24 @@ public class Id2TermTupleSerializer extends DefaultTupleSerializer<IV, BigdataVa
             throw new IOException(e);
         }
         valueSer = this.valueFactory.getValueSerializer();
+        if (symbolTable != null) {
+            setSymbolTable(symbolTable);
+        }
     }
     
     public void writeExternal(final ObjectOutput out) throws IOException {
         super.writeExternal(out);
-        out.writeByte(VERSION);
+        /*
+         * Note: VERSION0 is still written when there is no symbol table so
+         * that the index metadata remains readable by older code.
+         */
+        out.writeByte(symbolTable == null ? VERSION0 : VERSION1);
         out.writeUTF(namespace);
         out.writeUTF(valueFactory.getClass().getName());
+        if (symbolTable != null) {
+            out.writeBoolean(true);
+            symbolTable.writeExternal(out);
+        }
     }
 
 }
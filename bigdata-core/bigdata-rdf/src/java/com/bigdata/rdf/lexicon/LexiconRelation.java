@@ -30,10 +30,12 @@ package com.bigdata.rdf.lexicon;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -59,12 +61,14 @@ import org.openrdf.model.Literal;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
+import org.openrdf.model.impl.URIImpl;
 
 import com.bigdata.bop.BOp;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IPredicate;
 import com.bigdata.bop.IVariableOrConstant;
 import com.bigdata.bop.ap.Predicate;
+import com.bigdata.btree.BTree;
 import com.bigdata.btree.IIndex;
 import com.bigdata.btree.IRangeQuery;
 import com.bigdata.btree.ITuple;
@@ -75,7 +79,12 @@ import com.bigdata.btree.filter.PrefixFilter;
 import com.bigdata.btree.filter.TupleFilter;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.KVO;
-import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.cache.ConcurrentTinyLFUCache;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.io.SerializerUtil;
+import com.bigdata.io.compression.SymbolTableCompressor;
+import com.bigdata.journal.AbstractJournal;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.IJournal;
 import com.bigdata.journal.IResourceLock;
@@ -90,6 +99,7 @@ import com.bigdata.rdf.internal.ILexiconConfiguration;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.IVUtility;
 import com.bigdata.rdf.internal.LexiconConfiguration;
+import com.bigdata.rdf.internal.NamespaceDictionary;
 import com.bigdata.rdf.internal.NoExtensionFactory;
 import com.bigdata.rdf.internal.NoInlineURIFactory;
 import com.bigdata.rdf.internal.NoSuchVocabularyItem;
@@ -124,6 +134,7 @@ import com.bigdata.relation.locator.IResourceLocator;
 import com.bigdata.search.FullTextIndex;
 import com.bigdata.service.IBigdataFederation;
 import com.bigdata.service.geospatial.GeoSpatialConfig;
+import com.bigdata.sparse.INameFilter;
 import com.bigdata.sparse.SparseRowStore;
 import com.bigdata.striterator.ChunkedArrayIterator;
 import com.bigdata.striterator.IChunkedOrderedIterator;
@@ -548,8 +559,8 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                  * Unshared for any other view of the triple store.
                  */
                 termCache = new TermCache<IV<?,?>, BigdataValue>(//
-                        new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
-                        termCacheCapacity, // queueCapacity
+                        new ConcurrentTinyLFUCache<IV<?,?>, BigdataValue>(//
+                        termCacheCapacity, // capacity
                         .75f, // loadFactor (.75 is the default)
                         16 // concurrency level (16 is the default)
                 ));
@@ -558,6 +569,68 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
             
         }
         
+        termIVCacheMaximumBytes = Long.parseLong(getProperty(
+                AbstractTripleStore.Options.TERM_IV_CACHE_MAXIMUM_BYTES,
+                AbstractTripleStore.Options.DEFAULT_TERM_IV_CACHE_MAXIMUM_BYTES));
+
+        if (termIVCacheMaximumBytes < 0)
+            throw new IllegalArgumentException(
+                    AbstractTripleStore.Options.TERM_IV_CACHE_MAXIMUM_BYTES
+                            + "=" + termIVCacheMaximumBytes);
+        
+        {
+
+            /*
+             * Note: Namespaces are only learned by the unisolated view of the
+             * lexicon on a Journal. Concurrent loaders in scale-out could
+             * otherwise assign the same index to different namespaces.
+             */
+            final boolean scaleOut = indexManager instanceof IBigdataFederation<?>
+                    && ((IBigdataFederation<?>) indexManager).isScaleOut();
+
+            learnURINamespaces = !scaleOut
+                    && timestamp == ITx.UNISOLATED
+                    && Boolean.parseBoolean(getProperty(
+                            AbstractTripleStore.Options.LEARN_URI_NAMESPACES,
+                            AbstractTripleStore.Options.DEFAULT_LEARN_URI_NAMESPACES));
+
+            learnURINamespacesMinFrequency = Integer.parseInt(getProperty(
+                    AbstractTripleStore.Options.LEARN_URI_NAMESPACES_MIN_FREQUENCY,
+                    AbstractTripleStore.Options.DEFAULT_LEARN_URI_NAMESPACES_MIN_FREQUENCY));
+
+            if (learnURINamespacesMinFrequency <= 0)
+                throw new IllegalArgumentException(
+                        AbstractTripleStore.Options.LEARN_URI_NAMESPACES_MIN_FREQUENCY
+                                + "=" + learnURINamespacesMinFrequency);
+
+            namespaceDictionary = new NamespaceDictionary();
+
+            readNamespaceDictionary();
+
+        }
+        
+        {
+
+            symbolTableTrainingThreshold = Long.parseLong(getProperty(
+                    AbstractTripleStore.Options.SYMBOL_TABLE_TRAINING_THRESHOLD,
+                    AbstractTripleStore.Options.DEFAULT_SYMBOL_TABLE_TRAINING_THRESHOLD));
+
+            if (symbolTableTrainingThreshold < 0)
+                throw new IllegalArgumentException(
+                        AbstractTripleStore.Options.SYMBOL_TABLE_TRAINING_THRESHOLD
+                                + "=" + symbolTableTrainingThreshold);
+
+            symbolTableSampleSize = Integer.parseInt(getProperty(
+                    AbstractTripleStore.Options.SYMBOL_TABLE_SAMPLE_SIZE,
+                    AbstractTripleStore.Options.DEFAULT_SYMBOL_TABLE_SAMPLE_SIZE));
+
+            if (symbolTableSampleSize <= 0)
+                throw new IllegalArgumentException(
+                        AbstractTripleStore.Options.SYMBOL_TABLE_SAMPLE_SIZE
+                                + "=" + symbolTableSampleSize);
+
+        }
+        
         {
             
             inlineLiterals = Boolean.parseBoolean(getProperty(
@@ -654,7 +727,8 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                     maxInlineTextLength, inlineBNodes, inlineDateTimes,
                     inlineDateTimesTimeZone,
                     rejectInvalidXSDValues, enableRawRecordsSupport, xFactory, 
-                    vocab, valueFactory, uriFactory, geoSpatial, geoSpatialConfig);
+                    vocab, valueFactory, uriFactory, geoSpatial, geoSpatialConfig,
+                    namespaceDictionary);
 
         }
         
@@ -833,6 +907,16 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
 
             termCache.clear();
             
+            final TermIVCache.View tmp = termIVCache;
+            
+            if (tmp != null) {
+            
+                tmp.clear();
+                
+                termIVCache = null;
+                
+            }
+            
             super.destroy();
 
         } finally {
@@ -1782,6 +1866,18 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
          * post-processed once the distinct BigdataValues have been resolved.
          */
 
+        if (!readOnly && learnURINamespaces) {
+
+            // Learn frequent namespaces before the URIs are written.
+            learnNamespaces(values, numTerms);
+
+        } else if (getTimestamp() == ITx.READ_COMMITTED) {
+
+            // Pick up any namespaces learned since the last commit.
+            readNamespaceDictionary();
+
+        }
+
         // Will be resolved against TERM2ID/ID2TERM.
         final LinkedHashMap<BigdataValue, BigdataValue> terms = new LinkedHashMap<BigdataValue, BigdataValue>(
                 numTerms);
@@ -1962,6 +2058,29 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
 
         }
         
+        if (!readOnly && symbolTableTrainingThreshold > 0 && !symbolTableTrained
+                && getTimestamp() == ITx.UNISOLATED
+                && getIndexManager() instanceof AbstractJournal) {
+
+            final Id2TermTupleSerializer tupleSer = (Id2TermTupleSerializer) getId2TermIndex()
+                    .getIndexMetadata().getTupleSerializer();
+
+            if (tupleSer.getSymbolTable() != null) {
+
+                /*
+                 * Note: An uncommitted symbol table is discarded by an abort,
+                 * after which it must be trained again.
+                 */
+                symbolTableTrained = isSymbolTableCommitted();
+
+            } else if (getId2TermIndex().rangeCount() >= symbolTableTrainingThreshold) {
+
+                trainSymbolTable(symbolTableSampleSize);
+
+            }
+
+        }
+        
         return stats.ndistinct.get();
         
     }
@@ -2054,7 +2173,7 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
             // write on the forward index (sync RPC)
             a = new Term2IdWriteTask(getTerm2IdIndex(), readOnly,
                     storeBlankNodes, termIdBitsToReverse, numTerms, terms,
-                    stats).call();
+                    stats, getTermIVCache()).call();
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -3056,14 +3175,514 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
         protected ITermCache<IV<?,?>, BigdataValue> newInstance(
                 NT key, Integer termCacheCapacity) {
             return new TermCache<IV<?,?>,BigdataValue>(//
-                    new ConcurrentWeakValueCacheWithBatchedUpdates<IV<?,?>, BigdataValue>(//
-                    termCacheCapacity.intValue(),// backing hard reference LRU queue capacity.
+                    new ConcurrentTinyLFUCache<IV<?,?>, BigdataValue>(//
+                    termCacheCapacity.intValue(),// capacity
                     .75f, // loadFactor (.75 is the default)
                     16 // concurrency level (16 is the default)
             ));
         }
     };
     
+    /**
+     * The maximum #of bytes for the {@link #termIVCache} and ZERO (0) if it is
+     * disabled.
+     * 
+     * @see AbstractTripleStore.Options#TERM_IV_CACHE_MAXIMUM_BYTES
+     */
+    private final long termIVCacheMaximumBytes;
+
+    /**
+     * The forward cache from the TERM2ID key of a {@link Value} to its
+     * {@link IV} (lazily initialized).
+     */
+    private volatile TermIVCache.View termIVCache;
+
+    /**
+     * Factory for the forward caches shared by the views of a lexicon. The
+     * cache is keyed by the {@link UUID} of the TERM2ID index so a lexicon
+     * which is destroyed and then re-created under the same namespace will
+     * not reuse the mappings of the old lexicon.
+     */
+    static private CanonicalFactory<UUID/* key */, TermIVCache, Long/* state */> termIVCacheFactory = new CanonicalFactory<UUID, TermIVCache, Long>(
+            10/* queueCapacity */) {
+        @Override
+        protected TermIVCache newInstance(UUID key, Long maximumBytes) {
+            return new TermIVCache(maximumBytes.longValue());
+        }
+    };
+
+    /**
+     * Return the forward cache for the TERM2ID index -or- <code>null</code>
+     * if the cache is disabled.
+     * <p>
+     * A read-only view of a commit point reads and writes on the cache
+     * shared by the views of the lexicon. Any other view reads on the shared
+     * cache, but its own writes are only entered into a cache local to this
+     * {@link LexiconRelation} instance. That instance is discarded if the
+     * write set is aborted (see {@link AbstractTripleStore#abort()}), so the
+     * term identifiers assigned by an aborted write set never leak into the
+     * shared cache.
+     * 
+     * @see AbstractTripleStore.Options#TERM_IV_CACHE_MAXIMUM_BYTES
+     */
+    public TermIVCache.View getTermIVCache() {
+
+        if (termIVCacheMaximumBytes == 0L)
+            return null;
+
+        TermIVCache.View tmp = termIVCache;
+
+        if (tmp == null) {
+
+            synchronized (this) {
+
+                if ((tmp = termIVCache) == null) {
+
+                    final UUID indexUUID = getTerm2IdIndex().getIndexMetadata()
+                            .getIndexUUID();
+
+                    final TermIVCache shared = termIVCacheFactory.getInstance(
+                            indexUUID, termIVCacheMaximumBytes);
+
+                    final Long commitTime = getCommitTime();
+
+                    if (commitTime != null
+                            && TimestampUtility.isReadOnly(getTimestamp())) {
+
+                        tmp = new TermIVCache.View(shared,
+                                commitTime.longValue(), null/* local */);
+
+                    } else {
+
+                        tmp = new TermIVCache.View(shared, Long.MAX_VALUE,
+                                new TermIVCache(termIVCacheMaximumBytes));
+
+                    }
+
+                    termIVCache = tmp;
+
+                }
+
+            }
+
+        }
+
+        return tmp;
+
+    }
+
+    /**
+     * Return the performance counters for the lexicon.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet counters = new CounterSet();
+
+        counters.addCounter("termCacheSize", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(termCache.size());
+            }
+        });
+
+        final TermIVCache.View tmp = getTermIVCache();
+
+        if (tmp != null)
+            counters.makePath("termIVCache").attach(tmp.getCounters());
+
+        return counters;
+
+    }
+
+    /**
+     * @see AbstractTripleStore.Options#SYMBOL_TABLE_TRAINING_THRESHOLD
+     */
+    private final long symbolTableTrainingThreshold;
+
+    /**
+     * @see AbstractTripleStore.Options#SYMBOL_TABLE_SAMPLE_SIZE
+     */
+    private final int symbolTableSampleSize;
+
+    /**
+     * Set once the ID2TERM index is known to have a symbol table as of the
+     * last commit point.
+     */
+    private volatile boolean symbolTableTrained = false;
+
+    /**
+     * Return <code>true</code> iff the ID2TERM index has a symbol table as of
+     * the last commit point of the {@link AbstractJournal}.
+     */
+    private boolean isSymbolTableCommitted() {
+
+        final AbstractJournal jnl = (AbstractJournal) getIndexManager();
+
+        final long lastCommitTime = jnl.getLastCommitTime();
+
+        if (lastCommitTime == 0L)
+            return false;
+
+        final IIndex ndx = jnl.getIndex(getFQN(LexiconKeyOrder.ID2TERM),
+                lastCommitTime);
+
+        if (ndx == null)
+            return false;
+
+        return ((Id2TermTupleSerializer) ndx.getIndexMetadata()
+                .getTupleSerializer()).getSymbolTable() != null;
+
+    }
+
+    /**
+     * Train a static symbol table on a sample of the {@link Value}s in the
+     * ID2TERM index and store it in the {@link IndexMetadata} of that index.
+     * {@link Value}s written on the index after this method returns are
+     * compressed using that table. The new {@link IndexMetadata} is made
+     * restart safe by the next commit and is discarded by an abort.
+     * <p>
+     * Note: This is only supported for the unisolated view of the lexicon on
+     * a {@link Journal}. The caller must have exclusive access to that view
+     * (as for any other write on the lexicon).
+     * 
+     * @param sampleSize
+     *            The maximum #of {@link Value}s to sample.
+     * 
+     * @return <code>true</code> iff a symbol table was trained and
+     *         <code>false</code> if the index already has a symbol table or is
+     *         empty.
+     * 
+     * @throws UnsupportedOperationException
+     *             if this is not the unisolated view of the lexicon on a
+     *             {@link Journal}.
+     * 
+     * @see AbstractTripleStore.Options#SYMBOL_TABLE_TRAINING_THRESHOLD
+     */
+    public boolean trainSymbolTable(final int sampleSize) {
+
+        if (sampleSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (getTimestamp() != ITx.UNISOLATED
+                || !(getIndexManager() instanceof AbstractJournal))
+            throw new UnsupportedOperationException();
+
+        final BTree btree = ((AbstractJournal) getIndexManager())
+                .getIndex(getFQN(LexiconKeyOrder.ID2TERM));
+
+        final IndexMetadata md = btree.getIndexMetadata();
+
+        final Id2TermTupleSerializer tupleSer = (Id2TermTupleSerializer) md
+                .getTupleSerializer();
+
+        if (tupleSer.getSymbolTable() != null) {
+
+            return false;
+
+        }
+
+        final long entryCount = btree.getEntryCount();
+
+        if (entryCount == 0L)
+            return false;
+
+        final long n = Math.min(sampleSize, entryCount);
+
+        final long step = entryCount / n;
+
+        final BigdataValueSerializer<BigdataValue> valueSer = tupleSer
+                .getValueSerializer();
+
+        // The UTF-8 encoded Unicode strings of the sampled Values.
+        final List<byte[]> sample = new LinkedList<byte[]>();
+
+        final Charset utf8 = Charset.forName("UTF-8");
+
+        for (long i = 0; i < n; i++) {
+
+            final byte[] val = btree.valueAt(i * step);
+
+            if (val == null)
+                continue;
+
+            final BigdataValue v = valueSer.deserialize(val);
+
+            if (v instanceof URI) {
+
+                sample.add(v.stringValue().getBytes(utf8));
+
+            } else if (v instanceof Literal) {
+
+                final Literal lit = (Literal) v;
+
+                sample.add(lit.getLabel().getBytes(utf8));
+
+                if (lit.getLanguage() != null)
+                    sample.add(lit.getLanguage().getBytes(utf8));
+
+                if (lit.getDatatype() != null)
+                    sample.add(lit.getDatatype().stringValue().getBytes(utf8));
+
+            } else if (v instanceof BNode) {
+
+                sample.add(((BNode) v).getID().getBytes(utf8));
+
+            }
+
+        }
+
+        final SymbolTableCompressor symbolTable = SymbolTableCompressor
+                .train(sample);
+
+        // Note: Set the table on a copy of the tuple serializer.
+        final Id2TermTupleSerializer newTupleSer = (Id2TermTupleSerializer) SerializerUtil
+                .deserialize(SerializerUtil.serialize(tupleSer));
+
+        newTupleSer.setSymbolTable(symbolTable);
+
+        final IndexMetadata newMetadata = md.clone();
+
+        newMetadata.setTupleSerializer(newTupleSer);
+
+        /*
+         * Note: symbolTableTrained is not set until the new metadata has been
+         * committed (see isSymbolTableCommitted()).
+         */
+        btree.setIndexMetadata(newMetadata);
+
+        if (log.isInfoEnabled())
+            log.info("Trained symbol table: namespace=" + getNamespace()
+                    + ", nsampled=" + sample.size() + ", " + symbolTable);
+
+        return true;
+
+    }
+
+    /**
+     * <code>true</code> iff this view will learn {@link URI} namespaces.
+     * 
+     * @see AbstractTripleStore.Options#LEARN_URI_NAMESPACES
+     */
+    private final boolean learnURINamespaces;
+
+    /**
+     * @see AbstractTripleStore.Options#LEARN_URI_NAMESPACES_MIN_FREQUENCY
+     */
+    private final int learnURINamespacesMinFrequency;
+
+    /**
+     * The dictionary of learned {@link URI} namespaces.
+     */
+    private final NamespaceDictionary namespaceDictionary;
+
+    /**
+     * Namespaces which were frequent but could not be learned because they
+     * are already used by some {@link URI} in the lexicon. This avoids
+     * repeating the check for those namespaces.
+     */
+    private final Set<String> usedNamespaces = Collections
+            .synchronizedSet(new HashSet<String>());
+
+    /**
+     * The maximum #of entries in {@link #usedNamespaces}.
+     */
+    private static final int MAX_USED_NAMESPACES = 10000;
+
+    /**
+     * Add the namespaces recorded in the global row store for this view of
+     * the lexicon to the {@link #namespaceDictionary}.
+     */
+    private void readNamespaceDictionary() {
+
+        final IIndexManager indexManager = getIndexManager();
+
+        final long timestamp = getTimestamp();
+
+        final Long commitTime = getCommitTime();
+
+        final SparseRowStore global;
+
+        if (timestamp == ITx.UNISOLATED) {
+
+            global = indexManager.getGlobalRowStore();
+
+        } else if (TimestampUtility.isReadOnly(timestamp)
+                && commitTime != null) {
+
+            global = indexManager.getGlobalRowStore(commitTime.longValue());
+
+        } else if (timestamp == ITx.READ_COMMITTED) {
+
+            global = indexManager.getGlobalRowStore(ITx.READ_COMMITTED);
+
+        } else {
+
+            global = indexManager.getGlobalRowStore();
+
+        }
+
+        if (global == null) {
+
+            // No global row store as of that timestamp.
+            return;
+
+        }
+
+        namespaceDictionary.load(global.read(RelationSchema.INSTANCE,
+                getNamespace(), new INameFilter() {
+                    private static final long serialVersionUID = 1L;
+                    @Override
+                    public boolean accept(final String name) {
+                        return name.startsWith(NamespaceDictionary.COLUMN_PREFIX);
+                    }
+                }));
+
+    }
+
+    /**
+     * Return the namespace for an {@link IV} assigned by the dictionary of
+     * learned {@link URI} namespaces -or- <code>null</code> if the {@link IV}
+     * is not known.
+     * 
+     * @see AbstractTripleStore.Options#LEARN_URI_NAMESPACES
+     */
+    public String getLearnedNamespace(final IV<?, ?> iv) {
+
+        String namespace = namespaceDictionary.getNamespace(iv);
+
+        if (namespace == null && getTimestamp() == ITx.READ_COMMITTED) {
+
+            // The namespace might have been learned since the last commit.
+            readNamespaceDictionary();
+
+            namespace = namespaceDictionary.getNamespace(iv);
+
+        }
+
+        return namespace;
+
+    }
+
+    /**
+     * Learn the frequent namespaces for the {@link URI}s in a batch of terms
+     * which is about to be written on the lexicon. A namespace is learned iff
+     * it occurs at least {@link #learnURINamespacesMinFrequency} times and
+     * there is no {@link URI} in that namespace in the TERM2ID index (the
+     * learned namespace would otherwise change the {@link IV} of those
+     * {@link URI}s). Each learned namespace is written on the row for the
+     * lexicon in the global row store, so it is made restart safe by the
+     * same commit as the terms and is discarded if that write set is
+     * aborted.
+     */
+    private void learnNamespaces(final BigdataValue[] values,
+            final int numTerms) {
+
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+        for (int i = 0; i < numTerms; i++) {
+
+            final BigdataValue v = values[i];
+
+            if (!(v instanceof URI) || v.isRealIV())
+                continue;
+
+            final URI uri = (URI) v;
+
+            final String localName = uri.getLocalName();
+
+            if (localName.length() == 0
+                    || localName.length() > NamespaceDictionary.MAX_LOCAL_NAME_LENGTH)
+                continue;
+
+            final String namespace = uri.getNamespace();
+
+            final Integer n = counts.get(namespace);
+
+            counts.put(namespace, n == null ? 1 : n.intValue() + 1);
+
+        }
+
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+
+            if (e.getValue().intValue() < learnURINamespacesMinFrequency)
+                continue;
+
+            final String namespace = e.getKey();
+
+            if (namespaceDictionary.contains(namespace)
+                    || usedNamespaces.contains(namespace))
+                continue;
+
+            if (namespaceDictionary.size() >= NamespaceDictionary.MAX_SIZE)
+                return;
+
+            if (getLexiconConfiguration().createInlineIV(
+                    new URIImpl(namespace + "x")) != null) {
+
+                /*
+                 * The URIs in this namespace are already inlined by the
+                 * configuration of the lexicon.
+                 */
+                usedNamespaces.add(namespace);
+
+                continue;
+
+            }
+
+            if (isNamespaceUsed(namespace)) {
+
+                if (usedNamespaces.size() >= MAX_USED_NAMESPACES)
+                    usedNamespaces.clear();
+
+                usedNamespaces.add(namespace);
+
+                continue;
+
+            }
+
+            final int index = namespaceDictionary.add(namespace);
+
+            final Map<String, Object> row = new HashMap<String, Object>();
+
+            row.put(RelationSchema.NAMESPACE, getNamespace());
+
+            row.put(NamespaceDictionary.getColumnName(index), namespace);
+
+            getIndexManager().getGlobalRowStore().write(
+                    RelationSchema.INSTANCE, row);
+
+            if (log.isInfoEnabled())
+                log.info("Learned namespace: index=" + index + ", namespace="
+                        + namespace + ", count=" + e.getValue());
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> if there may be a {@link URI} in the given
+     * namespace in the TERM2ID index. This uses a prefix scan with a PRIMARY
+     * strength key (see {@link PrefixFilter}) so it can report false
+     * positives (e.g., for a namespace which differs only in case) but not
+     * false negatives.
+     */
+    private boolean isNamespaceUsed(final String namespace) {
+
+        final IIndex ndx = getTerm2IdIndex();
+
+        final LexiconKeyBuilder keyBuilder = ((Term2IdTupleSerializer) ndx
+                .getIndexMetadata().getTupleSerializer())
+                .getLexiconPrimaryKeyBuilder();
+
+        final byte[] prefix = keyBuilder.value2Key(new URIImpl(namespace));
+
+        return ndx.rangeIterator(null/* fromKey */, null/* toKey */,
+                1/* capacity */, IRangeQuery.KEYS | IRangeQuery.CURSOR,
+                new PrefixFilter<BigdataValue>(new byte[][] { prefix }))
+                .hasNext();
+
+    }
+
     /**
      * Clear all term caches for the supplied namespace.
      */
@@ -3246,8 +3865,11 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
         if (data == null)
             return null;
 
-        // This also sets the value factory.
-        BigdataValue value = valueFactory.getValueSerializer().deserialize(data);
+        /*
+         * This also sets the value factory. The lexical form is decoded on
+         * demand from [data].
+         */
+        BigdataValue value = tupleSer.getValueSerializer().deserializeLazy(data);
         
         // This sets the term identifier.
         value.setIV(iv);
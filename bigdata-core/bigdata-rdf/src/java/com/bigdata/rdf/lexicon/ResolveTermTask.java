@@ -14,6 +14,7 @@ import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.impl.TermId;
 import com.bigdata.rdf.model.BigdataValue;
 import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueSerializer;
 
 /**
  * Task resolves a chunk of {@link TermIV}s against the
@@ -92,6 +93,11 @@ class ResolveTermTask implements Callable<Void> {
         {
 
             final IRaba vals = results.getValues();
+
+            // Reflects the symbol table (if any) used to compress the Values.
+            final BigdataValueSerializer<BigdataValue> valueSer = ((Id2TermTupleSerializer) ndx
+                    .getIndexMetadata().getTupleSerializer())
+                    .getValueSerializer();
             
             for (int i = fromIndex; i < toIndex; i++) {
 
@@ -110,9 +116,11 @@ class ResolveTermTask implements Callable<Void> {
                 /*
                  * Note: This automatically sets the valueFactory reference
                  * on the de-serialized value.
+                 * 
+                 * Note: The lexical form is decoded on demand from [data],
+                 * so result writers can copy its UTF-8 encoding directly.
                  */
-                BigdataValue value = valueFactory.getValueSerializer()
-                        .deserialize(data);
+                BigdataValue value = valueSer.deserializeLazy(data);
                 
                 // Set the term identifier.
                 value.setIV(tid);
@@ -72,7 +72,12 @@ public class ReverseIndexWriterTask implements Callable<Long> {
 
         this.idTermIndex = idTermIndex;
 
-        this.ser = valueFactory.getValueSerializer();
+        /*
+         * Note: The tuple serializer reflects the symbol table (if any) used
+         * to compress the Values stored in the index.
+         */
+        this.ser = ((Id2TermTupleSerializer) idTermIndex.getIndexMetadata()
+                .getTupleSerializer()).getValueSerializer();
 
         this.a = a;
 
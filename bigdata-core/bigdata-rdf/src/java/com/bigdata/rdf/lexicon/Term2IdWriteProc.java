@@ -36,6 +36,7 @@ import org.apache.log4j.Logger;
 
 import com.bigdata.btree.ICounter;
 import com.bigdata.btree.IIndex;
+import com.bigdata.btree.ILocalBTreeView;
 import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.btree.proc.AbstractKeyArrayIndexProcedure;
 import com.bigdata.btree.proc.AbstractKeyArrayIndexProcedureConstructor;
@@ -263,6 +264,53 @@ public class Term2IdWriteProc extends AbstractKeyArrayIndexProcedure<Result> imp
 
     }
 
+    /**
+     * Resolve the keys against a local index using a single pass over the
+     * B+Tree (see {@link ILocalBTreeView#lookup(byte[][], byte[][])}). This is
+     * only done when the keys are in strictly ascending order (which is how
+     * they are sent by {@link Term2IdWriteTask}). Since the keys are then
+     * distinct, the values found are not changed by the terms which are
+     * inserted once the keys have been resolved.
+     * 
+     * @param ndx
+     *            The terms index.
+     * @param keys
+     *            The keys.
+     * @param a
+     *            An array into which the keys will be copied.
+     * 
+     * @return The values found under the keys -or- <code>null</code> if the
+     *         keys must be looked up one at a time.
+     */
+    private byte[][] batchLookup(final IIndex ndx, final IRaba keys,
+            final byte[][] a) {
+
+        if (!(ndx instanceof ILocalBTreeView))
+            return null;
+
+        final int n = keys.size();
+
+        for (int i = 0; i < n; i++) {
+
+            a[i] = keys.get(i);
+
+            if (i > 0 && BytesUtil.compareBytes(a[i - 1], a[i]) >= 0) {
+
+                // Not ordered (or not distinct).
+                return null;
+
+            }
+
+        }
+
+        final byte[][] vals = new byte[n][];
+
+        ((ILocalBTreeView) ndx).lookup(a, vals);
+
+        return vals;
+
+    }
+
     /**
      * For each term whose serialized key is mapped to the current index
      * partition, lookup the term in the <em>terms</em> index. If it is there
@@ -308,6 +356,15 @@ public class Term2IdWriteProc extends AbstractKeyArrayIndexProcedure<Result> imp
         
 //        final DataOutputBuffer kbuf = new DataOutputBuffer(128);
 
+        /*
+         * The keys and the values already in the index under those keys when
+         * they were resolved in a single pass over a local index and otherwise
+         * null.
+         */
+        final byte[][] a = new byte[numTerms][];
+
+        final byte[][] found = batchLookup(ndx, keys, a);
+
         // #of new terms (#of writes on the index).
         int nnew = 0;
         for (int i = 0; i < numTerms; i++) {
@@ -315,7 +372,7 @@ public class Term2IdWriteProc extends AbstractKeyArrayIndexProcedure<Result> imp
             // Note: Copying the key into a buffer does not help since we need
             // it in its own byte[] to do lookup against the index.
 //          getKeys().copy(i, kbuf.reset());
-            final byte[] key = keys.get(i);
+            final byte[] key = found == null ? keys.get(i) : a[i];
 
             // this byte encodes the kind of term (URI, Literal, BNode, etc.)
             final byte code = key[0];//KeyBuilder.decodeByte(key[0]);
@@ -367,7 +424,7 @@ public class Term2IdWriteProc extends AbstractKeyArrayIndexProcedure<Result> imp
                  * @todo reuse Tuple for lookups to reduce allocation (will
                  * reuse an internal buffer).
                  */
-                final byte[] tmp = ndx.lookup(key);
+                final byte[] tmp = found == null ? ndx.lookup(key) : found[i];
     
                 if (tmp == null) {
 
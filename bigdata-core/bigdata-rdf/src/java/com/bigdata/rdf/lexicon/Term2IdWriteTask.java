@@ -29,6 +29,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.openrdf.model.BNode;
 
 import com.bigdata.btree.IIndex;
 import com.bigdata.btree.keys.KVO;
@@ -59,12 +60,29 @@ public class Term2IdWriteTask implements
     private final int numTerms;
     private final BigdataValue[] terms;
     private final WriteTaskStats stats;
+    private final TermIVCache.View cache;
     
     public Term2IdWriteTask(final IIndex termIdIndex, final boolean readOnly,
             final boolean storeBlankNodes, final int termIdBitsToReverse,
             final int numTerms, final BigdataValue[] terms,
             final WriteTaskStats stats) {
 
+        this(termIdIndex, readOnly, storeBlankNodes, termIdBitsToReverse,
+                numTerms, terms, stats, null/* cache */);
+
+    }
+
+    /**
+     * @param cache
+     *            The forward cache for the TERM2ID index (optional). Terms
+     *            found in the cache are not submitted to the index and the
+     *            terms resolved against the index are entered into the cache.
+     */
+    public Term2IdWriteTask(final IIndex termIdIndex, final boolean readOnly,
+            final boolean storeBlankNodes, final int termIdBitsToReverse,
+            final int numTerms, final BigdataValue[] terms,
+            final WriteTaskStats stats, final TermIVCache.View cache) {
+
         if (termIdIndex == null)
             throw new IllegalArgumentException();
 
@@ -93,6 +111,8 @@ public class Term2IdWriteTask implements
         
         this.stats = stats;
         
+        this.cache = cache;
+        
     }
     
     /**
@@ -101,7 +121,8 @@ public class Term2IdWriteTask implements
      * 
      * @return A dense {@link KVO}[] chunk consisting of only those
      *         distinct terms whose term identifier was not already known.
-     *         (This may be used to write on the reverse index).
+     *         (This may be used to write on the reverse index). Terms
+     *         resolved from the forward cache are not included.
      * 
      * @throws Exception
      */
@@ -209,6 +230,24 @@ public class Term2IdWriteTask implements
                             
                         }
 
+                        if (cache != null && isCacheable(b[i].obj)) {
+
+                            @SuppressWarnings("rawtypes")
+                            final IV iv = cache.get(b[i].key);
+
+                            if (iv != null) {
+
+                                // term identifier known to the cache.
+                                assignIV(b[i], iv);
+
+                                stats.ncacheHits.increment();
+
+                                continue;
+
+                            }
+
+                        }
+
                         // assign to a[] (dense variant of b[]).
                         a[ndistinct] = b[i];
                         
@@ -245,6 +284,22 @@ public class Term2IdWriteTask implements
                         .currentTimeMillis()
                         - _begin);
 
+                if (cache != null) {
+
+                    for (int i = 0; i < ndistinct; i++) {
+
+                        final IV<?, ?> iv = a[i].obj.getIV();
+
+                        if (iv != null && isCacheable(a[i].obj)) {
+
+                            cache.put(a[i].key, iv);
+
+                        }
+
+                    }
+
+                }
+
             }
 
         }
@@ -255,6 +310,39 @@ public class Term2IdWriteTask implements
         
     } // call
 
+    /**
+     * Return <code>true</code> unless the value is a blank node which is not
+     * stored in the TERM2ID index (each such blank node is assigned a distinct
+     * term identifier).
+     */
+    private boolean isCacheable(final BigdataValue value) {
+
+        return storeBlankNodes || !(value instanceof BNode);
+
+    }
+
+    /**
+     * Assign the term identifier to the value and its duplicates (if any).
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static private void assignIV(final KVO<BigdataValue> kvo, final IV iv) {
+
+        kvo.obj.setIV(iv);
+
+        if (kvo instanceof KVOList) {
+
+            final KVOList<BigdataValue> tmp = (KVOList<BigdataValue>) kvo;
+
+            if (!tmp.isDuplicateListEmpty()) {
+
+                tmp.map(new AssignTermId(iv));
+
+            }
+
+        }
+
+    }
+
     /**
      * Class applies the term identifiers assigned by the
      * {@link Term2IdWriteProc} to the {@link BigdataValue} references in the
@@ -27,21 +27,25 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.lexicon;
 
-import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.cache.ConcurrentTinyLFUCache;
+import com.bigdata.cache.IConcurrentWeakValueCache;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.model.BigdataValue;
 
 /**
+ * An {@link ITermCache} backed by an {@link IConcurrentWeakValueCache}. The
+ * lexicon uses a {@link ConcurrentTinyLFUCache}, which holds its values by hard
+ * references and is bounded by its capacity.
+ * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  * @version $Id$
  */
 public class TermCache<K extends IV<?, ?>, V extends BigdataValue> implements
         ITermCache<K, V> {
 
-    private final ConcurrentWeakValueCacheWithBatchedUpdates<IV<?, ?>, V> delegate;
+    private final IConcurrentWeakValueCache<IV<?, ?>, V> delegate;
 
-    public TermCache(
-            final ConcurrentWeakValueCacheWithBatchedUpdates<IV<?, ?>, V> delegate) {
+    public TermCache(final IConcurrentWeakValueCache<IV<?, ?>, V> delegate) {
 
         if (delegate == null)
             throw new IllegalArgumentException();
@@ -92,6 +96,8 @@ public class TermCache<K extends IV<?, ?>, V extends BigdataValue> implements
          * Note: If the key has a hard reference to the value then the value can
          * never become only weakly reachable. That turns the term cache into a
          * a memory leak! This is why we break the IV.cache reference here.
+         * (This does not matter for a delegate which holds its values by hard
+         * references, but it is cheap and keeps the entries small.)
          * 
          * Note: We do not need to break the cache reference for the vocabulary
          * IVs. They are already pinned by a hard reference and hence will never
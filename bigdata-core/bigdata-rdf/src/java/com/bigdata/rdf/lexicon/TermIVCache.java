@@ -0,0 +1,567 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rdf.lexicon;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.rdf.internal.IV;
+
+/**
+ * A bounded, concurrent forward cache from the TERM2ID sort key of an RDF
+ * {@link org.openrdf.model.Value} to the {@link IV} assigned to that value. The
+ * cache is consulted by the {@link Term2IdWriteTask} before it submits the
+ * keys to the TERM2ID index, so it serves both the bulk loaders and the
+ * resolution of the constants in a query.
+ * <p>
+ * The capacity of the cache is expressed in bytes. Each entry is charged for
+ * its key, its {@link IV} and a fixed per-entry overhead. Entries are evicted
+ * in insertion order, but an entry which was used since it was inserted is
+ * given a second chance (CLOCK).
+ * <p>
+ * The TERM2ID index is append only, so a mapping which exists in some commit
+ * point also exists in every later commit point. Each entry is tagged with the
+ * commit time of a commit point in which the mapping is known to exist and is
+ * only visible to readers whose commit time is GTE that tag. Mappings which
+ * were assigned by an unisolated write set are NOT committed and must never be
+ * entered into a cache which is shared with other views of the lexicon. See
+ * {@link View}.
+ */
+public class TermIVCache {
+
+    /**
+     * The #of bytes charged for each entry in addition to its key and
+     * {@link IV}.
+     */
+    static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * The maximum #of bytes charged against the cache.
+     */
+    private final long maximumBytes;
+
+    /**
+     * The entries in the cache.
+     */
+    private final ConcurrentHashMap<Key, Entry> map;
+
+    /**
+     * The entries in insertion order. This may contain entries which were
+     * since replaced in or evicted from the {@link #map}.
+     */
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+
+    /**
+     * The #of bytes charged against the cache.
+     */
+    private final AtomicLong bytesInUse = new AtomicLong();
+
+    /**
+     * The #of entries evicted from the cache.
+     */
+    private final CAT evictionCount = new CAT();
+
+    /**
+     * @param maximumBytes
+     *            The maximum #of bytes charged against the cache.
+     */
+    public TermIVCache(final long maximumBytes) {
+
+        if (maximumBytes <= 0)
+            throw new IllegalArgumentException();
+
+        this.maximumBytes = maximumBytes;
+
+        this.map = new ConcurrentHashMap<Key, Entry>();
+
+    }
+
+    /**
+     * The #of entries in the cache.
+     */
+    public int size() {
+
+        return map.size();
+
+    }
+
+    /**
+     * The #of bytes charged against the cache.
+     */
+    public long getBytesInUse() {
+
+        return bytesInUse.get();
+
+    }
+
+    /**
+     * The maximum #of bytes charged against the cache.
+     */
+    public long getMaximumBytes() {
+
+        return maximumBytes;
+
+    }
+
+    /**
+     * The #of entries evicted from the cache.
+     */
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+
+    }
+
+    /**
+     * Discard all entries.
+     */
+    public void clear() {
+
+        map.clear();
+
+        queue.clear();
+
+        bytesInUse.set(0L);
+
+    }
+
+    /**
+     * Return the {@link IV} for the key if the mapping is visible at the given
+     * commit time.
+     *
+     * @param key
+     *            The TERM2ID sort key.
+     * @param readTime
+     *            The commit time of the reader -or- {@link Long#MAX_VALUE} for
+     *            a reader which sees the most recent commit point.
+     *
+     * @return The {@link IV} -or- <code>null</code> if there is no visible
+     *         mapping for the key.
+     */
+    public IV<?, ?> get(final byte[] key, final long readTime) {
+
+        final Entry e = map.get(new Key(key));
+
+        if (e == null || e.commitTime > readTime)
+            return null;
+
+        e.referenced = true;
+
+        /*
+         * Note: The caller will typically set the IV on a BigdataValue, which
+         * can cause the value to be cached on the IV. We return a clone so the
+         * cached IV never has a hard reference to a BigdataValue.
+         */
+        return e.iv.clone(true/* clearCache */);
+
+    }
+
+    /**
+     * Enter a mapping into the cache. If the mapping is already present with a
+     * later commit time then it is replaced so that it becomes visible to more
+     * readers.
+     *
+     * @param key
+     *            The TERM2ID sort key.
+     * @param iv
+     *            The {@link IV} assigned to the key.
+     * @param commitTime
+     *            The commit time of a commit point in which the mapping
+     *            exists.
+     */
+    public void put(final byte[] key, final IV<?, ?> iv, final long commitTime) {
+
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        if (iv == null)
+            throw new IllegalArgumentException();
+
+        final Key k = new Key(key);
+
+        final Entry e = new Entry(k, iv.clone(true/* clearCache */),
+                commitTime);
+
+        final Entry old = map.putIfAbsent(k, e);
+
+        if (old == null) {
+
+            queue.add(e);
+
+            bytesInUse.addAndGet(e.bytes);
+
+        } else if (commitTime < old.commitTime && map.replace(k, old, e)) {
+
+            /*
+             * Note: The old entry remains in the queue and will be discarded
+             * when it is polled since it is no longer in the map.
+             */
+
+            queue.add(e);
+
+            bytesInUse.addAndGet(e.bytes - old.bytes);
+
+        } else {
+
+            return;
+
+        }
+
+        evict();
+
+    }
+
+    /**
+     * Evict entries until the bytes in use are within the maximum. An entry
+     * which was used since it was last examined is moved to the end of the
+     * queue.
+     */
+    private void evict() {
+
+        // Bound the work in case the entries are being used concurrently.
+        int budget = 2 * map.size() + 1;
+
+        while (bytesInUse.get() > maximumBytes && budget-- > 0) {
+
+            final Entry e = queue.poll();
+
+            if (e == null)
+                break;
+
+            if (e.referenced) {
+
+                // Second chance.
+                e.referenced = false;
+
+                queue.add(e);
+
+                continue;
+
+            }
+
+            if (map.remove(e.key, e)) {
+
+                bytesInUse.addAndGet(-e.bytes);
+
+                evictionCount.increment();
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Wraps a byte[] key for use in a hash map.
+     */
+    private static class Key {
+
+        private final byte[] key;
+
+        private final int hash;
+
+        Key(final byte[] key) {
+
+            if (key == null)
+                throw new IllegalArgumentException();
+
+            this.key = key;
+
+            this.hash = Arrays.hashCode(key);
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key t = (Key) o;
+
+            return hash == t.hash && Arrays.equals(key, t.key);
+
+        }
+
+    }
+
+    /**
+     * An entry in the cache.
+     */
+    private static class Entry {
+
+        final Key key;
+
+        final IV<?, ?> iv;
+
+        final long commitTime;
+
+        final int bytes;
+
+        /**
+         * Set when the entry is used and cleared when it is examined for
+         * eviction.
+         */
+        volatile boolean referenced = false;
+
+        Entry(final Key key, final IV<?, ?> iv, final long commitTime) {
+
+            this.key = key;
+
+            this.iv = iv;
+
+            this.commitTime = commitTime;
+
+            this.bytes = key.key.length + iv.byteLength() + ENTRY_OVERHEAD;
+
+        }
+
+    }
+
+    /**
+     * The view of the forward cache used by a {@link LexiconRelation}.
+     * <p>
+     * A read-only view of a commit point reads and writes on the shared cache
+     * for the lexicon using the commit time of its commit point.
+     * <p>
+     * Any other view (unisolated, read-committed, etc.) reads on the shared
+     * cache, since every committed mapping is visible to it, but only writes on
+     * a local cache. The local cache is discarded with the view. Since the
+     * {@link LexiconRelation} is discarded when the write set is aborted,
+     * mappings assigned by an aborted write set can not be observed.
+     */
+    public static class View {
+
+        /**
+         * The cache shared by the views of the lexicon.
+         */
+        private final TermIVCache shared;
+
+        /**
+         * The commit time of the view -or- {@link Long#MAX_VALUE} if the view
+         * reads on the most recent commit point.
+         */
+        private final long readTime;
+
+        /**
+         * The cache for the mappings observed by this view which are not known
+         * to be committed -or- <code>null</code> for a read-only view of a
+         * commit point.
+         */
+        private final TermIVCache local;
+
+        private final CAT hitCount = new CAT();
+
+        private final CAT missCount = new CAT();
+
+        /**
+         * @param shared
+         *            The cache shared by the views of the lexicon.
+         * @param readTime
+         *            The commit time of the view -or- {@link Long#MAX_VALUE}
+         *            if the view reads on the most recent commit point.
+         * @param local
+         *            The cache for mappings which are not known to be committed
+         *            -or- <code>null</code> iff the view reads on a commit
+         *            point.
+         */
+        public View(final TermIVCache shared, final long readTime,
+                final TermIVCache local) {
+
+            if (shared == null)
+                throw new IllegalArgumentException();
+
+            if ((local == null) == (readTime == Long.MAX_VALUE))
+                throw new IllegalArgumentException();
+
+            this.shared = shared;
+
+            this.readTime = readTime;
+
+            this.local = local;
+
+        }
+
+        /**
+         * Return the {@link IV} for the TERM2ID key -or- <code>null</code> if
+         * the mapping is not in the cache.
+         */
+        public IV<?, ?> get(final byte[] key) {
+
+            IV<?, ?> iv = null;
+
+            if (local != null)
+                iv = local.get(key, readTime);
+
+            if (iv == null)
+                iv = shared.get(key, readTime);
+
+            if (iv == null)
+                missCount.increment();
+            else
+                hitCount.increment();
+
+            return iv;
+
+        }
+
+        /**
+         * Enter a mapping which was read from or written on the TERM2ID index
+         * by this view.
+         */
+        public void put(final byte[] key, final IV<?, ?> iv) {
+
+            if (local != null)
+                local.put(key, iv, 0L/* commitTime */);
+            else
+                shared.put(key, iv, readTime);
+
+        }
+
+        /**
+         * Discard the entries in the local and shared caches.
+         */
+        public void clear() {
+
+            if (local != null)
+                local.clear();
+
+            shared.clear();
+
+        }
+
+        public long getHitCount() {
+
+            return hitCount.get();
+
+        }
+
+        public long getMissCount() {
+
+            return missCount.get();
+
+        }
+
+        /**
+         * Reports the hits and misses for this view and the size of the
+         * caches.
+         */
+        public CounterSet getCounters() {
+
+            final CounterSet counters = new CounterSet();
+
+            counters.addCounter("readTime", new OneShotInstrument<Long>(
+                    readTime));
+
+            counters.addCounter("hitCount", new Instrument<Long>() {
+                @Override
+                public void sample() {
+                    setValue(hitCount.get());
+                }
+            });
+
+            counters.addCounter("missCount", new Instrument<Long>() {
+                @Override
+                public void sample() {
+                    setValue(missCount.get());
+                }
+            });
+
+            counters.addCounter("hitRatio", new Instrument<Double>() {
+                @Override
+                public void sample() {
+                    final long hits = hitCount.get();
+                    final long n = hits + missCount.get();
+                    setValue(n == 0 ? 0d : hits / (double) n);
+                }
+            });
+
+            addCacheCounters(counters.makePath("shared"), shared);
+
+            if (local != null)
+                addCacheCounters(counters.makePath("local"), local);
+
+            return counters;
+
+        }
+
+        private static void addCacheCounters(final CounterSet counters,
+                final TermIVCache cache) {
+
+            counters.addCounter("size", new Instrument<Integer>() {
+                @Override
+                public void sample() {
+                    setValue(cache.size());
+                }
+            });
+
+            counters.addCounter("bytesInUse", new Instrument<Long>() {
+                @Override
+                public void sample() {
+                    setValue(cache.getBytesInUse());
+                }
+            });
+
+            counters.addCounter("maximumBytes", new OneShotInstrument<Long>(
+                    cache.getMaximumBytes()));
+
+            counters.addCounter("evictionCount", new Instrument<Long>() {
+                @Override
+                public void sample() {
+                    setValue(cache.getEvictionCount());
+                }
+            });
+
+        }
+
+        @Override
+        public String toString() {
+
+            return getClass().getName() + "{readTime=" + readTime
+                    + ",hitCount=" + hitCount + ",missCount=" + missCount
+                    + ",sharedSize=" + shared.size() + ",localSize="
+                    + (local == null ? "N/A" : "" + local.size()) + "}";
+
+        }
+
+    }
+
+}
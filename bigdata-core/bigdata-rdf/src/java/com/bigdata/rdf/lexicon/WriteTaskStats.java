@@ -16,9 +16,13 @@ public class WriteTaskStats {
     /**
      * The #of distinct terms lacking a pre-assigned term identifier. If writes
      * were permitted, then this is also the #of terms written onto the index.
+     * This does not include the terms resolved by the forward cache.
      */
     final AtomicLong ndistinct = new AtomicLong();
 
+    /** The #of terms whose term identifier was found in the forward cache. */
+    final CAT ncacheHits = new CAT();
+
     /** time to convert unicode terms to byte[] sort keys. */
     final CAT keyGenTime = new CAT();
 
@@ -53,6 +57,7 @@ public class WriteTaskStats {
     	final StringBuilder sb = new StringBuilder();
         sb.append(getClass().getSimpleName());
         sb.append("{ndistinct=" + ndistinct);
+        sb.append(",ncacheHits=" + ncacheHits);
         sb.append(",keyGenTime=" + keyGenTime + "ms");
         sb.append(",keySortTime=" + keySortTime + "ms");
         sb.append(",indexTime=" + indexTime + "ms");
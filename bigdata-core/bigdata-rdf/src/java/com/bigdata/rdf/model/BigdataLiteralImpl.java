@@ -68,7 +68,18 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
      */
     private static final long serialVersionUID = 2301819664179569810L;
 
-    private final String label;
+    /**
+     * The label (lazily decoded from {@link #utf8} when the literal was
+     * materialized from the lexicon).
+     */
+    private String label;
+    /**
+     * The UTF-8 encoding of the label if the literal was materialized from
+     * the lexicon and has not yet been decoded -or- <code>null</code>. The
+     * reference is cleared once {@link #label} is set so that the literal
+     * does not pin the backing record.
+     */
+    private transient volatile EncodedUTF8 utf8;
     private final String language;
     private final BigdataURI datatype;
 
@@ -88,6 +99,8 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
         
         this.label = label;
         
+        this.utf8 = null;
+        
         // force to lowercase (Sesame does this too).
         this.language = (language != null ? language.toLowerCase().intern() : null);
 //        this.language = language;
@@ -96,6 +109,40 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
         
     }
 
+    /**
+     * Used by {@link BigdataValueFactoryImpl} for a literal whose label is
+     * decoded on demand from its UTF-8 encoding.
+     */
+    BigdataLiteralImpl(final BigdataValueFactory valueFactory,
+            final EncodedUTF8 label, final String language,
+            final BigdataURI datatype) {
+
+        super(valueFactory, null);
+
+        if (label == null)
+            throw new IllegalArgumentException();
+
+        if (language != null && datatype != null)
+            throw new IllegalArgumentException();
+
+        this.label = null;
+
+        this.utf8 = label;
+
+        // force to lowercase (Sesame does this too).
+        this.language = (language != null ? language.toLowerCase().intern() : null);
+
+        this.datatype = datatype;
+
+    }
+
+    @Override
+    public EncodedUTF8 getEncodedUTF8() {
+
+        return utf8;
+
+    }
+
     @Override
     public String toString() {
 
@@ -103,7 +150,7 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
 
         sb.append('\"');
         
-        sb.append(label);
+        sb.append(getLabel());
         
         sb.append('\"');
 
@@ -130,14 +177,40 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
     @Override
     public String stringValue() {
        
-        return label;
+        return getLabel();
         
     }
 
     @Override
     final public String getLabel() {
 
-        return label;
+        String s = label;
+
+        if (s == null) {
+
+            final EncodedUTF8 t = utf8;
+
+            if (t == null) {
+
+                /*
+                 * Decoded by another thread. The volatile read of [utf8]
+                 * happens-after the write of [label].
+                 */
+                return label;
+
+            }
+
+            /*
+             * Note: Decoding is idempotent and String is immutable, so a
+             * race between threads is benign.
+             */
+            label = s = t.decode();
+
+            utf8 = null;
+
+        }
+
+        return s;
         
     }
 
@@ -157,7 +230,7 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
 
     final public int hashCode() {
         
-        return label.hashCode();
+        return getLabel().hashCode();
         
     }
     
@@ -187,7 +260,7 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
 
         }
         
-        if (!label.equals(o.getLabel()))
+        if (!getLabel().equals(o.getLabel()))
             return false;
 
         if (language != null) {
@@ -222,70 +295,82 @@ public class BigdataLiteralImpl extends BigdataValueImpl implements
     @Override
     final public boolean booleanValue() {
 
-        return XMLDatatypeUtil.parseBoolean(label);
+        return XMLDatatypeUtil.parseBoolean(getLabel());
 
     }
 
     @Override
     final public byte byteValue() {
 
-        return XMLDatatypeUtil.parseByte(label);
+        return XMLDatatypeUtil.parseByte(getLabel());
 
     }
 
     @Override
     final public short shortValue() {
 
-        return XMLDatatypeUtil.parseShort(label);
+        return XMLDatatypeUtil.parseShort(getLabel());
 
     }
 
     @Override
     final public int intValue() {
 
-        return XMLDatatypeUtil.parseInt(label);
+        return XMLDatatypeUtil.parseInt(getLabel());
 
     }
 
     @Override
     final public long longValue() {
 
-        return XMLDatatypeUtil.parseLong(label);
+        return XMLDatatypeUtil.parseLong(getLabel());
 
     }
 
     @Override
     final public float floatValue() {
 
-        return XMLDatatypeUtil.parseFloat(label);
+        return XMLDatatypeUtil.parseFloat(getLabel());
 
     }
 
     @Override
     final public double doubleValue() {
 
-        return XMLDatatypeUtil.parseDouble(label);
+        return XMLDatatypeUtil.parseDouble(getLabel());
 
     }
 
     @Override
     final public BigInteger integerValue() {
 
-        return XMLDatatypeUtil.parseInteger(label);
+        return XMLDatatypeUtil.parseInteger(getLabel());
 
     }
 
     @Override
     final public BigDecimal decimalValue() {
 
-        return XMLDatatypeUtil.parseDecimal(label);
+        return XMLDatatypeUtil.parseDecimal(getLabel());
 
     }
 
     @Override
     final public XMLGregorianCalendar calendarValue() {
 
-        return XMLDatatypeUtil.parseCalendar(label);
+        return XMLDatatypeUtil.parseCalendar(getLabel());
+
+    }
+
+    /**
+     * Decodes the label (if necessary) before it is written.
+     */
+    private void writeObject(final java.io.ObjectOutputStream out)
+            throws java.io.IOException {
+
+        getLabel();
+
+        out.defaultWriteObject();
 
     }
 
@@ -63,7 +63,19 @@ public class BigdataURIImpl extends BigdataResourceImpl implements BigdataURI {
      */
     private static final long serialVersionUID = 3018590380571802474L;
     
-    private final String uriString;
+    /**
+     * The URI (lazily decoded from {@link #utf8} when the URI was materialized
+     * from the lexicon).
+     */
+    private String uriString;
+    
+    /**
+     * The UTF-8 encoding of the URI if it was materialized from the lexicon
+     * and has not yet been decoded -or- <code>null</code>. The reference is
+     * cleared once {@link #uriString} is set so that the value does not pin
+     * the backing record.
+     */
+    private transient volatile EncodedUTF8 utf8;
     
     /** lazily assigned. */
     private int indexOf = -1;
@@ -93,30 +105,57 @@ public class BigdataURIImpl extends BigdataResourceImpl implements BigdataURI {
         
         this.uriString = uriString;
         
+        this.utf8 = null;
+        
+    }
+
+    /**
+     * Used by {@link BigdataValueFactoryImpl} for a URI which is decoded on
+     * demand from its UTF-8 encoding.
+     */
+    BigdataURIImpl(final BigdataValueFactory valueFactory,
+            final EncodedUTF8 utf8) {
+
+        super(valueFactory, null);
+
+        if (utf8 == null)
+            throw new IllegalArgumentException();
+
+        this.uriString = null;
+        
+        this.utf8 = utf8;
+        
     }
 
     public String toString() {
         
-        return uriString;
+        return stringValue();
         
     }
+
+    @Override
+    public EncodedUTF8 getEncodedUTF8() {
+
+        return utf8;
+
+    }
     
     public String getNamespace() {
         
         if (indexOf == -1) {
             
-            indexOf = URIUtil.getLocalNameIndex(uriString);
+            indexOf = URIUtil.getLocalNameIndex(stringValue());
             
         }
 
-        return uriString.substring(0, indexOf);
+        return stringValue().substring(0, indexOf);
     }
 
     public int getNamespaceLength() {
     	
     	if(indexOf == -1) {
     	
-    		indexOf = URIUtil.getLocalNameIndex(uriString);
+    		indexOf = URIUtil.getLocalNameIndex(stringValue());
     		
     	}
     	
@@ -128,11 +167,11 @@ public class BigdataURIImpl extends BigdataResourceImpl implements BigdataURI {
     	
     	if(indexOf == -1) {
         	
-    		indexOf = URIUtil.getLocalNameIndex(uriString);
+    		indexOf = URIUtil.getLocalNameIndex(stringValue());
     		
     	}
     	
-		return uriString.length() - (indexOf + 1);
+		return stringValue().length() - (indexOf + 1);
     	
     }
     
@@ -140,17 +179,43 @@ public class BigdataURIImpl extends BigdataResourceImpl implements BigdataURI {
         
         if (indexOf == -1) {
             
-            indexOf = URIUtil.getLocalNameIndex(uriString);
+            indexOf = URIUtil.getLocalNameIndex(stringValue());
             
         }
 
-        return uriString.substring(indexOf);
+        return stringValue().substring(indexOf);
         
     }
 
     public String stringValue() {
 
-        return uriString;
+        String s = uriString;
+
+        if (s == null) {
+
+            final EncodedUTF8 t = utf8;
+
+            if (t == null) {
+
+                /*
+                 * Decoded by another thread. The volatile read of [utf8]
+                 * happens-after the write of [uriString].
+                 */
+                return uriString;
+
+            }
+
+            /*
+             * Note: Decoding is idempotent and String is immutable, so a
+             * race between threads is benign.
+             */
+            uriString = s = t.decode();
+
+            utf8 = null;
+
+        }
+
+        return s;
         
     }
 
@@ -182,14 +247,26 @@ public class BigdataURIImpl extends BigdataResourceImpl implements BigdataURI {
 
         }
 
-		return uriString.equals(o.stringValue());
+		return stringValue().equals(o.stringValue());
 
     }
 
     final public int hashCode() {
         
-        return uriString.hashCode();
+        return stringValue().hashCode();
         
     }
     
+    /**
+     * Decodes the URI (if necessary) before it is written.
+     */
+    private void writeObject(final java.io.ObjectOutputStream out)
+            throws java.io.IOException {
+
+        stringValue();
+
+        out.defaultWriteObject();
+
+    }
+
 }
@@ -589,6 +589,41 @@ public class BigdataValueFactoryImpl implements BigdataValueFactory {
 
     }
 
+    /**
+     * Create a URI which is decoded on demand from its UTF-8 encoding. This is
+     * used by the {@link BigdataValueSerializer} to materialize URIs from the
+     * lexicon.
+     * 
+     * @param utf8
+     *            The UTF-8 encoding of the URI (the caller MUST NOT modify the
+     *            backing array).
+     */
+    BigdataURIImpl createURI(final EncodedUTF8 utf8) {
+
+        return new BigdataURIImpl(this, utf8);
+
+    }
+
+    /**
+     * Create a literal whose label is decoded on demand from its UTF-8
+     * encoding. This is used by the {@link BigdataValueSerializer} to
+     * materialize literals from the lexicon.
+     * 
+     * @param label
+     *            The UTF-8 encoding of the label (the caller MUST NOT modify
+     *            the backing array).
+     * @param language
+     *            The language code (optional).
+     * @param datatype
+     *            The datatype (optional).
+     */
+    BigdataLiteralImpl createLiteral(final EncodedUTF8 label,
+            final String language, final BigdataURI datatype) {
+
+        return new BigdataLiteralImpl(this, label, language, datatype);
+
+    }
+
     @Override
     public BigdataStatementImpl createStatement(Resource s, URI p, Value o) {
 
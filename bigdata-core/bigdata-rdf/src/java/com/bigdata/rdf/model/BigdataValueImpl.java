@@ -145,6 +145,21 @@ public abstract class BigdataValueImpl implements BigdataValue {
         
     }
 
+    /**
+     * Return the UTF-8 encoding of {@link #stringValue()} if it is available
+     * without encoding the string -or- <code>null</code>. This is only
+     * available for {@link BigdataValue}s which were materialized from the
+     * lexicon and whose string has not yet been decoded, and lets result
+     * writers copy the encoded bytes to their output.
+     * <p>
+     * Note: The caller MUST NOT modify the returned bytes.
+     */
+    public EncodedUTF8 getEncodedUTF8() {
+
+        return null;
+
+    }
+
     /**
      * Extends the serialization format to include the namespace of the lexicon
      * so we can recover the {@link BigdataValueFactory} singleton reference for
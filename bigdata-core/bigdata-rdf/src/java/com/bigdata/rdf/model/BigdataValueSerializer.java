@@ -31,6 +31,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 import org.openrdf.model.BNode;
 import org.openrdf.model.Literal;
@@ -43,6 +44,7 @@ import com.bigdata.io.DataInputBuffer;
 import com.bigdata.io.DataOutputBuffer;
 import com.bigdata.io.ShortPacker;
 import com.bigdata.io.compression.NoCompressor;
+import com.bigdata.io.compression.SymbolTableCompressor;
 import com.bigdata.io.compression.UnicodeHelper;
 import com.bigdata.rdf.lexicon.ITermIndexCodes;
 
@@ -75,6 +77,20 @@ public class BigdataValueSerializer<V extends Value> {
      */
     private static final short VERSION1 = 0x1;
     
+    /**
+     * Version TWO(2) of the serialization format. Each Unicode string is
+     * encoded as UTF-8, compressed using a static symbol table and written as
+     * the packed length of the compressed data followed by that data. This
+     * version is only written by a serializer which was configured with a
+     * {@link SymbolTableCompressor} and can only be read by a serializer which
+     * was configured with the same table.
+     * <p>
+     * Note: A {@link Value} having a string with an unpaired surrogate is
+     * written using {@link #VERSION0} or {@link #VERSION1} since UTF-8 can not
+     * represent that string (the unpaired surrogate would be replaced).
+     */
+    private static final short VERSION2 = 0x2;
+    
     /**
      * The current serialization version.
      * <p>
@@ -135,6 +151,17 @@ public class BigdataValueSerializer<V extends Value> {
      */
     private final UnicodeHelper uc;
     
+    /**
+     * The static symbol table used to compress Unicode strings -or-
+     * <code>null</code> if {@link #VERSION2} is not used.
+     */
+    private final SymbolTableCompressor symbolTable;
+    
+    /**
+     * Used to encode Unicode strings as UTF-8 for {@link #VERSION2}.
+     */
+    private static final transient Charset UTF8 = Charset.forName("UTF-8");
+    
     /**
      * Create an instance that will materialize objects using the caller's
      * factory.
@@ -144,10 +171,30 @@ public class BigdataValueSerializer<V extends Value> {
      */
     public BigdataValueSerializer(final ValueFactory valueFactory) {
 
+        this(valueFactory, null/* symbolTable */);
+        
+    }
+
+    /**
+     * Create an instance that will materialize objects using the caller's
+     * factory and which will compress Unicode strings using the given static
+     * symbol table.
+     * 
+     * @param valueFactory
+     *            The value factory.
+     * @param symbolTable
+     *            The symbol table (optional). When given, {@link Value}s are
+     *            written using {@link #VERSION2}.
+     */
+    public BigdataValueSerializer(final ValueFactory valueFactory,
+            final SymbolTableCompressor symbolTable) {
+
         if (valueFactory == null)
             throw new IllegalArgumentException();
         
         this.valueFactory = valueFactory;
+        
+        this.symbolTable = symbolTable;
        
 //        this.uc = new UnicodeHelper(new BOCU1Compressor());
         this.uc = new UnicodeHelper(new NoCompressor());
@@ -273,7 +320,8 @@ public class BigdataValueSerializer<V extends Value> {
         
         try {
 
-            final short version = getVersion(val);
+            final short version = symbolTable == null
+                    || hasUnpairedSurrogate(val) ? getVersion(val) : VERSION2;
             
             ShortPacker.packShort(out, version);
 
@@ -291,6 +339,9 @@ public class BigdataValueSerializer<V extends Value> {
                 serializeVersion1(val, version, out, tmp);
                 break;
             }
+            case VERSION2:
+                serializeVersion2(val, version, out);
+                break;
             default:
                 throw new UnsupportedOperationException(ERR_VERSION);
             }
@@ -350,6 +401,48 @@ public class BigdataValueSerializer<V extends Value> {
      * @see {@link #serialize()}
      */
     public V deserialize(final DataInputBuffer in, final StringBuilder tmp) {
+
+        return deserialize(in, tmp, null/* lazy */);
+
+    }
+
+    /**
+     * Variant of {@link #deserialize(byte[])} which does not decode the
+     * lexical form of a URI or the label of a literal. Instead, the returned
+     * {@link BigdataValue} keeps a reference to the UTF-8 encoding of that
+     * string in <i>b</i> (or, for {@link #VERSION2}, to the decompressed UTF-8
+     * encoding) and decodes it on demand, dropping that reference once it has
+     * been decoded. The UTF-8 encoding is reported by
+     * {@link BigdataValueImpl#getEncodedUTF8()} so that result writers may copy
+     * it to their output. Strings are decoded eagerly (exactly as by
+     * {@link #deserialize(byte[])}) if the value factory is not a
+     * {@link BigdataValueFactoryImpl}, for {@link #VERSION1}, and if their
+     * modified UTF-8 encoding might differ from their UTF-8 encoding.
+     * 
+     * @param b
+     *            The byte[] containing the serialized data record. The caller
+     *            MUST NOT modify this array once it has been passed to this
+     *            method.
+     * 
+     * @return The {@link BigdataValue}.
+     */
+    public V deserializeLazy(final byte[] b) {
+
+        return deserialize(new DataInputBuffer(b), null/* tmp */,
+                valueFactory instanceof BigdataValueFactoryImpl ? (BigdataValueFactoryImpl) valueFactory
+                        : null);
+
+    }
+
+    /**
+     * Core impl.
+     * 
+     * @param lazy
+     *            When non-<code>null</code>, URIs and literal labels are
+     *            created using this factory and decoded on demand.
+     */
+    private V deserialize(final DataInputBuffer in, final StringBuilder tmp,
+            final BigdataValueFactoryImpl lazy) {
         
         try {
 
@@ -357,9 +450,12 @@ public class BigdataValueSerializer<V extends Value> {
 
             switch (version) {
             case VERSION0:
-                return deserializeVersion0(version, in);
+                return deserializeVersion0(version, in, lazy);
             case VERSION1:
-                return deserializeVersion1(version, in, tmp);
+                return deserializeVersion1(version, in,
+                        tmp != null ? tmp : new StringBuilder());
+            case VERSION2:
+                return deserializeVersion2(version, in, lazy);
             default:
                 throw new UnsupportedOperationException(ERR_VERSION + " : "
                         + version);
@@ -470,11 +566,15 @@ public class BigdataValueSerializer<V extends Value> {
      *            by the caller).
      * @param in
      *            The data are read from here.
+     * @param lazy
+     *            When non-<code>null</code>, URIs and literal labels are
+     *            created using this factory and decoded on demand.
      * 
      * @throws IOException
      */
     @SuppressWarnings("unchecked")
-    private V deserializeVersion0(final short version, final DataInput in)
+    private V deserializeVersion0(final short version,
+            final DataInputBuffer in, final BigdataValueFactoryImpl lazy)
             throws IOException {
     
         /*
@@ -495,12 +595,25 @@ public class BigdataValueSerializer<V extends Value> {
 
         case ITermIndexCodes.TERM_CODE_URI: {
 
+            if (lazy != null) {
+                final EncodedUTF8 s = sliceUTF(in);
+                if (s != null)
+                    return (V) lazy.createURI(s);
+            }
+
             return (V) valueFactory.createURI(in.readUTF());
 
         }
 
         case ITermIndexCodes.TERM_CODE_LIT: {
 
+            if (lazy != null) {
+                final EncodedUTF8 s = sliceUTF(in);
+                if (s != null)
+                    return (V) lazy.createLiteral(s, null/* language */,
+                            null/* datatype */);
+            }
+
             final String label = in.readUTF();
 
             return (V)valueFactory.createLiteral(label);
@@ -510,6 +623,13 @@ public class BigdataValueSerializer<V extends Value> {
         case ITermIndexCodes.TERM_CODE_LCL: {
 
             final String language = in.readUTF();
+
+            if (lazy != null) {
+                final EncodedUTF8 s = sliceUTF(in);
+                if (s != null)
+                    return (V) lazy.createLiteral(s, language, null/* datatype */);
+            }
+
             final String label = in.readUTF();
 
             return (V)valueFactory.createLiteral(label, language);
@@ -519,6 +639,13 @@ public class BigdataValueSerializer<V extends Value> {
 
             final String datatype = in.readUTF();
 
+            if (lazy != null) {
+                final EncodedUTF8 s = sliceUTF(in);
+                if (s != null)
+                    return (V) lazy.createLiteral(s, null/* language */,
+                            lazy.createURI(datatype));
+            }
+
             final String label = in.readUTF();
 
             return (V) valueFactory.createLiteral(label, valueFactory
@@ -534,6 +661,39 @@ public class BigdataValueSerializer<V extends Value> {
         
     }
 
+    /**
+     * Return the UTF-8 encoding of a string written by
+     * {@link DataOutput#writeUTF(String)} as a slice of the backing buffer
+     * (without copying) and advance the stream past that string. If the
+     * modified UTF-8 encoding might differ from the UTF-8 encoding, then the
+     * stream is not advanced and <code>null</code> is returned.
+     */
+    private static EncodedUTF8 sliceUTF(final DataInputBuffer in)
+            throws IOException {
+
+        final long pos = in.position();
+
+        final int len = in.readUnsignedShort();
+
+        final byte[] buf = in.getBuffer();
+
+        final int off = in.getOrigin() + (int) in.position();
+
+        if (off + len > in.getLimit()
+                || !EncodedUTF8.isStandardUTF8(buf, off, len)) {
+
+            in.position(pos);
+
+            return null;
+
+        }
+
+        in.skipBytes(len);
+
+        return new EncodedUTF8(buf, off, len);
+
+    }
+
     /**
      * Implements the serialization of a Literal, URI, or BNode.
      * 
@@ -683,6 +843,282 @@ public class BigdataValueSerializer<V extends Value> {
 
     }
 
+    /**
+     * Implements the serialization of a Literal, URI, or BNode using the
+     * static symbol table.
+     * 
+     * @param val
+     *            The {@link Value}.
+     * @param version
+     *            The serialization version number (which has already been
+     *            written on <i>out</i> by the caller).
+     * @param out
+     *            The data are written here.
+     * 
+     * @throws IOException
+     */
+    private void serializeVersion2(final V val, final short version,
+            final DataOutputBuffer out) throws IOException {
+
+        final byte termCode = getTermCode(val);
+
+        out.writeByte(termCode);
+
+        switch (termCode) {
+
+        case ITermIndexCodes.TERM_CODE_BND:
+
+            encode2(((BNode) val).getID(), out);
+
+            break;
+
+        case ITermIndexCodes.TERM_CODE_URI:
+
+            encode2(((URI) val).stringValue(), out);
+
+            break;
+
+        case ITermIndexCodes.TERM_CODE_LIT:
+
+            encode2(((Literal) val).getLabel(), out);
+
+            break;
+
+        case ITermIndexCodes.TERM_CODE_LCL:
+
+            encode2(((Literal) val).getLanguage(), out);
+
+            encode2(((Literal) val).getLabel(), out);
+
+            break;
+
+        case ITermIndexCodes.TERM_CODE_DTL:
+
+            encode2(((Literal) val).getDatatype().stringValue(), out);
+
+            encode2(((Literal) val).getLabel(), out);
+
+            break;
+
+        default:
+
+            throw new IOException(ERR_CODE + " : " + termCode);
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff any Unicode string in the {@link Value}
+     * has an unpaired surrogate.
+     */
+    private static boolean hasUnpairedSurrogate(final Value val) {
+
+        if (val instanceof URI) {
+
+            return hasUnpairedSurrogate(((URI) val).stringValue());
+
+        } else if (val instanceof Literal) {
+
+            final Literal lit = (Literal) val;
+
+            return hasUnpairedSurrogate(lit.getLabel())
+                    || (lit.getLanguage() != null && hasUnpairedSurrogate(lit
+                            .getLanguage()))
+                    || (lit.getDatatype() != null && hasUnpairedSurrogate(lit
+                            .getDatatype().stringValue()));
+
+        } else if (val instanceof BNode) {
+
+            return hasUnpairedSurrogate(((BNode) val).getID());
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the string has an unpaired surrogate.
+     */
+    static boolean hasUnpairedSurrogate(final String s) {
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            if (Character.isHighSurrogate(c)) {
+
+                if (i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+
+                    // skip over the surrogate pair.
+                    i++;
+
+                    continue;
+
+                }
+
+                return true;
+
+            }
+
+            if (Character.isLowSurrogate(c))
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Write the packed length of the compressed UTF-8 encoding of the string
+     * followed by the compressed data.
+     */
+    private void encode2(final String s, final DataOutputBuffer out) {
+
+        final byte[] b = symbolTable.compress(s.getBytes(UTF8));
+
+        out.packLong(b.length);
+
+        out.put(b);
+
+    }
+
+    /**
+     * Implements the de-serialization of a Literal, URI, or BNode using the
+     * static symbol table.
+     * 
+     * @param version
+     *            The serialization version number (which has already been read
+     *            by the caller).
+     * @param in
+     *            The data are read from here.
+     * @param lazy
+     *            When non-<code>null</code>, URIs and literal labels are
+     *            created using this factory and decoded on demand.
+     * 
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    private V deserializeVersion2(final short version,
+            final DataInputBuffer in, final BigdataValueFactoryImpl lazy)
+            throws IOException {
+
+        if (symbolTable == null) {
+
+            throw new UnsupportedOperationException(ERR_VERSION + " : "
+                    + version + " : no symbol table");
+
+        }
+
+        final byte termCode = in.readByte();
+
+        final ByteArrayBuffer tmp = new ByteArrayBuffer(128);
+
+        switch (termCode) {
+
+        case ITermIndexCodes.TERM_CODE_BND:
+            return (V) valueFactory.createBNode(decode2(in, tmp));
+
+        case ITermIndexCodes.TERM_CODE_URI:
+            if (lazy != null)
+                return (V) lazy.createURI(decode2UTF8(in, tmp));
+            return (V) valueFactory.createURI(decode2(in, tmp));
+
+        case ITermIndexCodes.TERM_CODE_LIT:
+            if (lazy != null)
+                return (V) lazy.createLiteral(decode2UTF8(in, tmp),
+                        null/* language */, null/* datatype */);
+            return (V) valueFactory.createLiteral(decode2(in, tmp));
+
+        case ITermIndexCodes.TERM_CODE_LCL: {
+
+            final String language = decode2(in, tmp);
+
+            if (lazy != null)
+                return (V) lazy.createLiteral(decode2UTF8(in, tmp), language,
+                        null/* datatype */);
+
+            final String label = decode2(in, tmp);
+
+            return (V) valueFactory.createLiteral(label, language);
+        }
+
+        case ITermIndexCodes.TERM_CODE_DTL: {
+
+            final String datatype = decode2(in, tmp);
+
+            if (lazy != null)
+                return (V) lazy.createLiteral(decode2UTF8(in, tmp),
+                        null/* language */, lazy.createURI(datatype));
+
+            final String label = decode2(in, tmp);
+
+            return (V) valueFactory.createLiteral(label, valueFactory
+                    .createURI(datatype));
+
+        }
+
+        default:
+
+            throw new IOException(ERR_CODE + " : " + termCode);
+
+        }
+
+    }
+
+    /**
+     * Read a string written by {@link #encode2(String, DataOutputBuffer)}.
+     */
+    private String decode2(final DataInputBuffer in, final ByteArrayBuffer tmp)
+            throws IOException {
+
+        final int len = (int) in.unpackLong();
+
+        final byte[] b = new byte[len];
+
+        in.readFully(b);
+
+        symbolTable.decompress(b, 0, len, tmp.reset());
+
+        return new String(tmp.array(), 0, tmp.pos(), UTF8);
+
+    }
+
+    /**
+     * Read a string written by {@link #encode2(String, DataOutputBuffer)},
+     * returning its UTF-8 encoding. The compressed data are decompressed
+     * directly from the backing buffer.
+     */
+    private EncodedUTF8 decode2UTF8(final DataInputBuffer in,
+            final ByteArrayBuffer tmp) throws IOException {
+
+        final int len = (int) in.unpackLong();
+
+        final int off = in.getOrigin() + (int) in.position();
+
+        in.skipBytes(len);
+
+        symbolTable.decompress(in.getBuffer(), off, len, tmp.reset());
+
+        return new EncodedUTF8(tmp.toByteArray(), 0, tmp.pos());
+
+    }
+
+    /**
+     * The static symbol table used to compress Unicode strings -or-
+     * <code>null</code> if this serializer does not compress Unicode strings
+     * using a symbol table.
+     */
+    public SymbolTableCompressor getSymbolTable() {
+
+        return symbolTable;
+
+    }
+
     /**
      * Return the total #of characters in the RDF {@link Value}.
      * 
@@ -0,0 +1,154 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rdf.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A slice of a byte[] containing the UTF-8 encoding of a Unicode string. This
+ * is used to defer decoding the lexical form of a {@link BigdataValue} which
+ * was read from the lexicon and to let result writers copy the already
+ * encoded bytes to their output.
+ * <p>
+ * Note: The slice is NOT copied. The backing array MUST NOT be modified once
+ * it has been wrapped.
+ */
+public final class EncodedUTF8 {
+
+    private static final transient Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte[] buf;
+
+    private final int off;
+
+    private final int len;
+
+    /**
+     * @param buf
+     *            The backing array.
+     * @param off
+     *            The offset of the first byte of the encoded string.
+     * @param len
+     *            The #of bytes in the encoded string.
+     */
+    public EncodedUTF8(final byte[] buf, final int off, final int len) {
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        if (off < 0 || len < 0 || off + len > buf.length)
+            throw new IllegalArgumentException();
+
+        this.buf = buf;
+
+        this.off = off;
+
+        this.len = len;
+
+    }
+
+    /**
+     * The backing array.
+     */
+    public byte[] array() {
+
+        return buf;
+
+    }
+
+    /**
+     * The offset of the first byte of the encoded string.
+     */
+    public int offset() {
+
+        return off;
+
+    }
+
+    /**
+     * The #of bytes in the encoded string.
+     */
+    public int length() {
+
+        return len;
+
+    }
+
+    /**
+     * Decode the string.
+     */
+    public String decode() {
+
+        return new String(buf, off, len, UTF8);
+
+    }
+
+    /**
+     * Copy the encoded string onto the stream.
+     */
+    public void writeOn(final OutputStream os) throws IOException {
+
+        os.write(buf, off, len);
+
+    }
+
+    /**
+     * Return <code>true</code> if the bytes written by
+     * {@link java.io.DataOutput#writeUTF(String)} (which uses a modified
+     * UTF-8) are certainly the standard UTF-8 encoding of the same string. The
+     * two encodings differ only for <code>NUL</code> (
+     * <code>0xC0 0x80</code>) and supplementary characters (encoded as
+     * surrogate pairs starting with <code>0xED</code>). A string containing
+     * any such lead byte is reported as not compatible, which is conservative
+     * since <code>0xED</code> also begins some ordinary characters.
+     */
+    public static boolean isStandardUTF8(final byte[] buf, final int off,
+            final int len) {
+
+        final int end = off + len;
+
+        for (int i = off; i < end; i++) {
+
+            final byte b = buf[i];
+
+            if (b == (byte) 0xC0 || b == (byte) 0xED)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return decode();
+
+    }
+
+}
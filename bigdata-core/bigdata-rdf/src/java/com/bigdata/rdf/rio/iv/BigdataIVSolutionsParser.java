@@ -0,0 +1,194 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rio.iv;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Value;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.impl.ListBindingSet;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserBase;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetDecoder;
+
+/**
+ * Parser for the {@link ServiceProviderHook#IV_SOLUTIONS} format. The
+ * solutions are decoded one frame at a time and passed to the handler as
+ * they are decoded, so the caller (for example, the background thread of a
+ * streaming query result) can consume the first solutions before the last
+ * frame has been received. The RDF Values are taken from the dictionary in the
+ * stream and are never parsed from their lexical forms.
+ *
+ * @see BigdataIVSolutionsWriter
+ */
+public class BigdataIVSolutionsParser extends TupleQueryResultParserBase {
+
+    private static final Logger log = Logger
+            .getLogger(BigdataIVSolutionsParser.class);
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return ServiceProviderHook.IV_SOLUTIONS;
+
+    }
+
+    @Override
+    public void parse(final InputStream is) throws IOException,
+            QueryResultParseException, TupleQueryResultHandlerException {
+
+        final DataInputStream in = new DataInputStream(is);
+
+        try {
+
+            final int magic = in.readInt();
+
+            if (magic != BigdataIVSolutionsWriter.MAGIC)
+                throw new QueryResultParseException("Bad magic: "
+                        + Integer.toHexString(magic));
+
+            final int version = in.readInt();
+
+            switch (version) {
+            case BigdataIVSolutionsWriter.VERSION0:
+                break;
+            default:
+                throw new QueryResultParseException("Unknown version: "
+                        + version);
+            }
+
+            final int nvars = in.readInt();
+
+            if (nvars < 0)
+                throw new QueryResultParseException("nvars=" + nvars);
+
+            final String[] names = new String[nvars];
+
+            final IVariable<?>[] vars = new IVariable<?>[nvars];
+
+            for (int i = 0; i < nvars; i++) {
+
+                names[i] = in.readUTF();
+
+                vars[i] = Var.var(names[i]);
+
+            }
+
+            final List<String> bindingNames = Arrays.asList(names);
+
+            if (handler != null)
+                handler.startQueryResult(bindingNames);
+
+            final IVSolutionSetDecoder decoder = new IVSolutionSetDecoder();
+
+            long nsolutions = 0L;
+
+            int nsolutionsInFrame;
+
+            while ((nsolutionsInFrame = in.readInt()) != 0) {
+
+                final int nbytes = in.readInt();
+
+                if (nsolutionsInFrame < 0 || nbytes < 0)
+                    throw new QueryResultParseException("nsolutions="
+                            + nsolutionsInFrame + ", nbytes=" + nbytes);
+
+                final byte[] a = new byte[nbytes];
+
+                in.readFully(a);
+
+                final DataInputBuffer buf = new DataInputBuffer(a);
+
+                for (int i = 0; i < nsolutionsInFrame; i++) {
+
+                    final IBindingSet bset = decoder.decodeSolution(buf,
+                            true/* resolveCachedValues */);
+
+                    if (handler != null)
+                        handler.handleSolution(new ListBindingSet(
+                                bindingNames, asValues(vars, bset)));
+
+                }
+
+                nsolutions += nsolutionsInFrame;
+
+                if (log.isTraceEnabled())
+                    log.trace("Read frame: nsolutions=" + nsolutionsInFrame
+                            + ", nbytes=" + nbytes);
+
+            }
+
+            if (handler != null)
+                handler.endQueryResult();
+
+            if (log.isDebugEnabled())
+                log.debug("Read solutions: nsolutions=" + nsolutions);
+
+        } catch (EOFException ex) {
+
+            throw new QueryResultParseException("Unexpected end of stream", ex);
+
+        }
+
+    }
+
+    /**
+     * Return the RDF Values for the projected variables in the solution.
+     * Unbound variables are reported as <code>null</code>s.
+     */
+    private static List<Value> asValues(final IVariable<?>[] vars,
+            final IBindingSet bset) {
+
+        final List<Value> values = new ArrayList<Value>(vars.length);
+
+        for (int i = 0; i < vars.length; i++) {
+
+            @SuppressWarnings("rawtypes")
+            final IConstant c = bset.get(vars[i]);
+
+            values.add(c == null ? null : ((IV<?, ?>) c.get()).getValue());
+
+        }
+
+        return values;
+
+    }
+
+}
@@ -0,0 +1,428 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rio.iv;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultFormat;
+import org.openrdf.query.resultio.QueryResultWriterBase;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.util.Bytes;
+
+/**
+ * Writer for the {@link ServiceProviderHook#IV_SOLUTIONS} format. The
+ * solutions are written as {@link IV}s using an {@link IVSolutionSetEncoder}.
+ * The encoder writes the {@link BigdataValue} for an {@link IV} only the first
+ * time that {@link IV} is observed, so the values form a per-response
+ * dictionary and neither side has to format or parse the lexical form of a
+ * value more than once.
+ *
+ * <h2>Stream Format</h2>
+ *
+ * <pre>
+ * magic
+ * version
+ * nvars
+ * var[0] ... var[nvars-1]
+ * (nsolutions nbytes solution[0] ... solution[nsolutions-1])*
+ * 0
+ * </pre>
+ *
+ * where the solutions are buffered into frames of roughly
+ * {@link #DEFAULT_FRAME_SIZE} bytes. Each frame is written onto the output
+ * stream as soon as it is full, so the client can begin to decode the
+ * solutions while the query is still running. The stream is terminated by a
+ * frame with zero solutions.
+ * <p>
+ * Note: Values which do not have an {@link IV} (for example, values which were
+ * not resolved against the lexicon) are written using a mock {@link IV} and
+ * are always inlined into the stream.
+ *
+ * @see BigdataIVSolutionsParser
+ */
+public class BigdataIVSolutionsWriter extends QueryResultWriterBase implements
+        TupleQueryResultWriter {
+
+    private static final Logger log = Logger
+            .getLogger(BigdataIVSolutionsWriter.class);
+
+    /**
+     * The magic number at the start of the stream ("BIVS").
+     */
+    static final int MAGIC = 0x42495653;
+
+    /**
+     * The initial version.
+     */
+    static final int VERSION0 = 0x0;
+
+    /**
+     * The current version.
+     */
+    static final int CURRENT_VERSION = VERSION0;
+
+    /**
+     * The default target size of a frame in bytes.
+     */
+    public static final int DEFAULT_FRAME_SIZE = 64 * Bytes.kilobyte32;
+
+    /**
+     * The namespace of the {@link BigdataValueFactory} used for values which
+     * were not created by a lexicon.
+     */
+    private static final String DEFAULT_NAMESPACE = "iv-solutions";
+
+    private final DataOutputStream out;
+
+    /**
+     * The target size of a frame in bytes.
+     */
+    private final int frameSize;
+
+    private final IVSolutionSetEncoder encoder;
+
+    /**
+     * The solutions for the current frame.
+     */
+    private final DataOutputBuffer buf;
+
+    /**
+     * The projected variables.
+     */
+    private List<String> names;
+
+    /**
+     * The projected variables (same order as {@link #names}).
+     */
+    private IVariable<?>[] vars;
+
+    /**
+     * Used to convert values which do not have an {@link IV}. This is taken
+     * from the first {@link BigdataValue} observed.
+     */
+    private BigdataValueFactory vf;
+
+    /**
+     * The #of solutions in the current frame.
+     */
+    private int nbuffered = 0;
+
+    /**
+     * The #of solutions written.
+     */
+    private long nsolutions = 0L;
+
+    /**
+     * The #of frames written.
+     */
+    private long nframes = 0L;
+
+    public BigdataIVSolutionsWriter(final OutputStream out) {
+
+        this(out, DEFAULT_FRAME_SIZE);
+
+    }
+
+    /**
+     * @param out
+     *            The output stream.
+     * @param frameSize
+     *            The target size of a frame in bytes.
+     */
+    public BigdataIVSolutionsWriter(final OutputStream out, final int frameSize) {
+
+        if (out == null)
+            throw new IllegalArgumentException();
+
+        if (frameSize <= 0)
+            throw new IllegalArgumentException();
+
+        this.out = new DataOutputStream(out);
+
+        this.frameSize = frameSize;
+
+        this.encoder = new IVSolutionSetEncoder();
+
+        this.buf = new DataOutputBuffer();
+
+    }
+
+    @Override
+    public QueryResultFormat getQueryResultFormat() {
+
+        return getTupleQueryResultFormat();
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return ServiceProviderHook.IV_SOLUTIONS;
+
+    }
+
+    @Override
+    public void startDocument() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleStylesheet(final String stylesheetUrl)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void startHeader() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleNamespace(final String prefix, final String uri)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void endHeader() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleBoolean(final boolean value)
+            throws QueryResultHandlerException {
+
+        throw new UnsupportedOperationException();
+
+    }
+
+    @Override
+    public void handleLinks(final List<String> linkUrls)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void startQueryResult(final List<String> bindingNames)
+            throws TupleQueryResultHandlerException {
+
+        if (bindingNames == null)
+            throw new IllegalArgumentException();
+
+        this.names = bindingNames;
+
+        this.vars = new IVariable<?>[bindingNames.size()];
+
+        try {
+
+            out.writeInt(MAGIC);
+
+            out.writeInt(CURRENT_VERSION);
+
+            out.writeInt(bindingNames.size());
+
+            for (int i = 0; i < vars.length; i++) {
+
+                final String name = bindingNames.get(i);
+
+                vars[i] = Var.var(name);
+
+                out.writeUTF(name);
+
+            }
+
+        } catch (IOException e) {
+
+            throw new TupleQueryResultHandlerException(e);
+
+        }
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public void handleSolution(final BindingSet bindingSet)
+            throws TupleQueryResultHandlerException {
+
+        if (vars == null)
+            throw new IllegalStateException();
+
+        final IBindingSet bset = new ListBindingSet();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            final Value v = bindingSet.getValue(names.get(i));
+
+            if (v == null)
+                continue;
+
+            bset.set(vars[i], new Constant(asIV(v)));
+
+        }
+
+        encoder.encodeSolution(buf, bset);
+
+        nbuffered++;
+
+        if (buf.pos() >= frameSize) {
+
+            try {
+
+                writeFrame();
+
+            } catch (IOException e) {
+
+                throw new TupleQueryResultHandlerException(e);
+
+            }
+
+        }
+
+    }
+
+    @Override
+    public void endQueryResult() throws TupleQueryResultHandlerException {
+
+        try {
+
+            writeFrame();
+
+            // Terminate the stream.
+            out.writeInt(0);
+
+            out.flush();
+
+        } catch (IOException e) {
+
+            throw new TupleQueryResultHandlerException(e);
+
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("Wrote solutions: nsolutions=" + nsolutions
+                    + ", nframes=" + nframes + ", encoder=" + encoder);
+
+        encoder.release();
+
+    }
+
+    /**
+     * Write the buffered solutions (if any) onto the output stream as a frame
+     * and flush the output stream.
+     */
+    private void writeFrame() throws IOException {
+
+        if (nbuffered == 0)
+            return;
+
+        final int nbytes = buf.pos();
+
+        out.writeInt(nbuffered);
+
+        out.writeInt(nbytes);
+
+        out.write(buf.array(), 0/* off */, nbytes);
+
+        out.flush();
+
+        if (log.isTraceEnabled())
+            log.trace("Wrote frame: nsolutions=" + nbuffered + ", nbytes="
+                    + nbytes);
+
+        nsolutions += nbuffered;
+
+        nframes++;
+
+        nbuffered = 0;
+
+        buf.reset();
+
+    }
+
+    /**
+     * Return the {@link IV} for the value. If the value does not have an
+     * {@link IV}, then a mock {@link IV} is returned. Either way, the value is
+     * cached on the {@link IV} so it will be written into the dictionary.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IV asIV(final Value v) {
+
+        if (v instanceof BigdataValue) {
+
+            final BigdataValue bv = (BigdataValue) v;
+
+            if (vf == null)
+                vf = bv.getValueFactory();
+
+            final IV iv = bv.getIV();
+
+            if (iv != null) {
+
+                if (!iv.hasValue())
+                    iv.setValue(bv);
+
+                return iv;
+
+            }
+
+        }
+
+        if (vf == null)
+            vf = BigdataValueFactoryImpl.getInstance(DEFAULT_NAMESPACE);
+
+        final BigdataValue bv = vf.asValue(v);
+
+        final IV iv = TermId.mockIV(VTE.valueOf(bv));
+
+        iv.setValue(bv);
+
+        return iv;
+
+    }
+
+}
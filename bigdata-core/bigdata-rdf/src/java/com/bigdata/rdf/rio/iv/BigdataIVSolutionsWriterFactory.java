@@ -0,0 +1,57 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rio.iv;
+
+import java.io.OutputStream;
+
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+import org.openrdf.query.resultio.TupleQueryResultWriterFactory;
+
+import com.bigdata.rdf.ServiceProviderHook;
+
+/**
+ * A {@link TupleQueryResultWriterFactory} for writers of the
+ * {@link ServiceProviderHook#IV_SOLUTIONS} format.
+ */
+public class BigdataIVSolutionsWriterFactory implements
+        TupleQueryResultWriterFactory {
+
+    /**
+     * Returns {@link ServiceProviderHook#IV_SOLUTIONS}.
+     */
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+        return ServiceProviderHook.IV_SOLUTIONS;
+    }
+
+    /**
+     * Returns a new instance of {@link BigdataIVSolutionsWriter}.
+     */
+    @Override
+    public TupleQueryResultWriter getWriter(final OutputStream out) {
+        return new BigdataIVSolutionsWriter(out);
+    }
+
+}
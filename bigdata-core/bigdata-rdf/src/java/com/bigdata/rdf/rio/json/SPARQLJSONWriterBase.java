@@ -18,9 +18,7 @@ package com.bigdata.rdf.rio.json;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -41,6 +39,9 @@ import org.openrdf.query.resultio.QueryResultWriterBase;
 import org.openrdf.rio.RioSetting;
 import org.openrdf.rio.helpers.BasicWriterSettings;
 
+import com.bigdata.rdf.model.BigdataValueImpl;
+import com.bigdata.rdf.model.EncodedUTF8;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 
@@ -52,6 +53,10 @@ import com.fasterxml.jackson.core.JsonGenerator;
  * <ul>
  * <li>Changed the visibility of JsonGenerator jg from private to protected so
  * we can use it in a subclass.</li>
+ * <li>When writing on an {@link OutputStream}, the JSON is generated directly
+ * as UTF-8 and the UTF-8 encoding of a URI or literal label which was
+ * materialized from the lexicon (see {@link BigdataValueImpl#getEncodedUTF8()})
+ * is copied to the output without being decoded and re-encoded.</li>
  * </ul>
  * 
  * @author Peter Ansell
@@ -89,9 +94,16 @@ abstract class SPARQLJSONWriterBase extends QueryResultWriterBase implements Que
 
 	protected final JsonGenerator jg;
 
+	/**
+	 * <code>true</code> iff {@link #jg} generates UTF-8 bytes and hence
+	 * supports {@link JsonGenerator#writeUTF8String(byte[], int, int)}.
+	 */
+	private final boolean utf8;
+
     public SPARQLJSONWriterBase(Writer writer) {
         try {
             jg = JSON_FACTORY.createJsonGenerator(writer);
+            utf8 = false;
         }
         catch (IOException e) {
             throw new IllegalArgumentException(e);
@@ -100,7 +112,8 @@ abstract class SPARQLJSONWriterBase extends QueryResultWriterBase implements Que
 
 	public SPARQLJSONWriterBase(OutputStream out) {
 		try {
-			jg = JSON_FACTORY.createJsonGenerator(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+			jg = JSON_FACTORY.createJsonGenerator(out, JsonEncoding.UTF8);
+			utf8 = true;
 		}
 		catch (IOException e) {
 			throw new IllegalArgumentException(e);
@@ -339,7 +352,9 @@ abstract class SPARQLJSONWriterBase extends QueryResultWriterBase implements Que
 
 		if (value instanceof URI) {
 			jg.writeStringField("type", "uri");
-			jg.writeStringField("value", ((URI)value).toString());
+			if (!writeEncodedUTF8Field("value", value)) {
+				jg.writeStringField("value", ((URI)value).toString());
+			}
 		}
 		else if (value instanceof BNode) {
 			jg.writeStringField("type", "bnode");
@@ -361,7 +376,9 @@ abstract class SPARQLJSONWriterBase extends QueryResultWriterBase implements Que
 
 			jg.writeObjectField("type", "literal");
 
-			jg.writeObjectField("value", lit.getLabel());
+			if (!writeEncodedUTF8Field("value", value)) {
+				jg.writeObjectField("value", lit.getLabel());
+			}
 		}
 		else {
 			throw new TupleQueryResultHandlerException("Unknown Value object type: " + value.getClass());
@@ -369,6 +386,33 @@ abstract class SPARQLJSONWriterBase extends QueryResultWriterBase implements Que
 		jg.writeEndObject();
 	}
 
+	/**
+	 * Write a field whose value is the string value of a {@link Value} by
+	 * copying its UTF-8 encoding (escaped as necessary) if that encoding is
+	 * available and the generator writes UTF-8.
+	 * 
+	 * @return <code>false</code> if the field was not written.
+	 */
+	protected boolean writeEncodedUTF8Field(final String name, final Value value)
+		throws IOException
+	{
+		if (!utf8 || !(value instanceof BigdataValueImpl)) {
+			return false;
+		}
+
+		final EncodedUTF8 s = ((BigdataValueImpl)value).getEncodedUTF8();
+
+		if (s == null) {
+			return false;
+		}
+
+		jg.writeFieldName(name);
+
+		jg.writeUTF8String(s.array(), s.offset(), s.length());
+
+		return true;
+	}
+
 	@Override
 	public void handleBoolean(boolean value)
 		throws QueryResultHandlerException
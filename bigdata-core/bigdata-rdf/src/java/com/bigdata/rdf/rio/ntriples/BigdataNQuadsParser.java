@@ -0,0 +1,689 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+
+package com.bigdata.rdf.rio.ntriples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.commons.io.input.ReaderInputStream;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.NTriplesParserSettings;
+import org.openrdf.rio.helpers.RDFParserBase;
+import org.openrdf.rio.ntriples.NTriplesUtil;
+
+import com.bigdata.io.ByteBufferInputStream;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.rio.StatementBuffer;
+
+/**
+ * A byte-level parser for N-Quads (and hence also for N-Triples). The input is
+ * read in large blocks into a <code>byte[]</code> and each line is tokenized
+ * in place. No {@link Reader} is used and no {@link String} is allocated for
+ * delimiters, whitespace or comments.
+ * <p>
+ * IRIs and blank nodes are resolved through a small direct-mapped cache keyed
+ * by the raw bytes of the token. A hit returns the {@link Value} which was
+ * created for the previous occurrence of the same token, so the predicates,
+ * classes and named graphs which dominate an N-Quads dump are decoded only
+ * once. When the value factory is that of the database, the cached objects
+ * are {@link BigdataValue}s. Once the {@link StatementBuffer} has resolved
+ * their IVs, later statements reuse those IVs and the terms are not sent to
+ * the TERM2ID index again by {@link LexiconRelation#addTerms}. The cache is
+ * cleared at the end of each parse.
+ * <p>
+ * This parser does not support the RDR syntax. Use the
+ * {@link BigdataNTriplesParser} for that.
+ * <p>
+ * This parser is not thread-safe, therefore its public methods are
+ * synchronized.
+ */
+public class BigdataNQuadsParser extends RDFParserBase {
+
+    private static final transient Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final transient Charset ASCII = Charset.forName("ISO-8859-1");
+
+    /**
+     * The initial capacity of the input buffer. The buffer is grown if a
+     * single line does not fit.
+     */
+    static final int INITIAL_BUFFER_CAPACITY = 1 << 16;
+
+    /**
+     * The #of slots in the term cache (a power of 2).
+     */
+    static final int TERM_CACHE_SIZE = 1 << 12;
+
+    /*
+     * Parser state (valid during a parse).
+     */
+
+    private InputStream in;
+
+    private boolean eof;
+
+    /** The input buffer. */
+    private byte[] buf;
+
+    /** The offset of the first unconsumed byte in {@link #buf}. */
+    private int start;
+
+    /** The exclusive upper bound of the valid bytes in {@link #buf}. */
+    private int limit;
+
+    /** The current line number (origin ONE). */
+    private int lineNo;
+
+    /** The offset of the start of the current line. */
+    private int lineStart;
+
+    /** The exclusive upper bound of the current line. */
+    private int end;
+
+    /** The offset of the next byte to be tokenized in the current line. */
+    private int pos;
+
+    /*
+     * Term cache.
+     */
+
+    private byte[][] cacheKeys;
+
+    private Value[] cacheVals;
+
+    /**
+     * Creates a new parser that will use a
+     * {@link org.openrdf.model.impl.ValueFactoryImpl} to create RDF model
+     * objects.
+     */
+    public BigdataNQuadsParser() {
+        super();
+    }
+
+    /**
+     * Creates a new parser that will use the supplied {@link ValueFactory} to
+     * create RDF model objects.
+     *
+     * @param valueFactory
+     *            A {@link ValueFactory}.
+     */
+    public BigdataNQuadsParser(final ValueFactory valueFactory) {
+        super(valueFactory);
+    }
+
+    @Override
+    public RDFFormat getRDFFormat() {
+        return RDFFormat.NQUADS;
+    }
+
+    /**
+     * Parse the remaining bytes in the buffer. This is intended for
+     * memory-mapped files. The position and limit of the caller's buffer are
+     * not changed.
+     *
+     * @param b
+     *            The buffer (required).
+     * @param baseURI
+     *            The base URI (required).
+     */
+    public synchronized void parse(final ByteBuffer b, final String baseURI)
+            throws IOException, RDFParseException, RDFHandlerException {
+
+        if (b == null)
+            throw new IllegalArgumentException();
+
+        parse(new ByteBufferInputStream(b.duplicate()), baseURI);
+
+    }
+
+    /**
+     * The character stream is encoded as UTF-8 and then parsed as bytes.
+     * Prefer {@link #parse(InputStream, String)} where possible.
+     */
+    @Override
+    public synchronized void parse(final Reader reader, final String baseURI)
+            throws IOException, RDFParseException, RDFHandlerException {
+
+        if (reader == null)
+            throw new IllegalArgumentException("Reader can not be 'null'");
+
+        parse(new ReaderInputStream(reader, "UTF-8"), baseURI);
+
+    }
+
+    /**
+     * The data are read as UTF-8. A leading byte order mark is skipped.
+     */
+    @Override
+    public synchronized void parse(final InputStream in, final String baseURI)
+            throws IOException, RDFParseException, RDFHandlerException {
+
+        if (in == null)
+            throw new IllegalArgumentException("Input stream can not be 'null'");
+
+        if (baseURI == null)
+            throw new IllegalArgumentException("base URI can not be 'null'");
+
+        rdfHandler.startRDF();
+
+        this.in = in;
+        this.eof = false;
+        this.buf = new byte[INITIAL_BUFFER_CAPACITY];
+        this.start = 0;
+        this.limit = 0;
+        this.lineNo = 0;
+        this.cacheKeys = new byte[TERM_CACHE_SIZE][];
+        this.cacheVals = new Value[TERM_CACHE_SIZE];
+
+        try {
+
+            // skip the UTF-8 byte order mark, if any.
+            while (!eof && limit < 3)
+                fill();
+            if (limit >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB
+                    && buf[2] == (byte) 0xBF)
+                start = 3;
+
+            while (true) {
+
+                // find the end of the next line.
+                int scan = start;
+                int eol;
+                while ((eol = indexOfLF(scan)) == -1 && !eof) {
+                    // #of bytes already scanned (start is ZERO after fill).
+                    final int scanned = limit - start;
+                    fill();
+                    scan = scanned;
+                }
+
+                if (eol == -1) {
+                    if (start == limit) {
+                        // done.
+                        break;
+                    }
+                    // last line is not terminated.
+                    eol = limit;
+                }
+
+                lineNo++;
+
+                reportLocation(lineNo, 1);
+
+                parseLine(start, eol);
+
+                start = eol < limit ? eol + 1 : limit;
+
+            }
+
+        } finally {
+
+            clear();
+
+        }
+
+        rdfHandler.endRDF();
+
+    }
+
+    @Override
+    protected void clear() {
+
+        super.clear();
+
+        in = null;
+        buf = null;
+        cacheKeys = null;
+        cacheVals = null;
+
+    }
+
+    /**
+     * Compact the unconsumed bytes to the front of the buffer (growing the
+     * buffer if it is full) and read more data.
+     */
+    private void fill() throws IOException {
+
+        if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, limit - start);
+            limit -= start;
+            start = 0;
+        }
+
+        if (limit == buf.length) {
+            // a single line fills the buffer.
+            buf = Arrays.copyOf(buf, buf.length << 1);
+        }
+
+        final int n = in.read(buf, limit, buf.length - limit);
+
+        if (n == -1) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+
+    }
+
+    private int indexOfLF(int i) {
+
+        final byte[] a = buf;
+        final int n = limit;
+
+        for (; i < n; i++) {
+            if (a[i] == '\n')
+                return i;
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Parse one line. Syntax errors are reported against the current line. If
+     * {@link NTriplesParserSettings#FAIL_ON_NTRIPLES_INVALID_LINES} is not
+     * set then the line is skipped.
+     *
+     * @param from
+     *            The offset of the first byte of the line.
+     * @param to
+     *            The offset of the LF (or the end of the data).
+     */
+    private void parseLine(final int from, final int to)
+            throws RDFParseException, RDFHandlerException {
+
+        lineStart = from;
+        end = to;
+        pos = from;
+
+        skipWhitespace();
+
+        if (pos == end || buf[pos] == '#') {
+            // blank line or comment.
+            return;
+        }
+
+        final Resource s = parseResource();
+        if (s == null)
+            return;
+
+        skipWhitespace();
+
+        if (pos == end || buf[pos] != '<') {
+            error("Expected '<', found: " + found());
+            return;
+        }
+        final URI p = parseURI();
+        if (p == null)
+            return;
+
+        skipWhitespace();
+
+        final Value o = parseValue();
+        if (o == null)
+            return;
+
+        skipWhitespace();
+
+        Resource c = null;
+        if (pos < end && buf[pos] != '.') {
+            if ((c = parseResource()) == null)
+                return;
+            skipWhitespace();
+        }
+
+        if (pos == end || buf[pos] != '.') {
+            error("Expected '.', found: " + found());
+            return;
+        }
+        pos++;
+
+        skipWhitespace();
+
+        if (pos < end && buf[pos] != '#') {
+            error("Content after '.' is not allowed");
+            return;
+        }
+
+        final Statement st = c == null ? createStatement(s, p, o)
+                : createStatement(s, p, o, c);
+
+        rdfHandler.handleStatement(st);
+
+    }
+
+    private void skipWhitespace() {
+
+        while (pos < end) {
+            final byte b = buf[pos];
+            if (b != ' ' && b != '\t' && b != '\r')
+                break;
+            pos++;
+        }
+
+    }
+
+    /**
+     * An IRI or a blank node.
+     */
+    private Resource parseResource() throws RDFParseException {
+
+        if (pos < end) {
+            if (buf[pos] == '<')
+                return parseURI();
+            if (buf[pos] == '_')
+                return parseBNode();
+        }
+
+        error("Expected '<' or '_', found: " + found());
+
+        return null;
+
+    }
+
+    /**
+     * An IRI, a blank node or a literal.
+     */
+    private Value parseValue() throws RDFParseException {
+
+        if (pos < end && buf[pos] == '"')
+            return parseLiteral();
+
+        return parseResource();
+
+    }
+
+    /**
+     * An IRI. The current byte is '&lt;'.
+     */
+    private URI parseURI() throws RDFParseException {
+
+        final int from = pos;
+
+        int i = from + 1;
+        while (i < end && buf[i] != '>')
+            i++;
+
+        if (i == end) {
+            error("Expected '>', found: end of line");
+            return null;
+        }
+
+        pos = i + 1;
+
+        final Value v = getCachedValue(from, pos);
+        if (v != null)
+            return (URI) v;
+
+        final String s = decode(from + 1, i);
+        if (s == null)
+            return null;
+
+        final URI uri = createURI(s);
+
+        putCachedValue(from, pos, uri);
+
+        return uri;
+
+    }
+
+    /**
+     * A blank node. The current byte is '_'.
+     */
+    private Resource parseBNode() throws RDFParseException {
+
+        final int from = pos;
+
+        if (from + 1 == end || buf[from + 1] != ':') {
+            error("Expected ':', found: " + found(from + 1));
+            return null;
+        }
+
+        int i = from + 2;
+        while (i < end && isNameByte(buf[i]))
+            i++;
+
+        // a trailing '.' is the end of the statement, not part of the label.
+        while (i > from + 2 && buf[i - 1] == '.')
+            i--;
+
+        if (i == from + 2) {
+            error("Expected a blank node label, found: " + found(i));
+            return null;
+        }
+
+        pos = i;
+
+        final Value v = getCachedValue(from, pos);
+        if (v != null)
+            return (Resource) v;
+
+        final Resource bnode = createBNode(new String(buf, from + 2, i
+                - (from + 2), UTF8));
+
+        putCachedValue(from, pos, bnode);
+
+        return bnode;
+
+    }
+
+    private static boolean isNameByte(final byte b) {
+
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')
+                || (b >= '0' && b <= '9') || b == '_' || b == '-' || b == '.'
+                || b < 0 /* non-ASCII */;
+
+    }
+
+    /**
+     * A literal. The current byte is '"'. Literals are not cached since most
+     * of them are distinct, but their datatype IRIs are.
+     */
+    private Value parseLiteral() throws RDFParseException {
+
+        int i = pos + 1;
+        while (i < end) {
+            final byte b = buf[i];
+            if (b == '"')
+                break;
+            i += b == '\\' ? 2 : 1;
+        }
+
+        if (i >= end) {
+            error("Unterminated literal");
+            return null;
+        }
+
+        final String label = decode(pos + 1, i);
+        if (label == null)
+            return null;
+
+        pos = i + 1;
+
+        String lang = null;
+        URI datatype = null;
+
+        if (pos < end && buf[pos] == '@') {
+
+            final int from = ++pos;
+            while (pos < end) {
+                final byte b = buf[pos];
+                if (!((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')
+                        || (b >= '0' && b <= '9') || b == '-'))
+                    break;
+                pos++;
+            }
+
+            if (pos == from) {
+                error("Expected a language tag, found: " + found());
+                return null;
+            }
+
+            lang = new String(buf, from, pos - from, ASCII);
+
+        } else if (pos < end && buf[pos] == '^') {
+
+            if (pos + 1 == end || buf[pos + 1] != '^') {
+                error("Expected '^', found: " + found(pos + 1));
+                return null;
+            }
+
+            pos += 2;
+
+            if (pos == end || buf[pos] != '<') {
+                error("Expected '<', found: " + found());
+                return null;
+            }
+
+            if ((datatype = parseURI()) == null)
+                return null;
+
+        }
+
+        return createLiteral(label, lang, datatype);
+
+    }
+
+    /**
+     * Decode a token as UTF-8 and resolve any escape sequences. Pure ASCII
+     * without escapes (the common case) is decoded directly.
+     *
+     * @return The decoded token -or- <code>null</code> if there was an error
+     *         and the line is to be skipped.
+     */
+    private String decode(final int from, final int to)
+            throws RDFParseException {
+
+        boolean ascii = true;
+        boolean escaped = false;
+
+        for (int i = from; i < to; i++) {
+            final byte b = buf[i];
+            if (b < 0)
+                ascii = false;
+            else if (b == '\\')
+                escaped = true;
+        }
+
+        final String s = new String(buf, from, to - from, ascii ? ASCII : UTF8);
+
+        if (!escaped)
+            return s;
+
+        try {
+            return NTriplesUtil.unescapeString(s);
+        } catch (IllegalArgumentException ex) {
+            error(ex.getMessage());
+            return null;
+        }
+
+    }
+
+    /*
+     * Term cache.
+     */
+
+    private int slot(final int from, final int to) {
+
+        int h = 0;
+        for (int i = from; i < to; i++)
+            h = 31 * h + buf[i];
+
+        h ^= (h >>> 16);
+
+        return h & (TERM_CACHE_SIZE - 1);
+
+    }
+
+    private Value getCachedValue(final int from, final int to) {
+
+        final int slot = slot(from, to);
+
+        final byte[] key = cacheKeys[slot];
+
+        if (key == null || key.length != to - from)
+            return null;
+
+        for (int i = 0, j = from; j < to; i++, j++) {
+            if (key[i] != buf[j])
+                return null;
+        }
+
+        return cacheVals[slot];
+
+    }
+
+    private void putCachedValue(final int from, final int to, final Value v) {
+
+        final int slot = slot(from, to);
+
+        cacheKeys[slot] = Arrays.copyOfRange(buf, from, to);
+
+        cacheVals[slot] = v;
+
+    }
+
+    /*
+     * Error reporting.
+     */
+
+    private String found() {
+
+        return found(pos);
+
+    }
+
+    private String found(final int i) {
+
+        return i < end ? "'" + (char) (buf[i] & 0xff) + "'" : "end of line";
+
+    }
+
+    /**
+     * Report a syntax error against the current line and column. This throws
+     * an {@link RDFParseException} unless
+     * {@link NTriplesParserSettings#FAIL_ON_NTRIPLES_INVALID_LINES} is
+     * disabled, in which case the caller skips the line.
+     */
+    private void error(final String msg) throws RDFParseException {
+
+        reportError(msg, lineNo, pos - lineStart + 1,
+                NTriplesParserSettings.FAIL_ON_NTRIPLES_INVALID_LINES);
+
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+
+package com.bigdata.rdf.rio.ntriples;
+
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.RDFParserFactory;
+
+/**
+ * An {@link RDFParserFactory} for the byte-level {@link BigdataNQuadsParser}.
+ * <p>
+ * Note: This factory is not registered by default, so the openrdf N-Quads
+ * parser is used for {@link RDFFormat#NQUADS}. Either use this factory
+ * explicitly or set the system property
+ * <code>com.bigdata.rdf.ServiceProviderHook.useBigdataNQuadsParser</code> to
+ * <code>true</code> to register it for all code paths.
+ */
+public class BigdataNQuadsParserFactory implements RDFParserFactory {
+
+    /**
+     * Returns {@link RDFFormat#NQUADS}.
+     */
+    @Override
+    public RDFFormat getRDFFormat() {
+        return RDFFormat.NQUADS;
+    }
+
+    /**
+     * Returns a new instance of {@link BigdataNQuadsParser}.
+     */
+    @Override
+    public RDFParser getParser() {
+        return new BigdataNQuadsParser();
+    }
+
+}
@@ -33,6 +33,7 @@ import com.bigdata.rdf.axioms.NoAxioms;
 import com.bigdata.rdf.axioms.RdfsAxioms;
 import com.bigdata.rdf.inf.BackchainTypeResourceIterator;
 import com.bigdata.rdf.inf.ClosureStats;
+import com.bigdata.rdf.inf.DRedTruthMaintenance;
 import com.bigdata.rdf.inf.Justification;
 import com.bigdata.rdf.inf.TruthMaintenance;
 import com.bigdata.rdf.store.AbstractTripleStore;
@@ -43,6 +44,7 @@ import com.bigdata.relation.rule.Program;
 import com.bigdata.relation.rule.eval.ActionEnum;
 import com.bigdata.relation.rule.eval.IJoinNexus;
 import com.bigdata.relation.rule.eval.IJoinNexusFactory;
+import com.bigdata.service.IBigdataFederation;
 
 /**
  * Flyweight object encapsulates some configuration state and provides methods
@@ -277,6 +279,46 @@ public class InferenceEngine {
 
         String DEFAULT_ENABLE_OWL_FUNCTIONAL_AND_INVERSE_FUNCTIONAL_PROPERTY = "true";
 
+        /**
+         * When <code>true</code> (default {@value #DEFAULT_SEMI_NAIVE_CLOSURE})
+         * database-at-once closure is computed on the query engine using
+         * semi-naive evaluation of the closure program. Each round of a fixed
+         * point only joins the statements added by the last round against the
+         * database and independent rules are evaluated concurrently. The
+         * entailments are the same as those computed by the legacy rule
+         * execution layer. This option does not change how truth maintenance
+         * closes a focus store against the database and it is ignored for
+         * scale-out.
+         * 
+         * @see SemiNaiveClosureTask
+         */
+        String SEMI_NAIVE_CLOSURE = InferenceEngine.class.getName()
+                + ".semiNaiveClosure";
+
+        String DEFAULT_SEMI_NAIVE_CLOSURE = "false";
+
+        /**
+         * When <code>true</code> (default
+         * {@value #DEFAULT_DRED_TRUTH_MAINTENANCE}) incremental truth
+         * maintenance uses the Delete/Re-derive algorithm. Retraction
+         * over-deletes the closure of the retracted statements and then
+         * re-derives those statements which are still entailed, so the
+         * justifications index is not required.
+         * {@link AbstractTripleStore.Options#JUSTIFY} MUST be
+         * <code>false</code> since the justifications are not maintained (an
+         * {@link UnsupportedOperationException} is thrown by
+         * {@link #newTruthMaintenance()} otherwise). The entailments are the
+         * same as those maintained using the justification chains. This option
+         * is ignored for scale-out.
+         * 
+         * @see DRedTruthMaintenance
+         * @see #newTruthMaintenance()
+         */
+        String DRED_TRUTH_MAINTENANCE = InferenceEngine.class.getName()
+                + ".dredTruthMaintenance";
+
+        String DEFAULT_DRED_TRUTH_MAINTENANCE = "false";
+
     }
 
     /**
@@ -416,6 +458,20 @@ public class InferenceEngine {
         doNotAddFilter = new DoNotAddFilter(database.getVocabulary(), database
                 .getAxioms(), forwardChainRdfTypeRdfsResource);
 
+        this.semiNaiveClosure = Boolean.parseBoolean(properties.getProperty(
+                Options.SEMI_NAIVE_CLOSURE, Options.DEFAULT_SEMI_NAIVE_CLOSURE));
+
+        if (INFO)
+            log.info(Options.SEMI_NAIVE_CLOSURE + "=" + semiNaiveClosure);
+
+        this.dredTruthMaintenance = Boolean.parseBoolean(properties
+                .getProperty(Options.DRED_TRUTH_MAINTENANCE,
+                        Options.DEFAULT_DRED_TRUTH_MAINTENANCE));
+
+        if (INFO)
+            log.info(Options.DRED_TRUTH_MAINTENANCE + "="
+                    + dredTruthMaintenance);
+
     }
     
     /**
@@ -508,6 +564,37 @@ public class InferenceEngine {
      * owl:InverseFunctionalProperty.
      */
     final protected boolean enableOwlFunctionalAndInverseFunctionalProperty;
+
+    /**
+     * Set based on {@link Options#SEMI_NAIVE_CLOSURE}. When <code>true</code>,
+     * database-at-once closure is computed by the {@link SemiNaiveClosureTask}.
+     */
+    final protected boolean semiNaiveClosure;
+
+    /**
+     * Set based on {@link Options#DRED_TRUTH_MAINTENANCE}. When
+     * <code>true</code>, {@link #newTruthMaintenance()} returns a
+     * {@link DRedTruthMaintenance}.
+     */
+    final protected boolean dredTruthMaintenance;
+
+    /**
+     * Return a new object which may be used to maintain the closure of the
+     * database as statements are asserted or retracted. The truth maintenance
+     * algorithm is selected by {@link Options#DRED_TRUTH_MAINTENANCE}.
+     */
+    public TruthMaintenance newTruthMaintenance() {
+
+        if (dredTruthMaintenance
+                && !(database.getIndexManager() instanceof IBigdataFederation<?>)) {
+
+            return new DRedTruthMaintenance(this);
+
+        }
+
+        return new TruthMaintenance(this);
+
+    }
     
     /**
      * Compute the forward closure of a focusStore against the database using
@@ -623,7 +710,19 @@ public class InferenceEngine {
             final IJoinNexus joinNexus = joinNexusFactory.newInstance(database
                     .getIndexManager());
 
-            final long mutationCount = joinNexus.runMutation(program);
+            final long mutationCount;
+
+            if (semiNaiveClosure && focusStore == null
+                    && !(database.getIndexManager() instanceof IBigdataFederation<?>)) {
+
+                mutationCount = new SemiNaiveClosureTask(database, program,
+                        joinNexus, doNotAddFilter, justify).call();
+
+            } else {
+
+                mutationCount = joinNexus.runMutation(program);
+
+            }
 
             final long elapsed = System.currentTimeMillis() - begin;
 
@@ -0,0 +1,361 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rules;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.bop.join.PipelineJoin;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPO;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.relation.rule.IProgram;
+import com.bigdata.relation.rule.IRule;
+import com.bigdata.relation.rule.IStep;
+import com.bigdata.relation.rule.eval.IJoinNexus;
+import com.bigdata.service.IBigdataFederation;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Identifies which of a set of candidate statements can be derived in one step
+ * from the statements in the database. This is the re-derivation step of
+ * Delete/Re-derive (DRed) truth maintenance.
+ * <p>
+ * For each rule, the candidates are unified with the head of the rule. The
+ * resulting solutions bind the variables of the head and are fed into a
+ * pipeline of {@link PipelineJoin}s over all tails of the rule (see
+ * {@link SemiNaiveClosureTask}). Each solution which survives the joins proves
+ * the candidate which it was unified with. The rules are evaluated
+ * concurrently on the {@link QueryEngine}.
+ * <p>
+ * The {@link AbstractRuleDistinctTermScan} rules (e.g., {@link RuleRdf01} and
+ * {@link RuleRdfs04a}) have a single tail and declare their own
+ * {@link IRule#getTaskFactory() task factory}. For those rules, a candidate is
+ * proven iff the access path for the tail is non-empty once the variable bound
+ * by the head is replaced by its binding.
+ * <p>
+ * Note: The other rules must be able to be compiled onto the
+ * {@link QueryEngine}. This is true of the rules in the {@link FullClosure}
+ * program, but not of the rules in the {@link FastClosure} program which
+ * declare their own {@link IRule#getTaskFactory() task factory}.
+ * <p>
+ * Note: This is only supported for a local (non-scale-out) database.
+ */
+public class RederivationTask implements Callable<ISPO[]> {
+
+    private static final transient Logger log = Logger
+            .getLogger(RederivationTask.class);
+
+    /** The database on which the rules will read. */
+    private final AbstractTripleStore db;
+
+    private final SPORelation spoRelation;
+
+    /** The rules. */
+    private final List<IRule<?>> rules;
+
+    /** Used to obtain the range counts for the join ordering. */
+    private final IJoinNexus joinNexus;
+
+    /** The candidate statements. */
+    private final ISPO[] candidates;
+
+    private final QueryEngine queryEngine;
+
+    /**
+     * @param db
+     *            The database on which the rules will read. This MUST be the
+     *            unisolated view of a local database.
+     * @param program
+     *            A program whose steps are all rules.
+     * @param joinNexus
+     *            Used to obtain the range counts for the join ordering.
+     * @param candidates
+     *            The candidate statements.
+     *
+     * @throws UnsupportedOperationException
+     *             if some step of the program is not a rule or if some rule
+     *             other than an {@link AbstractRuleDistinctTermScan} declares
+     *             its own {@link IRule#getTaskFactory() task factory}.
+     */
+    public RederivationTask(final AbstractTripleStore db,
+            final IProgram program, final IJoinNexus joinNexus,
+            final ISPO[] candidates) {
+
+        if (db == null)
+            throw new IllegalArgumentException();
+
+        if (program == null)
+            throw new IllegalArgumentException();
+
+        if (joinNexus == null)
+            throw new IllegalArgumentException();
+
+        if (candidates == null)
+            throw new IllegalArgumentException();
+
+        if (db.getIndexManager() instanceof IBigdataFederation<?>)
+            throw new UnsupportedOperationException();
+
+        this.rules = new ArrayList<IRule<?>>(program.stepCount());
+
+        final Iterator<IStep> itr = program.steps();
+
+        while (itr.hasNext()) {
+
+            final IStep step = itr.next();
+
+            if (!step.isRule())
+                throw new UnsupportedOperationException(step.getName());
+
+            if (((IRule<?>) step).getTaskFactory() != null
+                    && !(step instanceof AbstractRuleDistinctTermScan))
+                throw new UnsupportedOperationException(step.getName());
+
+            rules.add((IRule<?>) step);
+
+        }
+
+        this.db = db;
+
+        this.spoRelation = db.getSPORelation();
+
+        this.joinNexus = joinNexus;
+
+        this.candidates = candidates;
+
+        this.queryEngine = QueryEngineFactory.getInstance().getQueryController(
+                db.getIndexManager());
+
+    }
+
+    /**
+     * @return The distinct candidates which are derivable in one step from the
+     *         statements in the database.
+     */
+    @Override
+    public ISPO[] call() throws Exception {
+
+        final long begin = System.currentTimeMillis();
+
+        final List<RuleTask> tasks = new LinkedList<RuleTask>();
+
+        for (IRule<?> rule : rules) {
+
+            final IBindingSet[] source = SemiNaiveClosureTask.unify(
+                    rule.getHead(), null/* constraints */, candidates);
+
+            if (source.length > 0)
+                tasks.add(new RuleTask(rule, source));
+
+        }
+
+        if (tasks.isEmpty())
+            return new ISPO[0];
+
+        final Set<SPO> derived = new LinkedHashSet<SPO>();
+
+        final List<Future<RuleTask>> futures = db.getIndexManager()
+                .getExecutorService().invokeAll(tasks);
+
+        for (Future<RuleTask> f : futures) {
+
+            derived.addAll(f.get().derived);
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("candidates=" + candidates.length + ", rederived="
+                    + derived.size() + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return derived.toArray(new ISPO[derived.size()]);
+
+    }
+
+    /**
+     * Evaluates a rule for the candidates which were unified with its head.
+     */
+    private class RuleTask implements Callable<RuleTask> {
+
+        private final IRule<?> rule;
+
+        private final IBindingSet[] source;
+
+        /** The distinct candidates which were proven by the rule. */
+        final Set<SPO> derived = new LinkedHashSet<SPO>();
+
+        RuleTask(final IRule<?> rule, final IBindingSet[] source) {
+
+            this.rule = rule;
+
+            this.source = source;
+
+        }
+
+        @Override
+        public RuleTask call() throws Exception {
+
+            if (rule instanceof AbstractRuleDistinctTermScan) {
+
+                return distinctTermScan();
+
+            }
+
+            // The variables bound by the head.
+            final List<IVariable<?>> vars = new ArrayList<IVariable<?>>();
+            final Iterator<IVariable<?>> vitr = BOpUtility
+                    .getArgumentVariables(rule.getHead());
+            while (vitr.hasNext()) {
+                vars.add(vitr.next());
+            }
+
+            final PipelineOp query = SemiNaiveClosureTask.newJoinPlan(db,
+                    joinNexus, rule, -1/* tailIndex */,
+                    vars.toArray(new IVariable[vars.size()]));
+
+            if (query == null) {
+
+                // Some tail has an empty access path.
+                return this;
+
+            }
+
+            final IRunningQuery runningQuery = queryEngine.eval(
+                    UUID.randomUUID(), query, null/* attributes */, source);
+
+            try {
+
+                final ICloseableIterator<IBindingSet[]> itr = runningQuery
+                        .iterator();
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        for (IBindingSet bset : itr.next()) {
+
+                            final SPO spo = spoRelation.newElement(rule
+                                    .getHead().args(), bset);
+
+                            if (spo.isFullyBound())
+                                derived.add(spo);
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+                // Check the Future for an error.
+                runningQuery.get();
+
+            } finally {
+
+                runningQuery.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("rule=" + rule.getName() + ", candidates="
+                        + source.length + ", rederived=" + derived.size());
+
+            return this;
+
+        }
+
+        /**
+         * Evaluate an {@link AbstractRuleDistinctTermScan} rule. Each
+         * candidate is proven iff there is some statement matching the tail
+         * once the variable bound by the head is replaced by its binding.
+         */
+        @SuppressWarnings("rawtypes")
+        private RuleTask distinctTermScan() {
+
+            final IPredicate<?> tail = rule.getTail(0);
+
+            for (IBindingSet bset : source) {
+
+                final IPredicate<?> pred = tail.asBound(bset);
+
+                // Note: The triple pattern (the rules do not bind the context).
+                final IV[] a = new IV[3];
+
+                for (int j = 0; j < 3; j++) {
+
+                    final IVariableOrConstant<?> t = pred.get(j);
+
+                    if (t.isConstant())
+                        a[j] = (IV) t.get();
+
+                }
+
+                if (spoRelation.getAccessPath(a[0], a[1], a[2], null/* c */)
+                        .isEmpty())
+                    continue;
+
+                final SPO spo = spoRelation.newElement(
+                        rule.getHead().args(), bset);
+
+                if (spo.isFullyBound())
+                    derived.add(spo);
+
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("rule=" + rule.getName() + ", candidates="
+                        + source.length + ", rederived=" + derived.size());
+
+            return this;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,1033 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.bop.join.PipelineJoin;
+import com.bigdata.bop.joinGraph.IEvaluationPlan;
+import com.bigdata.bop.joinGraph.PartitionedJoinGroup;
+import com.bigdata.bop.joinGraph.fast.DefaultEvaluationPlan2;
+import com.bigdata.rdf.inf.Justification;
+import com.bigdata.rdf.inf.JustificationIterator;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.ModifiedEnum;
+import com.bigdata.rdf.spo.SPO;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.relation.accesspath.IElementFilter;
+import com.bigdata.relation.rule.IProgram;
+import com.bigdata.relation.rule.IRule;
+import com.bigdata.relation.rule.IStep;
+import com.bigdata.relation.rule.eval.IJoinNexus;
+import com.bigdata.service.IBigdataFederation;
+import com.bigdata.striterator.ChunkedArrayIterator;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Semi-naive evaluation of a closure program on the {@link QueryEngine}. This
+ * is an alternative to running the program on the legacy rule execution layer
+ * ({@link IJoinNexus#runMutation(IStep)}) for database-at-once closure.
+ * <p>
+ * The program is walked in the same order as the legacy layer would execute
+ * it. Each {@link IRule} is compiled into a pipeline of {@link PipelineJoin}s
+ * over its tail predicates which runs as a query on the {@link QueryEngine}.
+ * The rules for a parallel step (and the rules in each round of a closure
+ * step) are submitted together, so independent rules run concurrently. The
+ * entailments are buffered on a {@link TempTripleStore} and written onto the
+ * database once all rules for that step (or round) are done, which is when the
+ * legacy layer flushes its buffers as well.
+ * <p>
+ * A closure step is computed using semi-naive evaluation. The first round
+ * evaluates each rule against the database. Each later round only considers
+ * the derivations which use at least one statement that was new in the last
+ * round (the delta). For each rule and each tail predicate which can match a
+ * statement in the delta, the delta statements are unified with that tail and
+ * the resulting solutions are fed into a pipeline which joins the remaining
+ * tails against the full database. The fixed point is reached when a round
+ * does not add any statements. This computes the same fixed point as the
+ * legacy layer while avoiding the re-evaluation of each rule against the full
+ * database in each round.
+ * <p>
+ * Rules which declare their own {@link IRule#getTaskFactory() task factory}
+ * (e.g., the fast closure rules for steps 3, 5, 6, 7 and 9 and the distinct
+ * term scan rules) can not be compiled. They are run on the legacy layer. A
+ * closure step containing such a rule is run on the legacy layer as a whole.
+ * Rules having a tail predicate with an access path expander, an access path
+ * filter, or an optional tail are evaluated against the full database in each
+ * round rather than against the delta.
+ * <p>
+ * Note: The entailments and the delta for each round are buffered on
+ * {@link TempTripleStore}s backed by the temporary store of the database (as
+ * for truth maintenance) and the delta is unified with the rules one chunk at
+ * a time, so the heap demand does not grow with the size of a round.
+ * <p>
+ * Note: This is only supported for a local (non-scale-out) database. The
+ * rules read on the unisolated view of the database, so the caller MUST hold
+ * the write lock for the database.
+ *
+ * @see InferenceEngine.Options#SEMI_NAIVE_CLOSURE
+ */
+public class SemiNaiveClosureTask implements Callable<Long> {
+
+    private static final transient Logger log = Logger
+            .getLogger(SemiNaiveClosureTask.class);
+
+    /** The database whose closure is being computed. */
+    private final AbstractTripleStore db;
+
+    private final SPORelation spoRelation;
+
+    /** The closure program. */
+    private final IStep program;
+
+    /**
+     * Used to run the rules which can not be compiled and to obtain the range
+     * counts for the join ordering.
+     */
+    private final IJoinNexus joinNexus;
+
+    /** The filter for the entailments (optional). */
+    private final IElementFilter<ISPO> filter;
+
+    /** <code>true</code> iff justifications will be written. */
+    private final boolean justify;
+
+    private final QueryEngine queryEngine;
+
+    /** The #of statements written on the database. */
+    private long mutationCount = 0L;
+
+    /**
+     * @param db
+     *            The database whose closure will be computed. This MUST be the
+     *            unisolated view of a local database.
+     * @param program
+     *            The closure program (for database-at-once closure).
+     * @param joinNexus
+     *            The {@link IJoinNexus} for the insert operation (as used by
+     *            the legacy rule execution layer).
+     * @param filter
+     *            An optional filter on the entailments.
+     * @param justify
+     *            <code>true</code> iff {@link Justification}s will be written
+     *            for the entailments.
+     */
+    public SemiNaiveClosureTask(final AbstractTripleStore db,
+            final IStep program, final IJoinNexus joinNexus,
+            final IElementFilter<ISPO> filter, final boolean justify) {
+
+        if (db == null)
+            throw new IllegalArgumentException();
+
+        if (program == null)
+            throw new IllegalArgumentException();
+
+        if (joinNexus == null)
+            throw new IllegalArgumentException();
+
+        if (db.getIndexManager() instanceof IBigdataFederation<?>)
+            throw new UnsupportedOperationException();
+
+        this.db = db;
+
+        this.spoRelation = db.getSPORelation();
+
+        this.program = program;
+
+        this.joinNexus = joinNexus;
+
+        this.filter = filter;
+
+        this.justify = justify;
+
+        this.queryEngine = QueryEngineFactory.getInstance().getQueryController(
+                db.getIndexManager());
+
+    }
+
+    /**
+     * Compute the closure.
+     *
+     * @return The #of statements written on the database.
+     */
+    @Override
+    public Long call() throws Exception {
+
+        final long begin = System.currentTimeMillis();
+
+        apply(program);
+
+        if (log.isInfoEnabled())
+            log.info("program=" + program.getName() + ", mutationCount="
+                    + mutationCount + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return mutationCount;
+
+    }
+
+    /**
+     * Apply a step of the program.
+     */
+    private void apply(final IStep step) throws Exception {
+
+        if (step.isRule()) {
+
+            close(round(Arrays.asList((IRule<?>) step), null/* delta */));
+
+            return;
+
+        }
+
+        final IProgram p = (IProgram) step;
+
+        final List<IRule<?>> rules = getRules(p);
+
+        if (p.isClosure()) {
+
+            if (rules == null)
+                throw new UnsupportedOperationException(
+                        "Closure of a program which is not a set of rules: "
+                                + p.getName());
+
+            for (IRule<?> r : rules) {
+
+                if (r.getTaskFactory() != null) {
+
+                    if (log.isInfoEnabled())
+                        log.info("Using the legacy rule execution layer: rule="
+                                + r.getName() + ", program=" + p.getName());
+
+                    mutationCount += joinNexus.runMutation(p);
+
+                    return;
+
+                }
+
+            }
+
+            fixPoint(p, rules);
+
+            return;
+
+        }
+
+        if (p.isParallel() && rules != null) {
+
+            close(round(rules, null/* delta */));
+
+            return;
+
+        }
+
+        // A sequential program: the writes for each step are visible to the
+        // next step.
+        final Iterator<IStep> itr = p.steps();
+
+        while (itr.hasNext()) {
+
+            apply(itr.next());
+
+        }
+
+    }
+
+    /**
+     * Return the steps of the program iff they are all rules.
+     *
+     * @return The rules -or- <code>null</code> if some step is not a rule.
+     */
+    private static List<IRule<?>> getRules(final IProgram p) {
+
+        final List<IRule<?>> rules = new ArrayList<IRule<?>>(p.stepCount());
+
+        final Iterator<IStep> itr = p.steps();
+
+        while (itr.hasNext()) {
+
+            final IStep step = itr.next();
+
+            if (!step.isRule())
+                return null;
+
+            rules.add((IRule<?>) step);
+
+        }
+
+        return rules;
+
+    }
+
+    /**
+     * Compute the fixed point of a set of rules using semi-naive evaluation.
+     */
+    private void fixPoint(final IProgram p, final List<IRule<?>> rules)
+            throws Exception {
+
+        final long begin = System.currentTimeMillis();
+
+        final long mutationCount0 = mutationCount;
+
+        // The first round is evaluated against the full database.
+        TempTripleStore delta = round(rules, null/* delta */);
+
+        int nrounds = 1;
+
+        try {
+
+            while (delta != null) {
+
+                if (log.isDebugEnabled())
+                    log.debug("program=" + p.getName() + ", round=" + nrounds
+                            + ", delta=" + delta.getStatementCount());
+
+                final TempTripleStore tmp = delta;
+
+                delta = null;
+
+                try {
+
+                    delta = round(rules, tmp);
+
+                } finally {
+
+                    tmp.close();
+
+                }
+
+                nrounds++;
+
+            }
+
+        } finally {
+
+            close(delta);
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("Computed fixed point: program=" + p.getName()
+                    + ", rounds=" + nrounds + ", mutationCount="
+                    + (mutationCount - mutationCount0) + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+    }
+
+    /**
+     * Return a new {@link TempTripleStore} on which the entailments (or the
+     * delta) for a round will be buffered.
+     *
+     * @see com.bigdata.rdf.inf.TruthMaintenance#newTempTripleStore()
+     */
+    private TempTripleStore newTempTripleStore() {
+
+        final Properties properties = db.getProperties();
+
+        // turn off the lexicon since we will only use the statement indices.
+        properties.setProperty(AbstractTripleStore.Options.LEXICON, "false");
+
+        properties.setProperty(AbstractTripleStore.Options.BLOOM_FILTER,
+                "false");
+
+        return new TempTripleStore(db.getIndexManager().getTempStore(),
+                properties, db);
+
+    }
+
+    /**
+     * Close a {@link TempTripleStore} (if non-<code>null</code>).
+     */
+    private static void close(final TempTripleStore tempStore) {
+
+        if (tempStore != null)
+            tempStore.close();
+
+    }
+
+    /**
+     * Evaluate a set of rules in parallel and then write the entailments onto
+     * the database.
+     *
+     * @param rules
+     *            The rules.
+     * @param delta
+     *            The statements which were added by the last round of a
+     *            closure operation -or- <code>null</code> to evaluate the
+     *            rules against the full database.
+     *
+     * @return The statements which were added to the database -or-
+     *         <code>null</code> if no statements were added. The caller is
+     *         responsible for closing the returned store.
+     */
+    private TempTripleStore round(final List<IRule<?>> rules,
+            final TempTripleStore delta) throws Exception {
+
+        // The entailments for this round.
+        final TempTripleStore entailments = newTempTripleStore();
+
+        try {
+
+            final List<RuleTask> tasks = new LinkedList<RuleTask>();
+
+            for (IRule<?> rule : rules) {
+
+                if (rule.getTaskFactory() != null) {
+
+                    /*
+                     * Note: Only for a step which is not a closure operation,
+                     * so there is no delta to report.
+                     */
+
+                    mutationCount += joinNexus.runMutation(rule);
+
+                    continue;
+
+                }
+
+                if (delta == null || !isSemiNaive(rule)) {
+
+                    tasks.add(new RuleTask(rule, -1/* tailIndex */,
+                            null/* source */, entailments));
+
+                }
+
+            }
+
+            run(tasks);
+
+            if (delta != null) {
+
+                // Unify the delta with the rules, one chunk at a time.
+                final IChunkedOrderedIterator<ISPO> itr = delta
+                        .getAccessPath(
+                                delta.getSPORelation().getPrimaryKeyOrder(),
+                                null/* filter */).iterator();
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        final ISPO[] chunk = itr.nextChunk();
+
+                        tasks.clear();
+
+                        for (IRule<?> rule : rules) {
+
+                            if (!isSemiNaive(rule))
+                                continue;
+
+                            for (int i = 0; i < rule.getTailCount(); i++) {
+
+                                final IBindingSet[] source = unify(rule, i,
+                                        chunk);
+
+                                if (source.length > 0)
+                                    tasks.add(new RuleTask(rule, i, source,
+                                            entailments));
+
+                            }
+
+                        }
+
+                        run(tasks);
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+            }
+
+            return write(entailments);
+
+        } finally {
+
+            entailments.close();
+
+        }
+
+    }
+
+    /**
+     * Run the tasks in parallel, checking each for an error.
+     */
+    private void run(final List<RuleTask> tasks) throws Exception {
+
+        if (tasks.isEmpty())
+            return;
+
+        final List<Future<RuleTask>> futures = db.getIndexManager()
+                .getExecutorService().invokeAll(tasks);
+
+        for (Future<RuleTask> f : futures) {
+
+            f.get();
+
+        }
+
+    }
+
+    /**
+     * Write the entailments (and their justifications) onto the database.
+     *
+     * @param entailments
+     *            The store on which the entailments were buffered.
+     *
+     * @return The entailments which were not already in the database -or-
+     *         <code>null</code> if there are no such entailments.
+     */
+    private TempTripleStore write(final TempTripleStore entailments) {
+
+        TempTripleStore added = null;
+
+        final IChunkedOrderedIterator<ISPO> itr = entailments.getAccessPath(
+                entailments.getSPORelation().getPrimaryKeyOrder(),
+                null/* filter */).iterator();
+
+        try {
+
+            while (itr.hasNext()) {
+
+                final ISPO[] a = itr.nextChunk();
+
+                // Note: the filter was already applied.
+                spoRelation.insert(a, a.length, null/* filter */);
+
+                final ISPO[] b = new ISPO[a.length];
+
+                int n = 0;
+
+                for (ISPO spo : a) {
+
+                    if (spo.getModified() == ModifiedEnum.INSERTED)
+                        b[n++] = spo;
+
+                }
+
+                if (n == 0)
+                    continue;
+
+                if (added == null)
+                    added = newTempTripleStore();
+
+                added.getSPORelation().insert(b, n, null/* filter */);
+
+                mutationCount += n;
+
+            }
+
+        } catch (RuntimeException ex) {
+
+            close(added);
+
+            throw ex;
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        if (justify) {
+
+            spoRelation.addJustifications(new JustificationIterator(
+                    entailments.getIndexManager(), entailments
+                            .getSPORelation().getJustificationIndex(), 0/* capacity */));
+
+        }
+
+        return added;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the rule can be evaluated against the
+     * delta. This is not possible if a tail predicate has an access path
+     * expander, an access path filter or is optional since the delta can not
+     * be unified with such a tail without reading on its access path.
+     */
+    private static boolean isSemiNaive(final IRule<?> rule) {
+
+        for (int i = 0; i < rule.getTailCount(); i++) {
+
+            final IPredicate<?> pred = rule.getTail(i);
+
+            if (pred.isOptional() || pred.getAccessPathExpander() != null
+                    || pred.getIndexLocalFilter() != null
+                    || pred.getAccessPathFilter() != null)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Unify the delta with a tail predicate of a rule. Each statement which is
+     * consistent with the constants in the predicate (and with a variable
+     * which appears more than once in the predicate) gives a solution which
+     * binds the variables of that predicate.
+     *
+     * @return The solutions.
+     */
+    private static IBindingSet[] unify(final IRule<?> rule,
+            final int tailIndex, final ISPO[] delta) {
+
+        // There is no join on which to check the constraints.
+        final boolean lastTail = rule.getTailCount() == 1;
+
+        return unify(rule.getTail(tailIndex),
+                lastTail ? getConstraints(rule) : null, delta);
+
+    }
+
+    /**
+     * Unify statements with a predicate. Each statement which is consistent
+     * with the constants in the predicate (and with a variable which appears
+     * more than once in the predicate) gives a solution which binds the
+     * variables of that predicate.
+     * 
+     * @param pred
+     *            The predicate (a tail or the head of a rule).
+     * @param constraints
+     *            The constraints to check against each solution (optional).
+     * @param stmts
+     *            The statements.
+     * 
+     * @return The solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static IBindingSet[] unify(final IPredicate<?> pred,
+            final IConstraint[] constraints, final ISPO[] stmts) {
+
+        // Note: The triple pattern (any context position is ignored).
+        final int arity = Math.min(3, pred.arity());
+
+        final List<IBindingSet> solutions = new LinkedList<IBindingSet>();
+
+        next: for (ISPO spo : stmts) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            for (int j = 0; j < arity; j++) {
+
+                final IVariableOrConstant<?> t = pred.get(j);
+
+                final IV<?, ?> iv = spo.get(j);
+
+                if (t.isConstant()) {
+
+                    if (!iv.equals(t.get()))
+                        continue next;
+
+                } else {
+
+                    final IVariable var = (IVariable) t;
+
+                    final IConstant<?> c = bset.get(var);
+
+                    if (c == null) {
+
+                        bset.set(var, new Constant<IV>(iv));
+
+                    } else if (!c.get().equals(iv)) {
+
+                        continue next;
+
+                    }
+
+                }
+
+            }
+
+            if (constraints != null) {
+
+                for (IConstraint c : constraints) {
+
+                    if (!c.accept(bset))
+                        continue next;
+
+                }
+
+            }
+
+            solutions.add(bset);
+
+        }
+
+        return solutions.toArray(new IBindingSet[solutions.size()]);
+
+    }
+
+    /**
+     * Return the constraints for the rule.
+     *
+     * @return The constraints -or- <code>null</code> if there are none.
+     */
+    static IConstraint[] getConstraints(final IRule<?> rule) {
+
+        if (rule.getConstraintCount() == 0)
+            return null;
+
+        final List<IConstraint> list = new ArrayList<IConstraint>();
+
+        final Iterator<IConstraint> itr = rule.getConstraints();
+
+        while (itr.hasNext()) {
+
+            list.add(itr.next());
+
+        }
+
+        return list.toArray(new IConstraint[list.size()]);
+
+    }
+
+    /**
+     * Compile a rule into a pipeline of {@link PipelineJoin}s.
+     *
+     * @param rule
+     *            The rule.
+     * @param tailIndex
+     *            The index of the tail predicate which was unified with the
+     *            delta and is therefore not joined -or- <code>-1</code> to
+     *            join all tails.
+     *
+     * @return The query plan -or- <code>null</code> if there is nothing to
+     *         join (the rule has a single tail which was unified with the
+     *         delta) or if the rule can not produce any solutions.
+     */
+    private PipelineOp newJoinPlan(final IRule<?> rule, final int tailIndex) {
+
+        // The variables bound by the delta.
+        final IVariable<?>[] knownBound;
+        if (tailIndex == -1) {
+            knownBound = null;
+        } else {
+            final List<IVariable<?>> vars = new ArrayList<IVariable<?>>();
+            final Iterator<IVariable<?>> itr = BOpUtility
+                    .getArgumentVariables(rule.getTail(tailIndex));
+            while (itr.hasNext()) {
+                vars.add(itr.next());
+            }
+            knownBound = vars.toArray(new IVariable[vars.size()]);
+        }
+
+        return newJoinPlan(db, joinNexus, rule, tailIndex, knownBound);
+
+    }
+
+    /**
+     * Compile a rule into a pipeline of {@link PipelineJoin}s.
+     * 
+     * @param db
+     *            The database on which the joins will read.
+     * @param joinNexus
+     *            Used to obtain the range counts for the join ordering.
+     * @param rule
+     *            The rule.
+     * @param tailIndex
+     *            The index of a tail predicate which is not joined -or-
+     *            <code>-1</code> to join all tails.
+     * @param knownBound
+     *            The variables which are bound in the source solutions
+     *            (optional).
+     * 
+     * @return The query plan -or- <code>null</code> if there is nothing to
+     *         join or if the rule can not produce any solutions.
+     */
+    static PipelineOp newJoinPlan(final AbstractTripleStore db,
+            final IJoinNexus joinNexus, final IRule<?> rule,
+            final int tailIndex, final IVariable<?>[] knownBound) {
+
+        final IEvaluationPlan plan = new DefaultEvaluationPlan2(joinNexus,
+                rule);
+
+        if (tailIndex == -1 && plan.isEmpty()) {
+
+            // Some tail has an empty access path.
+            return null;
+
+        }
+
+        final List<IPredicate<?>> path = new ArrayList<IPredicate<?>>(
+                rule.getTailCount());
+
+        for (int i : plan.getOrder()) {
+
+            if (i != tailIndex)
+                path.add(rule.getTail(i));
+
+        }
+
+        if (path.isEmpty())
+            return null;
+
+        final IPredicate<?>[] preds = path.toArray(new IPredicate[path.size()]);
+
+        final IConstraint[][] constraints = PartitionedJoinGroup
+                .getJoinGraphConstraints(preds, getConstraints(rule),
+                        knownBound, true/* pathIsComplete */);
+
+        final long timestamp = db.getTimestamp();
+
+        int bopId = 1;
+
+        PipelineOp left = null;
+
+        for (int i = 0; i < preds.length; i++) {
+
+            final IPredicate<?> pred = (IPredicate<?>) preds[i].setBOpId(
+                    bopId++).setProperty(IPredicate.Annotations.TIMESTAMP,
+                    timestamp);
+
+            left = new PipelineJoin<ISPO>(left == null ? new BOp[0]
+                    : new BOp[] { left }, //
+                    new NV(BOp.Annotations.BOP_ID, bopId++),//
+                    new NV(PipelineJoin.Annotations.PREDICATE, pred),//
+                    new NV(PipelineJoin.Annotations.CONSTRAINTS,
+                            constraints[i])//
+            );
+
+        }
+
+        return left;
+
+    }
+
+    /**
+     * Evaluates a rule (or one semi-naive variant of a rule) and buffers the
+     * entailments on the {@link TempTripleStore} for the round.
+     */
+    private class RuleTask implements Callable<RuleTask> {
+
+        private final IRule<?> rule;
+
+        private final int tailIndex;
+
+        private final IBindingSet[] source;
+
+        /** The store on which the entailments are buffered. */
+        private final TempTripleStore entailments;
+
+        /** A chunk of entailments. */
+        private final SPO[] chunk = new SPO[joinNexus.getChunkCapacity()];
+
+        /** The justifications for the chunk (iff justifications are enabled). */
+        private final Justification[] justifications = justify ? new Justification[chunk.length]
+                : null;
+
+        /** The #of entailments in the chunk. */
+        private int n = 0;
+
+        /** The #of entailments generated. */
+        private long nentailments = 0L;
+
+        /**
+         * @param rule
+         *            The rule.
+         * @param tailIndex
+         *            The index of the tail which was unified with the delta
+         *            -or- <code>-1</code> to evaluate the rule against the full
+         *            database.
+         * @param source
+         *            The solutions from the unification of the delta with that
+         *            tail (iff <i>tailIndex</i> is not <code>-1</code>).
+         * @param entailments
+         *            The store on which the entailments will be buffered.
+         */
+        RuleTask(final IRule<?> rule, final int tailIndex,
+                final IBindingSet[] source, final TempTripleStore entailments) {
+
+            this.rule = rule;
+
+            this.tailIndex = tailIndex;
+
+            this.source = source;
+
+            this.entailments = entailments;
+
+        }
+
+        @Override
+        public RuleTask call() throws Exception {
+
+            final PipelineOp query = newJoinPlan(rule, tailIndex);
+
+            if (query == null) {
+
+                if (source != null) {
+
+                    for (IBindingSet bset : source) {
+
+                        accept(bset);
+
+                    }
+
+                    flush();
+
+                }
+
+                return this;
+
+            }
+
+            final IRunningQuery runningQuery = queryEngine.eval(
+                    UUID.randomUUID(), query, null/* attributes */,
+                    source == null ? new IBindingSet[] { new ListBindingSet() }
+                            : source);
+
+            try {
+
+                final ICloseableIterator<IBindingSet[]> itr = runningQuery
+                        .iterator();
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        for (IBindingSet bset : itr.next()) {
+
+                            accept(bset);
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+                // Check the Future for an error.
+                runningQuery.get();
+
+            } finally {
+
+                runningQuery.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+            flush();
+
+            if (log.isDebugEnabled())
+                log.debug("rule=" + rule.getName() + ", tailIndex="
+                        + tailIndex + ", nentailments=" + nentailments);
+
+            return this;
+
+        }
+
+        /**
+         * Generate the entailment for a solution.
+         */
+        private void accept(final IBindingSet bset) {
+
+            final SPO spo = spoRelation.newElement(rule.getHead().args(),
+                    bset);
+
+            if (!spo.isFullyBound())
+                return;
+
+            if (filter != null && !filter.isValid(spo))
+                return;
+
+            if (n == chunk.length)
+                flush();
+
+            if (justify)
+                justifications[n] = new Justification(rule, spo, bset);
+
+            chunk[n++] = spo;
+
+            nentailments++;
+
+        }
+
+        /**
+         * Write the buffered entailments (and their justifications) onto the
+         * {@link TempTripleStore} for the round.
+         */
+        private void flush() {
+
+            if (n == 0)
+                return;
+
+            // Note: The tasks for a round share the same store.
+            synchronized (entailments) {
+
+                entailments.getSPORelation().insert(chunk, n, null/* filter */);
+
+                if (justify) {
+
+                    entailments.getSPORelation().addJustifications(
+                            new ChunkedArrayIterator<Justification>(n,
+                                    justifications, null/* keyOrder */));
+
+                }
+
+            }
+
+            n = 0;
+
+        }
+
+    }
+
+}
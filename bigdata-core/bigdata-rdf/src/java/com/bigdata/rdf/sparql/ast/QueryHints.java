@@ -37,9 +37,13 @@ import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
 import com.bigdata.bop.join.HashJoinAnnotations;
+import com.bigdata.bop.join.JVMPrimitiveHashJoinUtility;
 import com.bigdata.bop.join.JoinAnnotations;
+import com.bigdata.bop.join.SolutionSetBloomFilter;
+import com.bigdata.bop.joinGraph.rto.JoinPathCache;
 import com.bigdata.htree.HTree;
 import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.internal.impl.TermId;
 import com.bigdata.rdf.sparql.ast.cache.CacheConnectionFactory;
 import com.bigdata.rdf.sparql.ast.hints.QueryHintRegistry;
 import com.bigdata.rdf.sparql.ast.hints.QueryHintScope;
@@ -152,6 +156,21 @@ public interface QueryHints {
 
     int DEFAULT_RTO_NEDGES = 1;
 
+    /**
+     * When <code>true</code>, the join path selected by the runtime query
+     * optimizer for a join graph is cached on the {@link QueryEngine} and
+     * later evaluations of the same join graph (e.g., when the query is run
+     * again) reuse that join path without sampling the data (default
+     * {@value #DEFAULT_RTO_REUSE_PATH}). A cached join path is dropped, and
+     * the join graph is sampled again by the next query, if the cardinalities
+     * observed when the join path is executed drift from the estimates.
+     * 
+     * @see JoinPathCache
+     */
+    String RTO_REUSE_PATH = "RTO-reusePath";
+
+    boolean DEFAULT_RTO_REUSE_PATH = false;
+
     /**
      * Query hint sets the optimistic threshold for the static join order
      * optimizer.
@@ -218,6 +237,24 @@ public interface QueryHints {
     boolean DEFAULT_ANALYTIC = Boolean.valueOf(System.getProperty(
             QueryHints.class.getName() + "." + ANALYTIC, "false"));
 
+    /**
+     * When <code>true</code>, the latency, input and queue depth distributions
+     * are recorded for each operator of the query and aggregated by query
+     * shape when the query is done (default
+     * {@value #DEFAULT_PROFILE_OPERATORS}). This may only be specified for the
+     * {@link QueryHintScope#Query} scope.
+     * <p>
+     * The effective default is determined by the system property
+     * {@value #PROFILE_OPERATORS}.
+     * 
+     * @see com.bigdata.bop.engine.OperatorProfile
+     * @see com.bigdata.bop.engine.QueryEngine.Annotations#PROFILE
+     */
+    String PROFILE_OPERATORS = "profileOperators";
+
+    boolean DEFAULT_PROFILE_OPERATORS = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + PROFILE_OPERATORS, "false"));
+
     /**
      * The maximum amount of native heap memory that may be allocated for a
      * single query when using the analytic query mode -or- ZERO (0L) if no
@@ -324,6 +361,44 @@ public interface QueryHints {
 
     boolean DEFAULT_NATIVE_HASH_JOINS = DEFAULT_ANALYTIC;
 
+    /**
+     * When <code>true</code> and the JVM hash index operations are in use
+     * (see {@link #NATIVE_HASH_JOINS}), a normal hash join on one or two join
+     * variables indexes the solutions whose join variables are bound to
+     * {@link TermId}s or inline integral values using primitive keys rather
+     * than the Java collection classes. This reduces the object overhead of
+     * large hash indices. The hash index is radix partitioned, so it is built
+     * in parallel and large chunks of solutions are partitioned the same way
+     * and probe the partitions in parallel. Other solutions are indexed as
+     * usual.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see JVMPrimitiveHashJoinUtility
+     */
+    String PRIMITIVE_HASH_JOINS = "primitiveHashJoins";
+
+    boolean DEFAULT_PRIMITIVE_HASH_JOINS = false;
+
+    /**
+     * When <code>true</code>, the solution set generated by a named subquery
+     * is summarized by a Bloom filter over the values of its join variables
+     * and each required statement pattern in a group which INCLUDEs that
+     * solution set drops the elements whose as-bound join variables can not
+     * appear in the solution set while it scans its access path
+     * (semi-join reduction). This avoids materializing intermediate solutions
+     * which would be discarded by the hash join against the named solution
+     * set. The filter is not built for very large solution sets and it turns
+     * itself off if it does not reject enough elements.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see SolutionSetBloomFilter
+     */
+    String BLOOM_FILTER_SEMI_JOINS = "bloomFilterSemiJoins";
+
+    boolean DEFAULT_BLOOM_FILTER_SEMI_JOINS = false;
+
     /**
      * When <code>true</code>, a merge-join pattern will be recognized if it
      * appears in a join group. When <code>false</code>, this can still be
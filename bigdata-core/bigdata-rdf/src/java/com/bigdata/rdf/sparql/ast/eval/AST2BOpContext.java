@@ -199,6 +199,14 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public IChunkHandler queryEngineChunkHandler = QueryHints.DEFAULT_QUERY_ENGINE_CHUNK_HANDLER;
 
+    /**
+     * When <code>true</code>, the latency and input distributions are recorded
+     * for each operator of the query.
+     * 
+     * @see QueryHints#PROFILE_OPERATORS
+     */
+    public boolean profileOperators = QueryHints.DEFAULT_PROFILE_OPERATORS;
+
     /**
      * 
      * When <code>true</code>, use hash index operations based on the
@@ -209,6 +217,25 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      * @see QueryHints#NATIVE_HASH_JOINS
      */
     public boolean nativeHashJoins = QueryHints.DEFAULT_NATIVE_HASH_JOINS;
+
+    /**
+     * When <code>true</code> and {@link #nativeHashJoins} is
+     * <code>false</code>, index solutions on primitive keys for normal hash
+     * joins where possible.
+     * 
+     * @see QueryHints#PRIMITIVE_HASH_JOINS
+     */
+    public boolean primitiveHashJoins = QueryHints.DEFAULT_PRIMITIVE_HASH_JOINS;
+
+    /**
+     * When <code>true</code>, the solution sets generated by named subqueries
+     * are summarized by Bloom filters which are used to drop elements from
+     * the access paths of the required statement patterns in the groups which
+     * INCLUDE those solution sets.
+     * 
+     * @see QueryHints#BLOOM_FILTER_SEMI_JOINS
+     */
+    public boolean bloomFilterSemiJoins = QueryHints.DEFAULT_BLOOM_FILTER_SEMI_JOINS;
     
     /**
      * When <code>true</code>, use pipelined hash join operations wherever
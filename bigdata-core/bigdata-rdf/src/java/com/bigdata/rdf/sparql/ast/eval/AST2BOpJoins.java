@@ -50,6 +50,7 @@ import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.ap.Predicate;
 import com.bigdata.bop.ap.filter.BOpFilterBase;
 import com.bigdata.bop.ap.filter.DistinctFilter;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
 import com.bigdata.bop.cost.ScanCostReport;
 import com.bigdata.bop.cost.SubqueryCostReport;
 import com.bigdata.bop.join.AccessPathJoinAnnotations;
@@ -184,11 +185,24 @@ public class AST2BOpJoins extends AST2BOpFilters {
         final DatasetNode dataset = (DatasetNode) pred
                 .getProperty(Annotations.DATASET);
 
+        // when non-null, the named solution sets for a semi-join reduction.
+        final INamedSolutionSetRef[] semiJoinFilters = (INamedSolutionSetRef[]) pred
+                .getProperty(PipelineJoin.Annotations.SEMI_JOIN_FILTERS);
+
+        if (semiJoinFilters != null) {
+
+            // The join applies them to the access path.
+            anns.add(new NV(PipelineJoin.Annotations.SEMI_JOIN_FILTERS,
+                    semiJoinFilters));
+
+        }
+
         // strip off annotations that we do not want to propagate.
 		pred = pred.clearAnnotations(new String[] { Annotations.SCOPE,
 				Annotations.QUADS, Annotations.DATASET,
 				StatementPatternNode.Annotations.DISTINCT_TERM_SCAN_VAR,
-				StatementPatternNode.Annotations.FAST_RANGE_COUNT_VAR });
+				StatementPatternNode.Annotations.FAST_RANGE_COUNT_VAR,
+				PipelineJoin.Annotations.SEMI_JOIN_FILTERS });
 
 		if (fastRangeCountVar != null) {
 
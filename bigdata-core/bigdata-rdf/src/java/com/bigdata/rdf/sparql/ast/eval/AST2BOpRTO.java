@@ -407,6 +407,9 @@ public class AST2BOpRTO extends AST2BOpJoins {
         
         final int nedges = joinGroup.getProperty(QueryHints.RTO_NEDGES,
                 QueryHints.DEFAULT_RTO_NEDGES);
+
+        final boolean reusePath = joinGroup.getProperty(
+                QueryHints.RTO_REUSE_PATH, QueryHints.DEFAULT_RTO_REUSE_PATH);
         
         left = new JoinGraph(leftOrEmpty(left),//
                 new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
@@ -425,6 +428,7 @@ public class AST2BOpRTO extends AST2BOpJoins {
                 new NV(JoinGraph.Annotations.LIMIT, limit),//
                 new NV(JoinGraph.Annotations.NEDGES, nedges),//
                 new NV(JoinGraph.Annotations.SAMPLE_TYPE, sampleType.name()),//
+                new NV(JoinGraph.Annotations.REUSE_PATH, reusePath),//
                 new NV(JoinGraph.Annotations.DONE_SET, doneSetIn),//
                 new NV(JoinGraph.Annotations.NT, new NT(ctx.getNamespace(),
                         ctx.getTimestamp()))//
@@ -65,11 +65,14 @@ import com.bigdata.bop.join.IHashJoinUtilityFactory;
 import com.bigdata.bop.join.JVMHashJoinUtility;
 import com.bigdata.bop.join.JVMMergeJoin;
 import com.bigdata.bop.join.JVMPipelinedHashJoinUtility;
+import com.bigdata.bop.join.JVMPrimitiveHashJoinUtility;
 import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinAnnotations;
 import com.bigdata.bop.join.JoinTypeEnum;
 import com.bigdata.bop.join.NestedLoopJoinOp;
+import com.bigdata.bop.join.PipelineJoin;
 import com.bigdata.bop.join.PipelinedHashIndexAndSolutionSetJoinOp;
+import com.bigdata.bop.join.SolutionSetBloomFilter;
 import com.bigdata.bop.join.SolutionSetHashJoinOp;
 import com.bigdata.bop.paths.ArbitraryLengthPathOp;
 import com.bigdata.bop.paths.ZeroLengthPathOp;
@@ -309,6 +312,14 @@ public class AST2BOpUtility extends AST2BOpRTO {
         left = (PipelineOp) left.setProperty(
                 QueryEngine.Annotations.QUERY_ID, ctx.queryId);
 
+        if (ctx.profileOperators) {
+
+            // Record the operator distributions for this query.
+            left = (PipelineOp) left.setProperty(
+                    QueryEngine.Annotations.PROFILE, true);
+
+        }
+
         if (!ctx.isCluster()) {
 
             /*
@@ -1003,6 +1014,19 @@ public class AST2BOpUtility extends AST2BOpRTO {
                     ), subqueryRoot, ctx);
         }
 
+        if (ctx.bloomFilterSemiJoins) {
+
+            /*
+             * Publish a Bloom filter for the named solution set once it is
+             * complete. It is used to drop elements from the access paths of
+             * the required statement patterns in the groups which INCLUDE the
+             * named solution set.
+             */
+            left = (PipelineOp) left.setProperty(
+                    NamedSetAnnotations.BLOOM_FILTER, true);
+
+        }
+
         return left;
 
     }
@@ -1282,6 +1306,50 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
     }
 
+    /**
+     * Return the references for the named solution sets generated by the
+     * named subqueries which are INCLUDEd into the group.
+     * 
+     * @param joinGroup
+     *            The join group.
+     * @param ctx
+     *            The evaluation context.
+     * 
+     * @return The references -or- <code>null</code> if the group does not
+     *         INCLUDE any named subquery.
+     * 
+     * @see SolutionSetBloomFilter
+     */
+    private static INamedSolutionSetRef[] getSemiJoinFilters(
+            final JoinGroupNode joinGroup, final AST2BOpContext ctx) {
+
+        final List<INamedSolutionSetRef> refs = new LinkedList<INamedSolutionSetRef>();
+
+        for (IGroupMemberNode child : joinGroup) {
+
+            if (!(child instanceof NamedSubqueryInclude))
+                continue;
+
+            final NamedSubqueryRoot subqueryRoot = ctx.sa
+                    .getNamedSubqueryRoot(((NamedSubqueryInclude) child)
+                            .getName());
+
+            if (subqueryRoot == null) {
+                // Not generated by a named subquery in this query.
+                continue;
+            }
+
+            refs.add(NamedSolutionSetRefUtility.newInstance(ctx.queryId,
+                    subqueryRoot.getName(),
+                    ASTUtil.convert(subqueryRoot.getJoinVars())));
+
+        }
+
+        return refs.isEmpty() ? null : refs
+                .toArray(new INamedSolutionSetRef[refs.size()]);
+
+    }
+
     /**
 	 * Add a join against a pre-computed temporary solution set into a join
 	 * group.
@@ -1558,6 +1626,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
                 final IHashJoinUtilityFactory joinUtilFactory;
                 if (ctx.nativeHashJoins) {
                     joinUtilFactory = HTreeHashJoinUtility.factory;
+                } else if (ctx.primitiveHashJoins) {
+                    joinUtilFactory = JVMPrimitiveHashJoinUtility.factory;
                 } else {
                     joinUtilFactory = JVMHashJoinUtility.factory;
                 }
@@ -3223,6 +3293,14 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         }
         
+        /*
+         * The named solution sets which are INCLUDEd into this group (if
+         * any). The required statement pattern joins in this group use them
+         * for a semi-join reduction of their access paths.
+         */
+        final INamedSolutionSetRef[] semiJoinFilters = ctx.bloomFilterSemiJoins ? getSemiJoinFilters(
+                joinGroup, ctx) : null;
+
         /*
          * Translate the remainder of the group. 
          */
@@ -3242,8 +3320,13 @@ public class AST2BOpUtility extends AST2BOpRTO {
                  * Note: This winds up handling materialization steps as well
                  * (it calls through to Rule2BOpUtility).
                  */
-                final Predicate<?> pred = toPredicate(sp, ctx);
+                Predicate<?> pred = toPredicate(sp, ctx);
                 final boolean optional = sp.isOptional();
+                if (semiJoinFilters != null && !optional) {
+                    pred = (Predicate<?>) pred.setProperty(
+                            PipelineJoin.Annotations.SEMI_JOIN_FILTERS,
+                            semiJoinFilters);
+                }
                 left = join(left, //
                         pred,//
                         optional ? new LinkedHashSet<IVariable<?>>(doneSet)
@@ -3673,6 +3756,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
             final IHashJoinUtilityFactory joinUtilFactory;
             if (ctx.nativeHashJoins) {
                 joinUtilFactory = HTreeHashJoinUtility.factory;
+            } else if (ctx.primitiveHashJoins) {
+                joinUtilFactory = JVMPrimitiveHashJoinUtility.factory;
             } else {
                 joinUtilFactory = JVMHashJoinUtility.factory;
             }
@@ -5800,6 +5885,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
           
           if (usePipelinedHashJoin) {
              joinUtilFactory = JVMPipelinedHashJoinUtility.factory;             
+          } else if (ctx.primitiveHashJoins) {
+             joinUtilFactory = JVMPrimitiveHashJoinUtility.factory;
           } else {
              joinUtilFactory = JVMHashJoinUtility.factory;             
           }
@@ -114,6 +114,8 @@ import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration;
 import com.bigdata.service.geospatial.GeoSpatialSearchException;
 import com.bigdata.service.geospatial.IGeoSpatialLiteralSerializer;
 import com.bigdata.service.geospatial.IGeoSpatialQuery;
+import com.bigdata.service.geospatial.ZOrderCellDecomposer;
+import com.bigdata.service.geospatial.ZOrderCellDecomposer.Cell;
 import com.bigdata.service.geospatial.ZOrderIndexBigMinAdvancer;
 import com.bigdata.service.geospatial.impl.GeoSpatialQuery;
 import com.bigdata.service.geospatial.impl.GeoSpatialUtility.PointLatLon;
@@ -222,6 +224,10 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          serviceNode.getQueryHintAsInteger(
             Annotations.NUM_TASKS_PER_THREAD, 
             Annotations.DEFAULT_NUM_TASKS_PER_THREAD);
+      final Integer cellBudget = 
+         serviceNode.getQueryHintAsInteger(
+            Annotations.CELL_BUDGET, 
+            Annotations.DEFAULT_CELL_BUDGET);
       final Integer threadLocalBufferCapacity = 
          serviceNode.getQueryHintAsInteger(
             BufferAnnotations.CHUNK_CAPACITY, 
@@ -234,6 +240,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       if (DEBUG) {
          log.debug("maxParallel=" + maxParallel);
          log.debug("numTasksPerThread=" + numTasksPerThread);
+         log.debug("cellBudget=" + cellBudget);
          log.debug("threadLocalBufferCapacity=" + threadLocalBufferCapacity);
          log.debug("globalBufferChunkOfChunksCapacity=" + globalBufferChunkOfChunksCapacity);
       }
@@ -250,7 +257,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       return new GeoSpatialServiceCall(searchVar, statementPatterns,
             getServiceOptions(), dflts, store, maxParallel, 
             numTasksPerThread*maxParallel /* max num tasks to generate */, 
-            minDatapointsPerTask, threadLocalBufferCapacity, 
+            minDatapointsPerTask, cellBudget, threadLocalBufferCapacity, 
             globalBufferChunkOfChunksCapacity, createParams.getStats());
 
    }
@@ -460,6 +467,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       
       private final int numTasks;
       private final int minDatapointsPerTask;      
+      private final int cellBudget;
       private final int threadLocalBufferCapacity;
       private final int globalBufferChunkOfChunksCapacity;
       
@@ -478,7 +486,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             final IServiceOptions serviceOptions,
             final GeoSpatialDefaults dflts, final AbstractTripleStore kb,
             final int maxParallel, final int numTasks,
-            final int minDatapointsPerTask,
+            final int minDatapointsPerTask, final int cellBudget,
             final int threadLocalBufferCapacity, 
             final int globalBufferChunkOfChunksCapacity,
             final BaseJoinStats stats) {
@@ -512,6 +520,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             
          this.numTasks = numTasks;
          this.minDatapointsPerTask = minDatapointsPerTask;         
+         this.cellBudget = Math.max(1, cellBudget);
          this.threadLocalBufferCapacity = threadLocalBufferCapacity;
          this.globalBufferChunkOfChunksCapacity = globalBufferChunkOfChunksCapacity;
          
@@ -574,7 +583,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          final FutureTask<Void> ft = 
             new FutureTask<Void>(new GeoSpatialServiceCallTask(
                buffer, query.normalize(), kb, vars, context, globals, vf, geoSpatialCounters, 
-               executor, numTasks, minDatapointsPerTask, threadLocalBufferCapacity, stats));
+               executor, numTasks, minDatapointsPerTask, cellBudget, threadLocalBufferCapacity, stats));
          
          buffer.setFuture(ft); // set the future on the buffer
          kb.getIndexManager().getExecutorService().submit(ft);
@@ -615,6 +624,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          
          private final int numTasks;
          private final int minDatapointsPerTask;
+         private final int cellBudget;
          private final int threadLocalBufferCapacity;
          
          private final BaseJoinStats stats;
@@ -637,7 +647,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             final BOpContextBase context,
             final GlobalAnnotations globals, final BigdataValueFactory vf,
             final GeoSpatialCounters geoSpatialCounters, final Executor executor,
-            final int numTasks, final int minDatapointsPerTask, 
+            final int numTasks, final int minDatapointsPerTask, final int cellBudget,
             final int threadLocalBufferCapacity, final BaseJoinStats stats) {
             
             this.buffer = buffer;
@@ -653,6 +663,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
 
             this.numTasks = numTasks;
             this.minDatapointsPerTask = minDatapointsPerTask;
+            this.cellBudget = cellBudget;
             this.threadLocalBufferCapacity = threadLocalBufferCapacity;
             
             this.stats = stats;
@@ -736,22 +747,43 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
                 final int subjectPos = keyOrder.getPositionInIndex(SPOKeyOrder.S);
                 final int objectPos = keyOrder.getPositionInIndex(SPOKeyOrder.O);
                 
-                // set up the search range and a partitioner
-                final GeoSpatialSearchRange searchRange =
-                    new GeoSpatialSearchRange(datatypeConfig, litExt, southWestComponents, northEastComponents);
-                final GeoSpatialSearchRangePartitioner partitioner = new GeoSpatialSearchRangePartitioner(searchRange);
-                for (GeoSpatialSearchRange partition : partitioner.partition(numTasks, totalPointsInRange, minDatapointsPerTask)) {
+                // decompose the search range into cells, each of which is partitioned into tasks
+                final List<GeoSpatialSearchRange> cells = 
+                   getCells(query, datatypeConfig, litExt, southWestComponents, northEastComponents);
+                
+                final int numTasksPerCell = Math.max(1, numTasks / Math.max(1, cells.size()));
+                
+                for (GeoSpatialSearchRange cell : cells) {
                    
-                   final Object[] lowerBorder = partition.getLowerBorderComponents();
-                   final Object[] upperBorder = partition.getUpperBorderComponents();
+                   /**
+                    * Estimate the number of points in the cell. There is no need to do so
+                    * if the whole range is too small to be split anyways.
+                    */
+                   final long totalPointsInCell;
+                   if (cells.size()==1 || totalPointsInRange<minDatapointsPerTask) {
+                      totalPointsInCell = totalPointsInRange;
+                   } else {
+                      final AccessPath<ISPO> cellAccessPath = 
+                         getAccessPath(cell.getLowerBorderComponents(), cell.getUpperBorderComponents(), query);
+                      totalPointsInCell = cellAccessPath==null ? 0 : cellAccessPath.rangeCount(false/* exact */);
+                   }
+                   
+                   // set up a partitioner for the cell
+                   final GeoSpatialSearchRangePartitioner partitioner = new GeoSpatialSearchRangePartitioner(cell);
+                   for (GeoSpatialSearchRange partition : partitioner.partition(numTasksPerCell, totalPointsInCell, minDatapointsPerTask)) {
+                   
+                      final Object[] lowerBorder = partition.getLowerBorderComponents();
+                      final Object[] upperBorder = partition.getUpperBorderComponents();
                    
 
-                   // set up a subtask for the partition
-                   final GeoSpatialServiceCallSubRangeTask subTask = 
-                      getSubTask(query, lowerBorder, upperBorder,  keyOrder, subjectPos, objectPos, stats);
+                      // set up a subtask for the partition
+                      final GeoSpatialServiceCallSubRangeTask subTask = 
+                         getSubTask(query, lowerBorder, upperBorder,  keyOrder, subjectPos, objectPos, 
+                            cell.isBorder(), stats);
                    
-                   if (subTask!=null) { // if satisfiable
-                      subTasks.add(subTask);
+                      if (subTask!=null) { // if satisfiable
+                         subTasks.add(subTask);
+                      }
                    }
                    
                    // note: this is old debugging code, which is broken
@@ -776,7 +808,94 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             return subTasks;
          }
 
-         
+
+         /**
+          * Decomposes the search range of the query into cells aligned with the z-order
+          * encoding, see {@link ZOrderCellDecomposer}. Cells outside of the search region
+          * are dropped and cells inside of the search region are marked as not requiring
+          * an exact filter. If decomposition is disabled or not applicable (e.g. for
+          * datatypes without latitude and longitude), a single cell reflecting the
+          * search range is returned.
+          */
+         protected List<GeoSpatialSearchRange> getCells(
+            final IGeoSpatialQuery query, final GeoSpatialDatatypeConfiguration datatypeConfig,
+            final GeoSpatialLiteralExtension<BigdataValue> litExt,
+            final Object[] lowerBorderComponents, final Object[] upperBorderComponents) {
+            
+            final List<GeoSpatialSearchRange> cells = new ArrayList<GeoSpatialSearchRange>();
+            
+            final int[] splitDims = 
+               cellBudget>1 ? ZOrderCellDecomposer.getSpatialSplitDims(datatypeConfig) : null;
+            
+            ZOrderCellDecomposer.ICellClassifier classifier = null;
+            if (splitDims!=null) {
+               
+               switch (query.getSearchFunction()) {
+               case IN_CIRCLE:
+               {
+                  final PointLatLon center = query.getSpatialCircleCenter();
+                  classifier = new ZOrderCellDecomposer.InCircleClassifier(
+                     datatypeConfig, center.getLat(), center.getLon(), 
+                     CoordinateUtility.unitsToMeters(query.getSpatialCircleRadius(), query.getSpatialUnit()));
+                  break;
+               }
+               case IN_RECTANGLE:
+                  classifier = ZOrderCellDecomposer.ALL_INSIDE;
+                  break;
+               default:
+                  break; // no decomposition
+               }
+            }
+            
+            if (classifier==null) {
+               
+               cells.add(new GeoSpatialSearchRange(
+                  datatypeConfig, litExt, lowerBorderComponents, upperBorderComponents));
+               geoSpatialCounters.registerGeoSpatialCells(
+                  1, query.getSearchFunction()==GeoFunction.IN_CIRCLE ? 1 : 0, 0);
+               
+               return cells;
+            }
+            
+            final ZOrderCellDecomposer decomposer = 
+               new ZOrderCellDecomposer(datatypeConfig, splitDims, cellBudget);
+            
+            final List<Cell> decomposition = decomposer.decompose(
+               litExt.componentsAsLongArr(lowerBorderComponents, datatypeConfig),
+               litExt.componentsAsLongArr(upperBorderComponents, datatypeConfig),
+               classifier);
+            
+            int numBorderCells = 0;
+            for (Cell cell : decomposition) {
+               
+               // replace the components of the split dimensions, keep all others
+               final Object[] cellLowerBorder = lowerBorderComponents.clone();
+               final Object[] cellUpperBorder = upperBorderComponents.clone();
+               for (int dim : splitDims) {
+                  final double multiplier = datatypeConfig.getFields().get(dim).getMultiplier();
+                  cellLowerBorder[dim] = (double)cell.getLower()[dim]/multiplier;
+                  cellUpperBorder[dim] = (double)cell.getUpper()[dim]/multiplier;
+               }
+               
+               cells.add(new GeoSpatialSearchRange(
+                  datatypeConfig, litExt, cellLowerBorder, cellUpperBorder, cell.isBorder()));
+               
+               if (cell.isBorder()) {
+                  numBorderCells++;
+               }
+            }
+            
+            if (DEBUG) {
+               log.debug("Decomposed search range into " + cells.size() + " cells (" 
+                  + numBorderCells + " border cells, " + decomposer.getNumPrunedCells() + " pruned)");
+            }
+            
+            geoSpatialCounters.registerGeoSpatialCells(
+               cells.size(), numBorderCells, decomposer.getNumPrunedCells());
+            
+            return cells;
+         }
+
 
          /**
           * Sets up a subtask for the given configuration. The method may return null
@@ -793,6 +912,8 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
           * @param keyOrder the key order of the underlying access path
           * @param subjectPos the position of the subject in the key
           * @param objectPos the position of the object in the key
+          * @param exactFilter whether the values in the range must be checked against the
+          *        search region (false if the range is known to lie inside the search region)
           * 
           * @return the subtask or null 
           */
@@ -800,7 +921,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             final IGeoSpatialQuery query,
             final Object[] lowerBorder, final Object[] upperBorder,
             final SPOKeyOrder keyOrder, final int subjectPos, 
-            final int objectPos, final BaseJoinStats stats) {
+            final int objectPos, final boolean exactFilter, final BaseJoinStats stats) {
             
             /**
              * Compose the surrounding filter. The filter is based on the outer range.
@@ -812,7 +933,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             final GeoSpatialLiteralExtension<BigdataValue> litExt = 
                 new GeoSpatialLiteralExtension<BigdataValue>(kb.getLexiconRelation(), datatypeConfig);
             
-            switch (query.getSearchFunction()) {
+            switch (exactFilter ? query.getSearchFunction() : GeoFunction.IN_RECTANGLE) {
             case IN_CIRCLE: 
                {
                   // for circle queries, the filter retains those values that are indeed in the
@@ -831,7 +952,8 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             case UNDEFINED:
                {
                   // for a rectangle query, the z-order lower and upper border exactly coincide
-                  // with what we're looking for, so we set up a dummy filter for that case;
+                  // with what we're looking for, so we set up a dummy filter for that case
+                  // (the same holds for a range that lies fully inside the search region);
                   // we also use such a dummy filter if the geospatial search function is undefined
                   // (which might be the case if we query an index without latitude and longitude)
                   filter = new AcceptAllSolutionsFilter(
@@ -1343,17 +1465,40 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
              private final Object[] lowerBorderComponents;
              private final Object[] upperBorderComponents;
              
+             // whether values in the range must be checked against the search region
+             private final boolean border;
+             
              public GeoSpatialSearchRange(
                  final GeoSpatialDatatypeConfiguration datatypeConfig,
                  final GeoSpatialLiteralExtension<BigdataValue> litExt,
                  final Object[] lowerBorderComponents, final Object[] upperBorderComponents) {
                  
+                 this(datatypeConfig, litExt, lowerBorderComponents, upperBorderComponents, true);
+                 
+             }
+             
+             public GeoSpatialSearchRange(
+                 final GeoSpatialDatatypeConfiguration datatypeConfig,
+                 final GeoSpatialLiteralExtension<BigdataValue> litExt,
+                 final Object[] lowerBorderComponents, final Object[] upperBorderComponents,
+                 final boolean border) {
+                 
                  this.datatypeConfig = datatypeConfig;
                  this.litExt = litExt;
                  
                  this.lowerBorderComponents = lowerBorderComponents;
                  this.upperBorderComponents = upperBorderComponents;
                  
+                 this.border = border;
+                 
+             }
+             
+             /**
+              * @return true if the range crosses the border of the search region, i.e. if
+              *         values in the range must be checked by the exact filter
+              */
+             public boolean isBorder() {
+                 return border;
              }
              
              public GeoSpatialLiteralExtension<BigdataValue> getLitExt() {
@@ -1817,6 +1962,10 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          // delegate to subclass
          boolean isValid = isValidInternal(tuple);
          
+         if (!isValid) {
+            geoSpatialCounters.registerZOrderIndexFilterReject();
+         }
+         
          final long filterEndTime = System.nanoTime();
          geoSpatialCounters.addFilterCalculationTime(filterEndTime-filterStartTime);
          
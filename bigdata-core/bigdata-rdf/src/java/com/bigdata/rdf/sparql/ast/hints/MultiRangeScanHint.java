@@ -0,0 +1,66 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rdf.sparql.ast.hints;
+
+import com.bigdata.bop.join.PipelineJoin;
+import com.bigdata.bop.join.PipelineJoin.Annotations;
+import com.bigdata.rdf.sparql.ast.ASTBase;
+import com.bigdata.rdf.sparql.ast.IJoinNode;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
+
+/**
+ * Query hint enables the {@link PipelineJoin} to read the as-bound access paths
+ * for each chunk of source solutions in key order using a single cursor per
+ * index.
+ * 
+ * @see Annotations#MULTI_RANGE_SCAN
+ */
+final class MultiRangeScanHint extends AbstractBooleanQueryHint {
+
+    protected MultiRangeScanHint() {
+        super(Annotations.MULTI_RANGE_SCAN,
+                Annotations.DEFAULT_MULTI_RANGE_SCAN);
+    }
+
+    @Override
+    public void handle(final AST2BOpContext context,
+            final QueryRoot queryRoot,
+            final QueryHintScope scope, final ASTBase op, final Boolean value) {
+
+        if (op instanceof IJoinNode) {
+
+            /*
+             * Note: This is set on the queryHint Properties object and then
+             * transferred to the pipeline operator when it is generated.
+             */
+
+            _setQueryHint(context, scope, op, getName(), value);
+
+        }
+
+    }
+
+}
@@ -101,16 +101,20 @@ public class QueryHintRegistry {
         add(new RTOSampleTypeQueryHint());
         add(new RTOLimitQueryHint());
         add(new RTONEdgesQueryHint());
+        add(new RTOReusePathQueryHint());
         add(new OptimisticQueryHint());
         add(new NormalizeFilterExpressionHint());
 
         // Analytic query mode.
         add(new AnalyticQueryHint());
         add(new QueryEngineChunkHandlerQueryHint());
+        add(new ProfileOperatorsQueryHint());
         add(new NativeDistinctQueryHint());
         add(new NativeDistinctSPOHint());
         add(new NativeDistinctSPOThresholdHint());
         add(new NativeHashJoinsHint());
+        add(new PrimitiveHashJoinsHint());
+        add(new BloomFilterSemiJoinsHint());
         
         // JOIN hints.
         add(new MergeJoinHint());
@@ -121,6 +125,8 @@ public class QueryHintRegistry {
         add(new AccessPathScanAndFilterHint());
         add(new NumTasksPerThreadHint());
         add(new MinDatapointsPerTaskHint());
+        add(new CellBudgetHint());
+        add(new MultiRangeScanHint());
         
         // DESCRIBE
         add(new DescribeModeHint());
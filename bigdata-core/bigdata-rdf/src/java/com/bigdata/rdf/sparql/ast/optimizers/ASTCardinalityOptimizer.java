@@ -37,6 +37,7 @@ import com.bigdata.rdf.sparql.ast.StaticAnalysis;
 import com.bigdata.rdf.sparql.ast.UnionNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
+import com.bigdata.rdf.stats.StatisticsCatalog;
 
 /**
  * Calculate the estimated cardinality of a join group.
@@ -154,9 +155,28 @@ public class ASTCardinalityOptimizer extends AbstractJoinGroupOptimizer
 		} else {
 		    
 		    /*
+		     * A star join on a subject variable can be estimated using the
+		     * statistics catalog (if enabled).
+		     * 
 		     * TODO Calculate estimated cardinality according to logic in
-		     * ASTStaticJoinOptimizer.
+		     * ASTStaticJoinOptimizer for other groups.
 		     */
+
+		    final StatisticsCatalog catalog = StaticOptimizer
+		            .getStatisticsCatalog(ctx);
+
+		    final long cardinality = catalog == null ? -1L : StaticOptimizer
+		            .getStarCardinality(catalog, nodes);
+
+		    if (cardinality != -1L) {
+
+		        if (log.isDebugEnabled()) {
+		            log.debug("setting cardinality on a star group: " + cardinality);
+		        }
+
+		        group.setProperty(Annotations.ESTIMATED_CARDINALITY, cardinality);
+
+		    }
 		    
 		}
 		
@@ -47,6 +47,7 @@ import com.bigdata.rdf.sparql.ast.TermNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
 import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.stats.StatisticsCatalog;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.relation.accesspath.IAccessPath;
 import com.bigdata.util.concurrent.ExecutionExceptions;
@@ -219,12 +220,32 @@ public class ASTRangeCountOptimizer extends AbstractJoinGroupOptimizer
 		final IAccessPath<?> ap = db.getAccessPath(s, p, o, c, range);
 		
 
-		final StaticAnalysisStats saStats = ctx.getStaticAnalysisStats();
-		long start = System.nanoTime();
+		/*
+		 * Use the statistics catalog (if enabled) when it can answer for
+		 * this access path. It does not know about contexts or ranges.
+		 */
+		final StatisticsCatalog catalog = c == null && range == null ? db
+				.getSPORelation().getStatisticsCatalog() : null;
+
+		final long estimate = catalog == null ? -1L : catalog.getCardinality(
+				s, p, o);
+
+		final long cardinality;
 		
-		final long cardinality = ap.rangeCount(false/* exact */);
+		if (estimate != -1L) {
+
+			cardinality = estimate;
+
+		} else {
+
+			final StaticAnalysisStats saStats = ctx.getStaticAnalysisStats();
+			long start = System.nanoTime();
+
+			cardinality = ap.rangeCount(false/* exact */);
+
+			saStats.registerRangeCountCall(System.nanoTime() - start);
 
-        saStats.registerRangeCountCall(System.nanoTime() - start);
+		}
 		
 		
 		// Annotate with the fast range count.
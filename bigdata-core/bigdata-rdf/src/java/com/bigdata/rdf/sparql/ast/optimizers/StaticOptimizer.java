@@ -1,26 +1,34 @@
 package com.bigdata.rdf.sparql.ast.optimizers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.joinGraph.fast.DefaultEvaluationPlan2;
 import com.bigdata.journal.ITx;
+import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.sparql.ast.IBindingProducerNode;
 import com.bigdata.rdf.sparql.ast.IReorderableNode;
 import com.bigdata.rdf.sparql.ast.QueryHints;
 import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.StatementPatternNode;
 import com.bigdata.rdf.sparql.ast.StaticAnalysis;
+import com.bigdata.rdf.sparql.ast.TermNode;
 import com.bigdata.rdf.sparql.ast.VarNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
+import com.bigdata.rdf.stats.StatisticsCatalog;
+import com.bigdata.rdf.store.AbstractTripleStore;
 
 /**
  * This is the old static optimizer code, taken directly from
@@ -103,20 +111,35 @@ public final class StaticOptimizer {
 	 */
 	private final double optimistic;
 
+	/**
+	 * The statistics catalog (optional). When available, it is used to
+	 * estimate the cardinality of joins which form a star on a subject
+	 * variable.
+	 */
+	private final StatisticsCatalog catalog;
+
+	/**
+	 * Cache of the star join cardinality estimates, keyed by the tail indices
+	 * of the join (lazily instantiated).
+	 */
+	private Map<String, Long> starCardinalityCache;
+
 	public StaticOptimizer(StaticOptimizer parent, List<IReorderableNode> nodes) {
-		this(parent.sa, parent.ancestry, nodes, parent.optimistic);
+		this(parent.sa, parent.ancestry, nodes, parent.optimistic,
+				parent.catalog);
 	}
 
 	StaticOptimizer(final QueryRoot queryRoot, final AST2BOpContext context,
 			final IBindingProducerNode[] ancestry,
 			final List<IReorderableNode> nodes, final double optimistic) {
 		this(new StaticAnalysis(queryRoot, context), ancestry, nodes,
-				optimistic);
+				optimistic, getStatisticsCatalog(context));
 	}
 
 	private StaticOptimizer(final StaticAnalysis sa,
 			final IBindingProducerNode[] ancestry,
-			final List<IReorderableNode> nodes, final double optimistic) {
+			final List<IReorderableNode> nodes, final double optimistic,
+			final StatisticsCatalog catalog) {
 
 		if (ancestry == null)
 			throw new IllegalArgumentException();
@@ -149,6 +172,8 @@ public final class StaticOptimizer {
 
 		this.optimistic = optimistic;
 
+		this.catalog = catalog;
+
 		this.cardinality = calc();
 
 		if (ASTStaticJoinOptimizer.log.isDebugEnabled()) {
@@ -608,7 +633,17 @@ public final class StaticOptimizer {
 			// different approach - give preference to shared variables
 			joinCardinality = NO_SHARED_VARS;
 		} else {
-			if (unsharedVars == false) {
+			/*
+			 * A star join for which the statistics catalog has an estimate
+			 * based on the characteristic sets of the subjects. Unlike the
+			 * MIN/MAX heuristics below, this estimate accounts for the
+			 * correlation between the predicates.
+			 */
+			final long starCardinality = catalog == null ? -1L
+					: getStarCardinality(d1, d2);
+			if (starCardinality != -1L) {
+				joinCardinality = starCardinality;
+			} else if (unsharedVars == false) {
 				// shared vars and no unshared vars - take the min
 				joinCardinality = Math.min(d1.getCardinality(),
 						d2.getCardinality());
@@ -671,6 +706,130 @@ public final class StaticOptimizer {
 		return joinCardinality;
 	}
 
+	/**
+	 * Return the statistics catalog for the KB (if any).
+	 */
+	static StatisticsCatalog getStatisticsCatalog(
+			final AST2BOpContext context) {
+
+		final AbstractTripleStore db = context == null ? null : context
+				.getAbstractTripleStore();
+
+		return db == null ? null : db.getSPORelation().getStatisticsCatalog();
+
+	}
+
+	/**
+	 * Return the estimated cardinality of the join of two join dimensions
+	 * using the statistics catalog. The estimates are cached since the same
+	 * joins are considered repeatedly while the join order is computed.
+	 * 
+	 * @see #getStarCardinality(StatisticsCatalog, List)
+	 */
+	private long getStarCardinality(final IJoinDimension d1,
+			final IJoinDimension d2) {
+
+		final List<Integer> tails = new ArrayList<Integer>();
+		getTails(d1, tails);
+		getTails(d2, tails);
+		Collections.sort(tails);
+
+		final String key = tails.toString();
+
+		if (starCardinalityCache == null) {
+			starCardinalityCache = new HashMap<String, Long>();
+		} else {
+			final Long tmp = starCardinalityCache.get(key);
+			if (tmp != null)
+				return tmp.longValue();
+		}
+
+		final List<IBindingProducerNode> star = new ArrayList<IBindingProducerNode>(
+				tails.size());
+		for (Integer tailIndex : tails) {
+			star.add(nodes.get(tailIndex));
+		}
+
+		final long estimate = getStarCardinality(catalog, star);
+
+		starCardinalityCache.put(key, estimate);
+
+		return estimate;
+
+	}
+
+	/**
+	 * Return the estimated cardinality of a join of some nodes using the
+	 * statistics catalog. This is only possible when all of the nodes are
+	 * triple patterns (without a context or a range) sharing the same subject
+	 * variable and having constant predicates.
+	 * 
+	 * @param catalog
+	 *            The statistics catalog.
+	 * @param nodes
+	 *            The nodes.
+	 * 
+	 * @return The estimated cardinality -or- <code>-1L</code> if the join is
+	 *         not such a star or if the catalog does not have an estimate.
+	 */
+	static long getStarCardinality(final StatisticsCatalog catalog,
+			final List<? extends IBindingProducerNode> nodes) {
+
+		final int n = nodes.size();
+		if (n == 0)
+			return -1L;
+		final IV<?, ?>[] p = new IV[n];
+		final IV<?, ?>[] o = new IV[n];
+		VarNode s = null;
+		for (int i = 0; i < n; i++) {
+			final IBindingProducerNode node = nodes.get(i);
+			if (!(node instanceof StatementPatternNode))
+				return -1L;
+			final StatementPatternNode sp = (StatementPatternNode) node;
+			if (sp.c() != null || sp.getRange() != null
+					|| !sp.s().isVariable() || !sp.p().isConstant())
+				return -1L;
+			if (s == null)
+				s = (VarNode) sp.s();
+			else if (!s.equals(sp.s()))
+				return -1L;
+			if ((p[i] = getIV(sp.p())) == null)
+				return -1L;
+			if (sp.o().isConstant() && (o[i] = getIV(sp.o())) == null)
+				return -1L;
+		}
+		return catalog.getStarCardinality(p, o);
+
+	}
+
+	/**
+	 * Return the {@link IV} for a constant (or <code>null</code> if the
+	 * constant is not a known term).
+	 */
+	@SuppressWarnings("rawtypes")
+	private static IV<?, ?> getIV(final TermNode term) {
+
+		final IV iv = ((IConstant<IV>) term.getValueExpression()).get();
+
+		return iv == null || iv.isNullIV() ? null : iv;
+
+	}
+
+	/**
+	 * Collect the tail indices of a join dimension.
+	 */
+	private static void getTails(final IJoinDimension d,
+			final List<Integer> tails) {
+
+		if (d instanceof Join) {
+			getTails(((Join) d).getD1(), tails);
+			getTails(((Join) d).getD2(), tails);
+		} else {
+			tails.add(((Tail) d).getTailIndex());
+		}
+
+	}
+
 	/**
 	 * Get the named variables for a given tail. Is there a better way to do
 	 * this?
@@ -27,16 +27,23 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
+import org.apache.log4j.Logger;
 import org.eclipse.jetty.client.HttpClient;
 import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.query.TupleQueryResult;
 
-import com.bigdata.rdf.sail.Sesame2BigdataIterator;
 import com.bigdata.rdf.sail.webapp.client.ConnectOptions;
 import com.bigdata.rdf.sail.webapp.client.RemoteRepositoryManager;
+import com.bigdata.striterator.CloseableIteratorWrapper;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
 
@@ -45,13 +52,20 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * appropriate SPARQL query (with BINDINGS) and an appropriate HTTP request. The
  * behavior of this class may be configured in the {@link ServiceRegistry} by
  * adjusting the {@link RemoteServiceOptions} for the service URI.
+ * <p>
+ * The solutions are vectored to the end point in chunks whose size is adapted
+ * to the observed response latency of that end point (see
+ * {@link RemoteServiceChunkSize}). When there is more than one chunk, up to
+ * {@link RemoteServiceOptions#getMaxRequestsInFlight()} requests are issued
+ * concurrently and the size of each new chunk reflects the latency of the
+ * requests which have already completed.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  */
 public class RemoteServiceCallImpl implements RemoteServiceCall {
 
-//    private static final Logger log = Logger
-//            .getLogger(RemoteServiceCallImpl.class);
+    private static final Logger log = Logger
+            .getLogger(RemoteServiceCallImpl.class);
     
     private final ServiceCallCreateParams params;
 
@@ -90,6 +104,161 @@ public class RemoteServiceCallImpl implements RemoteServiceCall {
         
         final RemoteServiceOptions serviceOptions = getServiceOptions();
 
+        final RemoteServiceChunkSize chunkSize = serviceOptions
+                .getChunkSize(uriStr);
+
+        if (bindingSets.length <= chunkSize.get()) {
+
+            // Everything fits into a single request.
+            return new CloseableIteratorWrapper<BindingSet>(new ChunkRequest(
+                    uriStr, bindingSets, chunkSize).call().iterator());
+
+        }
+
+        /*
+         * Pipeline the chunks against the end point.
+         * 
+         * Note: The size of each chunk is decided when it is submitted, so the
+         * chunk size adapts to the requests which have already completed.
+         */
+
+        final ExecutorCompletionService<List<BindingSet>> ecs = new ExecutorCompletionService<List<BindingSet>>(
+                params.getTripleStore().getExecutorService());
+
+        final int maxInFlight = serviceOptions.getMaxRequestsInFlight();
+
+        final List<Future<List<BindingSet>>> futures = new LinkedList<Future<List<BindingSet>>>();
+
+        final List<BindingSet> serviceResults = new ArrayList<BindingSet>();
+
+        int offset = 0;
+
+        int ninFlight = 0;
+
+        try {
+
+            while (offset < bindingSets.length || ninFlight > 0) {
+
+                while (offset < bindingSets.length && ninFlight < maxInFlight) {
+
+                    final int n = Math.min(chunkSize.get(), bindingSets.length
+                            - offset);
+
+                    final BindingSet[] chunk = Arrays.copyOfRange(bindingSets,
+                            offset, offset + n);
+
+                    futures.add(ecs.submit(new ChunkRequest(uriStr, chunk,
+                            chunkSize)));
+
+                    offset += n;
+
+                    ninFlight++;
+
+                }
+
+                final Future<List<BindingSet>> f = ecs.take();
+
+                ninFlight--;
+
+                serviceResults.addAll(f.get());
+
+            }
+
+        } finally {
+
+            // Cancel any outstanding requests (error or interrupt).
+            for (Future<List<BindingSet>> f : futures) {
+
+                f.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("serviceURI=" + uriStr + ", nsolutions="
+                    + bindingSets.length
+                    + ", nrequests=" + futures.size() + ", nresults="
+                    + serviceResults.size() + ", " + chunkSize);
+
+        return new CloseableIteratorWrapper<BindingSet>(
+                serviceResults.iterator());
+
+    }
+
+    /**
+     * Vector one chunk of solutions to the end point and drain the solutions
+     * from the end point. The response latency is reported to the
+     * {@link RemoteServiceChunkSize}.
+     */
+    private class ChunkRequest implements Callable<List<BindingSet>> {
+
+        private final String uriStr;
+
+        private final BindingSet[] bindingSets;
+
+        private final RemoteServiceChunkSize chunkSize;
+
+        ChunkRequest(final String uriStr, final BindingSet[] bindingSets,
+                final RemoteServiceChunkSize chunkSize) {
+
+            this.uriStr = uriStr;
+
+            this.bindingSets = bindingSets;
+
+            this.chunkSize = chunkSize;
+
+        }
+
+        @Override
+        public List<BindingSet> call() throws Exception {
+
+            final long begin = System.nanoTime();
+
+            final List<BindingSet> serviceResults = new LinkedList<BindingSet>();
+
+            final TupleQueryResult queryResult = doRequest(uriStr, bindingSets);
+
+            try {
+
+                while (queryResult.hasNext()) {
+
+                    serviceResults.add(queryResult.next());
+
+                }
+
+            } finally {
+
+                queryResult.close();
+
+            }
+
+            if (bindingSets.length > 0) {
+
+                chunkSize.update(bindingSets.length, System.nanoTime()
+                        - begin);
+
+            }
+
+            return serviceResults;
+
+        }
+
+    }
+
+    /**
+     * Issue a single request against the end point.
+     * 
+     * @param uriStr
+     *            The service URI.
+     * @param bindingSets
+     *            The solutions to be vectored to the end point.
+     */
+    private TupleQueryResult doRequest(final String uriStr,
+            final BindingSet[] bindingSets) throws Exception {
+
+        final RemoteServiceOptions serviceOptions = getServiceOptions();
+
         final ConnectOptions o = new ConnectOptions(uriStr);
 
         {
@@ -142,15 +311,12 @@ public class RemoteServiceCallImpl implements RemoteServiceCall {
         /*
          * Note: This does not stream chunks back. The ServiceCallJoin currently
          * materializes all solutions from the service in a single chunk, so
-         * there is no point doing something incremental here unless it is
-         * coordinated with the ServiceCallJoin.
+         * the solutions for each chunk are drained by the caller.
          */
 
-        final TupleQueryResult queryResult;
-
         try {
 
-            queryResult = repo.tupleResults(o, queryId, null);
+            return repo.tupleResults(o, queryId, null);
             
         } finally {
 
@@ -158,9 +324,6 @@ public class RemoteServiceCallImpl implements RemoteServiceCall {
             
         }
 
-        return new Sesame2BigdataIterator<BindingSet, QueryEvaluationException>(
-                        queryResult);
-
     }
 
 }
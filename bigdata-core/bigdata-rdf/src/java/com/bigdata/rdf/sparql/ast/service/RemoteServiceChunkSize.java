@@ -0,0 +1,236 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.sparql.ast.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive sizing of the chunks of solutions vectored to a remote SPARQL end
+ * point. The chunk size is adjusted after each request such that the response
+ * latency approaches a target latency: a fast response grows the chunk and a
+ * slow response shrinks it. Large chunks amortize the round trip over many
+ * solutions while small chunks bound the size of the generated
+ * <code>VALUES</code> clause and let several requests be pipelined against the
+ * same end point.
+ * <p>
+ * Note: There is one instance per service URI (see
+ * {@link RemoteServiceOptions#getChunkSize(String)}). The instance is thread
+ * safe. Concurrent updates may race, but each update always leaves the chunk
+ * size within its bounds.
+ * 
+ * @see RemoteServiceOptions
+ * @see RemoteServiceCallImpl
+ */
+public class RemoteServiceChunkSize {
+
+    /**
+     * The maximum factor by which the chunk size is changed by a single
+     * observation.
+     */
+    private static final double MAX_CHANGE = 2d;
+
+    private final int minChunkSize;
+
+    private final int maxChunkSize;
+
+    private final long targetLatencyNanos;
+
+    /**
+     * The current chunk size.
+     */
+    private final AtomicInteger chunkSize;
+
+    /**
+     * The #of requests which have been observed.
+     */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * The #of solutions which have been vectored.
+     */
+    private final AtomicLong solutionCount = new AtomicLong();
+
+    /**
+     * The total response latency of the observed requests (nanoseconds).
+     */
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    /**
+     * @param minChunkSize
+     *            The minimum chunk size.
+     * @param initialChunkSize
+     *            The initial chunk size.
+     * @param maxChunkSize
+     *            The maximum chunk size.
+     * @param targetLatencyMillis
+     *            The target response latency (milliseconds).
+     */
+    public RemoteServiceChunkSize(final int minChunkSize,
+            final int initialChunkSize, final int maxChunkSize,
+            final long targetLatencyMillis) {
+
+        if (minChunkSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (maxChunkSize < minChunkSize)
+            throw new IllegalArgumentException();
+
+        if (initialChunkSize < minChunkSize || initialChunkSize > maxChunkSize)
+            throw new IllegalArgumentException();
+
+        if (targetLatencyMillis <= 0)
+            throw new IllegalArgumentException();
+
+        this.minChunkSize = minChunkSize;
+
+        this.maxChunkSize = maxChunkSize;
+
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS
+                .toNanos(targetLatencyMillis);
+
+        this.chunkSize = new AtomicInteger(initialChunkSize);
+
+    }
+
+    /**
+     * The #of solutions to vector in the next request.
+     */
+    public int get() {
+
+        return chunkSize.get();
+
+    }
+
+    /**
+     * Update the chunk size from an observed request.
+     * 
+     * @param nsolutions
+     *            The #of solutions which were vectored by the request.
+     * @param elapsed
+     *            The response latency of the request (nanoseconds).
+     * 
+     * @return The new chunk size.
+     */
+    public int update(final int nsolutions, final long elapsed) {
+
+        if (nsolutions <= 0)
+            throw new IllegalArgumentException();
+
+        requestCount.incrementAndGet();
+
+        solutionCount.addAndGet(nsolutions);
+
+        elapsedNanos.addAndGet(elapsed);
+
+        if (nsolutions < chunkSize.get() && elapsed < targetLatencyNanos) {
+
+            /*
+             * A partial chunk which was answered within the target latency
+             * says nothing about how a full chunk would have been answered.
+             */
+
+            return chunkSize.get();
+
+        }
+
+        /*
+         * Scale the #of solutions vectored by the observed request to the
+         * target latency, but never by more than MAX_CHANGE in either
+         * direction.
+         */
+
+        double ratio = elapsed <= 0 ? MAX_CHANGE : (double) targetLatencyNanos
+                / elapsed;
+
+        ratio = Math.max(1d / MAX_CHANGE, Math.min(MAX_CHANGE, ratio));
+
+        final long n = Math.round(nsolutions * ratio);
+
+        final int newValue = (int) Math.max(minChunkSize,
+                Math.min(maxChunkSize, n));
+
+        chunkSize.set(newValue);
+
+        return newValue;
+
+    }
+
+    /**
+     * The #of requests which have been observed.
+     */
+    public long getRequestCount() {
+
+        return requestCount.get();
+
+    }
+
+    /**
+     * The average response latency of the observed requests (milliseconds).
+     */
+    public double getAverageLatencyMillis() {
+
+        final long n = requestCount.get();
+
+        if (n == 0)
+            return 0d;
+
+        return elapsedNanos.get() / (double) n / 1000000d;
+
+    }
+
+    /**
+     * The average #of solutions vectored per request.
+     */
+    public double getAverageChunkSize() {
+
+        final long n = requestCount.get();
+
+        if (n == 0)
+            return 0d;
+
+        return solutionCount.get() / (double) n;
+
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(getClass().getName());
+        sb.append("{chunkSize=" + get());
+        sb.append(",min=" + minChunkSize);
+        sb.append(",max=" + maxChunkSize);
+        sb.append(",targetLatencyMillis="
+                + TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos));
+        sb.append(",requests=" + getRequestCount());
+        sb.append(",avgChunkSize=" + getAverageChunkSize());
+        sb.append(",avgLatencyMillis=" + getAverageLatencyMillis());
+        sb.append("}");
+        return sb.toString();
+
+    }
+
+}
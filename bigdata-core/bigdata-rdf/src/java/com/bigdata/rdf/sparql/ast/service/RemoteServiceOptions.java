@@ -27,6 +27,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.service;
 
+import java.util.concurrent.TimeUnit;
+
+import com.bigdata.cache.ConcurrentWeakValueCacheWithTimeout;
+
 /**
  * Configurable options for a remote service end point.
  * 
@@ -70,9 +74,64 @@ public class RemoteServiceOptions extends ServiceOptionsBase {
      */
     private final static boolean DEFAULT_IS_GET = false;
     
+    /**
+     * The default for {@link #getMinChunkSize()}.
+     */
+    public final static int DEFAULT_MIN_CHUNK_SIZE = 10;
+
+    /**
+     * The default for {@link #getInitialChunkSize()}.
+     */
+    public final static int DEFAULT_INITIAL_CHUNK_SIZE = 100;
+
+    /**
+     * The default for {@link #getMaxChunkSize()}.
+     */
+    public final static int DEFAULT_MAX_CHUNK_SIZE = 1000;
+
+    /**
+     * The default for {@link #getTargetLatency()} (milliseconds).
+     */
+    public final static long DEFAULT_TARGET_LATENCY = 500L;
+
+    /**
+     * The default for {@link #getMaxRequestsInFlight()}.
+     */
+    public final static int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 4;
+
     private SPARQLVersion sparqlVersion = SPARQLVersion.SPARQL_11;
     private boolean isGET = DEFAULT_IS_GET;
     private String acceptStr = null;
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+    private int initialChunkSize = DEFAULT_INITIAL_CHUNK_SIZE;
+    private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+    private long targetLatency = DEFAULT_TARGET_LATENCY;
+    private int maxRequestsInFlight = DEFAULT_MAX_REQUESTS_IN_FLIGHT;
+
+    /**
+     * The #of service URIs whose adaptive chunk size is retained by a hard
+     * reference.
+     */
+    private static final int CHUNK_SIZE_CACHE_CAPACITY = 100;
+
+    /**
+     * The timeout after which the adaptive chunk size for a service URI which
+     * is not in use may be discarded.
+     */
+    private static final long CHUNK_SIZE_CACHE_TIMEOUT = TimeUnit.MINUTES
+            .toNanos(10);
+
+    /**
+     * The adaptive chunk size for each service URI using these options.
+     * <p>
+     * Note: The same options object is shared by all remote services which
+     * were not explicitly registered, hence this is keyed by the service URI.
+     * Since the set of such URIs is open ended, the entries are weakly held
+     * and only the most recently used ones are retained by a hard reference.
+     * A discarded entry simply restarts from the initial chunk size.
+     */
+    private final ConcurrentWeakValueCacheWithTimeout<String, RemoteServiceChunkSize> chunkSizes = new ConcurrentWeakValueCacheWithTimeout<String, RemoteServiceChunkSize>(
+            CHUNK_SIZE_CACHE_CAPACITY, CHUNK_SIZE_CACHE_TIMEOUT);
     
 
     public RemoteServiceOptions() {
@@ -146,6 +205,157 @@ public class RemoteServiceOptions extends ServiceOptionsBase {
         
     }
     
+    /**
+     * The minimum #of distinct solutions vectored to the end point in a single
+     * request (default {@value #DEFAULT_MIN_CHUNK_SIZE}).
+     * 
+     * @see RemoteServiceChunkSize
+     */
+    public int getMinChunkSize() {
+
+        return minChunkSize;
+
+    }
+
+    public void setMinChunkSize(final int newValue) {
+
+        if (newValue <= 0)
+            throw new IllegalArgumentException();
+
+        this.minChunkSize = newValue;
+
+        chunkSizes.clear();
+
+    }
+
+    /**
+     * The #of distinct solutions vectored to the end point in the first
+     * request (default {@value #DEFAULT_INITIAL_CHUNK_SIZE}). The chunk size
+     * of later requests is adapted to the observed response latency. The
+     * value is clamped to [{@link #getMinChunkSize()},
+     * {@link #getMaxChunkSize()}].
+     * 
+     * @see RemoteServiceChunkSize
+     */
+    public int getInitialChunkSize() {
+
+        return initialChunkSize;
+
+    }
+
+    public void setInitialChunkSize(final int newValue) {
+
+        if (newValue <= 0)
+            throw new IllegalArgumentException();
+
+        this.initialChunkSize = newValue;
+
+        chunkSizes.clear();
+
+    }
+
+    /**
+     * The maximum #of distinct solutions vectored to the end point in a single
+     * request (default {@value #DEFAULT_MAX_CHUNK_SIZE}). This bounds the size
+     * of the generated <code>VALUES</code> clause. Set the minimum and the
+     * maximum to the same value to disable the adaptive chunk size.
+     * 
+     * @see RemoteServiceChunkSize
+     */
+    public int getMaxChunkSize() {
+
+        return maxChunkSize;
+
+    }
+
+    public void setMaxChunkSize(final int newValue) {
+
+        if (newValue <= 0)
+            throw new IllegalArgumentException();
+
+        this.maxChunkSize = newValue;
+
+        chunkSizes.clear();
+
+    }
+
+    /**
+     * The response latency (milliseconds) which the adaptive chunk size aims
+     * for (default {@value #DEFAULT_TARGET_LATENCY}).
+     * 
+     * @see RemoteServiceChunkSize
+     */
+    public long getTargetLatency() {
+
+        return targetLatency;
+
+    }
+
+    public void setTargetLatency(final long newValue) {
+
+        if (newValue <= 0)
+            throw new IllegalArgumentException();
+
+        this.targetLatency = newValue;
+
+        chunkSizes.clear();
+
+    }
+
+    /**
+     * The maximum #of concurrent requests issued against the end point for
+     * the chunks of the solutions vectored by a single SERVICE invocation
+     * (default {@value #DEFAULT_MAX_REQUESTS_IN_FLIGHT}).
+     */
+    public int getMaxRequestsInFlight() {
+
+        return maxRequestsInFlight;
+
+    }
+
+    public void setMaxRequestsInFlight(final int newValue) {
+
+        if (newValue <= 0)
+            throw new IllegalArgumentException();
+
+        this.maxRequestsInFlight = newValue;
+
+    }
+
+    /**
+     * Return the adaptive chunk size for the service URI.
+     * 
+     * @param serviceURI
+     *            The service URI.
+     */
+    public RemoteServiceChunkSize getChunkSize(final String serviceURI) {
+
+        if (serviceURI == null)
+            throw new IllegalArgumentException();
+
+        RemoteServiceChunkSize chunkSize = chunkSizes.get(serviceURI);
+
+        if (chunkSize == null) {
+
+            final int min = Math.min(minChunkSize, maxChunkSize);
+
+            final int initial = Math.max(min,
+                    Math.min(maxChunkSize, initialChunkSize));
+
+            final RemoteServiceChunkSize t = chunkSizes.putIfAbsent(
+                    serviceURI,
+                    chunkSize = new RemoteServiceChunkSize(min, initial,
+                            maxChunkSize, targetLatency));
+
+            if (t != null)
+                chunkSize = t;
+
+        }
+
+        return chunkSize;
+
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -153,6 +363,10 @@ public class RemoteServiceOptions extends ServiceOptionsBase {
         sb.append("{SPARQLVersion=" + getSPARQLVersion());
         sb.append(",GET=" + isGET());
         sb.append(",Accept=" + getAcceptHeader());
+        sb.append(",chunkSize=[" + getMinChunkSize() + ":"
+                + getInitialChunkSize() + ":" + getMaxChunkSize() + "]");
+        sb.append(",targetLatency=" + getTargetLatency());
+        sb.append(",maxRequestsInFlight=" + getMaxRequestsInFlight());
         sb.append("}");
         return sb.toString();
     }
@@ -47,9 +47,15 @@ Modifications:
 
 package com.bigdata.rdf.spo;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.bigdata.btree.IIndex;
@@ -61,12 +67,32 @@ import com.bigdata.relation.accesspath.IElementFilter;
 
 /**
  * Helper class writes an {@link ISPO}[] on one of the statement indices.
+ * <p>
+ * The index itself is written by a single thread (the B+Tree is single
+ * writer). For a large batch, the sorted statements are broken into chunks
+ * and the keys and values for those chunks are generated in parallel while
+ * the chunks which are already encoded are written onto the index in key
+ * order. This lets the CPU cost of key generation, filtering and duplicate
+ * elimination overlap with the index writes.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  * @version $Id$
  */
 public class SPOIndexWriter implements Callable<Long> {
 
+    /**
+     * The target #of statements in a chunk when the keys and values for a
+     * batch are generated in parallel. A chunk is extended as necessary so
+     * that statements having the same key are never split across chunks.
+     */
+    static final int CHUNK_SIZE = 5000;
+
+    /**
+     * The maximum #of chunks which may be generated in parallel (ahead of the
+     * chunk being written on the index).
+     */
+    static final int MAX_PARALLEL_CHUNKS = 4;
+
 //    private final AbstractTripleStore statementStore;
     
     private final ISPO[] stmts;
@@ -85,6 +111,12 @@ public class SPOIndexWriter implements Callable<Long> {
 
     private final IIndex ndx;
 
+    /**
+     * Used to generate the keys and values for a large batch in parallel
+     * (optional).
+     */
+    private final Executor executor;
+
 //    private final SPOKeyOrder keyOrder;
     
     private final boolean reportMutation;
@@ -184,6 +216,8 @@ public class SPOIndexWriter implements Callable<Long> {
         
         assert ndx != null;
 
+        this.executor = spoRelation.getExecutorService();
+
         quads = keyOrder.getKeyArity() == 4;
         
 //        assert quads == spoRelation.getContainer().isQuads();
@@ -214,105 +248,295 @@ public class SPOIndexWriter implements Callable<Long> {
 
         }
 
-        /*
-         * Generate keys for the statements to be added.
-         * 
-         * Note: This also filters out duplicate statements (since the data are
-         * sorted duplicates will be grouped together) and, if a filter has been
-         * specified, that filter is used to filter out any matching statements.
-         * 
-         * The outcome is that both keys[] and vals[] are dense and encode only
-         * the statements to be written on the index. Only the 1st [numToAdd]
-         * entries in those arrays contain valid data.
-         * 
-         * @todo write a unit test in which we verify: (a) the correct
-         * elimination of duplicate statements; (b) the correct filtering of
-         * statements; and (c) the correct application of the override flag.
-         */
-        
         final SPOTupleSerializer tupleSer = (SPOTupleSerializer) ndx
                 .getIndexMetadata().getTupleSerializer();
-        
-        int numToAdd = 0;
 
-        ISPO last = null;
+        final long _begin = System.currentTimeMillis();
 
-        // dense array of keys.
-        final byte[][] keys = new byte[numStmts][];
+        long writeCount = 0;
 
-        // dense array of values.
-        final byte[][] vals = new byte[numStmts][];
-        
-        // dense array of statements to write.
-        final ISPO[] denseStmts = reportMutation ? new ISPO[numStmts] : null;
+        if (executor == null || numStmts < 2 * CHUNK_SIZE) {
 
-        for (int i = 0; i < numStmts; i++) {
+            // Generate the keys and write them in this thread.
+            writeCount = write(new EncodeTask(tupleSer, 0, numStmts).call());
 
-            final ISPO spo = stmts[i];
+        } else {
 
-            if (spo == null)
-                throw new IllegalArgumentException("null @ index=" + i);
-            
-            if (!spo.isFullyBound())
-                throw new IllegalArgumentException("Not fully bound: "
-                        + spo.toString());
+            /*
+             * Break the sorted statements into chunks. A chunk boundary never
+             * falls between statements having the same key, so duplicate
+             * elimination within each chunk gives the same outcome as for the
+             * batch as a whole.
+             */
+            final List<FutureTask<Chunk>> tasks = new ArrayList<FutureTask<Chunk>>();
+
+            int fromIndex = 0;
+
+            while (fromIndex < numStmts) {
+
+                int toIndex = Math.min(numStmts, fromIndex + CHUNK_SIZE);
+
+                while (toIndex < numStmts
+                        && comparator.compare(stmts[toIndex - 1],
+                                stmts[toIndex]) == 0) {
+
+                    toIndex++;
 
-            if (quads) {
-                if (spo.c() == null) {
-                    /*
-                     * Do not permit an ISPO to be written onto a quads mode
-                     * index without the [c] position bound.
-                     */
-                    throw new IllegalArgumentException("context not bound: "
-                            + spo);
                 }
-            } else if (!sids) {
-                if (spo.c() != null) {
-                    /*
-                     * Do not permit an ISPO to be written onto the index in
-                     * triples mode if its context position is not bound. 
-                     */
-                    throw new IllegalArgumentException(
-                            "context bound, but not quads or sids: " + spo);
+
+                tasks.add(new FutureTask<Chunk>(new EncodeTask(tupleSer,
+                        fromIndex, toIndex)));
+
+                fromIndex = toIndex;
+
+            }
+
+            final int nchunks = tasks.size();
+
+            try {
+
+                for (int i = 0; i < nchunks && i < MAX_PARALLEL_CHUNKS; i++) {
+
+                    executor.execute(tasks.get(i));
+
                 }
+
+                for (int i = 0; i < nchunks; i++) {
+
+                    // wait for the chunk to be encoded.
+                    final Chunk chunk = getChunk(tasks.get(i));
+
+                    if (i + MAX_PARALLEL_CHUNKS < nchunks) {
+
+                        // start the next chunk.
+                        executor.execute(tasks.get(i + MAX_PARALLEL_CHUNKS));
+
+                    }
+
+                    // write the chunk on the index.
+                    writeCount += write(chunk);
+
+                }
+
+            } finally {
+
+                for (FutureTask<Chunk> task : tasks) {
+
+                    task.cancel(true/* mayInterruptIfRunning */);
+
+                }
+
             }
-            
-            // skip statements that match the filter.
-            if (filter != null && filter.isValid(spo))
-                continue;
 
-            // skip duplicate records.
-            if (last != null && last.equals(spo)) {
+        }
+
+        insertTime.addAndGet(System.currentTimeMillis() - _begin);
+
+		if (primaryIndex) {
+
+            /*
+             * Note: Only the task writing on the primary index takes
+             * responsibility for reporting the #of statements that were written
+             * on the indices. This avoids double counting.
+             */
+
+            numWritten.addAndGet(writeCount);
+
+        }
+
+        return System.currentTimeMillis() - begin;
+
+    }
+
+    /**
+     * Return the {@link Chunk}, unwrapping the cause of an
+     * {@link ExecutionException} (e.g., an {@link IllegalArgumentException}
+     * for a statement which is not fully bound).
+     */
+    private static Chunk getChunk(final Future<Chunk> f) throws Exception {
+
+        try {
+
+            return f.get();
+
+        } catch (ExecutionException ex) {
+
+            if (ex.getCause() instanceof Exception)
+                throw (Exception) ex.getCause();
+
+            throw ex;
+
+        }
+
+    }
+
+    /**
+     * The keys and values generated for a slice of the sorted statements.
+     * Only the first {@link #n} entries of each array contain valid data.
+     */
+    private static class Chunk {
+
+        /** dense array of keys. */
+        final byte[][] keys;
+
+        /** dense array of values. */
+        final byte[][] vals;
+
+        /** dense array of statements to write (iff reporting mutations). */
+        final ISPO[] denseStmts;
+
+        /** The #of statements to write. */
+        final int n;
+
+        Chunk(final byte[][] keys, final byte[][] vals,
+                final ISPO[] denseStmts, final int n) {
+
+            this.keys = keys;
+            this.vals = vals;
+            this.denseStmts = denseStmts;
+            this.n = n;
+
+        }
+
+    }
+
+    /**
+     * Generate keys for the statements to be added.
+     * <p>
+     * Note: This also filters out duplicate statements (since the data are
+     * sorted duplicates will be grouped together) and, if a filter has been
+     * specified, that filter is used to filter out any matching statements.
+     * <p>
+     * The outcome is that both keys[] and vals[] are dense and encode only the
+     * statements to be written on the index. Only the 1st [numToAdd] entries
+     * in those arrays contain valid data.
+     * 
+     * @todo write a unit test in which we verify: (a) the correct elimination
+     *       of duplicate statements; (b) the correct filtering of statements;
+     *       and (c) the correct application of the override flag.
+     */
+    private class EncodeTask implements Callable<Chunk> {
+
+        private final SPOTupleSerializer tupleSer;
+
+        private final int fromIndex;
+
+        private final int toIndex;
+
+        EncodeTask(final SPOTupleSerializer tupleSer, final int fromIndex,
+                final int toIndex) {
+
+            this.tupleSer = tupleSer;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+
+        }
+
+        @Override
+        public Chunk call() throws Exception {
+
+            final int capacity = toIndex - fromIndex;
+
+            int numToAdd = 0;
+
+            ISPO last = null;
+
+            // dense array of keys.
+            final byte[][] keys = new byte[capacity][];
+
+            // dense array of values.
+            final byte[][] vals = new byte[capacity][];
+
+            // dense array of statements to write.
+            final ISPO[] denseStmts = reportMutation ? new ISPO[capacity]
+                    : null;
+
+            for (int i = fromIndex; i < toIndex; i++) {
+
+                final ISPO spo = stmts[i];
+
+                if (spo == null)
+                    throw new IllegalArgumentException("null @ index=" + i);
+
+                if (!spo.isFullyBound())
+                    throw new IllegalArgumentException("Not fully bound: "
+                            + spo.toString());
+
                 if (quads) {
-                    // must also compare context for quads.
-                    if (last.c().equals(spo.c()))
-                        continue;
+                    if (spo.c() == null) {
+                        /*
+                         * Do not permit an ISPO to be written onto a quads
+                         * mode index without the [c] position bound.
+                         */
+                        throw new IllegalArgumentException(
+                                "context not bound: " + spo);
+                    }
+                } else if (!sids) {
+                    if (spo.c() != null) {
+                        /*
+                         * Do not permit an ISPO to be written onto the index
+                         * in triples mode if its context position is not
+                         * bound.
+                         */
+                        throw new IllegalArgumentException(
+                                "context bound, but not quads or sids: " + spo);
+                    }
+                }
 
-                } else
+                // skip statements that match the filter.
+                if (filter != null && filter.isValid(spo))
                     continue;
-            }
 
-            // generate key for the index.
-            keys[numToAdd] = tupleSer.serializeKey(spo);
-            
-            // generate value for the index.
-            vals[numToAdd] = tupleSer.serializeVal(spo);
+                // skip duplicate records.
+                if (last != null && last.equals(spo)) {
+                    if (quads) {
+                        // must also compare context for quads.
+                        if (last.c().equals(spo.c()))
+                            continue;
 
-            if(reportMutation)
-                denseStmts[numToAdd] = spo;
-            
-            last = spo;
+                    } else
+                        continue;
+                }
+
+                // generate key for the index.
+                keys[numToAdd] = tupleSer.serializeKey(spo);
+
+                // generate value for the index.
+                vals[numToAdd] = tupleSer.serializeVal(spo);
+
+                if (reportMutation)
+                    denseStmts[numToAdd] = spo;
 
-            numToAdd++;
+                last = spo;
+
+                numToAdd++;
+
+            }
+
+            return new Chunk(keys, vals, denseStmts, numToAdd);
 
         }
-        
-        /*
-         * Run the batch insert/update logic as a procedure.
-         */
-        final long _begin = System.currentTimeMillis();
-        
+
+    }
+
+    /**
+     * Run the batch insert/update logic for a chunk as a procedure.
+     * 
+     * @return The #of statements whose state in the index was changed.
+     */
+    private long write(final Chunk chunk) {
+
+        final int numToAdd = chunk.n;
+
+        if (numToAdd == 0)
+            return 0L;
+
+        final byte[][] keys = chunk.keys;
+
+        final byte[][] vals = chunk.vals;
+
         long writeCount = 0;
+
         if (reportMutation) {
 
             /*
@@ -322,6 +546,8 @@ public class SPOIndexWriter implements Callable<Long> {
              * caller's array.
              */
 
+            final ISPO[] denseStmts = chunk.denseStmts;
+
             final ResultBitBufferHandler aggregator = new ResultBitBufferHandler(
                     numToAdd,2);
 
@@ -366,22 +592,8 @@ public class SPOIndexWriter implements Callable<Long> {
             writeCount = aggregator.getResult();
 
         }
-        
-        insertTime.addAndGet(System.currentTimeMillis() - _begin);
-
-		if (primaryIndex) {
-
-            /*
-             * Note: Only the task writing on the primary index takes
-             * responsibility for reporting the #of statements that were written
-             * on the indices. This avoids double counting.
-             */
-
-            numWritten.addAndGet(writeCount);
-
-        }
 
-        return System.currentTimeMillis() - begin;
+        return writeCount;
 
     }
 
@@ -89,6 +89,8 @@ import com.bigdata.rdf.model.StatementEnum;
 import com.bigdata.rdf.sparql.ast.QuadsOperationInTriplesModeException;
 import com.bigdata.rdf.sparql.ast.service.history.HistoryIndexTupleSerializer;
 import com.bigdata.rdf.spo.JustIndexWriteProc.WriteJustificationsProcConstructor;
+import com.bigdata.rdf.stats.StatisticsCatalog;
+import com.bigdata.rdf.stats.StatisticsCatalogUpdater;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.store.IRawTripleStore;
 import com.bigdata.rdf.store.LocalTripleStore;
@@ -195,6 +197,11 @@ public class SPORelation extends AbstractRelation<ISPO> {
      */
     final private boolean historyService;
 
+    /**
+     * This is used to conditionally maintain the {@link StatisticsCatalog}.
+     */
+    final private boolean statisticsCatalog;
+
     /**
      * When true, SPOs will never be removed from the indices, only downgraded
      * to {@link StatementEnum#History}.
@@ -270,6 +277,10 @@ public class SPORelation extends AbstractRelation<ISPO> {
                 AbstractTripleStore.Options.HISTORY_SERVICE,
                 AbstractTripleStore.Options.DEFAULT_HISTORY_SERVICE));
 
+        this.statisticsCatalog = Boolean.parseBoolean(getProperty(
+                AbstractTripleStore.Options.STATISTICS_CATALOG,
+                AbstractTripleStore.Options.DEFAULT_STATISTICS_CATALOG));
+
         this.keyArity = Boolean.valueOf(getProperty(
                 AbstractTripleStore.Options.QUADS,
                 AbstractTripleStore.Options.DEFAULT_QUADS)) ? 4 : 3;
@@ -284,6 +295,18 @@ public class SPORelation extends AbstractRelation<ISPO> {
 
         }
 
+        if (statisticsCatalog && oneAccessPath) {
+
+            /*
+             * Note: The catalog is rebuilt using the POS (POCS) index.
+             */
+            throw new UnsupportedOperationException(
+                    AbstractTripleStore.Options.ONE_ACCESS_PATH
+                            + " does not support the "
+                            + AbstractTripleStore.Options.STATISTICS_CATALOG);
+
+        }
+
         this.bloomFilter = Boolean.parseBoolean(getProperty(
                 AbstractTripleStore.Options.BLOOM_FILTER,
                 AbstractTripleStore.Options.DEFAULT_BLOOM_FILTER));
@@ -487,6 +510,18 @@ public class SPORelation extends AbstractRelation<ISPO> {
                 indexManager.registerIndex(getHistoryIndexMetadata(keyOrder));
 
             }
+
+            if (statisticsCatalog) {
+
+                indexManager.registerIndex(getStatisticsIndexMetadata());
+
+                /*
+                 * Write the catalog for the empty KB so it is maintained
+                 * incrementally from the first commit.
+                 */
+                StatisticsCatalogUpdater.init(getStatisticsIndex());
+
+            }
             
 //            lookupIndices();
 
@@ -524,6 +559,12 @@ public class SPORelation extends AbstractRelation<ISPO> {
                 indexManager.dropIndex(name);
                 
             }
+
+            if (statisticsCatalog) {
+
+                indexManager.dropIndex(getFQN(this, NAME_STATISTICS));
+
+            }
             
 //            if (justify) {
 //
@@ -708,9 +749,14 @@ public class SPORelation extends AbstractRelation<ISPO> {
 
         final IndexMetadata metadata = newIndexMetadata(getFQN(keyOrder));
 
-        // leading key compression works great.
-        final IRabaCoder leafKeySer = DefaultTupleSerializer
-                .getDefaultLeafKeysCoder();
+        /*
+         * Leading key compression works great. This is the default, but it may
+         * be overridden using IndexMetadata.Options#LEAF_KEYS_CODER, e.g., with
+         * a FixedLengthKeyRabaCoder for faster point lookups when most keys
+         * are fixed length.
+         */
+        final IRabaCoder leafKeySer = metadata.getTupleSerializer()
+                .getLeafKeysCoder();
 
 //        final IRabaCoder leafValSer;
 //        if (!statementIdentifiers) {
@@ -917,6 +963,79 @@ public class SPORelation extends AbstractRelation<ISPO> {
     }
     public static transient final String NAME_HISTORY = "HIST";
 
+    /**
+     * The metadata for the index on which the {@link StatisticsCatalog} is
+     * stored.
+     */
+    protected IndexMetadata getStatisticsIndexMetadata() {
+
+        final IndexMetadata metadata = newIndexMetadata(getFQN(this,
+                NAME_STATISTICS));
+
+        if (TimestampUtility.isReadWriteTx(getTimestamp())) {
+
+            /*
+             * Enable isolatable indices (the catalog is written when the
+             * transaction is prepared).
+             */
+
+            metadata.setIsolatable(true);
+
+        }
+
+        return metadata;
+
+    }
+
+    public static transient final String NAME_STATISTICS = "STATS";
+
+    /**
+     * The index on which the {@link StatisticsCatalog} is stored.
+     * 
+     * @return The index -or- <code>null</code> unless the
+     *         {@link AbstractTripleStore.Options#STATISTICS_CATALOG} is
+     *         enabled.
+     * 
+     * @throws IllegalStateException
+     *             if the catalog is enabled but the index does not exist.
+     */
+    public IIndex getStatisticsIndex() {
+
+        if (!statisticsCatalog)
+            return null;
+
+        final String fqn = getFQN(this, NAME_STATISTICS);
+
+        final IIndex ndx = getIndex(fqn);
+
+        if (ndx == null)
+            throw new IllegalStateException("Index not found: " + fqn);
+
+        return ndx;
+
+    }
+
+    /**
+     * Return the {@link StatisticsCatalog} for this view of the relation.
+     * <p>
+     * Note: The catalog is only reported for read-only views. The catalog of
+     * a mutable view is only brought up to date when the transaction is
+     * prepared, so the query optimizers use range counts for such views.
+     * 
+     * @return The catalog -or- <code>null</code> if the catalog is not enabled,
+     *         if this is not a read-only view, or if the catalog has not been
+     *         written yet.
+     */
+    public StatisticsCatalog getStatisticsCatalog() {
+
+        if (!statisticsCatalog
+                || !TimestampUtility.isReadOnly(getTimestamp()))
+            return null;
+
+        return StatisticsCatalog.getInstance(getStatisticsIndex());
+
+    }
+
     /**
      * Conflict resolver for add/add conflicts and retract/retract conflicts for
      * any of (triple store, triple store with SIDs or quad store) but without
@@ -0,0 +1,170 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.bigdata.rdf.internal.IV;
+
+/**
+ * A characteristic set is the set of distinct predicates used by a subject.
+ * For each characteristic set we track the #of subjects having exactly that
+ * set of predicates and, for each predicate in the set, the total #of
+ * statements for those subjects using that predicate. This is enough to
+ * estimate the cardinality of a star join (a set of triple patterns sharing
+ * the same subject variable) without assuming that the predicates are
+ * independent.
+ *
+ * @see T. Neumann and G. Moerkotte, "Characteristic sets: Accurate
+ *      cardinality estimation for RDF queries with multiple joins", ICDE 2011.
+ */
+public class CharacteristicSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The distinct predicates in ascending order. */
+    private final IV<?, ?>[] predicates;
+
+    /** The #of subjects having exactly this set of predicates. */
+    long subjects;
+
+    /**
+     * The #of statements for each predicate in {@link #predicates} summed
+     * over the subjects having this characteristic set.
+     */
+    final long[] occurrences;
+
+    /**
+     * @param predicates
+     *            The distinct predicates in ascending order.
+     */
+    public CharacteristicSet(final IV<?, ?>[] predicates) {
+
+        if (predicates == null || predicates.length == 0)
+            throw new IllegalArgumentException();
+
+        this.predicates = predicates;
+
+        this.occurrences = new long[predicates.length];
+
+    }
+
+    /**
+     * The distinct predicates in ascending order (the returned array is a
+     * copy).
+     */
+    public IV<?, ?>[] getPredicates() {
+        return predicates.clone();
+    }
+
+    /** The #of subjects having exactly this set of predicates. */
+    public long getSubjectCount() {
+        return subjects;
+    }
+
+    /**
+     * The #of statements using the given predicate summed over the subjects
+     * having this characteristic set.
+     *
+     * @return The #of statements -or- <code>-1L</code> if the predicate is not
+     *         part of this characteristic set.
+     */
+    public long getOccurrences(final IV<?, ?> p) {
+
+        final int i = indexOf(p);
+
+        return i < 0 ? -1L : occurrences[i];
+
+    }
+
+    /**
+     * Return <code>true</code> iff this characteristic set contains each of
+     * the given predicates.
+     */
+    public boolean containsAll(final IV<?, ?>[] a) {
+
+        for (IV<?, ?> p : a) {
+
+            if (indexOf(p) < 0)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private int indexOf(final IV<?, ?> p) {
+
+        return Arrays.binarySearch((IV[]) predicates, (IV) p);
+
+    }
+
+    /**
+     * Add (or remove) the contribution of a single subject.
+     *
+     * @param counts
+     *            The #of statements for that subject for each of the
+     *            {@link #predicates}.
+     * @param sign
+     *            <code>1</code> to add the subject and <code>-1</code> to
+     *            remove it.
+     */
+    void add(final long[] counts, final int sign) {
+
+        if (counts.length != predicates.length)
+            throw new IllegalArgumentException();
+
+        subjects += sign;
+
+        for (int i = 0; i < counts.length; i++) {
+
+            occurrences[i] += sign * counts[i];
+
+        }
+
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getSimpleName());
+        sb.append("{subjects=" + subjects);
+        sb.append(",predicates=[");
+        for (int i = 0; i < predicates.length; i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append(predicates[i] + "=" + occurrences[i]);
+        }
+        sb.append("]}");
+
+        return sb.toString();
+
+    }
+
+}
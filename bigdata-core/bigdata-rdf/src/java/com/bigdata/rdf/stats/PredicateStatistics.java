@@ -0,0 +1,271 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.bigdata.rdf.internal.IV;
+
+/**
+ * Statistics for a single predicate in the {@link StatisticsCatalog}: the #of
+ * statements using that predicate, the #of distinct subjects and objects for
+ * that predicate, and a bounded list of the objects which occur most often
+ * with that predicate (the heavy hitters).
+ * <p>
+ * The counts reported for the heavy hitters are exact as of the last update
+ * which touched the corresponding (p,o) pair. The list itself is approximate:
+ * an object which has become frequent without being touched by an update will
+ * not be reported until it is touched or the catalog is rebuilt.
+ */
+public class PredicateStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final IV<?, ?>[] EMPTY_IVS = new IV[0];
+
+    private static final long[] EMPTY_COUNTS = new long[0];
+
+    /** The predicate. */
+    private final IV<?, ?> p;
+
+    /** The #of statements using the predicate. */
+    long count;
+
+    /** The #of distinct subjects for the predicate. */
+    long distinctSubjects;
+
+    /** The #of distinct objects for the predicate. */
+    long distinctObjects;
+
+    /** The heavy hitter objects in descending order by their counts. */
+    IV<?, ?>[] heavyHitters = EMPTY_IVS;
+
+    /** The counts for the {@link #heavyHitters}. */
+    long[] heavyHitterCounts = EMPTY_COUNTS;
+
+    public PredicateStatistics(final IV<?, ?> p) {
+
+        if (p == null)
+            throw new IllegalArgumentException();
+
+        this.p = p;
+
+    }
+
+    /** The predicate. */
+    public IV<?, ?> getPredicate() {
+        return p;
+    }
+
+    /** The #of statements using the predicate. */
+    public long getCount() {
+        return count;
+    }
+
+    /** The #of distinct subjects for the predicate. */
+    public long getDistinctSubjectCount() {
+        return distinctSubjects;
+    }
+
+    /** The #of distinct objects for the predicate. */
+    public long getDistinctObjectCount() {
+        return distinctObjects;
+    }
+
+    /**
+     * The heavy hitter objects in descending order by their counts (the
+     * returned array is a copy).
+     */
+    public IV<?, ?>[] getHeavyHitters() {
+        return heavyHitters.clone();
+    }
+
+    /**
+     * Return the #of statements using this predicate and the given object iff
+     * the object is a heavy hitter.
+     *
+     * @return The count -or- <code>-1L</code> if the object is not a heavy
+     *         hitter.
+     */
+    public long getHeavyHitterCount(final IV<?, ?> o) {
+
+        final int i = indexOf(o);
+
+        return i == -1 ? -1L : heavyHitterCounts[i];
+
+    }
+
+    /**
+     * The fraction of the statements for this predicate which are expected to
+     * have the given object. Heavy hitters report their exact share; other
+     * objects are assumed to be uniformly distributed.
+     */
+    public double getObjectSelectivity(final IV<?, ?> o) {
+
+        if (count == 0L)
+            return 0d;
+
+        final long n = getHeavyHitterCount(o);
+
+        if (n != -1L)
+            return n / (double) count;
+
+        return distinctObjects == 0L ? 1d : 1d / distinctObjects;
+
+    }
+
+    private int indexOf(final IV<?, ?> o) {
+
+        for (int i = 0; i < heavyHitters.length; i++) {
+
+            if (heavyHitters[i].equals(o))
+                return i;
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Record the current count for a (p,o) pair. A known heavy hitter has its
+     * count replaced (and is dropped if the count is zero). Otherwise the
+     * object is added if there is room for it or if its count is greater than
+     * that of the least frequent heavy hitter, which is then evicted.
+     *
+     * @param o
+     *            The object.
+     * @param n
+     *            The #of statements for (p,o).
+     * @param capacity
+     *            The maximum #of heavy hitters to retain.
+     */
+    void offerHeavyHitter(final IV<?, ?> o, final long n, final int capacity) {
+
+        final int i = indexOf(o);
+
+        if (i != -1) {
+
+            if (n <= 0L) {
+
+                final int len = heavyHitters.length - 1;
+                final IV<?, ?>[] a = new IV[len];
+                final long[] c = new long[len];
+                System.arraycopy(heavyHitters, 0, a, 0, i);
+                System.arraycopy(heavyHitterCounts, 0, c, 0, i);
+                System.arraycopy(heavyHitters, i + 1, a, i, len - i);
+                System.arraycopy(heavyHitterCounts, i + 1, c, i, len - i);
+                heavyHitters = a;
+                heavyHitterCounts = c;
+                return;
+
+            }
+
+            heavyHitterCounts[i] = n;
+
+        } else {
+
+            if (n <= 0L || capacity <= 0)
+                return;
+
+            if (heavyHitters.length < capacity) {
+
+                heavyHitters = Arrays.copyOf(heavyHitters,
+                        heavyHitters.length + 1);
+                heavyHitterCounts = Arrays.copyOf(heavyHitterCounts,
+                        heavyHitterCounts.length + 1);
+                heavyHitters[heavyHitters.length - 1] = o;
+                heavyHitterCounts[heavyHitterCounts.length - 1] = n;
+
+            } else {
+
+                // The list is ordered, so the last entry is the least frequent.
+                final int last = heavyHitters.length - 1;
+
+                if (heavyHitterCounts[last] >= n)
+                    return;
+
+                heavyHitters[last] = o;
+                heavyHitterCounts[last] = n;
+
+            }
+
+        }
+
+        sort();
+
+    }
+
+    /**
+     * Insertion sort in descending order by count (the list is short and
+     * nearly sorted).
+     */
+    private void sort() {
+
+        for (int i = 1; i < heavyHitters.length; i++) {
+
+            final IV<?, ?> o = heavyHitters[i];
+            final long n = heavyHitterCounts[i];
+
+            int j = i - 1;
+
+            while (j >= 0 && heavyHitterCounts[j] < n) {
+
+                heavyHitters[j + 1] = heavyHitters[j];
+                heavyHitterCounts[j + 1] = heavyHitterCounts[j];
+                j--;
+
+            }
+
+            heavyHitters[j + 1] = o;
+            heavyHitterCounts[j + 1] = n;
+
+        }
+
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getSimpleName());
+        sb.append("{p=" + p);
+        sb.append(",count=" + count);
+        sb.append(",distinctSubjects=" + distinctSubjects);
+        sb.append(",distinctObjects=" + distinctObjects);
+        sb.append(",heavyHitters=[");
+        for (int i = 0; i < heavyHitters.length; i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append(heavyHitters[i] + "=" + heavyHitterCounts[i]);
+        }
+        sb.append("]}");
+
+        return sb.toString();
+
+    }
+
+}
@@ -0,0 +1,653 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.keys.SuccessorUtil;
+import com.bigdata.io.SerializerUtil;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * A read-only view of the statistics catalog for a KB instance. The catalog
+ * is stored in the {@link SPORelation#NAME_STATISTICS} index and maintained
+ * at commit by the {@link StatisticsCatalogUpdater}. It holds the
+ * per-predicate statistics ({@link PredicateStatistics}) and the
+ * {@link CharacteristicSet}s of the subjects, which are used by the query
+ * optimizers in preference to range counts where they give a better estimate.
+ * <p>
+ * The index is keyed by a one byte record type followed by the encoded
+ * {@link IV}s (nothing for the summary record, the predicate for a
+ * {@link PredicateStatistics} record, and the ordered predicates for a
+ * {@link CharacteristicSet} record). The values are Java serialized objects.
+ * Each characteristic set is also indexed under each of its predicates (a
+ * record having the type {@link #PREDICATE_CHARACTERISTIC_SET}, the
+ * predicate and then the ordered predicates of the set, without a value) so
+ * the sets containing a predicate may be found with a key range scan.
+ * <p>
+ * The records are read on demand and retained for the life of this object,
+ * so only the statistics for the predicates actually used by the queries are
+ * read from a given view of the index.
+ *
+ * @see AbstractTripleStore.Options#STATISTICS_CATALOG
+ */
+public class StatisticsCatalog {
+
+    private static final transient Logger log = Logger
+            .getLogger(StatisticsCatalog.class);
+
+    /** The record type for the summary (the total #of statements). */
+    static final byte SUMMARY = 0;
+
+    /** The record type for a {@link PredicateStatistics}. */
+    static final byte PREDICATE = 1;
+
+    /** The record type for a {@link CharacteristicSet}. */
+    static final byte CHARACTERISTIC_SET = 2;
+
+    /**
+     * The record type for the entry indexing a {@link CharacteristicSet}
+     * under one of its predicates.
+     */
+    static final byte PREDICATE_CHARACTERISTIC_SET = 3;
+
+    /**
+     * Views for read-only index views. The key is the index view, so a view
+     * (and the records read through it) is discarded once its index view is
+     * no longer in use.
+     */
+    private static final Map<IIndex, StatisticsCatalog> cache = Collections
+            .synchronizedMap(new WeakHashMap<IIndex, StatisticsCatalog>());
+
+    /** Used to mark a predicate which has no statistics. */
+    private static final Object NONE = new Object();
+
+    /**
+     * The statistics index (<code>null</code> once the catalog has been fully
+     * materialized by {@link #load(IIndex)}).
+     */
+    private final IIndex ndx;
+
+    /** The total #of statements. */
+    private final long statementCount;
+
+    /**
+     * The statistics for each predicate which has been read so far (the value
+     * is {@link #NONE} for a predicate without statistics).
+     */
+    private final ConcurrentHashMap<IV<?, ?>, Object> predicates = new ConcurrentHashMap<IV<?, ?>, Object>();
+
+    /**
+     * The characteristic sets containing each predicate for which they have
+     * been read so far.
+     */
+    private final ConcurrentHashMap<IV<?, ?>, List<CharacteristicSet>> characteristicSetsByPredicate = new ConcurrentHashMap<IV<?, ?>, List<CharacteristicSet>>();
+
+    /**
+     * All characteristic sets (only when the catalog has been fully
+     * materialized).
+     */
+    private final List<CharacteristicSet> characteristicSets;
+
+    private StatisticsCatalog(final IIndex ndx, final long statementCount,
+            final List<CharacteristicSet> characteristicSets) {
+
+        this.ndx = ndx;
+        this.statementCount = statementCount;
+        this.characteristicSets = characteristicSets;
+
+    }
+
+    /**
+     * Return the catalog for a read-only view of the statistics index. The
+     * catalog reads the records on demand and is cached for as long as that
+     * index view is in use.
+     *
+     * @param ndx
+     *            A read-only view of the statistics index.
+     *
+     * @return The catalog -or- <code>null</code> if the catalog has never
+     *         been written.
+     */
+    public static StatisticsCatalog getInstance(final IIndex ndx) {
+
+        if (ndx == null)
+            throw new IllegalArgumentException();
+
+        StatisticsCatalog catalog = cache.get(ndx);
+
+        if (catalog == null && !cache.containsKey(ndx)) {
+
+            final byte[] val = ndx.lookup(getSummaryKey(KeyBuilder
+                    .newInstance()));
+
+            catalog = val == null ? null : new StatisticsCatalog(ndx,
+                    (Long) SerializerUtil.deserialize(val), null/* csets */);
+
+            cache.put(ndx, catalog);
+
+        }
+
+        return catalog;
+
+    }
+
+    /**
+     * Read the entire catalog from the statistics index. The returned catalog
+     * does not retain a reference to the index.
+     *
+     * @param ndx
+     *            The statistics index.
+     *
+     * @return The catalog -or- <code>null</code> if the catalog has never
+     *         been written.
+     */
+    public static StatisticsCatalog load(final IIndex ndx) {
+
+        final long begin = System.currentTimeMillis();
+
+        long statementCount = -1L;
+
+        final List<PredicateStatistics> predicates = new ArrayList<PredicateStatistics>();
+
+        final List<CharacteristicSet> characteristicSets = new ArrayList<CharacteristicSet>();
+
+        final ITupleIterator<?> itr = ndx.rangeIterator();
+
+        while (itr.hasNext()) {
+
+            final ITuple<?> tuple = itr.next();
+
+            final byte[] key = tuple.getKey();
+
+            switch (key[0]) {
+            case SUMMARY:
+                statementCount = (Long) SerializerUtil.deserialize(tuple
+                        .getValue());
+                break;
+            case PREDICATE:
+                predicates.add((PredicateStatistics) SerializerUtil
+                        .deserialize(tuple.getValue()));
+                break;
+            case CHARACTERISTIC_SET:
+                characteristicSets.add((CharacteristicSet) SerializerUtil
+                        .deserialize(tuple.getValue()));
+                break;
+            case PREDICATE_CHARACTERISTIC_SET:
+                break;
+            default:
+                throw new AssertionError("Unknown record type: " + key[0]);
+            }
+
+        }
+
+        if (statementCount == -1L) {
+
+            // Never written.
+            return null;
+
+        }
+
+        final StatisticsCatalog catalog = new StatisticsCatalog(null/* ndx */,
+                statementCount, characteristicSets);
+
+        for (PredicateStatistics ps : predicates) {
+
+            catalog.predicates.put(ps.getPredicate(), ps);
+
+        }
+
+        for (CharacteristicSet cs : characteristicSets) {
+
+            for (IV<?, ?> p : cs.getPredicates()) {
+
+                List<CharacteristicSet> list = catalog.characteristicSetsByPredicate
+                        .get(p);
+
+                if (list == null) {
+                    catalog.characteristicSetsByPredicate.put(p,
+                            list = new ArrayList<CharacteristicSet>());
+                }
+
+                list.add(cs);
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("Loaded: npredicates=" + predicates.size()
+                    + ", ncharacteristicSets=" + characteristicSets.size()
+                    + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        return catalog;
+
+    }
+
+    /** The key for the summary record. */
+    static byte[] getSummaryKey(final IKeyBuilder keyBuilder) {
+
+        return keyBuilder.reset().append(SUMMARY).getKey();
+
+    }
+
+    /** The key for the {@link PredicateStatistics} of a predicate. */
+    static byte[] getPredicateKey(final IKeyBuilder keyBuilder,
+            final IV<?, ?> p) {
+
+        keyBuilder.reset().append(PREDICATE);
+
+        p.encode(keyBuilder);
+
+        return keyBuilder.getKey();
+
+    }
+
+    /** The key for the {@link CharacteristicSet} of some ordered predicates. */
+    static byte[] getCharacteristicSetKey(final IKeyBuilder keyBuilder,
+            final IV<?, ?>[] predicates) {
+
+        keyBuilder.reset().append(CHARACTERISTIC_SET);
+
+        for (IV<?, ?> p : predicates) {
+
+            p.encode(keyBuilder);
+
+        }
+
+        return keyBuilder.getKey();
+
+    }
+
+    /**
+     * The key prefix for the entries indexing the {@link CharacteristicSet}s
+     * containing a predicate.
+     */
+    static byte[] getPredicateCharacteristicSetPrefix(
+            final IKeyBuilder keyBuilder, final IV<?, ?> p) {
+
+        keyBuilder.reset().append(PREDICATE_CHARACTERISTIC_SET);
+
+        p.encode(keyBuilder);
+
+        return keyBuilder.getKey();
+
+    }
+
+    /**
+     * The key for the entry indexing a {@link CharacteristicSet} under one of
+     * its predicates.
+     *
+     * @param p
+     *            The predicate.
+     * @param csKey
+     *            The key of the characteristic set.
+     */
+    static byte[] getPredicateCharacteristicSetKey(
+            final IKeyBuilder keyBuilder, final IV<?, ?> p, final byte[] csKey) {
+
+        keyBuilder.reset().append(PREDICATE_CHARACTERISTIC_SET);
+
+        p.encode(keyBuilder);
+
+        // the ordered predicates of the set (skipping the record type).
+        keyBuilder.append(csKey, 1, csKey.length - 1);
+
+        return keyBuilder.getKey();
+
+    }
+
+    /** The total #of statements. */
+    public long getStatementCount() {
+
+        return statementCount;
+
+    }
+
+    /**
+     * The characteristic sets (in the order of their keys).
+     * <p>
+     * Note: Unless the catalog was fully materialized, this scans the
+     * characteristic sets in the index.
+     */
+    public List<CharacteristicSet> getCharacteristicSets() {
+
+        if (characteristicSets != null)
+            return Collections.unmodifiableList(characteristicSets);
+
+        final List<CharacteristicSet> list = new ArrayList<CharacteristicSet>();
+
+        final ITupleIterator<?> itr = ndx.rangeIterator(
+                new byte[] { CHARACTERISTIC_SET },
+                new byte[] { CHARACTERISTIC_SET + 1 }, 0/* capacity */,
+                IRangeQuery.VALS, null/* filter */);
+
+        while (itr.hasNext()) {
+
+            list.add((CharacteristicSet) SerializerUtil.deserialize(itr
+                    .next().getValue()));
+
+        }
+
+        return Collections.unmodifiableList(list);
+
+    }
+
+    /**
+     * Return the statistics for a predicate.
+     *
+     * @return The statistics -or- <code>null</code> if there are no statements
+     *         for that predicate.
+     */
+    public PredicateStatistics getPredicateStatistics(final IV<?, ?> p) {
+
+        Object v = predicates.get(p);
+
+        if (v == null) {
+
+            if (ndx == null) {
+
+                // Fully materialized.
+                return null;
+
+            }
+
+            final byte[] val = ndx.lookup(getPredicateKey(
+                    KeyBuilder.newInstance(), p));
+
+            v = val == null ? NONE : SerializerUtil.deserialize(val);
+
+            final Object t = predicates.putIfAbsent(p, v);
+
+            if (t != null)
+                v = t;
+
+        }
+
+        return v == NONE ? null : (PredicateStatistics) v;
+
+    }
+
+    /**
+     * Return the #of characteristic sets containing a predicate. This is a
+     * (fast) range count unless those sets have already been read.
+     */
+    private long getCharacteristicSetCount(final IV<?, ?> p) {
+
+        final List<CharacteristicSet> list = characteristicSetsByPredicate
+                .get(p);
+
+        if (list != null)
+            return list.size();
+
+        if (ndx == null) {
+
+            // Fully materialized.
+            return 0L;
+
+        }
+
+        final byte[] fromKey = getPredicateCharacteristicSetPrefix(
+                KeyBuilder.newInstance(), p);
+
+        final byte[] toKey = SuccessorUtil.successor(fromKey.clone());
+
+        return ndx.rangeCount(fromKey, toKey);
+
+    }
+
+    /**
+     * Return the characteristic sets containing a predicate.
+     */
+    private List<CharacteristicSet> getCharacteristicSets(final IV<?, ?> p) {
+
+        List<CharacteristicSet> list = characteristicSetsByPredicate.get(p);
+
+        if (list != null)
+            return list;
+
+        if (ndx == null) {
+
+            // Fully materialized.
+            return Collections.emptyList();
+
+        }
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        final byte[] fromKey = getPredicateCharacteristicSetPrefix(keyBuilder,
+                p);
+
+        final byte[] toKey = SuccessorUtil.successor(fromKey.clone());
+
+        list = new ArrayList<CharacteristicSet>();
+
+        final ITupleIterator<?> itr = ndx.rangeIterator(fromKey, toKey,
+                0/* capacity */, IRangeQuery.KEYS, null/* filter */);
+
+        while (itr.hasNext()) {
+
+            final byte[] key = itr.next().getKey();
+
+            // The key of the characteristic set is the suffix of the entry.
+            final byte[] csKey = new byte[key.length - fromKey.length + 1];
+
+            csKey[0] = CHARACTERISTIC_SET;
+
+            System.arraycopy(key, fromKey.length, csKey, 1,
+                    key.length - fromKey.length);
+
+            final byte[] val = ndx.lookup(csKey);
+
+            if (val != null)
+                list.add((CharacteristicSet) SerializerUtil.deserialize(val));
+
+        }
+
+        final List<CharacteristicSet> t = characteristicSetsByPredicate
+                .putIfAbsent(p, list);
+
+        return t == null ? list : t;
+
+    }
+
+    /**
+     * Return the cardinality of a triple pattern when the catalog can answer
+     * it exactly: <code>(?, p, ?)</code> and <code>(?, p, o)</code> where the
+     * object is a heavy hitter for the predicate.
+     *
+     * @param s
+     *            The subject (optional).
+     * @param p
+     *            The predicate (optional).
+     * @param o
+     *            The object (optional).
+     *
+     * @return The cardinality -or- <code>-1L</code> if the catalog can not
+     *         answer for that pattern.
+     */
+    public long getCardinality(final IV<?, ?> s, final IV<?, ?> p,
+            final IV<?, ?> o) {
+
+        if (s != null || p == null)
+            return -1L;
+
+        final PredicateStatistics ps = getPredicateStatistics(p);
+
+        if (ps == null) {
+
+            /*
+             * Leave this to the range count. It will be zero unless the
+             * catalog is stale.
+             */
+            return -1L;
+
+        }
+
+        if (o == null)
+            return ps.getCount();
+
+        return ps.getHeavyHitterCount(o);
+
+    }
+
+    /**
+     * Estimate the cardinality of a star join, which is a set of triple
+     * patterns sharing the same subject variable with bound predicates. The
+     * estimate sums over the characteristic sets containing all of the
+     * predicates, multiplying the #of subjects for each such set by the
+     * average #of statements per subject for each triple pattern. A bound
+     * object is accounted for using the selectivity of that object for its
+     * predicate.
+     * <p>
+     * Note: The #of characteristic sets in the catalog is bounded (see
+     * {@link AbstractTripleStore.Options#STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS}),
+     * so subjects having rare combinations of predicates may not be accounted
+     * for once that bound is reached.
+     *
+     * @param p
+     *            The predicate for each triple pattern.
+     * @param o
+     *            The object for each triple pattern (the elements are
+     *            <code>null</code> for unbound objects).
+     *
+     * @return The estimated cardinality -or- <code>-1L</code> if the catalog
+     *         does not have statistics for one of the predicates.
+     */
+    public long getStarCardinality(final IV<?, ?>[] p, final IV<?, ?>[] o) {
+
+        if (p == null || o == null || p.length != o.length || p.length == 0)
+            throw new IllegalArgumentException();
+
+        // The distinct predicates (to test for containment).
+        final IV<?, ?>[] distinct = distinct(p);
+
+        // The predicate having the fewest characteristic sets.
+        IV<?, ?> pmin = null;
+        long nmin = Long.MAX_VALUE;
+
+        // The product of the object selectivity for the triple patterns.
+        double selectivity = 1d;
+
+        for (int i = 0; i < p.length; i++) {
+
+            final PredicateStatistics ps = getPredicateStatistics(p[i]);
+
+            if (ps == null)
+                return -1L;
+
+            final long n = getCharacteristicSetCount(p[i]);
+
+            if (n == 0L) {
+
+                /*
+                 * The predicate is only used by subjects whose characteristic
+                 * sets are not tracked.
+                 */
+                return -1L;
+
+            }
+
+            if (n < nmin) {
+                nmin = n;
+                pmin = p[i];
+            }
+
+            if (o[i] != null)
+                selectivity *= ps.getObjectSelectivity(o[i]);
+
+        }
+
+        double estimate = 0d;
+
+        for (CharacteristicSet cs : getCharacteristicSets(pmin)) {
+
+            if (cs.subjects <= 0L || !cs.containsAll(distinct))
+                continue;
+
+            double n = cs.subjects;
+
+            for (int i = 0; i < p.length; i++) {
+
+                n *= cs.getOccurrences(p[i]) / (double) cs.subjects;
+
+            }
+
+            estimate += n;
+
+        }
+
+        return (long) Math.ceil(estimate * selectivity);
+
+    }
+
+    /**
+     * Return the distinct elements of the array.
+     */
+    private static IV<?, ?>[] distinct(final IV<?, ?>[] a) {
+
+        final IV<?, ?>[] b = a.clone();
+
+        Arrays.sort(b);
+
+        int n = 0;
+
+        for (int i = 0; i < b.length; i++) {
+
+            if (n == 0 || !b[n - 1].equals(b[i]))
+                b[n++] = b[i];
+
+        }
+
+        return Arrays.copyOf(b, n);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{statementCount="
+                + statementCount + ",npredicatesRead=" + predicates.size()
+                + "}";
+
+    }
+
+}
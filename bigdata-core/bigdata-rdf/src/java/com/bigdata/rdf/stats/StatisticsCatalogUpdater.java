@@ -0,0 +1,851 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.io.SerializerUtil;
+import com.bigdata.rdf.changesets.ChangeAction;
+import com.bigdata.rdf.changesets.IChangeLog;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.striterator.IChunkedIterator;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * Maintains the {@link StatisticsCatalog} for a KB instance. The net change
+ * for each statement is buffered as {@link IChangeLog} events are received and
+ * {@link #flush()} then folds those changes into the catalog by probing the
+ * statement indices for the (s,p), (p,o) and subject prefixes which were
+ * touched. The work is therefore proportional to the #of distinct subjects
+ * and (p,o) pairs in the change set rather than to the size of the KB.
+ * <p>
+ * Note: {@link #flush()} must be invoked once all buffered changes have been
+ * written onto the statement indices (e.g., when the transaction is prepared)
+ * since the state before the change is computed from the state after the
+ * change and the buffered deltas.
+ * <p>
+ * Note: The counts are obtained using fast range counts. Those are exact for
+ * the unisolated indices of a Journal but will overestimate if the statement
+ * indices support delete markers.
+ * <p>
+ * Note: The #of characteristic sets is bounded. Once the bound is reached, a
+ * subject whose characteristic set is not already in the catalog is simply
+ * not tracked by the incremental maintenance. A {@link #rebuild(AbstractTripleStore)}
+ * retains the most frequent characteristic sets.
+ */
+public class StatisticsCatalogUpdater {
+
+    private static final transient Logger log = Logger
+            .getLogger(StatisticsCatalogUpdater.class);
+
+    /** The KB instance. */
+    private final AbstractTripleStore db;
+
+    /** The statement relation. */
+    private final SPORelation spoRelation;
+
+    /** The statistics index. */
+    private final IIndex ndx;
+
+    /** The maximum #of heavy hitters per predicate. */
+    private final int maxHeavyHitters;
+
+    /** The maximum #of predicates for a tracked characteristic set. */
+    private final int maxCharacteristicSetSize;
+
+    /** The maximum #of characteristic sets. */
+    private final int maxCharacteristicSets;
+
+    private final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+    /**
+     * The net change in the #of statements for each (s,p) pair (lazily
+     * instantiated).
+     */
+    private Map<IV<?, ?>, Map<IV<?, ?>, long[]>> sp;
+
+    /**
+     * The net change in the #of statements for each (p,o) pair (lazily
+     * instantiated).
+     */
+    private Map<IV<?, ?>, Map<IV<?, ?>, long[]>> po;
+
+    /** The #of characteristic sets in the catalog (during an update). */
+    private long ncharacteristicSets;
+
+    /**
+     * The keys of the characteristic sets added to the catalog (during an
+     * update).
+     */
+    private Set<byte[]> newCharacteristicSets;
+
+    /**
+     * @param db
+     *            The KB instance. The statistics catalog must be enabled for
+     *            that KB.
+     *
+     * @throws IllegalStateException
+     *             if the statistics catalog is not enabled.
+     */
+    public StatisticsCatalogUpdater(final AbstractTripleStore db) {
+
+        if (db == null)
+            throw new IllegalArgumentException();
+
+        this.db = db;
+
+        this.spoRelation = db.getSPORelation();
+
+        this.ndx = spoRelation.getStatisticsIndex();
+
+        if (ndx == null)
+            throw new IllegalStateException(
+                    AbstractTripleStore.Options.STATISTICS_CATALOG
+                            + " is not enabled: namespace="
+                            + db.getNamespace());
+
+        this.maxHeavyHitters = Integer.valueOf(db.getProperty(
+                AbstractTripleStore.Options.STATISTICS_CATALOG_MAX_HEAVY_HITTERS,
+                AbstractTripleStore.Options.DEFAULT_STATISTICS_CATALOG_MAX_HEAVY_HITTERS));
+
+        this.maxCharacteristicSetSize = Integer.valueOf(db.getProperty(
+                AbstractTripleStore.Options.STATISTICS_CATALOG_MAX_CHARACTERISTIC_SET_SIZE,
+                AbstractTripleStore.Options.DEFAULT_STATISTICS_CATALOG_MAX_CHARACTERISTIC_SET_SIZE));
+
+        this.maxCharacteristicSets = Integer.valueOf(db.getProperty(
+                AbstractTripleStore.Options.STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS,
+                AbstractTripleStore.Options.DEFAULT_STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS));
+
+    }
+
+    /**
+     * Buffer a change to a statement.
+     *
+     * @param spo
+     *            The statement.
+     * @param action
+     *            The change.
+     */
+    public void changeEvent(final ISPO spo, final ChangeAction action) {
+
+        final int delta;
+
+        switch (action) {
+        case INSERTED:
+            delta = 1;
+            break;
+        case REMOVED:
+            delta = -1;
+            break;
+        case UPDATED:
+            // The statement type changed, not the #of statements.
+            return;
+        default:
+            throw new AssertionError(action);
+        }
+
+        if (sp == null) {
+
+            sp = new HashMap<IV<?, ?>, Map<IV<?, ?>, long[]>>();
+
+            po = new HashMap<IV<?, ?>, Map<IV<?, ?>, long[]>>();
+
+        }
+
+        add(sp, spo.s(), spo.p(), delta);
+
+        add(po, spo.p(), spo.o(), delta);
+
+    }
+
+    private static void add(final Map<IV<?, ?>, Map<IV<?, ?>, long[]>> map,
+            final IV<?, ?> k1, final IV<?, ?> k2, final int delta) {
+
+        Map<IV<?, ?>, long[]> m = map.get(k1);
+
+        if (m == null) {
+
+            map.put(k1, m = new HashMap<IV<?, ?>, long[]>());
+
+        }
+
+        final long[] c = m.get(k2);
+
+        if (c == null) {
+
+            m.put(k2, new long[] { delta });
+
+        } else {
+
+            c[0] += delta;
+
+        }
+
+    }
+
+    /**
+     * Discard the buffered changes.
+     */
+    public void reset() {
+
+        sp = po = null;
+
+    }
+
+    /**
+     * Fold the buffered changes into the catalog. The catalog is written
+     * when the KB is created (see {@link #init(IIndex)}). If the summary
+     * record is missing (e.g., for a KB created before the catalog was
+     * enabled) then the buffered changes are discarded and the catalog must
+     * be built using {@link #rebuild(AbstractTripleStore)}.
+     */
+    public void flush() {
+
+        if (ndx.lookup(StatisticsCatalog.getSummaryKey(keyBuilder)) == null) {
+
+            log.warn("Statistics catalog not initialized - use rebuild(): namespace="
+                    + db.getNamespace());
+
+        } else if (sp != null) {
+
+            update();
+
+        }
+
+        reset();
+
+    }
+
+    /**
+     * Incremental maintenance for the buffered changes.
+     */
+    private void update() {
+
+        final long begin = System.currentTimeMillis();
+
+        final Map<IV<?, ?>, PredicateStatistics> predicates = new HashMap<IV<?, ?>, PredicateStatistics>();
+
+        final Map<byte[], CharacteristicSet> csets = new TreeMap<byte[], CharacteristicSet>(
+                UnsignedByteArrayComparator.INSTANCE);
+
+        // The #of characteristic sets in the catalog.
+        ncharacteristicSets = ndx.rangeCount(
+                new byte[] { StatisticsCatalog.CHARACTERISTIC_SET },
+                new byte[] { StatisticsCatalog.CHARACTERISTIC_SET + 1 });
+
+        newCharacteristicSets = new TreeSet<byte[]>(
+                UnsignedByteArrayComparator.INSTANCE);
+
+        final SPOKeyOrder primaryKeyOrder = spoRelation.getPrimaryKeyOrder();
+
+        for (Map.Entry<IV<?, ?>, Map<IV<?, ?>, long[]>> e : sp.entrySet()) {
+
+            final IV<?, ?> s = e.getKey();
+
+            final Map<IV<?, ?>, long[]> deltas = e.getValue();
+
+            // The #of statements for each predicate of the subject (after).
+            final TreeMap<IV<?, ?>, Long> after = new TreeMap<IV<?, ?>, Long>();
+            {
+                final IChunkedIterator<IV> itr = spoRelation
+                        .distinctMultiTermScan(primaryKeyOrder, new IV[] { s });
+                try {
+                    while (itr.hasNext()) {
+                        final IV<?, ?> p = itr.next();
+                        after.put(p, rangeCount(s, p, null/* o */));
+                    }
+                } finally {
+                    itr.close();
+                }
+            }
+
+            // The #of statements for each predicate of the subject (before).
+            final TreeMap<IV<?, ?>, Long> before = new TreeMap<IV<?, ?>, Long>(
+                    after);
+
+            for (Map.Entry<IV<?, ?>, long[]> f : deltas.entrySet()) {
+
+                final long d = f.getValue()[0];
+
+                if (d == 0L)
+                    continue;
+
+                final IV<?, ?> p = f.getKey();
+
+                final Long tmp = after.get(p);
+
+                final long a = tmp == null ? 0L : tmp.longValue();
+
+                final long b = a - d;
+
+                if (b > 0L) {
+                    before.put(p, b);
+                } else {
+                    before.remove(p);
+                }
+
+                final PredicateStatistics ps = getPredicateStatistics(
+                        predicates, p);
+
+                if (b <= 0L && a > 0L) {
+                    ps.distinctSubjects++;
+                } else if (b > 0L && a <= 0L) {
+                    ps.distinctSubjects--;
+                }
+
+            }
+
+            if (before.equals(after))
+                continue;
+
+            addSubject(csets, before, -1);
+
+            addSubject(csets, after, 1);
+
+        }
+
+        for (Map.Entry<IV<?, ?>, Map<IV<?, ?>, long[]>> e : po.entrySet()) {
+
+            final IV<?, ?> p = e.getKey();
+
+            final PredicateStatistics ps = getPredicateStatistics(predicates, p);
+
+            for (Map.Entry<IV<?, ?>, long[]> f : e.getValue().entrySet()) {
+
+                final long d = f.getValue()[0];
+
+                if (d == 0L)
+                    continue;
+
+                final IV<?, ?> o = f.getKey();
+
+                final long a = rangeCount(null/* s */, p, o);
+
+                final long b = a - d;
+
+                if (b <= 0L && a > 0L) {
+                    ps.distinctObjects++;
+                } else if (b > 0L && a <= 0L) {
+                    ps.distinctObjects--;
+                }
+
+                ps.offerHeavyHitter(o, a, maxHeavyHitters);
+
+            }
+
+            ps.count = rangeCount(null/* s */, p, null/* o */);
+
+        }
+
+        for (PredicateStatistics ps : predicates.values()) {
+
+            final byte[] key = StatisticsCatalog.getPredicateKey(keyBuilder,
+                    ps.getPredicate());
+
+            if (ps.count <= 0L) {
+                ndx.remove(key);
+            } else {
+                ndx.insert(key, SerializerUtil.serialize(ps));
+            }
+
+        }
+
+        for (Map.Entry<byte[], CharacteristicSet> e : csets.entrySet()) {
+
+            final byte[] key = e.getKey();
+
+            final CharacteristicSet cs = e.getValue();
+
+            if (cs.subjects <= 0L) {
+                ndx.remove(key);
+                writePredicateEntries(key, cs, false/* insert */);
+            } else {
+                ndx.insert(key, SerializerUtil.serialize(cs));
+                if (newCharacteristicSets.contains(key))
+                    writePredicateEntries(key, cs, true/* insert */);
+            }
+
+        }
+
+        writeSummary();
+
+        if (log.isInfoEnabled())
+            log.info("Updated: nsubjects=" + sp.size() + ", npredicates="
+                    + predicates.size() + ", ncharacteristicSets="
+                    + csets.size() + ", nnew="
+                    + newCharacteristicSets.size() + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+        newCharacteristicSets = null;
+
+    }
+
+    /**
+     * Insert (or remove) the entries indexing a characteristic set under each
+     * of its predicates.
+     */
+    private void writePredicateEntries(final byte[] key,
+            final CharacteristicSet cs, final boolean insert) {
+
+        for (IV<?, ?> p : cs.getPredicates()) {
+
+            final byte[] k = StatisticsCatalog
+                    .getPredicateCharacteristicSetKey(keyBuilder, p, key);
+
+            if (insert) {
+                ndx.insert(k, null/* val */);
+            } else {
+                ndx.remove(k);
+            }
+
+        }
+
+    }
+
+    /**
+     * Return the statistics for the predicate, reading them from the index
+     * the first time they are requested.
+     */
+    private PredicateStatistics getPredicateStatistics(
+            final Map<IV<?, ?>, PredicateStatistics> predicates,
+            final IV<?, ?> p) {
+
+        PredicateStatistics ps = predicates.get(p);
+
+        if (ps == null) {
+
+            final byte[] val = ndx.lookup(StatisticsCatalog.getPredicateKey(
+                    keyBuilder, p));
+
+            ps = val == null ? new PredicateStatistics(p)
+                    : (PredicateStatistics) SerializerUtil.deserialize(val);
+
+            predicates.put(p, ps);
+
+        }
+
+        return ps;
+
+    }
+
+    /**
+     * Add (or remove) the contribution of a subject to its characteristic set.
+     *
+     * @param csets
+     *            The characteristic sets which have been read so far, keyed
+     *            by their keys in the index.
+     * @param counts
+     *            The #of statements for each predicate of the subject.
+     * @param sign
+     *            <code>1</code> to add the subject and <code>-1</code> to
+     *            remove it.
+     */
+    private void addSubject(final Map<byte[], CharacteristicSet> csets,
+            final TreeMap<IV<?, ?>, Long> counts, final int sign) {
+
+        final int n = counts.size();
+
+        if (n == 0 || n > maxCharacteristicSetSize)
+            return;
+
+        final IV<?, ?>[] predicates = counts.keySet().toArray(new IV[n]);
+
+        final byte[] key = StatisticsCatalog.getCharacteristicSetKey(
+                keyBuilder, predicates);
+
+        CharacteristicSet cs = csets.get(key);
+
+        if (cs == null) {
+
+            final byte[] val = ndx.lookup(key);
+
+            if (val != null) {
+
+                cs = (CharacteristicSet) SerializerUtil.deserialize(val);
+
+            } else {
+
+                if (sign < 0) {
+
+                    // The subject was not tracked.
+                    return;
+
+                }
+
+                if (ncharacteristicSets >= maxCharacteristicSets) {
+
+                    // Bound reached: do not track this subject.
+                    return;
+
+                }
+
+                cs = new CharacteristicSet(predicates);
+
+                ncharacteristicSets++;
+
+                newCharacteristicSets.add(key);
+
+            }
+
+            csets.put(key, cs);
+
+        } else if (sign < 0 && newCharacteristicSets.contains(key)) {
+
+            // The subject was not tracked before this update.
+            return;
+
+        }
+
+        cs.add(getCounts(counts), sign);
+
+    }
+
+    /**
+     * Return the #of statements for each predicate of a subject (in the order
+     * of the predicates).
+     */
+    private static long[] getCounts(final TreeMap<IV<?, ?>, Long> counts) {
+
+        final long[] a = new long[counts.size()];
+
+        int i = 0;
+
+        for (Long c : counts.values()) {
+
+            a[i++] = c.longValue();
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * The fast range count for a triple pattern (in any context).
+     */
+    private long rangeCount(final IV<?, ?> s, final IV<?, ?> p,
+            final IV<?, ?> o) {
+
+        return spoRelation.getAccessPath(s, p, o, null/* c */).rangeCount(
+                false/* exact */);
+
+    }
+
+    /**
+     * Write the summary record. This also marks the catalog as valid.
+     */
+    private void writeSummary() {
+
+        ndx.insert(StatisticsCatalog.getSummaryKey(keyBuilder),
+                SerializerUtil.serialize(Long.valueOf(spoRelation
+                        .getPrimaryIndex().rangeCount())));
+
+    }
+
+    /**
+     * Initialize the catalog for an empty KB. This marks the catalog as valid
+     * so it will be maintained incrementally from the first commit.
+     *
+     * @param ndx
+     *            The (empty) statistics index.
+     */
+    public static void init(final IIndex ndx) {
+
+        ndx.insert(StatisticsCatalog.getSummaryKey(KeyBuilder.newInstance()),
+                SerializerUtil.serialize(Long.valueOf(0L)));
+
+    }
+
+    /**
+     * Rebuild the catalog from the statement indices. This must be used to
+     * bring the catalog up to date after statements were written without
+     * going through the {@link IChangeLog} (e.g., a bulk load using the
+     * DataLoader against the {@link AbstractTripleStore}) and to build the
+     * catalog for a KB which was created before the catalog was enabled.
+     *
+     * @param db
+     *            The KB instance.
+     */
+    public static void rebuild(final AbstractTripleStore db) {
+
+        new StatisticsCatalogUpdater(db).rebuild();
+
+    }
+
+    /**
+     * Rebuild the catalog using one scan of the primary statement index (for
+     * the predicate counts, distinct subjects and characteristic sets) and one
+     * scan of the POS (or POCS) index (for the distinct objects and the heavy
+     * hitters). The characteristic sets are pruned to the most frequent ones
+     * whenever there are twice as many as will be retained, so the counts for
+     * the retained sets are approximate once the bound has been reached.
+     */
+    private void rebuild() {
+
+        final long begin = System.currentTimeMillis();
+
+        // Clear the catalog.
+        {
+            final ITupleIterator<?> itr = ndx.rangeIterator(null/* fromKey */,
+                    null/* toKey */, 0/* capacity */, IRangeQuery.REMOVEALL,
+                    null/* filterCtor */);
+
+            while (itr.hasNext()) {
+
+                itr.next();
+
+            }
+        }
+
+        final Map<IV<?, ?>, PredicateStatistics> predicates = new HashMap<IV<?, ?>, PredicateStatistics>();
+
+        final Map<byte[], CharacteristicSet> csets = new TreeMap<byte[], CharacteristicSet>(
+                UnsignedByteArrayComparator.INSTANCE);
+
+        // Scan the primary index: (s,p) in the leading key components.
+        {
+            final ITupleIterator<?> itr = spoRelation.getPrimaryIndex()
+                    .rangeIterator(null/* fromKey */, null/* toKey */,
+                            0/* capacity */, IRangeQuery.KEYS, null/* filter */);
+
+            IV<?, ?> lastS = null;
+
+            final TreeMap<IV<?, ?>, Long> counts = new TreeMap<IV<?, ?>, Long>();
+
+            while (itr.hasNext()) {
+
+                final ITuple<?> tuple = itr.next();
+
+                final IV<?, ?>[] a = IVUtility.decode(tuple.getKey(), 2/* numTerms */);
+
+                if (lastS != null && !lastS.equals(a[0])) {
+
+                    addSubject(predicates, csets, counts);
+
+                }
+
+                lastS = a[0];
+
+                final Long c = counts.get(a[1]);
+
+                counts.put(a[1], c == null ? 1L : c.longValue() + 1);
+
+            }
+
+            addSubject(predicates, csets, counts);
+        }
+
+        // Scan the POS (POCS) index: (p,o) in the leading key components.
+        {
+            final SPOKeyOrder keyOrder = spoRelation.getKeyArity() == 3 ? SPOKeyOrder.POS
+                    : SPOKeyOrder.POCS;
+
+            final ITupleIterator<?> itr = spoRelation.getIndex(keyOrder)
+                    .rangeIterator(null/* fromKey */, null/* toKey */,
+                            0/* capacity */, IRangeQuery.KEYS, null/* filter */);
+
+            IV<?, ?> lastP = null, lastO = null;
+
+            long n = 0L;
+
+            while (itr.hasNext()) {
+
+                final ITuple<?> tuple = itr.next();
+
+                final IV<?, ?>[] a = IVUtility.decode(tuple.getKey(), 2/* numTerms */);
+
+                if (lastP != null
+                        && (!lastP.equals(a[0]) || !lastO.equals(a[1]))) {
+
+                    addObject(predicates.get(lastP), lastO, n);
+
+                    n = 0L;
+
+                }
+
+                lastP = a[0];
+
+                lastO = a[1];
+
+                n++;
+
+            }
+
+            if (lastP != null)
+                addObject(predicates.get(lastP), lastO, n);
+        }
+
+        for (PredicateStatistics ps : predicates.values()) {
+
+            ndx.insert(StatisticsCatalog.getPredicateKey(keyBuilder,
+                    ps.getPredicate()), SerializerUtil.serialize(ps));
+
+        }
+
+        prune(csets, maxCharacteristicSets);
+
+        for (Map.Entry<byte[], CharacteristicSet> e : csets.entrySet()) {
+
+            ndx.insert(e.getKey(), SerializerUtil.serialize(e.getValue()));
+
+            writePredicateEntries(e.getKey(), e.getValue(), true/* insert */);
+
+        }
+
+        writeSummary();
+
+        if (log.isInfoEnabled())
+            log.info("Rebuilt: namespace=" + db.getNamespace()
+                    + ", npredicates=" + predicates.size()
+                    + ", ncharacteristicSets=" + csets.size() + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms");
+
+    }
+
+    /**
+     * Add a subject during a rebuild and clear its predicate counts.
+     */
+    private void addSubject(final Map<IV<?, ?>, PredicateStatistics> predicates,
+            final Map<byte[], CharacteristicSet> csets,
+            final TreeMap<IV<?, ?>, Long> counts) {
+
+        if (counts.isEmpty())
+            return;
+
+        for (Map.Entry<IV<?, ?>, Long> e : counts.entrySet()) {
+
+            PredicateStatistics ps = predicates.get(e.getKey());
+
+            if (ps == null) {
+
+                predicates.put(e.getKey(),
+                        ps = new PredicateStatistics(e.getKey()));
+
+            }
+
+            ps.count += e.getValue();
+
+            ps.distinctSubjects++;
+
+        }
+
+        final int n = counts.size();
+
+        if (n <= maxCharacteristicSetSize) {
+
+            final IV<?, ?>[] a = counts.keySet().toArray(new IV[n]);
+
+            final byte[] key = StatisticsCatalog.getCharacteristicSetKey(
+                    keyBuilder, a);
+
+            CharacteristicSet cs = csets.get(key);
+
+            if (cs == null) {
+
+                csets.put(key, cs = new CharacteristicSet(a));
+
+            }
+
+            cs.add(getCounts(counts), 1);
+
+            if (csets.size() > 2 * maxCharacteristicSets)
+                prune(csets, maxCharacteristicSets);
+
+        }
+
+        counts.clear();
+
+    }
+
+    /**
+     * Retain only the most frequent characteristic sets.
+     *
+     * @param csets
+     *            The characteristic sets.
+     * @param max
+     *            The #of characteristic sets to retain.
+     */
+    private static void prune(final Map<byte[], CharacteristicSet> csets,
+            final int max) {
+
+        if (csets.size() <= max)
+            return;
+
+        final List<Map.Entry<byte[], CharacteristicSet>> a = new ArrayList<Map.Entry<byte[], CharacteristicSet>>(
+                csets.entrySet());
+
+        Collections.sort(a,
+                new Comparator<Map.Entry<byte[], CharacteristicSet>>() {
+                    @Override
+                    public int compare(
+                            final Map.Entry<byte[], CharacteristicSet> o1,
+                            final Map.Entry<byte[], CharacteristicSet> o2) {
+                        // descending by the #of subjects.
+                        return Long.compare(o2.getValue().subjects,
+                                o1.getValue().subjects);
+                    }
+                });
+
+        for (int i = max; i < a.size(); i++) {
+
+            csets.remove(a.get(i).getKey());
+
+        }
+
+    }
+
+    /**
+     * Add a (p,o) pair during a rebuild.
+     */
+    private void addObject(final PredicateStatistics ps, final IV<?, ?> o,
+            final long n) {
+
+        ps.distinctObjects++;
+
+        ps.offerHeavyHitter(o, n, maxHeavyHitters);
+
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.stats;
+
+import com.bigdata.rdf.changesets.IChangeLog;
+import com.bigdata.rdf.changesets.IChangeRecord;
+import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * This {@link IChangeLog} tracks KB updates made through a
+ * {@link BigdataSailConnection} and is responsible for maintaining the
+ * {@link StatisticsCatalog}. The catalog is updated when the transaction is
+ * prepared, so the updates are part of the same commit as the statements.
+ * <p>
+ * Note: Writes which bypass the SAIL (for example, the DataLoader) are not
+ * reported to this listener and do not update the catalog.
+ *
+ * @see AbstractTripleStore.Options#STATISTICS_CATALOG
+ */
+public class StatisticsChangeLog implements IChangeLog {
+
+    /**
+     * Register a {@link StatisticsChangeLog} on the mutable connection iff
+     * the {@link AbstractTripleStore.Options#STATISTICS_CATALOG} is enabled
+     * for the KB.
+     */
+    public static void startConnection(final BigdataSailConnection conn) {
+
+        final AbstractTripleStore tripleStore = conn.getTripleStore();
+
+        if (Boolean.valueOf(tripleStore.getProperty(
+                AbstractTripleStore.Options.STATISTICS_CATALOG,
+                AbstractTripleStore.Options.DEFAULT_STATISTICS_CATALOG))) {
+
+            conn.addChangeLog(new StatisticsChangeLog(conn));
+
+        }
+
+    }
+
+    /** The connection. */
+    private final BigdataSailConnection conn;
+
+    /**
+     * The updater (lazily instantiated for each transaction against the then
+     * current view of the KB).
+     */
+    private StatisticsCatalogUpdater updater;
+
+    private StatisticsChangeLog(final BigdataSailConnection conn) {
+
+        this.conn = conn;
+
+    }
+
+    @Override
+    public void changeEvent(final IChangeRecord record) {
+
+        if (updater == null) {
+
+            updater = new StatisticsCatalogUpdater(conn.getTripleStore());
+
+        }
+
+        updater.changeEvent(record.getStatement(), record.getChangeAction());
+
+    }
+
+    @Override
+    public void transactionBegin() {
+
+    }
+
+    /**
+     * Note: The buffered changes are not flushed incrementally. The state of
+     * the statement indices is only consistent with the buffered changes once
+     * all statements have been written.
+     */
+    @Override
+    public void transactionPrepare() {
+
+        if (updater != null) {
+
+            updater.flush();
+
+        }
+
+    }
+
+    @Override
+    public void transactionCommited(final long commitTime) {
+
+        reset();
+
+    }
+
+    @Override
+    public void transactionAborted() {
+
+        reset();
+
+    }
+
+    @Override
+    public void close() {
+
+        reset();
+
+    }
+
+    private void reset() {
+
+        updater = null;
+
+    }
+
+}
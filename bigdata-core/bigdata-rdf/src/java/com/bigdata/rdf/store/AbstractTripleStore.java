@@ -139,6 +139,8 @@ import com.bigdata.rdf.spo.SPORelation;
 import com.bigdata.rdf.spo.SPOTupleSerializer;
 import com.bigdata.rdf.spo.StatementWriter;
 import com.bigdata.rdf.spo.XXXCShardSplitHandler;
+import com.bigdata.rdf.stats.StatisticsCatalog;
+import com.bigdata.rdf.stats.StatisticsCatalogUpdater;
 import com.bigdata.rdf.vocab.BaseVocabulary;
 import com.bigdata.rdf.vocab.NoVocabulary;
 import com.bigdata.rdf.vocab.Vocabulary;
@@ -649,6 +651,92 @@ abstract public class AbstractTripleStore extends
         
         String DEFAULT_TERM_CACHE_CAPACITY = "10000";//"50000";
 
+        /**
+         * Long option whose value is the maximum #of bytes for the forward
+         * cache from the TERM2ID key of an RDF {@link Value} to its term
+         * identifier (default {@value #DEFAULT_TERM_IV_CACHE_MAXIMUM_BYTES}).
+         * The cache is shared by the read-only views of the lexicon and is
+         * used both when loading data and when resolving the constants in a
+         * query. The cache is disabled if the value is ZERO (0).
+         * 
+         * @see com.bigdata.rdf.lexicon.TermIVCache
+         */
+        String TERM_IV_CACHE_MAXIMUM_BYTES = AbstractTripleStore.class
+                .getName() + ".termIVCache.maximumBytes";
+
+        String DEFAULT_TERM_IV_CACHE_MAXIMUM_BYTES = "33554432"; // 32M
+
+        /**
+         * Boolean option enables learning {@link URI} namespaces while loading
+         * data (default {@value #DEFAULT_LEARN_URI_NAMESPACES}). The namespaces
+         * of the {@link URI}s in each batch of terms written on the lexicon are
+         * counted. A namespace which occurs at least
+         * {@link #LEARN_URI_NAMESPACES_MIN_FREQUENCY} times in a batch and
+         * which is not yet used by any {@link URI} in the lexicon is entered
+         * into a persistent, append-only namespace dictionary. {@link URI}s in
+         * a learned namespace are then inlined as the namespace {@link IV} plus
+         * the localName and are not written on the TERM2ID and ID2TERM
+         * indices.
+         * <p>
+         * Note: This option only controls whether new namespaces are learned.
+         * Namespaces which were learned are always used. Learning is not
+         * supported for scale-out.
+         * 
+         * @see com.bigdata.rdf.internal.NamespaceDictionary
+         */
+        String LEARN_URI_NAMESPACES = AbstractTripleStore.class.getName()
+                + ".learnURINamespaces";
+
+        String DEFAULT_LEARN_URI_NAMESPACES = "false";
+
+        /**
+         * Integer option specifies the minimum #of occurrences of a namespace
+         * in a batch of terms before that namespace is learned (default
+         * {@value #DEFAULT_LEARN_URI_NAMESPACES_MIN_FREQUENCY}).
+         * 
+         * @see #LEARN_URI_NAMESPACES
+         */
+        String LEARN_URI_NAMESPACES_MIN_FREQUENCY = AbstractTripleStore.class
+                .getName() + ".learnURINamespaces.minFrequency";
+
+        String DEFAULT_LEARN_URI_NAMESPACES_MIN_FREQUENCY = "100";
+
+        /**
+         * When non-zero, a static symbol table is trained on a sample of the
+         * {@link Value}s in the ID2TERM index once that index has at least
+         * this many entries (default
+         * {@value #DEFAULT_SYMBOL_TABLE_TRAINING_THRESHOLD}). The table is
+         * stored in the {@link IndexMetadata} of the ID2TERM index and is used
+         * to compress the Unicode strings of each {@link Value} written on
+         * that index thereafter. Each {@link Value} may still be decoded on
+         * its own. {@link Value}s written before the table was trained are
+         * not rewritten. The table is never retrained.
+         * <p>
+         * Note: This option is only supported for the unisolated view of the
+         * lexicon on a Journal. The BLOBS index is not compressed
+         * since its collision buckets are resolved by comparing the
+         * serialized {@link Value}s.
+         * 
+         * @see LexiconRelation#trainSymbolTable(int)
+         * @see #SYMBOL_TABLE_SAMPLE_SIZE
+         */
+        String SYMBOL_TABLE_TRAINING_THRESHOLD = AbstractTripleStore.class
+                .getName() + ".symbolTable.trainingThreshold";
+
+        String DEFAULT_SYMBOL_TABLE_TRAINING_THRESHOLD = "0";
+
+        /**
+         * The #of {@link Value}s sampled from the ID2TERM index to train the
+         * static symbol table (default
+         * {@value #DEFAULT_SYMBOL_TABLE_SAMPLE_SIZE}).
+         * 
+         * @see #SYMBOL_TABLE_TRAINING_THRESHOLD
+         */
+        String SYMBOL_TABLE_SAMPLE_SIZE = AbstractTripleStore.class.getName()
+                + ".symbolTable.sampleSize";
+
+        String DEFAULT_SYMBOL_TABLE_SAMPLE_SIZE = "10000";
+
         /**
          * The name of the class that will establish the pre-defined
          * {@link Vocabulary} for the database (default
@@ -1291,6 +1379,70 @@ abstract public class AbstractTripleStore extends
 
         public static String DEFAULT_HISTORY_SERVICE_MIN_RELEASE_AGE = Long
                 .toString(Long.MAX_VALUE);
+
+        /*
+         * Statistics catalog.
+         */
+
+        /**
+         * When <code>true</code> a statistics catalog will be maintained in
+         * its own index (default {@value #DEFAULT_STATISTICS_CATALOG}). The
+         * catalog holds the #of statements, distinct subjects, distinct
+         * objects and the most frequent objects for each predicate together
+         * with the characteristic sets (the distinct sets of predicates used by
+         * the subjects). The query optimizers use the catalog in preference to
+         * range counts where it gives a better estimate, which is most
+         * important for star joins over correlated predicates.
+         * <p>
+         * The catalog is written when the KB is created and is then
+         * maintained incrementally when a SAIL connection commits. Statements
+         * written without going through the SAIL (e.g., using the DataLoader
+         * directly against the {@link AbstractTripleStore}) are not reflected
+         * until the catalog is rebuilt using
+         * {@link StatisticsCatalogUpdater#rebuild(AbstractTripleStore)}, which
+         * is also required to build the catalog for an existing KB.
+         * <p>
+         * Note: This option is not compatible with {@link #ONE_ACCESS_PATH}.
+         *
+         * @see StatisticsCatalog
+         */
+        public static String STATISTICS_CATALOG = AbstractTripleStore.class
+                .getName() + ".statisticsCatalog";
+
+        public static String DEFAULT_STATISTICS_CATALOG = "false";
+
+        /**
+         * The maximum #of most frequent objects which will be tracked for each
+         * predicate by the {@link #STATISTICS_CATALOG} (default
+         * {@value #DEFAULT_STATISTICS_CATALOG_MAX_HEAVY_HITTERS}).
+         */
+        public static String STATISTICS_CATALOG_MAX_HEAVY_HITTERS = AbstractTripleStore.class
+                .getName() + ".statisticsCatalog.maxHeavyHitters";
+
+        public static String DEFAULT_STATISTICS_CATALOG_MAX_HEAVY_HITTERS = "16";
+
+        /**
+         * Subjects having more than this many distinct predicates are not
+         * tracked in the characteristic sets of the {@link #STATISTICS_CATALOG}
+         * (default
+         * {@value #DEFAULT_STATISTICS_CATALOG_MAX_CHARACTERISTIC_SET_SIZE}).
+         */
+        public static String STATISTICS_CATALOG_MAX_CHARACTERISTIC_SET_SIZE = AbstractTripleStore.class
+                .getName() + ".statisticsCatalog.maxCharacteristicSetSize";
+
+        public static String DEFAULT_STATISTICS_CATALOG_MAX_CHARACTERISTIC_SET_SIZE = "32";
+
+        /**
+         * The maximum #of characteristic sets in the {@link #STATISTICS_CATALOG}
+         * (default
+         * {@value #DEFAULT_STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS}). Once
+         * this many sets are in the catalog, subjects having some other set of
+         * predicates are not tracked until the catalog is rebuilt.
+         */
+        public static String STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS = AbstractTripleStore.class
+                .getName() + ".statisticsCatalog.maxCharacteristicSets";
+
+        public static String DEFAULT_STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS = "10000";
         
         /**
          * If this option is set to false, turn off the ASTBottomUpOptimizer.
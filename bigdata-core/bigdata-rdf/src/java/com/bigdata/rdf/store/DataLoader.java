@@ -716,7 +716,7 @@ public class DataLoader {
 
 //            inferenceEngine = database.getInferenceEngine();
 
-            tm = new TruthMaintenance(inferenceEngine);
+            tm = inferenceEngine.newTruthMaintenance();
 
         } else {
 
@@ -1835,7 +1835,7 @@ public class DataLoader {
             // flush anything in the buffer.
             buffer.flush();
             
-            stats = new TruthMaintenance(inferenceEngine)
+            stats = inferenceEngine.newTruthMaintenance()
                     .assertAll((TempTripleStore) buffer.getStatementStore());
             
             /*
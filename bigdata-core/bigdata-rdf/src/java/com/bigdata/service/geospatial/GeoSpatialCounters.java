@@ -62,6 +62,29 @@ public class GeoSpatialCounters implements ICounterSetAccess {
      */
     protected final CAT zOrderIndexMisses = new CAT();
 
+    /**
+     * The #of values that matched the search range but were rejected
+     * by the exact filter on top (such as the circle filter).
+     */
+    protected final CAT zOrderIndexFilterRejects = new CAT();
+
+    /**
+     * The #of cells the search ranges were decomposed into.
+     */
+    protected final CAT geoSpatialCells = new CAT();
+
+    /**
+     * The #of cells crossing the border of the search region, which need
+     * to be filtered exactly.
+     */
+    protected final CAT geoSpatialBorderCells = new CAT();
+
+    /**
+     * The #of cells that were skipped since they lie outside of the
+     * search region.
+     */
+    protected final CAT geoSpatialPrunedCells = new CAT();
+
     /**
      * The time spent in bigmin calculations (not including
      * the subsequent advancement of the cursor)
@@ -105,6 +128,17 @@ public class GeoSpatialCounters implements ICounterSetAccess {
        zOrderIndexMisses.increment();
     }
 
+    public void registerZOrderIndexFilterReject() {
+       zOrderIndexFilterRejects.increment();
+    }
+
+    public void registerGeoSpatialCells(
+       long numCells, long numBorderCells, long numPrunedCells) {
+       geoSpatialCells.add(numCells);
+       geoSpatialBorderCells.add(numBorderCells);
+       geoSpatialPrunedCells.add(numPrunedCells);
+    }
+
     public void addBigMinCalculationTime(long timeInNanoSec) {
        bigMinCalculationTime.add(timeInNanoSec);
     }
@@ -151,6 +185,27 @@ public class GeoSpatialCounters implements ICounterSetAccess {
            }
         });
 
+        root.addCounter("geoSpatialCells", new Instrument<Long>() {
+           @Override
+           public void sample() {
+               setValue(geoSpatialCells.get());
+           }
+        });
+
+        root.addCounter("geoSpatialBorderCells", new Instrument<Long>() {
+           @Override
+           public void sample() {
+               setValue(geoSpatialBorderCells.get());
+           }
+        });
+
+        root.addCounter("geoSpatialPrunedCells", new Instrument<Long>() {
+           @Override
+           public void sample() {
+               setValue(geoSpatialPrunedCells.get());
+           }
+        });
+
         root.addCounter("zOrderIndexScannedValues", new Instrument<Long>() {
             @Override
             public void sample() {
@@ -185,6 +240,27 @@ public class GeoSpatialCounters implements ICounterSetAccess {
             }
         });
         
+        root.addCounter("zOrderIndexFilterRejects", new Instrument<Long>() {
+            @Override 
+            public void sample() {
+                setValue(zOrderIndexFilterRejects.get());
+            }
+        });
+
+        // fraction of the scanned values that were not returned
+        root.addCounter("zOrderIndexWastedScanRatio", new Instrument<Double>() {
+            @Override
+            public void sample() {
+
+               final long scanned = zOrderIndexScannedValues.get();
+               final long wasted = 
+                  zOrderIndexMisses.get() + zOrderIndexFilterRejects.get();
+
+               if (scanned>0)
+                  setValue(wasted/(double)scanned);
+            }
+        });
+        
         root.addCounter("bigMinCalculationTimeMS", new Instrument<Long>() {
            @Override 
            public void sample() {
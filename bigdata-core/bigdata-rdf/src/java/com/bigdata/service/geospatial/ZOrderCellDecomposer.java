@@ -0,0 +1,556 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.service.geospatial;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.bigdata.rdf.internal.gis.CoordinateUtility;
+import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration.ServiceMapping;
+import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration.ValueType;
+
+/**
+ * Decomposes a multi-dimensional search range into a set of cells (a quadtree
+ * style cell cover) whose borders are aligned with the z-order encoding. Each
+ * cell maps onto a tight z-order interval, so a range scan over a cell (using
+ * the {@link ZOrderIndexBigMinAdvancer}) visits far fewer out-of-range keys
+ * than a scan over the bounding box of the whole search range. Cells are
+ * classified against the actual search region (see {@link ICellClassifier}):
+ * cells outside of the region are dropped, cells inside of the region need no
+ * exact filter, and only the cells crossing the border of the region must be
+ * filtered.
+ * <p>
+ * The decomposition works on the components as long values (i.e. after the
+ * precision adjustment, see
+ * {@link com.bigdata.rdf.internal.impl.extensions.GeoSpatialLiteralExtension#componentsAsLongArr(Object[], GeoSpatialDatatypeConfiguration)}
+ * ). A cell is split along the dimensions to be split at the most significant
+ * bit in which the (range shifted) lower and upper borders differ, which is a
+ * z-order block boundary. Border cells are split before inside cells and large
+ * cells before small cells until the cell budget is exhausted.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @version $Id$
+ */
+public class ZOrderCellDecomposer {
+
+   /**
+    * The relation of a cell to the search region.
+    */
+   public static enum Relation {
+
+      /** The cell lies fully inside the search region. */
+      INSIDE,
+
+      /** The cell crosses the border of the search region. */
+      BORDER,
+
+      /** The cell lies fully outside of the search region. */
+      OUTSIDE;
+   }
+
+   /**
+    * Classifies a cell against the search region. Implementations must be
+    * conservative: a cell may only be reported as {@link Relation#INSIDE} or
+    * {@link Relation#OUTSIDE} if all of its points are known to be inside
+    * resp. outside of the search region.
+    */
+   public static interface ICellClassifier {
+
+      /**
+       * @param lower the lower border of the cell (components as long values)
+       * @param upper the upper border of the cell (components as long values)
+       *
+       * @return the relation of the cell to the search region
+       */
+      public Relation classify(final long[] lower, final long[] upper);
+
+   }
+
+   /**
+    * Classifier for a search region that coincides with the search range,
+    * such as a rectangle query.
+    */
+   public static final ICellClassifier ALL_INSIDE = new ICellClassifier() {
+
+      @Override
+      public Relation classify(final long[] lower, final long[] upper) {
+         return Relation.INSIDE;
+      }
+
+   };
+
+   /**
+    * A cell of the decomposition.
+    */
+   public static class Cell {
+
+      private final long[] lower;
+      private final long[] upper;
+      private final Relation relation;
+
+      // the log2 of the volume of the cell over the split dimensions
+      private final int size;
+
+      private Cell(
+         final long[] lower, final long[] upper,
+         final Relation relation, final int size) {
+
+         this.lower = lower;
+         this.upper = upper;
+         this.relation = relation;
+         this.size = size;
+      }
+
+      /**
+       * @return the lower border of the cell (components as long values)
+       */
+      public long[] getLower() {
+         return lower;
+      }
+
+      /**
+       * @return the upper border of the cell (components as long values)
+       */
+      public long[] getUpper() {
+         return upper;
+      }
+
+      /**
+       * @return true if values in this cell must be checked by the exact
+       *         filter for the search region
+       */
+      public boolean isBorder() {
+         return relation==Relation.BORDER;
+      }
+
+      @Override
+      public String toString() {
+         return "Cell[lower=" + java.util.Arrays.toString(lower)
+            + ", upper=" + java.util.Arrays.toString(upper)
+            + ", relation=" + relation + "]";
+      }
+   }
+
+   /**
+    * Orders cells for splitting: border cells first, then by decreasing size.
+    */
+   private static final Comparator<Cell> SPLIT_ORDER = new Comparator<Cell>() {
+
+      @Override
+      public int compare(final Cell c1, final Cell c2) {
+
+         if (c1.isBorder()!=c2.isBorder()) {
+            return c1.isBorder() ? -1 : 1;
+         }
+
+         return c2.size - c1.size;
+      }
+
+   };
+
+   // the minimum value (range shift) for each dimension, if any
+   private final Long[] minValues;
+
+   // the dimensions along which cells are split
+   private final int[] splitDims;
+
+   // the maximum number of cells generated
+   private final int cellBudget;
+
+   // the number of cells dropped by the last decomposition
+   private int numPrunedCells;
+
+   /**
+    * Constructor for the {@link ZOrderCellDecomposer}.
+    *
+    * @param datatypeConfig the datatype configuration
+    * @param splitDims the dimensions along which cells are split
+    * @param cellBudget the maximum number of cells to generate (GTE 1)
+    */
+   public ZOrderCellDecomposer(
+      final GeoSpatialDatatypeConfiguration datatypeConfig,
+      final int[] splitDims, final int cellBudget) {
+
+      if (cellBudget<1)
+         throw new IllegalArgumentException("Cell budget must be >= 1");
+
+      final int numDimensions = datatypeConfig.getNumDimensions();
+
+      this.minValues = new Long[numDimensions];
+      for (int i=0; i<numDimensions; i++) {
+         minValues[i] = datatypeConfig.getFields().get(i).getMinValue();
+      }
+
+      for (int i=0; i<splitDims.length; i++) {
+         if (splitDims[i]<0 || splitDims[i]>=numDimensions)
+            throw new IllegalArgumentException("Invalid split dimension: " + splitDims[i]);
+      }
+
+      this.splitDims = splitDims;
+      this.cellBudget = cellBudget;
+   }
+
+   /**
+    * Decomposes the search range into cells.
+    *
+    * @param lower the lower border of the search range (components as long values)
+    * @param upper the upper border of the search range (components as long values)
+    * @param classifier the classifier for the search region
+    *
+    * @return the cells, fully covering the search region; the list is empty
+    *         if the search region does not intersect the search range
+    */
+   public List<Cell> decompose(
+      final long[] lower, final long[] upper, final ICellClassifier classifier) {
+
+      numPrunedCells = 0;
+
+      final List<Cell> done = new ArrayList<Cell>();
+
+      final PriorityQueue<Cell> queue = new PriorityQueue<Cell>(16, SPLIT_ORDER);
+
+      final Cell root = newCell(lower, upper, classifier);
+      if (root==null) {
+         return done;
+      }
+
+      queue.add(root);
+
+      while (!queue.isEmpty()) {
+
+         final Cell cell = queue.peek();
+
+         final List<Cell> children = split(cell, classifier);
+         if (children==null) {
+
+            // the cell cannot be split any further
+            done.add(queue.poll());
+            continue;
+         }
+
+         if (done.size() + queue.size() - 1 + children.size() > cellBudget) {
+            break; // budget exhausted
+         }
+
+         queue.poll();
+         queue.addAll(children);
+      }
+
+      done.addAll(queue);
+
+      return done;
+   }
+
+   /**
+    * @return the number of cells that were dropped by the last decomposition
+    *         since they lie outside of the search region
+    */
+   public int getNumPrunedCells() {
+      return numPrunedCells;
+   }
+
+   /**
+    * Creates a cell and classifies it; returns null and records the pruned
+    * cell if it lies outside of the search region.
+    */
+   private Cell newCell(
+      final long[] lower, final long[] upper, final ICellClassifier classifier) {
+
+      final Relation relation = classifier.classify(lower, upper);
+      if (relation==Relation.OUTSIDE) {
+         numPrunedCells++;
+         return null;
+      }
+
+      int size = 0;
+      for (int dim : splitDims) {
+         size += splitBit(dim, lower[dim], upper[dim]) + 1;
+      }
+
+      return new Cell(lower, upper, relation, size);
+   }
+
+   /**
+    * Splits the cell along the split dimensions with the largest extent.
+    * Returns null if the cell is aligned with the z-order blocks in all split
+    * dimensions (in which case splitting would not tighten the scan), and the
+    * (possibly empty) list of children that are not outside of the search
+    * region otherwise.
+    */
+   private List<Cell> split(final Cell cell, final ICellClassifier classifier) {
+
+      final long[] lower = cell.getLower();
+      final long[] upper = cell.getUpper();
+
+      // the split bit for each split dimension, -1 if aligned
+      int maxBit = -1;
+      final int[] bits = new int[splitDims.length];
+      for (int i=0; i<splitDims.length; i++) {
+
+         final int dim = splitDims[i];
+         final int bit = splitBit(dim, lower[dim], upper[dim]);
+
+         // splitting at a bit is only useful if the range is not aligned
+         final boolean aligned =
+            bit<0 || (isBlockStart(dim, lower[dim], bit) && isBlockEnd(dim, upper[dim], bit));
+
+         bits[i] = aligned && !cell.isBorder() ? -1 : bit;
+         maxBit = Math.max(maxBit, bits[i]);
+      }
+
+      if (maxBit<0) {
+         return null;
+      }
+
+      // the cell borders, which are successively split into halves
+      List<long[][]> parts = new ArrayList<long[][]>();
+      parts.add(new long[][] { lower, upper });
+
+      for (int i=0; i<splitDims.length; i++) {
+
+         if (bits[i]!=maxBit)
+            continue;
+
+         final int dim = splitDims[i];
+
+         final List<long[][]> next = new ArrayList<long[][]>(parts.size()*2);
+         for (long[][] part : parts) {
+
+            // the first value in the upper half
+            final long mid =
+               decode(dim, encode(dim, part[1][dim]) & ~((1L << maxBit) - 1));
+
+            final long[] lowerHalfUpper = part[1].clone();
+            lowerHalfUpper[dim] = mid - 1;
+            next.add(new long[][] { part[0], lowerHalfUpper });
+
+            final long[] upperHalfLower = part[0].clone();
+            upperHalfLower[dim] = mid;
+            next.add(new long[][] { upperHalfLower, part[1] });
+         }
+         parts = next;
+      }
+
+      final List<Cell> children = new ArrayList<Cell>(parts.size());
+      for (long[][] part : parts) {
+         final Cell child = newCell(part[0], part[1], classifier);
+         if (child!=null) {
+            children.add(child);
+         }
+      }
+
+      return children;
+   }
+
+   /**
+    * Returns the most significant bit in which the encoded lower and upper
+    * value differ, or -1 if they are identical.
+    */
+   private int splitBit(final int dim, final long lower, final long upper) {
+
+      final long diff = encode(dim, lower) ^ encode(dim, upper);
+
+      return 63 - Long.numberOfLeadingZeros(diff);
+   }
+
+   private boolean isBlockStart(final int dim, final long val, final int bit) {
+
+      final long mask = bit==63 ? -1L : (1L << (bit + 1)) - 1;
+      return (encode(dim, val) & mask) == 0;
+   }
+
+   private boolean isBlockEnd(final int dim, final long val, final int bit) {
+
+      final long mask = bit==63 ? -1L : (1L << (bit + 1)) - 1;
+      return (encode(dim, val) & mask) == mask;
+   }
+
+   /**
+    * Returns the value as it appears (as unsigned long) in the z-order string,
+    * see {@link com.bigdata.rdf.internal.impl.extensions.GeoSpatialLiteralExtension}.
+    */
+   private long encode(final int dim, final long val) {
+
+      final Long minValue = minValues[dim];
+
+      return minValue==null ? val ^ Long.MIN_VALUE : val - minValue;
+   }
+
+   /**
+    * Reverts {@link #encode(int, long)}.
+    */
+   private long decode(final int dim, final long encoded) {
+
+      final Long minValue = minValues[dim];
+
+      return minValue==null ? encoded ^ Long.MIN_VALUE : encoded + minValue;
+   }
+
+   /**
+    * Returns the split dimensions for a spatial (latitude and longitude)
+    * decomposition, or null if the datatype does not have latitude and
+    * longitude fields of type {@link ValueType#DOUBLE}.
+    */
+   public static int[] getSpatialSplitDims(
+      final GeoSpatialDatatypeConfiguration datatypeConfig) {
+
+      final int idxOfLat = datatypeConfig.idxOfField(ServiceMapping.LATITUDE);
+      final int idxOfLon = datatypeConfig.idxOfField(ServiceMapping.LONGITUDE);
+
+      if (idxOfLat<0 || idxOfLon<0)
+         return null;
+
+      if (datatypeConfig.getFields().get(idxOfLat).getValueType()!=ValueType.DOUBLE ||
+          datatypeConfig.getFields().get(idxOfLon).getValueType()!=ValueType.DOUBLE)
+         return null;
+
+      return new int[] { idxOfLat, idxOfLon };
+   }
+
+   /**
+    * Classifies cells against a circle. Points are considered to lie inside
+    * the circle if their distance to the center as computed by
+    * {@link CoordinateUtility#distanceInMeters(double, double, double, double)}
+    * does not exceed the radius. A tolerance is applied to compensate for the
+    * imprecision of that function for small distances, so cells close to the
+    * circle are always reported as border cells.
+    */
+   public static class InCircleClassifier implements ICellClassifier {
+
+      // tolerance in meters
+      private static final double TOLERANCE = 1d;
+
+      private final double centerLat;
+      private final double centerLon;
+      private final double radiusInMeters;
+
+      private final int idxOfLat;
+      private final int idxOfLon;
+
+      private final double latMultiplier;
+      private final double lonMultiplier;
+
+      public InCircleClassifier(
+         final GeoSpatialDatatypeConfiguration datatypeConfig,
+         final double centerLat, final double centerLon,
+         final double radiusInMeters) {
+
+         this.centerLat = centerLat;
+         this.centerLon = centerLon;
+         this.radiusInMeters = radiusInMeters;
+
+         this.idxOfLat = datatypeConfig.idxOfField(ServiceMapping.LATITUDE);
+         this.idxOfLon = datatypeConfig.idxOfField(ServiceMapping.LONGITUDE);
+
+         if (idxOfLat<0 || idxOfLon<0)
+            throw new IllegalArgumentException("Datatype has no latitude and longitude.");
+
+         this.latMultiplier = datatypeConfig.getFields().get(idxOfLat).getMultiplier();
+         this.lonMultiplier = datatypeConfig.getFields().get(idxOfLon).getMultiplier();
+      }
+
+      @Override
+      public Relation classify(final long[] lower, final long[] upper) {
+
+         final double latLow = lower[idxOfLat] / latMultiplier;
+         final double latHigh = upper[idxOfLat] / latMultiplier;
+         final double lonLow = lower[idxOfLon] / lonMultiplier;
+         final double lonHigh = upper[idxOfLon] / lonMultiplier;
+
+         final double dLonLow = lonDistance(centerLon, lonLow);
+         final double dLonHigh = lonDistance(centerLon, lonHigh);
+
+         /*
+          * Inside: along a meridian the distance has no interior maximum and
+          * along a parallel it grows with the longitude difference, so unless
+          * the cell extends to more than 90 degrees from the center longitude,
+          * the maximum distance is attained at a corner.
+          */
+         if (dLonLow<90 && dLonHigh<90) {
+
+            final double maxDist = Math.max(
+               Math.max(
+                  distance(latLow, lonLow), distance(latLow, lonHigh)),
+               Math.max(
+                  distance(latHigh, lonLow), distance(latHigh, lonHigh)));
+
+            if (maxDist <= radiusInMeters - TOLERANCE) {
+               return Relation.INSIDE;
+            }
+         }
+
+         /*
+          * Outside: compute the minimum distance between the center and the
+          * cell. If the center longitude lies in the cell's longitude range,
+          * the closest point is on the center's meridian. Otherwise, it lies
+          * on the closest meridian border of the cell, at the foot of the
+          * center on that meridian (clamped to the cell).
+          */
+         final double minDist;
+         if (lonLow<=centerLon && centerLon<=lonHigh) {
+
+            minDist = distance(clamp(centerLat, latLow, latHigh), centerLon);
+
+         } else {
+
+            final double dLon = Math.min(dLonLow, dLonHigh);
+            if (dLon>=90) {
+               return Relation.BORDER; // be conservative
+            }
+
+            final double lon = dLonLow<=dLonHigh ? lonLow : lonHigh;
+            final double footLat = Math.toDegrees(Math.atan(
+               Math.tan(Math.toRadians(centerLat)) / Math.cos(Math.toRadians(dLon))));
+
+            minDist = distance(clamp(footLat, latLow, latHigh), lon);
+         }
+
+         return minDist > radiusInMeters + TOLERANCE ? Relation.OUTSIDE : Relation.BORDER;
+      }
+
+      private double distance(final double lat, final double lon) {
+
+         return CoordinateUtility.distanceInMeters(lat, centerLat, lon, centerLon);
+      }
+
+      private static double clamp(final double val, final double min, final double max) {
+
+         return Math.max(min, Math.min(max, val));
+      }
+
+      /**
+       * The absolute difference between two longitudes in degrees, in [0;180].
+       */
+      private static double lonDistance(final double lon1, final double lon2) {
+
+         final double diff = Math.abs(lon1 - lon2) % 360;
+
+         return diff > 180 ? 360 - diff : diff;
+      }
+   }
+
+}
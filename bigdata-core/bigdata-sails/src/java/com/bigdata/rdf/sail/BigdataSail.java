@@ -141,6 +141,7 @@ import com.bigdata.rdf.spo.InferredSPOFilter;
 import com.bigdata.rdf.spo.SPO;
 import com.bigdata.rdf.spo.SPOKeyOrder;
 import com.bigdata.rdf.spo.SPOPredicate;
+import com.bigdata.rdf.stats.StatisticsChangeLog;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.store.BD;
 import com.bigdata.rdf.store.BigdataSolutionResolverator;
@@ -2292,6 +2293,11 @@ public class BigdataSail extends SailBase implements Sail {
 
                 }
 
+                /*
+                 * Maintain the statistics catalog (iff enabled for the KB).
+                 */
+                StatisticsChangeLog.startConnection(this);
+
                 if (this.changeLog != null) {
 
                     /*
@@ -2498,7 +2504,7 @@ public class BigdataSail extends SailBase implements Sail {
                      * closure of the database.
                      */
 
-                    tm = new TruthMaintenance(database.getInferenceEngine());
+                    tm = database.getInferenceEngine().newTruthMaintenance();
                     
                 } else {
                     
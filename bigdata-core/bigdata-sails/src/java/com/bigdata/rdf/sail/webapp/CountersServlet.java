@@ -149,7 +149,16 @@ public class CountersServlet extends BigdataServlet {
 
         resp.setStatus(HTTP_OK);
 
-        resp.setContentType(mimeType);
+        if (format == CounterSetFormat.OPENMETRICS) {
+
+            // Note: Scrapers require the version of the exposition format.
+            resp.setContentType(mimeType + "; version=1.0.0");
+
+        } else {
+
+            resp.setContentType(mimeType);
+
+        }
 
         if (format.hasCharset()) {
 
@@ -165,9 +174,16 @@ public class CountersServlet extends BigdataServlet {
          * that the client must revalidate, and that the response is cachable
          * even if the client was authenticated.
          */
-        resp.addHeader("Cache-Control", "max-age=60, must-revalidate, public");
-        // to disable caching.
-        // r.addHeader("Cache-Control", "no-cache");
+        if (format == CounterSetFormat.OPENMETRICS) {
+
+            // Each scrape must see the current values.
+            resp.addHeader("Cache-Control", "no-cache");
+
+        } else {
+
+            resp.addHeader("Cache-Control", "max-age=60, must-revalidate, public");
+
+        }
 
         /*
          * Render the counters as specified by the query for the negotiated MIME
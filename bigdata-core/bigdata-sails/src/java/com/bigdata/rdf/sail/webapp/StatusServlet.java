@@ -56,6 +56,7 @@ import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.engine.AbstractRunningQuery;
 import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.OperatorProfile;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.engine.QueryLog;
 import com.bigdata.bop.fed.QueryEngineFactory;
@@ -211,6 +212,49 @@ public class StatusServlet extends BigdataRDFServlet {
 	 */
     static final String THREAD_DUMP = "threadDump";
 
+    /**
+     * URL request parameter to report the live latency, input and queue depth
+     * distributions for each operator of the running queries (optionally
+     * restricted by {@link #QUERY_ID}). The report is written onto the http
+     * response as plain text. The report is repeated {@link #PROFILE_COUNT}
+     * times, once every {@link #PROFILE_INTERVAL} seconds, so the progress of
+     * a long running query may be followed. The distributions are only
+     * recorded for the queries which specify the
+     * {@link com.bigdata.rdf.sparql.ast.QueryHints#PROFILE_OPERATORS} query
+     * hint.
+     * 
+     * @see com.bigdata.bop.engine.OperatorProfile
+     */
+    static final String PROFILE = "profile";
+
+    /**
+     * The #of reports written for a {@link #PROFILE} request (default
+     * {@value #DEFAULT_PROFILE_COUNT}, at most {@value #MAX_PROFILE_COUNT}).
+     */
+    static final String PROFILE_COUNT = "count";
+
+    static final int DEFAULT_PROFILE_COUNT = 1;
+
+    static final int MAX_PROFILE_COUNT = 600;
+
+    /**
+     * The delay in seconds between the reports for a {@link #PROFILE} request
+     * (default {@value #DEFAULT_PROFILE_INTERVAL}, at most
+     * {@value #MAX_PROFILE_INTERVAL}).
+     */
+    static final String PROFILE_INTERVAL = "interval";
+
+    static final int DEFAULT_PROFILE_INTERVAL = 1;
+
+    static final int MAX_PROFILE_INTERVAL = 60;
+
+    /**
+     * The maximum time in seconds for which a {@link #PROFILE} request may
+     * hold the servlet thread. The {@link #PROFILE_COUNT} is reduced such
+     * that <code>count * interval</code> does not exceed this value.
+     */
+    static final int MAX_PROFILE_DURATION = 600;
+
     /**
      * Special HA status request designed for clients that poll to determine the
      * status of an HAJournalServer. This option is exclusive of other
@@ -462,6 +506,13 @@ public class StatusServlet extends BigdataRDFServlet {
 			return;
 
     	}
+
+		if (req.getParameter(PROFILE) != null) {
+
+			doProfile(req, resp);
+			return;
+
+		}
     	
         if (req.getParameter(HA) != null
                 && getIndexManager() instanceof AbstractJournal
@@ -1521,6 +1572,143 @@ public class StatusServlet extends BigdataRDFServlet {
 
 	}
 	
+	/**
+	 * Write the live operator distributions for the running queries onto the
+	 * http response.
+	 * 
+	 * @see #PROFILE
+	 */
+	private void doProfile(final HttpServletRequest req,
+			final HttpServletResponse resp) throws IOException {
+
+		final Set<UUID> requestedQueryIds;
+		final int interval;
+		final int count;
+		try {
+
+			requestedQueryIds = getRequestedQueryIds(req);
+
+			interval = Math.min(MAX_PROFILE_INTERVAL, Math.max(1,
+					getIntParam(req, PROFILE_INTERVAL,
+							DEFAULT_PROFILE_INTERVAL)));
+
+			count = Math.min(
+					Math.min(MAX_PROFILE_COUNT, MAX_PROFILE_DURATION / interval),
+					Math.max(1, getIntParam(req, PROFILE_COUNT,
+							DEFAULT_PROFILE_COUNT)));
+
+		} catch (IllegalArgumentException ex) {
+
+			// Includes NumberFormatException and a malformed UUID.
+			buildAndCommitResponse(resp, HTTP_BADREQUEST, MIME_TEXT_PLAIN,
+					"Bad parameter: " + ex.getMessage());
+
+			return;
+
+		}
+
+		resp.setStatus(HTTP_OK);
+
+		// Do not cache the response.
+		resp.addHeader("Cache-Control", "no-cache");
+
+		// Plain text response.
+		resp.setContentType(MIME_TEXT_PLAIN);
+
+		final PrintWriter w = resp.getWriter();
+
+		try {
+
+			final QueryEngine queryEngine = (QueryEngine) QueryEngineFactory
+					.getInstance().getQueryController(getIndexManager());
+
+			for (int i = 0; i < count; i++) {
+
+				if (i > 0)
+					Thread.sleep(TimeUnit.SECONDS.toMillis(interval));
+
+				w.println("time=" + System.currentTimeMillis());
+
+				for (UUID queryId : queryEngine.getRunningQueries()) {
+
+					if (!requestedQueryIds.isEmpty()
+							&& !requestedQueryIds.contains(queryId))
+						continue;
+
+					final AbstractRunningQuery q;
+					try {
+						q = queryEngine.getRunningQuery(queryId);
+					} catch (RuntimeException ex) {
+						// Halted since the running queries were listed.
+						continue;
+					}
+
+					if (q == null) {
+						// Already terminated.
+						continue;
+					}
+
+					w.println("queryId=" + queryId + ", elapsed="
+							+ q.getElapsed() + "ms");
+
+					final Map<Integer, BOpStats> stats = q.getStats();
+
+					for (Map.Entry<Integer, OperatorProfile> e : q
+							.getOperatorProfiles().entrySet()) {
+
+						w.println("  bopId=" + e.getKey() + ", "
+								+ e.getValue() + ", stats="
+								+ stats.get(e.getKey()));
+
+					}
+
+				}
+
+				w.println();
+
+				// Let the client see each report as it is written.
+				w.flush();
+
+			}
+
+		} catch (Throwable t) {
+
+			launderThrowable(t, resp, "");
+
+		} finally {
+
+			w.close();
+
+		}
+
+	}
+
+	/**
+	 * Return the value of an integer URL request parameter.
+	 * 
+	 * @throws NumberFormatException
+	 *             if the parameter is not an integer.
+	 */
+	private static int getIntParam(final HttpServletRequest req,
+			final String name, final int def) {
+
+		final String s = req.getParameter(name);
+
+		if (s == null)
+			return def;
+
+		try {
+
+			return Integer.parseInt(s.trim());
+
+		} catch (NumberFormatException ex) {
+
+			throw new NumberFormatException(name + "=" + s);
+
+		}
+
+	}
+
 	private Set<UUID> getRequestedQueryIds(HttpServletRequest req) {
 
 		/*
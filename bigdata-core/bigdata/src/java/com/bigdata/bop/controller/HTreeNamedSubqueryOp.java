@@ -53,6 +53,7 @@ import com.bigdata.bop.join.HTreeHashJoinUtility;
 import com.bigdata.bop.join.HTreeSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinTypeEnum;
 import com.bigdata.bop.join.NamedSolutionSetStats;
+import com.bigdata.bop.join.SolutionSetBloomFilter;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
@@ -200,6 +201,14 @@ public class HTreeNamedSubqueryOp extends PipelineOp implements
         private final boolean first;
 
         private final HTreeHashJoinUtility state;
+
+        /**
+         * When <code>true</code>, a {@link SolutionSetBloomFilter} is built
+         * for the named solution set.
+         * 
+         * @see Annotations#BLOOM_FILTER
+         */
+        private final boolean bloomFilter;
         
         public ControllerTask(final HTreeNamedSubqueryOp op,
                 final BOpContext<IBindingSet> context) {
@@ -219,6 +228,9 @@ public class HTreeNamedSubqueryOp extends PipelineOp implements
 
             this.namedSetRef = (INamedSolutionSetRef) op
                     .getRequiredProperty(Annotations.NAMED_SET_REF);
+
+            this.bloomFilter = op.getProperty(Annotations.BLOOM_FILTER,
+                    Annotations.DEFAULT_BLOOM_FILTER);
             
             {
 
@@ -393,6 +405,14 @@ public class HTreeNamedSubqueryOp extends PipelineOp implements
                         // Report the #of solutions in the named solution set.
                         stats.solutionSetSize.add(ncopied);
 
+                        if (bloomFilter) {
+
+                            // Build the semi-join filters (if possible).
+                            SolutionSetBloomFilter.publish(attrs, namedSetRef,
+                                    state);
+
+                        }
+
                         // Checkpoint the solution set.
                         state.saveSolutionSet();
 
@@ -53,6 +53,7 @@ import com.bigdata.bop.join.JVMHashJoinUtility;
 import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinTypeEnum;
 import com.bigdata.bop.join.NamedSolutionSetStats;
+import com.bigdata.bop.join.SolutionSetBloomFilter;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
@@ -190,6 +191,14 @@ public class JVMNamedSubqueryOp extends PipelineOp implements INamedSubqueryOp,
         
         private final JVMHashJoinUtility state;
 
+        /**
+         * When <code>true</code>, a {@link SolutionSetBloomFilter} is built
+         * for the named solution set.
+         * 
+         * @see Annotations#BLOOM_FILTER
+         */
+        private final boolean bloomFilter;
+
         public ControllerTask(final JVMNamedSubqueryOp op,
                 final BOpContext<IBindingSet> context) {
 
@@ -208,6 +217,9 @@ public class JVMNamedSubqueryOp extends PipelineOp implements INamedSubqueryOp,
 
             this.namedSetRef = (INamedSolutionSetRef) op
                     .getRequiredProperty(Annotations.NAMED_SET_REF);
+
+            this.bloomFilter = op.getProperty(Annotations.BLOOM_FILTER,
+                    Annotations.DEFAULT_BLOOM_FILTER);
             
             {
 
@@ -381,6 +393,14 @@ public class JVMNamedSubqueryOp extends PipelineOp implements INamedSubqueryOp,
                         // Report the #of solutions in the named solution set.
                         stats.solutionSetSize.add(ncopied);
 
+                        if (bloomFilter) {
+
+                            // Build the semi-join filters (if possible).
+                            SolutionSetBloomFilter.publish(attrs, namedSetRef,
+                                    state);
+
+                        }
+
 //                        // Publish the solution set on the query context.
 //                        saveSolutionSet();
 
@@ -32,6 +32,7 @@ import com.bigdata.bop.IQueryAttributes;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.join.IHashJoinUtility;
+import com.bigdata.bop.join.SolutionSetBloomFilter;
 
 /**
  * Attributes for named solution set processing.
@@ -63,4 +64,18 @@ public interface NamedSetAnnotations {
      */
     final String NAMED_SET_REF = "namedSetRef";
 
+    /**
+     * When <code>true</code>, the operator which generates the named solution
+     * set also builds a {@link SolutionSetBloomFilter} for its join variables
+     * once the named solution set is complete (default
+     * {@value #DEFAULT_BLOOM_FILTER}). That filter may be used to reject
+     * elements from the access paths whose solutions will later be joined
+     * with the named solution set.
+     * 
+     * @see SolutionSetBloomFilter
+     */
+    final String BLOOM_FILTER = "bloomFilter";
+
+    final boolean DEFAULT_BLOOM_FILTER = false;
+
 }
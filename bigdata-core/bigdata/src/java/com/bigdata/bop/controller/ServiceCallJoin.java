@@ -29,6 +29,7 @@ package com.bigdata.bop.controller;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -87,8 +88,11 @@ import cutthecrap.utils.striterators.SingleValueIterator;
  * Source solutions are vectored for the same target service. Source solutions
  * which target different services are first grouped by the target service and
  * then vectored to each target service. Remote SERVICEs receive their vectored
- * inputs through a BINDINGS clause rather than a {@link IBindingSet}[]. The
- * service call(s) will be cancelled if the parent query is cancelled.
+ * inputs through a BINDINGS clause rather than a {@link IBindingSet}[]. Only
+ * the distinct projections of the source solutions are vectored to a remote
+ * SERVICE, which may split them into several pipelined requests (see
+ * {@link RemoteServiceCall}). The service call(s) will be cancelled if the
+ * parent query is cancelled.
  * <p>
  * For each binding set presented, this operator executes the service joining
  * the solutions from the service against the source binding set. Since each
@@ -795,14 +799,46 @@ public class ServiceCallJoin extends PipelineOp {
 
             /**
              * Evaluate an remote SPARQL service call.
+             * <p>
+             * Only the distinct projections of the source solutions onto the
+             * variables visible to the SERVICE are vectored to the remote end
+             * point. The solutions from the service are joined back against
+             * all source solutions by the caller, so sending duplicates would
+             * only increase the size of the request and cause the end point
+             * to report the same solutions again.
              */
             private ICloseableIterator<IBindingSet> doRemoteServiceCall(
                     final RemoteServiceCall serviceCall,
                     final IBindingSet left[]) throws Exception {
 
-                return doNonBigdataSesameServiceCall(serviceCall, left);
+                return doNonBigdataSesameServiceCall(serviceCall,
+                        distinctProjection(left));
                 
             }
+
+            /**
+             * Return the distinct projections of the source solutions onto the
+             * variables projected by the SERVICE, preserving their order.
+             */
+            private IBindingSet[] distinctProjection(final IBindingSet[] left) {
+
+                if (left.length <= 1)
+                    return left;
+
+                final IVariable<?>[] vars = projectedVars
+                        .toArray(new IVariable[projectedVars.size()]);
+
+                final Set<IBindingSet> distinct = new LinkedHashSet<IBindingSet>();
+
+                for (IBindingSet bset : left) {
+
+                    distinct.add(bset.copy(vars));
+
+                }
+
+                return distinct.toArray(new IBindingSet[distinct.size()]);
+
+            }
             
             /**
              * The "openrdf" internal and REMOTE SPARQL invocations look the
@@ -228,6 +228,15 @@ abstract public class AbstractRunningQuery implements IRunningQuery {
      */
     final private ConcurrentHashMap<Integer/* bopId */, BOpStats> statsMap;
 
+    /**
+     * The latency and input distributions for each {@link BOp} which has been
+     * evaluated by this node for this query and <code>null</code> unless
+     * {@link QueryEngine.Annotations#PROFILE} was specified for the query.
+     * 
+     * @see #getOperatorProfile(int)
+     */
+    final private ConcurrentHashMap<Integer/* bopId */, OperatorProfile> profileMap;
+
     /**
      * The buffer used for the overall output of the query pipeline.
      * <p>
@@ -501,6 +510,66 @@ abstract public class AbstractRunningQuery implements IRunningQuery {
         
     }
     
+    /**
+     * Return <code>true</code> iff the latency and input distributions are
+     * being recorded for this query.
+     * 
+     * @see QueryEngine.Annotations#PROFILE
+     */
+    final public boolean isProfiled() {
+
+        return profileMap != null;
+
+    }
+
+    /**
+     * Return the latency and input distributions for each {@link BOp} which
+     * has been evaluated by this node for this query. In scale-out, this only
+     * reflects the operator tasks which ran on this node. The map is empty
+     * unless the query is {@link #isProfiled() profiled}.
+     */
+    final public Map<Integer/* bopId */, OperatorProfile> getOperatorProfiles() {
+
+        if (profileMap == null)
+            return Collections.emptyMap();
+
+        return Collections.unmodifiableMap(profileMap);
+
+    }
+
+    /**
+     * Return the {@link OperatorProfile} for the given {@link BOp} identifier,
+     * creating it if necessary.
+     * 
+     * @param bopId
+     *            The {@link BOp} identifier.
+     * 
+     * @return The {@link OperatorProfile} -or- <code>null</code> unless the
+     *         query is {@link #isProfiled() profiled}.
+     */
+    final protected OperatorProfile getOperatorProfile(final int bopId) {
+
+        if (profileMap == null)
+            return null;
+
+        final Integer key = Integer.valueOf(bopId);
+
+        OperatorProfile profile = profileMap.get(key);
+
+        if (profile == null) {
+
+            final OperatorProfile tmp = profileMap.putIfAbsent(key,
+                    profile = new OperatorProfile(getBOp(bopId)));
+
+            if (tmp != null)
+                profile = tmp;
+
+        }
+
+        return profile;
+
+    }
+
     @Override
     final public Map<Integer, BOp> getBOpIndex() {
 
@@ -602,6 +671,10 @@ abstract public class AbstractRunningQuery implements IRunningQuery {
         
         this.bopIndex = BOpUtility.getIndex(query);
 
+        this.profileMap = query.getProperty(QueryEngine.Annotations.PROFILE,
+                QueryEngine.Annotations.DEFAULT_PROFILE) ? new ConcurrentHashMap<Integer, OperatorProfile>()
+                : null;
+
         /*
          * Setup the BOpStats object for each pipeline operator in the query.
          */
@@ -1410,6 +1483,9 @@ abstract public class AbstractRunningQuery implements IRunningQuery {
                 // track elapsed run time of done queries.
                 final long elapsed = getElapsed();
                 queryEngine.counters.elapsedMillis.add(elapsed);
+                // aggregate the operator distributions by query shape.
+                if (isController() && isProfiled())
+                    queryEngine.getQueryShapeProfiles().add(this, elapsed);
 //                if (c != null)
 //                    c.elapsedMillis.add(elapsed);
                 if (future.getCause() != null) {
@@ -42,6 +42,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
@@ -497,6 +498,10 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                 // no work
                 return false;
             }
+            // sample the queue depth (operator starvation shows up as zeros).
+            final OperatorProfile profile = getOperatorProfile(bundle.bopId);
+            if (profile != null)
+                profile.queueDepth.add(queue.size());
 //          if (false && pipelined && !getQueryEngine().isScaleOut()) {
 //              /*
 //               * For pipelined operators, examine the sink and altSink (if
@@ -701,6 +706,9 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                 }
                 if (nassigned != naccepted)
                     throw new AssertionError();
+                final OperatorProfile profile = getOperatorProfile(bundle.bopId);
+                if (profile != null)
+                    profile.solutionsIn.add(solutionsAccepted);
                 /*
                  * Create task to consume that source.
                  */
@@ -920,6 +928,8 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                  * Run the operator task.
                  */
                 final long begin = System.currentTimeMillis();
+                final OperatorProfile profile = getOperatorProfile(t.bopId);
+                final long beginNanos = profile == null ? 0L : System.nanoTime();
                 try {
                     c.operatorStartCount.increment();
                     c.operatorActiveCount.increment();
@@ -936,6 +946,9 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                     c.operatorActiveCount.decrement();
                     t.context.getStats().elapsed.add(System.currentTimeMillis()
                             - begin);
+                    if (profile != null)
+                        profile.taskMicros.add(TimeUnit.NANOSECONDS
+                                .toMicros(System.nanoTime() - beginNanos));
                 }
 
                 // Notify query controller that operator task did run.
@@ -0,0 +1,129 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.engine;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Histogram;
+
+/**
+ * Latency and input distributions for an operator. Unlike {@link BOpStats},
+ * which only reports totals, this reports the distribution of the work done by
+ * each operator task. The distributions are recorded by the
+ * {@link ChunkedRunningQuery} for each operator of a query and are aggregated
+ * per query shape by the {@link QueryShapeProfiles}.
+ * <p>
+ * The queue depth is sampled each time the {@link ChunkedRunningQuery}
+ * considers scheduling a task for the operator. An operator whose queue is
+ * empty for most samples while the query is running is starved by its
+ * upstream operators (see {@link Histogram#getZeroFraction()}).
+ */
+public class OperatorProfile {
+
+    /**
+     * The simple name of the class of the operator.
+     */
+    private final String name;
+
+    /**
+     * The elapsed time (microseconds) of each operator task.
+     */
+    public final Histogram taskMicros = new Histogram();
+
+    /**
+     * The #of solutions consumed by each operator task.
+     */
+    public final Histogram solutionsIn = new Histogram();
+
+    /**
+     * The #of chunk messages on the input queue of the operator each time the
+     * queue was sampled.
+     */
+    public final Histogram queueDepth = new Histogram();
+
+    /**
+     * @param op
+     *            The operator.
+     */
+    public OperatorProfile(final BOp op) {
+
+        this(op.getClass().getSimpleName());
+
+    }
+
+    OperatorProfile(final String name) {
+
+        this.name = name;
+
+    }
+
+    /**
+     * The simple name of the class of the operator.
+     */
+    public String getName() {
+
+        return name;
+
+    }
+
+    /**
+     * Add the distributions for another instance of the same operator.
+     */
+    public void add(final OperatorProfile o) {
+
+        taskMicros.add(o.taskMicros);
+
+        solutionsIn.add(o.solutionsIn);
+
+        queueDepth.add(o.queueDepth);
+
+    }
+
+    /**
+     * Return a {@link CounterSet} reporting the distributions.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        taskMicros.attachCounters(root.makePath("taskMicros"));
+
+        solutionsIn.attachCounters(root.makePath("solutionsIn"));
+
+        queueDepth.attachCounters(root.makePath("queueDepth"));
+
+        return root;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return name + "{taskMicros=" + taskMicros + ",solutionsIn="
+                + solutionsIn + ",queueDepth=" + queueDepth
+                + ",starvedFraction=" + queueDepth.getZeroFraction() + "}";
+
+    }
+
+}
@@ -62,6 +62,7 @@ import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.fed.FederatedQueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.bop.joinGraph.rto.JoinPathCache;
 import com.bigdata.btree.BTree;
 import com.bigdata.btree.IndexSegment;
 import com.bigdata.btree.view.FusedView;
@@ -265,6 +266,17 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
          * @see BLZG-533 Vector query engine on native heap.
          */
         String CHUNK_HANDLER = QueryEngine.class.getName() + ".chunkHandler";
+
+        /**
+         * When <code>true</code>, the latency, input and queue depth
+         * distributions are recorded for each operator of the query (see
+         * {@link OperatorProfile}) and are aggregated by query shape (see
+         * {@link QueryShapeProfiles}) when the query is done. This annotation
+         * is only examined on the top-level operator of the query.
+         */
+        String PROFILE = QueryEngine.class.getName() + ".profile";
+
+        boolean DEFAULT_PROFILE = false;
         
     }
 
@@ -287,6 +299,12 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         // geospatial counters
         final CounterSet geoSpatial = root.makePath("GeoSpatial");
         geoSpatial.attach(geoSpatialCounters.getCounters());
+
+        // latency distributions aggregated by query shape.
+        root.makePath("QueryShapes").attach(queryShapeProfiles.getCounters());
+
+        // join paths reused by the runtime query optimizer.
+        root.makePath("JoinPathCache").attach(joinPathCache.getCounters());
         
 //        // counters per tagged query group.
 //        {
@@ -326,6 +344,26 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
      */
     final protected GeoSpatialCounters geoSpatialCounters = newGeoSpatialCounters();
 
+    /**
+     * The maximum #of distinct query shapes for which the operator latency
+     * distributions are aggregated.
+     */
+    static private final int MAX_QUERY_SHAPES = 100;
+
+    /**
+     * Operator latency distributions aggregated by query shape.
+     */
+    final protected QueryShapeProfiles queryShapeProfiles = new QueryShapeProfiles(
+            MAX_QUERY_SHAPES);
+
+    /**
+     * The join paths selected by the runtime query optimizer, which are reused
+     * by later queries having the same join graphs.
+     */
+    final protected JoinPathCache joinPathCache = new JoinPathCache(
+            JoinPathCache.DEFAULT_MAX_ENTRIES,
+            JoinPathCache.DEFAULT_DRIFT_FACTOR);
+
 //    /**
 //     * Statistics for queries which are "tagged" so we can recognize their
 //     * instances as members of some group.
@@ -397,6 +435,26 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         return counters;
         
     }
+
+    /**
+     * The operator latency distributions aggregated by query shape for this
+     * {@link QueryEngine}.
+     */
+    public QueryShapeProfiles getQueryShapeProfiles() {
+
+        return queryShapeProfiles;
+
+    }
+
+    /**
+     * The join paths selected by the runtime query optimizer for this
+     * {@link QueryEngine}.
+     */
+    public JoinPathCache getJoinPathCache() {
+
+        return joinPathCache;
+
+    }
     
     /**
      * The {@link QueryEngineCounters} object for this {@link QueryEngine}.
@@ -0,0 +1,251 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Histogram;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+
+/**
+ * Aggregates the {@link OperatorProfile}s of completed queries by query shape
+ * and publishes them as counters. The shape of a query is the tree of its
+ * {@link PipelineOp}s (the class and identifier of each operator), so the
+ * executions of the same query plan (e.g., with different bindings) are
+ * aggregated together.
+ * <p>
+ * The #of distinct shapes is bounded. The executions of a query having a new
+ * shape are not aggregated once that bound is reached.
+ */
+public class QueryShapeProfiles implements ICounterSetAccess {
+
+    /**
+     * The maximum #of distinct query shapes.
+     */
+    private final int maxShapes;
+
+    /**
+     * The aggregated distributions for each shape, keyed by the shape.
+     */
+    private final ConcurrentHashMap<String, ShapeProfile> shapes = new ConcurrentHashMap<String, ShapeProfile>();
+
+    /**
+     * Used to assign an identifier to each shape (the shapes are reported
+     * under their identifier since a shape may be long).
+     */
+    private final AtomicInteger nextShapeId = new AtomicInteger();
+
+    /**
+     * The #of completed queries which were not aggregated because the maximum
+     * #of shapes was reached.
+     */
+    private final CAT droppedQueryCount = new CAT();
+
+    /**
+     * @param maxShapes
+     *            The maximum #of distinct query shapes.
+     */
+    public QueryShapeProfiles(final int maxShapes) {
+
+        if (maxShapes <= 0)
+            throw new IllegalArgumentException();
+
+        this.maxShapes = maxShapes;
+
+    }
+
+    /**
+     * The aggregated distributions for one query shape.
+     */
+    static class ShapeProfile {
+
+        /** The identifier assigned to the shape. */
+        final int id;
+
+        /** The shape. */
+        final String shape;
+
+        /** The elapsed time (milliseconds) of each query. */
+        final Histogram elapsedMillis = new Histogram();
+
+        /** The aggregated distributions for each operator. */
+        final ConcurrentHashMap<Integer, OperatorProfile> operators = new ConcurrentHashMap<Integer, OperatorProfile>();
+
+        ShapeProfile(final int id, final String shape) {
+            this.id = id;
+            this.shape = shape;
+        }
+
+    }
+
+    /**
+     * Aggregate the distributions for a completed query.
+     *
+     * @param q
+     *            The query.
+     * @param elapsed
+     *            The elapsed time (milliseconds) of the query.
+     */
+    public void add(final AbstractRunningQuery q, final long elapsed) {
+
+        final String shape = getShape(q.getQuery());
+
+        ShapeProfile p = shapes.get(shape);
+
+        if (p == null) {
+
+            if (shapes.size() >= maxShapes) {
+
+                droppedQueryCount.increment();
+
+                return;
+
+            }
+
+            final ShapeProfile tmp = shapes.putIfAbsent(shape,
+                    p = new ShapeProfile(nextShapeId.incrementAndGet(), shape));
+
+            if (tmp != null)
+                p = tmp;
+
+        }
+
+        p.elapsedMillis.add(elapsed);
+
+        for (Map.Entry<Integer, OperatorProfile> e : q.getOperatorProfiles()
+                .entrySet()) {
+
+            OperatorProfile op = p.operators.get(e.getKey());
+
+            if (op == null) {
+
+                final OperatorProfile tmp = p.operators.putIfAbsent(
+                        e.getKey(),
+                        op = new OperatorProfile(e.getValue().getName()));
+
+                if (tmp != null)
+                    op = tmp;
+
+            }
+
+            op.add(e.getValue());
+
+        }
+
+    }
+
+    /**
+     * Return the shape of a query plan.
+     */
+    static String getShape(final BOp op) {
+
+        final StringBuilder sb = new StringBuilder();
+
+        getShape(op, sb);
+
+        return sb.toString();
+
+    }
+
+    private static void getShape(final BOp op, final StringBuilder sb) {
+
+        sb.append(op.getClass().getSimpleName());
+
+        sb.append('#');
+
+        sb.append(op.getId());
+
+        boolean first = true;
+
+        for (BOp arg : op.args()) {
+
+            if (!(arg instanceof PipelineOp))
+                continue;
+
+            sb.append(first ? '(' : ',');
+
+            getShape(arg, sb);
+
+            first = false;
+
+        }
+
+        if (!first)
+            sb.append(')');
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("shapeCount", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(shapes.size());
+            }
+        });
+
+        root.addCounter("droppedQueryCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(droppedQueryCount.get());
+            }
+        });
+
+        for (ShapeProfile p : shapes.values()) {
+
+            final CounterSet tmp = root.makePath("shape" + p.id);
+
+            tmp.addCounter("shape", new OneShotInstrument<String>(p.shape));
+
+            p.elapsedMillis.attachCounters(tmp.makePath("elapsedMillis"));
+
+            final CounterSet operators = tmp.makePath("operators");
+
+            for (Map.Entry<Integer, OperatorProfile> e2 : p.operators
+                    .entrySet()) {
+
+                operators.makePath(
+                        e2.getValue().getName() + "#" + e2.getKey())
+                        .attach(e2.getValue().getCounters());
+
+            }
+
+        }
+
+        return root;
+
+    }
+
+}
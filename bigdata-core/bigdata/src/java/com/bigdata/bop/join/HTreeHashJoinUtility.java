@@ -59,7 +59,7 @@ import com.bigdata.btree.ITupleSerializer;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.keys.ASCIIKeyBuilderFactory;
 import com.bigdata.btree.keys.IKeyBuilder;
-import com.bigdata.btree.raba.codec.FrontCodedRabaCoderDupKeys;
+import com.bigdata.btree.raba.codec.FingerprintRabaCoderDupKeys;
 import com.bigdata.btree.raba.codec.SimpleRabaCoder;
 import com.bigdata.counters.CAT;
 import com.bigdata.htree.HTree;
@@ -506,8 +506,6 @@ public class HTreeHashJoinUtility implements IHashJoinUtility {
 
 //        final int branchingFactor = 2 ^ addressBits;
         
-        final int ratio = 32; // TODO Config/tune.
-        
         metadata.setAddressBits(addressBits);
 
         metadata.setRawRecords(op.getProperty(//
@@ -527,8 +525,7 @@ public class HTreeHashJoinUtility implements IHashJoinUtility {
         @SuppressWarnings("rawtypes")
         final ITupleSerializer<?, ?> tupleSer = new DefaultTupleSerializer(
                 new ASCIIKeyBuilderFactory(Bytes.SIZEOF_INT),
-                // new FrontCodedRabaCoder(ratio),// keys : TODO Optimize for int32!
-                new FrontCodedRabaCoderDupKeys(ratio),// keys : TODO Optimize for int32!
+                new FingerprintRabaCoderDupKeys(),// keys : int32 hash codes.
                 new SimpleRabaCoder() // vals
         );
 
@@ -0,0 +1,847 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.DTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+
+/**
+ * A hash index for {@link IBindingSet}s whose keys are the as-bound values of
+ * one or two join variables, specialized for values which are {@link TermId}s
+ * or inline integral {@link XSDNumericIV}s. The key for such a value is a tag
+ * (identifying {@link TermId} or the {@link DTE} of the inline value) and a
+ * <code>long</code>, so the index is a set of open addressing tables over
+ * primitive arrays and does not allocate any objects per solution beyond the
+ * growth of those arrays. Equality of the keys is the same as the equality
+ * of the {@link IConstant}s used by {@link JVMHashIndex}.
+ * <p>
+ * The index is divided into partitions on the high bits of the hash code.
+ * Solutions are appended to their partition by {@link #add(IBindingSet)} and
+ * are indexed by {@link #build(Executor)}, which builds the partitions in
+ * parallel. Each partition is built by a single thread, so the build does not
+ * take any locks. Once built, the index is safe for concurrent readers.
+ * <p>
+ * A chunk of probes may be joined using
+ * {@link #probe(IBindingSet[], Executor, IJoinVisitor[], List)}. The probes
+ * are partitioned on the same hash bits as the index (radix partitioning), so
+ * each partition of the index is probed by a single thread with its own
+ * visitor and the partitions are probed in parallel.
+ * <p>
+ * Note: {@link #add(IBindingSet)} and {@link #build(Executor)} are not thread
+ * safe and must not run concurrently with a reader.
+ *
+ * @see JVMPrimitiveHashJoinUtility
+ */
+public class JVMPrimitiveHashIndex {
+
+    private static final Logger log = Logger
+            .getLogger(JVMPrimitiveHashIndex.class);
+
+    /**
+     * The tag for an as-bound value which can not be represented by this
+     * index.
+     */
+    static final int NO_KEY = 0;
+
+    /**
+     * The tag for a {@link TermId}.
+     */
+    private static final int TERM_ID = 1;
+
+    /**
+     * The log2 of the #of partitions.
+     */
+    private static final int PARTITION_BITS = 4;
+
+    /**
+     * The #of partitions.
+     */
+    static final int NPARTITIONS = 1 << PARTITION_BITS;
+
+    /**
+     * The minimum #of solutions to be indexed before the partitions are built
+     * in parallel.
+     */
+    private static final int MIN_PARALLEL_BUILD = 10000;
+
+    /**
+     * The minimum #of probes in a chunk before the partitions are probed in
+     * parallel.
+     */
+    static final int MIN_PARALLEL_PROBE = 1000;
+
+    /**
+     * The initial capacity of the arrays for a partition.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Return the tag for an as-bound value -or- {@link #NO_KEY} if the value
+     * can not be represented by this index.
+     */
+    static int tagOf(final IConstant<?> c) {
+
+        if (c == null)
+            return NO_KEY;
+
+        final Object v = c.get();
+
+        if (v instanceof TermId) {
+
+            // Note: A NULL TermId is only equal to another by its value.
+            return ((TermId<?>) v).getTermId() == TermId.NULL ? NO_KEY
+                    : TERM_ID;
+
+        }
+
+        if (v != null && v.getClass() == XSDNumericIV.class) {
+
+            final DTE dte = ((XSDNumericIV<?>) v).getDTE();
+
+            switch (dte) {
+            case XSDByte:
+            case XSDShort:
+            case XSDInt:
+            case XSDLong:
+                return 2 + dte.ordinal();
+            default:
+                return NO_KEY;
+            }
+
+        }
+
+        return NO_KEY;
+
+    }
+
+    /**
+     * Return the <code>long</code> for an as-bound value having a tag other
+     * than {@link #NO_KEY}.
+     */
+    static long valueOf(final IConstant<?> c) {
+
+        final Object v = c.get();
+
+        if (v instanceof TermId)
+            return ((TermId<?>) v).getTermId();
+
+        return ((XSDNumericIV<?>) v).longValue();
+
+    }
+
+    /**
+     * Return the hash code for a key.
+     */
+    static long hash(final int tags, final long k0, final long k1) {
+
+        long h = k0 * 0x9E3779B97F4A7C15L + k1;
+
+        h ^= ((long) tags) << 32;
+
+        // fmix64 (MurmurHash3)
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+
+    }
+
+    /**
+     * One partition of the index.
+     */
+    private static class Partition {
+
+        /*
+         * The solutions and their keys (in the order in which they were
+         * added).
+         */
+        IBindingSet[] solutions = new IBindingSet[INITIAL_CAPACITY];
+
+        long[] k0 = new long[INITIAL_CAPACITY];
+
+        long[] k1;
+
+        int[] tags = new int[INITIAL_CAPACITY];
+
+        long[] hashes = new long[INITIAL_CAPACITY];
+
+        /**
+         * The index of the next solution having the same key (-1 for the end
+         * of the chain).
+         */
+        int[] next = new int[INITIAL_CAPACITY];
+
+        /** The #of solutions. */
+        int size = 0;
+
+        /** The #of solutions which have been indexed. */
+        int nindexed = 0;
+
+        /**
+         * The open addressing table. Each slot is either -1 (empty) or the
+         * index of the most recently added solution for a distinct key.
+         */
+        int[] table = newTable(INITIAL_CAPACITY * 2);
+
+        /** The #of distinct keys. */
+        int nkeys = 0;
+
+        Partition(final boolean twoKeys) {
+
+            if (twoKeys)
+                k1 = new long[INITIAL_CAPACITY];
+
+        }
+
+        private static int[] newTable(final int capacity) {
+
+            final int[] a = new int[capacity];
+
+            Arrays.fill(a, -1);
+
+            return a;
+
+        }
+
+        void add(final IBindingSet bset, final int tag, final long v0,
+                final long v1, final long h) {
+
+            if (size == solutions.length) {
+
+                final int n = size << 1;
+
+                solutions = Arrays.copyOf(solutions, n);
+                k0 = Arrays.copyOf(k0, n);
+                if (k1 != null)
+                    k1 = Arrays.copyOf(k1, n);
+                tags = Arrays.copyOf(tags, n);
+                hashes = Arrays.copyOf(hashes, n);
+                next = Arrays.copyOf(next, n);
+
+            }
+
+            solutions[size] = bset;
+            k0[size] = v0;
+            if (k1 != null)
+                k1[size] = v1;
+            tags[size] = tag;
+            hashes[size] = h;
+            size++;
+
+        }
+
+        /**
+         * Index the solutions added since the last build.
+         */
+        void build() {
+
+            for (int i = nindexed; i < size; i++) {
+
+                if ((nkeys + 1) * 2 > table.length)
+                    rehash(table.length << 1);
+
+                final int slot = find(tags[i], k0[i], k1 == null ? 0L : k1[i],
+                        hashes[i]);
+
+                final int head = table[slot];
+
+                if (head == -1) {
+
+                    nkeys++;
+
+                }
+
+                next[i] = head;
+
+                table[slot] = i;
+
+            }
+
+            nindexed = size;
+
+        }
+
+        private void rehash(final int capacity) {
+
+            final int[] old = table;
+
+            table = newTable(capacity);
+
+            final int mask = capacity - 1;
+
+            for (int head : old) {
+
+                if (head == -1)
+                    continue;
+
+                int slot = (int) hashes[head] & mask;
+
+                while (table[slot] != -1)
+                    slot = (slot + 1) & mask;
+
+                table[slot] = head;
+
+            }
+
+        }
+
+        /**
+         * Return the slot for the key (either the slot for that key or the
+         * empty slot at which it would be inserted).
+         */
+        int find(final int tag, final long v0, final long v1, final long h) {
+
+            final int[] table = this.table;
+
+            final int mask = table.length - 1;
+
+            int slot = (int) h & mask;
+
+            while (true) {
+
+                final int i = table[slot];
+
+                if (i == -1)
+                    return slot;
+
+                if (hashes[i] == h && tags[i] == tag && k0[i] == v0
+                        && (k1 == null || k1[i] == v1))
+                    return slot;
+
+                slot = (slot + 1) & mask;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * The join variables (one or two).
+     */
+    private final IVariable<?>[] keyVars;
+
+    private final Partition[] partitions;
+
+    /**
+     * The #of solutions added since the last build.
+     */
+    private int nunindexed = 0;
+
+    /**
+     * @param keyVars
+     *            The variables that are used to form the keys in the hash
+     *            index (one or two variables).
+     */
+    public JVMPrimitiveHashIndex(final IVariable<?>[] keyVars) {
+
+        if (keyVars == null)
+            throw new IllegalArgumentException();
+
+        if (keyVars.length != 1 && keyVars.length != 2)
+            throw new IllegalArgumentException();
+
+        this.keyVars = keyVars;
+
+        this.partitions = new Partition[NPARTITIONS];
+
+        for (int i = 0; i < NPARTITIONS; i++) {
+
+            partitions[i] = new Partition(keyVars.length == 2);
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff the as-bound values of the join variables
+     * for the solution may be represented by this index.
+     */
+    public boolean accepts(final IBindingSet bset) {
+
+        for (IVariable<?> v : keyVars) {
+
+            if (tagOf(bset.get(v)) == NO_KEY)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Add the solution to the index. The solution is not visible to
+     * {@link #probe(IBindingSet, ISolutionVisitor)} until the index is
+     * {@link #build(Executor) built}.
+     *
+     * @return <code>true</code> iff the solution was added and
+     *         <code>false</code> iff the as-bound values of the join variables
+     *         can not be represented by this index.
+     */
+    public boolean add(final IBindingSet bset) {
+
+        final IConstant<?> c0 = bset.get(keyVars[0]);
+
+        final int tag0 = tagOf(c0);
+
+        if (tag0 == NO_KEY)
+            return false;
+
+        int tags = tag0;
+
+        final long v0 = valueOf(c0);
+
+        long v1 = 0L;
+
+        if (keyVars.length == 2) {
+
+            final IConstant<?> c1 = bset.get(keyVars[1]);
+
+            final int tag1 = tagOf(c1);
+
+            if (tag1 == NO_KEY)
+                return false;
+
+            tags |= tag1 << 8;
+
+            v1 = valueOf(c1);
+
+        }
+
+        final long h = hash(tags, v0, v1);
+
+        partitions[(int) (h >>> (64 - PARTITION_BITS))].add(bset, tags, v0,
+                v1, h);
+
+        nunindexed++;
+
+        return true;
+
+    }
+
+    /**
+     * Index the solutions added since the last build. When there are enough
+     * such solutions and an {@link Executor} is given, the partitions are
+     * built in parallel. The caller runs any partition which has not been
+     * started by the {@link Executor}, so this does not depend on the
+     * availability of threads in the {@link Executor}.
+     *
+     * @param executor
+     *            The {@link Executor} used to build the partitions in parallel
+     *            (optional).
+     */
+    public void build(final Executor executor) {
+
+        if (nunindexed == 0)
+            return;
+
+        if (executor == null || nunindexed < MIN_PARALLEL_BUILD) {
+
+            for (Partition p : partitions)
+                p.build();
+
+        } else {
+
+            final FutureTask<?>[] tasks = new FutureTask<?>[NPARTITIONS];
+
+            for (int i = 0; i < NPARTITIONS; i++) {
+
+                final Partition p = partitions[i];
+
+                tasks[i] = new FutureTask<Void>(new Runnable() {
+                    @Override
+                    public void run() {
+                        p.build();
+                    }
+                }, null);
+
+            }
+
+            runAll(executor, tasks);
+
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("Indexed " + nunindexed + " solutions: size=" + size()
+                    + ", keyCount=" + keyCount());
+
+        nunindexed = 0;
+
+    }
+
+    /**
+     * Run the tasks on the {@link Executor} (if given) and wait for them. The
+     * caller runs any task which has not been started by the {@link Executor},
+     * so this does not depend on the availability of threads in the
+     * {@link Executor}. The tasks are cancelled if any task fails.
+     * <p>
+     * Note: <code>null</code> elements of the array are ignored.
+     */
+    private static void runAll(final Executor executor,
+            final FutureTask<?>[] tasks) {
+
+        try {
+
+            for (FutureTask<?> t : tasks) {
+
+                if (t != null && executor != null)
+                    executor.execute(t);
+
+            }
+
+            for (FutureTask<?> t : tasks) {
+
+                // NOP if the task was started by the executor.
+                if (t != null)
+                    t.run();
+
+            }
+
+            for (FutureTask<?> t : tasks) {
+
+                if (t != null)
+                    t.get();
+
+            }
+
+        } catch (Exception ex) {
+
+            for (FutureTask<?> t : tasks) {
+
+                if (t != null)
+                    t.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+            throw new RuntimeException(ex);
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff all solutions have been indexed.
+     */
+    public boolean isBuilt() {
+
+        return nunindexed == 0;
+
+    }
+
+    /**
+     * Visitor for the solutions having the same key.
+     */
+    public interface ISolutionVisitor {
+
+        /**
+         * Visit a solution.
+         */
+        void visit(IBindingSet right);
+
+    }
+
+    /**
+     * Visitor for the join of a probe with the solutions having the same key.
+     */
+    public interface IJoinVisitor {
+
+        /**
+         * Visit an indexed solution having the same key as the probe.
+         */
+        void visit(IBindingSet left, IBindingSet right);
+
+    }
+
+    /**
+     * Visit the indexed solutions having the same as-bound values for the join
+     * variables as the given solution.
+     *
+     * @param left
+     *            The probe (its as-bound values must be accepted by
+     *            {@link #accepts(IBindingSet)}).
+     * @param visitor
+     *            The visitor.
+     *
+     * @return The #of solutions visited.
+     */
+    public int probe(final IBindingSet left, final ISolutionVisitor visitor) {
+
+        final IConstant<?> c0 = left.get(keyVars[0]);
+
+        int tags = tagOf(c0);
+
+        final long v0 = valueOf(c0);
+
+        long v1 = 0L;
+
+        if (keyVars.length == 2) {
+
+            final IConstant<?> c1 = left.get(keyVars[1]);
+
+            tags |= tagOf(c1) << 8;
+
+            v1 = valueOf(c1);
+
+        }
+
+        final long h = hash(tags, v0, v1);
+
+        final Partition p = partitions[(int) (h >>> (64 - PARTITION_BITS))];
+
+        int i = p.table[p.find(tags, v0, v1, h)];
+
+        int n = 0;
+
+        while (i != -1) {
+
+            visitor.visit(p.solutions[i]);
+
+            n++;
+
+            i = p.next[i];
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Join a chunk of probes with the indexed solutions having the same
+     * as-bound values for the join variables. The probes are partitioned on
+     * the hash bits which select the partition of the index. When there are
+     * enough probes and an {@link Executor} is given, the partitions are
+     * probed in parallel. The probes for a partition are visited in the order
+     * in which they appear in the chunk.
+     *
+     * @param left
+     *            The probes.
+     * @param executor
+     *            The {@link Executor} used to probe the partitions in parallel
+     *            (optional).
+     * @param visitors
+     *            One visitor for each partition (the length of the array is
+     *            {@link #NPARTITIONS}). A visitor is only invoked by the thread
+     *            which probes its partition.
+     * @param rejected
+     *            The probes which are not {@link #accepts(IBindingSet)
+     *            accepted} by this index are added to this list.
+     *
+     * @return The #of indexed solutions visited.
+     */
+    public long probe(final IBindingSet[] left, final Executor executor,
+            final IJoinVisitor[] visitors, final List<IBindingSet> rejected) {
+
+        if (visitors.length != NPARTITIONS)
+            throw new IllegalArgumentException();
+
+        final int n = left.length;
+
+        final boolean twoKeys = keyVars.length == 2;
+
+        final int[] tags = new int[n];
+        final long[] v0 = new long[n];
+        final long[] v1 = twoKeys ? new long[n] : null;
+        final long[] hashes = new long[n];
+
+        // The #of probes for each partition, then the offset of the first.
+        final int[] offsets = new int[NPARTITIONS + 1];
+
+        for (int i = 0; i < n; i++) {
+
+            final IConstant<?> c0 = left[i].get(keyVars[0]);
+
+            int tag = tagOf(c0);
+
+            IConstant<?> c1 = null;
+
+            if (tag != NO_KEY && twoKeys) {
+
+                c1 = left[i].get(keyVars[1]);
+
+                final int tag1 = tagOf(c1);
+
+                tag = tag1 == NO_KEY ? NO_KEY : tag | (tag1 << 8);
+
+            }
+
+            if (tag == NO_KEY) {
+
+                rejected.add(left[i]);
+
+                continue;
+
+            }
+
+            tags[i] = tag;
+            v0[i] = valueOf(c0);
+            if (twoKeys)
+                v1[i] = valueOf(c1);
+            hashes[i] = hash(tag, v0[i], twoKeys ? v1[i] : 0L);
+
+            offsets[(int) (hashes[i] >>> (64 - PARTITION_BITS)) + 1]++;
+
+        }
+
+        for (int i = 0; i < NPARTITIONS; i++)
+            offsets[i + 1] += offsets[i];
+
+        final int naccepted = offsets[NPARTITIONS];
+
+        // The probes grouped by partition (a stable counting sort).
+        final int[] order = new int[naccepted];
+        {
+            final int[] pos = Arrays.copyOf(offsets, NPARTITIONS);
+
+            for (int i = 0; i < n; i++) {
+
+                if (tags[i] == NO_KEY)
+                    continue;
+
+                order[pos[(int) (hashes[i] >>> (64 - PARTITION_BITS))]++] = i;
+
+            }
+        }
+
+        // The #of indexed solutions visited for each partition.
+        final long[] nvisited = new long[NPARTITIONS];
+
+        final FutureTask<?>[] tasks = new FutureTask<?>[NPARTITIONS];
+
+        for (int j = 0; j < NPARTITIONS; j++) {
+
+            if (offsets[j] == offsets[j + 1])
+                continue;
+
+            final int pid = j;
+
+            tasks[j] = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+
+                    final Partition p = partitions[pid];
+
+                    final IJoinVisitor visitor = visitors[pid];
+
+                    long nv = 0;
+
+                    for (int k = offsets[pid]; k < offsets[pid + 1]; k++) {
+
+                        final int i = order[k];
+
+                        int r = p.table[p.find(tags[i], v0[i],
+                                twoKeys ? v1[i] : 0L, hashes[i])];
+
+                        while (r != -1) {
+
+                            visitor.visit(left[i], p.solutions[r]);
+
+                            nv++;
+
+                            r = p.next[r];
+
+                        }
+
+                    }
+
+                    nvisited[pid] = nv;
+
+                }
+            }, null);
+
+        }
+
+        runAll(naccepted < MIN_PARALLEL_PROBE ? null : executor, tasks);
+
+        long nv = 0;
+
+        for (long x : nvisited)
+            nv += x;
+
+        return nv;
+
+    }
+
+    /**
+     * Visit all solutions in the index (including any which have not been
+     * indexed), in the order in which they were added to each partition.
+     */
+    public void scan(final ISolutionVisitor visitor) {
+
+        for (Partition p : partitions) {
+
+            for (int i = 0; i < p.size; i++) {
+
+                visitor.visit(p.solutions[i]);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * The #of solutions in the index.
+     */
+    public long size() {
+
+        long n = 0;
+
+        for (Partition p : partitions)
+            n += p.size;
+
+        return n;
+
+    }
+
+    /**
+     * The #of distinct keys which have been indexed.
+     */
+    public long keyCount() {
+
+        long n = 0;
+
+        for (Partition p : partitions)
+            n += p.nkeys;
+
+        return n;
+
+    }
+
+}
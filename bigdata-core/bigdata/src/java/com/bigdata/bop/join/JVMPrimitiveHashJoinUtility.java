@@ -0,0 +1,567 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.join.JVMHashIndex.Bucket;
+import com.bigdata.bop.join.JVMHashIndex.SolutionHit;
+import com.bigdata.relation.accesspath.IBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A {@link JVMHashJoinUtility} for a {@link JoinTypeEnum#Normal} join on one or
+ * two join variables whose as-bound values are typically
+ * {@link com.bigdata.rdf.internal.impl.TermId}s or inline integral values. The solutions having such keys are indexed by a
+ * {@link JVMPrimitiveHashIndex}, which avoids the per-solution objects and the
+ * boxed keys of the {@link JVMHashIndex} and builds its partitions in parallel.
+ * Solutions whose keys can not be represented that way are indexed by the
+ * {@link JVMHashIndex} of the base class. The two indices can not have
+ * solutions which join with one another, so a probe is directed to exactly one
+ * of them.
+ * <p>
+ * {@link #acceptSolutions(ICloseableIterator, BOpStats)} and
+ * {@link #hashJoin2(ICloseableIterator, BOpStats, IBuffer, IConstraint[])} are
+ * specialized. The other operations (index scans, merge joins, etc.) use the
+ * {@link JVMHashIndex}, so the solutions in the {@link JVMPrimitiveHashIndex}
+ * are moved into the {@link JVMHashIndex} the first time one of those
+ * operations is used (see {@link #getRightSolutions()}).
+ * <p>
+ * Large chunks of left solutions are joined using a radix-partitioned probe:
+ * the chunk is partitioned on the same hash bits as the
+ * {@link JVMPrimitiveHashIndex} and the partitions are probed in parallel on
+ * the query's {@link Executor}. Each partition buffers its joined solutions,
+ * which are written onto the output buffer by the caller's thread once the
+ * chunk is done, since the output buffer is not thread safe.
+ *
+ * @see JVMPrimitiveHashIndex
+ */
+public class JVMPrimitiveHashJoinUtility extends JVMHashJoinUtility {
+
+    private static final Logger log = Logger
+            .getLogger(JVMPrimitiveHashJoinUtility.class);
+
+    /**
+     * Singleton {@link IHashJoinUtilityFactory} that can be used to create a
+     * new {@link JVMPrimitiveHashJoinUtility}. A {@link JVMHashJoinUtility} is
+     * returned instead if the join is not a {@link JoinTypeEnum#Normal} join
+     * on one or two join variables.
+     */
+    static public final IHashJoinUtilityFactory factory =
+            new IHashJoinUtilityFactory() {
+
+        private static final long serialVersionUID = 1L;
+
+        public IHashJoinUtility create(//
+                final BOpContext<IBindingSet> context,//
+                final INamedSolutionSetRef namedSetRef,//
+                final PipelineOp op,//
+                final JoinTypeEnum joinType//
+                ) {
+
+            if (isSupported(op, joinType)) {
+
+                return new JVMPrimitiveHashJoinUtility(op, joinType,
+                        context == null ? null : context.getExecutorService());
+
+            }
+
+            return new JVMHashJoinUtility(op, joinType);
+
+        }
+    };
+
+    /**
+     * Return <code>true</code> iff the join is supported by this class.
+     */
+    static boolean isSupported(final PipelineOp op, final JoinTypeEnum joinType) {
+
+        if (joinType != JoinTypeEnum.Normal)
+            return false;
+
+        final Object[] joinVars = (Object[]) op
+                .getRequiredProperty(HashJoinAnnotations.JOIN_VARS);
+
+        return joinVars.length == 1 || joinVars.length == 2;
+
+    }
+
+    /**
+     * The {@link Executor} used to build the {@link JVMPrimitiveHashIndex}
+     * (optional).
+     */
+    private final Executor executor;
+
+    /**
+     * The index for the solutions whose keys are primitives -or-
+     * <code>null</code> once those solutions have been moved into the
+     * {@link JVMHashIndex} or the state was released.
+     */
+    private volatile JVMPrimitiveHashIndex primitiveIndex;
+
+    /**
+     * <code>true</code> iff all solutions added to the
+     * {@link #primitiveIndex} are indexed.
+     */
+    private volatile boolean built = true;
+
+    /**
+     * @param op
+     *            The operator whose annotation will inform construction the
+     *            hash index.
+     * @param joinType
+     *            The type of join to be performed (must be
+     *            {@link JoinTypeEnum#Normal}).
+     * @param executor
+     *            The {@link Executor} used to build the partitions of the hash
+     *            index in parallel (optional).
+     */
+    public JVMPrimitiveHashJoinUtility(final PipelineOp op,
+            final JoinTypeEnum joinType, final Executor executor) {
+
+        super(op, joinType);
+
+        if (!isSupported(op, joinType))
+            throw new IllegalArgumentException();
+
+        this.executor = executor;
+
+        this.primitiveIndex = new JVMPrimitiveHashIndex(joinVars);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: Any solutions in the {@link JVMPrimitiveHashIndex} are moved into
+     * the {@link JVMHashIndex}, which is used by all operations other than
+     * {@link #acceptSolutions(ICloseableIterator, BOpStats)} and
+     * {@link #hashJoin2(ICloseableIterator, BOpStats, IBuffer, IConstraint[])}
+     * from then on.
+     */
+    @Override
+    protected JVMHashIndex getRightSolutions() {
+
+        if (primitiveIndex != null)
+            spill();
+
+        return super.getRightSolutions();
+
+    }
+
+    /**
+     * Move the solutions in the {@link JVMPrimitiveHashIndex} into the
+     * {@link JVMHashIndex}.
+     */
+    private synchronized void spill() {
+
+        final JVMPrimitiveHashIndex index = primitiveIndex;
+
+        if (index == null)
+            return;
+
+        final JVMHashIndex rightSolutions = rightSolutionsRef.get();
+
+        if (rightSolutions != null) {
+
+            if (log.isInfoEnabled())
+                log.info("Moving " + index.size()
+                        + " solutions into the JVMHashIndex");
+
+            index.scan(new JVMPrimitiveHashIndex.ISolutionVisitor() {
+                @Override
+                public void visit(final IBindingSet right) {
+                    rightSolutions.add(right);
+                }
+            });
+
+        }
+
+        primitiveIndex = null;
+
+    }
+
+    /**
+     * Index any solutions added since the last build.
+     */
+    private synchronized void build() {
+
+        final JVMPrimitiveHashIndex index = primitiveIndex;
+
+        if (index != null && !built) {
+
+            index.build(executor);
+
+            built = true;
+
+        }
+
+    }
+
+    @Override
+    public void release() {
+
+        primitiveIndex = null;
+
+        super.release();
+
+    }
+
+    @Override
+    public long acceptSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats) {
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        try {
+
+            final JVMHashIndex rightSolutions = rightSolutionsRef.get();
+
+            final IBindingSet[] all = BOpUtility.toArray(itr, stats);
+
+            if (log.isDebugEnabled())
+                log.debug("Materialized: " + all.length + " source solutions.");
+
+            long naccepted = 0;
+
+            synchronized (this) {
+
+                final JVMPrimitiveHashIndex index = primitiveIndex;
+
+                for (IBindingSet bset : all) {
+
+                    if (index != null && index.add(bset)) {
+
+                        naccepted++;
+
+                        continue;
+
+                    }
+
+                    if (rightSolutions.add(bset) != null) {
+
+                        naccepted++;
+
+                    }
+
+                }
+
+                if (index != null && !index.isBuilt())
+                    built = false;
+
+            }
+
+            rightSolutionCount.add(naccepted);
+
+            return naccepted;
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        }
+
+    }
+
+    /**
+     * Joins a left solution with the right solutions visited by a probe of the
+     * {@link JVMPrimitiveHashIndex}.
+     */
+    private class JoinVisitor implements
+            JVMPrimitiveHashIndex.ISolutionVisitor {
+
+        private final IBuffer<IBindingSet> outputBuffer;
+
+        private final IConstraint[] constraints;
+
+        private IBindingSet left;
+
+        JoinVisitor(final IBuffer<IBindingSet> outputBuffer,
+                final IConstraint[] constraints) {
+
+            this.outputBuffer = outputBuffer;
+
+            this.constraints = constraints;
+
+        }
+
+        @Override
+        public void visit(final IBindingSet right) {
+
+            // See if the solutions join.
+            final IBindingSet outSolution = BOpContext.bind(//
+                    right,//
+                    left,//
+                    constraints,//
+                    selectVars//
+                    );
+
+            if (outSolution != null) {
+
+                // Output the solution.
+                outputSolution(outputBuffer, outSolution);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Joins the left solutions with the right solutions for one partition of
+     * a radix-partitioned probe of the {@link JVMPrimitiveHashIndex}, buffering
+     * the joined solutions.
+     */
+    private class PartitionJoinVisitor implements
+            JVMPrimitiveHashIndex.IJoinVisitor {
+
+        private final IConstraint[] constraints;
+
+        /**
+         * The joined solutions.
+         */
+        private final List<IBindingSet> out = new ArrayList<IBindingSet>();
+
+        PartitionJoinVisitor(final IConstraint[] constraints) {
+
+            this.constraints = constraints;
+
+        }
+
+        @Override
+        public void visit(final IBindingSet left, final IBindingSet right) {
+
+            // See if the solutions join.
+            final IBindingSet outSolution = BOpContext.bind(//
+                    right,//
+                    left,//
+                    constraints,//
+                    selectVars//
+                    );
+
+            if (outSolution != null) {
+
+                out.add(outSolution);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Join a left solution with the right solutions in the
+     * {@link JVMHashIndex}.
+     */
+    private void joinBucket(final JVMHashIndex rightSolutions,
+            final IBindingSet left, final IBuffer<IBindingSet> outputBuffer,
+            final IConstraint[] constraints) {
+
+        final Bucket bucket = rightSolutions.getBucket(left);
+
+        if (bucket == null)
+            return;
+
+        final Iterator<SolutionHit> ritr = bucket.iterator();
+
+        while (ritr.hasNext()) {
+
+            final SolutionHit right = ritr.next();
+
+            nrightConsidered.increment();
+
+            nJoinsConsidered.increment();
+
+            // See if the solutions join.
+            final IBindingSet outSolution = BOpContext.bind(//
+                    right.solution,//
+                    left,//
+                    constraints,//
+                    selectVars//
+                    );
+
+            if (outSolution != null) {
+
+                // Output the solution.
+                outputSolution(outputBuffer, outSolution);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Join a chunk of left solutions using a radix-partitioned probe of the
+     * {@link JVMPrimitiveHashIndex}.
+     */
+    private void joinChunk(final JVMPrimitiveHashIndex index,
+            final JVMHashIndex rightSolutions, final IBindingSet[] leftChunk,
+            final IBuffer<IBindingSet> outputBuffer,
+            final IConstraint[] constraints) {
+
+        final PartitionJoinVisitor[] visitors = new PartitionJoinVisitor[JVMPrimitiveHashIndex.NPARTITIONS];
+
+        for (int i = 0; i < visitors.length; i++) {
+
+            visitors[i] = new PartitionJoinVisitor(constraints);
+
+        }
+
+        final List<IBindingSet> rejected = new ArrayList<IBindingSet>();
+
+        final long n = index.probe(leftChunk, executor, visitors, rejected);
+
+        nrightConsidered.add(n);
+
+        nJoinsConsidered.add(n);
+
+        for (PartitionJoinVisitor v : visitors) {
+
+            for (IBindingSet outSolution : v.out) {
+
+                // Output the solution.
+                outputSolution(outputBuffer, outSolution);
+
+            }
+
+        }
+
+        for (IBindingSet left : rejected) {
+
+            joinBucket(rightSolutions, left, outputBuffer, constraints);
+
+        }
+
+    }
+
+    @Override
+    public void hashJoin2(//
+            final ICloseableIterator<IBindingSet[]> leftItr,//
+            final BOpStats stats,
+            final IBuffer<IBindingSet> outputBuffer,//
+            final IConstraint[] constraints//
+            ) {
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        if (!built)
+            build();
+
+        final JVMPrimitiveHashIndex index = primitiveIndex;
+
+        if (index == null) {
+
+            // The solutions were moved into the JVMHashIndex.
+            super.hashJoin2(leftItr, stats, outputBuffer, constraints);
+
+            return;
+
+        }
+
+        final JVMHashIndex rightSolutions = rightSolutionsRef.get();
+
+        if (log.isInfoEnabled()) {
+            log.info("rightSolutions: #keys=" + index.keyCount()
+                    + ",#buckets=" + rightSolutions.bucketCount()
+                    + ",#solutions=" + getRightSolutionCount());
+        }
+
+        final JoinVisitor visitor = new JoinVisitor(outputBuffer, constraints);
+
+        try {
+
+            while (leftItr.hasNext()) {
+
+                // Next chunk of solutions from left.
+                final IBindingSet[] leftChunk = leftItr.next();
+                if (stats != null) {
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(leftChunk.length);
+                }
+
+                if (executor != null
+                        && leftChunk.length >= JVMPrimitiveHashIndex.MIN_PARALLEL_PROBE) {
+
+                    nleftConsidered.add(leftChunk.length);
+
+                    joinChunk(index, rightSolutions, leftChunk, outputBuffer,
+                            constraints);
+
+                    continue;
+
+                }
+
+                for (IBindingSet left : leftChunk) {
+
+                    nleftConsidered.increment();
+
+                    if (index.accepts(left)) {
+
+                        visitor.left = left;
+
+                        final int n = index.probe(left, visitor);
+
+                        nrightConsidered.add(n);
+
+                        nJoinsConsidered.add(n);
+
+                        continue;
+
+                    }
+
+                    joinBucket(rightSolutions, left, outputBuffer, constraints);
+
+                }
+
+            }
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        } finally {
+
+            leftItr.close();
+
+        }
+
+    }
+
+}
@@ -55,8 +55,11 @@ import com.bigdata.bop.IShardwisePipelineOp;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
 import com.bigdata.bop.engine.AbstractRunningQuery;
 import com.bigdata.bop.engine.QueryTimeoutException;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.MultiRangeCursor;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.concurrent.FutureTaskMon;
 import com.bigdata.relation.IRelation;
@@ -258,7 +261,65 @@ public class PipelineJoin<E> extends PipelineOp implements
            (PipelineJoin.class.getName() + ".numTasksPerThread").intern();
         
         public int DEFAULT_NUM_TASKS_PER_THREAD = 1;
+
+        /**
+         * The maximum number of cells into which a search range is decomposed.
+         * Cells are aligned with the z-order encoding of the index, so each
+         * cell is scanned as a tight key range, cells outside of the search
+         * region are skipped, and only the cells crossing the border of the
+         * search region need to be filtered exactly. The cells are then
+         * partitioned into tasks subject to {@link #NUM_TASKS_PER_THREAD} and
+         * {@link #MIN_DATAPOINTS_PER_TASK}.
+         * 
+         * Currently only implemented for the geospatial feature. A value of 0
+         * or 1 disables the decomposition. The decomposition is disabled by
+         * default and may be enabled for a query using a query hint of the
+         * same name.
+         */
+        public String CELL_BUDGET = 
+           (PipelineJoin.class.getName() + ".cellBudget").intern();
         
+        public int DEFAULT_CELL_BUDGET = 0;
+        
+        /**
+         * The named solution sets (an {@link INamedSolutionSetRef}[]) with
+         * which the solutions produced by this join will later be joined
+         * (optional). When a {@link SolutionSetBloomFilter} was built for such
+         * a named solution set, it is layered onto the access path so that
+         * elements which can not join with that named solution set are
+         * rejected when the index is scanned.
+         * 
+         * @see SolutionSetBloomFilter
+         */
+        String SEMI_JOIN_FILTERS = (PipelineJoin.class.getName() + ".semiJoinFilters")
+                .intern();
+
+        /**
+         * When <code>true</code>, the distinct as-bound access paths for a
+         * chunk of source solutions are read in ascending key order using a
+         * single {@link MultiRangeCursor} per index rather than an independent
+         * iterator per access path (default
+         * {@value #DEFAULT_MULTI_RANGE_SCAN}). This is a sideways information
+         * passing strategy: the bindings for the join variables in the chunk
+         * become a sorted set of keys and the cursor only seeks when the next
+         * key range starts after the last tuple read. It is most effective
+         * when a selective join produces many solutions whose as-bound access
+         * paths are small and dense in the index of a large join which
+         * follows it.
+         * <p>
+         * Note: This option has no effect unless {@link #REORDER_ACCESS_PATHS}
+         * is <code>true</code>. The access paths of a chunk are then read
+         * sequentially in the caller's thread, so this option takes precedence
+         * over {@link #MAX_PARALLEL_CHUNKS}. Access paths which are too large
+         * to be fully buffered are read using their own iterator.
+         * 
+         * @see AccessPath#iterator(long, MultiRangeCursor)
+         */
+        String MULTI_RANGE_SCAN = (PipelineJoin.class.getName() + ".multiRangeScan")
+                .intern();
+
+        boolean DEFAULT_MULTI_RANGE_SCAN = false;
+
 
 	}
 
@@ -480,6 +541,14 @@ public class PipelineJoin<E> extends PipelineOp implements
          */
 		final private boolean reorderAccessPaths;
 
+        /**
+         * When <code>true</code>, the access paths for a chunk are read using
+         * a shared cursor for each index.
+         * 
+         * @see Annotations#MULTI_RANGE_SCAN
+         */
+        final private boolean multiRangeScan;
+
 		/**
 		 * Used to enforce the {@link Annotations#LIMIT} iff one is specified.
 		 */
@@ -553,7 +622,10 @@ public class PipelineJoin<E> extends PipelineOp implements
 				throw new IllegalArgumentException();
 
 			this.joinOp = joinOp;
-			this.predicate = joinOp.getPredicate();
+			this.predicate = SolutionSetBloomFilter.addSemiJoinFilters(
+					context, joinOp.getPredicate(),
+					(INamedSolutionSetRef[]) joinOp
+							.getProperty(Annotations.SEMI_JOIN_FILTERS));
 			this.constraints = joinOp.constraints();
 			this.maxParallelChunks = joinOp.getMaxParallelChunks();
 			if (maxParallelChunks < 0)
@@ -584,6 +656,9 @@ public class PipelineJoin<E> extends PipelineOp implements
             this.reorderAccessPaths = joinOp.getProperty(
                     Annotations.REORDER_ACCESS_PATHS,
                     Annotations.DEFAULT_REORDER_ACCESS_PATHS);
+            this.multiRangeScan = reorderAccessPaths
+                    && joinOp.getProperty(Annotations.MULTI_RANGE_SCAN,
+                            Annotations.DEFAULT_MULTI_RANGE_SCAN);
 
 			this.threadLocalBufferFactory = new TLBFactory(sink);
 
@@ -1009,6 +1084,18 @@ public class PipelineJoin<E> extends PipelineOp implements
                     if (reorderAccessPaths)
                         reorderTasks(tasks);
 
+                    if (multiRangeScan) {
+
+                        /*
+                         * Execute the tasks in key order in the caller's
+                         * thread using a shared cursor for each index.
+                         */
+                        executeTasksWithSharedCursors(tasks);
+
+                        return null;
+
+                    }
+
 					/*
 					 * Execute the tasks (either in the caller's thread or on
 					 * the supplied service).
@@ -1369,6 +1456,66 @@ public class PipelineJoin<E> extends PipelineOp implements
 
          }
 
+            /**
+             * Execute the tasks in the caller's thread in the given order. The
+             * tasks for the same index share a {@link MultiRangeCursor}, so
+             * the index is read by a single cursor which only seeks when the
+             * next access path starts after the last tuple read.
+             * 
+             * @param tasks
+             *            The tasks (in ascending <i>fromKey</i> order).
+             * 
+             * @see Annotations#MULTI_RANGE_SCAN
+             */
+            @SuppressWarnings("unchecked")
+            protected void executeTasksWithSharedCursors(
+                    final AccessPathTask[] tasks) throws Exception {
+
+                final Map<IIndex, MultiRangeCursor<E>> cursors = new HashMap<IIndex, MultiRangeCursor<E>>();
+
+                for (AccessPathTask task : tasks) {
+
+                    halted();
+
+                    if (task.accessPath instanceof AccessPath<?>
+                            && !(task.accessPath.getPredicate() instanceof IStarJoin<?>)) {
+
+                        final AccessPath<E> ap = (AccessPath<E>) task.accessPath;
+
+                        final IIndex ndx = ap.getIndex();
+
+                        MultiRangeCursor<E> cursor = cursors.get(ndx);
+
+                        if (cursor == null && !cursors.containsKey(ndx)) {
+
+                            // Note: null if the index does not support this.
+                            cursor = ap.newMultiRangeCursor();
+
+                            cursors.put(ndx, cursor);
+
+                        }
+
+                        task.cursor = cursor;
+
+                    }
+
+                    task.call();
+
+                }
+
+                for (MultiRangeCursor<E> cursor : cursors.values()) {
+
+                    if (cursor == null)
+                        continue;
+
+                    stats.multiRangeCount.add(cursor.getRangeCount());
+
+                    stats.multiRangeSeekCount.add(cursor.getSeekCount());
+
+                }
+
+            }
+
 			/**
 			 * Either execute the tasks in the caller's thread or schedule them
 			 * for execution on the supplied service.
@@ -1507,6 +1654,15 @@ public class PipelineJoin<E> extends PipelineOp implements
 			 */
 			final private IAccessPath<E> accessPath;
 
+            /**
+             * The cursor shared with the other access paths for the same index
+             * -or- <code>null</code> if the {@link #accessPath} is read using
+             * its own iterator.
+             * 
+             * @see Annotations#MULTI_RANGE_SCAN
+             */
+            private MultiRangeCursor<E> cursor = null;
+
 			            /**
              * Return the <em>fromKey</em> for the {@link IAccessPath} generated
              * from the {@link IBindingSet} for this task.
@@ -1820,8 +1976,10 @@ public class PipelineJoin<E> extends PipelineOp implements
             			IPredicate.Annotations.DEFAULT_CUTOFF_LIMIT);
             	
                 // Obtain the iterator for the current join dimension.
-                final ICloseableIterator<IBindingSet[]> itr = ((IBindingSetAccessPath<?>) accessPath)
-                      .solutions(context, cutoffLimit, stats);
+                final ICloseableIterator<IBindingSet[]> itr = cursor != null ? ((AccessPath<E>) accessPath)
+                        .solutions(context, cutoffLimit, cursor, stats)
+                        : ((IBindingSetAccessPath<?>) accessPath).solutions(
+                                context, cutoffLimit, stats);
 
                 try {
 
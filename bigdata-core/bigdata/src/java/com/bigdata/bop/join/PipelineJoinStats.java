@@ -63,6 +63,21 @@ public class PipelineJoinStats extends BaseJoinStats {
      */
     public final CAT outputSolutions = new CAT();
 
+    /**
+     * The #of access paths which were read using a shared cursor.
+     * 
+     * @see Annotations#MULTI_RANGE_SCAN
+     */
+    public final CAT multiRangeCount = new CAT();
+
+    /**
+     * The #of access paths read using a shared cursor for which the cursor had
+     * to seek. The other access paths were read by continuing the scan.
+     * 
+     * @see Annotations#MULTI_RANGE_SCAN
+     */
+    public final CAT multiRangeSeekCount = new CAT();
+
     /**
      * The estimated join hit ratio. This is computed as
      * 
@@ -128,6 +143,10 @@ public class PipelineJoinStats extends BaseJoinStats {
 
 			outputSolutions.add(t.outputSolutions.get());
 
+			multiRangeCount.add(t.multiRangeCount.get());
+
+			multiRangeSeekCount.add(t.multiRangeSeekCount.get());
+
 			// if (t.fanIn > this.fanIn) {
 			// // maximum reported fanIn for this join dimension.
 			// this.fanIn = t.fanIn;
@@ -146,6 +165,8 @@ public class PipelineJoinStats extends BaseJoinStats {
 		sb.append(",inputSolutions=" + inputSolutions.get());
 		sb.append(",outputSolutions=" + outputSolutions.get());
 		sb.append(",joinHitRatio=" + getJoinHitRatio());
+		sb.append(",multiRangeCount=" + multiRangeCount.get());
+		sb.append(",multiRangeSeekCount=" + multiRangeSeekCount.get());
 	}
 
 }
@@ -0,0 +1,619 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.join;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IElement;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.btree.BloomFilter;
+import com.bigdata.relation.accesspath.ElementFilter;
+import com.bigdata.relation.accesspath.IElementFilter;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A {@link BloomFilter} for each join variable of a named solution set, used
+ * for a semi-join reduction of the access paths whose solutions will be joined
+ * with that named solution set.
+ * <p>
+ * The filters are built once the named solution set is complete (see
+ * {@link #publish(IQueryAttributes, INamedSolutionSetRef, IHashJoinUtility)})
+ * and are attached to the {@link IQueryAttributes} of the query. A join which
+ * reads an access path whose solutions will later be joined with the named
+ * solution set layers an {@link IElementFilter} onto its {@link IPredicate}
+ * (see {@link #addSemiJoinFilters(BOpContext, IPredicate, INamedSolutionSetRef[])}).
+ * That filter rejects the elements whose value for a join variable is not in
+ * the named solution set before any solution is formed for that element.
+ * <p>
+ * This is only correct when every solution having a join variable bound to a
+ * value which does not appear in the named solution set is eliminated by the
+ * join with the named solution set. Therefore the filter for a join variable is
+ * dropped if that variable is not bound in some solution of the named solution
+ * set, and the query planner must only request the filter for the access paths
+ * of required joins in the same group as the join with the named solution set.
+ * <p>
+ * The filters are keyed by the hash code of the values, which is consistent
+ * with equality for the values used by the hash indices. The filter is dropped
+ * when the named solution set is too large and disables itself when it is not
+ * selective, i.e., when it rejects less than {@link #MIN_REJECTION_RATE} of the
+ * first {@link #MIN_SAMPLE_SIZE} elements tested.
+ *
+ * @see com.bigdata.bop.controller.NamedSetAnnotations#BLOOM_FILTER
+ * @see PipelineJoin.Annotations#SEMI_JOIN_FILTERS
+ */
+public class SolutionSetBloomFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final transient Logger log = Logger
+            .getLogger(SolutionSetBloomFilter.class);
+
+    /**
+     * The target error rate for the filters.
+     */
+    public static final double DEFAULT_ERROR_RATE = 0.02d;
+
+    /**
+     * The maximum #of solutions in a named solution set for which the filters
+     * will be built.
+     */
+    public static final long DEFAULT_MAX_SOLUTIONS = 1000000L;
+
+    /**
+     * The #of elements which are tested before the filter decides whether it
+     * is selective enough to remain enabled.
+     */
+    public static final long MIN_SAMPLE_SIZE = 10000L;
+
+    /**
+     * The minimum fraction of the tested elements which must be rejected for
+     * the filter to remain enabled.
+     */
+    public static final double MIN_REJECTION_RATE = 0.1d;
+
+    /**
+     * The join variables having a filter.
+     */
+    private final IVariable<?>[] vars;
+
+    /**
+     * The filter for each of the {@link #vars}.
+     */
+    private final BloomFilter[] filters;
+
+    /**
+     * The #of solutions in the named solution set.
+     */
+    private final long size;
+
+    /**
+     * The #of elements tested.
+     */
+    private final AtomicLong ntested = new AtomicLong();
+
+    /**
+     * The #of elements rejected.
+     */
+    private final AtomicLong nrejected = new AtomicLong();
+
+    /**
+     * Cleared if the filter is not selective.
+     */
+    private volatile boolean enabled = true;
+
+    private SolutionSetBloomFilter(final IVariable<?>[] vars,
+            final BloomFilter[] filters, final long size) {
+
+        this.vars = vars;
+
+        this.filters = filters;
+
+        this.size = size;
+
+    }
+
+    /**
+     * Build the filters for the join variables of a named solution set.
+     *
+     * @param state
+     *            The named solution set.
+     * @param maxSolutions
+     *            The maximum #of solutions for which the filters will be
+     *            built.
+     * @param errorRate
+     *            The target error rate for the filters.
+     *
+     * @return The filters -or- <code>null</code> if there are no join
+     *         variables, if there are more than <i>maxSolutions</i> solutions,
+     *         or if each join variable is not bound in some solution.
+     */
+    public static SolutionSetBloomFilter newInstance(
+            final IHashJoinUtility state, final long maxSolutions,
+            final double errorRate) {
+
+        if (state == null)
+            throw new IllegalArgumentException();
+
+        final IVariable<?>[] joinVars = state.getJoinVars();
+
+        final long n = state.getRightSolutionCount();
+
+        if (joinVars.length == 0 || n > maxSolutions)
+            return null;
+
+        final BloomFilter[] a = new BloomFilter[joinVars.length];
+
+        for (int i = 0; i < a.length; i++) {
+
+            a[i] = new BloomFilter((int) Math.max(1L, n), errorRate);
+
+        }
+
+        final byte[] key = new byte[4];
+
+        final ICloseableIterator<IBindingSet> itr = state.indexScan();
+
+        try {
+
+            while (itr.hasNext()) {
+
+                final IBindingSet bset = itr.next();
+
+                for (int i = 0; i < a.length; i++) {
+
+                    if (a[i] == null)
+                        continue;
+
+                    final IConstant<?> c = bset.get(joinVars[i]);
+
+                    if (c == null) {
+
+                        // Unbound joins with any value.
+                        a[i] = null;
+
+                        continue;
+
+                    }
+
+                    a[i].add(toKey(c.get(), key));
+
+                }
+
+            }
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        int nfilters = 0;
+
+        for (BloomFilter f : a) {
+
+            if (f != null)
+                nfilters++;
+
+        }
+
+        if (nfilters == 0)
+            return null;
+
+        final IVariable<?>[] vars = new IVariable[nfilters];
+
+        final BloomFilter[] filters = new BloomFilter[nfilters];
+
+        for (int i = 0, j = 0; i < a.length; i++) {
+
+            if (a[i] == null)
+                continue;
+
+            vars[j] = joinVars[i];
+
+            filters[j++] = a[i];
+
+        }
+
+        return new SolutionSetBloomFilter(vars, filters, n);
+
+    }
+
+    /**
+     * Build the filters for a named solution set (if possible) and attach them
+     * to the {@link IQueryAttributes}.
+     *
+     * @param attrs
+     *            The attributes of the query to which the named solution set
+     *            is attached.
+     * @param namedSetRef
+     *            The named solution set.
+     * @param state
+     *            The named solution set.
+     *
+     * @return The filters -or- <code>null</code> if they were not built.
+     */
+    public static SolutionSetBloomFilter publish(final IQueryAttributes attrs,
+            final INamedSolutionSetRef namedSetRef,
+            final IHashJoinUtility state) {
+
+        final SolutionSetBloomFilter filter = newInstance(state,
+                DEFAULT_MAX_SOLUTIONS, DEFAULT_ERROR_RATE);
+
+        if (log.isInfoEnabled())
+            log.info(namedSetRef + " : " + filter);
+
+        if (filter != null) {
+
+            attrs.put(new Key(namedSetRef), filter);
+
+        }
+
+        return filter;
+
+    }
+
+    /**
+     * Return the filters for a named solution set.
+     *
+     * @return The filters -or- <code>null</code> if they were not built.
+     */
+    public static SolutionSetBloomFilter get(final IQueryAttributes attrs,
+            final INamedSolutionSetRef namedSetRef) {
+
+        return (SolutionSetBloomFilter) attrs.get(new Key(namedSetRef));
+
+    }
+
+    /**
+     * Layer the filters for the named solution sets (if any) onto the
+     * predicate.
+     *
+     * @param context
+     *            The evaluation context.
+     * @param pred
+     *            The predicate.
+     * @param namedSetRefs
+     *            The named solution sets whose filters may be applied to the
+     *            predicate (optional).
+     *
+     * @return The predicate.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static <E> IPredicate<E> addSemiJoinFilters(
+            final BOpContext<?> context, IPredicate<E> pred,
+            final INamedSolutionSetRef[] namedSetRefs) {
+
+        if (namedSetRefs == null || !(pred instanceof Predicate))
+            return pred;
+
+        for (INamedSolutionSetRef namedSetRef : namedSetRefs) {
+
+            final SolutionSetBloomFilter filter = get(
+                    context.getQueryAttributes(namedSetRef.getQueryId()),
+                    namedSetRef);
+
+            if (filter == null || !filter.isEnabled())
+                continue;
+
+            final IElementFilter test = filter.newElementFilter(pred);
+
+            if (test == null)
+                continue;
+
+            pred = ((Predicate<E>) pred).addIndexLocalFilter(ElementFilter
+                    .newInstance(test));
+
+        }
+
+        return pred;
+
+    }
+
+    /**
+     * Return <code>false</code> iff the filter disabled itself because it was
+     * not selective.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+
+    }
+
+    /**
+     * The join variables having a filter.
+     */
+    public IVariable<?>[] getVars() {
+
+        return vars.clone();
+
+    }
+
+    /**
+     * The #of elements tested.
+     */
+    public long getTestedCount() {
+
+        return ntested.get();
+
+    }
+
+    /**
+     * The #of elements rejected.
+     */
+    public long getRejectedCount() {
+
+        return nrejected.get();
+
+    }
+
+    /**
+     * Return <code>false</code> iff the value is definitely not bound to the
+     * variable in any solution of the named solution set.
+     *
+     * @throws IllegalArgumentException
+     *             if there is no filter for that variable.
+     */
+    public boolean contains(final IVariable<?> var, final Object value) {
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (vars[i].equals(var))
+                return filters[i].contains(toKey(value, new byte[4]));
+
+        }
+
+        throw new IllegalArgumentException();
+
+    }
+
+    /**
+     * Return an {@link IElementFilter} which tests the value at each position
+     * of the predicate which is one of the join variables having a filter.
+     *
+     * @return The filter -or- <code>null</code> if the predicate does not use
+     *         any of those variables.
+     */
+    public <E> IElementFilter<E> newElementFilter(final IPredicate<E> pred) {
+
+        final int arity = pred.arity();
+
+        final int[] positions = new int[arity];
+
+        final int[] index = new int[arity];
+
+        int n = 0;
+
+        for (int i = 0; i < arity; i++) {
+
+            final IVariableOrConstant<?> t = pred.get(i);
+
+            if (t == null || !t.isVar())
+                continue;
+
+            for (int j = 0; j < vars.length; j++) {
+
+                if (vars[j].equals(t)) {
+
+                    positions[n] = i;
+
+                    index[n++] = j;
+
+                    break;
+
+                }
+
+            }
+
+        }
+
+        if (n == 0)
+            return null;
+
+        return new SemiJoinFilter<E>(this, Arrays.copyOf(positions, n),
+                Arrays.copyOf(index, n));
+
+    }
+
+    /**
+     * Update the counters and disable the filter if it is not selective.
+     */
+    private void tested(final boolean rejected) {
+
+        final long n = ntested.incrementAndGet();
+
+        final long r = rejected ? nrejected.incrementAndGet() : nrejected
+                .get();
+
+        if (n == MIN_SAMPLE_SIZE && r < n * MIN_REJECTION_RATE) {
+
+            enabled = false;
+
+            if (log.isInfoEnabled())
+                log.info("Disabled: " + this);
+
+        }
+
+    }
+
+    /**
+     * Encode the hash code of a value as a key for a {@link BloomFilter}.
+     */
+    private static byte[] toKey(final Object value, final byte[] key) {
+
+        final int h = value.hashCode();
+
+        key[0] = (byte) (h >>> 24);
+        key[1] = (byte) (h >>> 16);
+        key[2] = (byte) (h >>> 8);
+        key[3] = (byte) h;
+
+        return key;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{vars=" + Arrays.toString(vars)
+                + ",size=" + size + ",enabled=" + enabled + ",ntested="
+                + ntested + ",nrejected=" + nrejected + "}";
+
+    }
+
+    /**
+     * Rejects the elements whose value for some join variable is definitely
+     * not in the named solution set.
+     */
+    private static class SemiJoinFilter<E> implements IElementFilter<E> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SolutionSetBloomFilter filter;
+
+        /**
+         * The positions in the element to be tested.
+         */
+        private final int[] positions;
+
+        /**
+         * The index of the filter for each position.
+         */
+        private final int[] index;
+
+        SemiJoinFilter(final SolutionSetBloomFilter filter,
+                final int[] positions, final int[] index) {
+
+            this.filter = filter;
+
+            this.positions = positions;
+
+            this.index = index;
+
+        }
+
+        @Override
+        public boolean canAccept(final Object o) {
+
+            return o instanceof IElement;
+
+        }
+
+        @Override
+        public boolean isValid(final Object o) {
+
+            if (!filter.enabled || !canAccept(o))
+                return true;
+
+            final IElement e = (IElement) o;
+
+            final byte[] key = new byte[4];
+
+            for (int i = 0; i < positions.length; i++) {
+
+                final Object value = e.get(positions[i]);
+
+                if (value == null)
+                    continue;
+
+                if (!filter.filters[index[i]].contains(toKey(value, key))) {
+
+                    filter.tested(true/* rejected */);
+
+                    return false;
+
+                }
+
+            }
+
+            filter.tested(false/* rejected */);
+
+            return true;
+
+        }
+
+        @Override
+        public String toString() {
+
+            return getClass().getSimpleName() + "{positions="
+                    + Arrays.toString(positions) + "," + filter + "}";
+
+        }
+
+    }
+
+    /**
+     * The key under which the filters for a named solution set are attached to
+     * the {@link IQueryAttributes}.
+     */
+    private static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final INamedSolutionSetRef namedSetRef;
+
+        Key(final INamedSolutionSetRef namedSetRef) {
+
+            if (namedSetRef == null)
+                throw new IllegalArgumentException();
+
+            this.namedSetRef = namedSetRef;
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return namedSetRef.hashCode() ^ 0x5bd1e995;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            return namedSetRef.equals(((Key) o).namedSetRef);
+
+        }
+
+    }
+
+}
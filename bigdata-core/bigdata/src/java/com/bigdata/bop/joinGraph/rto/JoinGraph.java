@@ -27,6 +27,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.bop.joinGraph.rto;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -47,8 +48,10 @@ import com.bigdata.bop.ap.SampleIndex;
 import com.bigdata.bop.ap.SampleIndex.SampleType;
 import com.bigdata.bop.controller.AbstractSubqueryOp;
 import com.bigdata.bop.engine.AbstractRunningQuery;
+import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.join.AccessPathJoinAnnotations;
 import com.bigdata.rdf.sparql.ast.JoinGroupNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpRTO;
@@ -179,6 +182,18 @@ public class JoinGraph extends PipelineOp {
          * the selected join path.
          */
         String NT = JoinGraph.class.getName() + ".nt";
+
+        /**
+         * When <code>true</code>, the join path selected for this join graph
+         * is cached on the {@link QueryEngine} and a cached join path is
+         * reused rather than sampling the data again (default
+         * {@value #DEFAULT_REUSE_PATH}).
+         * 
+         * @see JoinPathCache
+         */
+        String REUSE_PATH = JoinGraph.class.getName() + ".reusePath";
+
+        boolean DEFAULT_REUSE_PATH = false;
         
 	}
 
@@ -210,6 +225,12 @@ public class JoinGraph extends PipelineOp {
          */
         String QUERY_PLAN = JoinGraph.class.getName() + ".queryPlan";
 
+        /**
+         * The {@link JoinPathCache} entry for the join path selected by the
+         * RTO (output). This is not set unless the join path is cached.
+         */
+        String CACHE_ENTRY = JoinGraph.class.getName() + ".cacheEntry";
+
 	}
 	
     /*
@@ -271,6 +292,16 @@ public class JoinGraph extends PipelineOp {
 	    
 	}
 
+    /**
+     * @see Annotations#REUSE_PATH
+     */
+    public boolean isReusePath() {
+
+        return getProperty(Annotations.REUSE_PATH,
+                Annotations.DEFAULT_REUSE_PATH);
+
+    }
+
     /**
      * Return the set of variables that are known to have already been
      * materialized at the point in the overall query plan where the RTO is
@@ -346,6 +377,25 @@ public class JoinGraph extends PipelineOp {
         
     }
 
+    /**
+     * Return the {@link JoinPathCache} entry for the computed join path.
+     * 
+     * @see Attributes#CACHE_ENTRY
+     */
+    public JoinPathCache.Entry getCacheEntry(final IRunningQuery q) {
+
+        return (JoinPathCache.Entry) q.getAttributes().get(
+                getId() + "-" + Attributes.CACHE_ENTRY);
+
+    }
+
+    private void setCacheEntry(final IRunningQuery q,
+            final JoinPathCache.Entry e) {
+
+        q.getAttributes().put(getId() + "-" + Attributes.CACHE_ENTRY, e);
+
+    }
+
     /**
      * Deep copy constructor.
      * 
@@ -457,45 +507,79 @@ public class JoinGraph extends PipelineOp {
                 
                 // final long begin = System.nanoTime();
 
+                final QueryEngine queryEngine = context.getRunningQuery()
+                        .getQueryEngine();
+
                 // Create the join graph.
                 final JGraph g = new JGraph(JoinGraph.this);
 
                 /*
-                 * This map is used to associate join path segments (expressed
-                 * as an ordered array of bopIds) with edge sample to avoid
-                 * redundant effort.
+                 * The join paths selected for join graphs evaluated by earlier
+                 * queries (if enabled).
                  */
-                final Map<PathIds, EdgeSample> edgeSamples = new LinkedHashMap<PathIds, EdgeSample>();
+                final JoinPathCache cache = isReusePath() ? queryEngine
+                        .getJoinPathCache() : null;
 
-                // Find the best join path.
-                final Path path = g.runtimeOptimizer(context.getRunningQuery()
-                        .getQueryEngine(), edgeSamples);
+                final String fingerprint = cache == null ? null
+                        : JoinPathCache.getFingerprint(JoinGraph.this);
 
-                /*
-                 * Release samples.
-                 * 
-                 * TODO If we have fully sampled some vertices or edges, then we
-                 * could replace the JOIN with the sample. For this to work, we
-                 * would need to access path that could read the sample and we
-                 * would have to NOT release the samples until the RTO was done
-                 * executing sub-queries against the generated query plan. Since
-                 * we can flow multiple chunks into the sub-query, this amounts
-                 * to having a LAST_PASS annotation.
-                 */
-                
-                for (EdgeSample s : edgeSamples.values()) {
+                JoinPathCache.Entry entry = cache == null ? null : cache
+                        .get(fingerprint);
 
-                    s.releaseSample();
-                    
-                }
- 
-                for (Vertex v : g.getVertices()) {
+                // Reuse the cached join path without sampling the data.
+                Path path = entry == null ? null : entry.newPath(g);
+
+                final Map<PathIds, EdgeSample> edgeSamples;
+
+                if (path != null) {
+
+                    edgeSamples = entry.getEdgeSamples();
+
+                } else {
+
+                    /*
+                     * This map is used to associate join path segments
+                     * (expressed as an ordered array of bopIds) with edge
+                     * sample to avoid redundant effort.
+                     */
+                    edgeSamples = new LinkedHashMap<PathIds, EdgeSample>();
+
+                    // Find the best join path.
+                    path = g.runtimeOptimizer(queryEngine, edgeSamples);
+
+                    /*
+                     * Release samples.
+                     * 
+                     * TODO If we have fully sampled some vertices or edges,
+                     * then we could replace the JOIN with the sample. For this
+                     * to work, we would need to access path that could read
+                     * the sample and we would have to NOT release the samples
+                     * until the RTO was done executing sub-queries against the
+                     * generated query plan. Since we can flow multiple chunks
+                     * into the sub-query, this amounts to having a LAST_PASS
+                     * annotation.
+                     */
+
+                    for (EdgeSample s : edgeSamples.values()) {
+
+                        s.releaseSample();
 
-                    if (v.sample != null) {
-                        v.sample.releaseSample();
-                    
                     }
-                    
+
+                    for (Vertex v : g.getVertices()) {
+
+                        if (v.sample != null) {
+
+                            v.sample.releaseSample();
+
+                        }
+
+                    }
+
+                    // Cache the join path for reuse.
+                    entry = cache == null ? null : cache.put(fingerprint,
+                            path, edgeSamples);
+
                 }
                 
                 // Set attribute for the join path result.
@@ -504,6 +588,13 @@ public class JoinGraph extends PipelineOp {
                 // Set attribute for the join path samples.
                 setSamples(context.getRunningQuery(), edgeSamples);
 
+                if (entry != null) {
+
+                    // Set attribute for the cached join path.
+                    setCacheEntry(context.getRunningQuery(), entry);
+
+                }
+
                 // final long mark = System.nanoTime();
                 //
                 // final long elapsed_queryOptimizer = mark - begin;
@@ -511,9 +602,8 @@ public class JoinGraph extends PipelineOp {
                 /*
                  * Generate the query from the selected join path.
                  */
-                final PipelineOp queryOp = AST2BOpRTO.compileJoinGraph(context
-                        .getRunningQuery().getQueryEngine(), JoinGraph.this,
-                        path);
+                final PipelineOp queryOp = AST2BOpRTO.compileJoinGraph(
+                        queryEngine, JoinGraph.this, path);
 
                 // Set attribute for the join path samples.
                 setQueryPlan(context.getRunningQuery(), queryOp);
@@ -524,7 +614,23 @@ public class JoinGraph extends PipelineOp {
             final PipelineOp queryOp = getQueryPlan(context.getRunningQuery());
             
             // Run the query, blocking until it is done.
-	        JoinGraph.runSubquery(context, queryOp);
+            final Map<Integer, BOpStats> stats = JoinGraph.runSubquery(
+                    context, queryOp);
+
+            final JoinPathCache.Entry entry = getCacheEntry(context
+                    .getRunningQuery());
+
+            if (stats != null && entry != null) {
+
+                /*
+                 * Drop the cached join path if the observed cardinalities
+                 * drifted from the estimates.
+                 */
+                context.getRunningQuery().getQueryEngine().getJoinPathCache()
+                        .update(entry, getCardinality(queryOp, stats),
+                                getLimit());
+
+            }
 
 //	        final long elapsed_queryExecution = System.nanoTime() - mark;
 //	        
@@ -540,6 +646,45 @@ public class JoinGraph extends PipelineOp {
 
 	} // class JoinGraphTask
 
+    /**
+     * Return the observed output cardinality of the join for each vertex of
+     * the join graph.
+     * 
+     * @param queryOp
+     *            The query plan for the selected join path.
+     * @param stats
+     *            The statistics for the evaluation of that query plan.
+     * 
+     * @return The output cardinality for each vertex identifier.
+     */
+    static private Map<Integer, Long> getCardinality(final PipelineOp queryOp,
+            final Map<Integer, BOpStats> stats) {
+
+        final Map<Integer, Long> card = new LinkedHashMap<Integer, Long>();
+
+        final Iterator<BOp> itr = BOpUtility.preOrderIterator(queryOp);
+
+        while (itr.hasNext()) {
+
+            final BOp op = itr.next();
+
+            final IPredicate<?> pred = (IPredicate<?>) op
+                    .getProperty(AccessPathJoinAnnotations.PREDICATE);
+
+            if (pred == null)
+                continue;
+
+            final BOpStats s = stats.get(op.getId());
+
+            if (s != null)
+                card.put(pred.getId(), s.unitsOut.get());
+
+        }
+
+        return card;
+
+    }
+
     /**
      * Execute the selected join path.
      * <p>
@@ -547,8 +692,13 @@ public class JoinGraph extends PipelineOp {
      * subquery. Therefore we have to take appropriate care to ensure that the
      * results are copied out of the subquery and into the parent query. See
      * {@link AbstractSubqueryOp} for how this is done.
+     * 
+     * @return The statistics for the subquery iff it ran to completion for a
+     *         single empty source solution (the case for which the estimated
+     *         cardinalities of the join path are comparable with the observed
+     *         cardinalities) and otherwise <code>null</code>.
      */
-    static private void runSubquery(
+    static private Map<Integer, BOpStats> runSubquery(
             final BOpContext<IBindingSet> parentContext,
             final PipelineOp queryOp) throws Exception {
 
@@ -607,12 +757,20 @@ public class JoinGraph extends PipelineOp {
             // verify no problems.
             runningSubquery.get();
 
+            if (bindingSets.length == 1 && bindingSets[0].isEmpty()) {
+
+                return runningSubquery.getStats();
+
+            }
+
+            return null;
+
         } catch (Throwable t) {
 
             if (Haltable.isTerminationByInterrupt(t)) {
 
                 // normal termination.
-                return;
+                return null;
 
             }
 
@@ -0,0 +1,693 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.ITimestampAnnotations;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.util.NT;
+
+/**
+ * A bounded cache of the join paths selected by the runtime query optimizer
+ * together with the samples which were used to select them. The entries are
+ * keyed by a {@link #getFingerprint(JoinGraph) fingerprint} of the join graph,
+ * so a later evaluation of the same join graph (for example, when the same
+ * query is run again) can reuse the join order without sampling the data.
+ * <p>
+ * The estimated cardinality of each join in a cached path is compared with the
+ * cardinality observed when the path is fully executed. If they differ by more
+ * than the drift factor, then the entry is dropped and the next evaluation of
+ * the join graph samples the data again.
+ * <p>
+ * Note: The cache lives as long as the {@link QueryEngine}. It is not durable.
+ */
+public class JoinPathCache implements ICounterSetAccess {
+
+    private static final transient Logger log = Logger
+            .getLogger(JoinPathCache.class);
+
+    /**
+     * The default maximum #of cached join paths.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * The default ratio between the estimated and the observed cardinality of
+     * a join above which a cached join path is dropped.
+     */
+    public static final double DEFAULT_DRIFT_FACTOR = 10d;
+
+    /**
+     * The maximum #of cached join paths.
+     */
+    private final int maxEntries;
+
+    /**
+     * The ratio between the estimated and the observed cardinality of a join
+     * above which a cached join path is dropped.
+     */
+    private final double driftFactor;
+
+    /**
+     * The cached join paths in access order (LRU). This is guarded by its own
+     * monitor.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * The #of times a cached join path was found.
+     */
+    private final CAT hitCount = new CAT();
+
+    /**
+     * The #of times a cached join path was not found.
+     */
+    private final CAT missCount = new CAT();
+
+    /**
+     * The #of cached join paths which were dropped because the observed
+     * cardinalities drifted from the estimates.
+     */
+    private final CAT driftCount = new CAT();
+
+    /**
+     * @param maxEntries
+     *            The maximum #of cached join paths.
+     * @param driftFactor
+     *            The ratio between the estimated and the observed cardinality
+     *            of a join above which a cached join path is dropped.
+     */
+    public JoinPathCache(final int maxEntries, final double driftFactor) {
+
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException();
+
+        if (!(driftFactor > 1d))
+            throw new IllegalArgumentException();
+
+        this.maxEntries = maxEntries;
+
+        this.driftFactor = driftFactor;
+
+        this.entries = new LinkedHashMap<String, Entry>(16/* initialCapacity */,
+                .75f/* loadFactor */, true/* accessOrder */) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+
+                return size() > JoinPathCache.this.maxEntries;
+
+            }
+
+        };
+
+    }
+
+    /**
+     * A join path selected by the runtime query optimizer.
+     */
+    public static class Entry {
+
+        /**
+         * The fingerprint of the join graph.
+         */
+        private final String fingerprint;
+
+        /**
+         * The vertex identifiers in path order.
+         */
+        private final int[] vertexIds;
+
+        /**
+         * The estimated cardinality of the path segment ending with each
+         * vertex -or- <code>-1L</code> if there is no estimate.
+         */
+        private final long[] estCard;
+
+        /**
+         * The cumulative estimated cardinality of the path.
+         */
+        private final long sumEstCard;
+
+        /**
+         * The cumulative estimated tuples read of the path.
+         */
+        private final long sumEstRead;
+
+        /**
+         * The samples of the explored path segments. The sampled solutions
+         * have been released.
+         */
+        private final Map<PathIds, EdgeSample> edgeSamples;
+
+        /**
+         * The #of times the path was reused.
+         */
+        private final AtomicLong reuseCount = new AtomicLong();
+
+        Entry(final String fingerprint, final int[] vertexIds,
+                final long[] estCard, final long sumEstCard,
+                final long sumEstRead,
+                final Map<PathIds, EdgeSample> edgeSamples) {
+
+            if (fingerprint == null)
+                throw new IllegalArgumentException();
+
+            if (vertexIds == null || estCard == null
+                    || vertexIds.length != estCard.length)
+                throw new IllegalArgumentException();
+
+            if (edgeSamples == null)
+                throw new IllegalArgumentException();
+
+            this.fingerprint = fingerprint;
+
+            this.vertexIds = vertexIds;
+
+            this.estCard = estCard;
+
+            this.sumEstCard = sumEstCard;
+
+            this.sumEstRead = sumEstRead;
+
+            this.edgeSamples = Collections.unmodifiableMap(edgeSamples);
+
+        }
+
+        /**
+         * Capture a join path selected by the runtime query optimizer.
+         *
+         * @param fingerprint
+         *            The fingerprint of the join graph.
+         * @param path
+         *            The join path.
+         * @param edgeSamples
+         *            The samples of the explored path segments.
+         */
+        static Entry newInstance(final String fingerprint, final Path path,
+                final Map<PathIds, EdgeSample> edgeSamples) {
+
+            final int[] ids = path.getVertexIds();
+
+            final long[] estCard = new long[ids.length];
+
+            for (int i = 0; i < ids.length; i++) {
+
+                final SampleBase sample;
+
+                if (i == 0) {
+
+                    sample = path.vertices[0].sample;
+
+                } else {
+
+                    sample = edgeSamples.get(new PathIds(Arrays.copyOf(ids,
+                            i + 1)));
+
+                }
+
+                estCard[i] = sample == null ? -1L : sample.estCard;
+
+            }
+
+            return new Entry(fingerprint, ids, estCard, path.sumEstCard,
+                    path.sumEstRead,
+                    new LinkedHashMap<PathIds, EdgeSample>(edgeSamples));
+
+        }
+
+        /**
+         * The fingerprint of the join graph.
+         */
+        public String getFingerprint() {
+
+            return fingerprint;
+
+        }
+
+        /**
+         * The vertex identifiers in path order.
+         */
+        public int[] getVertexIds() {
+
+            return vertexIds.clone();
+
+        }
+
+        /**
+         * The estimated cardinality of the path segment ending with each
+         * vertex (in path order) -or- <code>-1L</code> if there is no
+         * estimate.
+         */
+        public long[] getEstimatedCardinality() {
+
+            return estCard.clone();
+
+        }
+
+        /**
+         * The samples of the explored path segments.
+         */
+        public Map<PathIds, EdgeSample> getEdgeSamples() {
+
+            return edgeSamples;
+
+        }
+
+        /**
+         * The #of times the path was reused.
+         */
+        public long getReuseCount() {
+
+            return reuseCount.get();
+
+        }
+
+        /**
+         * Return the join path for the vertices of the given join graph.
+         *
+         * @return The join path -or- <code>null</code> if some vertex is not
+         *         found in the join graph.
+         */
+        Path newPath(final JGraph g) {
+
+            final Vertex[] vertices = new Vertex[vertexIds.length];
+
+            for (int i = 0; i < vertexIds.length; i++) {
+
+                if ((vertices[i] = g.getVertex(vertexIds[i])) == null)
+                    return null;
+
+            }
+
+            return new Path(vertices, sumEstCard, sumEstRead);
+
+        }
+
+        @Override
+        public String toString() {
+
+            return getClass().getSimpleName() + "{vertexIds="
+                    + Arrays.toString(vertexIds) + ",estCard="
+                    + Arrays.toString(estCard) + ",sumEstCard=" + sumEstCard
+                    + ",reuseCount=" + reuseCount + "}";
+
+        }
+
+    }
+
+    /**
+     * Return the cached join path for a join graph.
+     *
+     * @param fingerprint
+     *            The fingerprint of the join graph.
+     *
+     * @return The cached join path -or- <code>null</code> if there is none.
+     */
+    public Entry get(final String fingerprint) {
+
+        final Entry e;
+
+        synchronized (entries) {
+
+            e = entries.get(fingerprint);
+
+        }
+
+        if (e == null) {
+
+            missCount.increment();
+
+        } else {
+
+            hitCount.increment();
+
+            e.reuseCount.incrementAndGet();
+
+        }
+
+        return e;
+
+    }
+
+    /**
+     * Cache the join path selected by the runtime query optimizer for a join
+     * graph.
+     *
+     * @param fingerprint
+     *            The fingerprint of the join graph.
+     * @param path
+     *            The join path.
+     * @param edgeSamples
+     *            The samples of the explored path segments. The sampled
+     *            solutions should already have been released.
+     *
+     * @return The new entry.
+     */
+    public Entry put(final String fingerprint, final Path path,
+            final Map<PathIds, EdgeSample> edgeSamples) {
+
+        if (fingerprint == null || path == null || edgeSamples == null)
+            throw new IllegalArgumentException();
+
+        final Entry e = Entry.newInstance(fingerprint, path, edgeSamples);
+
+        synchronized (entries) {
+
+            entries.put(fingerprint, e);
+
+        }
+
+        return e;
+
+    }
+
+    /**
+     * Compare the estimated cardinalities of a cached join path with those
+     * observed when the path was fully executed. The entry is dropped if they
+     * drift apart.
+     *
+     * @param e
+     *            The entry for the join path which was executed.
+     * @param actualCard
+     *            The observed output cardinality for each vertex identifier.
+     * @param minCard
+     *            Cardinalities are only compared when the estimate or the
+     *            observed cardinality is larger than this value.
+     *
+     * @return <code>true</code> iff the entry was dropped.
+     */
+    public boolean update(final Entry e, final Map<Integer, Long> actualCard,
+            final long minCard) {
+
+        if (e == null || actualCard == null)
+            throw new IllegalArgumentException();
+
+        for (int i = 0; i < e.vertexIds.length; i++) {
+
+            final long est = e.estCard[i];
+
+            final Long actual = actualCard.get(e.vertexIds[i]);
+
+            if (est < 0L || actual == null)
+                continue;
+
+            if (Math.max(est, actual) <= minCard)
+                continue;
+
+            final double ratio = (double) Math.max(1L, actual)
+                    / Math.max(1L, est);
+
+            if (ratio > driftFactor || ratio < 1d / driftFactor) {
+
+                final boolean removed;
+
+                synchronized (entries) {
+
+                    if (removed = (entries.get(e.fingerprint) == e)) {
+
+                        entries.remove(e.fingerprint);
+
+                    }
+
+                }
+
+                if (removed) {
+
+                    driftCount.increment();
+
+                    if (log.isInfoEnabled())
+                        log.info("Dropped: vertex=" + e.vertexIds[i]
+                                + ", estCard=" + est + ", actualCard="
+                                + actual + ", " + e);
+
+                }
+
+                return removed;
+
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * The #of cached join paths.
+     */
+    public int size() {
+
+        synchronized (entries) {
+
+            return entries.size();
+
+        }
+
+    }
+
+    /**
+     * Return a fingerprint for the join graph. Two join graphs have the same
+     * fingerprint if they have the same vertices (the predicates, including
+     * their bop identifiers and their constants), the same constraints, the
+     * same sampling parameters, and read on the same namespace. The commit
+     * point against which the join graph is evaluated is not part of the
+     * fingerprint.
+     * <p>
+     * Note: Constants are represented by the hash code of their values, so
+     * distinct join graphs can have the same fingerprint. This can only
+     * affect the join order, not the solutions.
+     */
+    public static String getFingerprint(final JoinGraph joinGraph) {
+
+        final StringBuilder sb = new StringBuilder();
+
+        final NT nt = (NT) joinGraph.getProperty(JoinGraph.Annotations.NT);
+
+        if (nt != null)
+            sb.append(nt.getName());
+
+        sb.append("{limit=" + joinGraph.getLimit());
+        sb.append(",nedges=" + joinGraph.getNEdges());
+        sb.append(",sampleType=" + joinGraph.getSampleType());
+        sb.append("}");
+
+        for (IPredicate<?> pred : joinGraph.getVertices()) {
+
+            sb.append("\n");
+
+            sb.append(pred.getId());
+
+            sb.append(':');
+
+            getFingerprint(pred, sb);
+
+        }
+
+        final IConstraint[] constraints = joinGraph.getConstraints();
+
+        if (constraints != null) {
+
+            for (IConstraint c : constraints) {
+
+                sb.append("\n");
+
+                getFingerprint(c, sb);
+
+            }
+
+        }
+
+        return sb.toString();
+
+    }
+
+    /**
+     * Append the fingerprint of an operator. This includes the variables, the
+     * hash code of the constants, and the annotations having simple values
+     * other than the bop identifier and the timestamp.
+     */
+    private static void getFingerprint(final BOp op, final StringBuilder sb) {
+
+        if (op == null) {
+
+            sb.append("null");
+
+            return;
+
+        }
+
+        if (op instanceof IVariable) {
+
+            sb.append('?');
+
+            sb.append(((IVariable<?>) op).getName());
+
+            return;
+
+        }
+
+        if (op instanceof IConstant) {
+
+            final Object v = ((IConstant<?>) op).get();
+
+            if (v == null) {
+
+                sb.append("null");
+
+            } else {
+
+                sb.append(v.getClass().getSimpleName());
+
+                sb.append('#');
+
+                sb.append(Integer.toHexString(v.hashCode()));
+
+            }
+
+            return;
+
+        }
+
+        sb.append(op.getClass().getSimpleName());
+
+        sb.append('(');
+
+        for (int i = 0; i < op.arity(); i++) {
+
+            if (i > 0)
+                sb.append(',');
+
+            getFingerprint(op.get(i), sb);
+
+        }
+
+        // Visit the annotations in a stable order.
+        final Map<String, Object> anns = new TreeMap<String, Object>(
+                op.annotations());
+
+        for (Map.Entry<String, Object> e : anns.entrySet()) {
+
+            final String name = e.getKey();
+
+            if (name.equals(BOp.Annotations.BOP_ID)
+                    || name.equals(ITimestampAnnotations.TIMESTAMP))
+                continue;
+
+            final Object v = e.getValue();
+
+            final String s;
+
+            if (v instanceof String || v instanceof Boolean
+                    || v instanceof Enum) {
+
+                s = v.toString();
+
+            } else if (v instanceof String[]) {
+
+                s = Arrays.toString((String[]) v);
+
+            } else {
+
+                // Not a simple value.
+                continue;
+
+            }
+
+            sb.append(',');
+
+            sb.append(name);
+
+            sb.append('=');
+
+            sb.append(s);
+
+        }
+
+        sb.append(')');
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("entryCount", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(size());
+            }
+        });
+
+        root.addCounter("hitCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(hitCount.get());
+            }
+        });
+
+        root.addCounter("missCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(missCount.get());
+            }
+        });
+
+        root.addCounter("driftCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(driftCount.get());
+            }
+        });
+
+        return root;
+
+    }
+
+}
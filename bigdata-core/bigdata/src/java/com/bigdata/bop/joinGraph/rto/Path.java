@@ -281,6 +281,41 @@ public class Path {
 
 		this.sumEstCost = getCost(this.sumEstRead, this.sumEstCard);
 		
+    }
+
+    /**
+     * Create a path from the join order and the estimates of a path which was
+     * previously selected for the same join graph (see {@link JoinPathCache}).
+     * The vertices have not been sampled and there is no {@link #edgeSample}
+     * for this path, so it can not be extended.
+     * 
+     * @param vertices
+     *            The vertices in path order.
+     * @param sumEstCard
+     *            The cumulative estimated cardinality of the path.
+     * @param sumEstRead
+     *            The cumulative estimated tuples read of the path.
+     */
+    Path(final Vertex[] vertices, final long sumEstCard, final long sumEstRead) {
+
+        if (vertices == null)
+            throw new IllegalArgumentException();
+
+        if (sumEstCard < 0)
+            throw new IllegalArgumentException();
+
+        this.vertices = vertices;
+
+        this.preds = getPredicates(vertices);
+
+        this.edgeSample = null;
+
+        this.sumEstCard = sumEstCard;
+
+        this.sumEstRead = sumEstRead;
+
+        this.sumEstCost = getCost(this.sumEstRead, this.sumEstCard);
+
     }
 
 	/**
@@ -71,6 +71,7 @@ import com.bigdata.btree.proc.AbstractKeyArrayIndexProcedureConstructor;
 import com.bigdata.btree.proc.IKeyRangeIndexProcedure;
 import com.bigdata.btree.proc.IResultHandler;
 import com.bigdata.btree.proc.ISimpleIndexProcedure;
+import com.bigdata.btree.raba.IRaba;
 import com.bigdata.btree.view.FusedView;
 import com.bigdata.cache.HardReferenceQueue;
 import com.bigdata.cache.HardReferenceQueueWithBatchingUpdates;
@@ -94,6 +95,7 @@ import com.bigdata.resources.IndexManager;
 import com.bigdata.resources.OverflowManager;
 import com.bigdata.service.DataService;
 import com.bigdata.service.Split;
+import com.bigdata.util.BytesUtil;
 import com.bigdata.util.InnerCause;
 import com.bigdata.util.concurrent.Computable;
 import com.bigdata.util.concurrent.LatchedExecutor;
@@ -2465,6 +2467,160 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
     }
 
+    @Override
+    public int lookup(final byte[][] keys, final byte[][] vals) {
+
+        return lookup(keys, vals, null/* resolved */);
+
+    }
+
+    /**
+     * Core method for a batch of point lookups. The tree is walked once for
+     * all of the keys. The path from the root to the current leaf is retained
+     * together with the separator keys which bound each node on that path. The
+     * next key is only searched from the deepest node on the path whose bounds
+     * cover that key, so neighboring keys which fall into the same leaf are
+     * resolved without re-visiting the nodes above that leaf. The keys may be
+     * given in any order, but the savings are only realized when they are in
+     * ascending order (as they are for the batch index procedures).
+     *
+     * @param keys
+     *            The search keys (required, and each key is required).
+     * @param vals
+     *            The value found under each key is set on the corresponding
+     *            index of this array. The element is set to <code>null</code>
+     *            if there is no entry or if the entry is deleted. The array
+     *            must be at least as long as <i>keys</i>.
+     * @param resolved
+     *            Optional. When given, a key whose element is already
+     *            <code>true</code> is skipped and the element is set for each
+     *            key for which an index entry is found, even if that entry is
+     *            marked as deleted. This is used to read the sources of a
+     *            {@link FusedView} in order.
+     *
+     * @return The #of keys for which a non-deleted entry was found.
+     */
+    public int lookup(final byte[][] keys, final byte[][] vals,
+            final boolean[] resolved) {
+
+        if (keys == null)
+            throw new IllegalArgumentException();
+
+        if (vals == null || vals.length < keys.length)
+            throw new IllegalArgumentException();
+
+        if (resolved != null && resolved.length < keys.length)
+            throw new IllegalArgumentException();
+
+        final BloomFilter filter = getBloomFilter();
+
+        final Tuple tuple = getLookupTuple();
+
+        /*
+         * The path from the root to the current leaf and the separator keys
+         * which bound the node at each level of that path (inclusive lower
+         * bound, exclusive upper bound, where null is unbounded).
+         */
+        final int height = getHeight();
+
+        final AbstractNode<?>[] path = new AbstractNode<?>[height + 1];
+
+        final byte[][] lower = new byte[height + 1][];
+
+        final byte[][] upper = new byte[height + 1][];
+
+        path[0] = getRoot();
+
+        int level = 0;
+
+        int nfound = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (resolved != null && resolved[i])
+                continue;
+
+            final byte[] key = keys[i];
+
+            if (key == null)
+                throw new IllegalArgumentException();
+
+            // conditional range check on the key.
+            assert rangeCheck(key, false);
+
+            vals[i] = null;
+
+            if (filter != null && !filter.contains(key)) {
+
+                // rejected by the bloom filter.
+                continue;
+
+            }
+
+            // climb until the node covers the key (the root covers all keys).
+            while (level > 0
+                    && ((lower[level] != null && BytesUtil.compareBytes(
+                            lower[level], key) > 0) || (upper[level] != null && BytesUtil
+                            .compareBytes(key, upper[level]) >= 0))) {
+
+                level--;
+
+            }
+
+            // descend to the leaf which spans the key.
+            while (!path[level].isLeaf()) {
+
+                final Node node = (Node) path[level];
+
+                touch(node);
+
+                final int childIndex = node.findChild(key);
+
+                final IRaba separators = node.getKeys();
+
+                lower[level + 1] = childIndex == 0 ? lower[level] : separators
+                        .get(childIndex - 1);
+
+                upper[level + 1] = childIndex == node.getKeyCount() ? upper[level]
+                        : separators.get(childIndex);
+
+                path[level + 1] = node.getChild(childIndex);
+
+                level++;
+
+            }
+
+            if (((Leaf) path[level]).lookup(key, tuple) == null) {
+
+                if (filter != null)
+                    filter.falsePos();
+
+                continue;
+
+            }
+
+            if (resolved != null)
+                resolved[i] = true;
+
+            if (tuple.isDeletedVersion()) {
+
+                if (filter != null)
+                    filter.falsePos();
+
+                continue;
+
+            }
+
+            vals[i] = tuple.getValue();
+
+            nfound++;
+
+        }
+
+        return nfound;
+
+    }
+
     @Override
     public boolean contains(Object key) {
         
@@ -67,4 +67,23 @@ public interface ILocalBTreeView extends IIndex {
      */
     public IBloomFilter getBloomFilter();
     
+    /**
+     * Batch point lookup. This is equivalent to {@link #lookup(byte[])} for
+     * each key, but the index is walked once for the entire batch and the
+     * nodes above a leaf are not re-visited for neighboring keys which fall
+     * into that leaf. The keys SHOULD be in ascending order. Keys in any other
+     * order are still resolved correctly, but more slowly.
+     *
+     * @param keys
+     *            The search keys (required, and each key is required).
+     * @param vals
+     *            The value found under each key is set on the corresponding
+     *            index of this array. The element is set to <code>null</code>
+     *            if there is no entry or if the entry is deleted. The array
+     *            must be at least as long as <i>keys</i>.
+     *
+     * @return The #of keys for which a non-deleted entry was found.
+     */
+    public int lookup(byte[][] keys, byte[][] vals);
+
 }
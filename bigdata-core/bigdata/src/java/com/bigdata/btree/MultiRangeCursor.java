@@ -0,0 +1,354 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+
+package com.bigdata.btree;
+
+import java.util.NoSuchElementException;
+
+import com.bigdata.io.ByteArrayBuffer;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Reads a sequence of key ranges in ascending key order using a single
+ * {@link ITupleCursor}. Each key range is visited by an {@link ITupleIterator}
+ * obtained from {@link #rangeIterator(byte[], byte[])}. The cursor is only
+ * repositioned using {@link ITupleCursor#seek(byte[])} when the next key range
+ * starts after the tuple at which the previous key range ended. When the key
+ * ranges are dense, most of them are therefore read without descending the
+ * index again.
+ * <p>
+ * The key ranges should be requested in ascending order of their
+ * <i>fromKey</i>. Key ranges which are out of order or which overlap are
+ * still visited correctly, but the cursor must seek for each of them.
+ * <p>
+ * Note: This class is NOT thread-safe. Each {@link ITupleIterator} shares the
+ * cursor and must be consumed (or abandoned) before the next key range is
+ * requested.
+ *
+ * @param <E>
+ *            The generic type of the objects visited by the cursor.
+ */
+public class MultiRangeCursor<E> {
+
+    /**
+     * The shared cursor.
+     */
+    private final ITupleCursor<E> cursor;
+
+    /**
+     * The first tuple at or after {@link #lastToKey} -or- <code>null</code>
+     * if the cursor position is not known. The cursor is still positioned on
+     * this tuple, so its data is valid until the cursor is moved.
+     */
+    private ITuple<E> pending = null;
+
+    /**
+     * The exclusive upper bound of the last key range which was read to its
+     * end -or- <code>null</code> if the cursor position is not known.
+     */
+    private byte[] lastToKey = null;
+
+    /**
+     * <code>true</code> iff the last key range which was read to its end
+     * also exhausted the cursor.
+     */
+    private boolean exhausted = false;
+
+    /**
+     * The iterator for the current key range (if any).
+     */
+    private RangeIterator current = null;
+
+    /**
+     * The #of key ranges which were requested.
+     */
+    private long rangeCount = 0L;
+
+    /**
+     * The #of key ranges for which the cursor was repositioned.
+     */
+    private long seekCount = 0L;
+
+    /**
+     * @param cursor
+     *            The cursor (required). It should not be constrained by a
+     *            key range other than the key range of an index partition.
+     */
+    public MultiRangeCursor(final ITupleCursor<E> cursor) {
+
+        if (cursor == null)
+            throw new IllegalArgumentException();
+
+        this.cursor = cursor;
+
+    }
+
+    /**
+     * The backing index.
+     */
+    public IIndex getIndex() {
+
+        return cursor.getIndex();
+
+    }
+
+    /**
+     * The #of key ranges which were requested.
+     */
+    public long getRangeCount() {
+
+        return rangeCount;
+
+    }
+
+    /**
+     * The #of key ranges for which the cursor was repositioned. The other key
+     * ranges were read by continuing the scan of the cursor.
+     */
+    public long getSeekCount() {
+
+        return seekCount;
+
+    }
+
+    /**
+     * Return an iterator which visits the tuples in the given key range. Any
+     * iterator previously returned by this method is invalidated.
+     *
+     * @param fromKey
+     *            The inclusive lower bound (required).
+     * @param toKey
+     *            The exclusive upper bound -or- <code>null</code> if there is
+     *            no upper bound.
+     *
+     * @return The iterator.
+     */
+    public ITupleIterator<E> rangeIterator(final byte[] fromKey,
+            final byte[] toKey) {
+
+        if (fromKey == null)
+            throw new IllegalArgumentException();
+
+        if (current != null) {
+
+            // Invalidate the previous iterator.
+            current.next = null;
+
+            current.done = true;
+
+            current = null;
+
+        }
+
+        rangeCount++;
+
+        final ITuple<E> first;
+
+        if (lastToKey != null
+                && BytesUtil.compareBytes(fromKey, lastToKey) >= 0
+                && (exhausted || compare(pending, fromKey) >= 0)) {
+
+            /*
+             * There are no tuples in [lastToKey, pending), so the pending
+             * tuple (if any) is the first tuple at or after the fromKey.
+             */
+
+            first = pending;
+
+        } else {
+
+            seekCount++;
+
+            final ITuple<E> t = cursor.seek(fromKey);
+
+            if (t != null) {
+
+                first = t;
+
+            } else if (cursor.hasNext()) {
+
+                first = cursor.next();
+
+            } else {
+
+                first = null;
+
+            }
+
+        }
+
+        // The cursor position is unknown until this key range is read.
+        pending = null;
+        lastToKey = null;
+        exhausted = false;
+
+        final RangeIterator itr = current = new RangeIterator(toKey);
+
+        if (first == null) {
+
+            // The cursor is exhausted.
+            itr.end(null/* pending */);
+
+        } else if (!itr.inRange(first)) {
+
+            // The key range is empty.
+            itr.end(first);
+
+        } else {
+
+            itr.next = first;
+
+        }
+
+        return itr;
+
+    }
+
+    /**
+     * Compare the key of the tuple with the given key.
+     */
+    private static int compare(final ITuple<?> tuple, final byte[] key) {
+
+        final ByteArrayBuffer kbuf = tuple.getKeyBuffer();
+
+        return BytesUtil.compareBytesWithLenAndOffset(0, kbuf.pos(),
+                kbuf.array(), 0, key.length, key);
+
+    }
+
+    /**
+     * Visits the tuples in one key range.
+     */
+    private class RangeIterator implements ITupleIterator<E> {
+
+        private final byte[] toKey;
+
+        /**
+         * The next tuple to be visited -or- <code>null</code> if it has not
+         * been read yet.
+         */
+        private ITuple<E> next = null;
+
+        /**
+         * <code>true</code> once the iterator is exhausted or invalidated.
+         */
+        private boolean done = false;
+
+        RangeIterator(final byte[] toKey) {
+
+            this.toKey = toKey;
+
+        }
+
+        private boolean inRange(final ITuple<E> tuple) {
+
+            return toKey == null || compare(tuple, toKey) < 0;
+
+        }
+
+        /**
+         * Mark the end of this key range.
+         *
+         * @param t
+         *            The first tuple after the key range -or-
+         *            <code>null</code> if the cursor is exhausted.
+         */
+        private void end(final ITuple<E> t) {
+
+            next = null;
+
+            done = true;
+
+            if (current == this) {
+
+                pending = t;
+
+                lastToKey = toKey;
+
+                exhausted = t == null;
+
+                current = null;
+
+            }
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (next != null)
+                return true;
+
+            if (done)
+                return false;
+
+            if (!cursor.hasNext()) {
+
+                end(null/* pending */);
+
+                return false;
+
+            }
+
+            final ITuple<E> t = cursor.next();
+
+            if (!inRange(t)) {
+
+                end(t);
+
+                return false;
+
+            }
+
+            next = t;
+
+            return true;
+
+        }
+
+        @Override
+        public ITuple<E> next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final ITuple<E> t = next;
+
+            next = null;
+
+            return t;
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+    }
+
+}
@@ -230,6 +230,13 @@ public class ReadCommittedView implements ILocalBTreeView {
         
     }
 
+    @Override
+    public int lookup(byte[][] keys, byte[][] vals) {
+
+        return getIndex().lookup(keys, vals);
+
+    }
+
     @Override
     public byte[] remove(byte[] key) {
 
@@ -0,0 +1,717 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree.raba.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.Bytes;
+
+/**
+ * Key coder for {@link com.bigdata.htree.HTree} bucket pages. Bucket pages
+ * hold ordered keys with many duplicates (for the analytic hash joins the keys
+ * are int32 hash codes and every solution having the same hash code has the
+ * same key). Rather than front-coding each key, this coder stores each
+ * <em>distinct</em> key once together with a bit vector marking the first key
+ * of each run of duplicates.
+ * <p>
+ * The leading four bytes of each distinct key (zero padded for shorter keys)
+ * are stored as an int32 <em>fingerprint</em> in a packed array. Since the
+ * keys are ordered, the fingerprints are non-decreasing (as unsigned values)
+ * and {@link IRaba#search(byte[])} is a binary search over the fingerprints
+ * which compares a whole word at a time. The remaining bytes of a key are
+ * only compared for the distinct keys whose fingerprint matches the
+ * fingerprint of the probe key. When the keys are int32 hash codes, the
+ * fingerprint is the key and nothing else is stored for it.
+ * <p>
+ * The run bit vector is indexed by a rank directory so that the distinct key
+ * for a given index (rank) and the index of the first key in a given run
+ * (select) may be found without decoding the record. Consistent with the
+ * other coders supporting duplicate keys, {@link IRaba#search(byte[])}
+ * reports the index of the <em>first</em> key in the run of keys equal to the
+ * probe key.
+ *
+ * <h2>Binary Format</h2>
+ *
+ * <pre>
+ * version   : byte
+ * size      : int32        #of keys.
+ * ndistinct : int32        #of distinct keys.
+ * len       : int32        key length, or -1 if the keys differ in length.
+ * fprints   : int32[ndistinct]
+ * runs      : int64[nwords] bit i is set iff key i is the first key of a run.
+ * ranks     : int32[nwords] #of bits set in the preceding words of runs.
+ * </pre>
+ *
+ * where <code>nwords := (size + 63) / 64</code>, followed, if the keys have
+ * the same length, by
+ *
+ * <pre>
+ * tails     : ndistinct * max(0, len - 4) bytes
+ * </pre>
+ *
+ * and otherwise by
+ *
+ * <pre>
+ * offsets   : int32[ndistinct + 1]
+ * keys      : the distinct keys.
+ * </pre>
+ */
+public class FingerprintRabaCoderDupKeys implements IRabaCoder, Externalizable {
+
+    private static final long serialVersionUID = 8412770461237338176L;
+
+    /**
+     * A default instance.
+     */
+    public static final transient FingerprintRabaCoderDupKeys INSTANCE = new FingerprintRabaCoderDupKeys();
+
+    private static final byte VERSION0 = 0x00;
+
+    /** The #of leading bytes of a key which are stored as its fingerprint. */
+    static private final int FPLEN = Bytes.SIZEOF_INT;
+
+    @Override
+    final public boolean isKeyCoder() {
+
+        return true;
+
+    }
+
+    @Override
+    final public boolean isValueCoder() {
+
+        return false;
+
+    }
+
+    @Override
+    public boolean isDuplicateKeys() {
+
+        return true;
+
+    }
+
+    /**
+     * De-serialization ctor.
+     */
+    public FingerprintRabaCoderDupKeys() {
+
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+        out.writeByte(VERSION0);
+
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        final byte version = in.readByte();
+        switch (version) {
+        case VERSION0:
+            break;
+        default:
+            throw new IOException("Unknown version: " + version);
+        }
+
+    }
+
+    /** The byte offset to the version identifier. */
+    static private final int O_VERSION = 0;
+    /** The byte offset to the #of keys. */
+    static private final int O_SIZE = O_VERSION + Bytes.SIZEOF_BYTE;
+    /** The byte offset to the #of distinct keys. */
+    static private final int O_NDISTINCT = O_SIZE + Bytes.SIZEOF_INT;
+    /** The byte offset to the key length. */
+    static private final int O_LEN = O_NDISTINCT + Bytes.SIZEOF_INT;
+    /** The byte offset to the fingerprints. */
+    static private final int O_FPRINTS = O_LEN + Bytes.SIZEOF_INT;
+
+    @Override
+    public ICodedRaba encodeLive(final IRaba raba, final DataOutputBuffer buf) {
+
+        if (raba == null)
+            throw new IllegalArgumentException();
+
+        if (!raba.isKeys())
+            throw new UnsupportedOperationException("Must be keys.");
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        final int size = raba.size();
+
+        final int nwords = (size + 63) >>> 6;
+
+        /*
+         * Identify the runs of duplicate keys. The keys are ordered, so a key
+         * begins a new run iff it differs from the previous key.
+         */
+        final long[] runs = new long[nwords];
+        final byte[][] distinct = new byte[size][];
+        int ndistinct = 0;
+        int len = size == 0 ? 0 : raba.length(0);
+        int nbytes = 0;
+        {
+            byte[] prior = null;
+            for (int i = 0; i < size; i++) {
+                final byte[] a = raba.get(i);
+                if (prior != null && equals(prior, a))
+                    continue;
+                runs[i >>> 6] |= 1L << (i & 63);
+                distinct[ndistinct++] = a;
+                if (a.length != len)
+                    len = -1;
+                nbytes += a.length;
+                prior = a;
+            }
+        }
+
+        // The byte offset of the origin of the coded record into the buffer.
+        final int O_origin = buf.pos();
+
+        buf.ensureFree(O_FPRINTS + ndistinct * Bytes.SIZEOF_INT + nwords
+                * (Bytes.SIZEOF_LONG + Bytes.SIZEOF_INT));
+
+        buf.putByte(VERSION0);
+
+        assert buf.pos() == O_SIZE + O_origin;
+        buf.putInt(size);
+
+        assert buf.pos() == O_NDISTINCT + O_origin;
+        buf.putInt(ndistinct);
+
+        assert buf.pos() == O_LEN + O_origin;
+        buf.putInt(len);
+
+        assert buf.pos() == O_FPRINTS + O_origin;
+        for (int j = 0; j < ndistinct; j++) {
+            buf.putInt(fingerprint(distinct[j]));
+        }
+
+        for (int w = 0; w < nwords; w++) {
+            buf.putLong(runs[w]);
+        }
+
+        for (int w = 0, rank = 0; w < nwords; w++) {
+            buf.putInt(rank);
+            rank += Long.bitCount(runs[w]);
+        }
+
+        if (len >= 0) {
+
+            final int tailLen = Math.max(0, len - FPLEN);
+
+            if (tailLen > 0) {
+
+                buf.ensureFree(ndistinct * tailLen);
+
+                for (int j = 0; j < ndistinct; j++) {
+                    buf.put(distinct[j], FPLEN, tailLen);
+                }
+
+            }
+
+        } else {
+
+            buf.ensureFree((ndistinct + 1) * Bytes.SIZEOF_INT + nbytes);
+
+            for (int j = 0, off = 0; j <= ndistinct; j++) {
+                buf.putInt(off);
+                if (j < ndistinct)
+                    off += distinct[j].length;
+            }
+
+            for (int j = 0; j < ndistinct; j++) {
+                buf.put(distinct[j]);
+            }
+
+        }
+
+        final AbstractFixedByteArrayBuffer slice = buf.slice(//
+                O_origin, buf.pos() - O_origin);
+
+        return new CodedRabaImpl(slice);
+
+    }
+
+    @Override
+    public AbstractFixedByteArrayBuffer encode(final IRaba raba,
+            final DataOutputBuffer buf) {
+
+        return encodeLive(raba, buf).data();
+
+    }
+
+    @Override
+    public ICodedRaba decode(final AbstractFixedByteArrayBuffer data) {
+
+        final byte version = data.getByte(O_VERSION);
+
+        if (version != VERSION0)
+            throw new RuntimeException("Unknown version: " + version);
+
+        return new CodedRabaImpl(data);
+
+    }
+
+    static private boolean equals(final byte[] a, final byte[] b) {
+
+        if (a.length != b.length)
+            return false;
+
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i])
+                return false;
+        }
+
+        return true;
+
+    }
+
+    /**
+     * The fingerprint of a key is its leading four bytes as a big-endian
+     * int32, zero padded if the key is shorter than four bytes. Since the
+     * padding is zero, the fingerprints of ordered keys are non-decreasing
+     * when compared as unsigned values.
+     */
+    static int fingerprint(final byte[] key) {
+
+        int fp = 0;
+
+        for (int i = 0; i < FPLEN; i++) {
+            fp <<= 8;
+            if (i < key.length)
+                fp |= key[i] & 0xff;
+        }
+
+        return fp;
+
+    }
+
+    /**
+     * Class provides in place access to the coded keys. In addition to the
+     * {@link IRaba} API, {@link #isDuplicate(int)} reports whether a key is
+     * equal to its predecessor without comparing the keys, which may be used
+     * to visit a run of duplicate keys.
+     */
+    public static class CodedRabaImpl extends AbstractCodedRaba {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        /** The backing array. */
+        private final byte[] a;
+
+        /** The #of keys. */
+        private final int size;
+
+        /** The #of distinct keys. */
+        private final int ndistinct;
+
+        /** The length of each key, or <code>-1</code> if they differ. */
+        private final int len;
+
+        /**
+         * The #of bytes stored for each distinct key after its fingerprint
+         * (fixed length keys only).
+         */
+        private final int tailLen;
+
+        /** The #of words in the run bit vector. */
+        private final int nwords;
+
+        /** The offset of the fingerprints in the backing array. */
+        private final int fprintsOff;
+
+        /** The offset of the run bit vector in the backing array. */
+        private final int runsOff;
+
+        /** The offset of the rank directory in the backing array. */
+        private final int ranksOff;
+
+        /**
+         * The offset of the tails (fixed length keys) or of the key offsets
+         * (variable length keys) in the backing array.
+         */
+        private final int tailsOff;
+
+        /**
+         * The offset of the distinct keys in the backing array (variable
+         * length keys only).
+         */
+        private final int keysOff;
+
+        CodedRabaImpl(final AbstractFixedByteArrayBuffer data) {
+
+            this.data = data;
+            this.a = data.array();
+            this.size = data.getInt(O_SIZE);
+            this.ndistinct = data.getInt(O_NDISTINCT);
+            this.len = data.getInt(O_LEN);
+            this.tailLen = Math.max(0, len - FPLEN);
+            this.nwords = (size + 63) >>> 6;
+            this.fprintsOff = data.off() + O_FPRINTS;
+            this.runsOff = fprintsOff + ndistinct * Bytes.SIZEOF_INT;
+            this.ranksOff = runsOff + nwords * Bytes.SIZEOF_LONG;
+            this.tailsOff = ranksOff + nwords * Bytes.SIZEOF_INT;
+            this.keysOff = tailsOff + (ndistinct + 1) * Bytes.SIZEOF_INT;
+
+            if (size < 0 || ndistinct < 0 || ndistinct > size || len < -1)
+                throw new RuntimeException();
+
+        }
+
+        @Override
+        final public AbstractFixedByteArrayBuffer data() {
+
+            return data;
+
+        }
+
+        @Override
+        public boolean isKeys() {
+
+            return true;
+
+        }
+
+        @Override
+        final public int capacity() {
+
+            return size;
+
+        }
+
+        @Override
+        final public int size() {
+
+            return size;
+
+        }
+
+        @Override
+        final public boolean isEmpty() {
+
+            return size == 0;
+
+        }
+
+        @Override
+        final public boolean isFull() {
+
+            return true;
+
+        }
+
+        protected void rangeCheck(final int index) {
+
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException();
+
+        }
+
+        @Override
+        public boolean isNull(final int index) {
+
+            rangeCheck(index);
+
+            return false;
+
+        }
+
+        /**
+         * Return <code>true</code> iff the key at that index is equal to the
+         * key at the previous index.
+         *
+         * @param index
+         *            The index.
+         */
+        public boolean isDuplicate(final int index) {
+
+            rangeCheck(index);
+
+            final long word = getLong(a, runsOff + (index >>> 6)
+                    * Bytes.SIZEOF_LONG);
+
+            return (word & (1L << (index & 63))) == 0;
+
+        }
+
+        /**
+         * Return the #of distinct keys.
+         */
+        public int getDistinctKeyCount() {
+
+            return ndistinct;
+
+        }
+
+        /**
+         * Return the ordinal of the distinct key at the given index (rank).
+         */
+        private int distinctIndexOf(final int index) {
+
+            final int w = index >>> 6;
+
+            final long word = getLong(a, runsOff + w * Bytes.SIZEOF_LONG);
+
+            // mask for the bits in [0:index] of the word.
+            final long mask = (2L << (index & 63)) - 1;
+
+            return getInt(a, ranksOff + w * Bytes.SIZEOF_INT)
+                    + Long.bitCount(word & mask) - 1;
+
+        }
+
+        /**
+         * Return the index of the first key in the run of duplicates for the
+         * given distinct key (select).
+         */
+        private int firstIndexOf(final int j) {
+
+            // the last word whose rank is LTE j.
+            int low = 0;
+            int high = nwords - 1;
+            while (low < high) {
+                final int mid = (low + high + 1) >>> 1;
+                if (getInt(a, ranksOff + mid * Bytes.SIZEOF_INT) <= j) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            long word = getLong(a, runsOff + low * Bytes.SIZEOF_LONG);
+
+            // clear the bits for the earlier runs in that word.
+            for (int k = j - getInt(a, ranksOff + low * Bytes.SIZEOF_INT); k > 0; k--) {
+                word &= word - 1;
+            }
+
+            return (low << 6) + Long.numberOfTrailingZeros(word);
+
+        }
+
+        /**
+         * The length of the given distinct key.
+         */
+        private int distinctLength(final int j) {
+
+            if (len >= 0)
+                return len;
+
+            final int p = tailsOff + j * Bytes.SIZEOF_INT;
+
+            return getInt(a, p + Bytes.SIZEOF_INT) - getInt(a, p);
+
+        }
+
+        @Override
+        public int length(final int index) {
+
+            rangeCheck(index);
+
+            return distinctLength(distinctIndexOf(index));
+
+        }
+
+        @Override
+        public byte[] get(final int index) {
+
+            rangeCheck(index);
+
+            final int j = distinctIndexOf(index);
+
+            if (len < 0) {
+
+                final int p = tailsOff + j * Bytes.SIZEOF_INT;
+
+                final int off = getInt(a, p);
+
+                final byte[] b = new byte[getInt(a, p + Bytes.SIZEOF_INT) - off];
+
+                System.arraycopy(a, keysOff + off, b, 0, b.length);
+
+                return b;
+
+            }
+
+            final byte[] b = new byte[len];
+
+            final int fp = getInt(a, fprintsOff + j * Bytes.SIZEOF_INT);
+
+            for (int i = 0; i < len && i < FPLEN; i++) {
+                b[i] = (byte) (fp >>> (24 - 8 * i));
+            }
+
+            if (tailLen > 0)
+                System.arraycopy(a, tailsOff + j * tailLen, b, FPLEN, tailLen);
+
+            return b;
+
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+
+            final byte[] b = get(index);
+
+            try {
+
+                os.write(b);
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            return b.length;
+
+        }
+
+        /*
+         * Search
+         */
+
+        @Override
+        public int search(final byte[] key) {
+
+            if (key == null)
+                throw new IllegalArgumentException();
+
+            // unsigned comparison of the fingerprints.
+            final int fk = fingerprint(key) ^ Integer.MIN_VALUE;
+
+            // The first distinct key whose fingerprint is GTE the probe.
+            int low = 0;
+            int high = ndistinct;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                final int fp = getInt(a, fprintsOff + mid * Bytes.SIZEOF_INT)
+                        ^ Integer.MIN_VALUE;
+                if (fp < fk) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            // Compare the full keys only for the fingerprint hits.
+            int j = low;
+            for (; j < ndistinct; j++) {
+
+                final int fp = getInt(a, fprintsOff + j * Bytes.SIZEOF_INT)
+                        ^ Integer.MIN_VALUE;
+
+                if (fp != fk)
+                    break;
+
+                final int cmp = compareKey(j, key);
+
+                if (cmp == 0) {
+                    // Found: the first key in the run.
+                    return firstIndexOf(j);
+                }
+
+                if (cmp > 0)
+                    break;
+
+            }
+
+            // Not found.
+            return -((j == ndistinct ? size : firstIndexOf(j)) + 1);
+
+        }
+
+        /**
+         * Compare a distinct key with a probe key having the same fingerprint.
+         *
+         * @return A value LT, EQ or GT ZERO as the distinct key is LT, EQ or
+         *         GT the probe key.
+         */
+        private int compareKey(final int j, final byte[] key) {
+
+            final int alen = distinctLength(j);
+
+            if (alen <= FPLEN || key.length <= FPLEN) {
+
+                /*
+                 * The fingerprints are the same and cover the shorter key, so
+                 * the shorter key is a prefix of the longer key.
+                 */
+                return alen - key.length;
+
+            }
+
+            // The offset of the bytes after the fingerprint.
+            final int p = len >= 0 ? tailsOff + j * tailLen : keysOff
+                    + getInt(a, tailsOff + j * Bytes.SIZEOF_INT) + FPLEN;
+
+            final int m = Math.min(alen, key.length) - FPLEN;
+
+            for (int i = 0; i < m; i++) {
+
+                final int x = a[p + i] & 0xff;
+                final int y = key[FPLEN + i] & 0xff;
+
+                if (x != y)
+                    return x - y;
+
+            }
+
+            return alen - key.length;
+
+        }
+
+        static private int getInt(final byte[] b, final int off) {
+
+            return (b[off] << 24)//
+                    | ((b[off + 1] & 0xff) << 16)//
+                    | ((b[off + 2] & 0xff) << 8)//
+                    | (b[off + 3] & 0xff);
+
+        }
+
+        static private long getLong(final byte[] b, final int off) {
+
+            return ((long) getInt(b, off) << 32)
+                    | (getInt(b, off + 4) & 0xffffffffL);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,649 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.btree.raba.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.codec.FrontCodedRabaCoder.DefaultFrontCodedRabaCoder;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.Bytes;
+
+/**
+ * Coder for B+Tree keys which all have the same length, such as the keys of
+ * the statement indices when all IVs are term identifiers. The prefix shared
+ * by all keys is stored once and the remainder of each key (the suffix) is
+ * stored uncompressed at a fixed stride. This gives up some of the
+ * compression of front-coding, but {@link IRaba#search(byte[])} becomes a
+ * plain binary search over the suffixes with no decoding, comparing eight
+ * bytes at a time, and {@link IRaba#get(int)} is a pair of array copies.
+ * <p>
+ * When the keys do not all have the same length, the record is coded using a
+ * delegate coder instead (by default a {@link DefaultFrontCodedRabaCoder}).
+ * This coder may therefore be used for any index whose keys are
+ * <em>mostly</em> fixed length. See {@link IndexMetadata.Options#LEAF_KEYS_CODER}.
+ *
+ * <h2>Binary Format</h2>
+ *
+ * <pre>
+ * version   : byte
+ * type      : byte
+ * </pre>
+ *
+ * followed, if type is {@link #TYPE_FIXED}, by
+ *
+ * <pre>
+ * size      : int32
+ * len       : int32
+ * prefixLen : int32
+ * prefix    : byte[prefixLen]
+ * suffixes  : size * (len - prefixLen)
+ * </pre>
+ *
+ * and otherwise by the record coded by the delegate coder.
+ */
+public class FixedLengthKeyRabaCoder implements IRabaCoder, Externalizable {
+
+    private static final long serialVersionUID = -3329618412227232187L;
+
+    private static final byte VERSION0 = 0x00;
+
+    /** The keys are coded at a fixed stride. */
+    private static final byte TYPE_FIXED = 0x00;
+
+    /** The keys are coded by the delegate coder. */
+    private static final byte TYPE_DELEGATE = 0x01;
+
+    /**
+     * The coder used when the keys do not all have the same length.
+     */
+    private IRabaCoder delegate;
+
+    @Override
+    final public boolean isKeyCoder() {
+
+        return true;
+
+    }
+
+    @Override
+    final public boolean isValueCoder() {
+
+        return false;
+
+    }
+
+    @Override
+    public boolean isDuplicateKeys() {
+
+        return false;
+
+    }
+
+    /**
+     * The coder used when the keys do not all have the same length.
+     */
+    final public IRabaCoder getDelegate() {
+
+        return delegate;
+
+    }
+
+    /**
+     * Uses a {@link DefaultFrontCodedRabaCoder} when the keys do not all have
+     * the same length. This is also the de-serialization ctor.
+     */
+    public FixedLengthKeyRabaCoder() {
+
+        this(DefaultFrontCodedRabaCoder.INSTANCE);
+
+    }
+
+    /**
+     * @param delegate
+     *            The coder used when the keys do not all have the same
+     *            length. It must be a key coder which does not allow
+     *            duplicate keys.
+     */
+    public FixedLengthKeyRabaCoder(final IRabaCoder delegate) {
+
+        if (delegate == null)
+            throw new IllegalArgumentException();
+
+        if (!delegate.isKeyCoder() || delegate.isDuplicateKeys())
+            throw new IllegalArgumentException();
+
+        this.delegate = delegate;
+
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+        out.writeByte(VERSION0);
+
+        out.writeObject(delegate);
+
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        final byte version = in.readByte();
+        switch (version) {
+        case VERSION0:
+            break;
+        default:
+            throw new IOException("Unknown version: " + version);
+        }
+
+        delegate = (IRabaCoder) in.readObject();
+
+    }
+
+    /** The size of the version field. */
+    static private final int SIZEOF_VERSION = Bytes.SIZEOF_BYTE;
+    /** The size of the type field. */
+    static private final int SIZEOF_TYPE = Bytes.SIZEOF_BYTE;
+
+    /** The byte offset to the version identifier. */
+    static private final int O_VERSION = 0;
+    /** The byte offset to the type field. */
+    static private final int O_TYPE = O_VERSION + SIZEOF_VERSION;
+    /** The byte offset to the #of entries (fixed) or the delegate record. */
+    static private final int O_SIZE = O_TYPE + SIZEOF_TYPE;
+    /** The byte offset to the key length. */
+    static private final int O_LEN = O_SIZE + Bytes.SIZEOF_INT;
+    /** The byte offset to the prefix length. */
+    static private final int O_PREFIX_LEN = O_LEN + Bytes.SIZEOF_INT;
+    /** The byte offset to the prefix. */
+    static private final int O_PREFIX = O_PREFIX_LEN + Bytes.SIZEOF_INT;
+
+    @Override
+    public ICodedRaba encodeLive(final IRaba raba, final DataOutputBuffer buf) {
+
+        if (raba == null)
+            throw new IllegalArgumentException();
+
+        if (!raba.isKeys())
+            throw new UnsupportedOperationException("Must be keys.");
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        final int size = raba.size();
+
+        // The key length and whether all keys have that length.
+        final int len = size == 0 ? 0 : raba.length(0);
+        boolean fixed = true;
+        for (int i = 1; i < size; i++) {
+            if (raba.length(i) != len) {
+                fixed = false;
+                break;
+            }
+        }
+
+        // The byte offset of the origin of the coded record into the buffer.
+        final int O_origin = buf.pos();
+
+        buf.ensureFree(SIZEOF_VERSION + SIZEOF_TYPE);
+        buf.putByte(VERSION0);
+        buf.putByte(fixed ? TYPE_FIXED : TYPE_DELEGATE);
+
+        if (!fixed) {
+
+            final ICodedRaba coded = delegate.encodeLive(raba, buf);
+
+            final AbstractFixedByteArrayBuffer slice = buf.slice(O_origin,
+                    buf.pos() - O_origin);
+
+            return new DelegateCodedRabaImpl(slice, coded);
+
+        }
+
+        /*
+         * The keys are ordered, so the prefix shared by all keys is the
+         * prefix shared by the first and the last key.
+         */
+        final byte[] first = size == 0 ? null : raba.get(0);
+        int prefixLen = 0;
+        if (size > 1) {
+            final byte[] last = raba.get(size - 1);
+            while (prefixLen < len && first[prefixLen] == last[prefixLen])
+                prefixLen++;
+        }
+
+        final int stride = len - prefixLen;
+
+        buf.ensureFree(3 * Bytes.SIZEOF_INT + prefixLen + size * stride);
+
+        assert buf.pos() == O_SIZE + O_origin;
+        buf.putInt(size);
+
+        assert buf.pos() == O_LEN + O_origin;
+        buf.putInt(len);
+
+        assert buf.pos() == O_PREFIX_LEN + O_origin;
+        buf.putInt(prefixLen);
+
+        assert buf.pos() == O_PREFIX + O_origin;
+        if (prefixLen > 0)
+            buf.put(first, 0, prefixLen);
+
+        for (int i = 0; i < size; i++) {
+
+            final byte[] a = i == 0 ? first : raba.get(i);
+
+            buf.put(a, prefixLen, stride);
+
+        }
+
+        final AbstractFixedByteArrayBuffer slice = buf.slice(//
+                O_origin, buf.pos() - O_origin);
+
+        return new CodedRabaImpl(slice);
+
+    }
+
+    @Override
+    public AbstractFixedByteArrayBuffer encode(final IRaba raba,
+            final DataOutputBuffer buf) {
+
+        return encodeLive(raba, buf).data();
+
+    }
+
+    @Override
+    public ICodedRaba decode(final AbstractFixedByteArrayBuffer data) {
+
+        final byte version = data.getByte(O_VERSION);
+
+        if (version != VERSION0)
+            throw new RuntimeException("Unknown version: " + version);
+
+        final byte type = data.getByte(O_TYPE);
+
+        switch (type) {
+        case TYPE_FIXED:
+            return new CodedRabaImpl(data);
+        case TYPE_DELEGATE:
+            return new DelegateCodedRabaImpl(data, delegate.decode(data.slice(
+                    O_SIZE, data.len() - O_SIZE)));
+        default:
+            throw new RuntimeException("Unknown type: " + type);
+        }
+
+    }
+
+    /**
+     * Class provides in place access to the fixed stride coded keys.
+     */
+    private static class CodedRabaImpl extends AbstractCodedRaba {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        /** The backing array. */
+        private final byte[] a;
+
+        /** The #of keys. */
+        private final int size;
+
+        /** The length of each key. */
+        private final int len;
+
+        /** The length of the shared prefix. */
+        private final int prefixLen;
+
+        /** The length of each suffix. */
+        private final int stride;
+
+        /** The offset of the prefix in the backing array. */
+        private final int prefixOff;
+
+        /** The offset of the first suffix in the backing array. */
+        private final int suffixOff;
+
+        public CodedRabaImpl(final AbstractFixedByteArrayBuffer data) {
+
+            this.data = data;
+            this.a = data.array();
+            this.size = data.getInt(O_SIZE);
+            this.len = data.getInt(O_LEN);
+            this.prefixLen = data.getInt(O_PREFIX_LEN);
+            this.stride = len - prefixLen;
+            this.prefixOff = data.off() + O_PREFIX;
+            this.suffixOff = prefixOff + prefixLen;
+
+            if (size < 0 || len < 0 || prefixLen < 0 || stride < 0)
+                throw new RuntimeException();
+
+        }
+
+        @Override
+        final public AbstractFixedByteArrayBuffer data() {
+
+            return data;
+
+        }
+
+        @Override
+        public boolean isKeys() {
+
+            return true;
+
+        }
+
+        @Override
+        final public int capacity() {
+
+            return size;
+
+        }
+
+        @Override
+        final public int size() {
+
+            return size;
+
+        }
+
+        @Override
+        final public boolean isEmpty() {
+
+            return size == 0;
+
+        }
+
+        @Override
+        final public boolean isFull() {
+
+            return true;
+
+        }
+
+        protected void rangeCheck(final int index) {
+
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException();
+
+        }
+
+        @Override
+        public boolean isNull(final int index) {
+
+            rangeCheck(index);
+
+            return false;
+
+        }
+
+        @Override
+        public int length(final int index) {
+
+            rangeCheck(index);
+
+            return len;
+
+        }
+
+        @Override
+        public byte[] get(final int index) {
+
+            rangeCheck(index);
+
+            final byte[] b = new byte[len];
+
+            System.arraycopy(a, prefixOff, b, 0, prefixLen);
+
+            System.arraycopy(a, suffixOff + index * stride, b, prefixLen,
+                    stride);
+
+            return b;
+
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+
+            rangeCheck(index);
+
+            try {
+
+                os.write(a, prefixOff, prefixLen);
+
+                os.write(a, suffixOff + index * stride, stride);
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            return len;
+
+        }
+
+        /*
+         * Search
+         */
+
+        @Override
+        public int search(final byte[] key) {
+
+            if (key == null)
+                throw new IllegalArgumentException();
+
+            // Compare the key with the shared prefix.
+            final int n = Math.min(prefixLen, key.length);
+            for (int i = 0, j = prefixOff; i < n; i++, j++) {
+                final int x = key[i] & 0xff;
+                final int y = a[j] & 0xff;
+                if (x != y) {
+                    // before all keys -or- after all keys.
+                    return x < y ? -1 : -(size + 1);
+                }
+            }
+
+            if (key.length < prefixLen) {
+                // the key is a prefix of the shared prefix.
+                return -1;
+            }
+
+            final int keyStride = key.length - prefixLen;
+
+            int low = 0;
+            int high = size - 1;
+
+            while (low <= high) {
+
+                final int mid = (low + high) >>> 1;
+
+                final int cmp = compareSuffix(suffixOff + mid * stride, key,
+                        keyStride);
+
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    // Found.
+                    return mid;
+                }
+
+            }
+
+            // Not found.
+            return -(low + 1);
+
+        }
+
+        /**
+         * Compare the suffix at the given offset in the backing array with the
+         * suffix of the key. The common length is compared eight bytes at a
+         * time as unsigned big-endian <code>long</code>s.
+         *
+         * @return A value LT, EQ or GT ZERO as the coded suffix is LT, EQ or GT
+         *         the suffix of the key.
+         */
+        private int compareSuffix(int p, final byte[] key, final int keyStride) {
+
+            int q = prefixLen;
+
+            final int m = Math.min(stride, keyStride);
+
+            final int pend = p + (m & ~7);
+
+            for (; p < pend; p += 8, q += 8) {
+
+                final long x = getLong(a, p);
+                final long y = getLong(key, q);
+
+                if (x != y) {
+                    // unsigned comparison.
+                    return (x + Long.MIN_VALUE) < (y + Long.MIN_VALUE) ? -1 : 1;
+                }
+
+            }
+
+            for (int i = m & 7; i > 0; i--, p++, q++) {
+
+                final int x = a[p] & 0xff;
+                final int y = key[q] & 0xff;
+
+                if (x != y)
+                    return x - y;
+
+            }
+
+            return stride - keyStride;
+
+        }
+
+        static private long getLong(final byte[] b, final int off) {
+
+            return ((long) b[off] << 56)//
+                    | ((b[off + 1] & 0xffL) << 48)//
+                    | ((b[off + 2] & 0xffL) << 40)//
+                    | ((b[off + 3] & 0xffL) << 32)//
+                    | ((b[off + 4] & 0xffL) << 24)//
+                    | ((b[off + 5] & 0xffL) << 16)//
+                    | ((b[off + 6] & 0xffL) << 8)//
+                    | (b[off + 7] & 0xffL);
+
+        }
+
+    }
+
+    /**
+     * Wraps the {@link ICodedRaba} for a record coded by the delegate coder
+     * in order to return the entire record, including the version and type
+     * fields, from {@link #data()}.
+     */
+    private static class DelegateCodedRabaImpl extends AbstractCodedRaba {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        private final ICodedRaba delegate;
+
+        DelegateCodedRabaImpl(final AbstractFixedByteArrayBuffer data,
+                final ICodedRaba delegate) {
+
+            this.data = data;
+
+            this.delegate = delegate;
+
+        }
+
+        @Override
+        public AbstractFixedByteArrayBuffer data() {
+            return data;
+        }
+
+        @Override
+        public boolean isKeys() {
+            return delegate.isKeys();
+        }
+
+        @Override
+        public int capacity() {
+            return delegate.capacity();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public boolean isFull() {
+            return delegate.isFull();
+        }
+
+        @Override
+        public boolean isNull(final int index) {
+            return delegate.isNull(index);
+        }
+
+        @Override
+        public int length(final int index) {
+            return delegate.length(index);
+        }
+
+        @Override
+        public byte[] get(final int index) {
+            return delegate.get(index);
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+            return delegate.copy(index, os);
+        }
+
+        @Override
+        public Iterator<byte[]> iterator() {
+            return delegate.iterator();
+        }
+
+        @Override
+        public int search(final byte[] searchKey) {
+            return delegate.search(searchKey);
+        }
+
+    }
+
+}
@@ -850,6 +850,41 @@ public class FusedView implements IIndex, ILocalBTreeView {//, IValueAge {
         
         return null;
 
+    }
+
+    /**
+     * Per {@link AbstractBTree#lookup(byte[][], byte[][], boolean[])} but
+     * processes the {@link AbstractBTree}s in the view in their declared
+     * sequence. A key is not looked up in the remaining sources once an index
+     * entry has been found for it, even if that entry is marked as deleted.
+     */
+    @Override
+    final public int lookup(final byte[][] keys, final byte[][] vals) {
+
+        if (keys == null)
+            throw new IllegalArgumentException();
+
+        if (vals == null || vals.length < keys.length)
+            throw new IllegalArgumentException();
+
+        for (int i = 0; i < keys.length; i++) {
+
+            vals[i] = null;
+
+        }
+
+        final boolean[] resolved = new boolean[keys.length];
+
+        int nfound = 0;
+
+        for (AbstractBTree t : sources) {
+
+            nfound += t.lookup(keys, vals, resolved);
+
+        }
+
+        return nfound;
+
     }
     
 	/**
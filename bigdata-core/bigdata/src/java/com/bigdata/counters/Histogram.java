@@ -0,0 +1,313 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.counters;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values using log-linear buckets
+ * (in the style of HdrHistogram). Each power of two is divided into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so the value reported for a
+ * percentile is within 12.5% of the recorded value. Values less than
+ * {@value #SUB_BUCKETS} are recorded exactly.
+ * <p>
+ * Recording a value is a few atomic increments and does not allocate, so a
+ * {@link Histogram} may be updated on hot code paths. The state reported by
+ * the accessors is not an atomic snapshot when there are concurrent writers.
+ */
+public class Histogram {
+
+    /**
+     * The #of bits used to index the linear sub-buckets within each power of
+     * two.
+     */
+    private static final int SUB_BITS = 3;
+
+    /**
+     * The #of linear sub-buckets within each power of two.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The #of buckets (enough for any non-negative long).
+     */
+    private static final int NBUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NBUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Return the index of the bucket for a value.
+     */
+    static int indexOf(final long v) {
+
+        if (v < SUB_BUCKETS)
+            return (int) v;
+
+        // The index of the most significant bit (at least SUB_BITS).
+        final int msb = 63 - Long.numberOfLeadingZeros(v);
+
+        final int shift = msb - SUB_BITS;
+
+        // The top SUB_BITS+1 bits of the value, less the leading one.
+        final int sub = (int) (v >>> shift) - SUB_BUCKETS;
+
+        return (shift + 1) * SUB_BUCKETS + sub;
+
+    }
+
+    /**
+     * Return the smallest value which is recorded in a bucket.
+     */
+    static long lowerBound(final int index) {
+
+        if (index < SUB_BUCKETS)
+            return index;
+
+        final int shift = index / SUB_BUCKETS - 1;
+
+        final long sub = index % SUB_BUCKETS;
+
+        return (SUB_BUCKETS + sub) << shift;
+
+    }
+
+    /**
+     * Return the largest value which is recorded in a bucket.
+     */
+    static long upperBound(final int index) {
+
+        if (index + 1 == NBUCKETS)
+            return Long.MAX_VALUE;
+
+        return lowerBound(index + 1) - 1;
+
+    }
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     */
+    public void add(long v) {
+
+        if (v < 0)
+            v = 0;
+
+        counts.incrementAndGet(indexOf(v));
+
+        count.incrementAndGet();
+
+        sum.addAndGet(v);
+
+        long m;
+        while (v > (m = max.get())) {
+            if (max.compareAndSet(m, v))
+                break;
+        }
+
+    }
+
+    /**
+     * Add the values recorded by another histogram into this histogram.
+     */
+    public void add(final Histogram o) {
+
+        if (o == this)
+            throw new IllegalArgumentException();
+
+        for (int i = 0; i < NBUCKETS; i++) {
+
+            final long n = o.counts.get(i);
+
+            if (n != 0)
+                counts.addAndGet(i, n);
+
+        }
+
+        count.addAndGet(o.count.get());
+
+        sum.addAndGet(o.sum.get());
+
+        final long v = o.max.get();
+
+        long m;
+        while (v > (m = max.get())) {
+            if (max.compareAndSet(m, v))
+                break;
+        }
+
+    }
+
+    /**
+     * The #of recorded values.
+     */
+    public long getCount() {
+
+        return count.get();
+
+    }
+
+    /**
+     * The largest recorded value (zero if nothing was recorded).
+     */
+    public long getMax() {
+
+        return max.get();
+
+    }
+
+    /**
+     * The mean of the recorded values (zero if nothing was recorded).
+     */
+    public double getMean() {
+
+        final long n = count.get();
+
+        return n == 0 ? 0d : sum.get() / (double) n;
+
+    }
+
+    /**
+     * The fraction of the recorded values which were zero.
+     */
+    public double getZeroFraction() {
+
+        final long n = count.get();
+
+        return n == 0 ? 0d : counts.get(0) / (double) n;
+
+    }
+
+    /**
+     * Return an upper bound on the value at the given percentile. This is the
+     * largest value which could have been recorded in the bucket containing
+     * the value at that percentile (but not more than the largest recorded
+     * value).
+     *
+     * @param percentile
+     *            The percentile in [0:100].
+     *
+     * @return The value (zero if nothing was recorded).
+     */
+    public long getValueAtPercentile(final double percentile) {
+
+        if (percentile < 0d || percentile > 100d)
+            throw new IllegalArgumentException();
+
+        final long n = count.get();
+
+        if (n == 0)
+            return 0L;
+
+        final long target = Math.max(1L,
+                (long) Math.ceil((percentile / 100d) * n));
+
+        final long m = max.get();
+
+        long total = 0;
+
+        for (int i = 0; i < NBUCKETS; i++) {
+
+            total += counts.get(i);
+
+            if (total >= target)
+                return Math.min(upperBound(i), m);
+
+        }
+
+        return m;
+
+    }
+
+    /**
+     * Attach counters reporting the state of this histogram to the
+     * {@link CounterSet}.
+     *
+     * @param counterSet
+     *            The counters will be attached to this {@link CounterSet}.
+     */
+    public void attachCounters(final CounterSet counterSet) {
+
+        counterSet.addCounter("count", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(getCount());
+            }
+        });
+
+        counterSet.addCounter("mean", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                setValue(getMean());
+            }
+        });
+
+        counterSet.addCounter("p50", new Percentile(50d));
+
+        counterSet.addCounter("p90", new Percentile(90d));
+
+        counterSet.addCounter("p99", new Percentile(99d));
+
+        counterSet.addCounter("p999", new Percentile(99.9d));
+
+        counterSet.addCounter("max", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(getMax());
+            }
+        });
+
+    }
+
+    private class Percentile extends Instrument<Long> {
+
+        private final double percentile;
+
+        Percentile(final double percentile) {
+            this.percentile = percentile;
+        }
+
+        @Override
+        public void sample() {
+            setValue(getValueAtPercentile(percentile));
+        }
+
+    }
+
+    @Override
+    public String toString() {
+
+        return "{count=" + getCount() + ",mean=" + (long) getMean() + ",p50="
+                + getValueAtPercentile(50d) + ",p90="
+                + getValueAtPercentile(90d) + ",p99="
+                + getValueAtPercentile(99d) + ",max=" + getMax() + "}";
+
+    }
+
+}
@@ -131,6 +131,17 @@ public class CounterSetFormat extends FileFormat implements Iterable<CounterSetF
            Arrays.asList("html")// known-file-extensions
    );
 
+    /**
+     * OpenMetrics text exposition format (as scraped by Prometheus) using
+     * <code>application/openmetrics-text</code> and <code>UTF-8</code>.
+     */
+    public static final CounterSetFormat OPENMETRICS = new CounterSetFormat(//
+            "application/openmetrics-text",//
+            Arrays.asList("application/openmetrics-text"),//
+            Charset.forName("UTF-8"),// charset
+            Arrays.asList("om")// known-file-extensions
+    );
+
     /**
      * Registers the specified format.
      */
@@ -145,6 +156,7 @@ public class CounterSetFormat extends FileFormat implements Iterable<CounterSetF
         register(HTML);
         register(TEXT);
         register(XML);
+        register(OPENMETRICS);
         
     }
     
@@ -0,0 +1,380 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+package com.bigdata.counters.render;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.bigdata.counters.AbstractStatisticsCollector;
+import com.bigdata.counters.ICounter;
+import com.bigdata.counters.ICounterSet;
+import com.bigdata.counters.query.ICounterSelector;
+import com.bigdata.counters.query.URLQueryModel;
+
+/**
+ * {@link IRenderer} for the OpenMetrics text exposition format
+ * (<code>application/openmetrics-text</code>), as scraped by Prometheus.
+ * <p>
+ * Each selected counter having a numeric or boolean value is written as one
+ * sample. Counters with other values (e.g., strings) are ignored. The metric
+ * name is formed from the path of the counter by converting each path
+ * component to lower case with underscores and prefixing {@value #PREFIX}.
+ * Path components which name an instance of something (the host, an index, a
+ * garbage collector, etc.) would make the metric names unbounded, so they are
+ * reported as labels instead. For example,
+ *
+ * <pre>
+ * /Journal/Index Manager/kb.spo.SPO/btree/nodesRead
+ * </pre>
+ *
+ * is reported as
+ *
+ * <pre>
+ * bigdata_journal_index_manager_btree_nodes_read{index="kb.spo.SPO"}
+ * </pre>
+ *
+ * The path component which is reported as a label is the child of a path
+ * component named in {@link #COLLECTIONS} (and the first path component when
+ * it is the name of this host).
+ * <p>
+ * The counters are read from their instruments without taking any locks. The
+ * samples are buffered only so they may be grouped by metric, as required by
+ * the format. The metric type is always <code>unknown</code> since the
+ * counters do not declare whether they are monotonic.
+ */
+public class OpenMetricsRenderer implements IRenderer {
+
+    /**
+     * The prefix for the metric names.
+     */
+    public static final String PREFIX = "bigdata";
+
+    /**
+     * The names of the path components whose children name instances and the
+     * names of the labels used to report those children.
+     */
+    public static final Map<String, String> COLLECTIONS;
+
+    static {
+
+        final Map<String, String> m = new LinkedHashMap<String, String>();
+
+        m.put("Index Manager", "index");
+        m.put("Garbage Collectors", "gc");
+        m.put("Memory Pools", "pool");
+        m.put("QueryShapes", "shape");
+        m.put("operators", "operator");
+
+        COLLECTIONS = Collections.unmodifiableMap(m);
+
+    }
+
+    /**
+     * Describes the state of the controller.
+     */
+    private final URLQueryModel model;
+
+    /**
+     * Selects the counters to be rendered.
+     */
+    private final ICounterSelector counterSelector;
+
+    /**
+     * @param model
+     *            Describes the state of the controller (e.g., as parsed from
+     *            the URL query parameters). The {@link URLQueryModel#depth} and
+     *            {@link URLQueryModel#pattern} restrict the counters which are
+     *            reported.
+     * @param counterSelector
+     *            Selects the counters to be rendered.
+     */
+    public OpenMetricsRenderer(final URLQueryModel model,
+            final ICounterSelector counterSelector) {
+
+        if (model == null)
+            throw new IllegalArgumentException();
+
+        if (counterSelector == null)
+            throw new IllegalArgumentException();
+
+        this.model = model;
+
+        this.counterSelector = counterSelector;
+
+    }
+
+    @Override
+    public void render(final Writer w) throws IOException {
+
+        @SuppressWarnings("rawtypes")
+        final ICounter[] counters = counterSelector.selectCounters(
+                model.depth, model.pattern, model.fromTime, model.toTime,
+                model.period, false/* historyRequired */);
+
+        // The samples for each metric (metric name => lines).
+        final Map<String, StringBuilder> families = new LinkedHashMap<String, StringBuilder>();
+
+        // The samples already written (name and labels).
+        final Set<String> series = new HashSet<String>();
+
+        final StringBuilder name = new StringBuilder();
+
+        final StringBuilder labels = new StringBuilder();
+
+        for (@SuppressWarnings("rawtypes") ICounter c : counters) {
+
+            final String value = formatValue(c.getInstrument().getValue());
+
+            if (value == null)
+                continue;
+
+            name.setLength(0);
+
+            labels.setLength(0);
+
+            getMetric(c.getPath(), name, labels);
+
+            final String metric = name.toString();
+
+            final String sample = labels.length() == 0 ? metric : metric
+                    + "{" + labels + "}";
+
+            if (!series.add(sample)) {
+
+                // Two paths were mapped onto the same sample.
+                continue;
+
+            }
+
+            StringBuilder sb = families.get(metric);
+
+            if (sb == null) {
+
+                families.put(metric, sb = new StringBuilder());
+
+            }
+
+            sb.append(sample).append(' ').append(value).append('\n');
+
+        }
+
+        for (Map.Entry<String, StringBuilder> e : families.entrySet()) {
+
+            w.write("# TYPE ");
+            w.write(e.getKey());
+            w.write(" unknown\n");
+            w.write(e.getValue().toString());
+
+        }
+
+        w.write("# EOF\n");
+
+    }
+
+    /**
+     * Map the path of a counter onto a metric name and labels.
+     *
+     * @param path
+     *            The path of the counter.
+     * @param name
+     *            The metric name is appended to this buffer.
+     * @param labels
+     *            The labels (if any) are appended to this buffer (without the
+     *            enclosing braces).
+     */
+    static void getMetric(final String path, final StringBuilder name,
+            final StringBuilder labels) {
+
+        final String[] a = path.split(ICounterSet.pathSeparator);
+
+        name.append(PREFIX);
+
+        // The name of the label for the next path component (if any).
+        String label = null;
+
+        boolean first = true;
+
+        // Note: The last component is the name of the counter.
+        final int last = a.length - 1;
+
+        for (int i = 0; i < a.length; i++) {
+
+            final String s = a[i];
+
+            if (s.length() == 0)
+                continue;
+
+            if (first && i < last
+                    && s.equals(AbstractStatisticsCollector.fullyQualifiedHostName)) {
+
+                label = "host";
+
+            }
+
+            first = false;
+
+            if (label != null && i < last) {
+
+                if (labels.length() > 0)
+                    labels.append(',');
+
+                labels.append(label).append("=\"");
+
+                escapeLabelValue(s, labels);
+
+                labels.append('"');
+
+                label = null;
+
+                continue;
+
+            }
+
+            name.append('_');
+
+            appendNameComponent(s, name);
+
+            label = COLLECTIONS.get(s);
+
+        }
+
+    }
+
+    /**
+     * Append a path component to a metric name. camelCase is converted to
+     * snake_case, letters are converted to lower case and any run of
+     * characters which may not appear in a metric name is replaced by a single
+     * underscore.
+     */
+    static void appendNameComponent(final String s, final StringBuilder sb) {
+
+        final int start = sb.length();
+
+        // The prior character of the path component.
+        char prior = ' ';
+
+        for (int i = 0; i < s.length(); i++) {
+
+            final char ch = s.charAt(i);
+
+            if (ch >= 'a' && ch <= 'z' || ch >= '0' && ch <= '9') {
+
+                sb.append(ch);
+
+            } else if (ch >= 'A' && ch <= 'Z') {
+
+                if (prior >= 'a' && prior <= 'z' || prior >= '0'
+                        && prior <= '9')
+                    sb.append('_');
+
+                sb.append(Character.toLowerCase(ch));
+
+            } else if (sb.length() > start && sb.charAt(sb.length() - 1) != '_') {
+
+                sb.append('_');
+
+            }
+
+            prior = ch;
+
+        }
+
+        // Drop a trailing underscore.
+        if (sb.length() > start && sb.charAt(sb.length() - 1) == '_')
+            sb.setLength(sb.length() - 1);
+
+    }
+
+    /**
+     * Append a label value, escaping backslash, double quote and newline.
+     */
+    static void escapeLabelValue(final String s, final StringBuilder sb) {
+
+        for (int i = 0; i < s.length(); i++) {
+
+            final char ch = s.charAt(i);
+
+            switch (ch) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                sb.append(ch);
+            }
+
+        }
+
+    }
+
+    /**
+     * Format the value of a counter as an OpenMetrics number.
+     *
+     * @return The formatted value -or- <code>null</code> if the value is not
+     *         a number or a boolean.
+     */
+    static String formatValue(final Object v) {
+
+        if (v instanceof Double || v instanceof Float) {
+
+            final double d = ((Number) v).doubleValue();
+
+            if (Double.isNaN(d))
+                return "NaN";
+
+            if (Double.isInfinite(d))
+                return d > 0 ? "+Inf" : "-Inf";
+
+            return Double.toString(d);
+
+        }
+
+        if (v instanceof Number) {
+
+            return v.toString();
+
+        }
+
+        if (v instanceof Boolean) {
+
+            return ((Boolean) v).booleanValue() ? "1" : "0";
+
+        }
+
+        return null;
+
+    }
+
+}
@@ -28,6 +28,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.counters.render;
 
+import com.bigdata.counters.format.CounterSetFormat;
 import com.bigdata.counters.query.ICounterSelector;
 import com.bigdata.counters.query.ReportEnum;
 import com.bigdata.counters.query.URLQueryModel;
@@ -91,6 +92,11 @@ public class RendererFactory {
 
             return new XMLRenderer(model, counterSelector, charset);
 
+        } else if (mimeType.startsWith(CounterSetFormat.OPENMETRICS
+                .getDefaultMIMEType())) {
+
+            return new OpenMetricsRenderer(model, counterSelector);
+
         } else {
 
             throw new UnsupportedOperationException("mimeType=" + mimeType);
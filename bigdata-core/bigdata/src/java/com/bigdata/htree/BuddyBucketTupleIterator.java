@@ -8,6 +8,7 @@ import com.bigdata.btree.ITuple;
 import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.LeafTupleIterator;
 import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.codec.FingerprintRabaCoderDupKeys;
 import com.bigdata.util.BytesUtil;
 
 /**
@@ -30,6 +31,12 @@ class BuddyBucketTupleIterator<E> implements
 	 * constructor to the first slot and the tuple at that slot is pre-fetched.
 	 */
 	private int index;
+	/**
+	 * The index of the first slot having the desired key (already verified by
+	 * the search on the bucket page) or <code>-1</code> if there is no such
+	 * slot.
+	 */
+	private final int firstIndex;
     private int lastVisited = -1;
     private final AbstractTuple<E> tuple;
 
@@ -61,7 +68,7 @@ class BuddyBucketTupleIterator<E> implements
 		lastSlot = bucket.getKeys().size();//slotsOnPage;
 
 		// Lookup first slot to test.
-		index = bucket.lookupIndex(key);
+		index = firstIndex = bucket.lookupIndex(key);
 
 		tuple = new Tuple<E>(bucket.htree, IRangeQuery.DEFAULT);
 		
@@ -98,7 +105,7 @@ class BuddyBucketTupleIterator<E> implements
 //	            }
 
 				if (!keys.isNull(index)) {
-					if (BytesUtil.bytesEqual(key, keys.get(index))) {
+					if (index == firstIndex || isMatch(keys, index)) {
 						// entry @ index is next to visit.
 						return true;
 					}
@@ -114,6 +121,25 @@ class BuddyBucketTupleIterator<E> implements
         
     }
 
+    /**
+     * Return <code>true</code> iff the key at the given index (which follows
+     * the first matching slot) is equal to the desired key. When the keys
+     * are coded by the {@link FingerprintRabaCoderDupKeys}, this is decided
+     * from the run bit vector without comparing the keys.
+     */
+    private boolean isMatch(final IRaba keys, final int index) {
+
+        if (keys instanceof FingerprintRabaCoderDupKeys.CodedRabaImpl) {
+
+            return ((FingerprintRabaCoderDupKeys.CodedRabaImpl) keys)
+                    .isDuplicate(index);
+
+        }
+
+        return BytesUtil.bytesEqual(key, keys.get(index));
+
+    }
+
     public ITuple<E> next() {
 
         if (!hasNext()) {
@@ -214,6 +214,16 @@ public class DataInputBuffer extends InputStream implements DataInput,
         
     }
     
+    /**
+     * The exclusive index of the last byte in the backing buffer having valid
+     * data.
+     */
+    public int getLimit() {
+        
+        return limit;
+        
+    }
+    
     /*
      * DataInput
      */
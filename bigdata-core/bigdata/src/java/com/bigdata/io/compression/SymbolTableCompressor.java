@@ -0,0 +1,556 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.io.compression;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bigdata.io.ByteArrayBuffer;
+
+/**
+ * A static symbol table compressor for short byte strings (in the spirit of
+ * FSST). The table maps up to {@value #MAX_SYMBOLS} one byte codes onto
+ * symbols of 1 to {@value #MAX_SYMBOL_LENGTH} bytes. A byte string is
+ * compressed by greedily replacing the longest symbol which matches at each
+ * position with its code. Bytes which are not covered by any symbol are
+ * written as an escape code followed by the literal byte.
+ * <p>
+ * Unlike a block compressor, each byte string is compressed independently, so
+ * a single value can be decompressed without decompressing its neighbors and
+ * short strings (URIs, short literals) still benefit from the shared table.
+ * The table is trained once on a sample of the data (see
+ * {@link #train(Iterable)}) and is immutable thereafter. The caller is
+ * responsible for storing the table with the data which was compressed using
+ * that table.
+ */
+public class SymbolTableCompressor implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum #of symbols in the table. The remaining code is reserved for
+     * the escape code.
+     */
+    public static final int MAX_SYMBOLS = 255;
+
+    /**
+     * The maximum length of a symbol in bytes.
+     */
+    public static final int MAX_SYMBOL_LENGTH = 8;
+
+    /**
+     * The escape code. The next byte is a literal byte.
+     */
+    private static final int ESCAPE = 255;
+
+    /**
+     * The #of passes made over the sample by {@link #train(Iterable)}.
+     */
+    private static final int GENERATIONS = 5;
+
+    /**
+     * Used to map byte strings onto {@link String}s (one char per byte) for
+     * use as hash keys during training.
+     */
+    private static final transient Charset ISO_8859_1 = Charset
+            .forName("ISO-8859-1");
+
+    /**
+     * The symbols indexed by their code.
+     */
+    private byte[][] symbols;
+
+    /**
+     * For each byte value, the codes of the symbols starting with that byte
+     * in order of decreasing symbol length.
+     */
+    private transient int[][] index;
+
+    /**
+     * De-serialization constructor.
+     */
+    public SymbolTableCompressor() {
+
+    }
+
+    /**
+     * @param symbols
+     *            The symbols (required). The code of each symbol is its index
+     *            in the array.
+     */
+    public SymbolTableCompressor(final byte[][] symbols) {
+
+        if (symbols == null)
+            throw new IllegalArgumentException();
+
+        if (symbols.length > MAX_SYMBOLS)
+            throw new IllegalArgumentException();
+
+        for (byte[] sym : symbols) {
+
+            if (sym == null || sym.length == 0
+                    || sym.length > MAX_SYMBOL_LENGTH)
+                throw new IllegalArgumentException();
+
+        }
+
+        this.symbols = symbols.clone();
+
+        init();
+
+    }
+
+    /**
+     * Build the {@link #index}.
+     */
+    private void init() {
+
+        @SuppressWarnings("unchecked")
+        final List<Integer>[] tmp = new List[256];
+
+        for (int code = 0; code < symbols.length; code++) {
+
+            final int b = symbols[code][0] & 0xff;
+
+            if (tmp[b] == null)
+                tmp[b] = new ArrayList<Integer>();
+
+            tmp[b].add(code);
+
+        }
+
+        index = new int[256][];
+
+        for (int b = 0; b < 256; b++) {
+
+            if (tmp[b] == null) {
+
+                index[b] = new int[0];
+
+                continue;
+
+            }
+
+            // longest symbol first.
+            Collections.sort(tmp[b], new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer o1, final Integer o2) {
+                    return symbols[o2].length - symbols[o1].length;
+                }
+            });
+
+            index[b] = new int[tmp[b].size()];
+
+            for (int i = 0; i < index[b].length; i++)
+                index[b][i] = tmp[b].get(i);
+
+        }
+
+    }
+
+    /**
+     * The #of symbols in the table.
+     */
+    public int getSymbolCount() {
+
+        return symbols.length;
+
+    }
+
+    /**
+     * Return a copy of the symbol having the given code.
+     */
+    public byte[] getSymbol(final int code) {
+
+        return symbols[code].clone();
+
+    }
+
+    /**
+     * Return the code of the longest symbol matching the data at the given
+     * offset -or- <code>-1</code> if no symbol matches.
+     */
+    private int match(final byte[] src, final int off, final int end) {
+
+        final int[] codes = index[src[off] & 0xff];
+
+        for (int code : codes) {
+
+            final byte[] sym = symbols[code];
+
+            if (sym.length > end - off)
+                continue;
+
+            int i = 1;
+
+            while (i < sym.length && sym[i] == src[off + i])
+                i++;
+
+            if (i == sym.length)
+                return code;
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Compress a byte string.
+     *
+     * @param src
+     *            The data.
+     * @param off
+     *            The offset of the first byte.
+     * @param len
+     *            The #of bytes.
+     * @param out
+     *            The compressed data are appended to this buffer.
+     */
+    public void compress(final byte[] src, final int off, final int len,
+            final ByteArrayBuffer out) {
+
+        final int end = off + len;
+
+        // worst case is two bytes per input byte.
+        out.ensureFree(len << 1);
+
+        int i = off;
+
+        while (i < end) {
+
+            final int code = match(src, i, end);
+
+            if (code == -1) {
+
+                out.putByte((byte) ESCAPE);
+
+                out.putByte(src[i]);
+
+                i++;
+
+            } else {
+
+                out.putByte((byte) code);
+
+                i += symbols[code].length;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Compress a byte string.
+     *
+     * @param src
+     *            The data.
+     *
+     * @return The compressed data.
+     */
+    public byte[] compress(final byte[] src) {
+
+        final ByteArrayBuffer out = new ByteArrayBuffer(src.length + 8);
+
+        compress(src, 0, src.length, out);
+
+        return out.toByteArray();
+
+    }
+
+    /**
+     * Decompress a byte string.
+     *
+     * @param src
+     *            The compressed data.
+     * @param off
+     *            The offset of the first byte of the compressed data.
+     * @param len
+     *            The #of bytes of compressed data.
+     * @param out
+     *            The decompressed data are appended to this buffer.
+     *
+     * @throws IllegalArgumentException
+     *             if the compressed data are not consistent with this table.
+     */
+    public void decompress(final byte[] src, final int off, final int len,
+            final ByteArrayBuffer out) {
+
+        final int end = off + len;
+
+        // typical expansion.
+        out.ensureFree(len << 1);
+
+        int i = off;
+
+        while (i < end) {
+
+            final int code = src[i++] & 0xff;
+
+            if (code == ESCAPE) {
+
+                if (i == end)
+                    throw new IllegalArgumentException("Truncated escape");
+
+                out.putByte(src[i++]);
+
+            } else {
+
+                if (code >= symbols.length)
+                    throw new IllegalArgumentException("Unknown code: "
+                            + code);
+
+                out.put(symbols[code]);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Decompress a byte string.
+     *
+     * @param src
+     *            The compressed data.
+     *
+     * @return The decompressed data.
+     */
+    public byte[] decompress(final byte[] src) {
+
+        final ByteArrayBuffer out = new ByteArrayBuffer(src.length << 1);
+
+        decompress(src, 0, src.length, out);
+
+        return out.toByteArray();
+
+    }
+
+    /**
+     * Train a symbol table on a sample. Each pass compresses the sample using
+     * the table from the previous pass and counts the symbols and escaped
+     * bytes which were used and the concatenations of adjacent symbols. The
+     * next table consists of the {@value #MAX_SYMBOLS} candidates having the
+     * greatest gain (frequency times length).
+     *
+     * @param sample
+     *            The sample (required).
+     *
+     * @return The trained table.
+     */
+    public static SymbolTableCompressor train(final Iterable<byte[]> sample) {
+
+        if (sample == null)
+            throw new IllegalArgumentException();
+
+        SymbolTableCompressor table = new SymbolTableCompressor(new byte[0][]);
+
+        for (int gen = 0; gen < GENERATIONS; gen++) {
+
+            final Map<String, long[]> counts = new HashMap<String, long[]>();
+
+            for (byte[] s : sample) {
+
+                String prev = null;
+
+                int i = 0;
+
+                while (i < s.length) {
+
+                    final int code = table.match(s, i, s.length);
+
+                    final int n = code == -1 ? 1 : table.symbols[code].length;
+
+                    final String sym = new String(s, i, n, ISO_8859_1);
+
+                    count(counts, sym);
+
+                    if (prev != null
+                            && prev.length() + n <= MAX_SYMBOL_LENGTH) {
+
+                        count(counts, prev + sym);
+
+                    }
+
+                    prev = sym;
+
+                    i += n;
+
+                }
+
+            }
+
+            table = new SymbolTableCompressor(select(counts));
+
+        }
+
+        return table;
+
+    }
+
+    private static void count(final Map<String, long[]> counts,
+            final String sym) {
+
+        final long[] n = counts.get(sym);
+
+        if (n == null) {
+
+            counts.put(sym, new long[] { 1L });
+
+        } else {
+
+            n[0]++;
+
+        }
+
+    }
+
+    /**
+     * Return the {@value #MAX_SYMBOLS} candidates with the greatest gain.
+     */
+    private static byte[][] select(final Map<String, long[]> counts) {
+
+        final List<Map.Entry<String, long[]>> a = new ArrayList<Map.Entry<String, long[]>>(
+                counts.entrySet());
+
+        Collections.sort(a, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(final Map.Entry<String, long[]> o1,
+                    final Map.Entry<String, long[]> o2) {
+                final long g1 = o1.getValue()[0] * o1.getKey().length();
+                final long g2 = o2.getValue()[0] * o2.getKey().length();
+                if (g1 != g2)
+                    return g1 < g2 ? 1 : -1;
+                // Note: Makes the table deterministic for a given sample.
+                return o1.getKey().compareTo(o2.getKey());
+            }
+        });
+
+        final int n = Math.min(MAX_SYMBOLS, a.size());
+
+        final byte[][] symbols = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            symbols[i] = a.get(i).getKey().getBytes(ISO_8859_1);
+
+        }
+
+        return symbols;
+
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+
+        if (this == o)
+            return true;
+
+        if (!(o instanceof SymbolTableCompressor))
+            return false;
+
+        return Arrays.deepEquals(symbols, ((SymbolTableCompressor) o).symbols);
+
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Arrays.deepHashCode(symbols);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{nsymbols=" + symbols.length + "}";
+
+    }
+
+    /**
+     * The initial version.
+     */
+    private static final transient byte VERSION0 = 0;
+
+    private static final transient byte VERSION = VERSION0;
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        final byte version = in.readByte();
+
+        switch (version) {
+        case VERSION0:
+            break;
+        default:
+            throw new IOException("unknown version=" + version);
+        }
+
+        final int n = in.readUnsignedByte();
+
+        symbols = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            symbols[i] = new byte[in.readUnsignedByte()];
+
+            in.readFully(symbols[i]);
+
+        }
+
+        init();
+
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+
+        out.writeByte(VERSION);
+
+        out.writeByte(symbols.length);
+
+        for (byte[] sym : symbols) {
+
+            out.writeByte(sym.length);
+
+            out.write(sym);
+
+        }
+
+    }
+
+}
@@ -53,10 +53,13 @@ import com.bigdata.btree.IBloomFilter;
 import com.bigdata.btree.IIndex;
 import com.bigdata.btree.ILocalBTreeView;
 import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITupleCursor;
 import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexSegment;
+import com.bigdata.btree.MultiRangeCursor;
 import com.bigdata.btree.Tuple;
 import com.bigdata.btree.UnisolatedReadWriteIndex;
+import com.bigdata.btree.filter.WrappedTupleIterator;
 import com.bigdata.btree.isolation.IsolatedFusedView;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.proc.ISimpleIndexProcedure;
@@ -784,6 +787,183 @@ public class AccessPath<R> implements IAccessPath<R>, IBindingSetAccessPath<R> {
 
     }
     
+    /**
+     * Variant of {@link #solutions(BOpContext, long, BaseJoinStats)} which
+     * reads the key range of this access path using a {@link MultiRangeCursor}
+     * shared with other access paths for the same index.
+     * 
+     * @see #iterator(long, MultiRangeCursor)
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public ICloseableIterator<IBindingSet[]> solutions(
+            final BOpContext context, final long limit,
+            final MultiRangeCursor<R> cursor, final BaseJoinStats stats) {
+
+        return context.solutions(iterator(limit, cursor), predicate, stats);
+
+    }
+
+    /**
+     * Return a {@link MultiRangeCursor} which may be used to read this access
+     * path and other access paths for the same index in ascending key order
+     * using a single cursor.
+     * 
+     * @return The cursor -or- <code>null</code> if the index does not support
+     *         a shared cursor (for example, a scale-out index, an index
+     *         partition, or an unisolated index which must be read under its
+     *         lock).
+     * 
+     * @see #iterator(long, MultiRangeCursor)
+     */
+    @SuppressWarnings("unchecked")
+    public MultiRangeCursor<R> newMultiRangeCursor() {
+
+        assertInitialized();
+
+        if (pmd != null || !(ndx instanceof ILocalBTreeView)) {
+
+            // Not a local index.
+            return null;
+
+        }
+
+        if ((flags & (IRangeQuery.REVERSE | IRangeQuery.REMOVEALL)) != 0) {
+
+            // Only for a forward scan.
+            return null;
+
+        }
+
+        final ITupleIterator<R> itr = ndx.rangeIterator(null/* fromKey */,
+                null/* toKey */, 0/* capacity */, flags | IRangeQuery.KEYS
+                        | IRangeQuery.CURSOR, null/* filter */);
+
+        if (!(itr instanceof ITupleCursor)) {
+
+            // E.g., a view which does not expose its cursor.
+            return null;
+
+        }
+
+        return new MultiRangeCursor<R>((ITupleCursor<R>) itr);
+
+    }
+
+    /**
+     * Variant of {@link #iterator(long, long, int)} which reads the key range
+     * of this access path using a {@link MultiRangeCursor} shared with other
+     * access paths for the same index. This avoids a new descent of the index
+     * for each access path when the access paths are read in ascending order
+     * of their <i>fromKey</i> and their key ranges are dense.
+     * <p>
+     * The elements are always fully buffered. If this access path has no
+     * <i>fromKey</i> or is too large to be fully buffered, then it is read
+     * using its own iterator instead.
+     * 
+     * @param limit
+     *            The maximum #of elements to visit -or- ZERO (0L) or
+     *            {@link Long#MAX_VALUE} if there is no limit.
+     * @param cursor
+     *            A cursor obtained from {@link #newMultiRangeCursor()} for an
+     *            access path on the same index.
+     * 
+     * @see #newMultiRangeCursor()
+     */
+    @SuppressWarnings("unchecked")
+    public IChunkedOrderedIterator<R> iterator(long limit,
+            final MultiRangeCursor<R> cursor) {
+
+        if (cursor == null)
+            throw new IllegalArgumentException();
+
+        if (limit < 0)
+            throw new IllegalArgumentException();
+
+        if (limit == Long.MAX_VALUE) {
+
+            // treat MAX_VALUE as meaning NO limit.
+            limit = 0L;
+
+        }
+
+        assertInitialized();
+
+        if (fromKey == null || cursor.getIndex() != ndx) {
+
+            // Read using an iterator for this access path.
+            return iterator(0L/* offset */, limit, 0/* capacity */);
+
+        }
+
+        if (isFullyBoundForKey) {
+
+            if (ndx instanceof ILocalBTreeView) {
+
+                final IBloomFilter filter = ((ILocalBTreeView) ndx)
+                        .getBloomFilter();
+
+                if (filter != null && !filter.contains(fromKey)) {
+
+                    // proven to not exist.
+                    return new EmptyChunkedIterator<R>(keyOrder);
+
+                }
+
+            }
+
+            limit = 1L;
+
+        } else {
+
+            final long rangeCount = rangeCount(false/* exact */);
+
+            if (rangeCount <= 0L) {
+
+                // Proven empty by the range count.
+                return new EmptyChunkedIterator<R>(keyOrder);
+
+            }
+
+            if (rangeCount >= fullyBufferedReadThreshold) {
+
+                // Too large to fully buffer.
+                return iterator(0L/* offset */, limit, 0/* capacity */);
+
+            }
+
+            if (limit == 0L) {
+                limit = rangeCount;
+            } else {
+                limit = Math.min(limit, rangeCount);
+            }
+
+        }
+
+        ITupleIterator<R> tupleItr = cursor.rangeIterator(fromKey, toKey);
+
+        if (indexLocalFilter != null) {
+
+            // Apply the optional filter (as the index would).
+            tupleItr = new WrappedTupleIterator<R>(indexLocalFilter.filter(
+                    tupleItr, null/* context */));
+
+        }
+
+        // Materialize the elements from the visited tuples.
+        final Iterator<R> src = new Striterator(tupleItr)
+                .addFilter(new TupleObjectResolver());
+
+        if (accessPathFilter != null) {
+            /*
+             * Chain in the optional access path filter stack.
+             */
+            ((Striterator) src).addFilter(accessPathFilter);
+        }
+
+        return synchronousIterator(0L/* offset */, limit, src);
+
+    }
+
     @Override
     final public IChunkedOrderedIterator<R> iterator() {
         
@@ -43,4 +43,39 @@ public interface IGASStats {
      */
     long getElapsedNanos();
 
+    /**
+     * Report the representation chosen for the frontier that was compacted at
+     * the end of a round. This is only reported by {@link IStaticFrontier}
+     * implementations which adapt their representation to the density of the
+     * frontier.
+     * 
+     * @param density
+     *            The #of vertices in the new frontier divided by the #of
+     *            vertices known to the frontier.
+     * @param dense
+     *            <code>true</code> iff the dense (bitmap) representation was
+     *            chosen.
+     * @param switched
+     *            <code>true</code> iff the representation was changed.
+     */
+    void addFrontierDensity(final double density, final boolean dense,
+            final boolean switched);
+
+    /**
+     * The density of the frontier for the last round (or the maximum across
+     * the rounds for aggregated statistics).
+     */
+    double getFrontierDensity();
+
+    /**
+     * The #of rounds for which the new frontier used a dense representation.
+     */
+    long getNDenseRounds();
+
+    /**
+     * The #of rounds for which the representation of the new frontier was
+     * changed (sparse to dense or dense to sparse).
+     */
+    long getNFrontierSwitches();
+
 }
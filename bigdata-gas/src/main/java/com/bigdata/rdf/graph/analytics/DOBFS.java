@@ -0,0 +1,409 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.EdgesEnum;
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASScheduler;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IStaticFrontier;
+
+/**
+ * Direction-optimizing Breadth First Search. This computes the same depths as
+ * {@link BFS}, but switches between two strategies for each round:
+ * <dl>
+ * <dt>push (top-down)</dt>
+ * <dd>The frontier is the set of vertices discovered in the last round and the
+ * unvisited neighbors of those vertices are discovered by a SCATTER over their
+ * out-edges (this is what {@link BFS} does for every round).</dd>
+ * <dt>pull (bottom-up)</dt>
+ * <dd>The frontier is the set of unvisited vertices. Each of those vertices
+ * GATHERs over its in-edges and is discovered as soon as one of its neighbors
+ * is found in the last level. Once a vertex has been discovered, its remaining
+ * in-edges are skipped without touching the neighbor's state.</dd>
+ * </dl>
+ * When the frontier is a large fraction of the graph (as happens for the middle
+ * rounds of a traversal on a low-diameter graph with a skewed degree
+ * distribution), most out-edges of the frontier lead to vertices that were
+ * already visited and the pull strategy examines far fewer edges.
+ * <p>
+ * The switch is decided from vertex counts (the frontier size, the #of
+ * unvisited vertices and the #of vertices in the graph) since the edge counts
+ * used by the original heuristic are not available without an extra pass:
+ * push switches to pull when <code>frontierSize * alpha &gt; unvisited</code>
+ * and pull switches back to push when
+ * <code>frontierSize * beta &lt; nvertices</code>.
+ * <p>
+ * Note: The vertices of the graph are collected (using
+ * {@link com.bigdata.rdf.graph.IGraphAccessor#getDistribution(Random)}) the
+ * first time the frontier reaches {@link #getMinPullFrontier()} vertices.
+ * Vertices which do not
+ * have any edges are never visited by either strategy.
+ *
+ * @see <a href="http://dx.doi.org/10.1109/SC.2012.50">Direction-Optimizing
+ *      Breadth-First Search</a>
+ */
+public class DOBFS extends BFS {
+
+    private static final Logger log = Logger.getLogger(DOBFS.class);
+
+    /**
+     * The default for {@link #getAlpha()}.
+     */
+    public static final int DEFAULT_ALPHA = 14;
+
+    /**
+     * The default for {@link #getBeta()}.
+     */
+    public static final int DEFAULT_BETA = 24;
+
+    /**
+     * The default for {@link #getMinPullFrontier()}.
+     */
+    public static final int DEFAULT_MIN_PULL_FRONTIER = 1024;
+
+    /**
+     * The push to pull threshold.
+     */
+    private final int alpha;
+
+    /**
+     * The pull to push threshold.
+     */
+    private final int beta;
+
+    /**
+     * The minimum frontier size for which pull is considered.
+     */
+    private final int minPullFrontier;
+
+    /**
+     * <code>true</code> iff the current round uses the pull strategy.
+     */
+    private volatile boolean pull = false;
+
+    /**
+     * The #of visited vertices.
+     */
+    private final AtomicLong nvisited = new AtomicLong();
+
+    /**
+     * The #of rounds which used the pull strategy.
+     */
+    private final AtomicLong npullRounds = new AtomicLong();
+
+    /**
+     * The vertices discovered during a pull round.
+     */
+    private final Queue<Value> discovered = new ConcurrentLinkedQueue<Value>();
+
+    /**
+     * The vertices of the graph (lazily initialized).
+     */
+    private Value[] vertices = null;
+
+    public DOBFS() {
+
+        this(DEFAULT_ALPHA, DEFAULT_BETA, DEFAULT_MIN_PULL_FRONTIER);
+
+    }
+
+    /**
+     * @param alpha
+     *            The push to pull threshold.
+     * @param beta
+     *            The pull to push threshold.
+     * @param minPullFrontier
+     *            The minimum frontier size for which pull is considered. The
+     *            vertices of the graph are not collected until the frontier
+     *            reaches this size, so small traversals never pay for that
+     *            scan.
+     */
+    public DOBFS(final int alpha, final int beta, final int minPullFrontier) {
+
+        if (alpha <= 0)
+            throw new IllegalArgumentException();
+
+        if (beta <= 0)
+            throw new IllegalArgumentException();
+
+        if (minPullFrontier <= 0)
+            throw new IllegalArgumentException();
+
+        this.alpha = alpha;
+
+        this.beta = beta;
+
+        this.minPullFrontier = minPullFrontier;
+
+    }
+
+    /**
+     * The push to pull threshold.
+     */
+    public int getAlpha() {
+
+        return alpha;
+
+    }
+
+    /**
+     * The pull to push threshold.
+     */
+    public int getBeta() {
+
+        return beta;
+
+    }
+
+    /**
+     * The minimum frontier size for which pull is considered.
+     */
+    public int getMinPullFrontier() {
+
+        return minPullFrontier;
+
+    }
+
+    /**
+     * The #of rounds which used the pull (bottom-up) strategy.
+     */
+    public long getPullRoundCount() {
+
+        return npullRounds.get();
+
+    }
+
+    @Override
+    public void before(final IGASContext<BFS.VS, BFS.ES, Void> ctx) {
+
+        super.before(ctx);
+
+        pull = false;
+
+        vertices = null;
+
+        discovered.clear();
+
+        npullRounds.set(0L);
+
+        nvisited.set(ctx.getGASState().frontier().size());
+
+    }
+
+    /**
+     * The in-edges (in the pull rounds).
+     */
+    @Override
+    public EdgesEnum getGatherEdges() {
+
+        return pull ? EdgesEnum.InEdges : EdgesEnum.NoEdges;
+
+    }
+
+    /**
+     * The out-edges (in the push rounds).
+     */
+    @Override
+    public EdgesEnum getScatterEdges() {
+
+        return pull ? EdgesEnum.NoEdges : EdgesEnum.OutEdges;
+
+    }
+
+    /**
+     * The (unvisited) vertex is visited if the remote vertex was discovered in
+     * the last round. The first such remote vertex becomes its predecessor and
+     * the other in-edges are then skipped.
+     * <p>
+     * Note: The state of the remote vertex is not created if that vertex was
+     * not visited.
+     */
+    @Override
+    public Void gather(final IGASState<BFS.VS, BFS.ES, Void> state,
+            final Value u, final Statement e) {
+
+        if (state.isVisited(u)) {
+
+            // Already discovered by an earlier edge.
+            return null;
+
+        }
+
+        final Value v = state.getOtherVertex(u, e);
+
+        if (!state.isVisited(v))
+            return null;
+
+        final int round = state.round();
+
+        if (state.getState(v).depth() != round)
+            return null;
+
+        if (state.getState(u).visit(round + 1, v/* predecessor */)) {
+
+            discovered.add(u);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void sum(final IGASState<BFS.VS, BFS.ES, Void> state,
+            final Void left, final Void right) {
+
+        return null;
+
+    }
+
+    /**
+     * Counts the discovered vertices for the push rounds.
+     */
+    @Override
+    public void scatter(final IGASState<BFS.VS, BFS.ES, Void> state,
+            final IGASScheduler sch, final Value u, final Statement e) {
+
+        final Value v = state.getOtherVertex(u, e);
+
+        if (state.getState(v).visit(state.round() + 1, u/* predecessor */)) {
+
+            nvisited.incrementAndGet();
+
+            sch.schedule(v);
+
+        }
+
+    }
+
+    /**
+     * Decide the strategy for the next round and install the corresponding
+     * frontier.
+     */
+    @Override
+    public boolean nextRound(final IGASContext<BFS.VS, BFS.ES, Void> ctx) {
+
+        final IGASState<BFS.VS, BFS.ES, Void> state = ctx.getGASState();
+
+        final IStaticFrontier f = state.frontier();
+
+        if (pull) {
+
+            npullRounds.incrementAndGet();
+
+            // Drain the vertices discovered in the pull round.
+            final List<Value> tmp = new ArrayList<Value>(discovered);
+
+            discovered.clear();
+
+            nvisited.addAndGet(tmp.size());
+
+            if (tmp.isEmpty()) {
+
+                // Nothing was discovered. Halt.
+                f.resetFrontier(0/* minCapacity */, false/* sort */,
+                        tmp.iterator());
+
+                return true;
+
+            }
+
+            if ((long) tmp.size() * beta < vertices.length) {
+
+                // Switch to push. The frontier is the last level.
+                if (log.isInfoEnabled())
+                    log.info("round=" + state.round() + ": pull => push"
+                            + ", frontierSize=" + tmp.size());
+
+                pull = false;
+
+                f.resetFrontier(tmp.size()/* minCapacity */,
+                        false/* sort */, tmp.iterator());
+
+            } else {
+
+                // Stay with pull. The frontier is the unvisited vertices.
+                resetFrontierToUnvisited(state);
+
+            }
+
+            return true;
+
+        }
+
+        if (f.size() < minPullFrontier)
+            return true;
+
+        if (vertices == null) {
+
+            vertices = ctx.getGraphAccessor().getDistribution(new Random())
+                    .getAll();
+
+        }
+
+        final long unvisited = vertices.length - nvisited.get();
+
+        if ((long) f.size() * alpha > unvisited) {
+
+            // Switch to pull.
+            if (log.isInfoEnabled())
+                log.info("round=" + state.round() + ": push => pull"
+                        + ", frontierSize=" + f.size() + ", unvisited="
+                        + unvisited);
+
+            pull = true;
+
+            resetFrontierToUnvisited(state);
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Replace the frontier with the vertices that have not been visited.
+     */
+    private void resetFrontierToUnvisited(
+            final IGASState<BFS.VS, BFS.ES, Void> state) {
+
+        final List<Value> tmp = new ArrayList<Value>();
+
+        for (Value v : vertices) {
+
+            if (!state.isVisited(v))
+                tmp.add(v);
+
+        }
+
+        state.frontier().resetFrontier(tmp.size()/* minCapacity */,
+                false/* sort */, tmp.iterator());
+
+    }
+
+}
@@ -0,0 +1,231 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.analytics;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASScheduler;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IStaticFrontier;
+
+/**
+ * Delta-stepping SSSP. This computes the same distances as {@link SSSP}, but
+ * vertices are processed in buckets of width <i>delta</i> by increasing
+ * distance. A vertex whose distance is reduced into the current bucket is
+ * added to the next frontier (as per {@link SSSP}). A vertex whose distance is
+ * reduced into a later bucket is deferred until all earlier buckets have been
+ * settled. This avoids most of the redundant relaxations that the
+ * Bellman-Ford style propagation of {@link SSSP} performs on weighted graphs
+ * where long paths with small weights are found after short paths with large
+ * weights.
+ * <p>
+ * When <i>delta</i> is at least the largest edge weight, every relaxation
+ * falls into the current or the next bucket. When all edges have the same
+ * weight, this degenerates into a BFS. A small <i>delta</i> approaches
+ * Dijkstra's algorithm (many rounds, little wasted work).
+ * <p>
+ * Note: Buckets are only advanced once the frontier for the current bucket is
+ * empty. A deferred vertex whose distance was reduced again is simply ignored
+ * when a bucket which no longer contains its distance is drained.
+ *
+ * @see <a href="http://dx.doi.org/10.1016/S0196-6774(03)00076-2">Delta-stepping:
+ *      a parallelizable shortest path algorithm</a>
+ */
+public class DeltaSSSP extends SSSP {
+
+    private static final Logger log = Logger.getLogger(DeltaSSSP.class);
+
+    /**
+     * The default for {@link #getDelta()} (the default edge length).
+     */
+    public static final double DEFAULT_DELTA = 1d;
+
+    /**
+     * The width of a bucket.
+     */
+    private final double delta;
+
+    /**
+     * The index of the current bucket.
+     */
+    private volatile long current = 0L;
+
+    /**
+     * The deferred vertices, keyed by the index of their bucket.
+     */
+    private final ConcurrentSkipListMap<Long, Queue<Value>> buckets = new ConcurrentSkipListMap<Long, Queue<Value>>();
+
+    /**
+     * The #of vertices which were deferred to a later bucket.
+     */
+    private final AtomicLong ndeferred = new AtomicLong();
+
+    public DeltaSSSP() {
+
+        this(DEFAULT_DELTA);
+
+    }
+
+    /**
+     * @param delta
+     *            The width of a bucket.
+     */
+    public DeltaSSSP(final double delta) {
+
+        if (!(delta > 0d) || Double.isInfinite(delta))
+            throw new IllegalArgumentException();
+
+        this.delta = delta;
+
+    }
+
+    /**
+     * The width of a bucket.
+     */
+    public double getDelta() {
+
+        return delta;
+
+    }
+
+    /**
+     * The #of times that a vertex was deferred to a later bucket.
+     */
+    public long getDeferredCount() {
+
+        return ndeferred.get();
+
+    }
+
+    @Override
+    public void before(final IGASContext<SSSP.VS, SSSP.ES, Integer> ctx) {
+
+        super.before(ctx);
+
+        current = 0L;
+
+        buckets.clear();
+
+        ndeferred.set(0L);
+
+    }
+
+    /**
+     * The index of the bucket for a distance.
+     */
+    private long bucket(final double dist) {
+
+        return (long) (dist / delta);
+
+    }
+
+    /**
+     * Schedule the vertex if its distance falls into the current bucket and
+     * otherwise defer it to its bucket.
+     */
+    @Override
+    protected void schedule(final IGASState<SSSP.VS, SSSP.ES, Integer> state,
+            final IGASScheduler sch, final Value v, final double newDist) {
+
+        final long b = bucket(newDist);
+
+        if (b <= current) {
+
+            sch.schedule(v);
+
+            return;
+
+        }
+
+        Queue<Value> q = buckets.get(b);
+
+        if (q == null) {
+
+            final Queue<Value> t = buckets.putIfAbsent(b,
+                    q = new ConcurrentLinkedQueue<Value>());
+
+            if (t != null)
+                q = t;
+
+        }
+
+        q.add(v);
+
+        ndeferred.incrementAndGet();
+
+    }
+
+    /**
+     * When the frontier for the current bucket is empty, advance to the first
+     * non-empty later bucket and install its vertices as the new frontier.
+     */
+    @Override
+    public boolean nextRound(final IGASContext<SSSP.VS, SSSP.ES, Integer> ctx) {
+
+        final IGASState<SSSP.VS, SSSP.ES, Integer> state = ctx.getGASState();
+
+        final IStaticFrontier f = state.frontier();
+
+        if (!f.isEmpty())
+            return true;
+
+        Map.Entry<Long, Queue<Value>> e;
+
+        while ((e = buckets.pollFirstEntry()) != null) {
+
+            final long b = e.getKey();
+
+            final Set<Value> tmp = new LinkedHashSet<Value>();
+
+            for (Value v : e.getValue()) {
+
+                // Skip vertices whose distance was reduced again.
+                if (bucket(state.getState(v).dist()) == b)
+                    tmp.add(v);
+
+            }
+
+            if (tmp.isEmpty())
+                continue;
+
+            if (log.isInfoEnabled())
+                log.info("round=" + state.round() + ": bucket=" + b
+                        + ", frontierSize=" + tmp.size());
+
+            current = b;
+
+            f.resetFrontier(tmp.size()/* minCapacity */, false/* sort */,
+                    tmp.iterator());
+
+            break;
+
+        }
+
+        return true;
+
+    }
+
+}
@@ -430,7 +430,7 @@ public class SSSP extends BaseGASProgram<SSSP.VS, SSSP.ES, Integer/* dist */>
                             + newDist);
 
                 // Then add the remote vertex to the next frontier.
-                sch.schedule(other);
+                schedule(state, sch, other, newDist);
 
             }
 
@@ -438,6 +438,27 @@ public class SSSP extends BaseGASProgram<SSSP.VS, SSSP.ES, Integer/* dist */>
 
     }
 
+    /**
+     * Schedule a vertex whose distance was reduced by the SCATTER. The default
+     * implementation adds the vertex to the next frontier. Subclasses may
+     * override this to defer the vertex to a later round.
+     * 
+     * @param state
+     *            The computation state.
+     * @param sch
+     *            The scheduler.
+     * @param v
+     *            The vertex whose distance was reduced.
+     * @param newDist
+     *            The new distance for that vertex.
+     */
+    protected void schedule(final IGASState<SSSP.VS, SSSP.ES, Integer> state,
+            final IGASScheduler sch, final Value v, final double newDist) {
+
+        sch.schedule(v);
+
+    }
+
     @Override
     public boolean nextRound(final IGASContext<VS, ES, Integer> ctx) {
 
@@ -41,6 +41,7 @@ import com.bigdata.rdf.graph.IGraphAccessor;
 import com.bigdata.rdf.graph.IReducer;
 import com.bigdata.rdf.graph.IStaticFrontier;
 import com.bigdata.rdf.graph.TraversalDirectionEnum;
+import com.bigdata.rdf.graph.impl.frontier.BitmapFrontier;
 import com.bigdata.rdf.graph.util.GASUtil;
 
 import cutthecrap.utils.striterators.Filter;
@@ -443,6 +444,24 @@ public class GASContext<VS, ES, ST> implements IGASContext<VS, ES, ST> {
 
         // End the round, advance the counter, and compact new frontier.
         gasState.endRound();
+
+        if (f instanceof BitmapFrontier) {
+
+            /*
+             * Report the representation chosen for the new frontier.
+             */
+
+            final BitmapFrontier bf = (BitmapFrontier) f;
+
+            stats.addFrontierDensity(bf.getDensity(), bf.isDense(),
+                    bf.isSwitched());
+
+            if (log.isInfoEnabled())
+                log.info("newFrontier: size=" + bf.size() + ", density="
+                        + bf.getDensity() + ", dense=" + bf.isDense()
+                        + ", switched=" + bf.isSwitched());
+
+        }
         
         /*
          * Handshake with the GASProgram. If it votes to continue -OR- the new
@@ -35,6 +35,7 @@ import com.bigdata.rdf.graph.IGASSchedulerImpl;
 import com.bigdata.rdf.graph.IGASState;
 import com.bigdata.rdf.graph.IGraphAccessor;
 import com.bigdata.rdf.graph.IStaticFrontier;
+import com.bigdata.rdf.graph.impl.frontier.BitmapFrontier;
 import com.bigdata.rdf.graph.impl.frontier.StaticFrontier2;
 import com.bigdata.rdf.graph.impl.scheduler.CHMScheduler;
 
@@ -90,6 +91,11 @@ abstract public class GASEngine implements IGASEngine {
      */
     private final AtomicReference<Class<IGASSchedulerImpl>> schedulerClassRef;
 
+    /**
+     * The factory for the {@link IStaticFrontier}.
+     */
+    private final AtomicReference<Class<IStaticFrontier>> frontierClassRef;
+
     @Override
     public int getNThreads() {
         
@@ -121,6 +127,10 @@ abstract public class GASEngine implements IGASEngine {
         
         this.schedulerClassRef.set((Class) CHMScheduler.class);
 
+        this.frontierClassRef = new AtomicReference<Class<IStaticFrontier>>();
+
+        this.frontierClassRef.set((Class) StaticFrontier2.class);
+
     }
 
     @Override
@@ -383,16 +393,45 @@ abstract public class GASEngine implements IGASEngine {
         
     }
     
+    /**
+     * Set the {@link IStaticFrontier} implementation class. The class must
+     * have a public zero argument constructor.
+     *
+     * @see BitmapFrontier
+     */
+    public void setFrontierClass(final Class<IStaticFrontier> newValue) {
+
+        if(newValue == null)
+            throw new IllegalArgumentException();
+
+        frontierClassRef.set(newValue);
+
+    }
+
+    public Class<IStaticFrontier> getFrontierClass() {
+
+        return frontierClassRef.get();
+
+    }
+
     /**
      * Return an {@link IStaticFrontier} - this is the object that models the
      * frontier that is consumed during a given round of evaluation.
-     * 
-     * TODO Config overrides
      */
     public IStaticFrontier newStaticFrontier() {
-    
-        return new StaticFrontier2();
-        
+
+        final Class<IStaticFrontier> cls = frontierClassRef.get();
+
+        try {
+
+            return cls.newInstance();
+
+        } catch (Exception e) {
+
+            throw new RuntimeException(e);
+
+        }
+
     }
     
     public IGASSchedulerImpl newScheduler() {
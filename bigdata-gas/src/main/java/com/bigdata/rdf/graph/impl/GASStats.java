@@ -32,6 +32,9 @@ public class GASStats implements IGASStats {
     private final AtomicLong frontierSize = new AtomicLong();
     private final AtomicLong nedges = new AtomicLong();
     private final AtomicLong elapsedNanos = new AtomicLong();
+    private final AtomicLong ndenseRounds = new AtomicLong();
+    private final AtomicLong nfrontierSwitches = new AtomicLong();
+    private volatile double frontierDensity = 0d;
 
     /* (non-Javadoc)
      * @see com.bigdata.rdf.graph.impl.IFOO#add(long, long, long)
@@ -63,9 +66,34 @@ public class GASStats implements IGASStats {
         nedges.addAndGet(o.getNEdges());
 
         elapsedNanos.addAndGet(o.getElapsedNanos());
+
+        ndenseRounds.addAndGet(o.getNDenseRounds());
+
+        nfrontierSwitches.addAndGet(o.getNFrontierSwitches());
+
+        synchronized (this) {
+
+            frontierDensity = Math.max(frontierDensity,
+                    o.getFrontierDensity());
+
+        }
         
     }
 
+    @Override
+    public void addFrontierDensity(final double density, final boolean dense,
+            final boolean switched) {
+
+        this.frontierDensity = density;
+
+        if (dense)
+            ndenseRounds.incrementAndGet();
+
+        if (switched)
+            nfrontierSwitches.incrementAndGet();
+
+    }
+
     /* (non-Javadoc)
      * @see com.bigdata.rdf.graph.impl.IFOO#getNRounds()
      */
@@ -98,6 +126,21 @@ public class GASStats implements IGASStats {
         return elapsedNanos.get();
     }
 
+    @Override
+    public double getFrontierDensity() {
+        return frontierDensity;
+    }
+
+    @Override
+    public long getNDenseRounds() {
+        return ndenseRounds.get();
+    }
+
+    @Override
+    public long getNFrontierSwitches() {
+        return nfrontierSwitches.get();
+    }
+
     /**
      * Return a useful summary of the collected statistics.
      */
@@ -109,6 +152,9 @@ public class GASStats implements IGASStats {
                 + ", ms=" + TimeUnit.NANOSECONDS.toMillis(getElapsedNanos())//
                 + ", edges=" + getNEdges()//
                 + ", teps=" + GASUtil.getTEPS(getNEdges(), getElapsedNanos())//
+                + ", frontierDensity=" + getFrontierDensity()//
+                + ", denseRounds=" + getNDenseRounds()//
+                + ", frontierSwitches=" + getNFrontierSwitches()//
         ;
     }
     
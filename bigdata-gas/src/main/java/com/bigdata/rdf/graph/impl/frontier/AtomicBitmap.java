@@ -0,0 +1,199 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.frontier;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free bitmap over non-negative <code>int</code> indices. Bits are set
+ * using a CAS on the backing word, so concurrent writers never block each
+ * other. The words are organized as lazily allocated pages so the bitmap can
+ * grow without copying while writers are active.
+ * <p>
+ * Note: {@link #set(int)} is safe for concurrent use. {@link #copyTo(long[])}
+ * and {@link #clear()} must not be invoked concurrently with writers.
+ */
+public class AtomicBitmap {
+
+    /**
+     * The log2 of the #of words in a page. A page covers the same range of
+     * indices as a segment of the {@link VertexIdMap}.
+     */
+    private static final int PAGE_WORD_BITS = VertexIdMap.SEGMENT_BITS - 6;
+
+    /**
+     * The #of words in a page.
+     */
+    private static final int PAGE_WORDS = 1 << PAGE_WORD_BITS;
+
+    /**
+     * The maximum #of pages (this covers the non-negative int range).
+     */
+    private static final int MAX_PAGES = 1 << (31 - VertexIdMap.SEGMENT_BITS);
+
+    /**
+     * The pages.
+     */
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+
+    public AtomicBitmap() {
+
+        this.pages = new AtomicReferenceArray<AtomicLongArray>(MAX_PAGES);
+
+    }
+
+    /**
+     * Set the bit.
+     *
+     * @param index
+     *            The bit index.
+     *
+     * @return <code>true</code> iff the bit was not already set.
+     */
+    public boolean set(final int index) {
+
+        if (index < 0)
+            throw new IllegalArgumentException();
+
+        final int word = index >>> 6;
+
+        final AtomicLongArray page = getPage(word >>> PAGE_WORD_BITS);
+
+        final int i = word & (PAGE_WORDS - 1);
+
+        final long mask = 1L << (index & 63);
+
+        while (true) {
+
+            final long old = page.get(i);
+
+            if ((old & mask) != 0L) {
+
+                // Already set.
+                return false;
+
+            }
+
+            if (page.compareAndSet(i, old, old | mask)) {
+
+                return true;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff the bit is set.
+     *
+     * @param index
+     *            The bit index.
+     */
+    public boolean get(final int index) {
+
+        final int word = index >>> 6;
+
+        final AtomicLongArray page = pages.get(word >>> PAGE_WORD_BITS);
+
+        if (page == null)
+            return false;
+
+        return (page.get(word & (PAGE_WORDS - 1)) & (1L << (index & 63))) != 0L;
+
+    }
+
+    /**
+     * Copy the words of the bitmap into the caller's array. Words which lie
+     * beyond the last allocated page are not written, so the caller must
+     * provide a cleared array.
+     *
+     * @param dst
+     *            The target array. Words beyond its length are ignored.
+     */
+    public void copyTo(final long[] dst) {
+
+        final int npages = Math.min(pages.length(),
+                (dst.length + PAGE_WORDS - 1) >>> PAGE_WORD_BITS);
+
+        for (int p = 0; p < npages; p++) {
+
+            final AtomicLongArray page = pages.get(p);
+
+            if (page == null)
+                continue;
+
+            final int off = p << PAGE_WORD_BITS;
+
+            final int n = Math.min(PAGE_WORDS, dst.length - off);
+
+            for (int i = 0; i < n; i++) {
+
+                dst[off + i] = page.get(i);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Clear all bits. The pages are retained for reuse.
+     */
+    public void clear() {
+
+        for (int p = 0; p < pages.length(); p++) {
+
+            final AtomicLongArray page = pages.get(p);
+
+            if (page == null)
+                continue;
+
+            for (int i = 0; i < PAGE_WORDS; i++) {
+
+                page.set(i, 0L);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Return the page, allocating it if necessary.
+     */
+    private AtomicLongArray getPage(final int p) {
+
+        AtomicLongArray page = pages.get(p);
+
+        if (page == null) {
+
+            if (!pages.compareAndSet(p, null,
+                    page = new AtomicLongArray(PAGE_WORDS))) {
+
+                // Lost data race.
+                page = pages.get(p);
+
+            }
+
+        }
+
+        return page;
+
+    }
+
+}
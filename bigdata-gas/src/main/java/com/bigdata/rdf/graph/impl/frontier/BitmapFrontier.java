@@ -0,0 +1,452 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.frontier;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.IStaticFrontier;
+import com.bigdata.rdf.graph.impl.util.IArraySlice;
+import com.bigdata.rdf.graph.impl.util.IManagedArray;
+import com.bigdata.rdf.graph.impl.util.ManagedArray;
+
+/**
+ * A frontier backed by a bitmap over dense vertex identifiers (see
+ * {@link VertexIdMap}). Each time the frontier is reset, the density of the
+ * new frontier is computed and the frontier is represented either:
+ * <dl>
+ * <dt>sparse</dt>
+ * <dd>as an array of vertices (as per {@link StaticFrontier2}). This is
+ * cheaper to iterate when the frontier is a small fraction of the graph.</dd>
+ * <dt>dense</dt>
+ * <dd>as the bitmap itself. The frontier is visited in identifier order
+ * without any sort or copy. This is cheaper when the frontier is a large
+ * fraction of the graph, as is typical for BFS and CC.</dd>
+ * </dl>
+ * The frontier is always compact since the bitmap imposes a distinct
+ * constraint on the vertices.
+ * <p>
+ * Note: The density is the #of vertices in the frontier divided by the #of
+ * vertices having an assigned identifier, that is, the #of vertices seen so
+ * far by the traversal. It is NOT a fraction of the vertices in the graph
+ * (that count is not known to the GAS engine). Early in a traversal the
+ * density is therefore higher than the fraction of the graph in the frontier
+ * and the first rounds may use the dense representation. This costs at most
+ * one bit per vertex seen so far, which is also the size of the bitmap.
+ * <p>
+ * Note: The request to sort the frontier is only honored for the sparse
+ * representation. The dense representation is visited in identifier order.
+ *
+ * @see com.bigdata.rdf.graph.impl.scheduler.BitmapScheduler
+ */
+public class BitmapFrontier implements IStaticFrontier {
+
+    /**
+     * The default density at or above which the dense representation is used.
+     * An array entry costs at least 32 bits while a vertex costs one bit in the
+     * bitmap, but visiting the bitmap must also skip over the zero words.
+     */
+    public static final double DEFAULT_DENSE_THRESHOLD = 1d / 32;
+
+    /**
+     * The density at or above which the dense representation is used.
+     */
+    private final double denseThreshold;
+
+    /**
+     * The mapping between vertices and identifiers. This is either created
+     * lazily by the frontier or adopted from the {@link AtomicBitmap} source
+     * when the frontier is reset from a scheduler.
+     */
+    private VertexIdMap idMap;
+
+    /**
+     * The words of the bitmap. Only the first {@link #nwords} words are in
+     * use.
+     */
+    private long[] bits = new long[0];
+
+    /**
+     * The #of words of {@link #bits} in use for the current frontier.
+     */
+    private int nwords = 0;
+
+    /**
+     * The backing structure for the sparse representation.
+     */
+    private final IManagedArray<Value> backing;
+
+    /**
+     * A slice onto the {@link #backing} structure for the sparse
+     * representation.
+     */
+    private IArraySlice<Value> vertices;
+
+    /**
+     * The #of vertices in the frontier.
+     */
+    private int size = 0;
+
+    /**
+     * <code>true</code> iff the current frontier uses the dense representation.
+     */
+    private boolean dense = false;
+
+    /**
+     * <code>true</code> iff the representation changed when the current
+     * frontier was reset.
+     */
+    private boolean switched = false;
+
+    /**
+     * The density of the current frontier (the #of vertices in the frontier
+     * divided by the #of vertices seen so far).
+     */
+    private double density = 0d;
+
+    public BitmapFrontier() {
+
+        this(DEFAULT_DENSE_THRESHOLD);
+
+    }
+
+    /**
+     * @param denseThreshold
+     *            The density at or above which the dense representation is
+     *            used. A value GT ONE disables the dense representation.
+     */
+    public BitmapFrontier(final double denseThreshold) {
+
+        if (denseThreshold <= 0d)
+            throw new IllegalArgumentException();
+
+        this.denseThreshold = denseThreshold;
+
+        this.backing = new ManagedArray<Value>(Value.class);
+
+        this.vertices = backing.slice(0/* off */, 0/* len */);
+
+    }
+
+    /**
+     * The density at or above which the dense representation is used.
+     */
+    public double getDenseThreshold() {
+
+        return denseThreshold;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the current frontier uses the dense
+     * (bitmap) representation.
+     */
+    public boolean isDense() {
+
+        return dense;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the representation was changed (sparse to
+     * dense or dense to sparse) when the current frontier was installed.
+     */
+    public boolean isSwitched() {
+
+        return switched;
+
+    }
+
+    /**
+     * The density of the current frontier in <code>[0:1]</code>. This is the
+     * #of vertices in the frontier divided by the #of vertices which have been
+     * assigned an identifier (the vertices seen so far), not by the #of
+     * vertices in the graph.
+     */
+    public double getDensity() {
+
+        return density;
+
+    }
+
+    @Override
+    public int size() {
+
+        return size;
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        return size == 0;
+
+    }
+
+    @Override
+    public boolean isCompact() {
+
+        return true;
+
+    }
+
+    @Override
+    public Iterator<Value> iterator() {
+
+        if (dense)
+            return new BitmapIterator();
+
+        return vertices.iterator();
+
+    }
+
+    @Override
+    public void resetFrontier(final int minCapacity, final boolean sort,
+            final Iterator<Value> itr) {
+
+        if (idMap == null)
+            idMap = new VertexIdMap();
+
+        clearBits(Math.max(minCapacity, idMap.size()));
+
+        while (itr.hasNext()) {
+
+            final int id = idMap.getOrAssign(itr.next());
+
+            final int word = id >>> 6;
+
+            if (word >= bits.length) {
+
+                bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length << 1));
+
+            }
+
+            if (word >= nwords)
+                nwords = word + 1;
+
+            bits[word] |= 1L << (id & 63);
+
+        }
+
+        installFrontier(sort);
+
+    }
+
+    /**
+     * Reset the frontier from a bitmap over the vertex identifiers. This is
+     * used to hand off the new frontier from a {@link AtomicBitmap} based
+     * scheduler without materializing the vertices.
+     *
+     * @param idMap
+     *            The mapping between vertices and identifiers used to populate
+     *            the bitmap. This mapping is adopted by the frontier.
+     * @param bitmap
+     *            The bitmap.
+     * @param sort
+     *            <code>true</code> iff the frontier should be sorted (only
+     *            honored for the sparse representation).
+     */
+    public void resetFrontier(final VertexIdMap idMap,
+            final AtomicBitmap bitmap, final boolean sort) {
+
+        if (idMap == null)
+            throw new IllegalArgumentException();
+
+        if (bitmap == null)
+            throw new IllegalArgumentException();
+
+        this.idMap = idMap;
+
+        clearBits(idMap.size());
+
+        bitmap.copyTo(bits);
+
+        installFrontier(sort);
+
+    }
+
+    /**
+     * Clear the words of the bitmap in use by the last frontier and ensure
+     * that there is enough capacity for the given #of identifiers.
+     */
+    private void clearBits(final int nids) {
+
+        Arrays.fill(bits, 0, nwords, 0L);
+
+        nwords = (nids + 63) >>> 6;
+
+        if (bits.length < nwords) {
+
+            bits = new long[nwords];
+
+        }
+
+    }
+
+    /**
+     * Compute the cardinality and density of the bitmap and choose the
+     * representation for the new frontier.
+     */
+    private void installFrontier(final boolean sort) {
+
+        int n = 0;
+
+        for (int i = 0; i < nwords; i++) {
+
+            n += Long.bitCount(bits[i]);
+
+        }
+
+        density = n == 0 ? 0d : (double) n / idMap.size();
+
+        final boolean newDense = n > 0 && density >= denseThreshold;
+
+        switched = n > 0 && newDense != dense;
+
+        dense = newDense;
+
+        size = n;
+
+        if (dense) {
+
+            // Release the references for the sparse representation.
+            clearSparse(0/* nvertices */);
+
+            return;
+
+        }
+
+        /*
+         * Decode the bitmap onto the sparse representation.
+         */
+
+        backing.ensureCapacity(n);
+
+        final Value[] a = backing.array();
+
+        int nvertices = 0;
+
+        for (int i = 0; i < nwords; i++) {
+
+            long word = bits[i];
+
+            while (word != 0L) {
+
+                final int id = (i << 6) + Long.numberOfTrailingZeros(word);
+
+                word &= word - 1;
+
+                a[nvertices++] = idMap.getValue(id);
+
+            }
+
+        }
+
+        clearSparse(nvertices);
+
+        if (sort && nvertices > 1) {
+
+            Arrays.sort(a, 0/* fromIndex */, nvertices/* toIndex */);
+
+        }
+
+    }
+
+    /**
+     * Null fill the sparse representation from the given offset until the end
+     * of the last frontier (to help out GC) and replace the view.
+     */
+    private void clearSparse(final int nvertices) {
+
+        final Value[] a = backing.array();
+
+        for (int i = nvertices; i < a.length; i++) {
+            if (a[i] == null)
+                break;
+            a[i] = null;
+        }
+
+        this.vertices = backing.slice(0/* off */, nvertices);
+
+    }
+
+    /**
+     * Visits the vertices in the dense representation in identifier order.
+     */
+    private class BitmapIterator implements Iterator<Value> {
+
+        /**
+         * The index of the word that is being consumed.
+         */
+        private int i = -1;
+
+        /**
+         * The remaining bits of the word that is being consumed.
+         */
+        private long word = 0L;
+
+        @Override
+        public boolean hasNext() {
+
+            while (word == 0L) {
+
+                if (++i >= nwords)
+                    return false;
+
+                word = bits[i];
+
+            }
+
+            return true;
+
+        }
+
+        @Override
+        public Value next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final int id = (i << 6) + Long.numberOfTrailingZeros(word);
+
+            word &= word - 1;
+
+            return idMap.getValue(id);
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{size=" + size() + ",dense=" + dense
+                + ",density=" + density + ",switched=" + switched
+                + ",capacity=" + backing.capacity() + "}";
+
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.frontier;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.openrdf.model.Value;
+
+/**
+ * An append-only, thread-safe mapping between vertices and dense
+ * <code>int</code> identifiers. Identifiers are assigned in the order in which
+ * the vertices are first observed and are never reused. This is what allows a
+ * frontier to be modeled as a bitmap over the vertex identifiers.
+ * <p>
+ * The reverse mapping is stored in fixed size segments which are allocated
+ * lazily. A segment is never reallocated, so a reader never observes a partly
+ * copied reverse mapping.
+ *
+ * @see BitmapFrontier
+ * @see com.bigdata.rdf.graph.impl.scheduler.BitmapScheduler
+ */
+public class VertexIdMap {
+
+    /**
+     * The log2 of the #of vertices in a segment of the reverse mapping.
+     */
+    static final int SEGMENT_BITS = 16;
+
+    /**
+     * The #of vertices in a segment of the reverse mapping.
+     */
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    /**
+     * The maximum #of segments (this covers the non-negative int range).
+     */
+    private static final int MAX_SEGMENTS = 1 << (31 - SEGMENT_BITS);
+
+    /**
+     * The forward mapping.
+     */
+    private final ConcurrentHashMap<Value, Integer> ids;
+
+    /**
+     * The reverse mapping, organized as lazily allocated segments.
+     */
+    private final AtomicReferenceArray<Value[]> segments;
+
+    /**
+     * The next identifier to be assigned.
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public VertexIdMap() {
+
+        this.ids = new ConcurrentHashMap<Value, Integer>();
+
+        this.segments = new AtomicReferenceArray<Value[]>(MAX_SEGMENTS);
+
+    }
+
+    /**
+     * The upper bound (exclusive) on the assigned identifiers. Note that an
+     * identifier may be consumed without being bound to a vertex if two
+     * threads race to assign an identifier to the same vertex.
+     */
+    public int size() {
+
+        return nextId.get();
+
+    }
+
+    /**
+     * Return the identifier for the vertex, assigning one if the vertex has
+     * not been observed before.
+     *
+     * @param v
+     *            The vertex.
+     *
+     * @return The identifier.
+     */
+    public int getOrAssign(final Value v) {
+
+        final Integer id = ids.get(v);
+
+        if (id != null)
+            return id.intValue();
+
+        final int newId = nextId.getAndIncrement();
+
+        if (newId < 0)
+            throw new IllegalStateException("Too many vertices");
+
+        /*
+         * Publish the reverse mapping before the forward mapping so any thread
+         * which observes the identifier can also resolve it.
+         */
+        getSegment(newId)[newId & (SEGMENT_SIZE - 1)] = v;
+
+        final Integer old = ids.putIfAbsent(v, newId);
+
+        if (old != null) {
+
+            // Lost data race. The identifier we took is left unbound.
+            getSegment(newId)[newId & (SEGMENT_SIZE - 1)] = null;
+
+            return old.intValue();
+
+        }
+
+        return newId;
+
+    }
+
+    /**
+     * Return the identifier for the vertex.
+     *
+     * @param v
+     *            The vertex.
+     *
+     * @return The identifier -or- <code>-1</code> if no identifier has been
+     *         assigned to that vertex.
+     */
+    public int getId(final Value v) {
+
+        final Integer id = ids.get(v);
+
+        return id == null ? -1 : id.intValue();
+
+    }
+
+    /**
+     * Return the vertex for the identifier.
+     *
+     * @param id
+     *            The identifier.
+     *
+     * @return The vertex -or- <code>null</code> if the identifier is not bound
+     *         to a vertex.
+     */
+    public Value getValue(final int id) {
+
+        final Value[] a = segments.get(id >>> SEGMENT_BITS);
+
+        if (a == null)
+            return null;
+
+        return a[id & (SEGMENT_SIZE - 1)];
+
+    }
+
+    /**
+     * Return the segment of the reverse mapping for the identifier, allocating
+     * it if necessary.
+     */
+    private Value[] getSegment(final int id) {
+
+        final int i = id >>> SEGMENT_BITS;
+
+        Value[] a = segments.get(i);
+
+        if (a == null) {
+
+            if (!segments.compareAndSet(i, null, a = new Value[SEGMENT_SIZE])) {
+
+                // Lost data race.
+                a = segments.get(i);
+
+            }
+
+        }
+
+        return a;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{size=" + size() + "}";
+
+    }
+
+}
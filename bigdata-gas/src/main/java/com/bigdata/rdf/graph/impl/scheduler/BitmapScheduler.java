@@ -0,0 +1,167 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.scheduler;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.IGASSchedulerImpl;
+import com.bigdata.rdf.graph.IStaticFrontier;
+import com.bigdata.rdf.graph.impl.GASEngine;
+import com.bigdata.rdf.graph.impl.frontier.AtomicBitmap;
+import com.bigdata.rdf.graph.impl.frontier.BitmapFrontier;
+import com.bigdata.rdf.graph.impl.frontier.VertexIdMap;
+
+/**
+ * A lock-free scheduler based on a bitmap over dense vertex identifiers.
+ * Scheduling a vertex resolves (or assigns) its identifier and sets the
+ * corresponding bit with a CAS. Duplicates are eliminated by the bitmap, so
+ * there is no de-duplication step when the frontier is compacted.
+ * <p>
+ * This scheduler should be paired with a {@link BitmapFrontier} (see
+ * {@link GASEngine#setFrontierClass(Class)}), in which case the bitmap is
+ * handed off to the frontier without materializing the vertices. For other
+ * {@link IStaticFrontier} implementations the vertices are visited in
+ * identifier order.
+ */
+public class BitmapScheduler implements IGASSchedulerImpl {
+
+    /**
+     * The mapping between vertices and identifiers. This is retained across
+     * rounds so a vertex has the same identifier for the life of the
+     * computation.
+     */
+    private final VertexIdMap idMap;
+
+    /**
+     * The scheduled vertices.
+     */
+    private final AtomicBitmap bitmap;
+
+    private final boolean sortFrontier;
+
+    public BitmapScheduler(final GASEngine gasEngine) {
+
+        this.idMap = new VertexIdMap();
+
+        this.bitmap = new AtomicBitmap();
+
+        this.sortFrontier = gasEngine.getSortFrontier();
+
+    }
+
+    @Override
+    public void schedule(final Value v) {
+
+        bitmap.set(idMap.getOrAssign(v));
+
+    }
+
+    @Override
+    public void clear() {
+
+        bitmap.clear();
+
+    }
+
+    @Override
+    public void compactFrontier(final IStaticFrontier frontier) {
+
+        if (frontier instanceof BitmapFrontier) {
+
+            ((BitmapFrontier) frontier).resetFrontier(idMap, bitmap,
+                    sortFrontier);
+
+            return;
+
+        }
+
+        final long[] words = new long[(idMap.size() + 63) >>> 6];
+
+        bitmap.copyTo(words);
+
+        int n = 0;
+
+        for (long w : words) {
+
+            n += Long.bitCount(w);
+
+        }
+
+        frontier.resetFrontier(n/* minCapacity */, sortFrontier,
+                new BitmapIterator(words));
+
+    }
+
+    /**
+     * Visits the vertices whose bits are set in identifier order.
+     */
+    private class BitmapIterator implements Iterator<Value> {
+
+        private final long[] words;
+
+        private int i = -1;
+
+        private long word = 0L;
+
+        BitmapIterator(final long[] words) {
+
+            this.words = words;
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            while (word == 0L) {
+
+                if (++i >= words.length)
+                    return false;
+
+                word = words[i];
+
+            }
+
+            return true;
+
+        }
+
+        @Override
+        public Value next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final int id = (i << 6) + Long.numberOfTrailingZeros(word);
+
+            word &= word - 1;
+
+            return idMap.getValue(id);
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ import com.bigdata.rdf.graph.IGASSchedulerImpl;
 import com.bigdata.rdf.graph.IGASState;
 import com.bigdata.rdf.graph.IGASStats;
 import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.IStaticFrontier;
 import com.bigdata.rdf.graph.impl.GASEngine;
 import com.bigdata.rdf.graph.impl.GASState;
 import com.bigdata.rdf.graph.impl.GASStats;
@@ -96,6 +97,11 @@ public abstract class GASRunnerBase<VS, ES, ST> implements
          * TODO Override or always? If always, then where to get the default?
          */
         public Class<IGASSchedulerImpl> schedulerClassOverride;
+
+        /**
+         * The {@link IStaticFrontier} class to use.
+         */
+        public Class<IStaticFrontier> frontierClassOverride;
         
         /** Set of files to load (may be empty). */
         public final LinkedHashSet<String> loadSet = new LinkedHashSet<String>();
@@ -255,6 +261,9 @@ public abstract class GASRunnerBase<VS, ES, ST> implements
      *            <dt>-schedulerClass</dt>
      *            <dd>Override the default {@link IGASScheduler}. Class must
      *            implement {@link IGASSchedulerImpl}.</dd>
+     *            <dt>-frontierClass</dt>
+     *            <dd>Override the default {@link IStaticFrontier}. Class must
+     *            have a public zero argument constructor.</dd>
      *            <dt>-load</dt>
      *            <dd>Loads the named resource IFF the KB is empty (or does not
      *            exist) at the time this utility is executed. This option may
@@ -301,6 +310,9 @@ public abstract class GASRunnerBase<VS, ES, ST> implements
                 } else if (arg.equals("-schedulerClass")) {
                     final String s = args[i.incrementAndGet()];
                     opt.schedulerClassOverride = (Class<IGASSchedulerImpl>) Class.forName(s);
+                } else if (arg.equals("-frontierClass")) {
+                    final String s = args[i.incrementAndGet()];
+                    opt.frontierClassOverride = (Class<IStaticFrontier>) Class.forName(s);
                 } else if (arg.equals("-load")) {
                     final String s = args[i.incrementAndGet()];
                     opt.loadSet.add(s);
@@ -433,6 +445,13 @@ public abstract class GASRunnerBase<VS, ES, ST> implements
                         .setSchedulerClass(opt.schedulerClassOverride);
 
             }
+
+            if (opt.frontierClassOverride != null) {
+
+                ((GASEngine) gasEngine)
+                        .setFrontierClass(opt.frontierClassOverride);
+
+            }
             
             final IGASProgram<VS, ES, ST> gasProgram = newGASProgram();
 
@@ -590,6 +609,7 @@ public abstract class GASRunnerBase<VS, ES, ST> implements
             sb.append(", nunconnected=" + nunconnected);// #unconnected vertices.
             sb.append(", nthreads=" + opt.nthreads);
             sb.append(", scheduler=" + ((GASState<VS, ES, ST>)gasState).getScheduler().getClass().getSimpleName());
+            sb.append(", frontier=" + gasState.frontier().getClass().getSimpleName());
             sb.append(", gasEngine=" + gasEngine.getClass().getSimpleName());
             opt.report(sb); // extension hook.
             // performance results.
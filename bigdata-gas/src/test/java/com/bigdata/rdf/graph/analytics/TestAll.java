@@ -51,7 +51,11 @@ public class TestAll extends TestCase {
         
         suite.addTestSuite(TestBFS.class);
 
+        suite.addTestSuite(TestDOBFS.class);
+
         suite.addTestSuite(TestSSSP.class);
+
+        suite.addTestSuite(TestDeltaSSSP.class);
         
         //Disabled for Clean CI:  See https://jira.blazegraph.com/browse/BLZG-1381
         //suite.addTestSuite(TestCC.class);
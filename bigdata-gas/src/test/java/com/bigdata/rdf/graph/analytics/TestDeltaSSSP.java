@@ -0,0 +1,104 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.analytics;
+
+import org.openrdf.sail.SailConnection;
+
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASEngine;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.impl.sail.AbstractSailGraphTestCase;
+
+/**
+ * Test class for delta-stepping SSSP.
+ * 
+ * @see DeltaSSSP
+ */
+public class TestDeltaSSSP extends AbstractSailGraphTestCase {
+
+    public TestDeltaSSSP() {
+        
+    }
+    
+    public TestDeltaSSSP(String name) {
+        super(name);
+    }
+
+    /**
+     * Test using {@link #setupSmallGraphProblem()}
+     */
+    public void testDeltaSSSP() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final IGASEngine gasEngine = getGraphFixture()
+                .newGASEngine(1/* nthreads */);
+
+        try {
+
+            final SailConnection cxn = getGraphFixture().getSail()
+                    .getConnection();
+
+            try {
+
+                final IGraphAccessor graphAccessor = getGraphFixture()
+                        .newGraphAccessor(cxn);
+
+                // Each edge crosses two buckets so every vertex is deferred.
+                final DeltaSSSP program = new DeltaSSSP(.5d/* delta */);
+
+                final IGASContext<SSSP.VS, SSSP.ES, Integer> gasContext = gasEngine
+                        .newGASContext(graphAccessor, program);
+
+                final IGASState<SSSP.VS, SSSP.ES, Integer> gasState = gasContext
+                        .getGASState();
+
+                // Initialize the froniter.
+                gasState.setFrontier(gasContext, p.getMike());
+
+                // Converge.
+                gasContext.call();
+
+                assertEquals(0.0, gasState.getState(p.getMike()).dist());
+
+                assertEquals(1.0, gasState.getState(p.getFoafPerson()).dist());
+
+                assertEquals(1.0, gasState.getState(p.getBryan()).dist());
+
+                assertEquals(2.0, gasState.getState(p.getMartyn()).dist());
+
+                assertTrue(program.getDeferredCount() > 0);
+
+            } finally {
+
+                try {
+                    cxn.rollback();
+                } finally {
+                    cxn.close();
+                }
+
+            }
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+}
@@ -56,6 +56,10 @@ public class TestAll extends TestCase {
          */
 
         suite.addTestSuite(TestGather.class);
+
+        suite.addTestSuite(TestBitmapFrontier.class);
+
+        suite.addTestSuite(TestSkewedGraphAnalytics.class);
         
         return suite;
         
@@ -0,0 +1,296 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.ram;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.URIImpl;
+
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASSchedulerImpl;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IGASStats;
+import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.IStaticFrontier;
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.impl.GASEngine;
+import com.bigdata.rdf.graph.impl.frontier.BitmapFrontier;
+import com.bigdata.rdf.graph.impl.frontier.StaticFrontier2;
+import com.bigdata.rdf.graph.impl.frontier.VertexIdMap;
+import com.bigdata.rdf.graph.impl.ram.RAMGASEngine.RAMGraphAccessor;
+import com.bigdata.rdf.graph.impl.scheduler.BitmapScheduler;
+
+/**
+ * Test suite for the {@link BitmapFrontier} and the {@link BitmapScheduler}.
+ */
+public class TestBitmapFrontier extends AbstractRAMGraphTestCase {
+
+    public TestBitmapFrontier() {
+
+    }
+
+    public TestBitmapFrontier(String name) {
+        super(name);
+    }
+
+    private static Value[] newVertices(final int n) {
+
+        final Value[] a = new Value[n];
+
+        for (int i = 0; i < n; i++) {
+
+            a[i] = new URIImpl("http://www.bigdata.com/v" + i);
+
+        }
+
+        return a;
+
+    }
+
+    private static Set<Value> asSet(final IStaticFrontier f) {
+
+        final Set<Value> s = new HashSet<Value>();
+
+        for (Value v : f) {
+
+            assertTrue("duplicate: " + v, s.add(v));
+
+        }
+
+        return s;
+
+    }
+
+    /**
+     * Identifiers are dense, stable and resolvable.
+     */
+    public void test_vertexIdMap() {
+
+        final VertexIdMap map = new VertexIdMap();
+
+        final Value[] a = newVertices(3);
+
+        assertEquals(-1, map.getId(a[0]));
+        assertEquals(0, map.getOrAssign(a[0]));
+        assertEquals(1, map.getOrAssign(a[1]));
+        assertEquals(0, map.getOrAssign(a[0]));
+        assertEquals(2, map.getOrAssign(a[2]));
+        assertEquals(3, map.size());
+        assertEquals(a[1], map.getValue(1));
+        assertNull(map.getValue(3));
+
+    }
+
+    /**
+     * The frontier switches between the sparse and dense representations
+     * based on its density and reports the switch.
+     */
+    public void test_frontier_switchesRepresentation() {
+
+        final Value[] a = newVertices(100);
+
+        final BitmapFrontier f = new BitmapFrontier(0.5d/* denseThreshold */);
+
+        assertTrue(f.isEmpty());
+        assertFalse(f.isDense());
+
+        // All vertices : dense.
+        f.resetFrontier(a.length, false/* sort */,
+                Arrays.asList(a).iterator());
+        assertEquals(a.length, f.size());
+        assertTrue(f.isDense());
+        assertTrue(f.isSwitched());
+        assertEquals(1d, f.getDensity());
+        assertEquals(new HashSet<Value>(Arrays.asList(a)), asSet(f));
+
+        // A few vertices, with duplicates : sparse and compact.
+        f.resetFrontier(4, false/* sort */,
+                Arrays.asList(a[7], a[3], a[7], a[42]).iterator());
+        assertEquals(3, f.size());
+        assertFalse(f.isDense());
+        assertTrue(f.isSwitched());
+        assertTrue(f.isCompact());
+        assertEquals(new HashSet<Value>(Arrays.asList(a[3], a[7], a[42])),
+                asSet(f));
+
+        // Still sparse : no switch.
+        f.resetFrontier(1, false/* sort */, Arrays.asList(a[9]).iterator());
+        assertEquals(1, f.size());
+        assertFalse(f.isDense());
+        assertFalse(f.isSwitched());
+
+    }
+
+    /**
+     * The density is computed against the #of vertices seen so far. This pins
+     * the point at which the representation switches.
+     */
+    public void test_frontier_densityOfVerticesSeenSoFar() {
+
+        final Value[] a = newVertices(100);
+
+        final BitmapFrontier f = new BitmapFrontier(0.25d/* denseThreshold */);
+
+        // Only one vertex has been seen, so a frontier of one is dense.
+        f.resetFrontier(1, false/* sort */, Arrays.asList(a[0]).iterator());
+        assertEquals(1d, f.getDensity());
+        assertTrue(f.isDense());
+
+        // All 100 vertices are seen.
+        f.resetFrontier(a.length, false/* sort */,
+                Arrays.asList(a).iterator());
+        assertEquals(1d, f.getDensity());
+        assertTrue(f.isDense());
+
+        // 25 of the 100 vertices seen : at the threshold, still dense.
+        f.resetFrontier(25, false/* sort */,
+                Arrays.asList(a).subList(0, 25).iterator());
+        assertEquals(.25d, f.getDensity());
+        assertTrue(f.isDense());
+        assertFalse(f.isSwitched());
+
+        // 24 of the 100 vertices seen : below the threshold, sparse.
+        f.resetFrontier(24, false/* sort */,
+                Arrays.asList(a).subList(0, 24).iterator());
+        assertEquals(.24d, f.getDensity());
+        assertFalse(f.isDense());
+        assertTrue(f.isSwitched());
+
+    }
+
+    /**
+     * Concurrent scheduling of overlapping vertex sets is lock-free and the
+     * compacted frontier is distinct.
+     */
+    public void test_scheduler_concurrent() throws Exception {
+
+        final GASEngine gasEngine = (GASEngine) getGraphFixture()
+                .newGASEngine(4/* nthreads */);
+
+        try {
+
+            final IGASSchedulerImpl sch = new BitmapScheduler(gasEngine);
+
+            final Value[] a = newVertices(10000);
+
+            final List<Thread> threads = new LinkedList<Thread>();
+
+            for (int t = 0; t < 4; t++) {
+
+                final int start = t * 1000;
+
+                threads.add(new Thread() {
+                    @Override
+                    public void run() {
+                        for (int i = start; i < start + 5000; i++) {
+                            sch.schedule(a[i]);
+                        }
+                    }
+                });
+
+            }
+
+            for (Thread t : threads)
+                t.start();
+
+            for (Thread t : threads)
+                t.join();
+
+            // Compact onto a bitmap frontier.
+            final BitmapFrontier f = new BitmapFrontier();
+            sch.compactFrontier(f);
+            assertEquals(8000, f.size());
+            assertEquals(new HashSet<Value>(Arrays.asList(a).subList(0, 8000)),
+                    asSet(f));
+
+            // Compact onto some other frontier.
+            final StaticFrontier2 f2 = new StaticFrontier2();
+            sch.compactFrontier(f2);
+            assertEquals(8000, f2.size());
+
+            // Clear and reschedule.
+            sch.clear();
+            sch.schedule(a[5]);
+            sch.compactFrontier(f);
+            assertEquals(1, f.size());
+            assertEquals(a[5], f.iterator().next());
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * BFS using the {@link BitmapScheduler} and {@link BitmapFrontier} visits
+     * the same vertices at the same depths as the default configuration.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void test_BFS_bitmap() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final GASEngine gasEngine = (GASEngine) getGraphFixture()
+                .newGASEngine(1/* nthreads */);
+
+        try {
+
+            gasEngine.setSchedulerClass((Class) BitmapScheduler.class);
+
+            gasEngine.setFrontierClass((Class) BitmapFrontier.class);
+
+            final IGraphAccessor graphAccessor = new RAMGraphAccessor(
+                    getGraphFixture().getGraph());
+
+            final IGASContext<BFS.VS, BFS.ES, Void> gasContext = gasEngine
+                    .newGASContext(graphAccessor, new BFS());
+
+            final IGASState<BFS.VS, BFS.ES, Void> gasState = gasContext
+                    .getGASState();
+
+            assertTrue(gasState.frontier() instanceof BitmapFrontier);
+
+            // Initialize the froniter.
+            gasState.setFrontier(gasContext, p.getMike());
+
+            // Converge.
+            final IGASStats stats = gasContext.call();
+
+            assertEquals(0, gasState.getState(p.getMike()).depth());
+            assertEquals(1, gasState.getState(p.getFoafPerson()).depth());
+            assertEquals(1, gasState.getState(p.getBryan()).depth());
+            assertEquals(2, gasState.getState(p.getMartyn()).depth());
+
+            // The frontier statistics were reported.
+            assertTrue(stats.getNDenseRounds() > 0);
+            assertTrue(stats.getFrontierDensity() > 0d);
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+}
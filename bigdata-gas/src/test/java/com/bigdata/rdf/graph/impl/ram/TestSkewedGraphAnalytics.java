@@ -0,0 +1,234 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.ram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASEngine;
+import com.bigdata.rdf.graph.IGASProgram;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IGASStats;
+import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.analytics.DOBFS;
+import com.bigdata.rdf.graph.analytics.DeltaSSSP;
+import com.bigdata.rdf.graph.analytics.SSSP;
+import com.bigdata.rdf.graph.impl.ram.RAMGASEngine.RAMGraph;
+import com.bigdata.rdf.graph.impl.ram.RAMGASEngine.RAMGraphAccessor;
+
+/**
+ * Compares {@link DOBFS} with {@link BFS} and {@link DeltaSSSP} with
+ * {@link SSSP} on a synthetic low-diameter graph with a skewed degree
+ * distribution (preferential attachment). The results must be the same. The
+ * elapsed time and the statistics for each run are logged @ INFO.
+ * <p>
+ * Note: Use {@link RAMGASRunner} to benchmark these analytics against a data
+ * set loaded into a {@link RAMGraphFixture}.
+ */
+public class TestSkewedGraphAnalytics extends AbstractRAMGraphTestCase {
+
+    private static final Logger log = Logger
+            .getLogger(TestSkewedGraphAnalytics.class);
+
+    public TestSkewedGraphAnalytics() {
+
+    }
+
+    public TestSkewedGraphAnalytics(String name) {
+        super(name);
+    }
+
+    /**
+     * The #of vertices in the generated graph.
+     */
+    private static final int NVERTICES = 5000;
+
+    /**
+     * The #of links from each new vertex to the existing vertices.
+     */
+    private static final int NLINKS = 3;
+
+    /**
+     * Generate a graph by preferential attachment. Each new vertex is linked
+     * (in both directions) to {@link #NLINKS} existing vertices chosen with a
+     * probability proportional to their degree.
+     *
+     * @return The vertices of the graph.
+     */
+    private Value[] newSkewedGraph(final long seed) {
+
+        final RAMGraph g = getGraphFixture().getGraph();
+
+        final ValueFactory vf = g.getValueFactory();
+
+        final URI link = vf.createURI("http://www.bigdata.com/link");
+
+        final Random r = new Random(seed);
+
+        final Value[] a = new Value[NVERTICES];
+
+        // One entry per edge endpoint, so sampling is degree proportional.
+        final List<Value> endpoints = new ArrayList<Value>();
+
+        for (int i = 0; i < NVERTICES; i++) {
+
+            final URI v = vf.createURI("http://www.bigdata.com/v" + i);
+
+            a[i] = v;
+
+            for (int j = 0; j < NLINKS && i > 0; j++) {
+
+                final URI w = (URI) (endpoints.isEmpty() ? a[0] : endpoints
+                        .get(r.nextInt(endpoints.size())));
+
+                if (w.equals(v))
+                    continue;
+
+                g.add(vf.createStatement(v, link, w));
+
+                g.add(vf.createStatement(w, link, v));
+
+                endpoints.add(v);
+
+                endpoints.add(w);
+
+            }
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Run the program from the given vertex and return the computation state.
+     */
+    private <VS, ES, ST> IGASState<VS, ES, ST> run(final IGASEngine gasEngine,
+            final IGASProgram<VS, ES, ST> program, final Value start)
+            throws Exception {
+
+        final IGraphAccessor graphAccessor = new RAMGraphAccessor(
+                getGraphFixture().getGraph());
+
+        final IGASContext<VS, ES, ST> gasContext = gasEngine.newGASContext(
+                graphAccessor, program);
+
+        final IGASState<VS, ES, ST> gasState = gasContext.getGASState();
+
+        gasState.setFrontier(gasContext, start);
+
+        final long begin = System.nanoTime();
+
+        final IGASStats stats = gasContext.call();
+
+        if (log.isInfoEnabled())
+            log.info(program.getClass().getSimpleName() + ": elapsed="
+                    + (System.nanoTime() - begin) / 1000000 + "ms, " + stats);
+
+        return gasState;
+
+    }
+
+    /**
+     * {@link DOBFS} reports the same depths as {@link BFS} and uses the pull
+     * strategy for some of the rounds.
+     */
+    public void test_DOBFS() throws Exception {
+
+        final Value[] a = newSkewedGraph(137L);
+
+        final IGASEngine gasEngine = getGraphFixture().newGASEngine(4/* nthreads */);
+
+        try {
+
+            final IGASState<BFS.VS, BFS.ES, Void> expected = run(gasEngine,
+                    new BFS(), a[a.length - 1]);
+
+            final DOBFS dobfs = new DOBFS(DOBFS.DEFAULT_ALPHA,
+                    DOBFS.DEFAULT_BETA, 64/* minPullFrontier */);
+
+            final IGASState<BFS.VS, BFS.ES, Void> actual = run(gasEngine,
+                    dobfs, a[a.length - 1]);
+
+            assertTrue(dobfs.getPullRoundCount() > 0);
+
+            for (Value v : a) {
+
+                assertEquals(v.stringValue(), expected.isVisited(v),
+                        actual.isVisited(v));
+
+                if (expected.isVisited(v)) {
+
+                    assertEquals(v.stringValue(), expected.getState(v)
+                            .depth(), actual.getState(v).depth());
+
+                }
+
+            }
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * {@link DeltaSSSP} reports the same distances as {@link SSSP}.
+     */
+    public void test_DeltaSSSP() throws Exception {
+
+        final Value[] a = newSkewedGraph(731L);
+
+        final IGASEngine gasEngine = getGraphFixture().newGASEngine(4/* nthreads */);
+
+        try {
+
+            final IGASState<SSSP.VS, SSSP.ES, Integer> expected = run(
+                    gasEngine, new SSSP(), a[a.length - 1]);
+
+            for (double delta : new double[] { .5d, 1d, 3d }) {
+
+                final IGASState<SSSP.VS, SSSP.ES, Integer> actual = run(
+                        gasEngine, new DeltaSSSP(delta), a[a.length - 1]);
+
+                for (Value v : a) {
+
+                    assertEquals(v.stringValue(), expected.getState(v).dist(),
+                            actual.getState(v).dist());
+
+                }
+
+            }
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+}
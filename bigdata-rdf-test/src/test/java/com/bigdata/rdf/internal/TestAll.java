@@ -87,6 +87,9 @@ public class TestAll extends TestCase {
         // unit tests for fully inline URIs based on a namespace + localName.
         suite.addTestSuite(TestURIExtensionIV.class);
 
+        // unit tests for the dictionary of learned URI namespaces.
+        suite.addTestSuite(TestNamespaceDictionary.class);
+
         // unit tests for inline literals with a datatype IV.
         suite.addTestSuite(TestLiteralDatatypeIV.class);
 
@@ -104,6 +107,7 @@ public class TestAll extends TestCase {
         
         // test suite for GeoSpatial utility
         suite.addTestSuite(TestZOrderRangeScanUtility.class);
+        suite.addTestSuite(TestZOrderCellDecomposer.class);
 
         // test suite for encode/decode of xsd:decimal IVs
         suite.addTestSuite(TestEncodeDecodeXSDDecimalIVs.class);
@@ -0,0 +1,184 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rdf.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.impl.URIImpl;
+
+import com.bigdata.rdf.internal.impl.uri.URIExtensionIV;
+import com.bigdata.rdf.internal.impl.uri.VocabURIShortIV;
+
+/**
+ * Test suite for {@link NamespaceDictionary}.
+ */
+public class TestNamespaceDictionary extends TestCase2 {
+
+    public TestNamespaceDictionary() {
+    }
+
+    public TestNamespaceDictionary(String name) {
+        super(name);
+    }
+
+    private static final String NS1 = "http://www.example.org/a/";
+
+    private static final String NS2 = "http://www.example.org/b#";
+
+    /**
+     * The {@link IV}s are allocated downward from <code>-1</code> and never
+     * overlap the {@link VocabURIShortIV}s assigned by a vocabulary.
+     */
+    public void test_ivs() {
+
+        assertEquals((short) -1, NamespaceDictionary.getIV(0).getInlineValue()
+                .shortValue());
+
+        assertEquals((short) -32512,
+                NamespaceDictionary.getIV(NamespaceDictionary.MAX_SIZE - 1)
+                        .getInlineValue().shortValue());
+
+        // the last short assigned by the vocabulary (item 33023).
+        assertEquals((short) -32513, (short) 33023);
+
+        try {
+            NamespaceDictionary.getIV(NamespaceDictionary.MAX_SIZE);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Only URIs in a learned namespace with a non-empty localName of
+     * bounded length are inlined.
+     */
+    public void test_createInlineIV() {
+
+        final NamespaceDictionary dict = new NamespaceDictionary();
+
+        assertNull(dict.createInlineIV(new URIImpl(NS1 + "x")));
+
+        assertEquals(0, dict.add(NS1));
+        assertEquals(1, dict.add(NS2));
+
+        assertEquals(2, dict.size());
+        assertTrue(dict.contains(NS1));
+        assertTrue(dict.isNamespaceIV(NamespaceDictionary.getIV(1)));
+        assertEquals(NS2, dict.getNamespace(NamespaceDictionary.getIV(1)));
+
+        final URIExtensionIV<?> iv = dict.createInlineIV(new URIImpl(NS2
+                + "foo"));
+
+        assertNotNull(iv);
+        assertTrue(iv.isInline());
+        assertEquals(NamespaceDictionary.getIV(1), iv.getExtensionIV());
+        assertEquals("foo", iv.getLocalNameIV().getInlineValue().toString());
+
+        // not a learned namespace.
+        assertNull(dict.createInlineIV(new URIImpl(
+                "http://www.example.org/c/foo")));
+
+        // empty localName.
+        assertNull(dict.createInlineIV(new URIImpl(NS1)));
+
+        // localName is too long.
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= NamespaceDictionary.MAX_LOCAL_NAME_LENGTH; i++)
+            sb.append('a');
+        assertNull(dict.createInlineIV(new URIImpl(NS1 + sb)));
+        assertNotNull(dict.createInlineIV(new URIImpl(NS1
+                + sb.substring(1))));
+
+        try {
+            dict.add(NS1);
+            fail("Expecting: " + IllegalStateException.class);
+        } catch (IllegalStateException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * The dictionary is restored from the columns written on the global row
+     * store and detects rows which are not consistent with its state.
+     */
+    public void test_load() {
+
+        final Map<String, Object> row = new LinkedHashMap<String, Object>();
+
+        row.put("namespace", "kb.lex");
+        row.put(NamespaceDictionary.getColumnName(1), NS2);
+        row.put(NamespaceDictionary.getColumnName(0), NS1);
+
+        final NamespaceDictionary dict = new NamespaceDictionary();
+
+        dict.load(null);
+        assertEquals(0, dict.size());
+
+        dict.load(row);
+        assertEquals(2, dict.size());
+        assertEquals(NS1, dict.getNamespace(NamespaceDictionary.getIV(0)));
+        assertEquals(NS2, dict.getNamespace(NamespaceDictionary.getIV(1)));
+
+        // reloading the same row is a NOP.
+        dict.load(row);
+        assertEquals(2, dict.size());
+
+        // new entries are appended.
+        row.put(NamespaceDictionary.getColumnName(2), "http://www.example.org/c/");
+        dict.load(row);
+        assertEquals(3, dict.size());
+
+        // a conflicting entry is rejected.
+        row.put(NamespaceDictionary.getColumnName(0), "http://www.example.org/d/");
+        try {
+            dict.load(row);
+            fail("Expecting: " + IllegalStateException.class);
+        } catch (IllegalStateException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        // a gap is rejected.
+        final Map<String, Object> gap = new LinkedHashMap<String, Object>();
+        gap.put(NamespaceDictionary.getColumnName(1), NS2);
+        try {
+            new NamespaceDictionary().load(gap);
+            fail("Expecting: " + IllegalStateException.class);
+        } catch (IllegalStateException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
@@ -0,0 +1,218 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.rdf.internal.gis.CoordinateUtility;
+import com.bigdata.service.geospatial.GeoSpatialDatatypeConfiguration;
+import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration;
+import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration.ServiceMapping;
+import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration.ValueType;
+import com.bigdata.service.geospatial.GeoSpatialDefaultLiteralSerializer;
+import com.bigdata.service.geospatial.ZOrderCellDecomposer;
+import com.bigdata.service.geospatial.ZOrderCellDecomposer.Cell;
+
+/**
+ * Test for the decomposition of geospatial search ranges into z-order aligned
+ * cells, see {@link ZOrderCellDecomposer}.
+ *
+ * @version $Id$
+ */
+public class TestZOrderCellDecomposer extends TestCase2 {
+
+   /**
+    * Lat+lon+time datatype with a (low) precision of two decimal digits,
+    * which keeps the search ranges small enough for exhaustive checks.
+    */
+   private GeoSpatialDatatypeConfiguration getLatLonTimeConfig(final Long minValue) {
+
+      final List<GeoSpatialDatatypeFieldConfiguration> fields =
+         new ArrayList<GeoSpatialDatatypeFieldConfiguration>();
+      fields.add(new GeoSpatialDatatypeFieldConfiguration(
+         ValueType.DOUBLE, minValue, 100, ServiceMapping.LATITUDE, null));
+      fields.add(new GeoSpatialDatatypeFieldConfiguration(
+         ValueType.DOUBLE, minValue, 100, ServiceMapping.LONGITUDE, null));
+      fields.add(new GeoSpatialDatatypeFieldConfiguration(
+         ValueType.LONG, null, 1, ServiceMapping.TIME, null));
+
+      return new GeoSpatialDatatypeConfiguration(
+         "http://www.bigdata.com/rdf/geospatial/literals/v1#lat-lon-time-test",
+         new GeoSpatialDefaultLiteralSerializer(), fields);
+   }
+
+   /**
+    * With a cell budget of one, the search range is not decomposed.
+    */
+   public void testNoDecomposition() {
+
+      final GeoSpatialDatatypeConfiguration config = getLatLonTimeConfig(null);
+
+      final ZOrderCellDecomposer decomposer = new ZOrderCellDecomposer(
+         config, ZOrderCellDecomposer.getSpatialSplitDims(config), 1 /* cellBudget */);
+
+      final long[] lower = { 1003, 2017, 5 };
+      final long[] upper = { 1099, 2100, 7 };
+
+      final List<Cell> cells =
+         decomposer.decompose(lower, upper, ZOrderCellDecomposer.ALL_INSIDE);
+
+      assertEquals(1, cells.size());
+      assertEquals(lower, cells.get(0).getLower());
+      assertEquals(upper, cells.get(0).getUpper());
+      assertFalse(cells.get(0).isBorder());
+   }
+
+   /**
+    * A rectangle is decomposed into disjoint cells covering it exactly,
+    * both with and without range shift.
+    */
+   public void testRectangleDecomposition() {
+
+      for (Long minValue : new Long[] { null, -18000L }) {
+
+         final GeoSpatialDatatypeConfiguration config = getLatLonTimeConfig(minValue);
+
+         final ZOrderCellDecomposer decomposer = new ZOrderCellDecomposer(
+            config, ZOrderCellDecomposer.getSpatialSplitDims(config), 16 /* cellBudget */);
+
+         final long[] lower = { -37, 1003, 5 };
+         final long[] upper = { 61, 1090, 7 };
+
+         final List<Cell> cells =
+            decomposer.decompose(lower, upper, ZOrderCellDecomposer.ALL_INSIDE);
+
+         assertTrue(cells.size()>1);
+         assertTrue(cells.size()<=16);
+         assertEquals(0, decomposer.getNumPrunedCells());
+
+         for (Cell cell : cells) {
+            assertFalse(cell.isBorder());
+
+            // non-split dimension is left unchanged
+            assertEquals(5, cell.getLower()[2]);
+            assertEquals(7, cell.getUpper()[2]);
+         }
+
+         for (long lat=lower[0]; lat<=upper[0]; lat++) {
+            for (long lon=lower[1]; lon<=upper[1]; lon++) {
+               assertEquals("lat=" + lat + ", lon=" + lon, 1, numCovering(cells, lat, lon));
+            }
+         }
+      }
+   }
+
+   /**
+    * The cells of a circle decomposition cover all points in the circle, cells
+    * inside the circle only contain points inside the circle, and cells
+    * outside of the circle are dropped.
+    */
+   public void testCircleDecomposition() {
+
+      final GeoSpatialDatatypeConfiguration config = getLatLonTimeConfig(null);
+
+      final ZOrderCellDecomposer decomposer = new ZOrderCellDecomposer(
+         config, ZOrderCellDecomposer.getSpatialSplitDims(config), 64 /* cellBudget */);
+
+      final double centerLat = 50.0;
+      final double centerLon = 10.0;
+      final double radius = 100000; // 100km
+
+      // bounding box of the circle, roughly
+      final long[] lower = { 4900, 840, 0 };
+      final long[] upper = { 5100, 1160, 0 };
+
+      final List<Cell> cells = decomposer.decompose(lower, upper,
+         new ZOrderCellDecomposer.InCircleClassifier(config, centerLat, centerLon, radius));
+
+      assertTrue(cells.size()<=64);
+      assertTrue(decomposer.getNumPrunedCells()>0);
+
+      int numInside = 0;
+      for (Cell cell : cells) {
+         if (!cell.isBorder())
+            numInside++;
+      }
+      assertTrue(numInside>0);
+
+      for (long lat=lower[0]; lat<=upper[0]; lat++) {
+         for (long lon=lower[1]; lon<=upper[1]; lon++) {
+
+            final boolean inCircle = CoordinateUtility.distanceInMeters(
+               lat/100.0, centerLat, lon/100.0, centerLon) <= radius;
+
+            final int numCovering = numCovering(cells, lat, lon);
+            assertTrue(numCovering<=1);
+
+            if (inCircle) {
+               assertEquals("lat=" + lat + ", lon=" + lon, 1, numCovering);
+            }
+
+            for (Cell cell : cells) {
+               if (!cell.isBorder() && covers(cell, lat, lon)) {
+                  assertTrue("lat=" + lat + ", lon=" + lon, inCircle);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * A circle far away from the search range is pruned entirely.
+    */
+   public void testCircleDisjoint() {
+
+      final GeoSpatialDatatypeConfiguration config = getLatLonTimeConfig(null);
+
+      final ZOrderCellDecomposer decomposer = new ZOrderCellDecomposer(
+         config, ZOrderCellDecomposer.getSpatialSplitDims(config), 16 /* cellBudget */);
+
+      final List<Cell> cells = decomposer.decompose(
+         new long[] { 4900, 840, 0 }, new long[] { 5100, 1160, 0 },
+         new ZOrderCellDecomposer.InCircleClassifier(config, -30.0, 100.0, 1000));
+
+      assertTrue(cells.isEmpty());
+      assertEquals(1, decomposer.getNumPrunedCells());
+   }
+
+   private static int numCovering(final List<Cell> cells, final long lat, final long lon) {
+
+      int ctr = 0;
+      for (Cell cell : cells) {
+         if (covers(cell, lat, lon))
+            ctr++;
+      }
+      return ctr;
+   }
+
+   private static boolean covers(final Cell cell, final long lat, final long lon) {
+
+      return cell.getLower()[0]<=lat && lat<=cell.getUpper()[0]
+         && cell.getLower()[1]<=lon && lon<=cell.getUpper()[1];
+   }
+
+}
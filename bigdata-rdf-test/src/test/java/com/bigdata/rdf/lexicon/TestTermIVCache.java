@@ -0,0 +1,226 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package com.bigdata.rdf.lexicon;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+
+/**
+ * Test suite for {@link TermIVCache}.
+ */
+public class TestTermIVCache extends TestCase2 {
+
+    public TestTermIVCache() {
+    }
+
+    public TestTermIVCache(String name) {
+        super(name);
+    }
+
+    private static byte[] key(final int i) {
+
+        return new byte[] { 1, (byte) (i >>> 8), (byte) i };
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static IV termId(final long termId) {
+
+        return new TermId(VTE.URI, termId);
+
+    }
+
+    /**
+     * A mapping is only visible to readers whose commit time is GTE the commit
+     * time of the entry. Re-entering a mapping with an earlier commit time
+     * makes it visible to more readers.
+     */
+    public void test_commitTime() {
+
+        final TermIVCache cache = new TermIVCache(1024 * 1024);
+
+        assertNull(cache.get(key(1), Long.MAX_VALUE));
+
+        cache.put(key(1), termId(12L), 100L/* commitTime */);
+
+        assertEquals(1, cache.size());
+
+        assertEquals(termId(12L), cache.get(key(1), 100L));
+        assertEquals(termId(12L), cache.get(key(1), 200L));
+        assertEquals(termId(12L), cache.get(key(1), Long.MAX_VALUE));
+        assertNull(cache.get(key(1), 99L));
+
+        // a later commit time does not hide the mapping.
+        cache.put(key(1), termId(12L), 200L/* commitTime */);
+        assertEquals(termId(12L), cache.get(key(1), 100L));
+
+        // an earlier commit time replaces the entry.
+        cache.put(key(1), termId(12L), 50L/* commitTime */);
+        assertEquals(termId(12L), cache.get(key(1), 50L));
+
+        assertEquals(1, cache.size());
+
+        // the bytes are charged once per entry.
+        final long bytesInUse = cache.getBytesInUse();
+        assertTrue(bytesInUse > TermIVCache.ENTRY_OVERHEAD);
+        cache.put(key(2), termId(13L), 50L/* commitTime */);
+        assertEquals(2 * bytesInUse, cache.getBytesInUse());
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getBytesInUse());
+        assertNull(cache.get(key(1), Long.MAX_VALUE));
+
+    }
+
+    /**
+     * The cache returns a copy of the {@link IV} which does not have a
+     * reference to a cached value.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_clone() {
+
+        final TermIVCache cache = new TermIVCache(1024 * 1024);
+
+        final IV iv = termId(12L);
+
+        cache.put(key(1), iv, 0L/* commitTime */);
+
+        final IV actual = cache.get(key(1), Long.MAX_VALUE);
+
+        assertEquals(iv, actual);
+
+        assertNotSame(iv, actual);
+
+        assertNotSame(actual, cache.get(key(1), Long.MAX_VALUE));
+
+        assertFalse(actual.hasValue());
+
+    }
+
+    /**
+     * The cache is bounded by the bytes in use. An entry which was used since
+     * it was inserted is retained over one which was not.
+     */
+    public void test_eviction() {
+
+        final TermIVCache tmp = new TermIVCache(1024 * 1024);
+
+        tmp.put(key(0), termId(1L), 0L);
+
+        final long entryBytes = tmp.getBytesInUse();
+
+        // room for 10 entries.
+        final TermIVCache cache = new TermIVCache(10 * entryBytes);
+
+        for (int i = 0; i < 10; i++) {
+
+            cache.put(key(i), termId(i + 1), 0L);
+
+        }
+
+        assertEquals(10, cache.size());
+        assertEquals(0L, cache.getEvictionCount());
+
+        // use the first entry.
+        assertNotNull(cache.get(key(0), Long.MAX_VALUE));
+
+        cache.put(key(10), termId(11L), 0L);
+
+        assertEquals(10, cache.size());
+        assertEquals(1L, cache.getEvictionCount());
+        assertTrue(cache.getBytesInUse() <= cache.getMaximumBytes());
+
+        // the used entry was retained and the next oldest was evicted.
+        assertNotNull(cache.get(key(0), Long.MAX_VALUE));
+        assertNull(cache.get(key(1), Long.MAX_VALUE));
+        assertNotNull(cache.get(key(10), Long.MAX_VALUE));
+
+        for (int i = 11; i < 100; i++) {
+
+            cache.put(key(i), termId(i + 1), 0L);
+
+        }
+
+        assertEquals(10, cache.size());
+        assertTrue(cache.getBytesInUse() <= cache.getMaximumBytes());
+
+    }
+
+    /**
+     * A view of a commit point reads and writes on the shared cache. Any other
+     * view reads on the shared cache but only writes on its local cache.
+     */
+    public void test_view() {
+
+        final TermIVCache shared = new TermIVCache(1024 * 1024);
+
+        final TermIVCache.View readOnly = new TermIVCache.View(shared,
+                100L/* readTime */, null/* local */);
+
+        final TermIVCache.View unisolated = new TermIVCache.View(shared,
+                Long.MAX_VALUE/* readTime */, new TermIVCache(1024 * 1024));
+
+        // mappings entered by the unisolated view are not shared.
+        unisolated.put(key(1), termId(1L));
+        assertEquals(termId(1L), unisolated.get(key(1)));
+        assertNull(readOnly.get(key(1)));
+        assertEquals(0, shared.size());
+
+        // mappings entered by the read-only view are shared.
+        readOnly.put(key(2), termId(2L));
+        assertEquals(termId(2L), readOnly.get(key(2)));
+        assertEquals(termId(2L), unisolated.get(key(2)));
+        assertEquals(1, shared.size());
+
+        // not visible to an earlier commit point.
+        assertNull(new TermIVCache.View(shared, 99L/* readTime */, null/* local */)
+                .get(key(2)));
+
+        assertEquals(2L, readOnly.getHitCount());
+        assertEquals(1L, readOnly.getMissCount());
+        assertEquals(2L, unisolated.getHitCount());
+        assertEquals(0L, unisolated.getMissCount());
+
+        assertNotNull(unisolated.getCounters().getChild("shared"));
+        assertNotNull(unisolated.getCounters().getChild("local"));
+        assertNull(readOnly.getCounters().getChild("local"));
+
+        try {
+            new TermIVCache.View(shared, 100L/* readTime */, new TermIVCache(
+                    1024));
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.bigdata.rdf.model;
 
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
 
 import junit.framework.TestCase2;
@@ -15,6 +19,7 @@ import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.model.vocabulary.XMLSchema;
 
 import com.bigdata.io.SerializerUtil;
+import com.bigdata.io.compression.SymbolTableCompressor;
 
 /**
  * Test suite for {@link BigdataValueImpl} serialization semantics, including
@@ -188,6 +193,197 @@ public class TestBigdataValueSerialization extends TestCase2 {
 	    
 	}
 	
+    /**
+     * Test round trip of {@link Value}s using a static symbol table to
+     * compress the Unicode strings, including strings which are not covered
+     * by the symbols in the table.
+     */
+    public void test_roundTrip_symbolTable() throws UnsupportedEncodingException {
+
+        final List<byte[]> sample = new LinkedList<byte[]>();
+
+        for (int i = 0; i < 100; i++) {
+
+            sample.add(("http://www.bigdata.com/ns#item" + i)
+                    .getBytes("UTF-8"));
+
+        }
+
+        final BigdataValueSerializer<Value> ser = new BigdataValueSerializer<Value>(
+                ValueFactoryImpl.getInstance(), SymbolTableCompressor
+                        .train(sample));
+
+        final Value[] a = new Value[] {
+                new URIImpl("http://www.bigdata.com/ns#item12"),
+                new URIImpl("http://www.example.org/\u00e9t\u00e9"),
+                new LiteralImpl("bigdata"),
+                new LiteralImpl("bigdata", "en"),
+                new LiteralImpl("12", XMLSchema.INT),
+                new LiteralImpl(""),
+                new BNodeImpl(UUID.randomUUID().toString()) };
+
+        for (Value v : a) {
+
+            assertEquals(v, ser.deserialize(ser.serialize(v)));
+
+        }
+
+        // the table was used.
+        assertTrue(ser.serialize(a[0]).length < fixture.serialize(a[0]).length);
+
+        // the table is required to read the data.
+        try {
+            fixture.deserialize(ser.serialize(a[0]));
+            fail("Expecting: " + UnsupportedOperationException.class);
+        } catch (UnsupportedOperationException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        // data written without the table are still readable.
+        assertEquals(a[0], ser.deserialize(fixture.serialize(a[0])));
+
+    }
+
+    /**
+     * Strings with an unpaired surrogate can not be encoded as UTF-8. Values
+     * having such strings must round trip (and serialize to the same bytes as
+     * without the table) when the serializer has a symbol table.
+     */
+    public void test_roundTrip_symbolTable_unpairedSurrogate()
+            throws UnsupportedEncodingException {
+
+        final List<byte[]> sample = new LinkedList<byte[]>();
+
+        for (int i = 0; i < 100; i++) {
+
+            sample.add(("http://www.bigdata.com/ns#item" + i)
+                    .getBytes("UTF-8"));
+
+        }
+
+        final BigdataValueSerializer<Value> ser = new BigdataValueSerializer<Value>(
+                ValueFactoryImpl.getInstance(), SymbolTableCompressor
+                        .train(sample));
+
+        final Value[] a = new Value[] {
+                new URIImpl("http://www.bigdata.com/ns#item\ud800"),
+                new LiteralImpl("a\ud800b"),
+                new LiteralImpl("a\udc00"),
+                new LiteralImpl("\udbff", "en"),
+                new LiteralImpl("x\ud800", XMLSchema.STRING),
+                new BNodeImpl("b\udfff") };
+
+        for (Value v : a) {
+
+            final byte[] b = ser.serialize(v);
+
+            assertEquals(v, ser.deserialize(b));
+
+            assertEquals(fixture.serialize(v), b);
+
+        }
+
+        // a surrogate pair is still compressed.
+        final Value v = new LiteralImpl("a\ud83d\ude00b");
+
+        assertEquals(v, ser.deserialize(ser.serialize(v)));
+
+        assertFalse(BigdataValueSerializer.hasUnpairedSurrogate("a\ud83d\ude00b"));
+
+        assertTrue(BigdataValueSerializer.hasUnpairedSurrogate("\ude00\ud83d"));
+
+    }
+	
+    /**
+     * Values materialized by
+     * {@link BigdataValueSerializer#deserializeLazy(byte[])} decode their
+     * lexical form on demand and report its UTF-8 encoding.
+     */
+    public void test_deserializeLazy() throws UnsupportedEncodingException {
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final List<byte[]> sample = new LinkedList<byte[]>();
+
+        for (int i = 0; i < 100; i++) {
+
+            sample.add(("http://www.bigdata.com/ns#item" + i)
+                    .getBytes("UTF-8"));
+
+        }
+
+        @SuppressWarnings("unchecked")
+        final BigdataValueSerializer<BigdataValue>[] sers = new BigdataValueSerializer[] {
+                f.getValueSerializer(),
+                new BigdataValueSerializer<BigdataValue>(f,
+                        SymbolTableCompressor.train(sample)) };
+
+        final BigdataValue[] a = new BigdataValue[] {
+                f.createURI("http://www.bigdata.com/ns#item12"),
+                f.createURI("http://www.example.org/\u00e9t\u00e9"),
+                f.createLiteral("bigdata"),
+                f.createLiteral("bigdata", "en"),
+                f.createLiteral("12", XMLSchema.INT),
+                f.createLiteral("") };
+
+        for (BigdataValueSerializer<BigdataValue> ser : sers) {
+
+            for (BigdataValue v : a) {
+
+                final BigdataValue actual = ser.deserializeLazy(ser
+                        .serialize(v));
+
+                assertTrue(f == actual.getValueFactory());
+
+                final EncodedUTF8 utf8 = ((BigdataValueImpl) actual)
+                        .getEncodedUTF8();
+
+                assertNotNull(utf8);
+
+                assertEquals(v.stringValue().getBytes("UTF-8"), Arrays
+                        .copyOfRange(utf8.array(), utf8.offset(),
+                                utf8.offset() + utf8.length()));
+
+                assertEquals(v, actual);
+                assertEquals(v.hashCode(), actual.hashCode());
+                assertEquals(v.toString(), actual.toString());
+
+                // Java serialization decodes the lexical form first.
+                assertEquals(v, doDefaultJavaSerializationTest(ser
+                        .deserializeLazy(ser.serialize(v))));
+
+            }
+
+        }
+
+        /*
+         * The modified UTF-8 encoding used by VERSION0 differs for NUL and
+         * supplementary characters, so these are decoded eagerly.
+         */
+        final BigdataValue[] b = new BigdataValue[] {
+                f.createLiteral("a\u0000b"),
+                f.createLiteral("\ud834\udd1e"),
+                f.createBNode("12") };
+
+        final BigdataValueSerializer<BigdataValue> ser = f.getValueSerializer();
+
+        for (BigdataValue v : b) {
+
+            final BigdataValue actual = ser.deserializeLazy(ser.serialize(v));
+
+            assertEquals(v, actual);
+
+            assertNull(((BigdataValueImpl) actual).getEncodedUTF8());
+
+        }
+
+        // not available for values which were not read from the lexicon.
+        assertNull(((BigdataValueImpl) a[0]).getEncodedUTF8());
+
+    }
+
 	private void doRoundTripTest(final Value v) {
 		
 		final String namespace = getName();
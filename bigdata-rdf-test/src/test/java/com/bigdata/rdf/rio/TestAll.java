@@ -83,6 +83,11 @@ public class TestAll extends TestCase {
 		 */
         suite.addTestSuite(TestNTriplesWithSids.class);
 
+        /*
+         * Test suite for the binary interchange of solutions as IVs.
+         */
+        suite.addTestSuite(com.bigdata.rdf.rio.iv.TestBigdataIVSolutions.class);
+
         /*
          * Correctness tests for the asynchronous bulk data loader. This
          * requires the scale-out architecture. SIDs are not supported yet.
@@ -0,0 +1,210 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rio.iv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.ListBindingSet;
+import org.openrdf.query.impl.TupleQueryResultBuilder;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
+import org.openrdf.query.resultio.TupleQueryResultWriterRegistry;
+
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+
+/**
+ * Test suite for the {@link BigdataIVSolutionsWriter} and the
+ * {@link BigdataIVSolutionsParser}.
+ */
+public class TestBigdataIVSolutions extends TestCase2 {
+
+    public TestBigdataIVSolutions() {
+    }
+
+    public TestBigdataIVSolutions(final String name) {
+        super(name);
+    }
+
+    private final List<String> names = Arrays.asList("x", "y", "z");
+
+    /**
+     * The format is registered with the result writer and parser registries.
+     */
+    public void test_registered() {
+
+        ServiceProviderHook.forceLoad();
+
+        final TupleQueryResultFormat format = TupleQueryResultFormat
+                .forMIMEType("application/x-bigdata-iv-solutions");
+
+        assertEquals(ServiceProviderHook.IV_SOLUTIONS, format);
+
+        assertTrue(TupleQueryResultWriterRegistry.getInstance().get(format)
+                .getWriter(new ByteArrayOutputStream()) instanceof BigdataIVSolutionsWriter);
+
+        assertTrue(TupleQueryResultParserRegistry.getInstance().get(format)
+                .getParser() instanceof BigdataIVSolutionsParser);
+
+    }
+
+    /**
+     * Round trip of solutions having values with {@link TermId}s, inline
+     * values, values without an IV, and unbound variables. The frame size is
+     * small enough that the solutions span several frames.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_roundTrip() throws Exception {
+
+        final BigdataValueFactory vf = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final BigdataURI termURI = vf.createURI("http://www.bigdata.com/a");
+        termURI.setIV(new TermId<BigdataURI>(VTE.URI, 12/* termId */));
+
+        final BigdataLiteral inlineLit = vf.createLiteral(5);
+        inlineLit.setIV(new XSDNumericIV(5));
+
+        final BigdataLiteral noIV = vf.createLiteral("abc");
+
+        final Value openrdf = new URIImpl("http://www.openrdf.org/b");
+
+        final List<BindingSet> expected = new ArrayList<BindingSet>();
+
+        for (int i = 0; i < 100; i++) {
+
+            expected.add(new ListBindingSet(names, termURI, inlineLit, null));
+            expected.add(new ListBindingSet(names, noIV, null, openrdf));
+            expected.add(new ListBindingSet(names, null, null, null));
+            expected.add(new ListBindingSet(names, new LiteralImpl("d" + i),
+                    termURI, null));
+
+        }
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final BigdataIVSolutionsWriter w = new BigdataIVSolutionsWriter(baos,
+                128/* frameSize */);
+
+        w.startQueryResult(names);
+        for (BindingSet bs : expected)
+            w.handleSolution(bs);
+        w.endQueryResult();
+
+        final List<BindingSet> actual = parse(baos.toByteArray());
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+
+            assertEquals(expected.get(i), actual.get(i));
+
+        }
+
+    }
+
+    /**
+     * An empty result.
+     */
+    public void test_empty() throws Exception {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final BigdataIVSolutionsWriter w = new BigdataIVSolutionsWriter(baos);
+
+        w.startQueryResult(names);
+        w.endQueryResult();
+
+        assertEquals(0, parse(baos.toByteArray()).size());
+
+    }
+
+    /**
+     * A truncated stream is reported as a parse error.
+     */
+    public void test_truncated() throws Exception {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final BigdataIVSolutionsWriter w = new BigdataIVSolutionsWriter(baos);
+
+        w.startQueryResult(names);
+        w.handleSolution(new ListBindingSet(names, new URIImpl(
+                "http://www.bigdata.com/a"), null, null));
+        w.endQueryResult();
+
+        final byte[] a = baos.toByteArray();
+
+        try {
+            parse(Arrays.copyOf(a, a.length - 2));
+            fail("Expecting: " + QueryResultParseException.class);
+        } catch (QueryResultParseException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    private List<BindingSet> parse(final byte[] a) throws Exception {
+
+        final TupleQueryResultBuilder builder = new TupleQueryResultBuilder();
+
+        final BigdataIVSolutionsParser p = new BigdataIVSolutionsParser();
+
+        p.setTupleQueryResultHandler(builder);
+
+        p.parse(new ByteArrayInputStream(a));
+
+        final TupleQueryResult result = builder.getQueryResult();
+
+        assertEquals(names, result.getBindingNames());
+
+        final List<BindingSet> list = new ArrayList<BindingSet>();
+
+        while (result.hasNext())
+            list.add(result.next());
+
+        return list;
+
+    }
+
+}
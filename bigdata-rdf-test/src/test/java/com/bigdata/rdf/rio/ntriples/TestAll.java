@@ -58,6 +58,8 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(BigdataNTriplesParserTest.class);
 
+        suite.addTestSuite(TestBigdataNQuadsParser.class);
+
         return suite;
         
     }
@@ -0,0 +1,294 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+
+package com.bigdata.rdf.rio.ntriples;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.NTriplesParserSettings;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+
+/**
+ * Test suite for the {@link BigdataNQuadsParser}.
+ */
+public class TestBigdataNQuadsParser extends TestCase2 {
+
+    public TestBigdataNQuadsParser() {
+    }
+
+    public TestBigdataNQuadsParser(final String name) {
+        super(name);
+    }
+
+    private static final String BASE_URI = "http://www.bigdata.com/";
+
+    private List<Statement> parse(final BigdataNQuadsParser parser,
+            final byte[] data) throws Exception {
+
+        final List<Statement> stmts = new ArrayList<Statement>();
+
+        parser.setRDFHandler(new StatementCollector(stmts));
+
+        parser.parse(new ByteArrayInputStream(data), BASE_URI);
+
+        return stmts;
+
+    }
+
+    private List<Statement> parse(final String data) throws Exception {
+
+        return parse(new BigdataNQuadsParser(), data.getBytes("UTF-8"));
+
+    }
+
+    /**
+     * Triples and quads, comments, blank lines, CRLF line endings and a last
+     * line without a line terminator.
+     */
+    public void test_triplesAndQuads() throws Exception {
+
+        final List<Statement> stmts = parse(//
+                "# a comment\n"//
+                + "<http://a/s> <http://a/p> <http://a/o> .\n"//
+                + "\n"//
+                + "   \t\n"//
+                + "_:b1 <http://a/p> _:b2 <http://a/g> . # trailing comment\r\n"//
+                + "<http://a/s> <http://a/p> _:b1 _:g1 ."//
+        );
+
+        assertEquals(3, stmts.size());
+
+        final Statement st0 = stmts.get(0);
+        assertEquals("http://a/s", st0.getSubject().stringValue());
+        assertEquals("http://a/p", st0.getPredicate().stringValue());
+        assertEquals("http://a/o", st0.getObject().stringValue());
+        assertNull(st0.getContext());
+
+        final Statement st1 = stmts.get(1);
+        assertTrue(st1.getSubject() instanceof BNode);
+        assertTrue(st1.getObject() instanceof BNode);
+        assertEquals("http://a/g", st1.getContext().stringValue());
+
+        final Statement st2 = stmts.get(2);
+        assertEquals(st1.getSubject(), st2.getObject());
+        assertTrue(st2.getContext() instanceof BNode);
+
+    }
+
+    /**
+     * Plain, language tagged and datatyped literals, escape sequences and
+     * non-ASCII UTF-8 data.
+     */
+    public void test_literals() throws Exception {
+
+        final List<Statement> stmts = parse(//
+                "<http://a/s> <http://a/p> \"abc\" .\n"//
+                + "<http://a/s> <http://a/p> \"chat\"@fr-CA <http://a/g> .\n"//
+                + "<http://a/s> <http://a/p> \"12\"^^<http://www.w3.org/2001/XMLSchema#int> .\n"//
+                + "<http://a/s> <http://a/p> \"a\\tb\\\"c\\u00E9\" .\n"//
+                + "<http://a/s> <http://a/p> \"caf\u00E9\" .\n"//
+                + "<http://a/s> <http://a/p> \"\" .\n"//
+        );
+
+        assertEquals(6, stmts.size());
+
+        final Literal l0 = (Literal) stmts.get(0).getObject();
+        assertEquals("abc", l0.getLabel());
+        assertNull(l0.getLanguage());
+        assertNull(l0.getDatatype());
+
+        final Literal l1 = (Literal) stmts.get(1).getObject();
+        assertEquals("chat", l1.getLabel());
+        assertEquals("fr-ca", l1.getLanguage().toLowerCase());
+        assertEquals("http://a/g", stmts.get(1).getContext().stringValue());
+
+        final Literal l2 = (Literal) stmts.get(2).getObject();
+        assertEquals("12", l2.getLabel());
+        assertEquals(XMLSchema.INT, l2.getDatatype());
+
+        assertEquals("a\tb\"c\u00E9",
+                ((Literal) stmts.get(3).getObject()).getLabel());
+
+        assertEquals("caf\u00E9", ((Literal) stmts.get(4).getObject())
+                .getLabel());
+
+        assertEquals("", ((Literal) stmts.get(5).getObject()).getLabel());
+
+    }
+
+    /**
+     * Repeated IRIs and blank nodes are resolved to the same object.
+     */
+    public void test_termReuse() throws Exception {
+
+        final BigdataValueFactory vf = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        try {
+
+            final List<Statement> stmts = parse(new BigdataNQuadsParser(vf),
+                    ("<http://a/s1> <http://a/p> _:b <http://a/g> .\n"//
+                    + "<http://a/s2> <http://a/p> _:b <http://a/g> .\n"//
+                    ).getBytes("UTF-8"));
+
+            assertEquals(2, stmts.size());
+
+            final Statement st0 = stmts.get(0);
+            final Statement st1 = stmts.get(1);
+
+            assertTrue(st0.getPredicate() instanceof BigdataURI);
+            assertSame(st0.getPredicate(), st1.getPredicate());
+            assertSame(st0.getObject(), st1.getObject());
+            assertSame(st0.getContext(), st1.getContext());
+            assertNotSame(st0.getSubject(), st1.getSubject());
+
+        } finally {
+
+            vf.remove();
+
+        }
+
+    }
+
+    /**
+     * A line which is longer than the initial buffer capacity, a line which
+     * spans a buffer boundary, and a UTF-8 byte order mark.
+     */
+    public void test_longLines() throws Exception {
+
+        final StringBuilder label = new StringBuilder();
+        for (int i = 0; i < BigdataNQuadsParser.INITIAL_BUFFER_CAPACITY * 2 + 17; i++) {
+            label.append((char) ('a' + (i % 26)));
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append('\uFEFF');
+        final int n = 5000;
+        for (int i = 0; i < n; i++) {
+            sb.append("<http://a/s" + i + "> <http://a/p> \"" + i + "\" .\n");
+        }
+        sb.append("<http://a/s> <http://a/p> \"" + label + "\" .\n");
+
+        final List<Statement> stmts = parse(sb.toString());
+
+        assertEquals(n + 1, stmts.size());
+
+        for (int i = 0; i < n; i++) {
+            assertEquals("http://a/s" + i, stmts.get(i).getSubject()
+                    .stringValue());
+            assertEquals(Integer.toString(i), stmts.get(i).getObject()
+                    .stringValue());
+        }
+
+        assertEquals(label.toString(), stmts.get(n).getObject().stringValue());
+
+    }
+
+    /**
+     * The {@link java.io.Reader} and {@link ByteBuffer} entry points.
+     */
+    public void test_readerAndByteBuffer() throws Exception {
+
+        final String data = "<http://a/s> <http://a/p> \"caf\u00E9\" <http://a/g> .\n";
+
+        final List<Statement> stmts = new ArrayList<Statement>();
+
+        final BigdataNQuadsParser parser = new BigdataNQuadsParser();
+
+        parser.setRDFHandler(new StatementCollector(stmts));
+
+        parser.parse(new StringReader(data), BASE_URI);
+
+        final ByteBuffer b = ByteBuffer.wrap(data.getBytes("UTF-8"));
+
+        parser.parse(b, BASE_URI);
+
+        // the caller's buffer is not consumed.
+        assertEquals(0, b.position());
+
+        assertEquals(2, stmts.size());
+
+        for (Statement st : stmts) {
+            assertEquals("caf\u00E9", st.getObject().stringValue());
+            assertEquals("http://a/g", st.getContext().stringValue());
+        }
+
+    }
+
+    /**
+     * Invalid lines are fatal by default and are skipped if
+     * {@link NTriplesParserSettings#FAIL_ON_NTRIPLES_INVALID_LINES} is
+     * disabled.
+     */
+    public void test_invalidLines() throws Exception {
+
+        final String data = "<http://a/s> <http://a/p> <http://a/o> .\n"//
+                + "<http://a/s> <http://a/p> \"unterminated .\n"//
+                + "<http://a/s> <http://a/p> <http://a/o>\n"//
+                + "<http://a/s> \"p\" <http://a/o> .\n"//
+                + "<http://a/s> <http://a/p> <http://a/o> . junk\n"//
+                + "<http://a/s> <http://a/p> <http://a/o2> .\n";
+
+        try {
+            parse(data);
+            fail("Expecting: " + RDFParseException.class);
+        } catch (RDFParseException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+            assertEquals(2, ex.getLineNumber());
+        }
+
+        final BigdataNQuadsParser parser = new BigdataNQuadsParser();
+
+        parser.getParserConfig().set(
+                NTriplesParserSettings.FAIL_ON_NTRIPLES_INVALID_LINES, false);
+
+        final List<Statement> stmts = parse(parser, data.getBytes("UTF-8"));
+
+        assertEquals(2, stmts.size());
+
+        assertEquals("http://a/o2", stmts.get(1).getObject().stringValue());
+
+        assertTrue(stmts.get(1).getObject() instanceof URI);
+
+    }
+
+}
@@ -177,6 +177,9 @@ public class TestAll extends TestCase {
         
         // compare two means of computing owl:sameAs for equivalence.
         suite.addTestSuite(TestCompareFullAndFastClosure.class);
+
+        // compare semi-naive closure on the query engine with the legacy layer.
+        suite.addTestSuite(TestSemiNaiveClosure.class);
         
         /*
          * Test entailments that are computed at query time rather than when the
@@ -211,6 +214,9 @@ public class TestAll extends TestCase {
         
         // test suite for basic TM mechanism encapsulated by this class.
         suite.addTestSuite(TestTruthMaintenance.class);
+
+        // test suite for Delete/Re-derive truth maintenance.
+        suite.addTestSuite(TestDRedTruthMaintenance.class);
         
         return suite;
         
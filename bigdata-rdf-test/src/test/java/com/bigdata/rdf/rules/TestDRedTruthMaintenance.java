@@ -0,0 +1,491 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.RDFFormat;
+
+import com.bigdata.rdf.inf.DRedTruthMaintenance;
+import com.bigdata.rdf.inf.TruthMaintenance;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rio.StatementBuffer;
+import com.bigdata.rdf.spo.ExplicitSPOFilter;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.AbstractTripleStore.Options;
+import com.bigdata.rdf.store.BigdataStatementIterator;
+import com.bigdata.rdf.store.DataLoader;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.rdf.store.TripleStoreUtility;
+import com.bigdata.striterator.ChunkedArrayIterator;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+/**
+ * Test suite for {@link DRedTruthMaintenance}. The closure maintained by
+ * Delete/Re-derive for a retraction is compared against the closure computed
+ * from scratch for the remaining explicit statements.
+ */
+public class TestDRedTruthMaintenance extends AbstractRuleTestCase {
+
+    public TestDRedTruthMaintenance() {
+    }
+
+    public TestDRedTruthMaintenance(final String name) {
+        super(name);
+    }
+
+    /**
+     * The properties for a store using {@link DRedTruthMaintenance}.
+     */
+    protected Properties getDRedProperties() {
+
+        final Properties properties = new Properties(getProperties());
+
+        properties.setProperty(InferenceEngine.Options.DRED_TRUTH_MAINTENANCE,
+                "true");
+
+        properties.setProperty(Options.JUSTIFY, "false");
+
+        return properties;
+
+    }
+
+    /**
+     * Verify that the option selects {@link DRedTruthMaintenance}.
+     */
+    public void test_newTruthMaintenance() {
+
+        AbstractTripleStore store = getStore(getDRedProperties());
+
+        try {
+
+            assertTrue(store.getInferenceEngine().newTruthMaintenance() instanceof DRedTruthMaintenance);
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+        store = getStore();
+
+        try {
+
+            assertFalse(store.getInferenceEngine().newTruthMaintenance() instanceof DRedTruthMaintenance);
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * {@link DRedTruthMaintenance} does not maintain the justifications, so it
+     * is rejected for a database which has them.
+     */
+    public void test_newTruthMaintenance_justify() {
+
+        final Properties properties = getDRedProperties();
+
+        properties.setProperty(Options.JUSTIFY, "true");
+
+        final AbstractTripleStore store = getStore(properties);
+
+        try {
+
+            store.getInferenceEngine().newTruthMaintenance();
+
+            fail("Expecting: " + UnsupportedOperationException.class);
+
+        } catch (UnsupportedOperationException ex) {
+
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Assert <code>(a sco b), (b sco c)</code> and then retract
+     * <code>(b sco c)</code>. The entailment <code>(a sco c)</code> must be
+     * retracted while <code>(a sco b)</code> remains.
+     */
+    public void test_retractEntailment() throws Exception {
+
+        final URI a = new URIImpl("http://www.bigdata.com/a");
+        final URI b = new URIImpl("http://www.bigdata.com/b");
+        final URI c = new URIImpl("http://www.bigdata.com/c");
+        final URI sco = RDFS.SUBCLASSOF;
+
+        final AbstractTripleStore store = getStore(getDRedProperties());
+
+        try {
+
+            final TruthMaintenance tm = store.getInferenceEngine()
+                    .newTruthMaintenance();
+
+            {
+
+                final StatementBuffer<?> assertionBuffer = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                assertionBuffer.add(a, sco, b);
+                assertionBuffer.add(b, sco, c);
+
+                assertionBuffer.flush();
+
+                tm.assertAll((TempTripleStore) assertionBuffer
+                        .getStatementStore());
+
+            }
+
+            assertTrue(store.hasStatement(a, sco, c));
+
+            {
+
+                final StatementBuffer<?> retractionBuffer = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                retractionBuffer.add(b, sco, c);
+
+                retractionBuffer.flush();
+
+                tm.retractAll((TempTripleStore) retractionBuffer
+                        .getStatementStore());
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("\n" + store.dumpStore(true, true, false));
+
+            assertFalse(store.hasStatement(b, sco, c));
+            assertFalse(store.hasStatement(a, sco, c));
+            assertTrue(store.hasStatement(a, sco, b));
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Assert <code>(a sco b), (b sco c), (a sco c)</code> and then retract
+     * <code>(a sco c)</code>. Since it is still entailed, it must be
+     * downgraded to an inference.
+     */
+    public void test_downgradeExplicitToInference() throws Exception {
+
+        final URI a = new URIImpl("http://www.bigdata.com/a");
+        final URI b = new URIImpl("http://www.bigdata.com/b");
+        final URI c = new URIImpl("http://www.bigdata.com/c");
+        final URI sco = RDFS.SUBCLASSOF;
+
+        final AbstractTripleStore store = getStore(getDRedProperties());
+
+        try {
+
+            final TruthMaintenance tm = store.getInferenceEngine()
+                    .newTruthMaintenance();
+
+            {
+
+                final StatementBuffer<?> assertionBuffer = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                assertionBuffer.add(a, sco, b);
+                assertionBuffer.add(b, sco, c);
+                assertionBuffer.add(a, sco, c);
+
+                assertionBuffer.flush();
+
+                tm.assertAll((TempTripleStore) assertionBuffer
+                        .getStatementStore());
+
+            }
+
+            assertEquals(StatementEnum.Explicit, store.getStatement(
+                    store.getIV(a), store.getIV(sco), store.getIV(c))
+                    .getStatementType());
+
+            {
+
+                final StatementBuffer<?> retractionBuffer = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                retractionBuffer.add(a, sco, c);
+
+                retractionBuffer.flush();
+
+                tm.retractAll((TempTripleStore) retractionBuffer
+                        .getStatementStore());
+
+            }
+
+            assertEquals(StatementEnum.Inferred, store.getStatement(
+                    store.getIV(a), store.getIV(sco), store.getIV(c))
+                    .getStatementType());
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * With <code>(x rdf:type rdfs:Resource)</code> entailments enabled, assert
+     * <code>(x p y), (x q z)</code> and then retract <code>(x p y)</code>. The
+     * entailments of the distinct term scan rules (rdf1, rdfs4a and rdfs4b)
+     * which still hold must be re-derived.
+     */
+    public void test_retract_distinctTermScan() throws Exception {
+
+        final URI x = new URIImpl("http://www.bigdata.com/x");
+        final URI y = new URIImpl("http://www.bigdata.com/y");
+        final URI z = new URIImpl("http://www.bigdata.com/z");
+        final URI p = new URIImpl("http://www.bigdata.com/p");
+        final URI q = new URIImpl("http://www.bigdata.com/q");
+
+        final Properties properties = getDRedProperties();
+
+        properties.setProperty(
+                InferenceEngine.Options.FORWARD_CHAIN_RDF_TYPE_RDFS_RESOURCE,
+                "true");
+
+        final AbstractTripleStore store = getStore(properties);
+
+        try {
+
+            final TruthMaintenance tm = store.getInferenceEngine()
+                    .newTruthMaintenance();
+
+            {
+
+                final StatementBuffer<?> assertionBuffer = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                assertionBuffer.add(x, p, y);
+                assertionBuffer.add(x, q, z);
+
+                assertionBuffer.flush();
+
+                tm.assertAll((TempTripleStore) assertionBuffer
+                        .getStatementStore());
+
+            }
+
+            assertTrue(store.hasStatement(x, RDF.TYPE, RDFS.RESOURCE));
+            assertTrue(store.hasStatement(y, RDF.TYPE, RDFS.RESOURCE));
+            assertTrue(store.hasStatement(p, RDF.TYPE, RDF.PROPERTY));
+
+            {
+
+                final StatementBuffer<?> retractionBuffer = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                retractionBuffer.add(x, p, y);
+
+                retractionBuffer.flush();
+
+                tm.retractAll((TempTripleStore) retractionBuffer
+                        .getStatementStore());
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("\n" + store.dumpStore(true, true, false));
+
+            assertFalse(store.hasStatement(x, p, y));
+
+            // still entailed by (x q z).
+            assertTrue(store.hasStatement(x, RDF.TYPE, RDFS.RESOURCE));
+            assertTrue(store.hasStatement(z, RDF.TYPE, RDFS.RESOURCE));
+            assertTrue(store.hasStatement(q, RDF.TYPE, RDF.PROPERTY));
+
+            // no longer entailed.
+            assertFalse(store.hasStatement(y, RDF.TYPE, RDFS.RESOURCE));
+            assertFalse(store.hasStatement(p, RDF.TYPE, RDF.PROPERTY));
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    public void test_retract_small() throws Exception {
+
+        doRetractionTest("com/bigdata/rdf/rules/small.rdf", 3/* stride */);
+
+    }
+
+    public void test_retract_sampleData() throws Exception {
+
+        doRetractionTest("com/bigdata/rdf/rules/sample data.rdf", 5/* stride */);
+
+    }
+
+    public void test_retract_owlSameAs() throws Exception {
+
+        doRetractionTest("com/bigdata/rdf/rules/small owlSameAs.rdf", 2/* stride */);
+
+    }
+
+    /**
+     * Load the resource and close the database, retract every
+     * <i>stride</i>-th explicit statement using {@link DRedTruthMaintenance}
+     * and compare the result with a store which was closed after the same
+     * statements were removed.
+     */
+    protected void doRetractionTest(final String resource, final int stride)
+            throws Exception {
+
+        final Properties properties = new Properties(getDRedProperties());
+
+        properties.setProperty(DataLoader.Options.CLOSURE,
+                DataLoader.ClosureEnum.Batch.toString());
+
+        AbstractTripleStore store = null;
+        AbstractTripleStore control = null;
+
+        try {
+
+            store = getStore(properties);
+
+            store.getDataLoader().loadData(resource, ""/* baseURL */,
+                    RDFFormat.RDFXML);
+
+            // Select the explicit statements to be retracted.
+            final List<ISPO> selected = new ArrayList<ISPO>();
+            {
+                final IChunkedOrderedIterator<ISPO> itr = store.getAccessPath(
+                        SPOKeyOrder.SPO, ExplicitSPOFilter.INSTANCE).iterator();
+                try {
+                    int i = 0;
+                    while (itr.hasNext()) {
+                        final ISPO spo = itr.next();
+                        if (i++ % stride == 0)
+                            selected.add(spo);
+                    }
+                } finally {
+                    itr.close();
+                }
+            }
+
+            final ISPO[] a = selected.toArray(new ISPO[selected.size()]);
+
+            // The control store: load, remove the selected statements, close.
+            {
+
+                final Properties tmp = new Properties(getProperties());
+
+                tmp.setProperty(DataLoader.Options.CLOSURE,
+                        DataLoader.ClosureEnum.None.toString());
+
+                control = getStore(tmp);
+
+                control.getDataLoader().loadData(resource, ""/* baseURL */,
+                        RDFFormat.RDFXML);
+
+                final BigdataValueFactory f = control.getValueFactory();
+
+                final BigdataStatementIterator itr = store
+                        .asStatementIterator(new ChunkedArrayIterator<ISPO>(
+                                a.length, a, null/* keyOrder */));
+
+                try {
+                    while (itr.hasNext()) {
+                        final BigdataStatement stmt = itr.next();
+                        control.removeStatements(
+                                (Resource) f.asValue(stmt.getSubject()),
+                                (URI) f.asValue(stmt.getPredicate()),
+                                f.asValue(stmt.getObject()));
+                    }
+                } finally {
+                    itr.close();
+                }
+
+                control.getInferenceEngine().computeClosure(null/* focusStore */);
+
+            }
+
+            // Retract the selected statements using DRed.
+            {
+
+                final TruthMaintenance tm = store.getInferenceEngine()
+                        .newTruthMaintenance();
+
+                assertTrue(tm instanceof DRedTruthMaintenance);
+
+                final TempTripleStore tempStore = tm.newTempTripleStore();
+
+                store.addStatements(tempStore, true/* copyOnly */,
+                        new ChunkedArrayIterator<ISPO>(a.length, a,
+                                null/* keyOrder */), null/* filter */);
+
+                tm.retractAll(tempStore);
+
+            }
+
+            if (log.isInfoEnabled()) {
+                log.info(control.dumpStore(control, true, true, false, true));
+                log.info(store.dumpStore(store, true, true, false, true));
+            }
+
+            assertTrue(TripleStoreUtility.modelsEqual(control, store));
+
+        } finally {
+
+            if (store != null)
+                store.__tearDownUnitTest();
+            if (control != null)
+                control.__tearDownUnitTest();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.rules;
+
+import java.util.Properties;
+
+import org.openrdf.rio.RDFFormat;
+
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.AbstractTripleStore.Options;
+import com.bigdata.rdf.store.DataLoader;
+import com.bigdata.rdf.store.TripleStoreUtility;
+
+/**
+ * Test suite comparing the database-at-once closure computed by the
+ * {@link SemiNaiveClosureTask} against the closure computed by the legacy
+ * rule execution layer for the same closure program.
+ */
+public class TestSemiNaiveClosure extends AbstractRuleTestCase {
+
+    public TestSemiNaiveClosure() {
+    }
+
+    public TestSemiNaiveClosure(final String name) {
+        super(name);
+    }
+
+    public void test_fastClosure_small() throws Exception {
+
+        doCompareEntailments(FastClosure.class, false/* justify */,
+                "com/bigdata/rdf/rules/small.rdf");
+
+    }
+
+    public void test_fullClosure_small() throws Exception {
+
+        doCompareEntailments(FullClosure.class, false/* justify */,
+                "com/bigdata/rdf/rules/small.rdf");
+
+    }
+
+    public void test_fastClosure_sampleData() throws Exception {
+
+        doCompareEntailments(FastClosure.class, false/* justify */,
+                "com/bigdata/rdf/rules/sample data.rdf");
+
+    }
+
+    public void test_fastClosure_owlSameAs() throws Exception {
+
+        doCompareEntailments(FastClosure.class, false/* justify */,
+                "com/bigdata/rdf/rules/small owlSameAs.rdf");
+
+    }
+
+    public void test_fullClosure_owlSameAs() throws Exception {
+
+        doCompareEntailments(FullClosure.class, false/* justify */,
+                "com/bigdata/rdf/rules/small owlSameAs.rdf");
+
+    }
+
+    /**
+     * Verify that the justifications are written for the entailments (the
+     * justifications index must be the same as for the legacy layer).
+     */
+    public void test_fastClosure_justify() throws Exception {
+
+        doCompareEntailments(FastClosure.class, true/* justify */,
+                "com/bigdata/rdf/rules/small.rdf");
+
+    }
+
+    /**
+     * Load the resource into two stores using the same closure program and
+     * verify that the same statements were entailed by the legacy rule
+     * execution layer and by semi-naive evaluation on the query engine.
+     */
+    protected void doCompareEntailments(final Class<?> closureClass,
+            final boolean justify, final String resource) throws Exception {
+
+        final Properties properties = new Properties(getProperties());
+
+        // close the data after it has been loaded.
+        properties.setProperty(DataLoader.Options.CLOSURE,
+                DataLoader.ClosureEnum.Batch.toString());
+
+        properties.setProperty(Options.CLOSURE_CLASS, closureClass.getName());
+
+        properties.setProperty(Options.JUSTIFY, Boolean.toString(justify));
+
+        AbstractTripleStore store1 = null;
+        AbstractTripleStore store2 = null;
+
+        try {
+
+            { // the legacy rule execution layer.
+
+                final Properties tmp = new Properties(properties);
+
+                tmp.setProperty(InferenceEngine.Options.SEMI_NAIVE_CLOSURE,
+                        "false");
+
+                store1 = getStore(tmp);
+
+            }
+
+            { // semi-naive evaluation on the query engine.
+
+                final Properties tmp = new Properties(properties);
+
+                tmp.setProperty(InferenceEngine.Options.SEMI_NAIVE_CLOSURE,
+                        "true");
+
+                store2 = getStore(tmp);
+
+            }
+
+            store1.getDataLoader().loadData(resource, ""/* baseURL */,
+                    RDFFormat.RDFXML);
+
+            store2.getDataLoader().loadData(resource, ""/* baseURL */,
+                    RDFFormat.RDFXML);
+
+            if (log.isInfoEnabled()) {
+                log.info(store1.dumpStore(store1, true, true, false, true));
+                log.info(store2.dumpStore(store2, true, true, false, true));
+            }
+
+            assertTrue(TripleStoreUtility.modelsEqual(store1, store2));
+
+            if (justify) {
+
+                assertEquals(store1.getSPORelation().getJustificationIndex()
+                        .rangeCount(), store2.getSPORelation()
+                        .getJustificationIndex().rangeCount());
+
+            }
+
+        } finally {
+
+            if (store1 != null)
+                store1.__tearDownUnitTest();
+            if (store2 != null)
+                store2.__tearDownUnitTest();
+
+        }
+
+    }
+
+}
@@ -104,6 +104,12 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(TestRemoteSparqlBuilderFactory.class);
 
+        /*
+         * Test suite for the adaptive size of the chunks of solutions vectored
+         * to a remote end point.
+         */
+        suite.addTestSuite(TestRemoteServiceChunkSize.class);
+
         /*
          * Note: See the NanoSparqlServer test suite for REMOTE SPARQL SERVICE
          * evaluation against embedded HTTP end points.
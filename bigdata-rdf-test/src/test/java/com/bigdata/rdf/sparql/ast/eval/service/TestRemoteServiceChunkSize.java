@@ -0,0 +1,191 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.sparql.ast.eval.service;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.rdf.sparql.ast.service.RemoteServiceChunkSize;
+import com.bigdata.rdf.sparql.ast.service.RemoteServiceOptions;
+
+/**
+ * Test suite for the adaptive chunk size used to vector solutions to remote
+ * SPARQL end points.
+ * 
+ * @see RemoteServiceChunkSize
+ */
+public class TestRemoteServiceChunkSize extends TestCase2 {
+
+    public TestRemoteServiceChunkSize() {
+    }
+
+    public TestRemoteServiceChunkSize(final String name) {
+        super(name);
+    }
+
+    private static long millis(final long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new RemoteServiceChunkSize(0/* min */, 10, 100, 500L);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            // ignore
+        }
+
+        try {
+            new RemoteServiceChunkSize(10, 5/* initial */, 100, 500L);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            // ignore
+        }
+
+        try {
+            new RemoteServiceChunkSize(10, 10, 5/* max */, 500L);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            // ignore
+        }
+
+        try {
+            new RemoteServiceChunkSize(10, 10, 100, 0L/* targetLatency */);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            // ignore
+        }
+
+    }
+
+    /**
+     * A fast end point grows the chunk size, but by no more than a factor of
+     * two per request, and never beyond the maximum.
+     */
+    public void test_grow() {
+
+        final RemoteServiceChunkSize chunkSize = new RemoteServiceChunkSize(
+                10/* min */, 100/* initial */, 1000/* max */, 500L/* target */);
+
+        assertEquals(100, chunkSize.get());
+
+        assertEquals(200, chunkSize.update(100, millis(10)));
+
+        assertEquals(400, chunkSize.update(200, millis(10)));
+
+        assertEquals(800, chunkSize.update(400, millis(10)));
+
+        assertEquals(1000, chunkSize.update(800, millis(10)));
+
+        assertEquals(1000, chunkSize.get());
+
+        assertEquals(4, chunkSize.getRequestCount());
+
+        assertEquals(375d, chunkSize.getAverageChunkSize());
+
+    }
+
+    /**
+     * A slow end point shrinks the chunk size, but by no more than a factor of
+     * two per request, and never below the minimum.
+     */
+    public void test_shrink() {
+
+        final RemoteServiceChunkSize chunkSize = new RemoteServiceChunkSize(
+                10/* min */, 100/* initial */, 1000/* max */, 500L/* target */);
+
+        assertEquals(50, chunkSize.update(100, millis(5000)));
+
+        assertEquals(25, chunkSize.update(50, millis(5000)));
+
+        assertEquals(13, chunkSize.update(25, millis(5000)));
+
+        assertEquals(10, chunkSize.update(13, millis(5000)));
+
+        assertEquals(10, chunkSize.update(10, millis(5000)));
+
+    }
+
+    /**
+     * The chunk size converges on the #of solutions which can be answered
+     * within the target latency.
+     */
+    public void test_proportional() {
+
+        final RemoteServiceChunkSize chunkSize = new RemoteServiceChunkSize(
+                10/* min */, 100/* initial */, 1000/* max */, 500L/* target */);
+
+        assertEquals(125, chunkSize.update(100, millis(400)));
+
+        assertEquals(100, chunkSize.update(125, millis(625)));
+
+    }
+
+    /**
+     * A partial chunk which was answered quickly does not change the chunk
+     * size, but a partial chunk which was answered slowly does.
+     */
+    public void test_partialChunk() {
+
+        final RemoteServiceChunkSize chunkSize = new RemoteServiceChunkSize(
+                10/* min */, 100/* initial */, 1000/* max */, 500L/* target */);
+
+        assertEquals(100, chunkSize.update(3, millis(10)));
+
+        assertEquals(40, chunkSize.update(80, millis(1000)));
+
+    }
+
+    /**
+     * The chunk size is tracked per service URI and reset when the options
+     * are changed.
+     */
+    public void test_serviceOptions() {
+
+        final RemoteServiceOptions options = new RemoteServiceOptions();
+
+        final RemoteServiceChunkSize a = options.getChunkSize("http://a/sparql");
+
+        assertSame(a, options.getChunkSize("http://a/sparql"));
+
+        assertNotSame(a, options.getChunkSize("http://b/sparql"));
+
+        assertEquals(RemoteServiceOptions.DEFAULT_INITIAL_CHUNK_SIZE, a.get());
+
+        options.setMaxChunkSize(5);
+
+        final RemoteServiceChunkSize b = options.getChunkSize("http://a/sparql");
+
+        assertNotSame(a, b);
+
+        // The initial (and minimum) chunk size are clamped to the maximum.
+        assertEquals(5, b.get());
+
+        assertEquals(5, b.update(5, millis(10000)));
+
+    }
+
+}
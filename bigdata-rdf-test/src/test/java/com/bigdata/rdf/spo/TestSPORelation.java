@@ -28,6 +28,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.spo;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -835,4 +837,99 @@ public class TestSPORelation extends AbstractTripleStoreTestCase {
 
     }
 
+    /**
+     * Insert a batch which is large enough that {@link SPOIndexWriter}
+     * generates the keys and values in parallel chunks. Duplicate statements
+     * are written once and the mutation count and {@link ISPO#isModified()}
+     * are reported correctly for each statement index.
+     */
+    public void test_insert_largeBatch() {
+
+        final Properties properties = super.getProperties();
+
+        // override the default axiom model.
+        properties.setProperty(com.bigdata.rdf.store.AbstractTripleStore.Options.AXIOMS_CLASS, NoAxioms.class.getName());
+
+        final AbstractTripleStore store = getStore(properties);
+
+        try {
+
+            final SPORelation spoRelation = store.getSPORelation();
+
+            final IV<?, ?> c = store.isQuads() ? someGraph.get() : null;
+
+            final int n = SPOIndexWriter.CHUNK_SIZE * 3 + 1;
+
+            // the distinct statements.
+            final SPO[] distinct = new SPO[n];
+
+            // the distinct statements plus a duplicate for every 7th one.
+            final List<ISPO> list = new ArrayList<ISPO>();
+
+            for (int i = 0; i < n; i++) {
+
+                final IV<?, ?> s = uriId(i);
+
+                distinct[i] = new SPO(s, rdfType.get(), rdfsClass.get(), c,
+                        StatementEnum.Explicit);
+
+                list.add(distinct[i]);
+
+                if (i % 7 == 0) {
+
+                    list.add(new SPO(s, rdfType.get(), rdfsClass.get(), c,
+                            StatementEnum.Explicit));
+
+                }
+
+            }
+
+            final ISPO[] a = list.toArray(new ISPO[list.size()]);
+
+            assertEquals(n, spoRelation.insert(a, a.length, null/* filter */));
+
+            for (int i = 0; i < n; i++) {
+
+                assertTrue(distinct[i].isModified());
+
+            }
+
+            // SPO(C)
+            assertEquals(n, spoRelation.getAccessPath(NULL, NULL, NULL)
+                    .rangeCount(true/* exact */));
+
+            // POS(C)
+            assertEquals(n, spoRelation.getAccessPath(NULL, rdfType.get(),
+                    NULL).rangeCount(true/* exact */));
+
+            // OSP(C)
+            assertEquals(n, spoRelation.getAccessPath(NULL, NULL,
+                    rdfsClass.get()).rangeCount(true/* exact */));
+
+            // Write the same statements again. Nothing is modified.
+            final ISPO[] b = new ISPO[n];
+
+            for (int i = 0; i < n; i++) {
+
+                b[i] = new SPO(distinct[i].s(), distinct[i].p(),
+                        distinct[i].o(), c, StatementEnum.Explicit);
+
+            }
+
+            assertEquals(0, spoRelation.insert(b, b.length, null/* filter */));
+
+            for (int i = 0; i < n; i++) {
+
+                assertFalse(b[i].isModified());
+
+            }
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
 }
@@ -116,6 +116,9 @@ public class TestBigdataSailWithQuads extends AbstractBigdataSailTestCase {
         // test suite for the history index.
         suite.addTestSuite(TestHistoryIndex.class);
 
+        // test suite for the statistics catalog.
+        suite.addTestSuite(TestStatisticsCatalog.class);
+
 		suite.addTestSuite(com.bigdata.rdf.sail.TestRollbacks.class);
 		suite.addTestSuite(com.bigdata.rdf.sail.TestRollbacksTx.class);
 		suite.addTestSuite(com.bigdata.rdf.sail.TestMROWTransactionsNoHistory.class);
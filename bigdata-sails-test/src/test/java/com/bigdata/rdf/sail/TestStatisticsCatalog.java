@@ -0,0 +1,457 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.sail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.openrdf.sail.SailException;
+
+import com.bigdata.rdf.axioms.NoAxioms;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
+import com.bigdata.rdf.stats.CharacteristicSet;
+import com.bigdata.rdf.stats.PredicateStatistics;
+import com.bigdata.rdf.stats.StatisticsCatalog;
+import com.bigdata.rdf.stats.StatisticsCatalogUpdater;
+import com.bigdata.rdf.stats.StatisticsChangeLog;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * Test the statistics catalog maintained by the
+ * {@link StatisticsChangeLog}.
+ */
+public class TestStatisticsCatalog extends ProxyBigdataSailTestCase {
+
+    public TestStatisticsCatalog() {
+    }
+
+    public TestStatisticsCatalog(final String name) {
+        super(name);
+    }
+
+    private static final String NS = "http://www.bigdata.com/";
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties properties = super.getProperties();
+
+        // enable the statistics catalog.
+        properties.setProperty(AbstractTripleStore.Options.STATISTICS_CATALOG,
+                "true");
+
+        // disable inference.
+        properties.setProperty(AbstractTripleStore.Options.AXIOMS_CLASS,
+                NoAxioms.class.getName());
+
+        return properties;
+
+    }
+
+    /**
+     * Unit test verifies that the statistics index is not created if the
+     * option is not enabled.
+     */
+    public void test_statisticsCatalogDisabled() throws SailException {
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.STATISTICS_CATALOG,
+                "false");
+
+        final BigdataSail sail = getSail(properties);
+
+        try {
+
+            sail.initialize();
+
+            final BigdataSailConnection conn = sail.getConnection();
+
+            try {
+
+                assertNull(conn.getTripleStore().getSPORelation()
+                        .getStatisticsIndex());
+
+                assertNull(conn.getTripleStore().getSPORelation()
+                        .getStatisticsCatalog());
+
+            } finally {
+
+                conn.close();
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * The characteristic sets are correlated: each subject uses two of the
+     * three predicates. The catalog must report that there are no subjects
+     * having all three predicates and the exact cardinality for each pair.
+     */
+    public void test_starCardinality() throws SailException {
+
+        final BigdataSail sail = getSail(getProperties());
+
+        try {
+
+            sail.initialize();
+
+            final BigdataValueFactory f = (BigdataValueFactory) sail
+                    .getValueFactory();
+
+            final BigdataURI p1 = f.createURI(NS + "p1");
+            final BigdataURI p2 = f.createURI(NS + "p2");
+            final BigdataURI p3 = f.createURI(NS + "p3");
+            final BigdataURI o = f.createURI(NS + "o");
+
+            {
+                final BigdataSailConnection conn = sail.getConnection();
+
+                try {
+
+                    for (int i = 0; i < 30; i++) {
+
+                        final BigdataURI s = f.createURI(NS + "s" + i);
+
+                        // s0..9 : p1,p2; s10..19 : p1,p3; s20..29 : p2,p3
+                        conn.addStatement(s, i < 20 ? p1 : p2,
+                                f.createURI(NS + "x" + i));
+
+                        conn.addStatement(s, i < 10 ? p2 : p3, i % 2 == 0 ? o
+                                : f.createURI(NS + "y" + i));
+
+                    }
+
+                    conn.commit();
+
+                } finally {
+
+                    conn.close();
+
+                }
+            }
+
+            final BigdataSailConnection conn = sail.getReadOnlyConnection();
+
+            try {
+
+                final StatisticsCatalog catalog = conn.getTripleStore()
+                        .getSPORelation().getStatisticsCatalog();
+
+                assertNotNull(catalog);
+
+                assertEquals(60L, catalog.getStatementCount());
+
+                assertEquals(3, catalog.getCharacteristicSets().size());
+
+                final IV<?, ?> P1 = p1.getIV(), P2 = p2.getIV(), P3 = p3
+                        .getIV();
+
+                final PredicateStatistics ps = catalog
+                        .getPredicateStatistics(P2);
+
+                assertEquals(20L, ps.getCount());
+                assertEquals(20L, ps.getDistinctSubjectCount());
+                assertEquals(16L, ps.getDistinctObjectCount());
+                assertEquals(5L, ps.getHeavyHitterCount(o.getIV()));
+
+                // (?, p, ?) and (?, p, heavy hitter) are exact.
+                assertEquals(20L, catalog.getCardinality(null, P2, null));
+                assertEquals(5L, catalog.getCardinality(null, P2, o.getIV()));
+                assertEquals(-1L, catalog.getCardinality(P1, P2, null));
+
+                // star joins.
+                assertEquals(10L, catalog.getStarCardinality(
+                        new IV[] { P1, P2 }, new IV[2]));
+                assertEquals(10L, catalog.getStarCardinality(
+                        new IV[] { P3, P1 }, new IV[2]));
+                assertEquals(0L, catalog.getStarCardinality(new IV[] { P1,
+                        P2, P3 }, new IV[3]));
+                /*
+                 * A bound object is assumed to be independent of the other
+                 * predicates: 10 * (5/20), rounded up.
+                 */
+                assertEquals(3L, catalog.getStarCardinality(
+                        new IV[] { P1, P2 }, new IV[] { null, o.getIV() }));
+
+            } finally {
+
+                conn.close();
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Works through several commit points which add and remove statements and
+     * verifies that the incrementally maintained catalog is the same as a
+     * catalog rebuilt from the statement indices.
+     */
+    public void test_incrementalMaintenance() throws SailException {
+
+        final BigdataSail sail = getSail(getProperties());
+
+        try {
+
+            sail.initialize();
+
+            final BigdataValueFactory f = (BigdataValueFactory) sail
+                    .getValueFactory();
+
+            final BigdataURI[] p = new BigdataURI[4];
+            for (int i = 0; i < p.length; i++)
+                p[i] = f.createURI(NS + "p" + i);
+
+            final BigdataURI[] o = new BigdataURI[5];
+            for (int i = 0; i < o.length; i++)
+                o[i] = f.createURI(NS + "o" + i);
+
+            for (int round = 0; round < 4; round++) {
+
+                final BigdataSailConnection conn = sail.getConnection();
+
+                try {
+
+                    for (int i = 0; i < 50; i++) {
+
+                        final BigdataURI s = f.createURI(NS + "s" + i);
+
+                        for (int j = 0; j < p.length; j++) {
+
+                            if ((i + j + round) % 3 == 0) {
+
+                                conn.addStatement(s, p[j], o[(i * j + round)
+                                        % o.length]);
+
+                            } else if ((i + j * round) % 5 == 0) {
+
+                                conn.removeStatements(s, p[j], null);
+
+                            }
+
+                        }
+
+                    }
+
+                    conn.commit();
+
+                    final StatisticsCatalog expected;
+                    final StatisticsCatalog actual;
+                    {
+
+                        final AbstractTripleStore db = conn.getTripleStore();
+
+                        actual = StatisticsCatalog.load(db.getSPORelation()
+                                .getStatisticsIndex());
+
+                        StatisticsCatalogUpdater.rebuild(db);
+
+                        expected = StatisticsCatalog.load(db
+                                .getSPORelation().getStatisticsIndex());
+
+                        conn.rollback();
+
+                    }
+
+                    assertSameCatalog(expected, actual, p, o);
+
+                } finally {
+
+                    conn.close();
+
+                }
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * The #of characteristic sets is bounded, both for the incremental
+     * maintenance and for a rebuild.
+     */
+    public void test_maxCharacteristicSets() throws SailException {
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(
+                AbstractTripleStore.Options.STATISTICS_CATALOG_MAX_CHARACTERISTIC_SETS,
+                "2");
+
+        final BigdataSail sail = getSail(properties);
+
+        try {
+
+            sail.initialize();
+
+            final BigdataValueFactory f = (BigdataValueFactory) sail
+                    .getValueFactory();
+
+            final BigdataURI[] p = new BigdataURI[3];
+            for (int i = 0; i < p.length; i++)
+                p[i] = f.createURI(NS + "p" + i);
+
+            final BigdataURI o = f.createURI(NS + "o");
+
+            final BigdataSailConnection conn = sail.getConnection();
+
+            try {
+
+                // three characteristic sets: {p0}, {p1} and {p2}.
+                for (int i = 0; i < 30; i++) {
+
+                    conn.addStatement(f.createURI(NS + "s" + i), p[i % 3], o);
+
+                }
+
+                conn.commit();
+
+                final AbstractTripleStore db = conn.getTripleStore();
+
+                StatisticsCatalog catalog = StatisticsCatalog.load(db
+                        .getSPORelation().getStatisticsIndex());
+
+                assertEquals(30L, catalog.getStatementCount());
+
+                assertEquals(2, catalog.getCharacteristicSets().size());
+
+                // the predicate statistics are not bounded.
+                for (BigdataURI x : p) {
+
+                    assertEquals(10L, catalog.getCardinality(null, x.getIV(),
+                            null));
+
+                }
+
+                StatisticsCatalogUpdater.rebuild(db);
+
+                catalog = StatisticsCatalog.load(db.getSPORelation()
+                        .getStatisticsIndex());
+
+                assertEquals(2, catalog.getCharacteristicSets().size());
+
+                conn.rollback();
+
+            } finally {
+
+                conn.close();
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    private void assertSameCatalog(final StatisticsCatalog expected,
+            final StatisticsCatalog actual, final BigdataURI[] p,
+            final BigdataURI[] o) {
+
+        assertNotNull(actual);
+
+        assertEquals(expected.getStatementCount(), actual.getStatementCount());
+
+        for (BigdataURI x : p) {
+
+            final PredicateStatistics e = expected.getPredicateStatistics(x
+                    .getIV());
+
+            final PredicateStatistics a = actual.getPredicateStatistics(x
+                    .getIV());
+
+            if (e == null) {
+
+                assertNull(a);
+
+                continue;
+
+            }
+
+            assertEquals(e.getCount(), a.getCount());
+            assertEquals(e.getDistinctSubjectCount(),
+                    a.getDistinctSubjectCount());
+            assertEquals(e.getDistinctObjectCount(),
+                    a.getDistinctObjectCount());
+
+            // All objects fit within the heavy hitters.
+            for (BigdataURI y : o) {
+
+                assertEquals(e.getHeavyHitterCount(y.getIV()),
+                        a.getHeavyHitterCount(y.getIV()));
+
+            }
+
+        }
+
+        final List<CharacteristicSet> e = expected.getCharacteristicSets();
+
+        final List<CharacteristicSet> a = actual.getCharacteristicSets();
+
+        assertEquals(e.size(), a.size());
+
+        for (int i = 0; i < e.size(); i++) {
+
+            final IV<?, ?>[] preds = e.get(i).getPredicates();
+
+            assertTrue(Arrays.equals(preds, a.get(i).getPredicates()));
+
+            assertEquals(e.get(i).getSubjectCount(), a.get(i)
+                    .getSubjectCount());
+
+            for (IV<?, ?> x : preds) {
+
+                assertEquals(e.get(i).getOccurrences(x), a.get(i)
+                        .getOccurrences(x));
+
+            }
+
+        }
+
+    }
+
+}
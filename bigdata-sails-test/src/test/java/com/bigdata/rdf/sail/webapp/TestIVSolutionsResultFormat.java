@@ -0,0 +1,187 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.sail.webapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.sail.webapp.client.IPreparedTupleQuery;
+import com.bigdata.rdf.sail.webapp.client.RemoteRepository.AddOp;
+
+/**
+ * Test suite for the {@link ServiceProviderHook#IV_SOLUTIONS} result format.
+ * The same queries are evaluated with the default result format and with the
+ * binary IV solutions format and must produce the same solutions.
+ */
+public class TestIVSolutionsResultFormat<S extends IIndexManager> extends
+        AbstractTestNanoSparqlClient<S> {
+
+    public TestIVSolutionsResultFormat() {
+
+    }
+
+    public TestIVSolutionsResultFormat(final String name) {
+
+        super(name);
+
+    }
+
+    public static Test suite() {
+
+        return ProxySuiteHelper.suiteWhenStandalone(
+                TestIVSolutionsResultFormat.class, "test.*", TestMode.quads,
+                TestMode.sids, TestMode.triples);
+
+    }
+
+    private static final String NS = "http://www.bigdata.com/test#";
+
+    /**
+     * The #of subjects.
+     */
+    private static final int NSUBJECTS = 500;
+
+    private void loadData() throws Exception {
+
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+        final URI p = vf.createURI(NS + "p");
+
+        final URI label = vf.createURI(NS + "label");
+
+        final List<Statement> stmts = new ArrayList<Statement>();
+
+        for (int i = 0; i < NSUBJECTS; i++) {
+
+            final URI s = vf.createURI(NS + "s" + i);
+
+            stmts.add(vf.createStatement(s, p, vf.createLiteral(i)));
+
+            if (i % 3 == 0)
+                stmts.add(vf.createStatement(s, label,
+                        vf.createLiteral("label " + i, "en")));
+
+            if (i % 5 == 0)
+                stmts.add(vf.createStatement(s, label, vf.createLiteral(
+                        "2016-01-" + (10 + i % 20), XMLSchema.DATE)));
+
+        }
+
+        m_repo.add(new AddOp(stmts));
+
+    }
+
+    /**
+     * Evaluate the query with the given accept header (or the default accept
+     * header if <code>null</code>).
+     */
+    private List<BindingSet> evaluate(final String queryStr,
+            final String acceptHeader) throws Exception {
+
+        final IPreparedTupleQuery query = m_repo.prepareTupleQuery(queryStr);
+
+        if (acceptHeader != null)
+            query.setAcceptHeader(acceptHeader);
+
+        final List<BindingSet> solutions = new ArrayList<BindingSet>();
+
+        final TupleQueryResult result = query.evaluate();
+
+        try {
+
+            while (result.hasNext()) {
+
+                solutions.add(result.next());
+
+            }
+
+        } finally {
+
+            result.close();
+
+        }
+
+        return solutions;
+
+    }
+
+    private void doComparisonTest(final String queryStr) throws Exception {
+
+        final List<BindingSet> expected = evaluate(queryStr, null);
+
+        final List<BindingSet> actual = evaluate(queryStr,
+                ServiceProviderHook.IV_SOLUTIONS.getDefaultMIMEType());
+
+        assertFalse(expected.isEmpty());
+
+        assertEquals(expected, actual);
+
+    }
+
+    /**
+     * Solutions having {@link URI}s, inline literals, language tagged
+     * literals and unbound variables.
+     */
+    public void test_ivSolutions_optional() throws Exception {
+
+        loadData();
+
+        doComparisonTest("PREFIX : <" + NS + ">\n"//
+                + "SELECT ?s ?o ?label {\n"//
+                + "  ?s :p ?o .\n"//
+                + "  OPTIONAL { ?s :label ?label }\n"//
+                + "} ORDER BY ?o ?label");
+
+    }
+
+    /**
+     * Solutions having values which were computed by the query and are not in
+     * the lexicon.
+     */
+    public void test_ivSolutions_bind() throws Exception {
+
+        loadData();
+
+        doComparisonTest("PREFIX : <" + NS + ">\n"//
+                + "SELECT ?s ?x ?y {\n"//
+                + "  ?s :p ?o .\n"//
+                + "  BIND(CONCAT(\"v\", STR(?o)) AS ?x)\n"//
+                + "  BIND(?o * 2 AS ?y)\n"//
+                + "} ORDER BY ?o");
+
+    }
+
+}
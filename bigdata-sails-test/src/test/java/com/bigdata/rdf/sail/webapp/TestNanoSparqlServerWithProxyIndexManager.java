@@ -304,6 +304,12 @@ public class TestNanoSparqlServerWithProxyIndexManager<S extends IIndexManager>
 
          suite.addTestSuite(TestService794.class);
 
+         // Vectored remote SERVICE calls.
+         suite.addTestSuite(TestRemoteServiceVectoring.class);
+
+         // Binary IV solutions result format.
+         suite.addTestSuite(TestIVSolutionsResultFormat.class);
+
          // Tests for procedure of rebuild text index
          suite.addTestSuite(TestRebuildTextIndex.class);
          suite.addTestSuite(Test_Ticket_1893.class);
@@ -0,0 +1,228 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.rdf.sail.webapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.rdf.sail.webapp.client.RemoteRepository.AddOp;
+import com.bigdata.rdf.sparql.ast.service.RemoteServiceChunkSize;
+import com.bigdata.rdf.sparql.ast.service.RemoteServiceFactoryImpl;
+import com.bigdata.rdf.sparql.ast.service.RemoteServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.ServiceRegistry;
+
+/**
+ * Test suite for vectoring solutions to a remote SPARQL end point. The end
+ * point is the embedded {@link NanoSparqlServer} itself. The source solutions
+ * contain many duplicate bindings for the join variable and are vectored in
+ * several small chunks with several requests in flight at once.
+ * 
+ * @see RemoteServiceOptions
+ * @see RemoteServiceChunkSize
+ */
+public class TestRemoteServiceVectoring<S extends IIndexManager> extends
+        AbstractTestNanoSparqlClient<S> {
+
+    public TestRemoteServiceVectoring() {
+
+    }
+
+    public TestRemoteServiceVectoring(final String name) {
+
+        super(name);
+
+    }
+
+    public static Test suite() {
+
+        return ProxySuiteHelper.suiteWhenStandalone(
+                TestRemoteServiceVectoring.class, "test.*", TestMode.quads,
+                TestMode.sids, TestMode.triples);
+
+    }
+
+    /**
+     * The #of source solutions.
+     */
+    private static final int NSUBJECTS = 300;
+
+    /**
+     * The #of distinct bindings for the join variable.
+     */
+    private static final int NOBJECTS = 60;
+
+    private static final String NS = "http://www.bigdata.com/test#";
+
+    /**
+     * Load <code>:s_i :p :o_(i%NOBJECTS)</code> and
+     * <code>:o_j :q "j"</code>.
+     */
+    private void loadData() throws Exception {
+
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+        final URI p = vf.createURI(NS + "p");
+
+        final URI q = vf.createURI(NS + "q");
+
+        final List<Statement> stmts = new ArrayList<Statement>();
+
+        for (int i = 0; i < NSUBJECTS; i++) {
+
+            stmts.add(vf.createStatement(vf.createURI(NS + "s" + i), p,
+                    vf.createURI(NS + "o" + (i % NOBJECTS))));
+
+        }
+
+        for (int j = 0; j < NOBJECTS; j++) {
+
+            stmts.add(vf.createStatement(vf.createURI(NS + "o" + j), q,
+                    vf.createLiteral("" + j)));
+
+        }
+
+        m_repo.add(new AddOp(stmts));
+
+    }
+
+    /**
+     * Each source solution joins with exactly one solution from the SERVICE,
+     * even though the distinct bindings of the join variable are vectored to
+     * the end point in several chunks.
+     */
+    public void test_vectoredServiceCall() throws Exception {
+
+        loadData();
+
+        final String endpoint = m_repo.getSparqlEndPoint();
+
+        final URI serviceURI = new URIImpl(endpoint);
+
+        final RemoteServiceOptions options = new RemoteServiceOptions();
+
+        options.setMinChunkSize(5);
+        options.setInitialChunkSize(10);
+        options.setMaxChunkSize(20);
+        options.setMaxRequestsInFlight(3);
+
+        ServiceRegistry.getInstance().add(serviceURI,
+                new RemoteServiceFactoryImpl(options));
+
+        try {
+
+            /*
+             * Note: The query hint retains the given join order so the
+             * SERVICE runs with the source solutions from the triple pattern
+             * rather than before it.
+             */
+            final String queryStr = "PREFIX : <" + NS + ">\n"//
+                    + "PREFIX hint: <http://www.bigdata.com/queryHints#>\n"//
+                    + "SELECT ?s ?o ?label {\n"//
+                    + "  hint:Query hint:optimizer \"None\" .\n"//
+                    + "  ?s :p ?o .\n"//
+                    + "  SERVICE <" + endpoint + "> {\n"//
+                    + "    ?o :q ?label .\n"//
+                    + "  }\n"//
+                    + "}";
+
+            final TupleQueryResult result = m_repo.prepareTupleQuery(queryStr)
+                    .evaluate();
+
+            int n = 0;
+
+            try {
+
+                while (result.hasNext()) {
+
+                    final BindingSet bset = result.next();
+
+                    final String o = bset.getValue("o").stringValue();
+
+                    assertEquals(o.substring(o.lastIndexOf('o') + 1), bset
+                            .getValue("label").stringValue());
+
+                    n++;
+
+                }
+
+            } finally {
+
+                result.close();
+
+            }
+
+            assertEquals(NSUBJECTS, n);
+
+            final RemoteServiceChunkSize chunkSize = options
+                    .getChunkSize(endpoint);
+
+            if (log.isInfoEnabled())
+                log.info(chunkSize);
+
+            /*
+             * Note: The #of requests and the #of bindings vectored depend on
+             * how the source solutions are chunked by the query engine, so
+             * only invariants are checked here.
+             */
+
+            // No request exceeded the maximum chunk size.
+            assertTrue(chunkSize.toString(),
+                    chunkSize.getAverageChunkSize() <= options
+                            .getMaxChunkSize());
+
+            /*
+             * Each distinct binding was vectored at least once, and no more
+             * than once per source solution.
+             */
+            final double nvectored = chunkSize.getAverageChunkSize()
+                    * chunkSize.getRequestCount();
+
+            assertTrue(chunkSize.toString(), nvectored >= NOBJECTS - .0001d);
+
+            assertTrue(chunkSize.toString(), nvectored <= NSUBJECTS + .0001d);
+
+            // Hence the distinct bindings were split over several requests.
+            assertTrue(chunkSize.toString(), chunkSize.getRequestCount() >= NOBJECTS
+                    / options.getMaxChunkSize());
+
+        } finally {
+
+            ServiceRegistry.getInstance().remove(serviceURI);
+
+        }
+
+    }
+
+}
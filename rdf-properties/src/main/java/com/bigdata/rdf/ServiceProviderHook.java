@@ -37,6 +37,7 @@ import java.util.ServiceLoader;
 
 import org.apache.log4j.Logger;
 import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.query.resultio.TupleQueryResultParserFactory;
 import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
 import org.openrdf.query.resultio.TupleQueryResultWriterFactory;
@@ -87,6 +88,20 @@ public class ServiceProviderHook {
 	
 	public static final String NTRIPLES_PARSER_FACTORY = "com.bigdata.rdf.rio.ntriples.BigdataNTriplesParserFactory";
 
+	public static final String NQUADS_PARSER_FACTORY = "com.bigdata.rdf.rio.ntriples.BigdataNQuadsParserFactory";
+
+	/**
+	 * When <code>true</code>, the byte-level N-Quads parser (see
+	 * {@link #NQUADS_PARSER_FACTORY}) replaces the openrdf N-Quads parser for
+	 * all code paths which obtain a parser from the {@link RDFParserRegistry}
+	 * (default {@value #DEFAULT_USE_BIGDATA_NQUADS_PARSER}). That parser does
+	 * not validate IRIs and does not support RDR.
+	 */
+	public static final String USE_BIGDATA_NQUADS_PARSER = ServiceProviderHook.class
+			.getName() + ".useBigdataNQuadsParser";
+
+	public static final String DEFAULT_USE_BIGDATA_NQUADS_PARSER = "false";
+
 	public static final String TURTLE_PARSER_FACTORY = "com.bigdata.rdf.rio.turtle.BigdataTurtleParserFactory";
 
 	public static final String TURTLE_WRITER_FACTORY = "com.bigdata.rdf.rio.turtle.BigdataTurtleWriterFactory";
@@ -97,6 +112,8 @@ public class ServiceProviderHook {
 	
 	public static final String JSON_RESULT_PARSER_FACTORY = "com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserFactory"; 
 	public static final String JSON_CONSTRUCT_PARSER_FACTORY = "com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserForConstructFactory";
+	public static final String IV_SOLUTIONS_WRITER_FACTORY = "com.bigdata.rdf.rio.iv.BigdataIVSolutionsWriterFactory";
+	public static final String IV_SOLUTIONS_PARSER_FACTORY = "com.bigdata.rdf.rio.iv.BigdataIVSolutionsParserFactory";
 	
 	
 	
@@ -120,6 +137,9 @@ public class ServiceProviderHook {
 				"application/sparql-results+json", "application/json"),
 				Charset.forName("UTF-8"), Arrays.asList("srj", "json"),
 				RDFFormat.NO_NAMESPACES, RDFFormat.SUPPORTS_CONTEXTS);        
+
+		IV_SOLUTIONS = new TupleQueryResultFormat("Bigdata-IV-Solutions",
+				"application/x-bigdata-iv-solutions", "bivs");
 		
         forceLoad();
 
@@ -150,6 +170,16 @@ public class ServiceProviderHook {
      * result stes using JSON.
      */
     public static final RDFFormat JSON_RDR;
+
+	/**
+	 * The extension MIME type for the streaming binary interchange of solution
+	 * sets between a bigdata server and a bigdata client. The solutions are
+	 * encoded as internal values together with a per-response dictionary of
+	 * their RDF Values. This format is never preferred by the default accept
+	 * headers. A client must ask for it explicitly and must have the bigdata
+	 * core classes on its class path in order to decode it.
+	 */
+	public static final TupleQueryResultFormat IV_SOLUTIONS;
     
     /**
 	 * This hook may be used to force the load of this class so it can ensure
@@ -211,6 +241,8 @@ public class ServiceProviderHook {
 		RDFFormat.register(TURTLE_RDR);
 		RDFFormat.register(NTRIPLES_RDR);
 		RDFFormat.register(JSON_RDR);
+
+		TupleQueryResultFormat.register(IV_SOLUTIONS);
 		
 		/*
          * Force the class loader to resolve the register, which will cause it
@@ -227,6 +259,13 @@ public class ServiceProviderHook {
 			// RDR-enabled
 			r.add((RDFParserFactory) getInstanceForClass(NTRIPLES_PARSER_FACTORY));
 			assert r.has(((RDFParserFactory) getInstanceForClass(NTRIPLES_PARSER_FACTORY)).getRDFFormat());
+
+            // byte-level N-Quads parser (opt-in).
+			if (Boolean.valueOf(System.getProperty(USE_BIGDATA_NQUADS_PARSER,
+					DEFAULT_USE_BIGDATA_NQUADS_PARSER))) {
+				r.add((RDFParserFactory) getInstanceForClass(NQUADS_PARSER_FACTORY));
+				assert r.has(((RDFParserFactory) getInstanceForClass(NQUADS_PARSER_FACTORY)).getRDFFormat());
+			}
             
             // RDR-enabled
 			r.add((RDFParserFactory) getInstanceForClass(TURTLE_PARSER_FACTORY));
@@ -246,6 +285,8 @@ public class ServiceProviderHook {
 
         	// add our custom RDR-enabled JSON writer for SPARQL result sets.
         	r.add((TupleQueryResultWriterFactory) getInstanceForClass(JSON_WRITER_FACTORY));
+        	// add the writer for the binary IV solutions format.
+        	r.add((TupleQueryResultWriterFactory) getInstanceForClass(IV_SOLUTIONS_WRITER_FACTORY));
         	
         }
 
@@ -256,6 +297,8 @@ public class ServiceProviderHook {
             // add our custom RDR-enabled JSON parser for SPARQL result sets.
            
             r.add((TupleQueryResultParserFactory) getInstanceForClass(JSON_RESULT_PARSER_FACTORY));
+            // add the parser for the binary IV solutions format.
+            r.add((TupleQueryResultParserFactory) getInstanceForClass(IV_SOLUTIONS_PARSER_FACTORY));
             
         }
 